@@ -0,0 +1,125 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.newisys.verilog.pli.bench;
+
+import java.util.List;
+
+import com.newisys.verilog.TimeType;
+import com.newisys.verilog.ValueType;
+import com.newisys.verilog.VerilogApplication;
+import com.newisys.verilog.VerilogCallback;
+import com.newisys.verilog.VerilogCallbackData;
+import com.newisys.verilog.VerilogCallbackHandler;
+import com.newisys.verilog.VerilogObject;
+import com.newisys.verilog.VerilogReg;
+import com.newisys.verilog.VerilogSimulation;
+
+/**
+ * Benchmark application for the mocksim PLI benchmark. For each register pair
+ * top.in&lt;i&gt;/top.out&lt;i&gt;, it registers a value change callback on
+ * the input register that copies the new value to the output register, so
+ * that every step costs one callback and one put per register.
+ * 
+ * @author Trevor Robinson
+ */
+public final class RegisterCopyApplication
+    extends VerilogApplication
+{
+    private static final String REGS_ARG = "+mock_regs=";
+
+    public RegisterCopyApplication(VerilogSimulation verilogSim)
+    {
+        super(verilogSim);
+    }
+
+    private int getRegisterCount()
+    {
+        final List<String> args = verilogSim.getArguments();
+        for (String arg : args)
+        {
+            if (arg.startsWith(REGS_ARG))
+            {
+                return Integer.parseInt(arg.substring(REGS_ARG.length()));
+            }
+        }
+        return 256;
+    }
+
+    @Override
+    public void start()
+    {
+        final int count = getRegisterCount();
+        for (int i = 0; i < count; ++i)
+        {
+            final VerilogReg in = (VerilogReg) verilogSim
+                .getObjectByName("top.in" + i);
+            final VerilogReg out = (VerilogReg) verilogSim
+                .getObjectByName("top.out" + i);
+            in.addValueChangeCallback(TimeType.SUPPRESS, ValueType.VECTOR,
+                new VerilogCallbackHandler()
+                {
+                    public void run(
+                        VerilogCallback cb,
+                        VerilogCallbackData data)
+                    {
+                        out.putValue(data.getValue());
+                    }
+                });
+        }
+    }
+
+    @Override
+    public void finish()
+    {
+        // do nothing
+    }
+
+    @Override
+    public void registerObject(String name, VerilogObject obj)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void registerSignal(
+        String name,
+        VerilogObject sampleObj,
+        VerilogObject driveObj)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void registerVerilogTask(
+        String name,
+        VerilogReg startReg,
+        VerilogReg doneReg,
+        VerilogObject[] argVars)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void callJavaTask(
+        String name,
+        VerilogReg doneReg,
+        VerilogObject[] argVars)
+    {
+        throw new UnsupportedOperationException();
+    }
+}
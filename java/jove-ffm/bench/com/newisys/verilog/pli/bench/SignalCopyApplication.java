@@ -0,0 +1,86 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.newisys.verilog.pli.bench;
+
+import java.util.List;
+
+import com.newisys.dv.ClockSignal;
+import com.newisys.dv.DVApplication;
+import com.newisys.dv.DVSimulation;
+import com.newisys.dv.InputSignal;
+import com.newisys.dv.OutputSignal;
+import com.newisys.verilog.EdgeSet;
+
+/**
+ * Benchmark application for the clocked mocksim PLI benchmark
+ * (+mock_clock=1). For each register pair top.in&lt;i&gt;/top.out&lt;i&gt;,
+ * it samples the input signal at each rising edge of top.clk and drives the
+ * sampled value onto the output signal with an output skew of 1, so every
+ * step exercises the Jove input monitors and output schedulers. Setting the
+ * <code>com.newisys.verilog.pli.directValues</code> system property makes
+ * them transfer values through shared value slots.
+ * 
+ * @author Trevor Robinson
+ */
+public final class SignalCopyApplication
+    extends DVApplication
+{
+    private static final String REGS_ARG = "+mock_regs=";
+
+    public SignalCopyApplication(DVSimulation dvSim)
+    {
+        super(dvSim);
+    }
+
+    private int getRegisterCount()
+    {
+        final List<String> args = dvSim.getArguments();
+        for (String arg : args)
+        {
+            if (arg.startsWith(REGS_ARG))
+            {
+                return Integer.parseInt(arg.substring(REGS_ARG.length()));
+            }
+        }
+        return 256;
+    }
+
+    public void run()
+    {
+        final int count = getRegisterCount();
+        final ClockSignal clk = dvSim.getClockSignal("top.clk", 1);
+        final InputSignal[] in = new InputSignal[count];
+        final OutputSignal[] out = new OutputSignal[count];
+        for (int i = 0; i < count; ++i)
+        {
+            in[i] = dvSim.getInputSignal("top.in" + i, clk, EdgeSet.POSEDGE,
+                0, 1);
+            out[i] = dvSim.getOutputSignal("top.out" + i, clk,
+                EdgeSet.POSEDGE, 1);
+        }
+
+        while (true)
+        {
+            clk.syncEdge(EdgeSet.POSEDGE);
+            for (int i = 0; i < count; ++i)
+            {
+                out[i].driveNB(in[i].sample());
+            }
+        }
+    }
+}
@@ -0,0 +1,1391 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.newisys.verilog.pli;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_DOUBLE;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.newisys.verilog.VerilogCallbackHandler;
+import com.newisys.verilog.VerilogObject;
+import com.newisys.verilog.VerilogRuntimeException;
+import com.newisys.verilog.VerilogTime;
+import com.newisys.verilog.util.Bit;
+import com.newisys.verilog.util.BitVector;
+import com.newisys.verilog.util.BitVectorSegments;
+import com.newisys.verilog.util.BitVectorView;
+
+/**
+ * Implementation of the low-level PLI interface that calls the VPI routines
+ * directly through java.lang.foreign downcall handles, rather than through
+ * the pli4j JNI methods of {@link PLI}. Callbacks are delivered through a
+ * single upcall stub. This implementation is selected by setting the
+ * <code>com.newisys.verilog.pli.interface</code> system property to the name
+ * of this class (e.g.
+ * <code>+javaopt=-Dcom.newisys.verilog.pli.interface=com.newisys.verilog.pli.ForeignPLI</code>).
+ * <p>
+ * pli4j is still used to start the JVM and launch the application, and the
+ * given {@link PLI} object still owns log buffering and simulation time
+ * caching. The VPI routines are looked up in the shared library named by the
+ * <code>com.newisys.verilog.pli.foreign.library</code> system property, or
+ * in the global symbols of the simulator process if it is not set.
+ * <p>
+ * This class assumes an LP64 platform, where VPI handles and pointers are
+ * passed as 64-bit integers. On Java 21, the JVM must be started with
+ * <code>--enable-preview</code>.
+ * 
+ * @author Trevor Robinson
+ */
+public final class ForeignPLI
+    implements PLIInterface
+{
+    private static final String pkgName = ForeignPLI.class.getPackage()
+        .getName();
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    // VPI structure layouts
+    private static final StructLayout S_VPI_TIME = MemoryLayout.structLayout(
+        JAVA_INT.withName("type"), JAVA_INT.withName("high"), JAVA_INT
+            .withName("low"), MemoryLayout.paddingLayout(4), JAVA_DOUBLE
+            .withName("real"));
+    private static final StructLayout S_VPI_VALUE = MemoryLayout
+        .structLayout(JAVA_INT.withName("format"), MemoryLayout
+            .paddingLayout(4), JAVA_LONG.withName("value"));
+    private static final StructLayout S_CB_DATA = MemoryLayout.structLayout(
+        JAVA_INT.withName("reason"), MemoryLayout.paddingLayout(4), ADDRESS
+            .withName("cb_rtn"), ADDRESS.withName("obj"), ADDRESS
+            .withName("time"), ADDRESS.withName("value"), JAVA_INT
+            .withName("index"), MemoryLayout.paddingLayout(4), ADDRESS
+            .withName("user_data"));
+    private static final StructLayout S_VPI_VLOG_INFO = MemoryLayout
+        .structLayout(JAVA_INT.withName("argc"),
+            MemoryLayout.paddingLayout(4), ADDRESS.withName("argv"), ADDRESS
+                .withName("product"), ADDRESS.withName("version"));
+    private static final StructLayout S_VPI_ERROR_INFO = MemoryLayout
+        .structLayout(JAVA_INT.withName("state"), JAVA_INT.withName("level"),
+            ADDRESS.withName("message"), ADDRESS.withName("product"), ADDRESS
+                .withName("code"), ADDRESS.withName("file"), JAVA_INT
+                .withName("line"), MemoryLayout.paddingLayout(4));
+
+    private static final long TIME_TYPE = offset(S_VPI_TIME, "type");
+    private static final long TIME_HIGH = offset(S_VPI_TIME, "high");
+    private static final long TIME_LOW = offset(S_VPI_TIME, "low");
+    private static final long TIME_REAL = offset(S_VPI_TIME, "real");
+
+    private static final long VALUE_FORMAT = offset(S_VPI_VALUE, "format");
+    private static final long VALUE_UNION = offset(S_VPI_VALUE, "value");
+
+    private static final long CB_REASON = offset(S_CB_DATA, "reason");
+    private static final long CB_RTN = offset(S_CB_DATA, "cb_rtn");
+    private static final long CB_OBJ = offset(S_CB_DATA, "obj");
+    private static final long CB_TIME = offset(S_CB_DATA, "time");
+    private static final long CB_VALUE = offset(S_CB_DATA, "value");
+    private static final long CB_INDEX = offset(S_CB_DATA, "index");
+    private static final long CB_USER_DATA = offset(S_CB_DATA, "user_data");
+
+    private static final long INFO_ARGC = offset(S_VPI_VLOG_INFO, "argc");
+    private static final long INFO_ARGV = offset(S_VPI_VLOG_INFO, "argv");
+    private static final long INFO_PRODUCT = offset(S_VPI_VLOG_INFO,
+        "product");
+    private static final long INFO_VERSION = offset(S_VPI_VLOG_INFO,
+        "version");
+
+    private static final long ERROR_STATE = offset(S_VPI_ERROR_INFO, "state");
+    private static final long ERROR_LEVEL = offset(S_VPI_ERROR_INFO, "level");
+    private static final long ERROR_MESSAGE = offset(S_VPI_ERROR_INFO,
+        "message");
+    private static final long ERROR_PRODUCT = offset(S_VPI_ERROR_INFO,
+        "product");
+    private static final long ERROR_CODE = offset(S_VPI_ERROR_INFO, "code");
+    private static final long ERROR_FILE = offset(S_VPI_ERROR_INFO, "file");
+    private static final long ERROR_LINE = offset(S_VPI_ERROR_INFO, "line");
+
+    // layout of the per-call scratch frames: a value, a time, callback data,
+    // and a data area for vectors, strings and other structures
+    private static final long FRAME_VALUE = 0;
+    private static final long FRAME_TIME = FRAME_VALUE
+        + S_VPI_VALUE.byteSize();
+    private static final long FRAME_CB_DATA = FRAME_TIME
+        + S_VPI_TIME.byteSize();
+    private static final long FRAME_DATA = FRAME_CB_DATA
+        + S_CB_DATA.byteSize();
+    private static final long FRAME_SIZE = 8192;
+
+    // maximum bit vector size accepted from the simulator
+    private static final int MAX_VECTOR_SIZE = 0x4000;
+
+    // VPI constants not defined elsewhere
+    private static final int vpiStop = 66;
+    private static final int vpiFinish = 67;
+    private static final int vpiReturnEvent = 0x1000;
+    private static final int vpiCancelEvent = 7;
+    private static final int vpiForceFlag = 5;
+    private static final int vpiReleaseFlag = 6;
+
+    private final PLI pli;
+    private final Arena arena = Arena.ofAuto();
+
+    // native function pointer to the callback routine bound to this object
+    private final MemorySegment callbackStub;
+
+    // NUL-terminated "%s" format for vpi_printf
+    private final MemorySegment printFormat;
+
+    // registered callbacks by user callback handle
+    private final Map<Long, CallbackInfo> callbacks = new HashMap<Long, CallbackInfo>();
+    private long nextCallbackHandle = 1;
+
+    // scratch frames by call nesting depth
+    private MemorySegment[] frames = new MemorySegment[4];
+    private int frameDepth;
+
+    // $finish support: number of active callbacks and whether finish() was
+    // called by one of them
+    private int callbackDepth;
+    private boolean finishPending;
+
+    /**
+     * Creates a ForeignPLI that delegates log output and time caching to the
+     * given JNI PLI object.
+     *
+     * @param pli the PLI object created by pli4j
+     */
+    public ForeignPLI(PLI pli)
+    {
+        this.pli = pli;
+
+        try
+        {
+            final MethodHandle callbackHandle = MethodHandles.lookup()
+                .findVirtual(
+                    ForeignPLI.class,
+                    "callback",
+                    MethodType.methodType(int.class, MemorySegment.class))
+                .bindTo(this);
+            callbackStub = Linker.nativeLinker().upcallStub(callbackHandle,
+                FunctionDescriptor.of(JAVA_INT, ADDRESS), Arena.global());
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new VerilogRuntimeException(
+                "Unable to create PLI callback stub", e);
+        }
+
+        printFormat = arena.allocate(3);
+        printFormat.set(JAVA_BYTE, 0, (byte) '%');
+        printFormat.set(JAVA_BYTE, 1, (byte) 's');
+        printFormat.set(JAVA_BYTE, 2, (byte) 0);
+    }
+
+    private static long offset(StructLayout layout, String name)
+    {
+        return layout.byteOffset(MemoryLayout.PathElement.groupElement(name));
+    }
+
+    // native access
+
+    private static final class VPI
+    {
+        private static final Linker linker = Linker.nativeLinker();
+        private static final SymbolLookup lookup = getLookup();
+
+        static final MethodHandle vpi_get_vlog_info = downcall(
+            "vpi_get_vlog_info", JAVA_INT, JAVA_LONG);
+        static final MethodHandle vpi_register_cb = downcall(
+            "vpi_register_cb", JAVA_LONG, JAVA_LONG);
+        static final MethodHandle vpi_remove_cb = downcall("vpi_remove_cb",
+            JAVA_INT, JAVA_LONG);
+        static final MethodHandle vpi_handle = downcall("vpi_handle",
+            JAVA_LONG, JAVA_INT, JAVA_LONG);
+        static final MethodHandle vpi_handle_by_name = downcall(
+            "vpi_handle_by_name", JAVA_LONG, JAVA_LONG, JAVA_LONG);
+        static final MethodHandle vpi_handle_multi = variadicDowncall(
+            "vpi_handle_multi", 3, JAVA_LONG, JAVA_INT, JAVA_LONG, JAVA_LONG);
+        static final MethodHandle vpi_handle_by_index = downcall(
+            "vpi_handle_by_index", JAVA_LONG, JAVA_LONG, JAVA_INT);
+        static final MethodHandle vpi_handle_by_multi_index = downcall(
+            "vpi_handle_by_multi_index", JAVA_LONG, JAVA_LONG, JAVA_INT,
+            JAVA_LONG);
+        static final MethodHandle vpi_iterate = downcall("vpi_iterate",
+            JAVA_LONG, JAVA_INT, JAVA_LONG);
+        static final MethodHandle vpi_scan = downcall("vpi_scan", JAVA_LONG,
+            JAVA_LONG);
+        static final MethodHandle vpi_compare_objects = downcall(
+            "vpi_compare_objects", JAVA_INT, JAVA_LONG, JAVA_LONG);
+        static final MethodHandle vpi_free_object = downcall(
+            "vpi_free_object", JAVA_INT, JAVA_LONG);
+        static final MethodHandle vpi_get = downcall("vpi_get", JAVA_INT,
+            JAVA_INT, JAVA_LONG);
+        static final MethodHandle vpi_get_str = downcall("vpi_get_str",
+            JAVA_LONG, JAVA_INT, JAVA_LONG);
+        static final MethodHandle vpi_get_value = downcall("vpi_get_value",
+            null, JAVA_LONG, JAVA_LONG);
+        static final MethodHandle vpi_put_value = downcall("vpi_put_value",
+            JAVA_LONG, JAVA_LONG, JAVA_LONG, JAVA_LONG, JAVA_INT);
+        static final MethodHandle vpi_get_time = downcall("vpi_get_time",
+            null, JAVA_LONG, JAVA_LONG);
+        static final MethodHandle vpi_printf = variadicDowncall("vpi_printf",
+            1, JAVA_INT, JAVA_LONG, JAVA_LONG);
+        static final MethodHandle vpi_flush = downcall("vpi_flush", JAVA_INT);
+        static final MethodHandle vpi_control = variadicDowncall(
+            "vpi_control", 1, JAVA_INT, JAVA_INT, JAVA_INT);
+        static final MethodHandle vpi_chk_error = downcall("vpi_chk_error",
+            JAVA_INT, JAVA_LONG);
+
+        private static SymbolLookup getLookup()
+        {
+            final String library = System.getProperty(pkgName
+                + ".foreign.library");
+            if (library != null)
+            {
+                return SymbolLookup.libraryLookup(Paths.get(library), Arena
+                    .global());
+            }
+
+            // search the global symbols of the simulator process using
+            // dlsym(RTLD_DEFAULT, name), since the VPI routines are provided
+            // by the simulator executable or a library it has loaded
+            final MethodHandle dlsym = linker.downcallHandle(linker
+                .defaultLookup().find("dlsym").orElseThrow(),
+                FunctionDescriptor.of(JAVA_LONG, JAVA_LONG, ADDRESS));
+            final long rtldDefault = System.getProperty("os.name").startsWith(
+                "Mac") ? -2L : 0L;
+            return name -> {
+                try (Arena nameArena = Arena.ofConfined())
+                {
+                    final long address = (long) dlsym.invokeExact(
+                        rtldDefault, nameArena.allocateUtf8String(name));
+                    return address != 0 ? java.util.Optional
+                        .of(MemorySegment.ofAddress(address)) : java.util.Optional
+                        .<MemorySegment> empty();
+                }
+                catch (Throwable t)
+                {
+                    throw new VerilogRuntimeException("Unable to look up "
+                        + name, t);
+                }
+            };
+        }
+
+        private static MemorySegment find(String name)
+        {
+            return lookup.find(name).orElseThrow(
+                () -> new VerilogRuntimeException("VPI routine not found: "
+                    + name));
+        }
+
+        private static MethodHandle downcall(
+            String name,
+            MemoryLayout result,
+            MemoryLayout... args)
+        {
+            return linker.downcallHandle(find(name), result != null
+                ? FunctionDescriptor.of(result, args) : FunctionDescriptor
+                    .ofVoid(args));
+        }
+
+        private static MethodHandle variadicDowncall(
+            String name,
+            int firstVariadicArg,
+            MemoryLayout result,
+            MemoryLayout... args)
+        {
+            return linker.downcallHandle(find(name), FunctionDescriptor.of(
+                result, args), Linker.Option
+                .firstVariadicArg(firstVariadicArg));
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable t)
+    {
+        if (t instanceof RuntimeException) return (RuntimeException) t;
+        if (t instanceof Error) throw (Error) t;
+        return new VerilogRuntimeException(t);
+    }
+
+    private MemorySegment enterFrame()
+    {
+        if (frameDepth == frames.length)
+        {
+            frames = Arrays.copyOf(frames, frameDepth * 2);
+        }
+        MemorySegment frame = frames[frameDepth];
+        if (frame == null)
+        {
+            frame = arena.allocate(FRAME_SIZE, 8);
+            frames[frameDepth] = frame;
+        }
+        ++frameDepth;
+        return frame;
+    }
+
+    private void exitFrame()
+    {
+        --frameDepth;
+    }
+
+    // returns memory for variable-size data passed in a call using the
+    // given frame
+    private MemorySegment allocateData(MemorySegment frame, long size)
+    {
+        if (size <= FRAME_SIZE - FRAME_DATA)
+        {
+            return frame.asSlice(FRAME_DATA, size);
+        }
+        return arena.allocate(size, 8);
+    }
+
+    private static MemorySegment getSegment(long address, long size)
+    {
+        return MemorySegment.ofAddress(address).reinterpret(size);
+    }
+
+    private static String getString(long address)
+    {
+        if (address == 0) return null;
+
+        final MemorySegment str = getSegment(address, Integer.MAX_VALUE);
+        int len = 0;
+        while (str.get(JAVA_BYTE, len) != 0)
+        {
+            ++len;
+        }
+        final byte[] bytes = new byte[len];
+        MemorySegment.copy(str, JAVA_BYTE, 0, bytes, 0, len);
+        return new String(bytes, UTF8);
+    }
+
+    private MemorySegment putString(MemorySegment frame, String s)
+    {
+        final byte[] bytes = s.getBytes(UTF8);
+        final MemorySegment str = allocateData(frame, bytes.length + 1);
+        MemorySegment.copy(bytes, 0, str, JAVA_BYTE, 0, bytes.length);
+        str.set(JAVA_BYTE, bytes.length, (byte) 0);
+        return str;
+    }
+
+    // simulation information
+
+    public PLIVerilogInfo getInfo()
+    {
+        final MemorySegment frame = enterFrame();
+        try
+        {
+            final MemorySegment info = frame.asSlice(FRAME_DATA,
+                S_VPI_VLOG_INFO.byteSize());
+            final int result = (int) VPI.vpi_get_vlog_info.invokeExact(info
+                .address());
+            if (result == 0)
+            {
+                throw getErrorRuntimeException();
+            }
+
+            final PLIVerilogInfo verilogInfo = new PLIVerilogInfo(
+                getString(info.get(JAVA_LONG, INFO_PRODUCT)), getString(info
+                    .get(JAVA_LONG, INFO_VERSION)));
+            final int argc = info.get(JAVA_INT, INFO_ARGC);
+            final MemorySegment argv = getSegment(info.get(JAVA_LONG,
+                INFO_ARGV), argc * 8L);
+            for (int i = 0; i < argc; ++i)
+            {
+                final long arg = argv.getAtIndex(JAVA_LONG, i);
+                if (arg == 0) break;
+                verilogInfo.addArgument(getString(arg));
+            }
+            return verilogInfo;
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+        finally
+        {
+            exitFrame();
+        }
+    }
+
+    // callbacks
+
+    private static final class CallbackInfo
+    {
+        final PLIVerilogCallback callback;
+        long cbHandle;
+
+        CallbackInfo(PLIVerilogCallback callback)
+        {
+            this.callback = callback;
+        }
+    }
+
+    public PLIVerilogCallback registerCallback(
+        PLICallbackReason reason,
+        VerilogCallbackHandler handler)
+    {
+        return registerCallback(reason, PLITime.SIM_TIME0, null,
+            PLIValueType.SUPPRESS, handler);
+    }
+
+    public PLIVerilogCallback registerCallback(
+        PLICallbackReason reason,
+        PLITime time,
+        VerilogCallbackHandler handler)
+    {
+        return registerCallback(reason, time, null, PLIValueType.SUPPRESS,
+            handler);
+    }
+
+    public PLIVerilogCallback registerCallback(
+        PLICallbackReason reason,
+        PLITime time,
+        PLIVerilogObject obj,
+        PLIValueType valueType,
+        VerilogCallbackHandler handler)
+    {
+        assert (time != null);
+
+        final PLIVerilogCallback callback = new PLIVerilogCallback(pli
+            .getProxyInterface(), reason, reason.isRecurring(), handler, time,
+            obj, valueType);
+        final CallbackInfo info = new CallbackInfo(callback);
+        final long handle = nextCallbackHandle++;
+
+        final MemorySegment frame = enterFrame();
+        try
+        {
+            setTime(frame, time.getTimeType().getValue(), time.getSimTime(),
+                time.getScaledRealTime());
+
+            frame.set(JAVA_INT, FRAME_VALUE + VALUE_FORMAT, valueType
+                .getValue());
+            frame.set(JAVA_LONG, FRAME_VALUE + VALUE_UNION, 0);
+
+            final long base = frame.address();
+            final MemorySegment cbData = frame.asSlice(FRAME_CB_DATA,
+                S_CB_DATA.byteSize());
+            cbData.set(JAVA_INT, CB_REASON, reason.getValue());
+            cbData.set(JAVA_LONG, CB_RTN, callbackStub.address());
+            cbData.set(JAVA_LONG, CB_OBJ, PLIVerilogObject
+                .getObjectHandle(obj));
+            cbData.set(JAVA_LONG, CB_TIME, base + FRAME_TIME);
+            cbData.set(JAVA_LONG, CB_VALUE, base + FRAME_VALUE);
+            cbData.set(JAVA_INT, CB_INDEX, 0);
+            cbData.set(JAVA_LONG, CB_USER_DATA, handle);
+
+            // the callback may occur before vpi_register_cb returns
+            callbacks.put(handle, info);
+            info.cbHandle = (long) VPI.vpi_register_cb.invokeExact(cbData
+                .address());
+        }
+        catch (Throwable t)
+        {
+            callbacks.remove(handle);
+            throw rethrow(t);
+        }
+        finally
+        {
+            exitFrame();
+        }
+
+        if (info.cbHandle == PLIVerilogObject.NULL_HANDLE)
+        {
+            callbacks.remove(handle);
+            throw getErrorRuntimeException();
+        }
+        callback.setHandle(handle, true);
+        return callback;
+    }
+
+    // called through the upcall stub by the simulator
+    private int callback(MemorySegment cbDataPtr)
+    {
+        try
+        {
+            final MemorySegment cbData = cbDataPtr.reinterpret(S_CB_DATA
+                .byteSize());
+            final CallbackInfo info = callbacks.get(cbData.get(JAVA_LONG,
+                CB_USER_DATA));
+            if (info == null)
+            {
+                // callback was cancelled by an earlier callback at this time
+                return 0;
+            }
+
+            int timeType = PLITimeTypeConstants.vpiSuppress;
+            long longTime = 0;
+            double doubleTime = 0;
+            final long timeAddress = cbData.get(JAVA_LONG, CB_TIME);
+            if (timeAddress != 0)
+            {
+                final MemorySegment time = getSegment(timeAddress, S_VPI_TIME
+                    .byteSize());
+                timeType = time.get(JAVA_INT, TIME_TYPE);
+                longTime = getLongTime(time);
+                doubleTime = time.get(JAVA_DOUBLE, TIME_REAL);
+            }
+
+            Object value = null;
+            final long objHandle = cbData.get(JAVA_LONG, CB_OBJ);
+            final long valueAddress = cbData.get(JAVA_LONG, CB_VALUE);
+            if (objHandle != 0 && valueAddress != 0)
+            {
+                value = getJavaValue(objHandle, getSegment(valueAddress,
+                    S_VPI_VALUE.byteSize()));
+            }
+
+            ++callbackDepth;
+            try
+            {
+                pli.dispatchCallback(info.callback, timeType, longTime,
+                    doubleTime, value, cbData.get(JAVA_INT, CB_INDEX));
+            }
+            finally
+            {
+                if (--callbackDepth == 0 && finishPending)
+                {
+                    finishPending = false;
+                    finish0();
+                }
+            }
+        }
+        catch (Throwable t)
+        {
+            // exceptions cannot propagate back into the simulator
+            System.err.println("Uncaught exception in PLI callback:");
+            t.printStackTrace();
+            System.err.flush();
+            Runtime.getRuntime().halt(1);
+        }
+        return 0;
+    }
+
+    public void cancelCallback(long handle)
+    {
+        final CallbackInfo info = callbacks.remove(handle);
+        assert (info != null);
+
+        final int result;
+        try
+        {
+            result = (int) VPI.vpi_remove_cb.invokeExact(info.cbHandle);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+        if (result == 0)
+        {
+            throw getErrorRuntimeException();
+        }
+    }
+
+    public void releaseCallback(long handle)
+    {
+        final CallbackInfo info = callbacks.remove(handle);
+        assert (info != null);
+
+        try
+        {
+            final int result = (int) VPI.vpi_free_object
+                .invokeExact(info.cbHandle);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+    // handles
+
+    private PLIVerilogObject getObjectOrThrow(long handle)
+    {
+        if (handle != PLIVerilogObject.NULL_HANDLE)
+        {
+            return createObject(handle);
+        }
+        else
+        {
+            throw getErrorRuntimeException();
+        }
+    }
+
+    public PLIVerilogObject getObject(int type, long refHandle)
+    {
+        final long handle;
+        try
+        {
+            handle = (long) VPI.vpi_handle.invokeExact(type, refHandle);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+        return getObjectOrThrow(handle);
+    }
+
+    public PLIVerilogObject getObjectByName(String name, long scopeHandle)
+    {
+        final long handle;
+        final MemorySegment frame = enterFrame();
+        try
+        {
+            handle = (long) VPI.vpi_handle_by_name.invokeExact(putString(
+                frame, name).address(), scopeHandle);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+        finally
+        {
+            exitFrame();
+        }
+        return getObjectOrThrow(handle);
+    }
+
+    public PLIVerilogObject getObjectMulti(int type, long handle1, long handle2)
+    {
+        final long handle;
+        try
+        {
+            handle = (long) VPI.vpi_handle_multi.invokeExact(type, handle1,
+                handle2);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+        return getObjectOrThrow(handle);
+    }
+
+    public PLIVerilogObject getObjectByIndex(long parentHandle, int index)
+    {
+        final long handle;
+        try
+        {
+            handle = (long) VPI.vpi_handle_by_index.invokeExact(parentHandle,
+                index);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+        return getObjectOrThrow(handle);
+    }
+
+    public PLIVerilogObject getObjectByMultiIndex(
+        long parentHandle,
+        int[] indices)
+    {
+        final long handle;
+        final MemorySegment frame = enterFrame();
+        try
+        {
+            final MemorySegment indexArray = allocateData(frame,
+                indices.length * 4L);
+            MemorySegment.copy(indices, 0, indexArray, JAVA_INT, 0,
+                indices.length);
+            handle = (long) VPI.vpi_handle_by_multi_index.invokeExact(
+                parentHandle, indices.length, indexArray.address());
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+        finally
+        {
+            exitFrame();
+        }
+        return getObjectOrThrow(handle);
+    }
+
+    public <T extends VerilogObject> PLIIterator<T> iterate(
+        int type,
+        long refHandle)
+    {
+        final long iterHandle;
+        try
+        {
+            iterHandle = (long) VPI.vpi_iterate.invokeExact(type, refHandle);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+        return new PLIIterator<T>(pli.getProxyInterface(), iterHandle);
+    }
+
+    public PLIVerilogObject scan(long iterHandle)
+    {
+        final long handle;
+        try
+        {
+            handle = (long) VPI.vpi_scan.invokeExact(iterHandle);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+        return handle != PLIVerilogObject.NULL_HANDLE ? createObject(handle)
+            : null;
+    }
+
+    public boolean compareObjects(long handle1, long handle2)
+    {
+        try
+        {
+            return (int) VPI.vpi_compare_objects.invokeExact(handle1, handle2) != 0;
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+    public void freeObject(long handle)
+    {
+        try
+        {
+            final int result = (int) VPI.vpi_free_object.invokeExact(handle);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+    private PLIVerilogObject createObject(long handle)
+    {
+        final int type = getPropInt(PLIPropertyTypeConstants.vpiType, handle);
+        return PLI.createObject(pli.getProxyInterface(), type, handle);
+    }
+
+    // properties
+
+    public int getPropInt(int prop, long handle)
+    {
+        try
+        {
+            return (int) VPI.vpi_get.invokeExact(prop, handle);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+    public String getPropStr(int prop, long handle)
+    {
+        try
+        {
+            return getString((long) VPI.vpi_get_str.invokeExact(prop, handle));
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+    public boolean getPropBool(int prop, long handle)
+    {
+        return getPropInt(prop, handle) != 0;
+    }
+
+    // values
+
+    private Object getJavaValue(long objHandle, MemorySegment value)
+    {
+        final int format = value.get(JAVA_INT, VALUE_FORMAT);
+        switch (format)
+        {
+        case PLIValueTypeConstants.vpiInt:
+            return Integer.valueOf(value.get(JAVA_INT, VALUE_UNION));
+        case PLIValueTypeConstants.vpiReal:
+            return Double.valueOf(value.get(JAVA_DOUBLE, VALUE_UNION));
+        case PLIValueTypeConstants.vpiBinStr:
+        case PLIValueTypeConstants.vpiOctStr:
+        case PLIValueTypeConstants.vpiDecStr:
+        case PLIValueTypeConstants.vpiHexStr:
+        case PLIValueTypeConstants.vpiString:
+            return getString(value.get(JAVA_LONG, VALUE_UNION));
+        case PLIValueTypeConstants.vpiScalar:
+            switch (value.get(JAVA_INT, VALUE_UNION))
+            {
+            case 0:
+                return Bit.ZERO;
+            case 1:
+                return Bit.ONE;
+            case 2:
+                return Bit.Z;
+            default:
+                return Bit.X;
+            }
+        case PLIValueTypeConstants.vpiVector:
+            final int size = getPropInt(PLIPropertyTypeConstants.vpiSize,
+                objHandle);
+            if (size <= 0 || size > MAX_VECTOR_SIZE)
+            {
+                throw new VerilogRuntimeException("Invalid bit vector size: "
+                    + size);
+            }
+            return BitVectorSegments.read(getSegment(value.get(JAVA_LONG,
+                VALUE_UNION), BitVectorSegments.getByteSize(size)), size);
+        case PLIValueTypeConstants.vpiSuppress:
+            return null;
+        default:
+            throw new VerilogRuntimeException("Unsupported value type: "
+                + format);
+        }
+    }
+
+    // stores the given value in the value structure of the given frame
+    private void setVerilogValue(MemorySegment frame, Object obj)
+    {
+        final int format;
+        if (obj == null)
+        {
+            throw new NullPointerException("Cannot convert null to a PLI value");
+        }
+        else if (obj instanceof BitVector)
+        {
+            final BitVector bv = (BitVector) obj;
+            final MemorySegment vec = allocateData(frame, BitVectorSegments
+                .getByteSize(bv.length()));
+            BitVectorSegments.write(bv, vec);
+            format = PLIValueTypeConstants.vpiVector;
+            frame.set(JAVA_LONG, FRAME_VALUE + VALUE_UNION, vec.address());
+        }
+        else if (obj instanceof Bit)
+        {
+            // Bit IDs match the VPI scalar values
+            format = PLIValueTypeConstants.vpiScalar;
+            frame.set(JAVA_INT, FRAME_VALUE + VALUE_UNION, ((Bit) obj)
+                .getID());
+        }
+        else if (obj instanceof Boolean)
+        {
+            format = PLIValueTypeConstants.vpiScalar;
+            frame.set(JAVA_INT, FRAME_VALUE + VALUE_UNION, ((Boolean) obj)
+                .booleanValue() ? 1 : 0);
+        }
+        else if (obj instanceof Integer)
+        {
+            format = PLIValueTypeConstants.vpiInt;
+            frame.set(JAVA_INT, FRAME_VALUE + VALUE_UNION, ((Integer) obj)
+                .intValue());
+        }
+        else if (obj instanceof Double)
+        {
+            format = PLIValueTypeConstants.vpiReal;
+            frame.set(JAVA_DOUBLE, FRAME_VALUE + VALUE_UNION, ((Double) obj)
+                .doubleValue());
+        }
+        else if (obj instanceof String)
+        {
+            format = PLIValueTypeConstants.vpiString;
+            frame.set(JAVA_LONG, FRAME_VALUE + VALUE_UNION, putString(frame,
+                (String) obj).address());
+        }
+        else
+        {
+            throw new ClassCastException("Not a PLI value type: "
+                + obj.getClass().getName());
+        }
+        frame.set(JAVA_INT, FRAME_VALUE + VALUE_FORMAT, format);
+    }
+
+    public Object getValue(long handle, int format)
+    {
+        final MemorySegment frame = enterFrame();
+        try
+        {
+            frame.set(JAVA_INT, FRAME_VALUE + VALUE_FORMAT, format);
+            frame.set(JAVA_LONG, FRAME_VALUE + VALUE_UNION, 0);
+            VPI.vpi_get_value.invokeExact(handle, frame.address()
+                + FRAME_VALUE);
+            if ((int) VPI.vpi_chk_error.invokeExact(0L) != 0)
+            {
+                throw getErrorRuntimeException();
+            }
+            return getJavaValue(handle, frame.asSlice(FRAME_VALUE,
+                S_VPI_VALUE.byteSize()));
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+        finally
+        {
+            exitFrame();
+        }
+    }
+
+    private static void setTime(
+        MemorySegment frame,
+        int timeType,
+        long longTime,
+        double doubleTime)
+    {
+        frame.set(JAVA_INT, FRAME_TIME + TIME_TYPE, timeType);
+        frame.set(JAVA_INT, FRAME_TIME + TIME_HIGH, (int) (longTime >> 32));
+        frame.set(JAVA_INT, FRAME_TIME + TIME_LOW, (int) longTime);
+        frame.set(JAVA_DOUBLE, FRAME_TIME + TIME_REAL, doubleTime);
+    }
+
+    private static long getLongTime(MemorySegment time)
+    {
+        return ((long) time.get(JAVA_INT, TIME_HIGH) << 32)
+            | (time.get(JAVA_INT, TIME_LOW) & 0xFFFFFFFFL);
+    }
+
+    // returns the event handle, or ~0L if vpiReturnEvent was not requested
+    // and an error occurred
+    private long putValue0(
+        long handle,
+        Object value,
+        int timeType,
+        long longTime,
+        double doubleTime,
+        int flags)
+    {
+        final MemorySegment frame = enterFrame();
+        try
+        {
+            final long base = frame.address();
+            long valueAddress = 0;
+            if (value != null)
+            {
+                setVerilogValue(frame, value);
+                valueAddress = base + FRAME_VALUE;
+            }
+            setTime(frame, timeType, longTime, doubleTime);
+
+            final long eventHandle = (long) VPI.vpi_put_value.invokeExact(
+                handle, valueAddress, base + FRAME_TIME, flags);
+            if ((flags & vpiReturnEvent) == 0
+                && (int) VPI.vpi_chk_error.invokeExact(0L) != 0)
+            {
+                return ~0L;
+            }
+            return eventHandle;
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+        finally
+        {
+            exitFrame();
+        }
+    }
+
+    public void putValue(long handle, Object value)
+    {
+        final long eventHandle = putValue0(handle, value,
+            PLITimeTypeConstants.vpiSuppress, 0, 0,
+            PLIDriveDelayModeConstants.vpiNoDelay);
+
+        if (eventHandle == ~0L)
+        {
+            checkErrorRuntimeException();
+        }
+    }
+
+    // returns the memory of the given value slot, after checking that it is
+    // in a direct buffer and holds exactly the words needed for the value of
+    // the given object
+    private MemorySegment getValueSlot(long handle, BitVectorView view)
+    {
+        final ByteBuffer buffer = view.getBuffer();
+        if (!buffer.isDirect())
+        {
+            throw new VerilogRuntimeException(
+                "Value buffer is not a direct buffer");
+        }
+        final int size = getPropInt(PLIPropertyTypeConstants.vpiSize, handle);
+        if (size <= 0
+            || BitVectorView.getWordCount(size) != view.getWordCount())
+        {
+            throw new VerilogRuntimeException("Value slot of "
+                + view.getWordCount() + " words does not match object size "
+                + size);
+        }
+        return MemorySegment.ofBuffer(buffer).asSlice(view.getOffset(),
+            view.getWordCount() * BitVectorView.BYTES_PER_WORD);
+    }
+
+    public void getValueDirect(long handle, BitVectorView view)
+    {
+        final MemorySegment slot = getValueSlot(handle, view);
+        final MemorySegment frame = enterFrame();
+        try
+        {
+            frame.set(JAVA_INT, FRAME_VALUE + VALUE_FORMAT,
+                PLIValueTypeConstants.vpiVector);
+            frame.set(JAVA_LONG, FRAME_VALUE + VALUE_UNION, 0);
+            VPI.vpi_get_value.invokeExact(handle, frame.address()
+                + FRAME_VALUE);
+            if ((int) VPI.vpi_chk_error.invokeExact(0L) != 0)
+            {
+                throw getErrorRuntimeException();
+            }
+            slot.copyFrom(getSegment(frame.get(JAVA_LONG, FRAME_VALUE
+                + VALUE_UNION), slot.byteSize()));
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+        finally
+        {
+            exitFrame();
+        }
+    }
+
+    public void putValueDirect(long handle, BitVectorView view)
+    {
+        final MemorySegment slot = getValueSlot(handle, view);
+        final MemorySegment frame = enterFrame();
+        try
+        {
+            // the simulator reads the value in place from the slot
+            frame.set(JAVA_INT, FRAME_VALUE + VALUE_FORMAT,
+                PLIValueTypeConstants.vpiVector);
+            frame.set(JAVA_LONG, FRAME_VALUE + VALUE_UNION, slot.address());
+            final long eventHandle = (long) VPI.vpi_put_value.invokeExact(
+                handle, frame.address() + FRAME_VALUE, 0L,
+                PLIDriveDelayModeConstants.vpiNoDelay);
+            if ((int) VPI.vpi_chk_error.invokeExact(0L) != 0)
+            {
+                throw getErrorRuntimeException();
+            }
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+        finally
+        {
+            exitFrame();
+        }
+    }
+
+    private PLIVerilogSchedEvent putValueDelayInternal(
+        long handle,
+        Object value,
+        VerilogTime time,
+        PLIDriveDelayMode mode,
+        boolean returnEvent)
+    {
+        final PLITime pliTime = PLITime.getPLITime(time);
+        int flags = mode.getValue();
+
+        // request a return event if the user requested it and mode != NO_DELAY
+        returnEvent &= mode != PLIDriveDelayMode.NO_DELAY;
+        if (returnEvent)
+        {
+            flags |= vpiReturnEvent;
+        }
+        final long eventHandle = putValue0(handle, value, pliTime
+            .getTimeType().getValue(), pliTime.getSimTime(), pliTime
+            .getScaledRealTime(), flags);
+
+        // If we request an event handle, a value of NULL denotes an error
+        // condition. However, if we do not request an event handle, a value
+        // of ~0L denotes an error condition.
+        if (returnEvent)
+        {
+            if (eventHandle == PLIVerilogObject.NULL_HANDLE)
+            {
+                checkErrorRuntimeException();
+                return null;
+            }
+
+            return new PLIVerilogSchedEvent(pli.getProxyInterface(),
+                eventHandle);
+        }
+        else
+        {
+            if (eventHandle == ~0L)
+            {
+                checkErrorRuntimeException();
+            }
+
+            return null;
+        }
+    }
+
+    public void putValueDelay(
+        long handle,
+        Object value,
+        VerilogTime time,
+        PLIDriveDelayMode mode)
+    {
+        final PLIVerilogSchedEvent event = putValueDelayInternal(handle,
+            value, time, mode, false);
+        assert (event == null);
+    }
+
+    public PLIVerilogSchedEvent putValueDelayNotify(
+        long handle,
+        Object value,
+        VerilogTime time,
+        PLIDriveDelayMode mode)
+    {
+        return putValueDelayInternal(handle, value, time, mode, true);
+    }
+
+    public void cancelEvent(long handle)
+    {
+        final long eventHandle = putValue0(handle, null,
+            PLITimeTypeConstants.vpiSuppress, 0, 0, vpiCancelEvent);
+
+        if (eventHandle == ~0L)
+        {
+            checkErrorRuntimeException();
+        }
+    }
+
+    public void forceValue(long handle, Object value)
+    {
+        final long eventHandle = putValue0(handle, value,
+            PLITimeTypeConstants.vpiSuppress, 0, 0, vpiForceFlag);
+
+        if (eventHandle == ~0L)
+        {
+            checkErrorRuntimeException();
+        }
+    }
+
+    public Object releaseForce(long handle)
+    {
+        final MemorySegment frame = enterFrame();
+        try
+        {
+            frame.set(JAVA_INT, FRAME_VALUE + VALUE_FORMAT,
+                PLIValueTypeConstants.vpiObjType);
+            frame.set(JAVA_LONG, FRAME_VALUE + VALUE_UNION, 0);
+            setTime(frame, PLITimeTypeConstants.vpiSuppress, 0, 0);
+            final long base = frame.address();
+            final long eventHandle = (long) VPI.vpi_put_value.invokeExact(
+                handle, base + FRAME_VALUE, base + FRAME_TIME, vpiReleaseFlag);
+            if ((int) VPI.vpi_chk_error.invokeExact(0L) != 0)
+            {
+                throw getErrorRuntimeException();
+            }
+            return getJavaValue(handle, frame.asSlice(FRAME_VALUE,
+                S_VPI_VALUE.byteSize()));
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+        finally
+        {
+            exitFrame();
+        }
+    }
+
+    // time
+
+    public PLITime getTime(int timeType, long handle)
+    {
+        final MemorySegment frame = enterFrame();
+        try
+        {
+            setTime(frame, timeType, 0, 0);
+            VPI.vpi_get_time.invokeExact(handle, frame.address() + FRAME_TIME);
+            final MemorySegment time = frame.asSlice(FRAME_TIME, S_VPI_TIME
+                .byteSize());
+            return new PLITime(time.get(JAVA_INT, TIME_TYPE),
+                getLongTime(time), time.get(JAVA_DOUBLE, TIME_REAL));
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+        finally
+        {
+            exitFrame();
+        }
+    }
+
+    public PLITime getTime(int timeType)
+    {
+        final PLITime pliTime = getTime(timeType,
+            PLIVerilogObject.NULL_HANDLE);
+        if (timeType == PLITimeTypeConstants.vpiSim)
+        {
+            pli.cachedSimTime = pliTime.getSimTime();
+        }
+        else if (timeType == PLITimeTypeConstants.vpiScaledReal)
+        {
+            pli.cachedScaledRealTime = pliTime.getScaledRealTime();
+        }
+        return pliTime;
+    }
+
+    // logging
+
+    public void print(byte[] msg, int off, int len)
+    {
+        // keep buffered output ahead of output printed directly
+        pli.drainLog();
+
+        final int result;
+        final MemorySegment frame = enterFrame();
+        try
+        {
+            final MemorySegment str = allocateData(frame, len + 1);
+            MemorySegment.copy(msg, off, str, JAVA_BYTE, 0, len);
+            str.set(JAVA_BYTE, len, (byte) 0);
+            result = (int) VPI.vpi_printf.invokeExact(printFormat.address(),
+                str.address());
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+        finally
+        {
+            exitFrame();
+        }
+        if (result < 0)
+        {
+            throw getErrorRuntimeException();
+        }
+    }
+
+    public void flush()
+    {
+        pli.drainLog();
+
+        // the return value of vpi_flush doesn't seem to be reliable
+        try
+        {
+            final int result = (int) VPI.vpi_flush.invokeExact();
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+    // simulation control
+
+    public void stop()
+    {
+        try
+        {
+            final int result = (int) VPI.vpi_control.invokeExact(vpiStop, 1);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+    public void finish()
+    {
+        if (callbackDepth > 0)
+        {
+            // like pli4j, defer the finish until control returns to the
+            // simulator, since some simulators terminate immediately
+            finishPending = true;
+        }
+        else
+        {
+            pli.finish();
+        }
+    }
+
+    private void finish0()
+    {
+        try
+        {
+            final int result = (int) VPI.vpi_control.invokeExact(vpiFinish, 1);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+    // errors
+
+    private PLI.ErrorInfo getError()
+    {
+        final MemorySegment frame = enterFrame();
+        try
+        {
+            final MemorySegment info = frame.asSlice(FRAME_DATA,
+                S_VPI_ERROR_INFO.byteSize());
+            if ((int) VPI.vpi_chk_error.invokeExact(info.address()) == 0)
+            {
+                return null;
+            }
+            return new PLI.ErrorInfo(info.get(JAVA_INT, ERROR_STATE), info
+                .get(JAVA_INT, ERROR_LEVEL), getString(info.get(JAVA_LONG,
+                ERROR_MESSAGE)), getString(info.get(JAVA_LONG, ERROR_PRODUCT)),
+                getString(info.get(JAVA_LONG, ERROR_CODE)), getString(info
+                    .get(JAVA_LONG, ERROR_FILE)), info.get(JAVA_INT,
+                    ERROR_LINE));
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+        finally
+        {
+            exitFrame();
+        }
+    }
+
+    private VerilogRuntimeException getErrorRuntimeException()
+    {
+        return new VerilogRuntimeException(PLI.getExceptionMessage(getError()));
+    }
+
+    private void checkErrorRuntimeException()
+    {
+        final PLI.ErrorInfo info = getError();
+        if (info != null)
+        {
+            throw new VerilogRuntimeException(PLI.getExceptionMessage(info));
+        }
+    }
+}
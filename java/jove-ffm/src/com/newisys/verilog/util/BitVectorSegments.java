@@ -0,0 +1,97 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.newisys.verilog.util;
+
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+
+import java.lang.foreign.MemorySegment;
+
+/**
+ * Converts BitVectors to and from arrays of VPI s_vpi_vecval structures in
+ * native memory. Each structure is a pair of 32-bit words: the 0/1 values
+ * (aval) followed by the x/z mask (bval), which match the BitVector encoding.
+ * 
+ * @author Trevor Robinson
+ */
+public final class BitVectorSegments
+{
+    private static final long VECVAL_SIZE = 8;
+    private static final long BVAL_OFFSET = 4;
+
+    private BitVectorSegments()
+    {
+    }
+
+    /**
+     * Returns the size in bytes of the s_vpi_vecval array for a vector of the
+     * given length.
+     *
+     * @param length the length of the vector in bits
+     * @return the size of the array in bytes
+     */
+    public static long getByteSize(int length)
+    {
+        return getWordCount(length) * VECVAL_SIZE;
+    }
+
+    private static int getWordCount(int length)
+    {
+        return (length - 1) / 32 + 1;
+    }
+
+    /**
+     * Creates a BitVector from an s_vpi_vecval array.
+     *
+     * @param vec the array, at least {@link #getByteSize} bytes long
+     * @param length the length of the vector in bits
+     * @return a new BitVector
+     */
+    public static BitVector read(MemorySegment vec, int length)
+    {
+        final int count = getWordCount(length);
+        final int[] values = new int[count];
+        final int[] xzMask = new int[count];
+        for (int i = 0; i < count; ++i)
+        {
+            final long offset = i * VECVAL_SIZE;
+            values[i] = vec.get(JAVA_INT, offset);
+            xzMask[i] = vec.get(JAVA_INT, offset + BVAL_OFFSET);
+        }
+        return new BitVector(values, xzMask, length);
+    }
+
+    /**
+     * Stores a BitVector into an s_vpi_vecval array.
+     *
+     * @param bv the BitVector to store
+     * @param vec the array, at least {@link #getByteSize} bytes long
+     */
+    public static void write(BitVector bv, MemorySegment vec)
+    {
+        final int count = getWordCount(bv.length());
+        final int[] values = bv.values();
+        final int[] xzMask = bv.xzMask();
+        assert (values.length >= count && xzMask.length >= count);
+        for (int i = 0; i < count; ++i)
+        {
+            final long offset = i * VECVAL_SIZE;
+            vec.set(JAVA_INT, offset, values[i]);
+            vec.set(JAVA_INT, offset + BVAL_OFFSET, xzMask[i]);
+        }
+    }
+}
@@ -21,11 +21,31 @@ package com.newisys.dv.ifgen;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.*;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.newisys.dv.ifgen.parser.IfgenParser;
 import com.newisys.dv.ifgen.parser.ParseException;
@@ -33,6 +53,9 @@ import com.newisys.dv.ifgen.schema.*;
 import com.newisys.langschema.NamedObject;
 import com.newisys.langschema.java.JavaRawStructuredType;
 import com.newisys.langschema.java.JavaSchema;
+import com.newisys.langschema.java.JavaSchemaObject;
+import com.newisys.langschema.java.JavaStructuredType;
+import com.newisys.langschema.java.JavaStructuredTypeMember;
 import com.newisys.schemaprinter.java.JavaSchemaPrinter;
 
 /**
@@ -44,6 +67,7 @@ import com.newisys.schemaprinter.java.JavaSchemaPrinter;
 public class Ifgen
 {
     private final long TS_THRESHOLD = 2;
+    private static final String TS_VERSION = "!2";
 
     private final File srcRootDir;
     private Set<File> srcFiles = new LinkedHashSet<File>();
@@ -52,6 +76,9 @@ public class Ifgen
     private boolean forceDefaultClockPort;
     private boolean genshell;
     private Set<File> outputFiles = new LinkedHashSet<File>();
+    private int threadCount = Integer.getInteger(
+        "com.newisys.dv.ifgen.threads", Runtime.getRuntime()
+            .availableProcessors());
     Map<String, Set<ShellDefinition>> shellsToGenerate = new HashMap<String, Set<ShellDefinition>>();
 
     private class ShellDefinition
@@ -112,6 +139,23 @@ public class Ifgen
         }
     }
 
+    /**
+     * The state recorded in the timestamp file for each source file: a digest
+     * of its contents, the source files it depends on, and the files that
+     * were generated from it.
+     */
+    private static final class SourceState
+    {
+        final String digest;
+        final Set<File> dependencies = new LinkedHashSet<File>();
+        final Set<File> outputs = new LinkedHashSet<File>();
+
+        public SourceState(String digest)
+        {
+            this.digest = digest;
+        }
+    }
+
     private class ParameterMismatchException
         extends RuntimeException
     {
@@ -201,6 +245,28 @@ public class Ifgen
         shellsToGenerate.put(testbench, shells);
     }
 
+    public int getThreadCount()
+    {
+        return threadCount;
+    }
+
+    /**
+     * Sets the number of worker threads used to parse source files and print
+     * generated Java source files. A count of 1 performs all work on the
+     * calling thread.
+     *
+     * @param threadCount the number of worker threads
+     */
+    public void setThreadCount(int threadCount)
+    {
+        if (threadCount < 1)
+        {
+            throw new IllegalArgumentException("Invalid thread count: "
+                + threadCount);
+        }
+        this.threadCount = threadCount;
+    }
+
     public void execute()
         throws ParseException, IfgenResolverException,
         IfgenTranslatorException, IOException
@@ -216,147 +282,138 @@ public class Ifgen
         System.out.println("Working directory: "
             + System.getProperty("user.dir"));
 
-        // check existing timestamp file for added/removed/modified input files
-        boolean needTranslation = true;
-        tsCheck: if (timestampFile != null)
+        // source file state is tracked by canonical path
+        final Set<File> srcKeys = new LinkedHashSet<File>();
+        for (File srcFile : srcFiles)
+        {
+            srcKeys.add(srcFile.getCanonicalFile());
+        }
+
+        // read the per-file state recorded by the last run, if any; outputs
+        // of the last run are collected so that obsolete ones can be removed
+        final Set<File> prevOutputs = new LinkedHashSet<File>();
+        final Map<File, SourceState> prevStates = readTimestampFile(prevOutputs);
+        readListFile(prevOutputs);
+
+        // determine which source files were added or modified since the last
+        // run, using content digests so that touched files are not rebuilt
+        final long tsModified = (prevStates != null) ? timestampFile
+            .lastModified() : 0;
+        final Map<File, String> digests = new HashMap<File, String>();
+        final Set<File> dirtyFiles = new LinkedHashSet<File>();
+        for (File srcKey : srcKeys)
         {
-            System.out.println("Checking timestamp file...");
-            final FileReader tsFileReader;
-            final long tsModified;
-            try
+            final SourceState prevState = (prevStates != null) ? prevStates
+                .get(srcKey) : null;
+            final long srcModified = srcKey.lastModified();
+            String digest = null;
+            if (prevState != null && srcModified != 0
+                && srcModified - tsModified <= TS_THRESHOLD)
             {
-                tsFileReader = new FileReader(timestampFile);
-                tsModified = timestampFile.lastModified();
-                assert (tsModified > 0);
+                digest = prevState.digest;
             }
-            catch (FileNotFoundException e)
+            if (digest == null)
             {
-                // timestamp file does not exist yet
-                System.out.println("Timestamp file not found: "
-                    + e.getMessage());
-                break tsCheck;
+                digest = getDigest(srcKey);
             }
-            final File baseDir = timestampFile.getParentFile()
-                .getCanonicalFile();
-            final Set<File> tsSrcFiles = new LinkedHashSet<File>();
-            final BufferedReader tsReader = new BufferedReader(tsFileReader);
-            try
+            digests.put(srcKey, digest);
+
+            if (prevState == null || !digest.equals(prevState.digest)
+                || !allExist(prevState.outputs))
             {
-                String tsLine;
-                while ((tsLine = tsReader.readLine()) != null)
+                System.out.println("Source file is new or modified: "
+                    + srcKey.getPath());
+                dirtyFiles.add(srcKey);
+            }
+        }
+        if (prevStates != null)
+        {
+            for (File srcKey : prevStates.keySet())
+            {
+                if (!digests.containsKey(srcKey))
                 {
-                    if (tsLine.length() < 2)
-                    {
-                        System.err.println("Invalid timestamp file");
-                        break tsCheck;
-                    }
-                    char dirChar = tsLine.charAt(0);
-                    final File tsFile = resolvePath(tsLine.substring(1),
-                        baseDir);
-                    if (dirChar == '<')
-                    {
-                        final long tsFileModified = tsFile.lastModified();
-                        if (tsFileModified == 0
-                            || tsFileModified - tsModified > TS_THRESHOLD)
-                        {
-                            // source file has been deleted or modified
-                            System.out
-                                .println("Timestamp input file has been deleted or modified: "
-                                    + tsFile.getPath());
-                            break tsCheck;
-                        }
-                        tsSrcFiles.add(tsFile);
-                    }
-                    else if (dirChar == '>')
-                    {
-                        if (!tsFile.exists())
-                        {
-                            // output file is missing
-                            System.out
-                                .println("Timestamp output file does not exist: "
-                                    + tsFile.getPath());
-                            break tsCheck;
-                        }
-                    }
-                    else
-                    {
-                        System.err.println("Invalid timestamp file");
-                        break tsCheck;
-                    }
+                    System.out.println("Source file has been removed: "
+                        + srcKey.getPath());
+                    dirtyFiles.add(srcKey);
                 }
             }
-            finally
+        }
+
+        boolean needTranslation = true;
+        if (prevStates != null && dirtyFiles.isEmpty())
+        {
+            System.out.println("Source files unchanged since last run");
+            // the outputs recorded by the last run are still current
+            for (SourceState state : prevStates.values())
             {
-                tsReader.close();
+                outputFiles.addAll(state.outputs);
             }
-            if (tsSrcFiles.equals(srcFiles))
+            if (!isGenshell() && shellsToGenerate.isEmpty())
             {
-                // source file set is unchanged since last run
-                System.out.println("Source files unchanged since last run");
-                if (isGenshell() || !shellsToGenerate.isEmpty())
-                {
-                    // If we want to write a shell, we need to keep going.
-                    needTranslation = false;
-                    break tsCheck;
-                }
                 return;
             }
-            else
-            {
-                System.out
-                    .println("Source file set is different than last run");
-            }
+            // If we want to write a shell, we need to keep going.
+            needTranslation = false;
+        }
+
+        // parse all source files; definitions in unchanged files are still
+        // needed to resolve names in the changed ones
+        final IfgenSchema ifSchema = new IfgenSchema();
+        final List<IfgenFile> files = parseFiles(ifSchema);
+
+        // perform name resolution and semantic checking, recording the
+        // objects each file refers to
+        final Map<IfgenFile, Set<NamedObject>> references = new HashMap<IfgenFile, Set<NamedObject>>();
+        for (IfgenFile file : files)
+        {
+            final IfgenResolver resolver = new IfgenResolver(ifSchema, file
+                .getPackageDecl());
+            resolver.resolve(file);
+            references.put(file, resolver.getReferences());
         }
 
-        // delete all previously generated files if not writing the shell
         if (needTranslation)
         {
-            listCheck: if (listFile != null)
+            // determine which files must be translated again: those that
+            // changed and those that depend on them, now or in the last run
+            final Map<File, Set<File>> dependencies = getDependencies(files,
+                references);
+            final Set<File> affectedFiles = new LinkedHashSet<File>();
+            boolean added = true;
+            while (added)
             {
-                BufferedReader listReader = null;
-                try
+                added = false;
+                for (File srcKey : srcKeys)
                 {
-                    listReader = new BufferedReader(new FileReader(listFile));
-                }
-                catch (FileNotFoundException e)
-                {
-                    break listCheck;
-                }
-                System.out.println("Removing previously generated files");
-                String outputFileName;
-                while ((outputFileName = listReader.readLine()) != null)
-                {
-                    File f = new File(outputFileName);
-                    if (f.exists() && !f.delete())
+                    if (affectedFiles.contains(srcKey)) continue;
+
+                    boolean affected = dirtyFiles.contains(srcKey)
+                        || containsAny(dependencies.get(srcKey), dirtyFiles);
+                    if (!affected && prevStates != null)
                     {
-                        System.err.println("Error removing file: "
-                            + f.getPath());
+                        final SourceState prevState = prevStates.get(srcKey);
+                        affected = prevState != null
+                            && containsAny(prevState.dependencies, dirtyFiles);
+                    }
+                    if (affected)
+                    {
+                        affectedFiles.add(srcKey);
+                        dirtyFiles.add(srcKey);
+                        added = true;
                     }
                 }
             }
-        }
-
-        // parse all source files
-        IfgenSchema ifSchema = new IfgenSchema();
-        Collection<IfgenFile> files = new LinkedList<IfgenFile>();
-        for (File srcFile : srcFiles)
-        {
-            System.out.println("Reading " + srcFile.getPath());
-            IfgenFile file = parseFile(ifSchema, srcFile);
-            files.add(file);
-        }
-
-        // perform name resolution and semantic checking
-        IfgenResolver.resolve(ifSchema, files);
+            System.out.println("Translating " + affectedFiles.size() + " of "
+                + srcKeys.size() + " source files");
 
-        if (needTranslation)
-        {
-            // generate Java schema and Verilog shells from Ifgen schema
+            // generate Java schema from Ifgen schema
             final JavaSchema javaSchema = new JavaSchema();
             final IfgenJavaTranslator javaXlat = new IfgenJavaTranslator(
                 javaSchema);
             for (final IfgenFile file : files)
             {
+                if (!affectedFiles.contains(getSourceKey(file))) continue;
+
                 final IfgenSchemaMemberVisitor fileMemberXlat = new IfgenSchemaMemberVisitor()
                 {
                     public void visit(IfgenBind obj)
@@ -451,15 +508,77 @@ public class Ifgen
                 }
             }
 
-            // write generated Java source files
+            // attribute each generated type to the files whose definitions
+            // produced it; types belonging to unaffected files were only
+            // translated as dependencies and are already up to date
             final JavaSchemaPrinter printer = new JavaSchemaPrinter();
-            final Set<JavaRawStructuredType> xlatTypes = javaXlat
-                .getXlatTypes();
-            for (JavaRawStructuredType type : xlatTypes)
+            final Map<File, SourceState> states = new LinkedHashMap<File, SourceState>();
+            final Set<File> printFiles = new HashSet<File>();
+            for (final IfgenFile file : files)
+            {
+                final File srcKey = getSourceKey(file);
+                final SourceState state = new SourceState(digests.get(srcKey));
+                state.dependencies.addAll(dependencies.get(srcKey));
+                if (affectedFiles.contains(srcKey))
+                {
+                    for (IfgenSchemaMember def : file.getDefinitions())
+                    {
+                        addOutputFile(state, javaXlat, printer, def);
+                        if (def instanceof IfgenPort)
+                        {
+                            IfgenPort revPort = ((IfgenPort) def)
+                                .getReverseOf();
+                            if (revPort != null)
+                            {
+                                addOutputFile(state, javaXlat, printer,
+                                    revPort);
+                            }
+                        }
+                    }
+                    printFiles.addAll(state.outputs);
+                }
+                else
+                {
+                    state.outputs.addAll(prevStates.get(srcKey).outputs);
+                }
+                states.put(srcKey, state);
+                outputFiles.addAll(state.outputs);
+            }
+
+            // write generated Java source files
+            final List<Callable<Object>> printTasks = new LinkedList<Callable<Object>>();
+            for (final JavaRawStructuredType type : javaXlat.getXlatTypes())
             {
-                File typeFile = printer.getTypeFile(type, srcRootDir);
-                outputFiles.add(typeFile);
-                printer.print(type, srcRootDir);
+                if (!printFiles.contains(printer.getTypeFile(type, srcRootDir)
+                    .getCanonicalFile()))
+                {
+                    continue;
+                }
+                printTasks.add(new Callable<Object>()
+                {
+                    public Object call()
+                        throws IOException
+                    {
+                        printer.print(type, srcRootDir);
+                        return null;
+                    }
+                });
+            }
+            runTasks(printTasks);
+
+            // remove files generated by the last run that are now obsolete
+            for (File prevOutput : prevOutputs)
+            {
+                if (!outputFiles.contains(prevOutput) && prevOutput.exists())
+                {
+                    System.out.println("Removing obsolete generated file: "
+                        + prevOutput.getPath());
+                    if (!prevOutput.delete())
+                    {
+                        System.err.println("Error removing file: "
+                            + prevOutput.getPath());
+                    }
+                }
             }
 
             // write new timestamp file
@@ -475,21 +594,26 @@ public class Ifgen
                     final FileWriter tsFileWriter = new FileWriter(
                         timestampFile);
                     tsWriter = new BufferedWriter(tsFileWriter);
-                    for (File srcFile : srcFiles)
+                    tsWriter.write(TS_VERSION);
+                    tsWriter.newLine();
+                    for (Map.Entry<File, SourceState> entry : states.entrySet())
                     {
-                        String srcPath = srcFile.getCanonicalPath();
-                        srcPath = relativizePath(srcPath, timestampPath);
-                        tsWriter.write('<');
-                        tsWriter.write(srcPath);
-                        tsWriter.newLine();
-                    }
-                    for (File outputFile : outputFiles)
-                    {
-                        String outputPath = outputFile.getCanonicalPath();
-                        outputPath = relativizePath(outputPath, timestampPath);
-                        tsWriter.write('>');
-                        tsWriter.write(outputPath);
+                        final SourceState state = entry.getValue();
+                        writeTimestampLine(tsWriter, '<', entry.getKey(),
+                            timestampPath);
+                        tsWriter.write('#');
+                        tsWriter.write(state.digest);
                         tsWriter.newLine();
+                        for (File depFile : state.dependencies)
+                        {
+                            writeTimestampLine(tsWriter, '-', depFile,
+                                timestampPath);
+                        }
+                        for (File outputFile : state.outputs)
+                        {
+                            writeTimestampLine(tsWriter, '>', outputFile,
+                                timestampPath);
+                        }
                     }
                 }
                 catch (IOException e)
@@ -649,15 +773,385 @@ public class Ifgen
         }
     }
 
-    private static IfgenFile parseFile(IfgenSchema ifSchema, File srcFile)
-        throws FileNotFoundException, ParseException
+    private Map<File, SourceState> readTimestampFile(Set<File> prevOutputs)
+        throws IOException
     {
-        FileReader reader = new FileReader(srcFile);
-        IfgenParser parser = new IfgenParser(reader);
-        parser.setSchema(ifSchema);
-        IfgenFile file = parser.file();
-        file.setSourceFile(srcFile);
-        return file;
+        if (timestampFile == null) return null;
+
+        System.out.println("Checking timestamp file...");
+        final BufferedReader tsReader;
+        try
+        {
+            tsReader = new BufferedReader(new FileReader(timestampFile));
+        }
+        catch (FileNotFoundException e)
+        {
+            // timestamp file does not exist yet
+            System.out.println("Timestamp file not found: " + e.getMessage());
+            return null;
+        }
+        final File baseDir = timestampFile.getCanonicalFile().getParentFile();
+        final Map<File, SourceState> states = new LinkedHashMap<File, SourceState>();
+        boolean valid = true;
+        try
+        {
+            // timestamp files without a version line predate per-file state;
+            // only their list of outputs is used
+            String tsLine = tsReader.readLine();
+            if (TS_VERSION.equals(tsLine))
+            {
+                tsLine = tsReader.readLine();
+            }
+            else
+            {
+                System.out.println("Timestamp file contains no per-file state");
+                valid = false;
+            }
+
+            File srcFile = null;
+            SourceState state = null;
+            for (; tsLine != null; tsLine = tsReader.readLine())
+            {
+                if (tsLine.length() < 2)
+                {
+                    valid = false;
+                    continue;
+                }
+                final char dirChar = tsLine.charAt(0);
+                final String value = tsLine.substring(1);
+                if (dirChar == '<')
+                {
+                    srcFile = resolvePath(value, baseDir)
+                        .getCanonicalFile();
+                    state = null;
+                }
+                else if (dirChar == '#' && srcFile != null && state == null)
+                {
+                    state = new SourceState(value);
+                    states.put(srcFile, state);
+                }
+                else if (dirChar == '-' && state != null)
+                {
+                    state.dependencies.add(resolvePath(value, baseDir)
+                        .getCanonicalFile());
+                }
+                else if (dirChar == '>')
+                {
+                    final File outputFile = resolvePath(value, baseDir)
+                        .getCanonicalFile();
+                    prevOutputs.add(outputFile);
+                    if (state != null) state.outputs.add(outputFile);
+                }
+                else
+                {
+                    valid = false;
+                }
+            }
+        }
+        finally
+        {
+            tsReader.close();
+        }
+        if (!valid)
+        {
+            System.err.println("Invalid timestamp file");
+            return null;
+        }
+        return states;
+    }
+
+    private void readListFile(Set<File> prevOutputs)
+        throws IOException
+    {
+        if (listFile == null) return;
+
+        final BufferedReader listReader;
+        try
+        {
+            listReader = new BufferedReader(new FileReader(listFile));
+        }
+        catch (FileNotFoundException e)
+        {
+            return;
+        }
+        final File baseDir = listFile.getCanonicalFile().getParentFile();
+        try
+        {
+            String outputFileName;
+            while ((outputFileName = listReader.readLine()) != null)
+            {
+                prevOutputs.add(resolvePath(outputFileName, baseDir)
+                    .getCanonicalFile());
+            }
+        }
+        finally
+        {
+            listReader.close();
+        }
+    }
+
+    private List<IfgenFile> parseFiles(final IfgenSchema ifSchema)
+        throws ParseException, IOException
+    {
+        // parse files concurrently, deferring their definitions so that they
+        // are added to the schema in source file order
+        final IfgenParser[] parsers = new IfgenParser[srcFiles.size()];
+        final List<Callable<IfgenFile>> parseTasks = new ArrayList<Callable<IfgenFile>>(
+            parsers.length);
+        for (final File srcFile : srcFiles)
+        {
+            final int index = parseTasks.size();
+            parseTasks.add(new Callable<IfgenFile>()
+            {
+                public IfgenFile call()
+                    throws ParseException, IOException
+                {
+                    System.out.println("Reading " + srcFile.getPath());
+                    final FileReader reader = new FileReader(srcFile);
+                    try
+                    {
+                        IfgenParser parser = new IfgenParser(reader);
+                        parser.setSchema(ifSchema);
+                        parser.setDeferMembers(true);
+                        IfgenFile file = parser.file();
+                        file.setSourceFile(srcFile);
+                        parsers[index] = parser;
+                        return file;
+                    }
+                    finally
+                    {
+                        reader.close();
+                    }
+                }
+            });
+        }
+
+        final List<IfgenFile> files = runTasks(parseTasks);
+        for (IfgenParser parser : parsers)
+        {
+            parser.addDeferredMembers();
+        }
+        return files;
+    }
+
+    private <T> List<T> runTasks(List<Callable<T>> tasks)
+        throws ParseException, IOException
+    {
+        final List<T> results = new ArrayList<T>(tasks.size());
+        if (threadCount == 1 || tasks.size() <= 1)
+        {
+            for (Callable<T> task : tasks)
+            {
+                try
+                {
+                    results.add(task.call());
+                }
+                catch (Exception e)
+                {
+                    throw rethrow(e);
+                }
+            }
+            return results;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math
+            .min(threadCount, tasks.size()));
+        try
+        {
+            for (Future<T> future : executor.invokeAll(tasks))
+            {
+                results.add(future.get());
+            }
+        }
+        catch (InterruptedException e)
+        {
+            throw new InterruptedIOException("Interrupted waiting for "
+                + "worker threads");
+        }
+        catch (ExecutionException e)
+        {
+            final Throwable cause = e.getCause();
+            if (cause instanceof Error) throw (Error) cause;
+            throw rethrow((Exception) cause);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    private static RuntimeException rethrow(Exception e)
+        throws ParseException, IOException
+    {
+        if (e instanceof ParseException) throw (ParseException) e;
+        if (e instanceof IOException) throw (IOException) e;
+        if (e instanceof RuntimeException) throw (RuntimeException) e;
+        throw new RuntimeException(e);
+    }
+
+    private static Map<File, Set<File>> getDependencies(
+        List<IfgenFile> files,
+        Map<IfgenFile, Set<NamedObject>> references)
+        throws IOException
+    {
+        // map each definition and package to the files that define it
+        final Map<Object, Set<File>> definers = new HashMap<Object, Set<File>>();
+        final Map<IfgenPackage, Set<File>> taskDefiners = new HashMap<IfgenPackage, Set<File>>();
+        for (IfgenFile file : files)
+        {
+            final File srcKey = getSourceKey(file);
+            final IfgenPackage pkg = file.getPackageDecl();
+            if (pkg != null) addDefiner(definers, pkg, srcKey);
+            for (IfgenSchemaMember def : file.getDefinitions())
+            {
+                addDefiner(definers, def, srcKey);
+                if (def instanceof IfgenPort)
+                {
+                    IfgenPort revPort = ((IfgenPort) def).getReverseOf();
+                    if (revPort != null) addDefiner(definers, revPort, srcKey);
+                }
+                else if (def instanceof IfgenHDLTask
+                    && !((IfgenHDLTask) def).hasParameters())
+                {
+                    // non-parameterized tasks of a package share one class
+                    addDefiner(taskDefiners, pkg, srcKey);
+                }
+            }
+        }
+
+        final Map<File, Set<File>> dependencies = new HashMap<File, Set<File>>();
+        for (IfgenFile file : files)
+        {
+            final File srcKey = getSourceKey(file);
+            final Set<File> depFiles = new LinkedHashSet<File>();
+            for (NamedObject obj : references.get(file))
+            {
+                final Set<File> objDefiners = definers.get(obj);
+                if (objDefiners != null) depFiles.addAll(objDefiners);
+            }
+            for (IfgenSchemaMember def : file.getDefinitions())
+            {
+                if (def instanceof IfgenHDLTask
+                    && !((IfgenHDLTask) def).hasParameters())
+                {
+                    depFiles.addAll(taskDefiners.get(((IfgenHDLTask) def)
+                        .getPackage()));
+                }
+            }
+            depFiles.remove(srcKey);
+            dependencies.put(srcKey, depFiles);
+        }
+        return dependencies;
+    }
+
+    private static <K> void addDefiner(
+        Map<K, Set<File>> definers,
+        K obj,
+        File srcKey)
+    {
+        Set<File> objDefiners = definers.get(obj);
+        if (objDefiners == null)
+        {
+            objDefiners = new LinkedHashSet<File>();
+            definers.put(obj, objDefiners);
+        }
+        objDefiners.add(srcKey);
+    }
+
+    private void addOutputFile(
+        SourceState state,
+        IfgenJavaTranslator javaXlat,
+        JavaSchemaPrinter printer,
+        Object obj)
+        throws IOException
+    {
+        JavaSchemaObject javaObj = javaXlat.getXlatObjMap().get(obj);
+        if (!(javaObj instanceof JavaStructuredType)
+            && javaObj instanceof JavaStructuredTypeMember)
+        {
+            // members other than types are emitted with their container
+            final JavaStructuredType< ? > container = ((JavaStructuredTypeMember) javaObj)
+                .getStructuredType();
+            if (container != null) javaObj = container;
+        }
+        if (javaObj instanceof JavaStructuredType)
+        {
+            state.outputs.add(printer.getTypeFile(
+                (JavaStructuredType) javaObj, srcRootDir).getCanonicalFile());
+        }
+    }
+
+    private static void writeTimestampLine(
+        BufferedWriter tsWriter,
+        char dirChar,
+        File file,
+        String timestampPath)
+        throws IOException
+    {
+        tsWriter.write(dirChar);
+        tsWriter.write(relativizePath(file.getCanonicalPath(), timestampPath));
+        tsWriter.newLine();
+    }
+
+    private static File getSourceKey(IfgenFile file)
+        throws IOException
+    {
+        return file.getSourceFile().getCanonicalFile();
+    }
+
+    private static String getDigest(File file)
+        throws IOException
+    {
+        final MessageDigest md;
+        try
+        {
+            md = MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new RuntimeException(e);
+        }
+        final InputStream in = new FileInputStream(file);
+        try
+        {
+            final byte[] buf = new byte[8192];
+            int count;
+            while ((count = in.read(buf)) >= 0)
+            {
+                md.update(buf, 0, count);
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+
+        final StringBuilder hex = new StringBuilder(40);
+        for (byte b : md.digest())
+        {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static boolean allExist(Set<File> files)
+    {
+        for (File file : files)
+        {
+            if (!file.exists()) return false;
+        }
+        return true;
+    }
+
+    private static boolean containsAny(Set<File> files, Set<File> testFiles)
+    {
+        for (File file : files)
+        {
+            if (testFiles.contains(file)) return true;
+        }
+        return false;
     }
 
     private String getShellName(
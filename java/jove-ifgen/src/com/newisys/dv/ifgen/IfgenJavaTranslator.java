@@ -729,9 +729,9 @@ public class IfgenJavaTranslator
         {
             cls.newValue(elt.getName().getIdentifier(), false);
         }
-        xlatObjMap.put(enumeration, e);
+        xlatObjMap.put(enumeration, cls);
 
-        return e;
+        return cls;
     }
 
     public JavaMemberVariable translateBind(IfgenBind bind)
@@ -1864,6 +1864,7 @@ public class IfgenJavaTranslator
     private void translateNonParameterizedHDLTask(IfgenHDLTask task)
     {
         final JavaRawClass taskClass = getTasksClass(task.getPackage());
+        xlatObjMap.put(task, taskClass);
         // check if this class already contains a wrapper for this task
         Set<JavaFunction> methods = taskClass.getMethods(task.getName()
             .getIdentifier(), null);
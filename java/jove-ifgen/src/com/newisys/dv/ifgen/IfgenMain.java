@@ -67,6 +67,9 @@ public final class IfgenMain
 
         public final OptionArgDef genshellsOpt;
 
+        public final OptionArgDef threadsOpt;
+        public final StringArgDef threadsArg;
+
         public final OptionArgDef shellOpt;
         public final StringArgDef testbenchArg;
         public final StringArgDef paramsArg;
@@ -122,6 +125,12 @@ public final class IfgenMain
                 "Generate shells for non-parameterized testbenches", 0, 1);
             addArgDef(genshellsOpt);
 
+            threadsOpt = new OptionArgDef("threads",
+                "Number of worker threads used to read and write files", 0, 1);
+            threadsArg = new StringArgDef("count");
+            threadsOpt.addArgDef(threadsArg);
+            addArgDef(threadsOpt);
+
             shellOpt = new OptionArgDef("shell",
                 "Generate a shell for the specified testbench", 0,
                 AbstractArgDef.UNBOUNDED);
@@ -227,6 +236,21 @@ public final class IfgenMain
                 ifgen.setGenshell(true);
             }
 
+            String threads = cmdLine.getOptionArgValue(cmdLineDef.threadsOpt,
+                cmdLineDef.threadsArg);
+            if (threads != null)
+            {
+                try
+                {
+                    ifgen.setThreadCount(Integer.parseInt(threads));
+                }
+                catch (IllegalArgumentException e)
+                {
+                    throw new ValidationException("Invalid thread count: "
+                        + threads);
+                }
+            }
+
             List shells = cmdLine.getArgsForDef(cmdLineDef.shellOpt);
             if (shells != null)
             {
@@ -49,6 +49,7 @@ public class IfgenTask
     private String filelist;
     private boolean forcedefaultclock;
     private boolean genshells;
+    private int threads;
     private final List<FileSet> filesets = new LinkedList<FileSet>();
     private final List<ShellType> shells = new LinkedList<ShellType>();
 
@@ -77,6 +78,11 @@ public class IfgenTask
         this.genshells = genshells;
     }
 
+    public void setThreads(int threads)
+    {
+        this.threads = threads;
+    }
+
     public void addFileset(FileSet fileset)
     {
         filesets.add(fileset);
@@ -107,6 +113,7 @@ public class IfgenTask
         if (filelist != null) ifgen.setListFile(new File(filelist));
         if (forcedefaultclock) ifgen.setForceDefaultClockPort(true);
         if (genshells) ifgen.setGenshell(true);
+        if (threads > 0) ifgen.setThreadCount(threads);
 
         for (final FileSet fileset : filesets)
         {
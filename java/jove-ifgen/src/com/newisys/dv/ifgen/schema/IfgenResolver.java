@@ -21,6 +21,7 @@ package com.newisys.dv.ifgen.schema;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -40,6 +41,7 @@ public final class IfgenResolver
     private final IfgenPackage pkg;
     private List<Namespace> typeImports = new LinkedList<Namespace>();
     private List<Namespace> demandImports = new LinkedList<Namespace>();
+    private final Set<NamedObject> references = new LinkedHashSet<NamedObject>();
 
     public IfgenResolver(IfgenSchema schema, IfgenPackage pkg)
     {
@@ -57,6 +59,19 @@ public final class IfgenResolver
         demandImports.add(packageOrType);
     }
 
+    /**
+     * Returns the objects that names have been resolved to by this resolver.
+     * Packages appear only when named directly (as in an import), not when
+     * they merely qualify another name. This set can be used to determine
+     * which other definitions a resolved file depends on.
+     *
+     * @return a set of NamedObject
+     */
+    public Set<NamedObject> getReferences()
+    {
+        return references;
+    }
+
     public NamedObject resolveName(IfgenUnresolvedName name, IfgenNameKind kind)
         throws IfgenResolverException
     {
@@ -151,6 +166,12 @@ public final class IfgenResolver
                 + name.toString(pos));
         }
 
+        if (!(obj instanceof IfgenPackage)
+            || pos == name.getIdentifiers().size() - 1)
+        {
+            references.add(obj);
+        }
+
         return obj;
     }
 
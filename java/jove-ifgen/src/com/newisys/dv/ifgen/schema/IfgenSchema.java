@@ -77,7 +77,7 @@ public final class IfgenSchema
         }
     }
 
-    public IfgenSetType addSetType(IfgenType type)
+    public synchronized IfgenSetType addSetType(IfgenType type)
     {
         if (type == null)
         {
@@ -92,12 +92,12 @@ public final class IfgenSchema
         return setTypes.get(type);
     }
 
-    public IfgenSetType getSetType(IfgenType type)
+    public synchronized IfgenSetType getSetType(IfgenType type)
     {
         return setTypes.get(type);
     }
 
-    public IfgenEnumType addEnumType(IfgenName name)
+    public synchronized IfgenEnumType addEnumType(IfgenName name)
     {
         if (name == null)
         {
@@ -112,7 +112,7 @@ public final class IfgenSchema
         return enumTypes.get(name);
     }
 
-    public IfgenEnumType getEnumType(IfgenName name)
+    public synchronized IfgenEnumType getEnumType(IfgenName name)
     {
         return enumTypes.get(name);
     }
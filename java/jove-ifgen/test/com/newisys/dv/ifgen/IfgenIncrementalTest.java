@@ -0,0 +1,257 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.newisys.dv.ifgen;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests that incremental ifgen builds emit and record the same files as a
+ * clean build.
+ */
+public class IfgenIncrementalTest
+    extends TestCase
+{
+    private static final String AND3_SOURCE = "package testinc.and3;\n\n"
+        + "interface And3Interface\n{\n"
+        + "    default module and3_test_top.dut;\n"
+        + "    default sample(posedge, -1);\n"
+        + "    default drive(posedge, 1);\n"
+        + "    clock clk;\n    output i1;\n    output i2;\n    output i3;\n"
+        + "    input o1;\n}\n\n"
+        + "port And3Port\n{\n    input clk;\n    input datain;\n"
+        + "    output dataout;\n}\n\n"
+        + "bind And3Bind is And3Port\n{\n"
+        + "    default interface And3Interface;\n    clk clk;\n"
+        + "    dataout {i1, i2, i3};\n    datain o1;\n}\n\n"
+        + "hdl_task dispState () and3_test_top.dut.dispState;\n\n"
+        + "testbench and3_shell\n{\n    import testinc.and3.*;\n}\n";
+
+    private static final String PARAM_SOURCE = "package testinc.param;\n\n"
+        + "interface ParamInterfaceTmpl<integer dut>\n{\n"
+        + "    default module \"param_test_top.dut$dut\";\n"
+        + "    default sample(posedge, -1);\n"
+        + "    default drive(posedge, 1);\n"
+        + "    clock clk;\n    output i1;\n    input o1;\n}\n\n"
+        + "port ParamPort\n{\n    input clk;\n    input datain;\n"
+        + "    output dataout;\n}\n\n"
+        + "bind ParamBindTmpl<integer dut> is ParamPort\n{\n"
+        + "    default interface ParamInterfaceTmpl<$dut>;\n    clk clk;\n"
+        + "    dataout i1;\n    datain o1;\n}\n\n"
+        + "testbench ParamShell\n{\n    import testinc.param.*;\n"
+        + "    for integer i ([0, 1])\n    {\n"
+        + "        interface ParamInterface ParamInterfaceTmpl<$i>;\n"
+        + "        bind ParamBind ParamBindTmpl<$i>;\n    }\n}\n";
+
+    private static final String[] EXPECTED_FILES = {
+        "testinc/and3/And3Bind.java", "testinc/and3/And3Interface.java",
+        "testinc/and3/And3Port.java", "testinc/and3/And3Tasks.java",
+        "testinc/and3/and3_shell.java", "testinc/and3/and3_shell.v",
+        "testinc/param/ParamInterfaceTmpl.java",
+        "testinc/param/ParamPort.java", "testinc/param/ParamShell.java",
+        "testinc/param/param_shell.v" };
+
+    private File root;
+    private File and3File;
+    private File paramFile;
+
+    public static void main(String[] args)
+    {
+        junit.textui.TestRunner.run(IfgenIncrementalTest.class);
+    }
+
+    public IfgenIncrementalTest(String arg0)
+    {
+        super(arg0);
+    }
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        root = File.createTempFile("ifgen", "");
+        root.delete();
+        root.mkdir();
+        and3File = new File(root, "testinc/and3/and3.if");
+        paramFile = new File(root, "testinc/param/param.if");
+        write(and3File, AND3_SOURCE);
+        write(paramFile, PARAM_SOURCE);
+    }
+
+    @Override
+    protected void tearDown()
+        throws Exception
+    {
+        delete(root);
+        super.tearDown();
+    }
+
+    private static void write(File file, String contents)
+        throws IOException
+    {
+        file.getParentFile().mkdirs();
+        final Writer writer = new FileWriter(file);
+        try
+        {
+            writer.write(contents);
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    private static void delete(File file)
+    {
+        final File[] children = file.listFiles();
+        if (children != null)
+        {
+            for (final File child : children)
+            {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private Ifgen build()
+        throws Exception
+    {
+        final Ifgen ifgen = new Ifgen(root);
+        ifgen.addSrcFile(and3File);
+        ifgen.addSrcFile(paramFile);
+        ifgen.setTimestampFile(new File(root, "ifgen.tstamp"));
+        ifgen.setListFile(new File(root, "ifgen.lst"));
+        ifgen.setGenshell(true);
+        ifgen.execute();
+        return ifgen;
+    }
+
+    private String relativize(File file)
+        throws IOException
+    {
+        final String rootPath = root.getCanonicalPath() + File.separator;
+        final String path = file.getCanonicalPath();
+        assertTrue(path, path.startsWith(rootPath));
+        return path.substring(rootPath.length()).replace(File.separatorChar,
+            '/');
+    }
+
+    private void findGenerated(File dir, Set<String> result)
+        throws IOException
+    {
+        for (final File file : dir.listFiles())
+        {
+            final String name = file.getName();
+            if (file.isDirectory())
+            {
+                findGenerated(file, result);
+            }
+            else if (name.endsWith(".java") || name.endsWith(".v"))
+            {
+                result.add(relativize(file));
+            }
+        }
+    }
+
+    private Set<String> readLines(String name, String prefix)
+        throws IOException
+    {
+        final Set<String> result = new TreeSet<String>();
+        final BufferedReader reader = new BufferedReader(new FileReader(
+            new File(root, name)));
+        try
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                if (line.startsWith(prefix))
+                {
+                    result.add(relativize(new File(root, line.substring(prefix
+                        .length()))));
+                }
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+        return result;
+    }
+
+    private void checkOutputs(Ifgen ifgen)
+        throws IOException
+    {
+        final Set<String> expected = new TreeSet<String>(Arrays
+            .asList(EXPECTED_FILES));
+
+        // every file is on disk and reported, whether or not it was
+        // regenerated by this build
+        final Set<String> onDisk = new TreeSet<String>();
+        findGenerated(root, onDisk);
+        assertEquals(expected, onDisk);
+        final Set<String> reported = new TreeSet<String>();
+        for (final File file : ifgen.getOutputFiles())
+        {
+            reported.add(relativize(file));
+        }
+        assertEquals(expected, reported);
+
+        // the timestamp and list files record the Java outputs; shells are
+        // written after them and regenerated on every run
+        final Set<String> expectedJava = new HashSet<String>();
+        for (final String name : expected)
+        {
+            if (name.endsWith(".java")) expectedJava.add(name);
+        }
+        assertEquals(expectedJava, readLines("ifgen.tstamp", ">"));
+        assertEquals(expectedJava, readLines("ifgen.lst", ""));
+    }
+
+    public void testCleanBuild()
+        throws Exception
+    {
+        checkOutputs(build());
+    }
+
+    public void testIncrementalBuild()
+        throws Exception
+    {
+        build();
+
+        // unchanged sources
+        checkOutputs(build());
+
+        // one changed source; the outputs of the other are carried forward
+        write(and3File, AND3_SOURCE + "// changed\n");
+        checkOutputs(build());
+        write(paramFile, PARAM_SOURCE + "// changed\n");
+        checkOutputs(build());
+    }
+}
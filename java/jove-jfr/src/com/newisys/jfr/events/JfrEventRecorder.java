@@ -0,0 +1,172 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.newisys.jfr.events;
+
+import java.lang.reflect.Method;
+
+import com.newisys.jfr.JfrRecorder;
+
+/**
+ * Reports Jove events to Java Flight Recorder. Loaded by JfrSupport when the
+ * system property <code>com.newisys.jfr</code> is true.
+ *
+ * @author Trevor Robinson
+ */
+public final class JfrEventRecorder
+    implements JfrRecorder
+{
+    public boolean isThreadSwitchEnabled()
+    {
+        return new ThreadSwitchEvent().isEnabled();
+    }
+
+    public Object beginThreadSwitch(long simTime)
+    {
+        final ThreadSwitchEvent event = new ThreadSwitchEvent();
+        if (!event.isEnabled()) return null;
+
+        // simTime holds the time the switch began until it is committed
+        event.simTime = simTime;
+        event.begin();
+        return event;
+    }
+
+    public void commitThreadSwitch(
+        Object event,
+        String thread,
+        Object blockingEvent,
+        long simTime)
+    {
+        final ThreadSwitchEvent e = (ThreadSwitchEvent) event;
+        e.end();
+        if (e.shouldCommit())
+        {
+            e.thread = thread;
+            e.blockingEvent = blockingEvent != null ? blockingEvent
+                .toString() : null;
+            e.simTimeWaited = simTime - e.simTime;
+            e.simTime = simTime;
+            e.commit();
+        }
+    }
+
+    public Object beginNotify()
+    {
+        final NotifyEvent event = new NotifyEvent();
+        if (!event.isEnabled()) return null;
+        event.begin();
+        return event;
+    }
+
+    public void commitNotify(
+        Object event,
+        Object notified,
+        int threadsWoken,
+        int metaEvents)
+    {
+        final NotifyEvent e = (NotifyEvent) event;
+        if (e.shouldCommit())
+        {
+            e.event = notified.toString();
+            e.threadsWoken = threadsWoken;
+            e.metaEvents = metaEvents;
+            e.commit();
+        }
+    }
+
+    public Object beginMarshalledCall()
+    {
+        final MarshalledCallEvent event = new MarshalledCallEvent();
+        if (!event.isEnabled()) return null;
+        event.begin();
+        return event;
+    }
+
+    public void commitMarshalledCall(Object event, Method method)
+    {
+        final MarshalledCallEvent e = (MarshalledCallEvent) event;
+        if (e.shouldCommit())
+        {
+            e.method = method.getDeclaringClass().getSimpleName() + "."
+                + method.getName();
+            e.commit();
+        }
+    }
+
+    public Object beginPLICallback()
+    {
+        final PLICallbackEvent event = new PLICallbackEvent();
+        if (!event.isEnabled()) return null;
+        event.begin();
+        return event;
+    }
+
+    public void commitPLICallback(Object event, Object reason, long simTime)
+    {
+        final PLICallbackEvent e = (PLICallbackEvent) event;
+        if (e.shouldCommit())
+        {
+            e.reason = reason.toString();
+            e.simTime = simTime;
+            e.commit();
+        }
+    }
+
+    public Object beginRandomize()
+    {
+        final RandomizeEvent event = new RandomizeEvent();
+        if (!event.isEnabled()) return null;
+        event.begin();
+        return event;
+    }
+
+    public void commitRandomize(
+        Object event,
+        Class< ? > objectClass,
+        boolean cached,
+        boolean solved)
+    {
+        final RandomizeEvent e = (RandomizeEvent) event;
+        if (e.shouldCommit())
+        {
+            e.objectClass = objectClass;
+            e.cached = cached;
+            e.solved = solved;
+            e.commit();
+        }
+    }
+
+    public Object beginTimeStep()
+    {
+        final TimeStepEvent event = new TimeStepEvent();
+        if (!event.isEnabled()) return null;
+        event.begin();
+        return event;
+    }
+
+    public void commitTimeStep(Object event, long simTime, long step)
+    {
+        final TimeStepEvent e = (TimeStepEvent) event;
+        if (e.shouldCommit())
+        {
+            e.simTime = simTime;
+            e.step = step;
+            e.commit();
+        }
+    }
+}
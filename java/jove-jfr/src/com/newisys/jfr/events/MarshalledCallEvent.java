@@ -0,0 +1,43 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.jfr.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted when a call marshalled by a ThreadMarshaller returns to its caller.
+ * The event duration is the round trip from queueing the call to receiving
+ * its result.
+ *
+ * @author Trevor Robinson
+ */
+@Name("com.newisys.MarshalledCall")
+@Label("Marshalled Call")
+@Category( { "Jove", "Simulator Interface" })
+@Description("A call made from a simulation thread and executed by the "
+    + "simulator thread")
+public final class MarshalledCallEvent
+    extends jdk.jfr.Event
+{
+    @Label("Method")
+    public String method;
+}
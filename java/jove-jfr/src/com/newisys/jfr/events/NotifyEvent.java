@@ -0,0 +1,50 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.jfr.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted for each SimulationManager.notifyOf() call, with the number of
+ * threads and meta events it woke.
+ *
+ * @author Trevor Robinson
+ */
+@Name("com.newisys.Notify")
+@Label("Event Notification")
+@Category( { "Jove", "Simulation" })
+@Description("A simulation event was notified")
+@StackTrace(false)
+public final class NotifyEvent
+    extends jdk.jfr.Event
+{
+    @Label("Event")
+    public String event;
+
+    @Label("Threads Woken")
+    public int threadsWoken;
+
+    @Label("Meta Events")
+    @Description("Number of meta events waiting on the event")
+    public int metaEvents;
+}
@@ -0,0 +1,48 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.jfr.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted for each PLI callback dispatched to a Java handler. The event
+ * duration is the time spent in the handler, including any simulation
+ * threads it ran.
+ *
+ * @author Trevor Robinson
+ */
+@Name("com.newisys.PLICallback")
+@Label("PLI Callback")
+@Category( { "Jove", "Simulator Interface" })
+@Description("A simulator callback was dispatched to Java")
+@StackTrace(false)
+public final class PLICallbackEvent
+    extends jdk.jfr.Event
+{
+    @Label("Reason")
+    public String reason;
+
+    @Label("Sim Time")
+    @Description("Simulation time of the callback, or -1 if not reported")
+    public long simTime;
+}
@@ -0,0 +1,48 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.jfr.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted for each call to the constraint solver's randomize method.
+ *
+ * @author Jon Nall
+ */
+@Name("com.newisys.Randomize")
+@Label("Randomize")
+@Category( { "Jove", "Random Solver" })
+@Description("An object was randomized by the constraint solver")
+public final class RandomizeEvent
+    extends jdk.jfr.Event
+{
+    @Label("Object Class")
+    public Class< ? > objectClass;
+
+    @Label("Solution Cached")
+    @Description("Whether a solution for the constraint set was cached")
+    public boolean cached;
+
+    @Label("Solved")
+    @Description("Whether the constraints had to be solved")
+    public boolean solved;
+}
@@ -0,0 +1,54 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.jfr.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted when a simulation thread resumes after blocking on an event or
+ * yielding. The event duration is the wall-clock time the thread was
+ * suspended.
+ *
+ * @author Trevor Robinson
+ */
+@Name("com.newisys.ThreadSwitch")
+@Label("Simulation Thread Switch")
+@Category( { "Jove", "Simulation" })
+@Description("A simulation thread blocked or yielded and later resumed")
+@StackTrace(false)
+public final class ThreadSwitchEvent
+    extends jdk.jfr.Event
+{
+    @Label("Thread")
+    public String thread;
+
+    @Label("Blocking Event")
+    @Description("The event waited for, or null for a yield")
+    public String blockingEvent;
+
+    @Label("Sim Time Waited")
+    public long simTimeWaited;
+
+    @Label("Resume Sim Time")
+    public long simTime;
+}
@@ -0,0 +1,47 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.jfr.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted when the behavioral EventScheduler processes a time step. The event
+ * duration is the time spent processing the events of the step.
+ *
+ * @author Scott Diesing
+ */
+@Name("com.newisys.TimeStep")
+@Label("Time Step")
+@Category( { "Jove", "Behavioral Simulation" })
+@Description("The event scheduler advanced to a new time step")
+@StackTrace(false)
+public final class TimeStepEvent
+    extends jdk.jfr.Event
+{
+    @Label("Sim Time")
+    public long simTime;
+
+    @Label("Step Size")
+    @Description("Simulation time advanced since the previous time step")
+    public long step;
+}
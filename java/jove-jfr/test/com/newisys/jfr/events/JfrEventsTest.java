@@ -0,0 +1,122 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.jfr.events;
+
+import java.io.File;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import junit.framework.TestCase;
+
+import com.newisys.eventsim.PulseEvent;
+import com.newisys.eventsim.SimulationManager;
+import com.newisys.eventsim.SimulationThread;
+import com.newisys.jfr.JfrSupport;
+
+/**
+ * Tests that simulation thread switches and event notifications are recorded
+ * as flight recorder events. Must be run with -Dcom.newisys.jfr=true.
+ */
+public class JfrEventsTest
+    extends TestCase
+{
+    public static void main(String[] args)
+    {
+        junit.textui.TestRunner.run(JfrEventsTest.class);
+    }
+
+    public JfrEventsTest(String arg0)
+    {
+        super(arg0);
+    }
+
+    final public void testThreadSwitchAndNotify()
+        throws Exception
+    {
+        assertTrue("com.newisys.jfr is not true", JfrSupport.ENABLED);
+
+        final SimulationManager sim = new SimulationManager();
+        final PulseEvent tick = new PulseEvent("tick");
+        final Recording recording = new Recording();
+        recording.enable(ThreadSwitchEvent.class).withThreshold(null);
+        recording.enable(NotifyEvent.class).withThreshold(null);
+        recording.start();
+        try
+        {
+            assertTrue(sim.isSimTimeTracked());
+            for (int i = 0; i < 2; ++i)
+            {
+                sim.fork("worker" + i, new Runnable()
+                {
+                    public void run()
+                    {
+                        SimulationThread.currentThread().waitFor(tick);
+                    }
+                });
+            }
+            sim.setSimTime(5);
+            sim.executeThreads();
+            sim.setSimTime(25);
+            sim.notifyOf(tick);
+            sim.executeThreads();
+        }
+        finally
+        {
+            recording.stop();
+        }
+        assertFalse(sim.hasActiveThreads());
+
+        final File file = File.createTempFile("jove", ".jfr");
+        try
+        {
+            recording.dump(file.toPath());
+            recording.close();
+            final List<RecordedEvent> events = RecordingFile
+                .readAllEvents(file.toPath());
+            int switches = 0;
+            int notifies = 0;
+            for (final RecordedEvent e : events)
+            {
+                final String name = e.getEventType().getName();
+                if (name.equals("com.newisys.ThreadSwitch"))
+                {
+                    ++switches;
+                    assertTrue(e.getString("thread").startsWith("worker"));
+                    assertEquals("tick", e.getString("blockingEvent"));
+                    assertEquals("simTimeWaited", 20, e.getLong("simTimeWaited"));
+                    assertEquals("simTime", 25, e.getLong("simTime"));
+                }
+                else if (name.equals("com.newisys.Notify")
+                    && "tick".equals(e.getString("event")))
+                {
+                    ++notifies;
+                    assertEquals(2, e.getInt("threadsWoken"));
+                }
+            }
+            assertEquals(2, switches);
+            assertEquals(1, notifies);
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+}
@@ -18,6 +18,8 @@
 
 package com.newisys.behsim;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.util.Arrays;
 
@@ -37,10 +39,31 @@ import com.newisys.random.PRNGFactoryFactory;
  */
 public final class BehavioralLauncher
 {
+    /**
+     * The name of the default clock register created for every behavioral
+     * simulation.
+     */
+    public static final String DEFAULT_CLOCK_NAME = "DefaultClock";
+
+    /**
+     * The period of the default clock, in simulation time units.
+     */
+    public static final int DEFAULT_CLOCK_PERIOD = 100;
+
     /**
      * Launches a behavioral simulation.
      * <P>
      * usage: BehavioralLauncher &lt;appclass&gt; [plus args]
+     * <P>
+     * The simulation manager is seeded with the value of the
+     * <code>+seed=&lt;n&gt;</code> plus argument, or 0 if it is not given.
+     * <P>
+     * If the <code>+vcd=&lt;file&gt;</code> plus argument is given, register
+     * value changes are dumped to the given VCD file, which is compressed if
+     * its name ends with ".gz". The dumped registers can be selected using
+     * comma-separated glob patterns in the
+     * <code>+vcd_include=&lt;patterns&gt;</code> and
+     * <code>+vcd_exclude=&lt;patterns&gt;</code> plus arguments.
      *
      * @param args an array of arguments to pass to the behavioral simulation
      */
@@ -53,30 +76,86 @@ public final class BehavioralLauncher
             System.exit(1);
         }
 
-        SimulationThread behClkThread = null;
-        DVApplication app = null;
         try
         {
             // get the DVApplication class
             final Class< ? > appCls = Class.forName(args[0]);
-            assert (DVApplication.class.isAssignableFrom(appCls));
 
-            // create the simulation objects
+            // create the simulation and run the application
             final BehavioralSimulation sim = new BehavioralSimulation(Arrays
                 .asList(args));
+            launch(sim, appCls, getSeed(args));
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns the value of the <code>+seed=&lt;n&gt;</code> plus argument in
+     * the given arguments.
+     *
+     * @param args the arguments to search
+     * @return the seed value, or 0 if no seed argument is present
+     */
+    public static long getSeed(String[] args)
+    {
+        long seed = 0;
+        for (final String arg : args)
+        {
+            if (arg.startsWith("+seed="))
+            {
+                seed = Long.parseLong(arg.substring(6));
+            }
+        }
+        return seed;
+    }
+
+    /**
+     * Runs a DVApplication on the given behavioral simulation until the
+     * simulation finishes. The default clock is created and started before
+     * the application, and the application is finished when the simulation
+     * ends, whether normally or due to an exception.
+     *
+     * @param sim the behavioral simulation, which must not have been run
+     * @param appCls the DVApplication class, which must have a public
+     *            constructor accepting a DVSimulation
+     * @param seed the seed of the simulation manager seed source
+     * @return the DVSimulation used to run the application, which indicates
+     *         whether a simulation thread terminated with an unhandled
+     *         exception
+     * @throws Exception if the application cannot be constructed or the
+     *             simulation terminates with an unhandled exception
+     */
+    public static DVSimulation launch(
+        BehavioralSimulation sim,
+        Class< ? > appCls,
+        long seed)
+        throws Exception
+    {
+        assert (DVApplication.class.isAssignableFrom(appCls));
+
+        SimulationThread behClkThread = null;
+        DVApplication app = null;
+        WaveformDumper dumper = null;
+        try
+        {
+            // create the simulation objects
             final PRNGFactory rngFactory = PRNGFactoryFactory
                 .getDefaultFactory();
             final SimulationManager simManager = new SimulationManager(
-                "BehavioralSimulation", rngFactory, rngFactory.newInstance(0));
+                "BehavioralSimulation", rngFactory, rngFactory
+                    .newInstance(seed));
             final OVAEngine ovaEngine = null;
             final DVSimulation dvSim = new DVSimulation(sim, simManager,
                 ovaEngine);
 
             // create the default/system clock
-            final String clockName = "DefaultClock";
-            sim.createRegister(clockName, 1);
-            behClkThread = dvSim.fork(clockName, new BehavioralClockGenerator(
-                dvSim, clockName, 100));
+            sim.createRegister(DEFAULT_CLOCK_NAME, 1);
+            behClkThread = dvSim.fork(DEFAULT_CLOCK_NAME,
+                new BehavioralClockGenerator(dvSim, DEFAULT_CLOCK_NAME,
+                    DEFAULT_CLOCK_PERIOD));
 
             // create the DVApplication object
             final Constructor< ? > appCtor = appCls
@@ -86,12 +165,12 @@ public final class BehavioralLauncher
             // start the DVApplication
             app.start();
 
+            // start dumping the registers created by the DVApplication
+            dumper = createWaveformDumper(sim);
+
             // start the behavioral simulator
             sim.run();
-        }
-        catch (Exception e)
-        {
-            e.printStackTrace();
+            return dvSim;
         }
         finally
         {
@@ -105,6 +184,70 @@ public final class BehavioralLauncher
             {
                 app.finish();
             }
+
+            if (dumper != null)
+            {
+                try
+                {
+                    dumper.close();
+                }
+                catch (IOException e)
+                {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates and starts a WaveformDumper for the given simulation if
+     * requested by its <code>+vcd</code> plus arguments.
+     *
+     * @param sim the behavioral simulation
+     * @return the started WaveformDumper, or null if no dump was requested
+     * @throws IOException if the dump file cannot be created
+     */
+    private static WaveformDumper createWaveformDumper(BehavioralSimulation sim)
+        throws IOException
+    {
+        String fileName = null;
+        String includes = null;
+        String excludes = null;
+        for (final String arg : sim.getArguments())
+        {
+            if (arg.startsWith("+vcd="))
+            {
+                fileName = arg.substring(5);
+            }
+            else if (arg.startsWith("+vcd_include="))
+            {
+                includes = arg.substring(13);
+            }
+            else if (arg.startsWith("+vcd_exclude="))
+            {
+                excludes = arg.substring(13);
+            }
+        }
+        if (fileName == null) return null;
+
+        final WaveformDumper dumper = new WaveformDumper(sim, new File(
+            fileName));
+        dumper.setCompressed(fileName.endsWith(".gz"));
+        if (includes != null)
+        {
+            for (final String pattern : includes.split(","))
+            {
+                dumper.addInclude(pattern);
+            }
+        }
+        if (excludes != null)
+        {
+            for (final String pattern : excludes.split(","))
+            {
+                dumper.addExclude(pattern);
+            }
         }
+        dumper.start();
+        return dumper;
     }
 }
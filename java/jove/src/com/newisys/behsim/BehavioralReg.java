@@ -69,7 +69,7 @@ public class BehavioralReg
      * Used internally when a put value delay is called. It allows the event
      * scheduler to schedule the value change in the future.
      */
-    private class PutValueCallbackHandler
+    class PutValueCallbackHandler
         implements VerilogCallbackHandler
     {
         private final VerilogReg verilogReg;
@@ -81,6 +81,16 @@ public class BehavioralReg
             this.value = value;
         }
 
+        public VerilogReg getRegister()
+        {
+            return verilogReg;
+        }
+
+        public Object getValue()
+        {
+            return value;
+        }
+
         public void run(VerilogCallback cb, VerilogCallbackData data)
         {
             verilogReg.putValue(value);
@@ -93,6 +103,9 @@ public class BehavioralReg
     private final List<BehavioralRegCallback> valueChangeCallbackList = Collections
         .synchronizedList(new LinkedList<BehavioralRegCallback>());
     final BehavioralSimulation simulation;
+    // signal notified of value changes while a WaveformDumper is recording
+    // this register; avoids scheduling a callback event per change
+    WaveformDumper.Signal dumpSignal;
 
     /**
      * Construct a behavioral register.
@@ -177,6 +190,17 @@ public class BehavioralReg
         }
     }
 
+    /**
+     * Returns the buffer holding the current value of this register. The
+     * buffer is replaced rather than modified when the value changes, so the
+     * caller may read it without copying it, but must not modify it.
+     * @return the current value buffer
+     */
+    synchronized BitVectorBuffer getValueBuffer()
+    {
+        return buffer;
+    }
+
     /**
      * Supports Bit, BitVector, BitVectorBuffer, Integer, Long
      * @param value the new register value
@@ -189,6 +213,10 @@ public class BehavioralReg
         {
             buffer = localBuffer;
             addValueChangeCallbacksToEventScheduler();
+            if (dumpSignal != null)
+            {
+                dumpSignal.valueChanged(localBuffer);
+            }
         }
     }
 
@@ -197,7 +225,7 @@ public class BehavioralReg
      * @param value the value to convert
      * @return a new BitVectorBuffer containing the value
      */
-    private BitVectorBuffer objectToBitVectorBuffer(Object value)
+    BitVectorBuffer objectToBitVectorBuffer(Object value)
     {
         BitVectorBuffer localBuffer;
         if (value instanceof Bit)
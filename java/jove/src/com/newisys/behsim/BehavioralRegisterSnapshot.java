@@ -0,0 +1,359 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.newisys.behsim;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.newisys.dv.DVRuntimeException;
+import com.newisys.eventsched.SimulationEvent;
+import com.newisys.eventsim.SimulationManager;
+import com.newisys.random.PRNG;
+import com.newisys.verilog.DriveDelayMode;
+import com.newisys.verilog.VerilogCallback;
+import com.newisys.verilog.VerilogCallbackData;
+import com.newisys.verilog.VerilogCallbackHandler;
+import com.newisys.verilog.VerilogReg;
+import com.newisys.verilog.VerilogSimTime;
+import com.newisys.verilog.util.BitVector;
+
+/**
+ * Captures the register state of a behavioral simulation at a point in
+ * simulated time, so that any number of new simulations can be started with
+ * that state without repeating the work needed to reach it. A snapshot
+ * contains:
+ * <ul>
+ * <li>the simulation time at which it was captured</li>
+ * <li>the name, size, and value of every register</li>
+ * <li>pending transport-delay register writes</li>
+ * <li>the state of the simulation manager seed source, which determines the
+ * random streams of subsequently forked top-level threads</li>
+ * </ul>
+ * <P>
+ * A snapshot does not capture execution state. Simulation threads are
+ * platform threads, so their continuations cannot be captured, and a
+ * restored simulation does not resume the application that produced the
+ * snapshot. Other scheduled events, such as delay callbacks and synch
+ * callbacks registered by the application, are likewise specific to the
+ * simulation in which they were created and are discarded; their number is
+ * available from {@link #getDiscardedEventCount()}. An application started on
+ * a restored simulation must therefore start from the beginning and recreate
+ * any threads and callbacks it needs, such as clock generators.
+ * 
+ * @author Trevor Robinson
+ */
+public final class BehavioralRegisterSnapshot
+    implements Serializable
+{
+    private static final long serialVersionUID = 3977582476385892405L;
+
+    private static final class RegState
+        implements Serializable
+    {
+        private static final long serialVersionUID = 3257847662591946549L;
+
+        final String name;
+        final int size;
+        final BitVector value;
+
+        RegState(String name, int size, BitVector value)
+        {
+            this.name = name;
+            this.size = size;
+            this.value = value;
+        }
+    }
+
+    private static final class PendingWrite
+        implements Serializable
+    {
+        private static final long serialVersionUID = 3834593196709556537L;
+
+        final long time;
+        final String name;
+        final BitVector value;
+
+        PendingWrite(long time, String name, BitVector value)
+        {
+            this.time = time;
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    private final long time;
+    private final List<RegState> regs;
+    private final List<PendingWrite> pendingWrites;
+    private final PRNG seedSource;
+    private final int discardedEventCount;
+
+    private BehavioralRegisterSnapshot(
+        long time,
+        List<RegState> regs,
+        List<PendingWrite> pendingWrites,
+        PRNG seedSource,
+        int discardedEventCount)
+    {
+        this.time = time;
+        this.regs = regs;
+        this.pendingWrites = pendingWrites;
+        this.seedSource = seedSource;
+        this.discardedEventCount = discardedEventCount;
+    }
+
+    /**
+     * Captures the state of the given simulation. The simulation should not
+     * be running, which is typically ensured by calling this method after
+     * {@link BehavioralSimulation#run()} returns following a call to
+     * {@link BehavioralSimulation#finishAt(long)}.
+     *
+     * @param sim the simulation to capture
+     * @param simManager the simulation manager used with the simulation, or
+     *            null if the seed source should not be captured
+     * @return a new snapshot of the simulation
+     */
+    public static BehavioralRegisterSnapshot capture(
+        BehavioralSimulation sim,
+        SimulationManager simManager)
+    {
+        final List<RegState> regs = new ArrayList<RegState>();
+        for (final VerilogReg reg : sim.getRegisters())
+        {
+            final BehavioralReg behReg = (BehavioralReg) reg;
+            regs.add(new RegState(behReg.getName(), behReg.getSize(),
+                toBitVector(behReg, behReg.getValue())));
+        }
+
+        final List<PendingWrite> pendingWrites = new ArrayList<PendingWrite>();
+        int discardedEventCount = 0;
+        final Map<Long, List<SimulationEvent>> events = sim
+            .getEventScheduler().getScheduledEvents();
+        for (final Map.Entry<Long, List<SimulationEvent>> entry : events
+            .entrySet())
+        {
+            for (final SimulationEvent event : entry.getValue())
+            {
+                VerilogCallbackHandler handler = null;
+                if (event instanceof BehavioralCallbackEvent)
+                {
+                    final BehavioralCallback callback = (BehavioralCallback) ((BehavioralCallbackEvent) event)
+                        .getCallback();
+                    handler = callback.getHandler();
+                }
+                if (handler instanceof BehavioralReg.PutValueCallbackHandler)
+                {
+                    final BehavioralReg.PutValueCallbackHandler putHandler = (BehavioralReg.PutValueCallbackHandler) handler;
+                    final BehavioralReg reg = (BehavioralReg) putHandler
+                        .getRegister();
+                    pendingWrites.add(new PendingWrite(entry.getKey(), reg
+                        .getName(), toBitVector(reg, putHandler.getValue())));
+                }
+                else
+                {
+                    ++discardedEventCount;
+                }
+            }
+        }
+
+        final PRNG seedSource = simManager != null ? simManager
+            .copySeedSource() : null;
+        return new BehavioralRegisterSnapshot(sim.getSimTime(), regs, pendingWrites,
+            seedSource, discardedEventCount);
+    }
+
+    private static BitVector toBitVector(BehavioralReg reg, Object value)
+    {
+        return reg.objectToBitVectorBuffer(value).toBitVector();
+    }
+
+    /**
+     * Returns the simulation time at which this snapshot was captured.
+     *
+     * @return the snapshot time
+     */
+    public long getTime()
+    {
+        return time;
+    }
+
+    /**
+     * Returns the number of registers in this snapshot.
+     *
+     * @return the register count
+     */
+    public int getRegisterCount()
+    {
+        return regs.size();
+    }
+
+    /**
+     * Returns the number of pending register writes in this snapshot.
+     *
+     * @return the pending write count
+     */
+    public int getPendingWriteCount()
+    {
+        return pendingWrites.size();
+    }
+
+    /**
+     * Returns the number of scheduled events that could not be captured
+     * because they were neither register writes nor otherwise restorable.
+     *
+     * @return the discarded event count
+     */
+    public int getDiscardedEventCount()
+    {
+        return discardedEventCount;
+    }
+
+    /**
+     * Returns a copy of the simulation manager seed source captured in this
+     * snapshot. Constructing a simulation manager with this seed source gives
+     * its top-level threads the same random streams that the next top-level
+     * threads of the original simulation manager would have received.
+     *
+     * @return a copy of the captured seed source, or null if none was captured
+     */
+    public PRNG getSeedSource()
+    {
+        return seedSource != null ? seedSource.clone() : null;
+    }
+
+    /**
+     * Creates a new simulation in the state captured by this snapshot. The
+     * current time of the new simulation is the snapshot time, all registers
+     * have their captured values, and pending register writes are scheduled
+     * at their original times.
+     *
+     * @param arguments the arguments of the new simulation
+     * @return a new behavioral simulation
+     */
+    public BehavioralSimulation restore(List<String> arguments)
+    {
+        final BehavioralSimulation sim = new BehavioralSimulation(arguments);
+        sim.getEventScheduler().setCurrentTime(time);
+
+        // the first time step scheduled becomes the current time step, which
+        // must be the step at the snapshot time so that zero-delay events
+        // scheduled by the application are processed at that time
+        sim.addDelayCallback(VerilogSimTime.TIME0, new VerilogCallbackHandler()
+        {
+            public void run(VerilogCallback cb, VerilogCallbackData data)
+            {
+                // do nothing
+            }
+        });
+
+        for (final RegState state : regs)
+        {
+            final VerilogReg reg = sim.createRegister(state.name, state.size);
+            reg.putValue(state.value);
+        }
+        for (final PendingWrite write : pendingWrites)
+        {
+            final VerilogReg reg = (VerilogReg) sim.getObjectByName(write.name);
+            reg.putValueDelay(write.value, new VerilogSimTime(write.time
+                - time), DriveDelayMode.PURE_TRANSPORT_DELAY);
+        }
+        return sim;
+    }
+
+    /**
+     * Creates a new simulation in the state captured by this snapshot, with no
+     * arguments.
+     *
+     * @return a new behavioral simulation
+     * @see #restore(List)
+     */
+    public BehavioralSimulation restore()
+    {
+        return restore(Collections.<String> emptyList());
+    }
+
+    /**
+     * Writes this snapshot to the given file.
+     *
+     * @param file the file to write
+     * @throws DVRuntimeException if an I/O error occurs
+     */
+    public void save(File file)
+    {
+        try
+        {
+            final ObjectOutputStream out = new ObjectOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)));
+            try
+            {
+                out.writeObject(this);
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new DVRuntimeException("Error writing snapshot: " + file, e);
+        }
+    }
+
+    /**
+     * Reads a snapshot from the given file.
+     *
+     * @param file the file to read
+     * @return the snapshot read from the file
+     * @throws DVRuntimeException if an I/O error occurs or the file does not
+     *             contain a snapshot
+     */
+    public static BehavioralRegisterSnapshot load(File file)
+    {
+        try
+        {
+            final ObjectInputStream in = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(file)));
+            try
+            {
+                return (BehavioralRegisterSnapshot) in.readObject();
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new DVRuntimeException("Error reading snapshot: " + file, e);
+        }
+        catch (ClassNotFoundException e)
+        {
+            throw new DVRuntimeException("Error reading snapshot: " + file, e);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.newisys.behsim;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.newisys.dv.DV;
+import com.newisys.dv.DVApplication;
+import com.newisys.dv.DVSimulation;
+import com.newisys.eventsim.SimulationManager;
+import com.newisys.eventsim.SimulationThread;
+import com.newisys.ova.OVAEngine;
+import com.newisys.random.PRNG;
+import com.newisys.random.PRNGFactory;
+import com.newisys.random.PRNGFactoryFactory;
+import com.newisys.verilog.VerilogReg;
+import com.newisys.verilog.util.Bit;
+
+/**
+ * Provides the main() method used to run several seeds of a test application
+ * on the register state left by a common prologue. The prologue application
+ * is run once up to a given simulation time and a
+ * {@link BehavioralRegisterSnapshot} of the simulation is captured. For each
+ * given seed, the test application is then started from the beginning on a
+ * simulation restored from the snapshot. Variants run in parallel; the number
+ * of variants run at once is given by the
+ * <code>com.newisys.behsim.variantThreads</code> system property, which
+ * defaults to the number of available processors.
+ * <P>
+ * Variants do not resume the prologue application: its threads cannot be
+ * captured, so the test application must only rely on register state
+ * established by the prologue. The random streams of each variant are
+ * determined by its seed and the seed source captured in the snapshot, so a
+ * variant can be reproduced by rerunning it with the same prologue, snapshot
+ * time, and seed. The default clock is recreated in phase with the snapshot
+ * time. Test applications run in parallel should not use the static
+ * {@link DV#simulation} field, which refers to only one of the variants.
+ * 
+ * @author Trevor Robinson
+ */
+public final class BehavioralRestartLauncher
+{
+    private static final String CLOCK_NAME = BehavioralLauncher.DEFAULT_CLOCK_NAME;
+    private static final int CLOCK_PERIOD = BehavioralLauncher.DEFAULT_CLOCK_PERIOD;
+
+    private static final int VARIANT_THREADS = Integer.getInteger(
+        "com.newisys.behsim.variantThreads",
+        Runtime.getRuntime().availableProcessors()).intValue();
+
+    private BehavioralRestartLauncher()
+    {
+    }
+
+    /**
+     * Launches the variants of a behavioral simulation.
+     * <P>
+     * usage: BehavioralRestartLauncher &lt;prologue class&gt; &lt;snapshot
+     * time&gt; &lt;test class&gt; &lt;seed[,seed...]&gt; [plus args]
+     *
+     * @param args an array of arguments to pass to the behavioral simulations
+     */
+    public static void main(String[] args)
+    {
+        if (args.length < 4)
+        {
+            System.err.println("Syntax: BehavioralRestartLauncher "
+                + "<prologue class> <snapshot time> <test class> "
+                + "<seed[,seed...]> [plus args]");
+            System.exit(1);
+        }
+
+        int failures = 0;
+        try
+        {
+            final Class< ? > prologueCls = Class.forName(args[0]);
+            final long snapshotTime = Long.parseLong(args[1]);
+            final Class< ? > testCls = Class.forName(args[2]);
+            final String[] seedStrs = args[3].split(",");
+            final List<String> plusArgs = Arrays.asList(args).subList(4,
+                args.length);
+
+            // run the prologue once and capture its state
+            final BehavioralRegisterSnapshot snapshot = runPrologue(prologueCls,
+                snapshotTime, plusArgs);
+            System.out.println("Captured snapshot at time "
+                + snapshot.getTime() + ": " + snapshot.getRegisterCount()
+                + " registers, " + snapshot.getPendingWriteCount()
+                + " pending writes, " + snapshot.getDiscardedEventCount()
+                + " discarded events");
+            DV.simulation = null;
+
+            // run the variants
+            final ExecutorService executor = Executors.newFixedThreadPool(Math
+                .max(1, VARIANT_THREADS));
+            final List<Future<Void>> results = new ArrayList<Future<Void>>(
+                seedStrs.length);
+            try
+            {
+                for (final String seedStr : seedStrs)
+                {
+                    final long seed = Long.parseLong(seedStr.trim());
+                    results.add(executor.submit(new Callable<Void>()
+                    {
+                        public Void call()
+                            throws Exception
+                        {
+                            runVariant(snapshot, testCls, seed, plusArgs);
+                            return null;
+                        }
+                    }));
+                }
+                for (int i = 0; i < seedStrs.length; ++i)
+                {
+                    final String seedStr = seedStrs[i].trim();
+                    try
+                    {
+                        results.get(i).get();
+                        System.out.println("Seed " + seedStr + ": PASSED");
+                    }
+                    catch (ExecutionException e)
+                    {
+                        ++failures;
+                        System.out.println("Seed " + seedStr + ": FAILED");
+                        e.getCause().printStackTrace();
+                    }
+                }
+            }
+            finally
+            {
+                executor.shutdown();
+            }
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+            System.exit(1);
+        }
+        System.exit(failures > 0 ? 1 : 0);
+    }
+
+    private static BehavioralRegisterSnapshot runPrologue(
+        Class< ? > appCls,
+        long snapshotTime,
+        List<String> plusArgs)
+        throws Exception
+    {
+        final BehavioralSimulation sim = new BehavioralSimulation(
+            getArguments(appCls, plusArgs));
+        final PRNGFactory rngFactory = PRNGFactoryFactory.getDefaultFactory();
+        final SimulationManager simManager = new SimulationManager(
+            "BehavioralSimulation", rngFactory, rngFactory.newInstance(0));
+        final DVSimulation dvSim = new DVSimulation(sim, simManager,
+            (OVAEngine) null);
+
+        SimulationThread behClkThread = null;
+        DVApplication app = null;
+        try
+        {
+            sim.createRegister(CLOCK_NAME, 1);
+            behClkThread = dvSim.fork(CLOCK_NAME, new BehavioralClockGenerator(
+                dvSim, CLOCK_NAME, CLOCK_PERIOD));
+
+            app = createApplication(appCls, dvSim);
+            app.start();
+            sim.finishAt(snapshotTime);
+            sim.run();
+
+            return BehavioralRegisterSnapshot.capture(sim, simManager);
+        }
+        finally
+        {
+            if (behClkThread != null)
+            {
+                behClkThread.terminate();
+            }
+            if (app != null)
+            {
+                app.finish();
+            }
+        }
+    }
+
+    private static void runVariant(
+        BehavioralRegisterSnapshot snapshot,
+        Class< ? > appCls,
+        long seed,
+        List<String> plusArgs)
+        throws Exception
+    {
+        // the simulation manager is created by the thread that runs the
+        // simulation, which becomes its manager thread; its seed source
+        // continues from the prologue's, perturbed by the variant seed
+        final BehavioralSimulation sim = snapshot.restore(getArguments(appCls,
+            plusArgs));
+        final PRNGFactory rngFactory = PRNGFactoryFactory.getDefaultFactory();
+        final PRNG seedSource = rngFactory.newInstance(seed
+            ^ snapshot.getSeedSource().nextLong());
+        final SimulationManager simManager = new SimulationManager(
+            "BehavioralSimulation-" + seed, rngFactory, seedSource);
+        final DVSimulation dvSim = new DVSimulation(sim, simManager,
+            (OVAEngine) null);
+
+        SimulationThread behClkThread = null;
+        DVApplication app = null;
+        try
+        {
+            behClkThread = dvSim.fork(CLOCK_NAME, createClockGenerator(dvSim,
+                sim));
+
+            app = createApplication(appCls, dvSim);
+            app.start();
+            sim.run();
+        }
+        finally
+        {
+            if (behClkThread != null)
+            {
+                behClkThread.terminate();
+            }
+            if (app != null)
+            {
+                app.finish();
+            }
+        }
+    }
+
+    private static BehavioralClockGenerator createClockGenerator(
+        DVSimulation dvSim,
+        BehavioralSimulation sim)
+    {
+        // the default clock falls at multiples of the period and rises half a
+        // period later; continue from the captured value so that an edge due
+        // at the snapshot time is not lost
+        final VerilogReg clock = (VerilogReg) sim.getObjectByName(CLOCK_NAME);
+        final int halfPeriod = CLOCK_PERIOD / 2;
+        final int phase = (int) (sim.getSimTime() % CLOCK_PERIOD);
+        if (clock.getValue() == Bit.ONE)
+        {
+            return new BehavioralClockGenerator(dvSim, CLOCK_NAME,
+                CLOCK_PERIOD, halfPeriod, (CLOCK_PERIOD - phase)
+                    % CLOCK_PERIOD, Bit.ONE, false);
+        }
+        else
+        {
+            return new BehavioralClockGenerator(dvSim, CLOCK_NAME,
+                CLOCK_PERIOD, halfPeriod, (CLOCK_PERIOD + halfPeriod - phase)
+                    % CLOCK_PERIOD, Bit.ZERO, true);
+        }
+    }
+
+    private static List<String> getArguments(
+        Class< ? > appCls,
+        List<String> plusArgs)
+    {
+        final List<String> arguments = new ArrayList<String>(
+            plusArgs.size() + 1);
+        arguments.add(appCls.getName());
+        arguments.addAll(plusArgs);
+        return arguments;
+    }
+
+    private static DVApplication createApplication(
+        Class< ? > appCls,
+        DVSimulation dvSim)
+        throws Exception
+    {
+        assert (DVApplication.class.isAssignableFrom(appCls));
+        final Constructor< ? > appCtor = appCls
+            .getConstructor(DVSimulation.class);
+        return (DVApplication) appCtor.newInstance(dvSim);
+    }
+}
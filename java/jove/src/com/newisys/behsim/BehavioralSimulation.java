@@ -19,6 +19,7 @@
 package com.newisys.behsim;
 
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -54,6 +55,11 @@ public class BehavioralSimulation
             return regs.add(reg);
         }
 
+        public synchronized List<VerilogReg> getRegisters()
+        {
+            return new ArrayList<VerilogReg>(regs);
+        }
+
         public synchronized VerilogReg getObjectByName(String name)
         {
             VerilogReg object = null;
@@ -124,6 +130,35 @@ public class BehavioralSimulation
         return eventScheduler;
     }
 
+    /**
+     * Returns the registers created in this simulation, in creation order.
+     *
+     * @return a new list of the registers in this simulation
+     */
+    List<VerilogReg> getRegisters()
+    {
+        return regs.getRegisters();
+    }
+
+    /**
+     * Finishes the simulation at the given time. This can be used to stop a
+     * simulation at a known point, such as to examine its state or capture a
+     * snapshot of it.
+     *
+     * @param stopTime the absolute simulation time at which to finish
+     */
+    public void finishAt(long stopTime)
+    {
+        addDelayCallback(new VerilogSimTime(stopTime - getSimTime()),
+            new VerilogCallbackHandler()
+            {
+                public void run(VerilogCallback cb, VerilogCallbackData data)
+                {
+                    finish();
+                }
+            });
+    }
+
     public VerilogReg createRegister(String name, int size)
     {
         VerilogReg reg = (BehavioralReg) getObjectByName(name);
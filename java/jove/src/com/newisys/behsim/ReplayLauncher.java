@@ -0,0 +1,140 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.behsim;
+
+import java.io.File;
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+
+import com.newisys.dv.DVApplication;
+import com.newisys.dv.DVSimulation;
+import com.newisys.dv.ReplayLogReader;
+import com.newisys.eventsim.SimulationManager;
+import com.newisys.ova.OVAEngine;
+import com.newisys.random.PRNGFactory;
+import com.newisys.random.PRNGFactoryFactory;
+
+/**
+ * Provides the main() method used to replay a simulation from a log recorded
+ * with the <code>com.newisys.dv.replayLog</code> system property.
+ * <P>
+ * The following plus arguments are recognized in addition to those used by
+ * the application:
+ * <ul>
+ * <li><code>+replay_stop=&lt;time&gt;</code>: finish the replay at the given
+ * simulation time</li>
+ * <li><code>+replay_strict</code>: finish the replay at the first divergence
+ * from the log</li>
+ * </ul>
+ * 
+ * @author Trevor Robinson
+ */
+public final class ReplayLauncher
+{
+    /**
+     * Launches a replay simulation.
+     * <P>
+     * usage: ReplayLauncher &lt;log file&gt; &lt;appclass&gt; [plus args]
+     *
+     * @param args an array of arguments to pass to the replay simulation
+     */
+    public static void main(String[] args)
+    {
+        if (args.length < 2)
+        {
+            System.err
+                .println("Syntax: ReplayLauncher <log file> <appclass> [plus args]");
+            System.exit(1);
+        }
+
+        ReplayLogReader log = null;
+        ReplaySimulation sim = null;
+        DVApplication app = null;
+        try
+        {
+            // get the DVApplication class
+            final Class< ? > appCls = Class.forName(args[1]);
+            assert (DVApplication.class.isAssignableFrom(appCls));
+
+            // create the simulation objects; the simulation manager is seeded
+            // identically to the one used when recording
+            log = new ReplayLogReader(new File(args[0]));
+            sim = new ReplaySimulation(log, Arrays.asList(args).subList(1,
+                args.length));
+            final PRNGFactory rngFactory = PRNGFactoryFactory
+                .getDefaultFactory();
+            final SimulationManager simManager = new SimulationManager(
+                "ReplaySimulation", rngFactory, rngFactory.newInstance(0));
+            final OVAEngine ovaEngine = null;
+            final DVSimulation dvSim = new DVSimulation(sim, simManager,
+                ovaEngine);
+            dvSim.setSignalRecorder(sim);
+
+            for (int i = 2; i < args.length; ++i)
+            {
+                final String arg = args[i];
+                if (arg.startsWith("+replay_stop="))
+                {
+                    sim.finishAt(Long.parseLong(arg.substring(arg
+                        .indexOf('=') + 1)));
+                }
+                else if (arg.equals("+replay_strict"))
+                {
+                    sim.setStopOnDivergence(true);
+                }
+            }
+
+            // create the DVApplication object
+            final Constructor< ? > appCtor = appCls
+                .getConstructor(DVSimulation.class);
+            app = (DVApplication) appCtor.newInstance(dvSim);
+
+            // start the DVApplication
+            app.start();
+
+            // replay the log
+            sim.run();
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+        finally
+        {
+            if (app != null)
+            {
+                app.finish();
+            }
+
+            if (log != null)
+            {
+                try
+                {
+                    log.close();
+                }
+                catch (Exception e)
+                {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        System.exit(sim != null && sim.getDivergenceCount() == 0 ? 0 : 1);
+    }
+}
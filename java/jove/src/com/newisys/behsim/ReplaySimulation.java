@@ -0,0 +1,343 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.behsim;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import com.newisys.dv.DVRuntimeException;
+import com.newisys.dv.ReplayLogReader;
+import com.newisys.dv.SignalRecorder;
+import com.newisys.verilog.VerilogCallback;
+import com.newisys.verilog.VerilogCallbackData;
+import com.newisys.verilog.VerilogCallbackHandler;
+import com.newisys.verilog.VerilogObject;
+import com.newisys.verilog.VerilogRuntimeException;
+import com.newisys.verilog.VerilogSimTime;
+import com.newisys.verilog.util.BitVector;
+
+/**
+ * A behavioral simulation that stands in for the HDL simulator by replaying a
+ * log recorded by {@link com.newisys.dv.ReplayLogWriter}. Each recorded input
+ * signal is backed by a register whose value is changed at the recorded
+ * times; each recorded output signal is backed by a separate register, so
+ * that drives by the application never feed back into the inputs.
+ * <p>
+ * When installed as the {@link SignalRecorder} of the DVSimulation, this
+ * simulation also checks the drives of the application against the drives in
+ * the log. At the end of each time step, the last value driven onto each
+ * output is compared with the last value recorded for that output, and any
+ * difference is reported as a divergence.
+ * 
+ * @author Trevor Robinson
+ */
+public class ReplaySimulation
+    extends BehavioralSimulation
+    implements SignalRecorder
+{
+    private static final int MAX_REPORTED_DIVERGENCES = 10;
+
+    private final class ReplayStepHandler
+        implements VerilogCallbackHandler
+    {
+        public void run(VerilogCallback cb, VerilogCallbackData data)
+        {
+            try
+            {
+                replayStep();
+            }
+            catch (IOException e)
+            {
+                throw new DVRuntimeException("Error reading replay log", e);
+            }
+        }
+    }
+
+    private final ReplayLogReader log;
+    private final Map<String, BehavioralReg> inputRegs = new HashMap<String, BehavioralReg>();
+    private final Map<String, BehavioralReg> outputRegs = new HashMap<String, BehavioralReg>();
+    private final PrintStream out = new PrintStream(getLogOutputStream(), true);
+    private boolean more;
+
+    private long checkTime = -1;
+    private final Map<String, Object> expectedDrives = new HashMap<String, Object>();
+    private final Map<String, Object> actualDrives = new HashMap<String, Object>();
+    private int divergenceCount;
+    private long firstDivergenceTime = -1;
+    private boolean stopOnDivergence;
+
+    /**
+     * Creates a replay simulation for the given log, positioned at the
+     * beginning of the log.
+     *
+     * @param log the replay log to read
+     * @param arguments the simulation arguments
+     * @throws IOException if the log cannot be read
+     */
+    public ReplaySimulation(ReplayLogReader log, List<String> arguments)
+        throws IOException
+    {
+        super(arguments);
+        this.log = log;
+
+        for (final ReplayLogReader.Signal s : log.getInputs())
+        {
+            final BehavioralReg reg = new BehavioralReg(this, s.getName(), s
+                .getWidth());
+            reg.putValue(s.getInitialValue());
+            inputRegs.put(s.getName(), reg);
+        }
+        for (final ReplayLogReader.Signal s : log.getOutputs())
+        {
+            outputRegs.put(s.getName(), new BehavioralReg(this, s.getName(), s
+                .getWidth()));
+        }
+
+        // the first step is always at time 0, so that the time step of any
+        // callbacks registered by the application at time 0 is created first
+        log.rewind();
+        more = log.next();
+        addDelayCallback(VerilogSimTime.TIME0, new ReplayStepHandler());
+    }
+
+    /**
+     * Returns the replay log read by this simulation.
+     *
+     * @return the replay log
+     */
+    public ReplayLogReader getLog()
+    {
+        return log;
+    }
+
+    /**
+     * Returns the register that replays the given input signal.
+     *
+     * @param name the name of the signal
+     * @return the input register, or null if the signal is not in the log
+     */
+    public BehavioralReg getInputRegister(String name)
+    {
+        return inputRegs.get(name);
+    }
+
+    /**
+     * Returns the register that receives drives of the given output signal.
+     *
+     * @param name the name of the signal
+     * @return the output register, or null if the signal is not in the log
+     */
+    public BehavioralReg getOutputRegister(String name)
+    {
+        return outputRegs.get(name);
+    }
+
+    /**
+     * Returns whether the simulation finishes at the first divergence.
+     *
+     * @return true if the simulation stops on divergence
+     */
+    public boolean isStopOnDivergence()
+    {
+        return stopOnDivergence;
+    }
+
+    /**
+     * Sets whether the simulation finishes at the first divergence.
+     *
+     * @param stopOnDivergence true to stop on divergence
+     */
+    public void setStopOnDivergence(boolean stopOnDivergence)
+    {
+        this.stopOnDivergence = stopOnDivergence;
+    }
+
+    /**
+     * Returns the number of output values that differed from the log.
+     *
+     * @return the divergence count
+     */
+    public int getDivergenceCount()
+    {
+        return divergenceCount;
+    }
+
+    /**
+     * Returns the simulation time of the first divergence.
+     *
+     * @return the time of the first divergence, or -1 if none has occurred
+     */
+    public long getFirstDivergenceTime()
+    {
+        return firstDivergenceTime;
+    }
+
+    /**
+     * Looks up a replayed signal by name. Names with an <code>_out</code>
+     * suffix refer to output registers; other names refer to input registers
+     * if the signal was recorded as an input, and output registers otherwise.
+     *
+     * @param name the name of the object
+     * @return the register for the signal
+     * @throws VerilogRuntimeException if no such signal was recorded, as the
+     *             HDL simulator would for an unknown object
+     */
+    @Override
+    public VerilogObject getObjectByName(String name)
+    {
+        final String baseName = stripSuffix(name);
+        BehavioralReg reg = null;
+        if (!name.endsWith("_out"))
+        {
+            reg = inputRegs.get(baseName);
+        }
+        if (reg == null && !name.endsWith("_in"))
+        {
+            reg = outputRegs.get(baseName);
+        }
+        if (reg == null)
+        {
+            VerilogObject obj = super.getObjectByName(name);
+            if (obj == null)
+            {
+                throw new VerilogRuntimeException(
+                    "Object not found in replay log: " + name);
+            }
+            return obj;
+        }
+        return reg;
+    }
+
+    void replayStep()
+        throws IOException
+    {
+        final long time = getSimTime();
+        while (more && log.getTime() == time)
+        {
+            final String name = log.getSignal().getName();
+            if (log.getRecordType() == ReplayLogReader.RecordType.INPUT)
+            {
+                inputRegs.get(name).putValue(log.getValue());
+            }
+            else
+            {
+                checkDrives(time);
+                expectedDrives.put(name, log.getValue());
+            }
+            more = log.next();
+        }
+        if (more)
+        {
+            addDelayCallback(new VerilogSimTime(log.getTime() - time),
+                new ReplayStepHandler());
+        }
+    }
+
+    private void checkDrives(long time)
+    {
+        if (time != checkTime)
+        {
+            if (!expectedDrives.isEmpty() || !actualDrives.isEmpty())
+            {
+                // sort names so that reports are deterministic
+                final TreeSet<String> names = new TreeSet<String>(
+                    expectedDrives.keySet());
+                names.addAll(actualDrives.keySet());
+                for (final String name : names)
+                {
+                    final Object expected = expectedDrives.get(name);
+                    final Object actual = actualDrives.get(name);
+                    if (!valuesEqual(expected, actual))
+                    {
+                        reportDivergence(name, expected, actual);
+                    }
+                }
+                expectedDrives.clear();
+                actualDrives.clear();
+            }
+            checkTime = time;
+        }
+    }
+
+    private static boolean valuesEqual(Object a, Object b)
+    {
+        if (a instanceof BitVector && b instanceof BitVector)
+        {
+            return ((BitVector) a).equalsExact((BitVector) b);
+        }
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private void reportDivergence(String name, Object expected, Object actual)
+    {
+        if (divergenceCount == 0)
+        {
+            firstDivergenceTime = checkTime;
+        }
+        if (divergenceCount < MAX_REPORTED_DIVERGENCES)
+        {
+            out.println("Replay divergence on " + name + " @ " + checkTime
+                + ": expected " + (expected != null ? expected : "no drive")
+                + ", driven " + (actual != null ? actual : "no drive"));
+        }
+        ++divergenceCount;
+        if (stopOnDivergence)
+        {
+            finish();
+        }
+    }
+
+    public void inputChanged(String name, long time, Object value)
+    {
+        // inputs come from the log
+    }
+
+    public void outputDeclared(String name, int width)
+    {
+        // outputs are created from the log
+    }
+
+    public void outputDriven(String name, long time, Object value)
+    {
+        checkDrives(time);
+        actualDrives.put(name, value);
+    }
+
+    /**
+     * Checks the drives of the final time step and reports the number of
+     * divergences.
+     */
+    public void close()
+    {
+        checkDrives(Long.MAX_VALUE);
+        if (divergenceCount == 0)
+        {
+            out.println("Replay matched log through time " + getSimTime());
+        }
+        else
+        {
+            out.println("Replay diverged from log " + divergenceCount
+                + " time(s), first @ " + firstDivergenceTime);
+        }
+    }
+}
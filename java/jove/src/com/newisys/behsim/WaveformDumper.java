@@ -0,0 +1,883 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.behsim;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import com.newisys.dv.DVRuntimeException;
+import com.newisys.verilog.VerilogCallback;
+import com.newisys.verilog.VerilogCallbackData;
+import com.newisys.verilog.VerilogCallbackHandler;
+import com.newisys.verilog.VerilogReg;
+import com.newisys.verilog.util.BitVectorBuffer;
+
+/**
+ * Writes the value changes of the registers in a behavioral simulation to a
+ * VCD (Value Change Dump) file.
+ * <P>
+ * The dumper attaches a signal to each selected register, and the register
+ * marks its signal dirty when its value changes, without scheduling a value
+ * change callback. The final value of each dirty register is formatted at the end of
+ * the time step (in a single read-only synch callback), so registers that
+ * change several times within a step are only written once. Leading zeros
+ * are omitted from known values, as allowed by the VCD left-extension rule.
+ * Formatted text is handed off in blocks to a background thread, which writes
+ * them to the file using a FileChannel. With a single processor, where the
+ * writer thread could not run concurrently with the simulation, blocks are
+ * written directly instead. If compression is enabled, each block is
+ * compressed as a separate gzip member; the resulting file is a valid gzip
+ * stream that can be read by gunzip and by waveform viewers that accept
+ * compressed VCD files.
+ * <P>
+ * Registers are selected by matching their full names against glob patterns,
+ * in which <code>*</code> matches any sequence of characters and
+ * <code>?</code> matches any single character. A register is dumped if it
+ * matches any include pattern (or there are none) and no exclude pattern.
+ * Register names are split into scopes at each '.'. Only registers that exist
+ * when {@link #start} is called are dumped, and a register can be dumped by
+ * only one dumper at a time.
+ * 
+ * @author Trevor Robinson
+ */
+public final class WaveformDumper
+{
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final int BLOCK_COUNT = 4;
+
+    // first and last printable ASCII characters used in VCD identifiers
+    private static final int ID_FIRST = 33;
+    private static final int ID_LAST = 126;
+
+    // VCD value characters, indexed by Bit ID
+    private static final byte[] VALUE_CHARS = { '0', '1', 'z', 'x' };
+
+    // binary digits of each byte value, 8 characters per byte, MSB first
+    private static final byte[] BYTE_DIGITS = new byte[256 * 8];
+
+    static
+    {
+        for (int b = 0; b < 256; ++b)
+        {
+            for (int i = 0; i < 8; ++i)
+            {
+                BYTE_DIGITS[b * 8 + i] = (byte) ('0' + ((b >> (7 - i)) & 1));
+            }
+        }
+    }
+
+    final class Signal
+    {
+        final BehavioralReg reg;
+        final byte[] id;
+        final int size;
+        BitVectorBuffer value;
+        // value as a long, if it is known and at most 64 bits
+        boolean known;
+        long bits;
+        boolean dirty;
+
+        Signal(BehavioralReg reg, byte[] id)
+        {
+            this.reg = reg;
+            this.id = id;
+            this.size = reg.getSize();
+            setValue(reg.getValueBuffer());
+        }
+
+        /**
+         * Called by the register when its value changes. The register
+         * replaces its value buffer on each change, so the new buffer is
+         * retained without copying it.
+         *
+         * @param newValue the new value buffer of the register
+         */
+        void valueChanged(BitVectorBuffer newValue)
+        {
+            setValue(newValue);
+            if (!dirty)
+            {
+                markDirty(this);
+            }
+        }
+
+        private void setValue(BitVectorBuffer newValue)
+        {
+            // extract narrow values as they change, so that formatting them at
+            // the end of the step reads only this signal
+            value = newValue;
+            known = size <= 64 && !newValue.containsXZ();
+            if (known)
+            {
+                bits = newValue.longValue();
+            }
+        }
+    }
+
+    private static final class Block
+    {
+        final byte[] data = new byte[BLOCK_SIZE];
+        int length;
+    }
+
+    // writes blocks to the dump file, compressing them if enabled; used by
+    // one thread at a time
+    private final class BlockWriter
+    {
+        private final FileChannel channel;
+        private final Deflater deflater;
+        private final CRC32 crc;
+        private final ByteBuffer zbuf;
+
+        BlockWriter(FileChannel channel)
+        {
+            this.channel = channel;
+            deflater = compressed ? new Deflater(Deflater.BEST_SPEED, true)
+                : null;
+            crc = compressed ? new CRC32() : null;
+            zbuf = compressed ? ByteBuffer.allocate(BLOCK_SIZE + BLOCK_SIZE / 8
+                + 64) : null;
+        }
+
+        void write(Block b)
+            throws IOException
+        {
+            if (compressed)
+            {
+                writeGzipMember(b);
+            }
+            else
+            {
+                writeFully(channel, ByteBuffer.wrap(b.data, 0, b.length));
+            }
+        }
+
+        private void writeGzipMember(Block b)
+            throws IOException
+        {
+            // each block is written as a complete gzip member (RFC 1952);
+            // concatenated members form a single valid gzip stream
+            zbuf.clear();
+            zbuf.put(new byte[] { 0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0,
+                (byte) 0xff });
+            deflater.reset();
+            deflater.setInput(b.data, 0, b.length);
+            deflater.finish();
+            while (!deflater.finished())
+            {
+                if (!zbuf.hasRemaining())
+                {
+                    zbuf.flip();
+                    writeFully(channel, zbuf);
+                    zbuf.clear();
+                }
+                final int n = deflater.deflate(zbuf.array(), zbuf.position(),
+                    zbuf.remaining());
+                zbuf.position(zbuf.position() + n);
+            }
+            crc.reset();
+            crc.update(b.data, 0, b.length);
+            if (zbuf.remaining() < 8)
+            {
+                zbuf.flip();
+                writeFully(channel, zbuf);
+                zbuf.clear();
+            }
+            putIntLE(zbuf, (int) crc.getValue());
+            putIntLE(zbuf, b.length);
+            zbuf.flip();
+            writeFully(channel, zbuf);
+        }
+
+        void close()
+            throws IOException
+        {
+            try
+            {
+                if (deflater != null)
+                {
+                    deflater.end();
+                }
+            }
+            finally
+            {
+                channel.close();
+            }
+        }
+    }
+
+    private final BehavioralSimulation sim;
+    private final File file;
+    private boolean compressed;
+    private String timescale = "1s";
+    private final List<Pattern> includes = new ArrayList<Pattern>();
+    private final List<Pattern> excludes = new ArrayList<Pattern>();
+
+    private Signal[] signals;
+    private Signal[] dirtySignals;
+    private int dirtyCount;
+    private boolean flushScheduled;
+    private long lastTime = -1;
+    private long changeCount;
+    private VerilogCallback endCallback;
+
+    private final BlockingQueue<Block> freeBlocks = new ArrayBlockingQueue<Block>(
+        BLOCK_COUNT);
+    private final BlockingQueue<Block> fullBlocks = new ArrayBlockingQueue<Block>(
+        BLOCK_COUNT + 1);
+    // zero-length block queued to stop the writer thread
+    private final Block endBlock = new Block();
+    private Block block;
+    private BlockWriter writer;
+    private Thread writerThread;
+    private volatile IOException writerException;
+
+    private final VerilogCallbackHandler flushHandler = new VerilogCallbackHandler()
+    {
+        public void run(VerilogCallback cb, VerilogCallbackData data)
+        {
+            flushScheduled = false;
+            flush();
+        }
+    };
+
+    /**
+     * Creates a new dumper for the given simulation and file.
+     *
+     * @param sim the behavioral simulation to dump
+     * @param file the VCD file to create
+     */
+    public WaveformDumper(BehavioralSimulation sim, File file)
+    {
+        this.sim = sim;
+        this.file = file;
+    }
+
+    /**
+     * Returns whether the dump file is gzip-compressed.
+     *
+     * @return true if the dump file is compressed
+     */
+    public boolean isCompressed()
+    {
+        return compressed;
+    }
+
+    /**
+     * Sets whether the dump file is gzip-compressed. Must be called before
+     * {@link #start}.
+     *
+     * @param compressed true to compress the dump file
+     */
+    public void setCompressed(boolean compressed)
+    {
+        checkNotStarted();
+        this.compressed = compressed;
+    }
+
+    /**
+     * Returns the timescale written to the VCD header.
+     *
+     * @return the timescale
+     */
+    public String getTimescale()
+    {
+        return timescale;
+    }
+
+    /**
+     * Sets the timescale written to the VCD header, such as "1ns". The
+     * default is "1s", matching the time scale assumed by
+     * {@link BehavioralSimulation#getScaledRealTime}. Must be called before
+     * {@link #start}.
+     *
+     * @param timescale the timescale
+     */
+    public void setTimescale(String timescale)
+    {
+        checkNotStarted();
+        this.timescale = timescale;
+    }
+
+    /**
+     * Adds a pattern selecting registers to dump. Must be called before
+     * {@link #start}.
+     *
+     * @param pattern a glob pattern matched against full register names
+     */
+    public void addInclude(String pattern)
+    {
+        checkNotStarted();
+        includes.add(compileGlob(pattern));
+    }
+
+    /**
+     * Adds a pattern selecting registers not to dump. Must be called before
+     * {@link #start}.
+     *
+     * @param pattern a glob pattern matched against full register names
+     */
+    public void addExclude(String pattern)
+    {
+        checkNotStarted();
+        excludes.add(compileGlob(pattern));
+    }
+
+    /**
+     * Returns the number of registers being dumped.
+     *
+     * @return the number of dumped registers
+     */
+    public int getSignalCount()
+    {
+        return signals != null ? signals.length : 0;
+    }
+
+    /**
+     * Returns the number of value changes written, excluding initial values.
+     *
+     * @return the number of value changes written
+     */
+    public long getChangeCount()
+    {
+        return changeCount;
+    }
+
+    /**
+     * Opens the dump file, writes the VCD header and the initial values of the
+     * selected registers, and attaches the dumper to the registers to record
+     * value changes. The dump file is closed automatically at the end of
+     * simulation, or may be closed explicitly using {@link #close}.
+     *
+     * @throws IOException if the dump file cannot be created
+     */
+    public void start()
+        throws IOException
+    {
+        checkNotStarted();
+
+        // select and sort the registers so that each scope is contiguous
+        final List<BehavioralReg> regs = new ArrayList<BehavioralReg>();
+        for (final VerilogReg reg : sim.getRegisters())
+        {
+            if (isSelected(reg.getFullName()))
+            {
+                final BehavioralReg behReg = (BehavioralReg) reg;
+                if (behReg.dumpSignal != null)
+                {
+                    throw new IllegalStateException("Register already dumped: "
+                        + reg.getFullName());
+                }
+                regs.add(behReg);
+            }
+        }
+        Collections.sort(regs, new Comparator<BehavioralReg>()
+        {
+            public int compare(BehavioralReg r1, BehavioralReg r2)
+            {
+                return r1.getFullName().compareTo(r2.getFullName());
+            }
+        });
+        signals = new Signal[regs.size()];
+        dirtySignals = new Signal[signals.length];
+        for (int i = 0; i < signals.length; ++i)
+        {
+            signals[i] = new Signal(regs.get(i), getIdentifier(i));
+        }
+
+        writer = new BlockWriter(new FileOutputStream(file).getChannel());
+        if (Runtime.getRuntime().availableProcessors() > 1)
+        {
+            for (int i = 0; i < BLOCK_COUNT; ++i)
+            {
+                freeBlocks.add(new Block());
+            }
+            block = freeBlocks.remove();
+            writerThread = new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    writeBlocks();
+                }
+            }, "WaveformDumper-" + file.getName());
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+        else
+        {
+            // a writer thread would only add a context switch per block
+            block = new Block();
+        }
+
+        writeHeader();
+        lastTime = sim.getSimTime();
+        append('#');
+        append(lastTime);
+        append('\n');
+        append("$dumpvars\n");
+        for (final Signal signal : signals)
+        {
+            appendValue(signal);
+        }
+        append("$end\n");
+
+        for (final Signal signal : signals)
+        {
+            signal.reg.dumpSignal = signal;
+        }
+        endCallback = sim.addSimulationEndCallback(new VerilogCallbackHandler()
+        {
+            public void run(VerilogCallback cb, VerilogCallbackData data)
+            {
+                try
+                {
+                    close();
+                }
+                catch (IOException e)
+                {
+                    throw new DVRuntimeException("Error writing waveform: "
+                        + file, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes any pending value changes, stops recording value changes, and
+     * closes the dump file. Does nothing if the dumper is not started.
+     *
+     * @throws IOException if an error occurred writing the dump file
+     */
+    public void close()
+        throws IOException
+    {
+        if (writer == null) return;
+
+        for (final Signal signal : signals)
+        {
+            signal.reg.dumpSignal = null;
+        }
+        endCallback.cancel();
+        flush();
+
+        if (writerThread != null)
+        {
+            queueBlock();
+            putBlock(endBlock);
+            try
+            {
+                writerThread.join();
+            }
+            catch (InterruptedException e)
+            {
+                throw new InterruptedIOException();
+            }
+            writerThread = null;
+        }
+        else
+        {
+            try
+            {
+                if (writerException == null)
+                {
+                    writer.write(block);
+                }
+            }
+            finally
+            {
+                writer.close();
+            }
+        }
+        writer = null;
+        if (writerException != null)
+        {
+            throw writerException;
+        }
+    }
+
+    private void checkNotStarted()
+    {
+        if (signals != null)
+        {
+            throw new IllegalStateException("Waveform dumper already started");
+        }
+    }
+
+    private boolean isSelected(String name)
+    {
+        boolean selected = includes.isEmpty();
+        for (final Pattern p : includes)
+        {
+            if (p.matcher(name).matches())
+            {
+                selected = true;
+                break;
+            }
+        }
+        if (selected)
+        {
+            for (final Pattern p : excludes)
+            {
+                if (p.matcher(name).matches())
+                {
+                    selected = false;
+                    break;
+                }
+            }
+        }
+        return selected;
+    }
+
+    private static Pattern compileGlob(String glob)
+    {
+        final StringBuffer buf = new StringBuffer();
+        int start = 0;
+        for (int i = 0; i < glob.length(); ++i)
+        {
+            final char c = glob.charAt(i);
+            if (c == '*' || c == '?')
+            {
+                if (i > start)
+                {
+                    buf.append(Pattern.quote(glob.substring(start, i)));
+                }
+                buf.append(c == '*' ? ".*" : ".");
+                start = i + 1;
+            }
+        }
+        if (start < glob.length())
+        {
+            buf.append(Pattern.quote(glob.substring(start)));
+        }
+        return Pattern.compile(buf.toString());
+    }
+
+    private static byte[] getIdentifier(int index)
+    {
+        final int radix = ID_LAST - ID_FIRST + 1;
+        int len = 1;
+        for (int n = index / radix; n > 0; n /= radix)
+        {
+            ++len;
+        }
+        final byte[] id = new byte[len];
+        for (int i = 0; i < len; ++i)
+        {
+            id[i] = (byte) (ID_FIRST + index % radix);
+            index /= radix;
+        }
+        return id;
+    }
+
+    private void writeHeader()
+    {
+        append("$date\n  " + new Date() + "\n$end\n");
+        append("$version\n  Jove BehavioralSimulation\n$end\n");
+        append("$timescale " + timescale + " $end\n");
+
+        String[] curScope = new String[0];
+        for (final Signal signal : signals)
+        {
+            final String[] path = signal.reg.getFullName().split("\\.");
+            final int depth = path.length - 1;
+
+            // find common scope prefix
+            int common = 0;
+            while (common < curScope.length && common < depth
+                && curScope[common].equals(path[common]))
+            {
+                ++common;
+            }
+            for (int i = curScope.length; i > common; --i)
+            {
+                append("$upscope $end\n");
+            }
+            for (int i = common; i < depth; ++i)
+            {
+                append("$scope module " + path[i] + " $end\n");
+            }
+            curScope = new String[depth];
+            System.arraycopy(path, 0, curScope, 0, depth);
+
+            append("$var reg " + signal.reg.getSize() + " ");
+            append(signal.id);
+            append(" " + path[depth] + " $end\n");
+        }
+        for (int i = curScope.length; i > 0; --i)
+        {
+            append("$upscope $end\n");
+        }
+        append("$enddefinitions $end\n");
+    }
+
+    private void markDirty(Signal signal)
+    {
+        // called by the register as it changes; simulation threads run one at
+        // a time, so no further synchronization is needed
+        signal.dirty = true;
+        dirtySignals[dirtyCount++] = signal;
+        if (!flushScheduled)
+        {
+            flushScheduled = true;
+            sim.addReadOnlySynchCallback(flushHandler);
+        }
+    }
+
+    private void flush()
+    {
+        if (dirtyCount == 0) return;
+
+        final long time = sim.getSimTime();
+        if (time != lastTime)
+        {
+            append('#');
+            append(time);
+            append('\n');
+            lastTime = time;
+        }
+        for (int i = 0; i < dirtyCount; ++i)
+        {
+            final Signal signal = dirtySignals[i];
+            dirtySignals[i] = null;
+            signal.dirty = false;
+            appendValue(signal);
+        }
+        changeCount += dirtyCount;
+        dirtyCount = 0;
+    }
+
+    private void appendValue(Signal signal)
+    {
+        final int size = signal.size;
+        final byte[] id = signal.id;
+        final int lineLength = (size == 1 ? 1 : size + 2) + id.length + 1;
+        if (lineLength > BLOCK_SIZE - block.length && lineLength <= BLOCK_SIZE)
+        {
+            queueBlock();
+        }
+        if (lineLength <= BLOCK_SIZE - block.length)
+        {
+            // fast path: format directly into the current block
+            final byte[] data = block.data;
+            int pos = block.length;
+            if (size == 1)
+            {
+                data[pos++] = signal.known ? VALUE_CHARS[(int) signal.bits]
+                    : VALUE_CHARS[signal.value.getBit(0).getID()];
+            }
+            else
+            {
+                data[pos++] = 'b';
+                if (signal.known)
+                {
+                    // common case: format the bits of a known value directly,
+                    // a byte at a time after any leading partial byte; leading
+                    // zeros are omitted, since VCD readers zero-extend values
+                    // that begin with 0 or 1
+                    final long bits = signal.bits;
+                    int i = bits != 0 ? 64 - Long.numberOfLeadingZeros(bits) : 1;
+                    while ((i & 7) != 0)
+                    {
+                        --i;
+                        data[pos++] = (byte) ('0' + ((bits >>> i) & 1));
+                    }
+                    while (i > 0)
+                    {
+                        i -= 8;
+                        System.arraycopy(BYTE_DIGITS,
+                            ((int) (bits >>> i) & 0xff) << 3, data, pos, 8);
+                        pos += 8;
+                    }
+                }
+                else
+                {
+                    final BitVectorBuffer value = signal.value;
+                    for (int i = size - 1; i >= 0; --i)
+                    {
+                        data[pos++] = VALUE_CHARS[value.getBit(i).getID()];
+                    }
+                }
+                data[pos++] = ' ';
+            }
+            System.arraycopy(id, 0, data, pos, id.length);
+            pos += id.length;
+            data[pos++] = '\n';
+            block.length = pos;
+        }
+        else
+        {
+            // registers wider than a block are split across blocks
+            final BitVectorBuffer value = signal.value;
+            append('b');
+            for (int i = size - 1; i >= 0; --i)
+            {
+                append((char) VALUE_CHARS[value.getBit(i).getID()]);
+            }
+            append(' ');
+            append(id);
+            append('\n');
+        }
+    }
+
+    private void append(char c)
+    {
+        if (block.length == BLOCK_SIZE)
+        {
+            queueBlock();
+        }
+        block.data[block.length++] = (byte) c;
+    }
+
+    private void append(byte[] b)
+    {
+        for (final byte c : b)
+        {
+            append((char) c);
+        }
+    }
+
+    private void append(String s)
+    {
+        final int len = s.length();
+        for (int i = 0; i < len; ++i)
+        {
+            append(s.charAt(i));
+        }
+    }
+
+    private void append(long n)
+    {
+        // sim times are non-negative
+        if (n >= 10)
+        {
+            append(n / 10);
+        }
+        append((char) ('0' + (n % 10)));
+    }
+
+    private void queueBlock()
+    {
+        if (writerException != null)
+        {
+            throw new DVRuntimeException("Error writing waveform: " + file,
+                writerException);
+        }
+        if (writerThread == null)
+        {
+            // no writer thread; write the block directly
+            try
+            {
+                writer.write(block);
+            }
+            catch (IOException e)
+            {
+                writerException = e;
+                throw new DVRuntimeException("Error writing waveform: "
+                    + file, e);
+            }
+            block.length = 0;
+            return;
+        }
+        putBlock(block);
+        try
+        {
+            block = freeBlocks.take();
+        }
+        catch (InterruptedException e)
+        {
+            throw new DVRuntimeException("Interrupted writing waveform", e);
+        }
+    }
+
+    private void putBlock(Block b)
+    {
+        try
+        {
+            fullBlocks.put(b);
+        }
+        catch (InterruptedException e)
+        {
+            throw new DVRuntimeException("Interrupted writing waveform", e);
+        }
+    }
+
+    private void writeBlocks()
+    {
+        try
+        {
+            try
+            {
+                while (true)
+                {
+                    final Block b = fullBlocks.take();
+                    if (b == endBlock) break;
+                    if (writerException == null)
+                    {
+                        writer.write(b);
+                    }
+                    b.length = 0;
+                    freeBlocks.put(b);
+                }
+            }
+            finally
+            {
+                writer.close();
+            }
+        }
+        catch (IOException e)
+        {
+            writerException = e;
+        }
+        catch (InterruptedException e)
+        {
+            writerException = new InterruptedIOException();
+        }
+    }
+
+    private static void putIntLE(ByteBuffer buf, int value)
+    {
+        buf.put((byte) value);
+        buf.put((byte) (value >> 8));
+        buf.put((byte) (value >> 16));
+        buf.put((byte) (value >> 24));
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf)
+        throws IOException
+    {
+        while (buf.hasRemaining())
+        {
+            channel.write(buf);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.coverage;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A cross of two or more cover points of a CoverGroup, which counts each
+ * combination of coverage bins hit by the points in the same sample. The
+ * default bin of a cover point does not participate in crosses. Cross bins
+ * are stored in a single counter array indexed by the bins of each point in
+ * mixed-radix order, with the first point varying slowest.
+ * 
+ * @author Trevor Robinson
+ */
+public final class CoverCross
+    extends CoverItem
+{
+    // limit on the number of cross bins, to catch accidental crosses of
+    // very large cover points
+    private static final int MAX_BINS = 1 << 24;
+
+    private final CoverPoint[] points;
+    private int[] strides;
+    private int[] cursor;
+
+    CoverCross(CoverGroup group, String name, CoverPoint[] points)
+    {
+        super(group, name);
+        if (points.length < 2)
+        {
+            throw new IllegalArgumentException(
+                "Cross requires at least 2 cover points: " + name);
+        }
+        for (final CoverPoint point : points)
+        {
+            if (point.group != group)
+            {
+                throw new IllegalArgumentException("Cover point " + point
+                    + " is not in group " + group.getName());
+            }
+        }
+        this.points = points.clone();
+    }
+
+    /**
+     * Returns the cover points crossed by this item.
+     *
+     * @return an unmodifiable List of CoverPoints
+     */
+    public List<CoverPoint> getPoints()
+    {
+        return Collections.unmodifiableList(Arrays.asList(points));
+    }
+
+    @Override
+    public int getBinCount()
+    {
+        checkCompiled();
+        return counts.length;
+    }
+
+    @Override
+    public String getBinName(int bin)
+    {
+        checkCompiled();
+        final StringBuffer buf = new StringBuffer();
+        buf.append('<');
+        for (int i = 0; i < points.length; ++i)
+        {
+            if (i > 0) buf.append(',');
+            buf.append(points[i].getBinName((bin / strides[i])
+                % points[i].getBinCount()));
+        }
+        buf.append('>');
+        return buf.toString();
+    }
+
+    /**
+     * Returns the index of the cross bin for the given combination of cover
+     * point bins. The cover group must be compiled.
+     *
+     * @param pointBins a coverage bin index for each crossed point
+     * @return the index of the cross bin
+     */
+    public int getBinIndex(int... pointBins)
+    {
+        checkCompiled();
+        if (pointBins.length != points.length)
+        {
+            throw new IllegalArgumentException("Expected " + points.length
+                + " bin indices");
+        }
+        int index = 0;
+        for (int i = 0; i < points.length; ++i)
+        {
+            if (pointBins[i] < 0 || pointBins[i] >= points[i].getBinCount())
+            {
+                throw new IndexOutOfBoundsException("Bin " + pointBins[i]
+                    + " of " + points[i]);
+            }
+            index += pointBins[i] * strides[i];
+        }
+        return index;
+    }
+
+    @Override
+    void compile()
+    {
+        strides = new int[points.length];
+        long size = 1;
+        for (int i = points.length - 1; i >= 0; --i)
+        {
+            strides[i] = (int) size;
+            size *= points[i].getBinCount();
+            if (size > MAX_BINS)
+            {
+                throw new IllegalArgumentException("Cross " + this
+                    + " has more than " + MAX_BINS + " bins");
+            }
+        }
+        counts = new long[(int) size];
+        cursor = new int[points.length];
+    }
+
+    @Override
+    void sample()
+    {
+        final int n = points.length;
+        int index = 0;
+        boolean single = true;
+        for (int i = 0; i < n; ++i)
+        {
+            final CoverPoint point = points[i];
+            final int hitCount = point.hitCount;
+            if (hitCount == 0) return;
+            if (hitCount > 1) single = false;
+            index += point.hits[0] * strides[i];
+        }
+        if (single)
+        {
+            ++counts[index];
+            return;
+        }
+
+        // some point hit multiple bins: count every combination
+        Arrays.fill(cursor, 0);
+        while (true)
+        {
+            index = 0;
+            for (int i = 0; i < n; ++i)
+            {
+                index += points[i].hits[cursor[i]] * strides[i];
+            }
+            ++counts[index];
+
+            int i = n - 1;
+            while (i >= 0 && ++cursor[i] == points[i].hitCount)
+            {
+                cursor[i] = 0;
+                --i;
+            }
+            if (i < 0) break;
+        }
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.coverage;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A group of cover points and crosses that are sampled together. Cover
+ * points obtain their values either from bound ValueSources (such as signals
+ * or fields of the object passed to sample(Object)) or from values set
+ * explicitly before calling sample().
+ * <p>
+ * Items are added to a group, then the group is compiled, either explicitly
+ * or by the first sample. Compiling builds the bin lookup tables and
+ * counters; no items or bins can be added afterward. Sampling a compiled
+ * group does not allocate any objects (although value sources may).
+ * <p>
+ * Cover groups are not thread-safe. Since simulation threads execute one at
+ * a time, a group may be sampled from any simulation thread.
+ * 
+ * @author Trevor Robinson
+ */
+public class CoverGroup
+{
+    private final String name;
+    private final List<CoverPoint> pointList = new ArrayList<CoverPoint>();
+    private final List<CoverCross> crossList = new ArrayList<CoverCross>();
+    private final Map<String, CoverItem> itemMap = new HashMap<String, CoverItem>();
+    private boolean compiled;
+    private CoverPoint[] points;
+    private CoverCross[] crosses;
+    private long sampleCount;
+
+    /**
+     * Constructs a new, empty cover group with the given name.
+     *
+     * @param name the name of the cover group
+     */
+    public CoverGroup(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Returns the name of this cover group.
+     *
+     * @return the name of this cover group
+     */
+    public final String getName()
+    {
+        return name;
+    }
+
+    private void addItem(CoverItem item)
+    {
+        if (itemMap.containsKey(item.getName()))
+        {
+            throw new IllegalArgumentException("Duplicate item name: "
+                + item.getName());
+        }
+        itemMap.put(item.getName(), item);
+    }
+
+    /**
+     * Adds a cover point for integral values of the given width.
+     *
+     * @param pointName the name of the cover point
+     * @param width the width of the values in bits (1 to 64)
+     * @return the new CoverPoint
+     */
+    public final CoverPoint addCoverPoint(String pointName, int width)
+    {
+        checkNotCompiled();
+        final CoverPoint point = new CoverPoint(this, pointName, width, null);
+        addItem(point);
+        pointList.add(point);
+        return point;
+    }
+
+    /**
+     * Adds a cover point for constants of the given enum type. The values of
+     * the cover point are the ordinals of the constants. Unless other bins
+     * are defined, the cover point has one bin per constant.
+     *
+     * @param pointName the name of the cover point
+     * @param enumType the enum class
+     * @return the new CoverPoint
+     */
+    public final CoverPoint addCoverPoint(
+        String pointName,
+        Class< ? extends Enum> enumType)
+    {
+        checkNotCompiled();
+        final int count = enumType.getEnumConstants().length;
+        int width = 1;
+        while (width < 31 && (1 << width) < count)
+        {
+            ++width;
+        }
+        final CoverPoint point = new CoverPoint(this, pointName, width,
+            enumType);
+        addItem(point);
+        pointList.add(point);
+        return point;
+    }
+
+    /**
+     * Adds a cross of the given cover points, which must belong to this
+     * group.
+     *
+     * @param crossName the name of the cross
+     * @param crossPoints the cover points to cross (at least 2)
+     * @return the new CoverCross
+     */
+    public final CoverCross addCross(String crossName, CoverPoint... crossPoints)
+    {
+        checkNotCompiled();
+        final CoverCross cross = new CoverCross(this, crossName, crossPoints);
+        addItem(cross);
+        crossList.add(cross);
+        return cross;
+    }
+
+    /**
+     * Returns the cover points of this group, in the order they were added.
+     *
+     * @return an unmodifiable List of CoverPoints
+     */
+    public final List<CoverPoint> getCoverPoints()
+    {
+        return Collections.unmodifiableList(pointList);
+    }
+
+    /**
+     * Returns the crosses of this group, in the order they were added.
+     *
+     * @return an unmodifiable List of CoverCrosses
+     */
+    public final List<CoverCross> getCrosses()
+    {
+        return Collections.unmodifiableList(crossList);
+    }
+
+    /**
+     * Returns all items of this group: cover points followed by crosses.
+     *
+     * @return a List of CoverItems
+     */
+    public final List<CoverItem> getItems()
+    {
+        final List<CoverItem> items = new ArrayList<CoverItem>(pointList
+            .size()
+            + crossList.size());
+        items.addAll(pointList);
+        items.addAll(crossList);
+        return items;
+    }
+
+    /**
+     * Returns the item (cover point or cross) with the given name.
+     *
+     * @param itemName the name of the item
+     * @return the CoverItem, or null if no such item exists
+     */
+    public final CoverItem getItem(String itemName)
+    {
+        return itemMap.get(itemName);
+    }
+
+    final void checkNotCompiled()
+    {
+        if (compiled)
+        {
+            throw new IllegalStateException("Cover group " + name
+                + " has already been compiled");
+        }
+    }
+
+    /**
+     * Returns whether this group has been compiled.
+     *
+     * @return true iff this group has been compiled
+     */
+    public final boolean isCompiled()
+    {
+        return compiled;
+    }
+
+    /**
+     * Builds the bin lookup tables and counters for all items of this group.
+     * This method has no effect if the group is already compiled.
+     */
+    public final void compile()
+    {
+        if (compiled) return;
+        for (final CoverPoint point : pointList)
+        {
+            point.compile();
+        }
+        for (final CoverCross cross : crossList)
+        {
+            cross.compile();
+        }
+        points = pointList.toArray(new CoverPoint[pointList.size()]);
+        crosses = crossList.toArray(new CoverCross[crossList.size()]);
+        compiled = true;
+    }
+
+    /**
+     * Samples all items of this group. Cover points with a value source are
+     * given a null target object.
+     */
+    public final void sample()
+    {
+        sample(null);
+    }
+
+    /**
+     * Samples all items of this group, passing the given object to the value
+     * sources of the cover points (such as those bound using
+     * CoverPoint.bindField()).
+     *
+     * @param target the object to sample, or null
+     */
+    public final void sample(Object target)
+    {
+        if (!compiled) compile();
+        for (final CoverPoint point : points)
+        {
+            final ValueSource source = point.source;
+            if (source != null) source.sample(point, target);
+            point.sample();
+        }
+        for (final CoverCross cross : crosses)
+        {
+            cross.sample();
+        }
+        ++sampleCount;
+    }
+
+    /**
+     * Returns the number of times this group has been sampled.
+     *
+     * @return the sample count
+     */
+    public final long getSampleCount()
+    {
+        return sampleCount;
+    }
+
+    final void addSampleCount(long count)
+    {
+        sampleCount += count;
+    }
+
+    /**
+     * Returns the coverage of this group, which is the average coverage
+     * percentage of its items. A group with no items is considered fully
+     * covered.
+     *
+     * @return the coverage percentage, from 0 to 100
+     */
+    public final double getCoverage()
+    {
+        compile();
+        final int itemCount = points.length + crosses.length;
+        if (itemCount == 0) return 100.0;
+        double total = 0;
+        for (final CoverPoint point : points)
+        {
+            total += point.getCoverage();
+        }
+        for (final CoverCross cross : crosses)
+        {
+            total += cross.getCoverage();
+        }
+        return total / itemCount;
+    }
+
+    /**
+     * Clears the hit counts of all items and the sample count.
+     */
+    public final void reset()
+    {
+        compile();
+        for (final CoverPoint point : points)
+        {
+            point.reset();
+        }
+        for (final CoverCross cross : crosses)
+        {
+            cross.reset();
+        }
+        sampleCount = 0;
+    }
+
+    /**
+     * Prints the coverage of this group and the hit count of each bin to the
+     * given stream.
+     *
+     * @param out the stream to print to
+     */
+    public final void printReport(PrintStream out)
+    {
+        compile();
+        out.println(String.format("Cover group %s: %.2f%% (%d samples)",
+            name, getCoverage(), sampleCount));
+        for (final CoverItem item : getItems())
+        {
+            out.println(String.format("  %s: %.2f%% (%d of %d bins)", item
+                .getName(), item.getCoverage(), item.getCoveredBinCount(),
+                item.getBinCount()));
+            final int binCount = item.getTotalBinCount();
+            for (int i = 0; i < binCount; ++i)
+            {
+                out.println(String.format("    %-40s %d", item.getBinName(i),
+                    item.getCount(i)));
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.coverage;
+
+import java.util.Arrays;
+
+/**
+ * Base class for coverage items (cover points and crosses) of a CoverGroup.
+ * Each item maintains an array of hit counters, one per bin. Bins numbered
+ * from 0 to getBinCount() - 1 contribute to coverage; an item may have
+ * additional bins beyond these (such as the default bin of a cover point)
+ * that are counted but not considered for coverage.
+ * 
+ * @author Trevor Robinson
+ */
+public abstract class CoverItem
+{
+    final CoverGroup group;
+    private final String name;
+    int atLeast = 1;
+    long[] counts;
+
+    CoverItem(CoverGroup group, String name)
+    {
+        this.group = group;
+        this.name = name;
+    }
+
+    /**
+     * Returns the cover group containing this item.
+     *
+     * @return the CoverGroup for this item
+     */
+    public final CoverGroup getGroup()
+    {
+        return group;
+    }
+
+    /**
+     * Returns the name of this item.
+     *
+     * @return the name of this item
+     */
+    public final String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the minimum number of hits for a bin to be considered covered.
+     *
+     * @return the minimum hit count
+     */
+    public final int getAtLeast()
+    {
+        return atLeast;
+    }
+
+    /**
+     * Sets the minimum number of hits for a bin to be considered covered. The
+     * default is 1.
+     *
+     * @param atLeast the minimum hit count
+     */
+    public final void setAtLeast(int atLeast)
+    {
+        if (atLeast < 1)
+        {
+            throw new IllegalArgumentException("atLeast must be positive");
+        }
+        this.atLeast = atLeast;
+    }
+
+    /**
+     * Returns the number of bins that contribute to coverage. The cover group
+     * must be compiled.
+     *
+     * @return the number of coverage bins
+     */
+    public abstract int getBinCount();
+
+    /**
+     * Returns the total number of bins, including bins that are counted but do
+     * not contribute to coverage. The cover group must be compiled.
+     *
+     * @return the total number of bins
+     */
+    public final int getTotalBinCount()
+    {
+        checkCompiled();
+        return counts.length;
+    }
+
+    /**
+     * Returns the name of the given bin. The cover group must be compiled.
+     *
+     * @param bin a bin index less than getTotalBinCount()
+     * @return the name of the bin
+     */
+    public abstract String getBinName(int bin);
+
+    /**
+     * Returns the number of times the given bin has been hit. The cover group
+     * must be compiled.
+     *
+     * @param bin a bin index less than getTotalBinCount()
+     * @return the hit count of the bin
+     */
+    public final long getCount(int bin)
+    {
+        checkCompiled();
+        return counts[bin];
+    }
+
+    /**
+     * Returns the number of coverage bins hit at least getAtLeast() times.
+     *
+     * @return the number of covered bins
+     */
+    public final int getCoveredBinCount()
+    {
+        final int binCount = getBinCount();
+        int covered = 0;
+        for (int i = 0; i < binCount; ++i)
+        {
+            if (counts[i] >= atLeast) ++covered;
+        }
+        return covered;
+    }
+
+    /**
+     * Returns the percentage of coverage bins that are covered. An item with
+     * no coverage bins is considered fully covered.
+     *
+     * @return the coverage percentage, from 0 to 100
+     */
+    public final double getCoverage()
+    {
+        final int binCount = getBinCount();
+        return binCount > 0 ? getCoveredBinCount() * 100.0 / binCount : 100.0;
+    }
+
+    /**
+     * Returns a signature of the bin structure of this item, used to verify
+     * that merged coverage data describes the same bins.
+     *
+     * @return a 64-bit structural signature
+     */
+    public final long getSignature()
+    {
+        checkCompiled();
+        long hash = 0xcbf29ce484222325L;
+        hash = hashString(hash, name);
+        for (int i = 0; i < counts.length; ++i)
+        {
+            hash = hashString(hash, getBinName(i));
+        }
+        return hash;
+    }
+
+    private static long hashString(long hash, String s)
+    {
+        // 64-bit FNV-1a over the characters and a terminator
+        for (int i = 0; i < s.length(); ++i)
+        {
+            hash = (hash ^ s.charAt(i)) * 0x100000001b3L;
+        }
+        return (hash ^ 0xffff) * 0x100000001b3L;
+    }
+
+    /**
+     * Clears the hit counts of all bins.
+     */
+    public void reset()
+    {
+        checkCompiled();
+        Arrays.fill(counts, 0);
+    }
+
+    final void checkCompiled()
+    {
+        if (counts == null)
+        {
+            throw new IllegalStateException("Cover group " + group.getName()
+                + " has not been compiled");
+        }
+    }
+
+    /**
+     * Builds the sampling tables and counters of this item. Called by
+     * CoverGroup.compile().
+     */
+    abstract void compile();
+
+    /**
+     * Updates the counters of this item for the current sample.
+     */
+    abstract void sample();
+
+    @Override
+    public String toString()
+    {
+        return group.getName() + "." + name;
+    }
+}
@@ -0,0 +1,848 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.coverage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.newisys.dv.InputSignal;
+import com.newisys.verilog.util.BitVector;
+
+/**
+ * A cover point of a CoverGroup, which counts how often sampled values fall
+ * into each of a set of bins. Values are integers of a given width (up to 64
+ * bits), obtained from BitVectors, primitive integers, booleans, or enum
+ * ordinals. Values narrower than 64 bits are treated as unsigned; 64-bit
+ * values are compared as signed longs.
+ * <p>
+ * The following kinds of bins are supported:
+ * <ul>
+ * <li>value and range bins, which are hit when the value falls within any of
+ * the bin's ranges</li>
+ * <li>wildcard bins, which are hit when the value matches a bit pattern
+ * containing don't-care bits</li>
+ * <li>transition bins, which are hit when consecutive samples match a
+ * sequence of values or ranges</li>
+ * <li>a default bin, which counts samples that hit no value, range, or
+ * wildcard bin, and does not contribute to coverage</li>
+ * </ul>
+ * If no bins are defined, automatic bins are created: one per enum constant
+ * for enum cover points, one per value for widths up to 6 bits, and otherwise
+ * 64 equal ranges spanning the value space.
+ * <p>
+ * When the cover group is compiled, range bins are converted into a table of
+ * disjoint intervals, each listing the bins that contain it. Sampling then
+ * locates the value's interval by direct indexing (for compact value spaces)
+ * or binary search, and increments primitive counters without allocating.
+ * 
+ * @author Trevor Robinson
+ */
+public final class CoverPoint
+    extends CoverItem
+{
+    private static final int RANGE = 0;
+    private static final int WILDCARD = 1;
+    private static final int TRANSITION = 2;
+
+    private static final int AUTO_BIN_MAX = 64;
+
+    // maximum span of the interval table for which a direct lookup table is
+    // built
+    private static final int DIRECT_LIMIT = 4096;
+
+    private static final class BinDef
+    {
+        final String name;
+        final int kind;
+        long[] ranges;
+        long mask;
+        long match;
+        long[] stepLo;
+        long[] stepHi;
+
+        BinDef(String name, int kind)
+        {
+            this.name = name;
+            this.kind = kind;
+        }
+    }
+
+    private final int width;
+    private final long valueMask;
+    private final Class< ? extends Enum> enumType;
+    private final List<BinDef> binDefs = new ArrayList<BinDef>();
+    private final Set<String> binNames = new HashSet<String>();
+    private String defaultBinName;
+    ValueSource source;
+
+    // compiled bin tables
+    private String[] compiledNames;
+    private int coverBinCount;
+    private int defaultBin = -1;
+    private long[] bounds;
+    private int[] intervalStart;
+    private int[] intervalBins;
+    private long directBase;
+    private int[] direct;
+    private long[] wildcardMask;
+    private long[] wildcardMatch;
+    private int[] wildcardBins;
+    private long[][] transLo;
+    private long[][] transHi;
+    private long[] transFinal;
+    private long[] transState;
+    private int[] transBins;
+
+    // current sample
+    private long value;
+    private boolean valid;
+    int[] hits;
+    int hitCount;
+
+    CoverPoint(
+        CoverGroup group,
+        String name,
+        int width,
+        Class< ? extends Enum> enumType)
+    {
+        super(group, name);
+        if (width < 1 || width > 64)
+        {
+            throw new IllegalArgumentException("Invalid width: " + width);
+        }
+        this.width = width;
+        this.valueMask = width < 64 ? (1L << width) - 1 : -1L;
+        this.enumType = enumType;
+    }
+
+    /**
+     * Returns the width in bits of the values of this cover point.
+     *
+     * @return the value width
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Returns the enum type of this cover point, or null if it is not an enum
+     * cover point.
+     *
+     * @return the enum class or null
+     */
+    public Class< ? extends Enum> getEnumType()
+    {
+        return enumType;
+    }
+
+    // bin definition
+
+    private BinDef addBinDef(String name, int kind)
+    {
+        group.checkNotCompiled();
+        if (!binNames.add(name))
+        {
+            throw new IllegalArgumentException("Duplicate bin name: " + name);
+        }
+        final BinDef def = new BinDef(name, kind);
+        binDefs.add(def);
+        return def;
+    }
+
+    private void checkRange(long lo, long hi)
+    {
+        if (lo > hi)
+        {
+            throw new IllegalArgumentException("Invalid range: [" + lo + ":"
+                + hi + "]");
+        }
+    }
+
+    /**
+     * Adds a bin that is hit when the sampled value equals any of the given
+     * values.
+     *
+     * @param name the name of the bin
+     * @param values the values of the bin
+     */
+    public void addValueBin(String name, long... values)
+    {
+        if (values.length == 0)
+        {
+            throw new IllegalArgumentException("No values given for bin "
+                + name);
+        }
+        final BinDef def = addBinDef(name, RANGE);
+        def.ranges = new long[values.length * 2];
+        for (int i = 0; i < values.length; ++i)
+        {
+            def.ranges[i * 2] = values[i];
+            def.ranges[i * 2 + 1] = values[i];
+        }
+    }
+
+    /**
+     * Adds a bin that is hit when the sampled value is within the given
+     * inclusive range.
+     *
+     * @param name the name of the bin
+     * @param lo the lower bound of the range
+     * @param hi the upper bound of the range
+     */
+    public void addRangeBin(String name, long lo, long hi)
+    {
+        checkRange(lo, hi);
+        final BinDef def = addBinDef(name, RANGE);
+        def.ranges = new long[] { lo, hi };
+    }
+
+    /**
+     * Adds a bin that is hit when the sampled value is within any of the
+     * given inclusive ranges.
+     *
+     * @param name the name of the bin
+     * @param ranges pairs of lower and upper bounds
+     */
+    public void addRangeBin(String name, long[][] ranges)
+    {
+        if (ranges.length == 0)
+        {
+            throw new IllegalArgumentException("No ranges given for bin "
+                + name);
+        }
+        final long[] flat = new long[ranges.length * 2];
+        for (int i = 0; i < ranges.length; ++i)
+        {
+            checkRange(ranges[i][0], ranges[i][1]);
+            flat[i * 2] = ranges[i][0];
+            flat[i * 2 + 1] = ranges[i][1];
+        }
+        final BinDef def = addBinDef(name, RANGE);
+        def.ranges = flat;
+    }
+
+    /**
+     * Divides the given inclusive range into the given number of bins of
+     * equal size (except for the last, which also receives any remainder),
+     * named <code>name[0]</code> through
+     * <code>name[count-1]</code>. If the range contains fewer values than
+     * the requested count, one bin is created per value.
+     *
+     * @param name the base name of the bins
+     * @param lo the lower bound of the range
+     * @param hi the upper bound of the range
+     * @param count the number of bins
+     */
+    public void addRangeBins(String name, long lo, long hi, int count)
+    {
+        checkRange(lo, hi);
+        if (count < 1)
+        {
+            throw new IllegalArgumentException("Invalid bin count: " + count);
+        }
+        // compute the span as an unsigned quantity, since it may exceed
+        // Long.MAX_VALUE
+        final long span = hi - lo;
+        final long size;
+        final int n;
+        if (span >= 0 && span < count)
+        {
+            n = (int) span + 1;
+            size = 1;
+        }
+        else
+        {
+            // the last bin also receives any remainder, as in SystemVerilog
+            n = count;
+            size = unsignedDivide(span != -1 ? span + 1 : span, count);
+        }
+        long start = lo;
+        for (int i = 0; i < n; ++i)
+        {
+            final long end = i == n - 1 ? hi : start + size - 1;
+            addRangeBin(name + "[" + i + "]", start, end);
+            start = end + 1;
+        }
+    }
+
+    private static long unsignedDivide(long dividend, long divisor)
+    {
+        if (dividend >= 0) return dividend / divisor;
+        final long q = ((dividend >>> 1) / divisor) << 1;
+        final long r = dividend - q * divisor;
+        return q + (r < 0 || r >= divisor ? 1 : 0);
+    }
+
+    /**
+     * Adds a bin that is hit when the sampled value matches the given bit
+     * pattern. The pattern lists bits from most to least significant using
+     * '0' and '1' for fixed bits and 'x', 'z', or '?' for don't-care bits.
+     * Underscores are ignored. Bits above the length of the pattern must be
+     * zero.
+     *
+     * @param name the name of the bin
+     * @param pattern the bit pattern
+     */
+    public void addWildcardBin(String name, String pattern)
+    {
+        long mask = 0;
+        long match = 0;
+        int bits = 0;
+        for (int i = 0; i < pattern.length(); ++i)
+        {
+            final char c = pattern.charAt(i);
+            if (c == '_') continue;
+            mask <<= 1;
+            match <<= 1;
+            switch (c)
+            {
+            case '0':
+                mask |= 1;
+                break;
+            case '1':
+                mask |= 1;
+                match |= 1;
+                break;
+            case 'x':
+            case 'X':
+            case 'z':
+            case 'Z':
+            case '?':
+                break;
+            default:
+                throw new IllegalArgumentException(
+                    "Invalid wildcard pattern: " + pattern);
+            }
+            ++bits;
+        }
+        if (bits == 0 || bits > width)
+        {
+            throw new IllegalArgumentException("Wildcard pattern " + pattern
+                + " does not fit width " + width);
+        }
+        if (bits < 64)
+        {
+            mask |= valueMask & ~((1L << bits) - 1);
+        }
+        final BinDef def = addBinDef(name, WILDCARD);
+        def.mask = mask;
+        def.match = match;
+    }
+
+    /**
+     * Adds a bin that is hit when consecutive samples equal the given
+     * sequence of values.
+     *
+     * @param name the name of the bin
+     * @param sequence the sequence of values (at least 2 and at most 64)
+     */
+    public void addTransitionBin(String name, long... sequence)
+    {
+        final long[][] steps = new long[sequence.length][];
+        for (int i = 0; i < sequence.length; ++i)
+        {
+            steps[i] = new long[] { sequence[i], sequence[i] };
+        }
+        addTransitionBin(name, steps);
+    }
+
+    /**
+     * Adds a bin that is hit when consecutive samples fall within the given
+     * sequence of inclusive ranges.
+     *
+     * @param name the name of the bin
+     * @param steps pairs of lower and upper bounds for each step (at least 2
+     *            and at most 64 steps)
+     */
+    public void addTransitionBin(String name, long[][] steps)
+    {
+        if (steps.length < 2 || steps.length > 64)
+        {
+            throw new IllegalArgumentException(
+                "Transition must have 2 to 64 steps: " + name);
+        }
+        final long[] lo = new long[steps.length];
+        final long[] hi = new long[steps.length];
+        for (int i = 0; i < steps.length; ++i)
+        {
+            checkRange(steps[i][0], steps[i][1]);
+            lo[i] = steps[i][0];
+            hi[i] = steps[i][1];
+        }
+        final BinDef def = addBinDef(name, TRANSITION);
+        def.stepLo = lo;
+        def.stepHi = hi;
+    }
+
+    /**
+     * Adds a bin that counts samples that hit no value, range, or wildcard
+     * bin. The default bin does not contribute to coverage.
+     *
+     * @param name the name of the default bin
+     */
+    public void addDefaultBin(String name)
+    {
+        group.checkNotCompiled();
+        if (defaultBinName != null)
+        {
+            throw new IllegalArgumentException("Default bin already defined");
+        }
+        if (!binNames.add(name))
+        {
+            throw new IllegalArgumentException("Duplicate bin name: " + name);
+        }
+        defaultBinName = name;
+    }
+
+    // value sources
+
+    /**
+     * Binds this cover point to the given value source, which is invoked
+     * each time the cover group is sampled.
+     *
+     * @param source the value source, or null to sample only values set
+     *            explicitly
+     */
+    public void bind(ValueSource source)
+    {
+        this.source = source;
+    }
+
+    /**
+     * Binds this cover point to the current sampled value of the given input
+     * signal.
+     *
+     * @param signal the signal to sample
+     */
+    public void bindSignal(final InputSignal signal)
+    {
+        bind(new ValueSource()
+        {
+            public void sample(CoverPoint point, Object target)
+            {
+                point.set(signal.sample());
+            }
+        });
+    }
+
+    /**
+     * Binds this cover point to a field of the object passed to
+     * CoverGroup.sample(Object). The field path is a dot-separated list of
+     * field names, starting with a field of the given class and descending
+     * into member objects. The final field must have an integral, boolean,
+     * enum, or BitVector type.
+     *
+     * @param cls the class of the sampled objects
+     * @param path the field path
+     */
+    public void bindField(Class< ? > cls, String path)
+    {
+        bind(new FieldValueSource(cls, path));
+    }
+
+    // sample values
+
+    /**
+     * Sets the value to be counted by the next sample of the cover group.
+     *
+     * @param value the value
+     */
+    public void set(long value)
+    {
+        this.value = value & valueMask;
+        this.valid = true;
+    }
+
+    /**
+     * Sets the value to be counted by the next sample of the cover group.
+     *
+     * @param value the value
+     */
+    public void set(boolean value)
+    {
+        this.value = value ? 1 : 0;
+        this.valid = true;
+    }
+
+    /**
+     * Sets the value to be counted by the next sample of the cover group. A
+     * null value, or one containing X or Z bits, is not counted in any bin.
+     *
+     * @param value the value
+     */
+    public void set(BitVector value)
+    {
+        if (value == null || value.containsXZ())
+        {
+            valid = false;
+        }
+        else
+        {
+            set(value.longValue());
+        }
+    }
+
+    /**
+     * Sets the value to be counted by the next sample of the cover group to
+     * the ordinal of the given enum constant. A null value is not counted in
+     * any bin.
+     *
+     * @param value the enum constant
+     */
+    public void set(Enum value)
+    {
+        if (value == null)
+        {
+            valid = false;
+        }
+        else
+        {
+            set(value.ordinal());
+        }
+    }
+
+    /**
+     * Indicates that the next sample of the cover group should not count a
+     * value for this cover point.
+     */
+    public void setInvalid()
+    {
+        valid = false;
+    }
+
+    /**
+     * Returns the value that will be counted by the next sample.
+     *
+     * @return the current value
+     */
+    public long getValue()
+    {
+        return value;
+    }
+
+    /**
+     * Returns whether the next sample will count a value for this cover
+     * point.
+     *
+     * @return true iff the current value is valid
+     */
+    public boolean isValid()
+    {
+        return valid;
+    }
+
+    // CoverItem implementation
+
+    @Override
+    public int getBinCount()
+    {
+        checkCompiled();
+        return coverBinCount;
+    }
+
+    @Override
+    public String getBinName(int bin)
+    {
+        checkCompiled();
+        return compiledNames[bin];
+    }
+
+    /**
+     * Returns the index of the bin with the given name, or -1 if no such bin
+     * exists. The cover group must be compiled.
+     *
+     * @param name a bin name
+     * @return the index of the bin or -1
+     */
+    public int getBinIndex(String name)
+    {
+        checkCompiled();
+        for (int i = 0; i < compiledNames.length; ++i)
+        {
+            if (compiledNames[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public void reset()
+    {
+        super.reset();
+        Arrays.fill(transState, 0);
+    }
+
+    @Override
+    void compile()
+    {
+        if (binDefs.isEmpty()) addAutoBins();
+
+        final int binCount = binDefs.size();
+        coverBinCount = binCount;
+        compiledNames = new String[binCount + (defaultBinName != null ? 1 : 0)];
+        for (int i = 0; i < binCount; ++i)
+        {
+            compiledNames[i] = binDefs.get(i).name;
+        }
+        if (defaultBinName != null)
+        {
+            defaultBin = binCount;
+            compiledNames[binCount] = defaultBinName;
+        }
+
+        compileRanges();
+        compileWildcards();
+        compileTransitions();
+
+        counts = new long[compiledNames.length];
+        hits = new int[binCount];
+    }
+
+    private void addAutoBins()
+    {
+        if (enumType != null)
+        {
+            for (final Enum e : enumType.getEnumConstants())
+            {
+                addValueBin(e.name(), e.ordinal());
+            }
+        }
+        else if (width <= 6)
+        {
+            for (int i = 0; i <= valueMask; ++i)
+            {
+                addValueBin("auto[" + i + "]", i);
+            }
+        }
+        else
+        {
+            final long lo = width < 64 ? 0 : Long.MIN_VALUE;
+            final long hi = width < 64 ? valueMask : Long.MAX_VALUE;
+            addRangeBins("auto", lo, hi, AUTO_BIN_MAX);
+        }
+    }
+
+    private void compileRanges()
+    {
+        // collect the boundaries of the elementary intervals
+        final TreeSet<Long> points = new TreeSet<Long>();
+        for (final BinDef def : binDefs)
+        {
+            if (def.kind != RANGE) continue;
+            for (int i = 0; i < def.ranges.length; i += 2)
+            {
+                points.add(def.ranges[i]);
+                if (def.ranges[i + 1] != Long.MAX_VALUE)
+                {
+                    points.add(def.ranges[i + 1] + 1);
+                }
+            }
+        }
+        final int intervalCount = points.size();
+        bounds = new long[intervalCount];
+        int n = 0;
+        for (final Long point : points)
+        {
+            bounds[n++] = point;
+        }
+
+        // list the bins containing each interval
+        intervalStart = new int[intervalCount + 1];
+        final List<Integer> binList = new ArrayList<Integer>();
+        for (int i = 0; i < intervalCount; ++i)
+        {
+            intervalStart[i] = binList.size();
+            final long start = bounds[i];
+            for (int bin = 0; bin < binDefs.size(); ++bin)
+            {
+                final BinDef def = binDefs.get(bin);
+                if (def.kind != RANGE) continue;
+                for (int j = 0; j < def.ranges.length; j += 2)
+                {
+                    if (start >= def.ranges[j] && start <= def.ranges[j + 1])
+                    {
+                        binList.add(bin);
+                        break;
+                    }
+                }
+            }
+        }
+        intervalStart[intervalCount] = binList.size();
+        intervalBins = new int[binList.size()];
+        for (int i = 0; i < intervalBins.length; ++i)
+        {
+            intervalBins[i] = binList.get(i);
+        }
+
+        // build a direct lookup table if the intervals span a small range
+        direct = null;
+        if (intervalCount > 0)
+        {
+            final long span = bounds[intervalCount - 1] - bounds[0];
+            if (span >= 0 && span < DIRECT_LIMIT)
+            {
+                directBase = bounds[0];
+                direct = new int[(int) span + 1];
+                int interval = 0;
+                for (int i = 0; i < direct.length; ++i)
+                {
+                    while (interval + 1 < intervalCount
+                        && directBase + i >= bounds[interval + 1])
+                    {
+                        ++interval;
+                    }
+                    direct[i] = interval;
+                }
+            }
+        }
+    }
+
+    private void compileWildcards()
+    {
+        int count = 0;
+        for (final BinDef def : binDefs)
+        {
+            if (def.kind == WILDCARD) ++count;
+        }
+        wildcardMask = new long[count];
+        wildcardMatch = new long[count];
+        wildcardBins = new int[count];
+        int n = 0;
+        for (int bin = 0; bin < binDefs.size(); ++bin)
+        {
+            final BinDef def = binDefs.get(bin);
+            if (def.kind != WILDCARD) continue;
+            wildcardMask[n] = def.mask;
+            wildcardMatch[n] = def.match;
+            wildcardBins[n] = bin;
+            ++n;
+        }
+    }
+
+    private void compileTransitions()
+    {
+        int count = 0;
+        for (final BinDef def : binDefs)
+        {
+            if (def.kind == TRANSITION) ++count;
+        }
+        transLo = new long[count][];
+        transHi = new long[count][];
+        transFinal = new long[count];
+        transState = new long[count];
+        transBins = new int[count];
+        int n = 0;
+        for (int bin = 0; bin < binDefs.size(); ++bin)
+        {
+            final BinDef def = binDefs.get(bin);
+            if (def.kind != TRANSITION) continue;
+            transLo[n] = def.stepLo;
+            transHi[n] = def.stepHi;
+            transFinal[n] = 1L << (def.stepLo.length - 1);
+            transBins[n] = bin;
+            ++n;
+        }
+    }
+
+    /**
+     * Returns the index of the elementary interval containing the given
+     * value, or -1 if it precedes all intervals.
+     */
+    private int findInterval(long v)
+    {
+        final int intervalCount = bounds.length;
+        if (intervalCount == 0 || v < bounds[0]) return -1;
+        if (direct != null)
+        {
+            final long offset = v - directBase;
+            return offset >= 0 && offset < direct.length ? direct[(int) offset]
+                : intervalCount - 1;
+        }
+        final int index = Arrays.binarySearch(bounds, v);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    @Override
+    void sample()
+    {
+        hitCount = 0;
+        if (!valid)
+        {
+            // an unknown value breaks any transition in progress
+            Arrays.fill(transState, 0);
+            return;
+        }
+        final long v = value;
+
+        // range bins
+        final int interval = findInterval(v);
+        if (interval >= 0)
+        {
+            final int end = intervalStart[interval + 1];
+            for (int i = intervalStart[interval]; i < end; ++i)
+            {
+                final int bin = intervalBins[i];
+                ++counts[bin];
+                hits[hitCount++] = bin;
+            }
+        }
+
+        // wildcard bins
+        for (int i = 0; i < wildcardMask.length; ++i)
+        {
+            if ((v & wildcardMask[i]) == wildcardMatch[i])
+            {
+                final int bin = wildcardBins[i];
+                ++counts[bin];
+                hits[hitCount++] = bin;
+            }
+        }
+
+        // default bin
+        if (hitCount == 0 && defaultBin >= 0)
+        {
+            ++counts[defaultBin];
+        }
+
+        // transition bins: bit i of the state indicates that the last i + 1
+        // samples matched the first i + 1 steps
+        for (int i = 0; i < transState.length; ++i)
+        {
+            final long[] lo = transLo[i];
+            final long[] hi = transHi[i];
+            long stepMask = 0;
+            for (int j = 0; j < lo.length; ++j)
+            {
+                if (v >= lo[j] && v <= hi[j]) stepMask |= 1L << j;
+            }
+            final long state = ((transState[i] << 1) | 1) & stepMask;
+            if ((state & transFinal[i]) != 0)
+            {
+                final int bin = transBins[i];
+                ++counts[bin];
+                hits[hitCount++] = bin;
+            }
+            transState[i] = state;
+        }
+    }
+}
@@ -0,0 +1,705 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.coverage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Hit counts of a set of cover groups, independent of the cover group
+ * definitions. Coverage data can be captured from live cover groups, merged
+ * with data from other runs, written to and read from a compact binary
+ * format, and merged back into live cover groups.
+ * <p>
+ * The binary format consists of a header (the magic number "JCOV" and a
+ * version byte) followed by the groups. Each group records its name and
+ * sample count, and each of its items records its name, structural
+ * signature, coverage goal, and bin counts. Counts are stored sparsely as
+ * variable-length (7 bits per byte) index gaps and values, so untouched
+ * bins of large crosses take no space. Data for an item is only merged with
+ * data having the same signature, which guards against combining runs of
+ * different cover group definitions.
+ * 
+ * @author Trevor Robinson
+ */
+public final class CoverageData
+{
+    private static final int MAGIC = 0x4a434f56; // "JCOV"
+    private static final int VERSION = 1;
+
+    /**
+     * Hit counts of a single cover point or cross.
+     */
+    public static final class ItemData
+    {
+        private final String name;
+        private final boolean cross;
+        private final long signature;
+        private final int atLeast;
+        private final int binCount;
+        private final long[] counts;
+
+        ItemData(
+            String name,
+            boolean cross,
+            long signature,
+            int atLeast,
+            int binCount,
+            long[] counts)
+        {
+            this.name = name;
+            this.cross = cross;
+            this.signature = signature;
+            this.atLeast = atLeast;
+            this.binCount = binCount;
+            this.counts = counts;
+        }
+
+        /**
+         * Returns the name of the item.
+         *
+         * @return the item name
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * Returns whether the item is a cross.
+         *
+         * @return true for a cross, false for a cover point
+         */
+        public boolean isCross()
+        {
+            return cross;
+        }
+
+        /**
+         * Returns the structural signature of the item.
+         *
+         * @return the item signature
+         */
+        public long getSignature()
+        {
+            return signature;
+        }
+
+        /**
+         * Returns the total number of bins of the item.
+         *
+         * @return the total bin count
+         */
+        public int getTotalBinCount()
+        {
+            return counts.length;
+        }
+
+        /**
+         * Returns the hit count of the given bin.
+         *
+         * @param bin a bin index
+         * @return the hit count
+         */
+        public long getCount(int bin)
+        {
+            return counts[bin];
+        }
+
+        /**
+         * Returns the coverage percentage of the item.
+         *
+         * @return the coverage percentage, from 0 to 100
+         */
+        public double getCoverage()
+        {
+            if (binCount == 0) return 100.0;
+            int covered = 0;
+            for (int i = 0; i < binCount; ++i)
+            {
+                if (counts[i] >= atLeast) ++covered;
+            }
+            return covered * 100.0 / binCount;
+        }
+
+        ItemData copy()
+        {
+            return new ItemData(name, cross, signature, atLeast, binCount,
+                counts.clone());
+        }
+
+        void merge(ItemData other, String groupName)
+        {
+            if (other.signature != signature
+                || other.counts.length != counts.length)
+            {
+                throw new IllegalArgumentException("Coverage data for "
+                    + groupName + "." + name
+                    + " has a different bin structure");
+            }
+            for (int i = 0; i < counts.length; ++i)
+            {
+                counts[i] += other.counts[i];
+            }
+        }
+    }
+
+    /**
+     * Hit counts of a cover group.
+     */
+    public static final class GroupData
+    {
+        private final String name;
+        long sampleCount;
+        final Map<String, ItemData> items = new LinkedHashMap<String, ItemData>();
+
+        GroupData(String name)
+        {
+            this.name = name;
+        }
+
+        /**
+         * Returns the name of the group.
+         *
+         * @return the group name
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * Returns the total number of times the group was sampled.
+         *
+         * @return the sample count
+         */
+        public long getSampleCount()
+        {
+            return sampleCount;
+        }
+
+        /**
+         * Returns the data of the items of the group.
+         *
+         * @return an unmodifiable Collection of ItemData
+         */
+        public Collection<ItemData> getItems()
+        {
+            return Collections.unmodifiableCollection(items.values());
+        }
+
+        /**
+         * Returns the data of the item with the given name.
+         *
+         * @param itemName an item name
+         * @return the ItemData, or null if no such item exists
+         */
+        public ItemData getItem(String itemName)
+        {
+            return items.get(itemName);
+        }
+
+        /**
+         * Returns the coverage percentage of the group, which is the average
+         * coverage of its items.
+         *
+         * @return the coverage percentage, from 0 to 100
+         */
+        public double getCoverage()
+        {
+            if (items.isEmpty()) return 100.0;
+            double total = 0;
+            for (final ItemData item : items.values())
+            {
+                total += item.getCoverage();
+            }
+            return total / items.size();
+        }
+
+        void merge(GroupData other)
+        {
+            sampleCount += other.sampleCount;
+            for (final ItemData item : other.items.values())
+            {
+                final ItemData cur = items.get(item.name);
+                if (cur == null)
+                {
+                    items.put(item.name, item.copy());
+                }
+                else
+                {
+                    cur.merge(item, name);
+                }
+            }
+        }
+    }
+
+    private final Map<String, GroupData> groups = new LinkedHashMap<String, GroupData>();
+
+    /**
+     * Constructs an empty coverage data set.
+     */
+    public CoverageData()
+    {
+    }
+
+    /**
+     * Returns a coverage data set containing the current counts of the given
+     * cover groups.
+     *
+     * @param coverGroups the cover groups to capture
+     * @return a new CoverageData
+     */
+    public static CoverageData capture(CoverGroup... coverGroups)
+    {
+        final CoverageData data = new CoverageData();
+        for (final CoverGroup group : coverGroups)
+        {
+            data.add(group);
+        }
+        return data;
+    }
+
+    /**
+     * Adds the current counts of the given cover group to this data set.
+     * Groups with the same name are merged.
+     *
+     * @param group the cover group to add
+     */
+    public void add(CoverGroup group)
+    {
+        group.compile();
+        final GroupData groupData = new GroupData(group.getName());
+        groupData.sampleCount = group.getSampleCount();
+        for (final CoverItem item : group.getItems())
+        {
+            groupData.items.put(item.getName(), new ItemData(item.getName(),
+                item instanceof CoverCross, item.getSignature(), item
+                    .getAtLeast(), item.getBinCount(), item.counts.clone()));
+        }
+        mergeGroup(groupData);
+    }
+
+    /**
+     * Adds the counts in the given data set to this data set.
+     *
+     * @param other the data set to merge
+     */
+    public void merge(CoverageData other)
+    {
+        for (final GroupData group : other.groups.values())
+        {
+            mergeGroup(group);
+        }
+    }
+
+    private void mergeGroup(GroupData group)
+    {
+        final GroupData cur = groups.get(group.name);
+        if (cur == null)
+        {
+            final GroupData copy = new GroupData(group.name);
+            copy.merge(group);
+            groups.put(group.name, copy);
+        }
+        else
+        {
+            cur.merge(group);
+        }
+    }
+
+    /**
+     * Adds the counts stored for the given cover group in this data set to
+     * the counters of the group, such as to accumulate coverage across runs.
+     * Items of the group without stored data are unaffected.
+     *
+     * @param group the cover group to update
+     * @return true if this data set contained data for the group
+     */
+    public boolean mergeInto(CoverGroup group)
+    {
+        final GroupData groupData = groups.get(group.getName());
+        if (groupData == null) return false;
+        group.compile();
+        // verify all items before updating any of them
+        final List<CoverItem> items = group.getItems();
+        for (final CoverItem item : items)
+        {
+            final ItemData itemData = groupData.items.get(item.getName());
+            if (itemData != null
+                && (itemData.signature != item.getSignature() || itemData.counts.length != item.counts.length))
+            {
+                throw new IllegalArgumentException("Coverage data for "
+                    + item + " has a different bin structure");
+            }
+        }
+        for (final CoverItem item : items)
+        {
+            final ItemData itemData = groupData.items.get(item.getName());
+            if (itemData != null)
+            {
+                for (int i = 0; i < item.counts.length; ++i)
+                {
+                    item.counts[i] += itemData.counts[i];
+                }
+            }
+        }
+        group.addSampleCount(groupData.sampleCount);
+        return true;
+    }
+
+    /**
+     * Returns the data of the groups in this data set.
+     *
+     * @return an unmodifiable Collection of GroupData
+     */
+    public Collection<GroupData> getGroups()
+    {
+        return Collections.unmodifiableCollection(groups.values());
+    }
+
+    /**
+     * Returns the data of the group with the given name.
+     *
+     * @param groupName a group name
+     * @return the GroupData, or null if no such group exists
+     */
+    public GroupData getGroup(String groupName)
+    {
+        return groups.get(groupName);
+    }
+
+    // serialization
+
+    /**
+     * Writes this data set to the given stream in the binary coverage
+     * format.
+     *
+     * @param out the stream to write to
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(OutputStream out)
+        throws IOException
+    {
+        final DataOutputStream dos = new DataOutputStream(
+            new BufferedOutputStream(out));
+        dos.writeInt(MAGIC);
+        dos.writeByte(VERSION);
+        writeVarLong(dos, groups.size());
+        for (final GroupData group : groups.values())
+        {
+            dos.writeUTF(group.name);
+            writeVarLong(dos, group.sampleCount);
+            writeVarLong(dos, group.items.size());
+            for (final ItemData item : group.items.values())
+            {
+                dos.writeBoolean(item.cross);
+                dos.writeUTF(item.name);
+                dos.writeLong(item.signature);
+                writeVarLong(dos, item.atLeast);
+                writeVarLong(dos, item.binCount);
+                writeVarLong(dos, item.counts.length);
+                writeCounts(dos, item.counts);
+            }
+        }
+        dos.flush();
+    }
+
+    /**
+     * Writes this data set to the given file in the binary coverage format.
+     *
+     * @param file the file to write
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(File file)
+        throws IOException
+    {
+        final OutputStream out = new FileOutputStream(file);
+        try
+        {
+            write(out);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads a data set in the binary coverage format from the given stream.
+     *
+     * @param in the stream to read from
+     * @return a new CoverageData
+     * @throws IOException if an I/O error occurs or the data is malformed
+     */
+    public static CoverageData read(InputStream in)
+        throws IOException
+    {
+        final DataInputStream dis = new DataInputStream(
+            new BufferedInputStream(in));
+        if (dis.readInt() != MAGIC)
+        {
+            throw new IOException("Not a coverage data file");
+        }
+        final int version = dis.readUnsignedByte();
+        if (version != VERSION)
+        {
+            throw new IOException("Unsupported coverage data version: "
+                + version);
+        }
+        final CoverageData data = new CoverageData();
+        final int groupCount = readVarInt(dis);
+        for (int i = 0; i < groupCount; ++i)
+        {
+            final GroupData group = new GroupData(dis.readUTF());
+            group.sampleCount = readVarLong(dis);
+            final int itemCount = readVarInt(dis);
+            for (int j = 0; j < itemCount; ++j)
+            {
+                final boolean cross = dis.readBoolean();
+                final String name = dis.readUTF();
+                final long signature = dis.readLong();
+                final int atLeast = readVarInt(dis);
+                final int binCount = readVarInt(dis);
+                final int totalBinCount = readVarInt(dis);
+                if (binCount > totalBinCount)
+                {
+                    throw new IOException("Invalid bin count for " + name);
+                }
+                final long[] counts = new long[totalBinCount];
+                readCounts(dis, counts);
+                group.items.put(name, new ItemData(name, cross, signature,
+                    atLeast, binCount, counts));
+            }
+            final GroupData cur = data.groups.get(group.name);
+            if (cur == null)
+            {
+                data.groups.put(group.name, group);
+            }
+            else
+            {
+                cur.merge(group);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Reads a data set in the binary coverage format from the given file.
+     *
+     * @param file the file to read
+     * @return a new CoverageData
+     * @throws IOException if an I/O error occurs or the data is malformed
+     */
+    public static CoverageData read(File file)
+        throws IOException
+    {
+        final InputStream in = new FileInputStream(file);
+        try
+        {
+            return read(in);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads and merges the given coverage data files using the given number
+     * of threads. Each thread merges a subset of the files, and the partial
+     * results are then combined.
+     *
+     * @param files the files to merge
+     * @param threads the number of threads to use
+     * @return a new CoverageData containing the merged counts
+     * @throws IOException if an I/O error occurs or a file is malformed
+     * @throws IllegalArgumentException if the files contain incompatible
+     *             data for the same item
+     */
+    public static CoverageData mergeFiles(List<File> files, int threads)
+        throws IOException
+    {
+        final int taskCount = Math.max(1, Math.min(threads, files.size()));
+        if (taskCount == 1) return mergeFiles(files);
+
+        final ExecutorService executor = Executors
+            .newFixedThreadPool(taskCount);
+        try
+        {
+            final List<Future<CoverageData>> futures = new ArrayList<Future<CoverageData>>(
+                taskCount);
+            for (int i = 0; i < taskCount; ++i)
+            {
+                final int start = (int) ((long) files.size() * i / taskCount);
+                final int end = (int) ((long) files.size() * (i + 1) / taskCount);
+                final List<File> subList = files.subList(start, end);
+                futures.add(executor.submit(new Callable<CoverageData>()
+                {
+                    public CoverageData call()
+                        throws IOException
+                    {
+                        return mergeFiles(subList);
+                    }
+                }));
+            }
+            final CoverageData result = new CoverageData();
+            for (final Future<CoverageData> future : futures)
+            {
+                result.merge(future.get());
+            }
+            return result;
+        }
+        catch (InterruptedException e)
+        {
+            throw new IOException("Interrupted while merging coverage data");
+        }
+        catch (ExecutionException e)
+        {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(String.valueOf(cause));
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private static CoverageData mergeFiles(List<File> files)
+        throws IOException
+    {
+        final CoverageData result = new CoverageData();
+        for (final File file : files)
+        {
+            final CoverageData data;
+            try
+            {
+                data = read(file);
+            }
+            catch (IOException e)
+            {
+                final IOException ioe = new IOException(file + ": "
+                    + e.getMessage());
+                ioe.initCause(e);
+                throw ioe;
+            }
+            result.merge(data);
+        }
+        return result;
+    }
+
+    private static void writeCounts(DataOutput out, long[] counts)
+        throws IOException
+    {
+        int nonZero = 0;
+        for (final long count : counts)
+        {
+            if (count != 0) ++nonZero;
+        }
+        writeVarLong(out, nonZero);
+        int prev = -1;
+        for (int i = 0; i < counts.length; ++i)
+        {
+            if (counts[i] != 0)
+            {
+                writeVarLong(out, i - prev - 1);
+                writeVarLong(out, counts[i]);
+                prev = i;
+            }
+        }
+    }
+
+    private static void readCounts(DataInput in, long[] counts)
+        throws IOException
+    {
+        final int nonZero = readVarInt(in);
+        int index = -1;
+        for (int i = 0; i < nonZero; ++i)
+        {
+            index += readVarInt(in) + 1;
+            if (index < 0 || index >= counts.length)
+            {
+                throw new IOException("Invalid bin index: " + index);
+            }
+            counts[index] = readVarLong(in);
+        }
+    }
+
+    private static void writeVarLong(DataOutput out, long value)
+        throws IOException
+    {
+        while ((value & ~0x7fL) != 0)
+        {
+            out.writeByte((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInput in)
+        throws IOException
+    {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7)
+        {
+            final int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+
+    private static int readVarInt(DataInput in)
+        throws IOException
+    {
+        final long value = readVarLong(in);
+        if (value < 0 || value > Integer.MAX_VALUE)
+        {
+            throw new IOException("Integer out of range: " + value);
+        }
+        return (int) value;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.coverage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command-line tool that merges coverage data files, such as those written
+ * by each run of a regression, into a single file.
+ * 
+ * @author Trevor Robinson
+ */
+public final class CoverageMerge
+{
+    private CoverageMerge()
+    {
+    }
+
+    /**
+     * Merges coverage data files.
+     * <P>
+     * usage: CoverageMerge [options] &lt;output file&gt; &lt;input
+     * file&gt;...
+     * <P>
+     * Options:
+     * <ul>
+     * <li><code>-threads &lt;n&gt;</code>: number of merge threads (default
+     * number of available processors)</li>
+     * <li><code>-summary</code>: print the coverage of each merged group</li>
+     * </ul>
+     * The exit status is 0 if the merge succeeded and 1 otherwise.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args)
+    {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean summary = false;
+        final List<File> files = new ArrayList<File>();
+
+        try
+        {
+            for (int i = 0; i < args.length; ++i)
+            {
+                final String arg = args[i];
+                if (arg.equals("-summary"))
+                {
+                    summary = true;
+                }
+                else if (arg.equals("-threads") && i + 1 < args.length)
+                {
+                    threads = Integer.parseInt(args[++i]);
+                }
+                else if (arg.startsWith("-"))
+                {
+                    throw new IllegalArgumentException("Unknown option: "
+                        + arg);
+                }
+                else
+                {
+                    files.add(new File(arg));
+                }
+            }
+            if (files.size() < 2)
+            {
+                throw new IllegalArgumentException(
+                    "No output and input files given");
+            }
+        }
+        catch (IllegalArgumentException e)
+        {
+            System.err.println(e.getMessage());
+            System.err.println("Syntax: CoverageMerge [-threads <n>] "
+                + "[-summary] <output file> <input file>...");
+            System.exit(2);
+        }
+
+        final File output = files.remove(0);
+        try
+        {
+            final CoverageData data = CoverageData.mergeFiles(files, threads);
+            data.write(output);
+            if (summary)
+            {
+                for (final CoverageData.GroupData group : data.getGroups())
+                {
+                    System.out.println(String.format(
+                        "%s: %.2f%% (%d samples)", group.getName(), group
+                            .getCoverage(), group.getSampleCount()));
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            System.err.println("Error merging coverage data: "
+                + e.getMessage());
+            System.exit(1);
+        }
+        catch (IllegalArgumentException e)
+        {
+            System.err.println("Error merging coverage data: "
+                + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.coverage;
+
+import java.lang.reflect.Field;
+
+import com.newisys.verilog.util.BitVector;
+
+/**
+ * Value source that reads a (possibly nested) field of the sampled object
+ * using reflection. Primitive fields are read without boxing.
+ * 
+ * @author Trevor Robinson
+ */
+final class FieldValueSource
+    implements ValueSource
+{
+    private static final int LONG = 0;
+    private static final int BOOLEAN = 1;
+    private static final int CHAR = 2;
+    private static final int ENUM = 3;
+    private static final int BITVECTOR = 4;
+    private static final int NUMBER = 5;
+
+    private final Field[] fields;
+    private final int type;
+
+    public FieldValueSource(Class< ? > cls, String path)
+    {
+        final String[] names = path.split("\\.");
+        fields = new Field[names.length];
+        Class< ? > curClass = cls;
+        for (int i = 0; i < names.length; ++i)
+        {
+            final Field f = findField(curClass, names[i]);
+            if (f == null)
+            {
+                throw new IllegalArgumentException("No field " + names[i]
+                    + " in " + curClass.getName());
+            }
+            f.setAccessible(true);
+            fields[i] = f;
+            curClass = f.getType();
+        }
+
+        if (curClass == long.class || curClass == int.class
+            || curClass == short.class || curClass == byte.class)
+        {
+            type = LONG;
+        }
+        else if (curClass == boolean.class)
+        {
+            type = BOOLEAN;
+        }
+        else if (curClass == char.class)
+        {
+            type = CHAR;
+        }
+        else if (Enum.class.isAssignableFrom(curClass))
+        {
+            type = ENUM;
+        }
+        else if (BitVector.class.isAssignableFrom(curClass))
+        {
+            type = BITVECTOR;
+        }
+        else if (Number.class.isAssignableFrom(curClass))
+        {
+            type = NUMBER;
+        }
+        else
+        {
+            throw new IllegalArgumentException("Field " + path
+                + " has unsupported type " + curClass.getName());
+        }
+    }
+
+    private static Field findField(Class< ? > cls, String name)
+    {
+        for (Class< ? > c = cls; c != null; c = c.getSuperclass())
+        {
+            try
+            {
+                return c.getDeclaredField(name);
+            }
+            catch (NoSuchFieldException e)
+            {
+                // try superclass
+            }
+        }
+        return null;
+    }
+
+    public void sample(CoverPoint point, Object target)
+    {
+        try
+        {
+            Object obj = target;
+            final int last = fields.length - 1;
+            for (int i = 0; i < last && obj != null; ++i)
+            {
+                obj = fields[i].get(obj);
+            }
+            if (obj == null)
+            {
+                point.setInvalid();
+                return;
+            }
+            final Field f = fields[last];
+            switch (type)
+            {
+            case LONG:
+                point.set(f.getLong(obj));
+                break;
+            case BOOLEAN:
+                point.set(f.getBoolean(obj));
+                break;
+            case CHAR:
+                point.set(f.getChar(obj));
+                break;
+            case ENUM:
+                point.set((Enum) f.get(obj));
+                break;
+            case BITVECTOR:
+                point.set((BitVector) f.get(obj));
+                break;
+            default:
+                final Number n = (Number) f.get(obj);
+                if (n != null)
+                {
+                    point.set(n.longValue());
+                }
+                else
+                {
+                    point.setInvalid();
+                }
+            }
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new IllegalStateException(e.getMessage());
+        }
+    }
+}
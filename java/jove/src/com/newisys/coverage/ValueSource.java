@@ -0,0 +1,38 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.coverage;
+
+/**
+ * Supplies the value of a CoverPoint each time its CoverGroup is sampled.
+ * 
+ * @author Trevor Robinson
+ */
+public interface ValueSource
+{
+    /**
+     * Sets the value of the given cover point for the current sample, using
+     * one of its set() methods. Implementations should avoid allocating
+     * objects, since this method is called for every sample.
+     *
+     * @param point the cover point being sampled
+     * @param target the object passed to CoverGroup.sample(Object), or null
+     *            if the group was sampled using sample()
+     */
+    void sample(CoverPoint point, Object target);
+}
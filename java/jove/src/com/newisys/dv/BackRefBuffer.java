@@ -18,19 +18,19 @@
 
 package com.newisys.dv;
 
-import com.newisys.util.text.TextUtil;
-
 /**
  * Maintains a back-reference buffer of a particular depth N. As new values are
  * pushed into the front of the buffer (depth 0), old values are shifted back,
- * with the value previously at depth N-1 being discarded.
+ * with the value previously at depth N-1 being discarded. The buffer is a
+ * fixed-capacity {@link TimeValueRing}, so pushing a value overwrites the
+ * oldest slot in place instead of shifting the whole buffer.
  * 
  * @author Trevor Robinson
  */
 final class BackRefBuffer
 {
     private final Object initialValue;
-    private Object[] buffer;
+    private TimeValueRing buffer;
 
     /**
      * Constructs a new back-reference buffer with the given initial depth and
@@ -52,7 +52,7 @@ final class BackRefBuffer
      */
     public int getDepth()
     {
-        return buffer.length;
+        return buffer.capacity();
     }
 
     /**
@@ -65,24 +65,27 @@ final class BackRefBuffer
         assert (newDepth > 0);
 
         // buffer can be null if called from constructor
-        final int oldDepth = buffer != null ? buffer.length : 0;
+        final int oldDepth = buffer != null ? buffer.capacity() : 0;
 
         // do nothing if buffer depth is not changing
         if (newDepth != oldDepth)
         {
-            Object[] newBuffer = new Object[newDepth];
+            TimeValueRing newBuffer = new TimeValueRing(newDepth);
 
-            // copy contents of old buffer, if any
-            if (buffer != null)
+            // initialize any expanded entries to X
+            for (int i = oldDepth; i < newDepth; ++i)
             {
-                System.arraycopy(buffer, 0, newBuffer, 0, Math.min(oldDepth,
-                    newDepth));
+                newBuffer.push(Long.MIN_VALUE, initialValue);
             }
 
-            // initialize any expanded entries to X
-            for (int i = oldDepth; i < newDepth; ++i)
+            // copy contents of old buffer, if any, oldest first; pushing into
+            // the new buffer discards any entries beyond the new depth
+            if (buffer != null)
             {
-                newBuffer[i] = initialValue;
+                for (int i = 0; i < oldDepth; ++i)
+                {
+                    newBuffer.push(buffer.getTime(i), buffer.getValue(i));
+                }
             }
 
             buffer = newBuffer;
@@ -93,18 +96,12 @@ final class BackRefBuffer
      * Pushes a new value into the front of the buffer and shifts the previous
      * values back.
      *
+     * @param simTime the simulation time of the new value
      * @param value the new depth-0 value
      */
-    public void pushValue(Object value)
+    public void pushValue(long simTime, Object value)
     {
-        // shift the previous values back
-        if (buffer.length > 1)
-        {
-            System.arraycopy(buffer, 0, buffer, 1, buffer.length - 1);
-        }
-
-        // set the depth-0 value
-        buffer[0] = value;
+        buffer.push(simTime, value);
     }
 
     /**
@@ -115,7 +112,19 @@ final class BackRefBuffer
      */
     public Object getValue(int depth)
     {
-        return buffer[depth];
+        return buffer.getValue(buffer.size() - 1 - depth);
+    }
+
+    /**
+     * Returns the simulation time at which the value at the given depth was
+     * pushed, or Long.MIN_VALUE if it is an initial value.
+     *
+     * @param depth the depth of the value
+     * @return the simulation time of the value at the given depth
+     */
+    public long getTime(int depth)
+    {
+        return buffer.getTime(buffer.size() - 1 - depth);
     }
 
     /*
@@ -125,6 +134,6 @@ final class BackRefBuffer
     @Override
     public String toString()
     {
-        return TextUtil.toString(buffer);
+        return buffer.toString();
     }
 }
@@ -18,11 +18,10 @@
 
 package com.newisys.dv;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.HashMap;
+import java.util.Map;
 
+import com.newisys.eventsim.Event;
 import com.newisys.verilog.EdgeSet;
 import com.newisys.verilog.VerilogReadValue;
 import com.newisys.verilog.VerilogSimTime;
@@ -41,7 +40,22 @@ abstract class BaseMonitor
     protected final String signalName;
     protected final VerilogReadValue signalRead;
     protected final int signalSize;
-    private final LinkedList<Object> listeners = new LinkedList<Object>();
+
+    // listeners are stored in a copy-on-write array, so that notification
+    // can iterate over a stable snapshot without copying or locking;
+    // listenerLock serializes updates
+    private static final Object[] NO_LISTENERS = new Object[0];
+    private final Object listenerLock = new Object();
+    private volatile Object[] listeners = NO_LISTENERS;
+
+    // canonical edge events shared by all threads waiting for the same edges
+    // of the same bit; indexed by bit, then by edge set mask (offset by
+    // EDGE_SET_COUNT for asynchronous events), with rows allocated on demand
+    private static final int EDGE_SET_COUNT = EdgeSet.ANYEDGE_MASK + 1;
+    private EdgeEvent[][] edgeEvents;
+
+    // canonical value change events, keyed by mask and delay
+    private Map<ChangeEventKey, ValueChangeEvent> changeEvents;
 
     public BaseMonitor(String signalName, VerilogReadValue signalRead)
     {
@@ -81,39 +95,193 @@ abstract class BaseMonitor
     {
         assert (l != null);
 
-        synchronized (listeners)
-        {
-            listeners.add(l);
-        }
+        doAddListener(l);
     }
 
     public final void removeListener(EdgeListener l)
     {
         assert (l != null);
 
-        synchronized (listeners)
-        {
-            listeners.remove(l);
-        }
+        doRemoveListener(l);
     }
 
     public final void addListener(ValueChangeListener l)
     {
         assert (l != null);
 
-        synchronized (listeners)
-        {
-            listeners.add(l);
-        }
+        doAddListener(l);
     }
 
     public final void removeListener(ValueChangeListener l)
     {
         assert (l != null);
 
-        synchronized (listeners)
+        doRemoveListener(l);
+    }
+
+    private void doAddListener(Object l)
+    {
+        synchronized (listenerLock)
+        {
+            final Object[] oldListeners = listeners;
+            final int count = oldListeners.length;
+            final Object[] newListeners = new Object[count + 1];
+            System.arraycopy(oldListeners, 0, newListeners, 0, count);
+            newListeners[count] = l;
+            listeners = newListeners;
+        }
+    }
+
+    private void doRemoveListener(Object l)
+    {
+        synchronized (listenerLock)
         {
-            listeners.remove(l);
+            final Object[] oldListeners = listeners;
+            final int count = oldListeners.length;
+            for (int i = 0; i < count; ++i)
+            {
+                if (oldListeners[i].equals(l))
+                {
+                    if (count == 1)
+                    {
+                        listeners = NO_LISTENERS;
+                    }
+                    else
+                    {
+                        final Object[] newListeners = new Object[count - 1];
+                        System.arraycopy(oldListeners, 0, newListeners, 0, i);
+                        System.arraycopy(oldListeners, i + 1, newListeners, i,
+                            count - i - 1);
+                        listeners = newListeners;
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the canonical event for the given edges of the given bit of
+     * this signal. All threads waiting for the same edges share the same
+     * event, which listens to this monitor only while it has waiters.
+     *
+     * @param dvEventManager the event manager to notify when the edge occurs
+     * @param edges the edges to wait for
+     * @param bit the bit to monitor
+     * @param async true for an event triggered when the edge occurs, false for
+     *            an event triggered relative to a clock
+     * @return the shared edge event
+     */
+    final Event getEdgeEvent(
+        DVEventManager dvEventManager,
+        EdgeSet edges,
+        int bit,
+        boolean async)
+    {
+        final int index = edges.getMask() + (async ? EDGE_SET_COUNT : 0);
+        synchronized (listenerLock)
+        {
+            if (edgeEvents == null)
+            {
+                edgeEvents = new EdgeEvent[signalSize][];
+            }
+            EdgeEvent[] bitEvents = edgeEvents[bit];
+            if (bitEvents == null)
+            {
+                bitEvents = new EdgeEvent[EDGE_SET_COUNT * 2];
+                edgeEvents[bit] = bitEvents;
+            }
+            EdgeEvent e = bitEvents[index];
+            if (e == null)
+            {
+                if (async)
+                {
+                    e = new AsyncEdgeEvent(dvEventManager, this, edges, bit);
+                }
+                else
+                {
+                    e = new SyncEdgeEvent(dvEventManager, this, edges, bit);
+                }
+                bitEvents[index] = e;
+            }
+            return e;
+        }
+    }
+
+    /**
+     * Returns the canonical event for a change of this signal within the
+     * given mask. All threads waiting for the same change share the same
+     * event, which listens to this monitor only while it has waiters.
+     *
+     * @param dvEventManager the event manager to notify when the change occurs
+     * @param mask the bits to monitor, or <code>null</code> for all bits
+     * @param async true for an event triggered when the change occurs, false
+     *            for an event triggered relative to a clock
+     * @param delay for asynchronous events, the delay after the change at
+     *            which the event is triggered
+     * @return the shared value change event
+     */
+    final Event getChangeEvent(
+        DVEventManager dvEventManager,
+        BitVector mask,
+        boolean async,
+        int delay)
+    {
+        final ChangeEventKey key = new ChangeEventKey(mask, async, delay);
+        synchronized (listenerLock)
+        {
+            if (changeEvents == null)
+            {
+                changeEvents = new HashMap<ChangeEventKey, ValueChangeEvent>();
+            }
+            ValueChangeEvent e = changeEvents.get(key);
+            if (e == null)
+            {
+                if (async)
+                {
+                    e = new AsyncValueChangeEvent(dvEventManager, this, mask,
+                        delay);
+                }
+                else
+                {
+                    e = new SyncValueChangeEvent(dvEventManager, this, mask);
+                }
+                changeEvents.put(key, e);
+            }
+            return e;
+        }
+    }
+
+    private static final class ChangeEventKey
+    {
+        private final BitVector mask;
+        private final boolean async;
+        private final int delay;
+
+        public ChangeEventKey(BitVector mask, boolean async, int delay)
+        {
+            this.mask = mask;
+            this.async = async;
+            this.delay = async ? delay : 0;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof ChangeEventKey)) return false;
+            final ChangeEventKey other = (ChangeEventKey) obj;
+            if (async != other.async || delay != other.delay) return false;
+            if (mask == null || other.mask == null) return mask == other.mask;
+            return mask.length() == other.mask.length()
+                && mask.equalsExact(other.mask);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int h = mask != null ? mask.hashCode() : 0;
+            h = h * 31 + (async ? 1 : 0);
+            return h * 31 + delay;
         }
     }
 
@@ -193,44 +361,30 @@ abstract class BaseMonitor
         // do nothing if value has not actually changed
         if (!isChanged(oldValue, newValue)) return;
 
-        // copy the listener list since listeners may be added or removed
-        // during the notification iteration; as an optimization, if there are
-        // currently no listeners, do not make a new list
-        Collection<Object> curListeners = null;
-        synchronized (listeners)
+        // listeners may be added or removed during the notification
+        // iteration; those changes replace the listener array rather than
+        // modifying it, so iterate over the current snapshot
+        final Object[] curListeners = listeners;
+        for (final Object l : curListeners)
         {
-            if (!listeners.isEmpty())
+            if (l instanceof ValueChangeListener)
             {
-                curListeners = new ArrayList<Object>(listeners);
-            }
-        }
-
-        if (curListeners != null)
-        {
-            Iterator<Object> iter = curListeners.iterator();
-            while (iter.hasNext())
-            {
-                Object l = iter.next();
-                if (l instanceof ValueChangeListener)
+                ValueChangeListener vcl = (ValueChangeListener) l;
+                BitVector mask = vcl.getMask();
+                if (mask == null || isChangedInMask(oldValue, newValue, mask))
                 {
-                    ValueChangeListener vcl = (ValueChangeListener) l;
-                    BitVector mask = vcl.getMask();
-                    if (mask == null
-                        || isChangedInMask(oldValue, newValue, mask))
-                    {
-                        vcl.notifyChange(simTimeObj, newValue);
-                    }
+                    vcl.notifyChange(simTimeObj, newValue);
                 }
-                else
+            }
+            else
+            {
+                assert (l instanceof EdgeListener);
+                EdgeListener el = (EdgeListener) l;
+                int bit = el.getBit();
+                EdgeSet edge = getTransitionEdge(oldValue, newValue, bit);
+                if (!edge.isEmpty() && el.getEdges().contains(edge))
                 {
-                    assert (l instanceof EdgeListener);
-                    EdgeListener el = (EdgeListener) l;
-                    int bit = el.getBit();
-                    EdgeSet edge = getTransitionEdge(oldValue, newValue, bit);
-                    if (!edge.isEmpty() && el.getEdges().contains(edge))
-                    {
-                        el.notifyEdge(simTimeObj, edge);
-                    }
+                    el.notifyEdge(simTimeObj, edge);
                 }
             }
         }
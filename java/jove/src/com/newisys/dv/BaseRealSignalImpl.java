@@ -113,8 +113,8 @@ abstract class BaseRealSignalImpl
         final Event e;
         if (async)
         {
-            e = new AsyncEdgeEvent(dvSim.dvEventManager, clkInputMonitor
-                .getInputMonitor(), edges, bit);
+            e = clkInputMonitor.getInputMonitor().getEdgeEvent(
+                dvSim.dvEventManager, edges, bit, true);
         }
         else
         {
@@ -126,8 +126,8 @@ abstract class BaseRealSignalImpl
             }
             else
             {
-                e = new SyncEdgeEvent(dvSim.dvEventManager, clkInputMonitor,
-                    edges, bit);
+                e = clkInputMonitor.getEdgeEvent(dvSim.dvEventManager, edges,
+                    bit, false);
             }
         }
         return e;
@@ -179,8 +179,9 @@ abstract class BaseRealSignalImpl
         final Event e;
         if (async)
         {
-            e = new AsyncValueChangeEvent(dvSim.dvEventManager, clkInputMonitor
-                .getInputMonitor(), effMask, -clkInputMonitor.getSkew());
+            e = clkInputMonitor.getInputMonitor().getChangeEvent(
+                dvSim.dvEventManager, effMask, true,
+                -clkInputMonitor.getSkew());
         }
         else
         {
@@ -190,8 +191,8 @@ abstract class BaseRealSignalImpl
             }
             else
             {
-                e = new SyncValueChangeEvent(dvSim.dvEventManager,
-                    clkInputMonitor, effMask);
+                e = clkInputMonitor.getChangeEvent(dvSim.dvEventManager,
+                    effMask, false, 0);
             }
         }
         return e;
@@ -365,7 +366,7 @@ abstract class BaseRealSignalImpl
 
     protected final Event getClockEdgeEvent(EdgeSet edges)
     {
-        return new SyncEdgeEvent(dvSim.dvEventManager, clockMonitor, edges, 0);
+        return clockMonitor.getEdgeEvent(dvSim.dvEventManager, edges, 0, false);
     }
 
     protected final void syncClockDelay(EdgeSet edges, int cycles)
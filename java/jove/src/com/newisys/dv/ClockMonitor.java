@@ -163,7 +163,7 @@ final class ClockMonitor
                     }
 
                     // shift new value into buffer
-                    buffer.pushValue(newValue);
+                    buffer.pushValue(simTime, newValue);
 
                     // update current value, last edge, last edge time
                     currentValue = newValue;
@@ -183,7 +183,7 @@ final class ClockedInputMonitor
             }
 
             // shift new value into buffer
-            buffer.pushValue(newValue);
+            buffer.pushValue(simTime, newValue);
 
             // track time of last clock edge
             lastCycleTime = simTime;
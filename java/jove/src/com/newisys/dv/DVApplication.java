@@ -228,5 +228,11 @@ public abstract class DVApplication
         }
 
         dvSim.simManager.terminateThreads();
+
+        final SignalRecorder recorder = dvSim.getSignalRecorder();
+        if (recorder != null)
+        {
+            recorder.close();
+        }
     }
 }
@@ -50,6 +50,12 @@ final class DVEventManager
     final VerilogSimulation verilogSim;
     final SimulationManager simManager;
 
+    // records input changes and output drives if non-null
+    SignalRecorder signalRecorder;
+
+    // first unhandled exception that terminated the simulation, if any
+    UnhandledExceptionException unhandledException;
+
     public DVEventManager(
         VerilogSimulation verilogSim,
         SimulationManager simManager)
@@ -60,6 +66,11 @@ final class DVEventManager
 
     public void executeThreads()
     {
+        if (simManager.isSimTimeTracked())
+        {
+            simManager.setSimTime(verilogSim.getSimTime());
+        }
+
         try
         {
             simManager.executeThreads();
@@ -72,6 +83,7 @@ final class DVEventManager
                 + ":");
             final Throwable cause = e.getCause();
             cause.printStackTrace();
+            if (unhandledException == null) unhandledException = e;
 
             // terminate all simulation threads
             simManager.terminateThreads();
@@ -18,6 +18,8 @@
 
 package com.newisys.dv;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.List;
@@ -25,6 +27,7 @@ import java.util.List;
 import com.newisys.eventsim.Event;
 import com.newisys.eventsim.SimulationManager;
 import com.newisys.eventsim.SimulationThread;
+import com.newisys.eventsim.UnhandledExceptionException;
 import com.newisys.ova.OVAEngine;
 import com.newisys.random.PRNG;
 import com.newisys.random.PRNGFactory;
@@ -55,6 +58,10 @@ public final class DVSimulation
     private static final String INPUT_SUFFIX = "_in";
     private static final String OUTPUT_SUFFIX = "_out";
 
+    private static final String REPLAY_LOG_PROPERTY = "com.newisys.dv.replayLog";
+    private static final String CHECKPOINT_INTERVAL_PROPERTY = "com.newisys.dv.replayCheckpointInterval";
+    private static final long DEFAULT_CHECKPOINT_INTERVAL = 1000000;
+
     private transient ClockSignal defaultClock = null;
 
     final VerilogSimulation verilogSim;
@@ -85,6 +92,66 @@ public final class DVSimulation
         dvObjDir = new DVObjectDirectory();
         verilogTaskManager = new VerilogTaskManager(dvEventManager);
         javaTaskManager = new JavaTaskManager(dvEventManager);
+
+        // record a replay log if requested
+        final String replayLog = System.getProperty(REPLAY_LOG_PROPERTY);
+        if (replayLog != null)
+        {
+            try
+            {
+                dvEventManager.signalRecorder = new ReplayLogWriter(new File(
+                    replayLog), Long.getLong(CHECKPOINT_INTERVAL_PROPERTY,
+                    DEFAULT_CHECKPOINT_INTERVAL).longValue());
+            }
+            catch (IOException e)
+            {
+                throw new DVRuntimeException("Error creating replay log: "
+                    + replayLog, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the unhandled exception that caused the simulation to finish.
+     * When a simulation thread terminates with an unhandled exception, the
+     * exception is displayed, all simulation threads are terminated, and the
+     * Verilog simulation is finished; this method allows the caller of the
+     * simulation to then determine that it failed.
+     *
+     * @return an UnhandledExceptionException wrapping the first exception
+     *         that terminated a simulation thread, or null if none has occurred
+     */
+    public UnhandledExceptionException getUnhandledException()
+    {
+        return dvEventManager.unhandledException;
+    }
+
+    /**
+     * Returns the recorder that receives input changes and output drives.
+     *
+     * @return the current SignalRecorder, or null if none
+     */
+    public SignalRecorder getSignalRecorder()
+    {
+        return dvEventManager.signalRecorder;
+    }
+
+    /**
+     * Sets the recorder that receives input changes and output drives. To
+     * capture the initial value of every input, the recorder should be set
+     * before the DVApplication is created. The recorder is closed when the
+     * DVApplication finishes.
+     * <P>
+     * A {@link ReplayLogWriter} is installed automatically if the
+     * <code>com.newisys.dv.replayLog</code> system property specifies a log
+     * file; the <code>com.newisys.dv.replayCheckpointInterval</code> property
+     * specifies its checkpoint interval in simulation time units.
+     *
+     * @param recorder the SignalRecorder to use, or null to disable recording
+     */
+    public void setSignalRecorder(SignalRecorder recorder)
+    {
+        dvEventManager.signalRecorder = recorder;
     }
 
     /**
@@ -23,7 +23,11 @@ import com.newisys.verilog.EdgeSet;
 import com.newisys.verilog.VerilogSimTime;
 
 /**
- * Base class for events corresponding to a signal edge.
+ * Base class for events corresponding to a signal edge. Edge events are
+ * canonical per monitor, edge set, and bit (see
+ * {@link BaseMonitor#getEdgeEvent}), so a single event may have many waiting
+ * threads; it listens to its monitor only while at least one thread is
+ * waiting.
  * 
  * @author Trevor Robinson
  */
@@ -31,17 +35,24 @@ abstract class EdgeEvent
     extends PulseEvent
     implements EdgeListener
 {
+    private final String baseName;
     protected final EdgeMonitor monitor;
     protected final EdgeSet edges;
     protected final int bit;
 
+    // number of threads currently waiting on this event; guarded by this
+    private int waiterCount;
+
+    // descriptive name, built on first use
+    private String name;
+
     public EdgeEvent(
         String baseName,
         EdgeMonitor monitor,
         EdgeSet edges,
         int bit)
     {
-        super(getEventName(baseName, monitor, edges, bit));
+        this.baseName = baseName;
         this.monitor = monitor;
         this.edges = edges;
         this.bit = bit;
@@ -58,15 +69,22 @@ abstract class EdgeEvent
     }
 
     @Override
-    protected void preWait()
+    protected synchronized void preWait()
     {
-        monitor.addListener(this);
+        if (waiterCount++ == 0)
+        {
+            monitor.addListener(this);
+        }
     }
 
     @Override
-    protected void postWait()
+    protected synchronized void postWait()
     {
-        monitor.removeListener(this);
+        assert (waiterCount > 0);
+        if (--waiterCount == 0)
+        {
+            monitor.removeListener(this);
+        }
     }
 
     public EdgeSet getEdges()
@@ -86,4 +104,14 @@ abstract class EdgeEvent
             Debug.out.println(this + ": " + edge + " @ " + time);
         }
     }
+
+    @Override
+    public String toString()
+    {
+        if (name == null)
+        {
+            name = getEventName(baseName, monitor, edges, bit);
+        }
+        return name;
+    }
 }
@@ -19,13 +19,15 @@
 package com.newisys.dv;
 
 /**
- * Base class for an event occurring at a particular time.
+ * Base class for an event occurring at a particular time. Event records may be
+ * pooled by their {@link EventRecordFactory}, in which case the time is
+ * reassigned when a released record is reused.
  * 
  * @author Trevor Robinson
  */
 abstract class EventRecord
 {
-    final long time;
+    long time;
 
     public EventRecord(long time)
     {
@@ -26,4 +26,12 @@ package com.newisys.dv;
 interface EventRecordFactory<T extends EventRecord>
 {
     T newEvent(long time);
+
+    /**
+     * Notifies this factory that the given event has been removed from its
+     * scheduler and may be reused once no other references to it remain.
+     *
+     * @param event the removed event
+     */
+    void releaseEvent(T event);
 }
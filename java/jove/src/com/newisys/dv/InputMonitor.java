@@ -24,9 +24,11 @@ import com.newisys.verilog.ValueType;
 import com.newisys.verilog.VerilogCallback;
 import com.newisys.verilog.VerilogCallbackData;
 import com.newisys.verilog.VerilogCallbackHandler;
+import com.newisys.verilog.VerilogDirectValue;
 import com.newisys.verilog.VerilogReadValue;
 import com.newisys.verilog.VerilogSimTime;
 import com.newisys.verilog.util.BitVector;
+import com.newisys.verilog.util.BitVectorView;
 
 /**
  * Tracks value changes asynchronously on an input signal.
@@ -42,6 +44,10 @@ final class InputMonitor
     Object previousValue;
     long lastChangeTime = -1;
     final ValueTracker valueTracker;
+    // non-null if values are read through a value slot shared with the
+    // simulator, instead of being delivered with each callback
+    final VerilogDirectValue directRead;
+    final BitVectorView valueSlot;
 
     public InputMonitor(
         DVEventManager dvEventManager,
@@ -58,8 +64,18 @@ final class InputMonitor
         // store attributes from constructor arguments
         this.dvEventManager = dvEventManager;
 
+        // use the value slot of the signal, if it has one and the requested
+        // values are vectors
+        final boolean vectorValues = valueType == ValueType.OBJ_TYPE
+            || valueType == ValueType.VECTOR;
+        final BitVectorView slot = vectorValues
+            && signalRead instanceof VerilogDirectValue
+            ? ((VerilogDirectValue) signalRead).getValueSlot() : null;
+        directRead = slot != null ? (VerilogDirectValue) signalRead : null;
+        valueSlot = slot;
+
         // get initial value (used to indicate value change edges)
-        currentValue = signalRead.getValue();
+        currentValue = readValue();
         previousValue = currentValue;
 
         // initialize the value tracker, which keeps a limited history of
@@ -67,11 +83,32 @@ final class InputMonitor
         valueTracker = new ValueTracker(maxAge);
         valueTracker.trackChange(Long.MIN_VALUE, currentValue);
 
+        // record the initial value of the signal
+        final SignalRecorder recorder = dvEventManager.signalRecorder;
+        if (recorder != null)
+        {
+            recorder.inputChanged(signalName, dvEventManager.verilogSim
+                .getSimTime(), currentValue);
+        }
+
         // set up handler for value change callbacks
-        signalRead.addValueChangeCallback(TimeType.SIM, valueType,
+        signalRead.addValueChangeCallback(TimeType.SIM,
+            directRead != null ? ValueType.SUPPRESS : valueType,
             new ValueChangeCallback());
     }
 
+    // reads the current value through the value slot, if any; otherwise,
+    // returns the value of the signal object
+    Object readValue()
+    {
+        if (directRead != null)
+        {
+            directRead.readValueSlot();
+            return valueSlot.toBitVector();
+        }
+        return signalRead.getValue();
+    }
+
     public Object getCurrentValue()
     {
         return currentValue;
@@ -126,7 +163,8 @@ final class InputMonitor
             VerilogSimTime simTimeObj = (VerilogSimTime) data.getTime();
             long simTime = simTimeObj.getSimTime();
             Object oldValue = currentValue;
-            Object newValue = data.getValue();
+            Object newValue = directRead != null ? readValue() : data
+                .getValue();
 
             if (Debug.enabled)
             {
@@ -142,6 +180,12 @@ final class InputMonitor
             // update value tracker
             valueTracker.trackChange(simTime, newValue);
 
+            final SignalRecorder recorder = dvEventManager.signalRecorder;
+            if (recorder != null)
+            {
+                recorder.inputChanged(signalName, simTime, newValue);
+            }
+
             // notify listeners
             notifyListeners(simTimeObj, oldValue, newValue);
 
@@ -21,15 +21,19 @@ package com.newisys.dv;
 import com.newisys.verilog.EdgeSet;
 import com.newisys.verilog.ValueType;
 import com.newisys.verilog.VerilogAbsVar;
+import com.newisys.verilog.VerilogDirectValue;
 import com.newisys.verilog.VerilogSimTime;
 import com.newisys.verilog.VerilogSimulation;
 import com.newisys.verilog.VerilogWriteValue;
 import com.newisys.verilog.util.BitVector;
 import com.newisys.verilog.util.BitVectorBuffer;
+import com.newisys.verilog.util.BitVectorView;
 import com.newisys.verilog.util.ValueConverter;
 
 /**
- * Schedules and combines drives for future time slices.
+ * Schedules and combines drives for future time slices. Cycle and drive event
+ * records are pooled, since a record is typically allocated for each cycle in
+ * which the signal is driven.
  * 
  * @author Trevor Robinson
  */
@@ -40,12 +44,19 @@ final class OutputScheduler
     final VerilogSimulation verilogSim;
     final String signalName;
     final VerilogWriteValue signalWrite;
+    // non-null if values are written through a value slot shared with the
+    // simulator, instead of being passed as BitVector objects
+    final VerilogDirectValue directWrite;
+    final BitVectorView valueSlot;
     final InputMonitor inputMonitor; // null OK
     private final ClockMonitor clockMonitor;
     final EdgeSet clockEdges;
     final boolean onlyDriver;
     BitVector currentValue;
 
+    private static final int CYCLE_POOL_SIZE = 16;
+    private static final int DRIVE_POOL_SIZE = 64;
+
     private final CycleEventRecordFactory cycleEventFactory = new CycleEventRecordFactory();
     final DriveEventRecordFactory driveEventFactory = new DriveEventRecordFactory();
 
@@ -72,16 +83,55 @@ final class OutputScheduler
         this.clockMonitor = clockMonitor;
         this.clockEdges = clockEdges;
 
+        // use the value slot of the signal, if it has one
+        final BitVectorView slot = signalWrite instanceof VerilogDirectValue
+            ? ((VerilogDirectValue) signalWrite).getValueSlot() : null;
+        directWrite = slot != null ? (VerilogDirectValue) signalWrite : null;
+        valueSlot = slot;
+
         // if we are caching the current value of the signal,
         // we need to read the initial value
         if (onlyDriver)
         {
-            currentValue = (BitVector) signalWrite.getValue(ValueType.VECTOR);
+            currentValue = readValue();
+        }
+
+        final SignalRecorder recorder = dvEventManager.signalRecorder;
+        if (recorder != null)
+        {
+            final BitVector value = currentValue != null ? currentValue
+                : readValue();
+            recorder.outputDeclared(signalName, value.length());
         }
 
         clockMonitor.addListener(new ClockEdgeCallback());
     }
 
+    // reads the current value of the signal from the simulator
+    BitVector readValue()
+    {
+        if (directWrite != null)
+        {
+            directWrite.readValueSlot();
+            return valueSlot.toBitVector();
+        }
+        return (BitVector) signalWrite.getValue(ValueType.VECTOR);
+    }
+
+    // writes the given value to the signal in the simulator
+    void writeValue(BitVector value)
+    {
+        if (directWrite != null)
+        {
+            valueSlot.set(value);
+            directWrite.writeValueSlot();
+        }
+        else
+        {
+            signalWrite.putValue(value);
+        }
+    }
+
     public void drive(
         long cycles,
         long skew,
@@ -183,16 +233,24 @@ final class OutputScheduler
 
         public DriveEventRecord getDriveEvent(long time, boolean createNew)
         {
-            return driveScheduler.getEvent(time, createNew);
+            DriveEventRecord de = driveScheduler.getEvent(time, createNew);
+            if (de != null)
+            {
+                de.cycle = this;
+            }
+            return de;
         }
 
         public void scheduleAll(long simTime)
         {
             synchronized (cycleScheduler)
             {
-                for (final DriveEventRecord de : driveScheduler.getEventList())
+                DriveEventRecord de = driveScheduler.getNextEvent(driveScheduler
+                    .getCurrentTime());
+                while (de != null)
                 {
                     scheduleDrive(de, simTime);
+                    de = driveScheduler.getNextEvent(de.time + 1);
                 }
             }
         }
@@ -215,53 +273,50 @@ final class OutputScheduler
             else if (!de.scheduled)
             {
                 dvEventManager.registerSimTimeCallback(new VerilogSimTime(
-                    eventTime), new DriveCallbackHandler(de));
+                    eventTime), de);
                 de.scheduled = true;
             }
         }
+    }
 
-        private final class DriveCallbackHandler
-            implements DelayListener
+    private final class CycleEventRecordFactory
+        extends PooledEventRecordFactory<CycleEventRecord>
+    {
+        public CycleEventRecordFactory()
         {
-            final DriveEventRecord de;
-
-            public DriveCallbackHandler(DriveEventRecord de)
-            {
-                this.de = de;
-            }
-
-            public void notifyDelay()
-            {
-                if (Debug.enabled)
-                {
-                    Debug.out.println("OutputScheduler.DriveCallbackHandler("
-                        + ((VerilogAbsVar) signalWrite).getFullName()
-                        + "): skew = " + de.time);
-                }
+            super(CYCLE_POOL_SIZE);
+        }
 
-                synchronized (cycleScheduler)
-                {
-                    driveScheduler.setCurrentTime(de.time);
+        @Override
+        protected CycleEventRecord createEvent(long time)
+        {
+            return new CycleEventRecord(time);
+        }
 
-                    de.execute();
-                }
-            }
+        public void releaseEvent(CycleEventRecord ce)
+        {
+            // nothing retains a cycle record once it leaves the scheduler;
+            // pending drive callbacks only reference their drive records
+            recycle(ce);
         }
-    }
 
-    private final class CycleEventRecordFactory
-        implements EventRecordFactory<CycleEventRecord>
-    {
-        public CycleEventRecord newEvent(long time)
+        @Override
+        protected void resetEvent(CycleEventRecord ce)
         {
-            return new CycleEventRecord(time);
+            ce.driveScheduler.reset();
         }
     }
 
     private final class DriveEventRecord
         extends EventRecord
+        implements DelayListener
     {
+        // cycle whose drive scheduler contains this record; null once released
+        CycleEventRecord cycle;
+        // true while a sim time callback for this record is pending
         boolean scheduled = false;
+        // true if removed from its scheduler while a callback was pending
+        boolean released = false;
         // value may contain 0/1/X/Z
         // value & ~writeMask must be zero
         BitVector value;
@@ -329,6 +384,35 @@ final class OutputScheduler
             }
         }
 
+        public void notifyDelay()
+        {
+            if (Debug.enabled)
+            {
+                Debug.out.println("OutputScheduler.DriveEventRecord("
+                    + ((VerilogAbsVar) signalWrite).getFullName()
+                    + "): skew = " + time);
+            }
+
+            synchronized (cycleScheduler)
+            {
+                scheduled = false;
+
+                if (cycle != null)
+                {
+                    cycle.driveScheduler.setCurrentTime(time);
+                }
+
+                execute();
+
+                // recycle now if the owning cycle was released while this
+                // callback was pending
+                if (released)
+                {
+                    driveEventFactory.recycle(this);
+                }
+            }
+        }
+
         public void execute()
         {
             // get old/current value of this signal
@@ -351,7 +435,7 @@ final class OutputScheduler
             else
             {
                 // get old value from simulator
-                oldValue = (BitVector) signalWrite.getValue(ValueType.VECTOR);
+                oldValue = readValue();
             }
 
             // merge new value into old value according to write mask
@@ -369,7 +453,16 @@ final class OutputScheduler
                         + newValue);
                 }
 
-                signalWrite.putValue(newValue);
+                writeValue(newValue);
+            }
+
+            // record redundant drives too, since whether a drive is redundant
+            // can depend on the order of input changes within a time step
+            final SignalRecorder recorder = dvEventManager.signalRecorder;
+            if (recorder != null)
+            {
+                recorder.outputDriven(signalName, verilogSim.getSimTime(),
+                    newValue);
             }
 
             // update cached signal value
@@ -378,11 +471,42 @@ final class OutputScheduler
     }
 
     private final class DriveEventRecordFactory
-        implements EventRecordFactory<DriveEventRecord>
+        extends PooledEventRecordFactory<DriveEventRecord>
     {
-        public DriveEventRecord newEvent(long time)
+        public DriveEventRecordFactory()
+        {
+            super(DRIVE_POOL_SIZE);
+        }
+
+        @Override
+        protected DriveEventRecord createEvent(long time)
         {
             return new DriveEventRecord(time);
         }
+
+        public void releaseEvent(DriveEventRecord de)
+        {
+            de.cycle = null;
+            if (de.scheduled)
+            {
+                // defer until the pending callback has executed
+                de.released = true;
+            }
+            else
+            {
+                recycle(de);
+            }
+        }
+
+        @Override
+        protected void resetEvent(DriveEventRecord de)
+        {
+            de.cycle = null;
+            de.scheduled = false;
+            de.released = false;
+            de.value = null;
+            de.writeMask = null;
+            de.strongMask = null;
+        }
     }
 }
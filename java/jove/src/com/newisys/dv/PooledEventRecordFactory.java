@@ -0,0 +1,88 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.dv;
+
+/**
+ * Event record factory that keeps a bounded free list of released records and
+ * reuses them for new events, avoiding an allocation per scheduled event in
+ * steady state. Subclasses are responsible for deciding when a released
+ * record is no longer referenced and passing it to {@link #recycle}.
+ * 
+ * @author Trevor Robinson
+ */
+abstract class PooledEventRecordFactory<T extends EventRecord>
+    implements EventRecordFactory<T>
+{
+    private final EventRecord[] pool;
+    private int poolSize;
+
+    /**
+     * Constructs a new factory that retains at most the given number of free
+     * records.
+     *
+     * @param maxPoolSize the maximum number of free records to retain
+     */
+    public PooledEventRecordFactory(int maxPoolSize)
+    {
+        pool = new EventRecord[maxPoolSize];
+    }
+
+    @SuppressWarnings("unchecked")
+    public final T newEvent(long time)
+    {
+        if (poolSize > 0)
+        {
+            final T e = (T) pool[--poolSize];
+            pool[poolSize] = null;
+            e.time = time;
+            return e;
+        }
+        return createEvent(time);
+    }
+
+    /**
+     * Creates a new event record when no free record is available.
+     *
+     * @param time the time of the event
+     * @return a new event record
+     */
+    protected abstract T createEvent(long time);
+
+    /**
+     * Clears the state of the given record and returns it to the free list.
+     * The record must not be referenced by any scheduler or pending callback.
+     *
+     * @param event the record to recycle
+     */
+    protected final void recycle(T event)
+    {
+        resetEvent(event);
+        if (poolSize < pool.length)
+        {
+            pool[poolSize++] = event;
+        }
+    }
+
+    /**
+     * Clears any per-event state of the given record before it is reused.
+     *
+     * @param event the record being recycled
+     */
+    protected abstract void resetEvent(T event);
+}
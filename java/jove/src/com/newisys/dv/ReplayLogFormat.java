@@ -0,0 +1,189 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.dv;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import com.newisys.verilog.util.Bit;
+import com.newisys.verilog.util.BitVector;
+
+/**
+ * Constants and encoding routines shared by ReplayLogWriter and
+ * ReplayLogReader.
+ * <p>
+ * A replay log begins with a header consisting of {@link #MAGIC}, a version
+ * byte, and the checkpoint interval. It is followed by a sequence of records,
+ * each introduced by a tag byte:
+ * <ul>
+ * <li>INPUT_DEF: input ID, name, width, initial value</li>
+ * <li>OUTPUT_DEF: output ID, name, width</li>
+ * <li>TIME: increase in simulation time since the previous TIME record</li>
+ * <li>INPUT: input ID, value</li>
+ * <li>DRIVE: output ID, value</li>
+ * <li>CHECKPOINT: absolute time, input count, value of each input</li>
+ * <li>INDEX: checkpoint count, (time, file offset) of each checkpoint, and
+ * the input and output definitions</li>
+ * </ul>
+ * A log that was closed normally ends with an INDEX record followed by a
+ * trailer containing the offset of the INDEX record and {@link #INDEX_MAGIC}.
+ * IDs, counts, widths, and times are written as unsigned variable-length
+ * integers. Values are written as a tag byte, which for Bit values is the bit
+ * ID itself, followed by any value data.
+ * 
+ * @author Trevor Robinson
+ */
+final class ReplayLogFormat
+{
+    public static final int MAGIC = 0x4A52504C; // JRPL
+    public static final int INDEX_MAGIC = 0x4A525049; // JRPI
+    public static final int VERSION = 1;
+    public static final int TRAILER_SIZE = 12;
+
+    public static final int TAG_INPUT_DEF = 1;
+    public static final int TAG_OUTPUT_DEF = 2;
+    public static final int TAG_TIME = 3;
+    public static final int TAG_INPUT = 4;
+    public static final int TAG_DRIVE = 5;
+    public static final int TAG_CHECKPOINT = 6;
+    public static final int TAG_INDEX = 7;
+
+    // value tags 0-3 are Bit IDs
+    private static final int VALUE_VECTOR = 4;
+    private static final int VALUE_INT = 5;
+    private static final int VALUE_LONG = 6;
+
+    private ReplayLogFormat()
+    {
+    }
+
+    public static void writeVarLong(DataOutput out, long value)
+        throws IOException
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    public static long readVarLong(DataInput in)
+        throws IOException
+    {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do
+        {
+            if (shift > 63)
+            {
+                throw new IOException("Malformed variable-length integer");
+            }
+            b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        }
+        while ((b & 0x80) != 0);
+        return value;
+    }
+
+    public static int readVarInt(DataInput in)
+        throws IOException
+    {
+        long value = readVarLong(in);
+        if (value > Integer.MAX_VALUE)
+        {
+            throw new IOException("Variable-length integer out of range: "
+                + value);
+        }
+        return (int) value;
+    }
+
+    public static void writeValue(DataOutput out, Object value)
+        throws IOException
+    {
+        if (value instanceof Bit)
+        {
+            out.writeByte(((Bit) value).getID());
+        }
+        else if (value instanceof BitVector)
+        {
+            BitVector bv = (BitVector) value;
+            out.writeByte(VALUE_VECTOR);
+            writeVarLong(out, bv.length());
+            bv.write(out);
+        }
+        else if (value instanceof Integer)
+        {
+            out.writeByte(VALUE_INT);
+            out.writeInt(((Integer) value).intValue());
+        }
+        else if (value instanceof Long)
+        {
+            out.writeByte(VALUE_LONG);
+            out.writeLong(((Long) value).longValue());
+        }
+        else
+        {
+            throw new DVRuntimeException("Unsupported replay log value: "
+                + value);
+        }
+    }
+
+    public static Object readValue(DataInput in)
+        throws IOException
+    {
+        int tag = in.readUnsignedByte();
+        switch (tag)
+        {
+        case Bit.ID_ZERO:
+        case Bit.ID_ONE:
+        case Bit.ID_Z:
+        case Bit.ID_X:
+            return Bit.getBitForID(tag);
+        case VALUE_VECTOR:
+            return BitVector.read(in, readVarInt(in));
+        case VALUE_INT:
+            return Integer.valueOf(in.readInt());
+        case VALUE_LONG:
+            return Long.valueOf(in.readLong());
+        default:
+            throw new IOException("Invalid replay log value tag: " + tag);
+        }
+    }
+
+    public static int getWidth(Object value)
+    {
+        if (value instanceof BitVector)
+        {
+            return ((BitVector) value).length();
+        }
+        else if (value instanceof Integer)
+        {
+            return 32;
+        }
+        else if (value instanceof Long)
+        {
+            return 64;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,713 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.dv;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a replay log written by {@link ReplayLogWriter}. Records are read
+ * sequentially using {@link #next()}; {@link #seek(long)} positions the reader
+ * at a given time, using the nearest preceding checkpoint to avoid reading
+ * the log from the beginning.
+ * <p>
+ * Checkpoints only hold the values of the logged inputs. They do not capture
+ * the state of the application or simulation that produced the log, so a
+ * replayed application is always started at time 0 (see
+ * {@link com.newisys.behsim.ReplaySimulation}).
+ * <p>
+ * The <code>main</code> method of this class prints the signal changes in a
+ * range of simulation time.
+ * 
+ * @author Trevor Robinson
+ */
+public final class ReplayLogReader
+{
+    /**
+     * The type of a replay log record.
+     */
+    public enum RecordType
+    {
+        INPUT, DRIVE
+    }
+
+    /**
+     * Describes an input or output signal defined in a replay log.
+     */
+    public static final class Signal
+    {
+        private final int id;
+        private final String name;
+        private final int width;
+        private final boolean input;
+        private final Object initialValue;
+
+        Signal(int id, String name, int width, boolean input, Object initialValue)
+        {
+            this.id = id;
+            this.name = name;
+            this.width = width;
+            this.input = input;
+            this.initialValue = initialValue;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public int getWidth()
+        {
+            return width;
+        }
+
+        public boolean isInput()
+        {
+            return input;
+        }
+
+        /**
+         * Returns the value of an input signal when it was first monitored.
+         *
+         * @return the initial value, or null for output signals
+         */
+        public Object getInitialValue()
+        {
+            return initialValue;
+        }
+
+        @Override
+        public String toString()
+        {
+            return (input ? "input " : "output ") + name + "[" + width + "]";
+        }
+    }
+
+    /**
+     * Counts the bytes read from the underlying stream, so that the file
+     * offset of each record is known.
+     */
+    private static final class CountingInputStream
+        extends FilterInputStream
+    {
+        long count;
+
+        public CountingInputStream(InputStream in, long count)
+        {
+            super(in);
+            this.count = count;
+        }
+
+        @Override
+        public int read()
+            throws IOException
+        {
+            int b = in.read();
+            if (b >= 0) ++count;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len)
+            throws IOException
+        {
+            int n = in.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n)
+            throws IOException
+        {
+            long skipped = in.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    private final RandomAccessFile file;
+    private CountingInputStream counter;
+    private DataInputStream in;
+    private final long checkpointInterval;
+    private final long dataStart;
+    private long dataEnd;
+    private final List<Signal> inputs = new ArrayList<Signal>();
+    private final List<Signal> outputs = new ArrayList<Signal>();
+    private final Map<String, Signal> inputMap = new HashMap<String, Signal>();
+    private final Map<String, Signal> outputMap = new HashMap<String, Signal>();
+    private long[] checkpointTimes;
+    private long[] checkpointOffsets;
+    private final List<Object> currentValues = new ArrayList<Object>();
+
+    private long time;
+    private RecordType recordType;
+    private Signal signal;
+    private Object value;
+
+    /**
+     * Opens the given replay log. If the log was not closed normally, it is
+     * scanned to rebuild its index, ignoring any incomplete final record.
+     *
+     * @param path the log file to open
+     * @throws IOException if the file cannot be read or is not a replay log
+     */
+    public ReplayLogReader(File path)
+        throws IOException
+    {
+        file = new RandomAccessFile(path, "r");
+        try
+        {
+            position(0);
+            if (in.readInt() != ReplayLogFormat.MAGIC)
+            {
+                throw new IOException("Not a replay log: " + path);
+            }
+            int version = in.readUnsignedByte();
+            if (version != ReplayLogFormat.VERSION)
+            {
+                throw new IOException("Unsupported replay log version: "
+                    + version);
+            }
+            checkpointInterval = ReplayLogFormat.readVarLong(in);
+            dataStart = counter.count;
+
+            if (!readIndex())
+            {
+                scan();
+            }
+            rewind();
+        }
+        catch (IOException e)
+        {
+            file.close();
+            throw e;
+        }
+    }
+
+    private void position(long offset)
+        throws IOException
+    {
+        file.getChannel().position(offset);
+        counter = new CountingInputStream(new BufferedInputStream(Channels
+            .newInputStream(file.getChannel()), 64 * 1024), offset);
+        in = new DataInputStream(counter);
+    }
+
+    private boolean readIndex()
+        throws IOException
+    {
+        final long length = file.length();
+        if (length < dataStart + ReplayLogFormat.TRAILER_SIZE) return false;
+        file.seek(length - ReplayLogFormat.TRAILER_SIZE);
+        final long indexOffset = file.readLong();
+        if (file.readInt() != ReplayLogFormat.INDEX_MAGIC
+            || indexOffset < dataStart || indexOffset >= length)
+        {
+            return false;
+        }
+
+        position(indexOffset);
+        if (in.readUnsignedByte() != ReplayLogFormat.TAG_INDEX)
+        {
+            throw new IOException("Invalid replay log index");
+        }
+        final int count = ReplayLogFormat.readVarInt(in);
+        checkpointTimes = new long[count];
+        checkpointOffsets = new long[count];
+        for (int i = 0; i < count; ++i)
+        {
+            checkpointTimes[i] = ReplayLogFormat.readVarLong(in);
+            checkpointOffsets[i] = ReplayLogFormat.readVarLong(in);
+        }
+        final int inputCount = ReplayLogFormat.readVarInt(in);
+        for (int i = 0; i < inputCount; ++i)
+        {
+            readInputDef(true);
+        }
+        final int outputCount = ReplayLogFormat.readVarInt(in);
+        for (int i = 0; i < outputCount; ++i)
+        {
+            readOutputDef(true);
+        }
+        dataEnd = indexOffset;
+        return true;
+    }
+
+    private void scan()
+        throws IOException
+    {
+        final List<long[]> checkpoints = new ArrayList<long[]>();
+        dataEnd = Long.MAX_VALUE;
+        position(dataStart);
+        long recordStart = dataStart;
+        try
+        {
+            while (true)
+            {
+                recordStart = counter.count;
+                int tag = readRecord(true);
+                if (tag < 0) break;
+                if (tag == ReplayLogFormat.TAG_CHECKPOINT)
+                {
+                    checkpoints.add(new long[] { time, recordStart });
+                }
+            }
+        }
+        catch (EOFException e)
+        {
+            // incomplete final record
+        }
+        dataEnd = recordStart;
+        checkpointTimes = new long[checkpoints.size()];
+        checkpointOffsets = new long[checkpoints.size()];
+        for (int i = 0; i < checkpointTimes.length; ++i)
+        {
+            checkpointTimes[i] = checkpoints.get(i)[0];
+            checkpointOffsets[i] = checkpoints.get(i)[1];
+        }
+    }
+
+    private Signal readInputDef(boolean define)
+        throws IOException
+    {
+        final int id = ReplayLogFormat.readVarInt(in);
+        final String name = in.readUTF();
+        final int width = ReplayLogFormat.readVarInt(in);
+        final Object initialValue = ReplayLogFormat.readValue(in);
+        if (define)
+        {
+            if (id != inputs.size())
+            {
+                throw new IOException("Unexpected replay log input ID: " + id);
+            }
+            Signal s = new Signal(id, name, width, true, initialValue);
+            inputs.add(s);
+            inputMap.put(name, s);
+        }
+        return getSignal(inputs, id);
+    }
+
+    private Signal readOutputDef(boolean define)
+        throws IOException
+    {
+        final int id = ReplayLogFormat.readVarInt(in);
+        final String name = in.readUTF();
+        final int width = ReplayLogFormat.readVarInt(in);
+        if (define)
+        {
+            if (id != outputs.size())
+            {
+                throw new IOException("Unexpected replay log output ID: " + id);
+            }
+            Signal s = new Signal(id, name, width, false, null);
+            outputs.add(s);
+            outputMap.put(name, s);
+        }
+        return getSignal(outputs, id);
+    }
+
+    private static Signal getSignal(List<Signal> signals, int id)
+        throws IOException
+    {
+        if (id < 0 || id >= signals.size())
+        {
+            throw new IOException("Undefined replay log signal ID: " + id);
+        }
+        return signals.get(id);
+    }
+
+    private void setCurrentValue(Signal s, Object v)
+    {
+        while (currentValues.size() <= s.id)
+        {
+            currentValues.add(null);
+        }
+        currentValues.set(s.id, v);
+    }
+
+    /**
+     * Reads and applies the next record.
+     *
+     * @param define whether definition records should add signals
+     * @return the tag of the record, or -1 at the end of the log
+     */
+    private int readRecord(boolean define)
+        throws IOException
+    {
+        if (counter.count >= dataEnd) return -1;
+        final int tag = in.read();
+        switch (tag)
+        {
+        case -1:
+        case ReplayLogFormat.TAG_INDEX:
+            return -1;
+        case ReplayLogFormat.TAG_INPUT_DEF:
+            signal = readInputDef(define);
+            setCurrentValue(signal, signal.initialValue);
+            break;
+        case ReplayLogFormat.TAG_OUTPUT_DEF:
+            readOutputDef(define);
+            break;
+        case ReplayLogFormat.TAG_TIME:
+            time += ReplayLogFormat.readVarLong(in);
+            break;
+        case ReplayLogFormat.TAG_INPUT:
+            recordType = RecordType.INPUT;
+            signal = getSignal(inputs, ReplayLogFormat.readVarInt(in));
+            value = ReplayLogFormat.readValue(in);
+            setCurrentValue(signal, value);
+            break;
+        case ReplayLogFormat.TAG_DRIVE:
+            recordType = RecordType.DRIVE;
+            signal = getSignal(outputs, ReplayLogFormat.readVarInt(in));
+            value = ReplayLogFormat.readValue(in);
+            break;
+        case ReplayLogFormat.TAG_CHECKPOINT:
+            time = ReplayLogFormat.readVarLong(in);
+            final int count = ReplayLogFormat.readVarInt(in);
+            for (int i = 0; i < count; ++i)
+            {
+                setCurrentValue(getSignal(inputs, i), ReplayLogFormat
+                    .readValue(in));
+            }
+            break;
+        default:
+            throw new IOException("Invalid replay log record tag: " + tag);
+        }
+        return tag;
+    }
+
+    /**
+     * Returns the minimum simulation time between checkpoints in this log.
+     *
+     * @return the checkpoint interval, or 0 if checkpoints were disabled
+     */
+    public long getCheckpointInterval()
+    {
+        return checkpointInterval;
+    }
+
+    /**
+     * Returns the number of checkpoints in this log.
+     *
+     * @return the checkpoint count
+     */
+    public int getCheckpointCount()
+    {
+        return checkpointTimes.length;
+    }
+
+    /**
+     * Returns the simulation time of the given checkpoint.
+     *
+     * @param index the index of the checkpoint
+     * @return the checkpoint time
+     */
+    public long getCheckpointTime(int index)
+    {
+        return checkpointTimes[index];
+    }
+
+    /**
+     * Returns the input signals defined in this log, in definition order.
+     *
+     * @return an unmodifiable list of input signals
+     */
+    public List<Signal> getInputs()
+    {
+        return Collections.unmodifiableList(inputs);
+    }
+
+    /**
+     * Returns the output signals defined in this log, in definition order.
+     *
+     * @return an unmodifiable list of output signals
+     */
+    public List<Signal> getOutputs()
+    {
+        return Collections.unmodifiableList(outputs);
+    }
+
+    /**
+     * Returns the input signal with the given name.
+     *
+     * @param name the name of the signal
+     * @return the input signal, or null if none exists
+     */
+    public Signal getInput(String name)
+    {
+        return inputMap.get(name);
+    }
+
+    /**
+     * Returns the output signal with the given name.
+     *
+     * @param name the name of the signal
+     * @return the output signal, or null if none exists
+     */
+    public Signal getOutput(String name)
+    {
+        return outputMap.get(name);
+    }
+
+    /**
+     * Repositions this reader at the beginning of the log.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void rewind()
+        throws IOException
+    {
+        position(dataStart);
+        resetState(0);
+    }
+
+    private void resetState(long newTime)
+    {
+        currentValues.clear();
+        time = newTime;
+        recordType = null;
+        signal = null;
+        value = null;
+    }
+
+    /**
+     * Repositions this reader at the start of the given time step. The
+     * current value of each input is its value before any change at the given
+     * time, and the next record returned by {@link #next()} is the first input
+     * or drive record at or after the given time. Reading starts at the last
+     * checkpoint before the given time, or at the beginning of the log if
+     * there is no such checkpoint, and continues up to the given time.
+     *
+     * @param targetTime the simulation time to seek to
+     * @throws IOException if an I/O error occurs or the checkpoint is invalid
+     */
+    public void seek(long targetTime)
+        throws IOException
+    {
+        // a checkpoint at the target time is not used, since the first
+        // checkpoint of a log may follow records in the same time step
+        int lo = 0;
+        int hi = checkpointTimes.length - 1;
+        while (lo <= hi)
+        {
+            final int mid = (lo + hi) >>> 1;
+            if (checkpointTimes[mid] < targetTime)
+            {
+                lo = mid + 1;
+            }
+            else
+            {
+                hi = mid - 1;
+            }
+        }
+        if (hi < 0)
+        {
+            rewind();
+        }
+        else
+        {
+            position(checkpointOffsets[hi]);
+            resetState(0);
+            if (readRecord(false) != ReplayLogFormat.TAG_CHECKPOINT
+                || time != checkpointTimes[hi])
+            {
+                throw new IOException("Invalid replay log checkpoint at offset "
+                    + checkpointOffsets[hi]);
+            }
+        }
+
+        // read forward, leaving the record that reaches the target time to be
+        // read by next()
+        while (time < targetTime)
+        {
+            final long recordStart = counter.count;
+            final long recordTime = time;
+            final int tag = readRecord(false);
+            if (tag < 0) break;
+            if (time >= targetTime)
+            {
+                position(recordStart);
+                time = recordTime;
+                break;
+            }
+        }
+        recordType = null;
+        signal = null;
+        value = null;
+    }
+
+    /**
+     * Advances to the next input or drive record.
+     *
+     * @return true if a record was read, false at the end of the log
+     * @throws IOException if an I/O error occurs
+     */
+    public boolean next()
+        throws IOException
+    {
+        while (true)
+        {
+            final int tag = readRecord(false);
+            if (tag < 0)
+            {
+                recordType = null;
+                return false;
+            }
+            if (tag == ReplayLogFormat.TAG_INPUT
+                || tag == ReplayLogFormat.TAG_DRIVE)
+            {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the simulation time of the current position in the log.
+     *
+     * @return the current simulation time
+     */
+    public long getTime()
+    {
+        return time;
+    }
+
+    /**
+     * Returns the type of the last record read by {@link #next()}.
+     *
+     * @return the record type, or null if no record has been read
+     */
+    public RecordType getRecordType()
+    {
+        return recordType;
+    }
+
+    /**
+     * Returns the signal of the last record read by {@link #next()}.
+     *
+     * @return the signal of the record
+     */
+    public Signal getSignal()
+    {
+        return signal;
+    }
+
+    /**
+     * Returns the value of the last record read by {@link #next()}.
+     *
+     * @return the value of the record
+     */
+    public Object getValue()
+    {
+        return value;
+    }
+
+    /**
+     * Returns the value of the given input signal at the current position in
+     * the log.
+     *
+     * @param input the input signal
+     * @return the current value of the signal, or null if the signal has not
+     *         been defined as of the current position
+     */
+    public Object getCurrentValue(Signal input)
+    {
+        assert (input.input);
+        return input.id < currentValues.size() ? currentValues.get(input.id)
+            : null;
+    }
+
+    /**
+     * Closes the log file.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void close()
+        throws IOException
+    {
+        file.close();
+    }
+
+    /**
+     * Prints the input values and drives recorded in a replay log.
+     * <P>
+     * usage: ReplayLogReader &lt;log file&gt; [&lt;start time&gt;
+     * [&lt;end time&gt;]]
+     *
+     * @param args the command line arguments
+     * @throws IOException if the log cannot be read
+     */
+    public static void main(String[] args)
+        throws IOException
+    {
+        if (args.length < 1 || args.length > 3)
+        {
+            System.err.println("Syntax: ReplayLogReader <log file> "
+                + "[<start time> [<end time>]]");
+            System.exit(1);
+        }
+        final long startTime = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        final long endTime = args.length > 2 ? Long.parseLong(args[2])
+            : Long.MAX_VALUE;
+
+        final ReplayLogReader reader = new ReplayLogReader(new File(args[0]));
+        try
+        {
+            reader.seek(startTime);
+
+            // print the value of each input as of the start time
+            System.out.println("Values @ " + startTime + ":");
+            for (final Signal s : reader.getInputs())
+            {
+                final Object v = reader.getCurrentValue(s);
+                if (v != null)
+                {
+                    System.out.println("  " + s.getName() + " = " + v);
+                }
+            }
+
+            boolean more = reader.next();
+            while (more && reader.getTime() <= endTime)
+            {
+                System.out.println(reader.getTime() + ": "
+                    + (reader.getRecordType() == RecordType.INPUT ? "< " : "> ")
+                    + reader.getSignal().getName() + " = "
+                    + reader.getValue());
+                more = reader.next();
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+}
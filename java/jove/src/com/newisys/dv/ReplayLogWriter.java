@@ -0,0 +1,362 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.dv;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A SignalRecorder that writes a compact, append-only binary log of every
+ * input value change and output drive of a simulation run. The log can later
+ * be replayed without the HDL simulator using
+ * {@link com.newisys.behsim.ReplaySimulation}, or inspected using
+ * {@link ReplayLogReader}.
+ * <p>
+ * Every <code>checkpointInterval</code> units of simulation time, a checkpoint
+ * containing the current value of every input is written, allowing readers to
+ * seek close to a given time without scanning the entire log. Closing the
+ * writer appends an index of checkpoints and signal definitions; a log that
+ * was not closed (e.g. because the simulator crashed) remains readable, but
+ * must be scanned when opened.
+ * 
+ * @author Trevor Robinson
+ */
+public final class ReplayLogWriter
+    implements SignalRecorder
+{
+    /**
+     * Counts the bytes written to the underlying stream, so that checkpoint
+     * offsets can be recorded.
+     */
+    private static final class CountingOutputStream
+        extends FilterOutputStream
+    {
+        long count;
+
+        public CountingOutputStream(OutputStream out)
+        {
+            super(out);
+        }
+
+        @Override
+        public void write(int b)
+            throws IOException
+        {
+            out.write(b);
+            ++count;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len)
+            throws IOException
+        {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    private static final class InputDef
+    {
+        final int id;
+        final String name;
+        final int width;
+        final Object initialValue;
+        Object currentValue;
+
+        public InputDef(int id, String name, int width, Object initialValue)
+        {
+            this.id = id;
+            this.name = name;
+            this.width = width;
+            this.initialValue = initialValue;
+            this.currentValue = initialValue;
+        }
+    }
+
+    private static final class OutputDef
+    {
+        final int id;
+        final String name;
+        final int width;
+
+        public OutputDef(int id, String name, int width)
+        {
+            this.id = id;
+            this.name = name;
+            this.width = width;
+        }
+    }
+
+    private final CountingOutputStream counter;
+    private final DataOutputStream out;
+    private final long checkpointInterval;
+    private final Map<String, InputDef> inputMap = new HashMap<String, InputDef>();
+    private final List<InputDef> inputs = new ArrayList<InputDef>();
+    private final Map<String, OutputDef> outputMap = new HashMap<String, OutputDef>();
+    private final List<OutputDef> outputs = new ArrayList<OutputDef>();
+    private final List<long[]> checkpoints = new ArrayList<long[]>();
+    private long currentTime;
+    private long lastCheckpointTime = Long.MIN_VALUE;
+    private boolean closed;
+
+    /**
+     * Creates a new replay log file.
+     *
+     * @param file the log file to create or overwrite
+     * @param checkpointInterval the minimum simulation time between
+     *            checkpoints, or 0 to disable checkpoints
+     * @throws IOException if the file cannot be created
+     */
+    public ReplayLogWriter(File file, long checkpointInterval)
+        throws IOException
+    {
+        this(new FileOutputStream(file), checkpointInterval);
+    }
+
+    /**
+     * Creates a new replay log on the given stream.
+     *
+     * @param os the stream to write the log to
+     * @param checkpointInterval the minimum simulation time between
+     *            checkpoints, or 0 to disable checkpoints
+     * @throws IOException if the log header cannot be written
+     */
+    public ReplayLogWriter(OutputStream os, long checkpointInterval)
+        throws IOException
+    {
+        if (checkpointInterval < 0)
+        {
+            throw new IllegalArgumentException(
+                "Checkpoint interval must not be negative: "
+                    + checkpointInterval);
+        }
+        this.checkpointInterval = checkpointInterval;
+        counter = new CountingOutputStream(new BufferedOutputStream(os,
+            64 * 1024));
+        out = new DataOutputStream(counter);
+        out.writeInt(ReplayLogFormat.MAGIC);
+        out.writeByte(ReplayLogFormat.VERSION);
+        ReplayLogFormat.writeVarLong(out, checkpointInterval);
+    }
+
+    /**
+     * Returns the minimum simulation time between checkpoints.
+     *
+     * @return the checkpoint interval, or 0 if checkpoints are disabled
+     */
+    public long getCheckpointInterval()
+    {
+        return checkpointInterval;
+    }
+
+    public synchronized void inputChanged(String name, long time, Object value)
+    {
+        try
+        {
+            advanceTime(time);
+            InputDef def = inputMap.get(name);
+            if (def == null)
+            {
+                def = new InputDef(inputs.size(), name, ReplayLogFormat
+                    .getWidth(value), value);
+                inputMap.put(name, def);
+                inputs.add(def);
+                out.writeByte(ReplayLogFormat.TAG_INPUT_DEF);
+                writeInputDef(def);
+            }
+            else
+            {
+                out.writeByte(ReplayLogFormat.TAG_INPUT);
+                ReplayLogFormat.writeVarLong(out, def.id);
+                ReplayLogFormat.writeValue(out, value);
+                def.currentValue = value;
+            }
+        }
+        catch (IOException e)
+        {
+            throw new DVRuntimeException("Error writing replay log", e);
+        }
+    }
+
+    public synchronized void outputDeclared(String name, int width)
+    {
+        try
+        {
+            getOutputDef(name, width);
+        }
+        catch (IOException e)
+        {
+            throw new DVRuntimeException("Error writing replay log", e);
+        }
+    }
+
+    public synchronized void outputDriven(String name, long time, Object value)
+    {
+        try
+        {
+            advanceTime(time);
+            OutputDef def = getOutputDef(name, ReplayLogFormat.getWidth(value));
+            out.writeByte(ReplayLogFormat.TAG_DRIVE);
+            ReplayLogFormat.writeVarLong(out, def.id);
+            ReplayLogFormat.writeValue(out, value);
+        }
+        catch (IOException e)
+        {
+            throw new DVRuntimeException("Error writing replay log", e);
+        }
+    }
+
+    private OutputDef getOutputDef(String name, int width)
+        throws IOException
+    {
+        OutputDef def = outputMap.get(name);
+        if (def == null)
+        {
+            def = new OutputDef(outputs.size(), name, width);
+            outputMap.put(name, def);
+            outputs.add(def);
+            out.writeByte(ReplayLogFormat.TAG_OUTPUT_DEF);
+            writeOutputDef(def);
+        }
+        return def;
+    }
+
+    private void writeInputDef(InputDef def)
+        throws IOException
+    {
+        ReplayLogFormat.writeVarLong(out, def.id);
+        out.writeUTF(def.name);
+        ReplayLogFormat.writeVarLong(out, def.width);
+        ReplayLogFormat.writeValue(out, def.initialValue);
+    }
+
+    private void writeOutputDef(OutputDef def)
+        throws IOException
+    {
+        ReplayLogFormat.writeVarLong(out, def.id);
+        out.writeUTF(def.name);
+        ReplayLogFormat.writeVarLong(out, def.width);
+    }
+
+    private void advanceTime(long time)
+        throws IOException
+    {
+        if (closed)
+        {
+            throw new IllegalStateException("Replay log is closed");
+        }
+        if (time != currentTime)
+        {
+            if (time < currentTime)
+            {
+                throw new IllegalArgumentException("Replay log time " + time
+                    + " precedes current time " + currentTime);
+            }
+            out.writeByte(ReplayLogFormat.TAG_TIME);
+            ReplayLogFormat.writeVarLong(out, time - currentTime);
+            currentTime = time;
+        }
+        if (checkpointInterval > 0 && !inputs.isEmpty()
+            && (lastCheckpointTime == Long.MIN_VALUE || time
+                - lastCheckpointTime >= checkpointInterval))
+        {
+            writeCheckpoint();
+        }
+    }
+
+    private void writeCheckpoint()
+        throws IOException
+    {
+        // the checkpoint holds the input values in effect at the start of the
+        // current time step, before any records that follow it
+        out.flush();
+        checkpoints.add(new long[] { currentTime, counter.count });
+        out.writeByte(ReplayLogFormat.TAG_CHECKPOINT);
+        ReplayLogFormat.writeVarLong(out, currentTime);
+        ReplayLogFormat.writeVarLong(out, inputs.size());
+        for (final InputDef def : inputs)
+        {
+            ReplayLogFormat.writeValue(out, def.currentValue);
+        }
+        lastCheckpointTime = currentTime;
+    }
+
+    /**
+     * Flushes any buffered records to the underlying stream.
+     */
+    public synchronized void flush()
+    {
+        try
+        {
+            out.flush();
+        }
+        catch (IOException e)
+        {
+            throw new DVRuntimeException("Error writing replay log", e);
+        }
+    }
+
+    /**
+     * Writes the index and trailer and closes the underlying stream. Closing
+     * a writer more than once has no effect.
+     */
+    public synchronized void close()
+    {
+        if (closed) return;
+        closed = true;
+        try
+        {
+            out.flush();
+            final long indexOffset = counter.count;
+            out.writeByte(ReplayLogFormat.TAG_INDEX);
+            ReplayLogFormat.writeVarLong(out, checkpoints.size());
+            for (final long[] checkpoint : checkpoints)
+            {
+                ReplayLogFormat.writeVarLong(out, checkpoint[0]);
+                ReplayLogFormat.writeVarLong(out, checkpoint[1]);
+            }
+            ReplayLogFormat.writeVarLong(out, inputs.size());
+            for (final InputDef def : inputs)
+            {
+                writeInputDef(def);
+            }
+            ReplayLogFormat.writeVarLong(out, outputs.size());
+            for (final OutputDef def : outputs)
+            {
+                writeOutputDef(def);
+            }
+            out.writeLong(indexOffset);
+            out.writeInt(ReplayLogFormat.INDEX_MAGIC);
+            out.close();
+        }
+        catch (IOException e)
+        {
+            throw new DVRuntimeException("Error writing replay log", e);
+        }
+    }
+}
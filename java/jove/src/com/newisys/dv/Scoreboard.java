@@ -0,0 +1,751 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.dv;
+
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.newisys.eventsim.SimulationThread;
+import com.newisys.verilog.util.BitVector;
+
+/**
+ * Matches expected transactions against actual transactions. Expected
+ * transactions are added as they are predicted, and each actual transaction
+ * is matched against the outstanding expected transactions according to the
+ * scoreboard mode:
+ * <ul>
+ * <li>IN_ORDER: each actual transaction is compared with the oldest
+ * outstanding expected transaction.</li>
+ * <li>OUT_OF_ORDER: each actual transaction is compared with the oldest
+ * outstanding expected transaction having the same key. Expected
+ * transactions are indexed by key in a hash table, so matching does not
+ * depend on the number of outstanding transactions.</li>
+ * <li>WINDOWED: each actual transaction is matched against the oldest
+ * outstanding expected transactions, up to the window size.</li>
+ * </ul>
+ * Keys are computed by a KeyFunction; BitVector keys are well suited, since
+ * BitVector caches its hash code. Transactions are compared using a
+ * MatchFunction, or using <code>equals</code> if none is given.
+ * <P>
+ * Mismatches are reported as they are detected to any registered
+ * ScoreboardListeners and to the report stream, if one is set, rather than
+ * being accumulated until the end of simulation. If an expiry time is set,
+ * expected transactions that remain unmatched for longer than that many
+ * simulation ticks are reported as EXPIRED the next time the scoreboard is
+ * used. Any expected transactions still outstanding when {@link #finish} is
+ * called are reported as MISSING.
+ * <P>
+ * Scoreboards are not thread-safe; like Mailboxes, they are intended to be
+ * called only from simulation threads.
+ * 
+ * @author Trevor Robinson
+ * @param <K> the key type
+ * @param <T> the transaction type
+ */
+public final class Scoreboard<K, T>
+{
+    /**
+     * The matching modes supported by Scoreboard.
+     */
+    public enum Mode
+    {
+        /**
+         * Actual transactions must arrive in the order they were expected.
+         */
+        IN_ORDER,
+
+        /**
+         * Actual transactions must arrive in the order they were expected
+         * for a given key, but may be reordered across keys.
+         */
+        OUT_OF_ORDER,
+
+        /**
+         * Actual transactions may match any of the oldest outstanding
+         * expected transactions, up to the window size.
+         */
+        WINDOWED
+    }
+
+    /**
+     * Computes the matching key of a transaction.
+     *
+     * @param <K> the key type
+     * @param <T> the transaction type
+     */
+    public interface KeyFunction<K, T>
+    {
+        /**
+         * Returns the key of the given transaction. The key must implement
+         * <code>hashCode</code> and <code>equals</code> consistently.
+         *
+         * @param txn a transaction
+         * @return the key of the transaction
+         */
+        K getKey(T txn);
+    }
+
+    /**
+     * Compares an expected transaction with an actual transaction.
+     *
+     * @param <T> the transaction type
+     */
+    public interface MatchFunction<T>
+    {
+        /**
+         * Returns whether the given actual transaction matches the given
+         * expected transaction.
+         *
+         * @param expected the expected transaction
+         * @param actual the actual transaction
+         * @return true if the transactions match
+         */
+        boolean matches(T expected, T actual);
+    }
+
+    private static final class Entry<K, T>
+    {
+        final K key;
+        final T txn;
+        final long time;
+
+        // all outstanding entries, oldest first
+        Entry<K, T> prev;
+        Entry<K, T> next;
+
+        // outstanding entries with the same key, oldest first
+        Entry<K, T> keyNext;
+
+        Entry(K key, T txn, long time)
+        {
+            this.key = key;
+            this.txn = txn;
+            this.time = time;
+        }
+    }
+
+    private static final class KeyChain<K, T>
+    {
+        Entry<K, T> head;
+        Entry<K, T> tail;
+    }
+
+    private final DVSimulation dvSim;
+    private final String name;
+    private final Mode mode;
+    private final KeyFunction<K, T> keyFunction;
+    private MatchFunction<T> matchFunction;
+    private int windowSize = 16;
+    private long expiryTime;
+
+    private final HashMap<K, KeyChain<K, T>> keyMap;
+    private Entry<K, T> head;
+    private Entry<K, T> tail;
+    private int outstandingCount;
+
+    private final List<ScoreboardListener<K, T>> listeners = new CopyOnWriteArrayList<ScoreboardListener<K, T>>();
+    private PrintStream reportStream;
+
+    private long expectedCount;
+    private long actualCount;
+    private long matchCount;
+    private final long[] mismatchCounts = new long[ScoreboardMismatch.Kind
+        .values().length];
+    private int maxOutstandingCount;
+
+    /**
+     * Creates a new Scoreboard with the given mode.
+     *
+     * @param dvSim the DVSimulation providing simulation time
+     * @param name the name of this scoreboard, used in reports
+     * @param mode the matching mode
+     * @param keyFunction the function used to compute transaction keys;
+     *            required for OUT_OF_ORDER mode, optional otherwise
+     * @throws IllegalArgumentException if <code>keyFunction</code> is null
+     *             and <code>mode</code> is OUT_OF_ORDER
+     */
+    public Scoreboard(
+        DVSimulation dvSim,
+        String name,
+        Mode mode,
+        KeyFunction<K, T> keyFunction)
+    {
+        if (mode == Mode.OUT_OF_ORDER && keyFunction == null)
+        {
+            throw new IllegalArgumentException(
+                "Out-of-order scoreboard requires a key function");
+        }
+        this.dvSim = dvSim;
+        this.name = name;
+        this.mode = mode;
+        this.keyFunction = keyFunction;
+        this.keyMap = mode == Mode.OUT_OF_ORDER
+            ? new HashMap<K, KeyChain<K, T>>() : null;
+    }
+
+    /**
+     * Creates a new Scoreboard with the given mode and no key function.
+     *
+     * @param dvSim the DVSimulation providing simulation time
+     * @param name the name of this scoreboard, used in reports
+     * @param mode the matching mode; must not be OUT_OF_ORDER
+     */
+    public Scoreboard(DVSimulation dvSim, String name, Mode mode)
+    {
+        this(dvSim, name, mode, null);
+    }
+
+    /**
+     * Returns the name of this scoreboard.
+     *
+     * @return the scoreboard name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the matching mode of this scoreboard.
+     *
+     * @return the scoreboard mode
+     */
+    public Mode getMode()
+    {
+        return mode;
+    }
+
+    /**
+     * Returns the function used to compare transactions.
+     *
+     * @return the MatchFunction, or null if <code>equals</code> is used
+     */
+    public MatchFunction<T> getMatchFunction()
+    {
+        return matchFunction;
+    }
+
+    /**
+     * Sets the function used to compare transactions.
+     *
+     * @param matchFunction the MatchFunction, or null to use
+     *            <code>equals</code>
+     */
+    public void setMatchFunction(MatchFunction<T> matchFunction)
+    {
+        this.matchFunction = matchFunction;
+    }
+
+    /**
+     * Returns the number of outstanding expected transactions searched for
+     * each actual transaction in WINDOWED mode.
+     *
+     * @return the window size
+     */
+    public int getWindowSize()
+    {
+        return windowSize;
+    }
+
+    /**
+     * Sets the number of outstanding expected transactions searched for each
+     * actual transaction in WINDOWED mode. The default is 16.
+     *
+     * @param windowSize the window size
+     * @throws IllegalArgumentException if <code>windowSize</code> is less
+     *             than 1
+     */
+    public void setWindowSize(int windowSize)
+    {
+        if (windowSize < 1)
+        {
+            throw new IllegalArgumentException("Invalid window size: "
+                + windowSize);
+        }
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Returns the number of simulation ticks an expected transaction may
+     * remain outstanding before it is reported as expired.
+     *
+     * @return the expiry time, or 0 if expected transactions never expire
+     */
+    public long getExpiryTime()
+    {
+        return expiryTime;
+    }
+
+    /**
+     * Sets the number of simulation ticks an expected transaction may remain
+     * outstanding before it is reported as expired.
+     *
+     * @param expiryTime the expiry time, or 0 if expected transactions never
+     *            expire
+     * @throws IllegalArgumentException if <code>expiryTime</code> is negative
+     */
+    public void setExpiryTime(long expiryTime)
+    {
+        if (expiryTime < 0)
+        {
+            throw new IllegalArgumentException("Invalid expiry time: "
+                + expiryTime);
+        }
+        this.expiryTime = expiryTime;
+    }
+
+    /**
+     * Adds a listener to be notified of each mismatch as it is detected.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(ScoreboardListener<K, T> listener)
+    {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a mismatch listener.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(ScoreboardListener<K, T> listener)
+    {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns the stream to which mismatches are printed as they are
+     * detected.
+     *
+     * @return the report stream, or null if mismatches are not printed
+     */
+    public PrintStream getReportStream()
+    {
+        return reportStream;
+    }
+
+    /**
+     * Sets the stream to which mismatches are printed as they are detected.
+     *
+     * @param reportStream the report stream, or null to disable printing
+     */
+    public void setReportStream(PrintStream reportStream)
+    {
+        this.reportStream = reportStream;
+    }
+
+    /**
+     * Adds an expected transaction.
+     *
+     * @param txn the expected transaction
+     * @throws IllegalArgumentException if the key of the transaction is a
+     *             BitVector containing X or Z bits
+     */
+    public void addExpected(T txn)
+    {
+        final long now = dvSim.getSimTime();
+        expire(now);
+
+        final K key = keyFunction != null ? keyFunction.getKey(txn) : null;
+        if (isUnknownKey(key))
+        {
+            throw new IllegalArgumentException(
+                "Expected transaction key contains X/Z: " + key);
+        }
+
+        final Entry<K, T> e = new Entry<K, T>(key, txn, now);
+        e.prev = tail;
+        if (tail != null)
+        {
+            tail.next = e;
+        }
+        else
+        {
+            head = e;
+        }
+        tail = e;
+
+        if (keyMap != null)
+        {
+            KeyChain<K, T> chain = keyMap.get(key);
+            if (chain == null)
+            {
+                chain = new KeyChain<K, T>();
+                chain.head = e;
+                keyMap.put(key, chain);
+            }
+            else
+            {
+                chain.tail.keyNext = e;
+            }
+            chain.tail = e;
+        }
+
+        ++expectedCount;
+        if (++outstandingCount > maxOutstandingCount)
+        {
+            maxOutstandingCount = outstandingCount;
+        }
+    }
+
+    /**
+     * Matches an actual transaction against the outstanding expected
+     * transactions. If a candidate expected transaction is found, it is
+     * removed, and a MISMATCH is reported if it does not match the actual
+     * transaction. If no candidate is found, an UNEXPECTED mismatch is
+     * reported.
+     *
+     * @param txn the actual transaction
+     * @return true if the actual transaction matched an expected transaction
+     */
+    public boolean addActual(T txn)
+    {
+        final long now = dvSim.getSimTime();
+        expire(now);
+        ++actualCount;
+
+        final K key = keyFunction != null ? keyFunction.getKey(txn) : null;
+        final Entry<K, T> e;
+        if (isUnknownKey(key))
+        {
+            e = null;
+        }
+        else
+        {
+            switch (mode)
+            {
+            case IN_ORDER:
+                e = head;
+                break;
+            case OUT_OF_ORDER:
+                final KeyChain<K, T> chain = keyMap.get(key);
+                e = chain != null ? chain.head : null;
+                break;
+            default:
+                e = findInWindow(key, txn);
+            }
+        }
+
+        if (e == null)
+        {
+            report(ScoreboardMismatch.Kind.UNEXPECTED, key, null, -1, txn, now);
+            return false;
+        }
+
+        remove(e);
+        if (matches(e.txn, txn))
+        {
+            ++matchCount;
+            return true;
+        }
+        report(ScoreboardMismatch.Kind.MISMATCH, e.key, e.txn, e.time, txn,
+            now);
+        return false;
+    }
+
+    /**
+     * Creates a simulation thread that adds each transaction received from
+     * the given mailbox as an expected transaction.
+     *
+     * @param mailbox the mailbox supplying expected transactions
+     * @return the created thread
+     */
+    public SimulationThread connectExpected(final Mailbox< ? extends T> mailbox)
+    {
+        return dvSim.fork(name + ".expected", new Runnable()
+        {
+            public void run()
+            {
+                while (true)
+                {
+                    addExpected(mailbox.getWait());
+                }
+            }
+        });
+    }
+
+    /**
+     * Creates a simulation thread that matches each transaction received from
+     * the given mailbox as an actual transaction.
+     *
+     * @param mailbox the mailbox supplying actual transactions
+     * @return the created thread
+     */
+    public SimulationThread connectActual(final Mailbox< ? extends T> mailbox)
+    {
+        return dvSim.fork(name + ".actual", new Runnable()
+        {
+            public void run()
+            {
+                while (true)
+                {
+                    addActual(mailbox.getWait());
+                }
+            }
+        });
+    }
+
+    /**
+     * Reports any expected transactions that have been outstanding for longer
+     * than the expiry time. This is done automatically whenever an expected
+     * or actual transaction is added, but may also be called periodically
+     * (such as from a clock edge) to detect expired transactions promptly.
+     */
+    public void expire()
+    {
+        expire(dvSim.getSimTime());
+    }
+
+    private void expire(long now)
+    {
+        if (expiryTime > 0)
+        {
+            // entries are kept in time order, so only the head need be checked
+            while (head != null && now - head.time > expiryTime)
+            {
+                final Entry<K, T> e = head;
+                remove(e);
+                report(ScoreboardMismatch.Kind.EXPIRED, e.key, e.txn, e.time,
+                    null, now);
+            }
+        }
+    }
+
+    /**
+     * Reports any outstanding expected transactions as MISSING and removes
+     * them from the scoreboard. Typically called at the end of simulation.
+     *
+     * @return true if no mismatches of any kind have been reported
+     */
+    public boolean finish()
+    {
+        final long now = dvSim.getSimTime();
+        expire(now);
+        while (head != null)
+        {
+            final Entry<K, T> e = head;
+            remove(e);
+            report(ScoreboardMismatch.Kind.MISSING, e.key, e.txn, e.time, null,
+                now);
+        }
+        return getMismatchCount() == 0;
+    }
+
+    /**
+     * Returns the number of expected transactions added.
+     *
+     * @return the expected transaction count
+     */
+    public long getExpectedCount()
+    {
+        return expectedCount;
+    }
+
+    /**
+     * Returns the number of actual transactions added.
+     *
+     * @return the actual transaction count
+     */
+    public long getActualCount()
+    {
+        return actualCount;
+    }
+
+    /**
+     * Returns the number of actual transactions that matched an expected
+     * transaction.
+     *
+     * @return the match count
+     */
+    public long getMatchCount()
+    {
+        return matchCount;
+    }
+
+    /**
+     * Returns the total number of mismatches of all kinds reported.
+     *
+     * @return the mismatch count
+     */
+    public long getMismatchCount()
+    {
+        long count = 0;
+        for (long c : mismatchCounts)
+        {
+            count += c;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of mismatches of the given kind reported.
+     *
+     * @param kind the mismatch kind
+     * @return the mismatch count for the given kind
+     */
+    public long getMismatchCount(ScoreboardMismatch.Kind kind)
+    {
+        return mismatchCounts[kind.ordinal()];
+    }
+
+    /**
+     * Returns the number of expected transactions currently outstanding.
+     *
+     * @return the outstanding transaction count
+     */
+    public int getOutstandingCount()
+    {
+        return outstandingCount;
+    }
+
+    /**
+     * Returns the maximum number of expected transactions that have been
+     * outstanding at once.
+     *
+     * @return the maximum outstanding transaction count
+     */
+    public int getMaxOutstandingCount()
+    {
+        return maxOutstandingCount;
+    }
+
+    /**
+     * Prints a summary of the scoreboard statistics to the given stream.
+     *
+     * @param out the stream to print to
+     */
+    public void printSummary(PrintStream out)
+    {
+        out.println("Scoreboard " + name + ": " + expectedCount
+            + " expected, " + actualCount + " actual, " + matchCount
+            + " matched, " + outstandingCount + " outstanding (max "
+            + maxOutstandingCount + ")");
+        for (ScoreboardMismatch.Kind kind : ScoreboardMismatch.Kind.values())
+        {
+            final long count = mismatchCounts[kind.ordinal()];
+            if (count > 0)
+            {
+                out.println("  " + kind + ": " + count);
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getName() + "{" + name + "}";
+    }
+
+    private static boolean isUnknownKey(Object key)
+    {
+        return key instanceof BitVector && ((BitVector) key).containsXZ();
+    }
+
+    private static boolean equal(Object a, Object b)
+    {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private boolean matches(T expected, T actual)
+    {
+        if (matchFunction != null)
+        {
+            return matchFunction.matches(expected, actual);
+        }
+        return equal(expected, actual);
+    }
+
+    private Entry<K, T> findInWindow(K key, T txn)
+    {
+        int count = 0;
+        for (Entry<K, T> e = head; e != null && count < windowSize; e = e.next, ++count)
+        {
+            // with a key function, the first entry with an equal key is the
+            // candidate; otherwise, only a matching entry is
+            if (keyFunction != null ? equal(e.key, key) : matches(e.txn, txn))
+            {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    private void remove(Entry<K, T> e)
+    {
+        if (e.prev != null)
+        {
+            e.prev.next = e.next;
+        }
+        else
+        {
+            head = e.next;
+        }
+        if (e.next != null)
+        {
+            e.next.prev = e.prev;
+        }
+        else
+        {
+            tail = e.prev;
+        }
+        e.prev = e.next = null;
+
+        if (keyMap != null)
+        {
+            // entries are only ever removed from the head of their key chain
+            final KeyChain<K, T> chain = keyMap.get(e.key);
+            assert (chain.head == e);
+            chain.head = e.keyNext;
+            if (chain.head == null)
+            {
+                keyMap.remove(e.key);
+            }
+            e.keyNext = null;
+        }
+
+        --outstandingCount;
+    }
+
+    private void report(
+        ScoreboardMismatch.Kind kind,
+        K key,
+        T expected,
+        long expectedTime,
+        T actual,
+        long actualTime)
+    {
+        ++mismatchCounts[kind.ordinal()];
+        if (reportStream != null || !listeners.isEmpty())
+        {
+            final ScoreboardMismatch<K, T> mismatch = new ScoreboardMismatch<K, T>(
+                this, kind, key, expected, expectedTime, actual, actualTime);
+            if (reportStream != null)
+            {
+                reportStream.println(mismatch);
+            }
+            for (ScoreboardListener<K, T> listener : listeners)
+            {
+                listener.notifyMismatch(mismatch);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.dv;
+
+/**
+ * Interface for objects notified of each mismatch detected by a Scoreboard,
+ * as it is detected.
+ * 
+ * @author Trevor Robinson
+ * @param <K> the key type of the scoreboard
+ * @param <T> the transaction type of the scoreboard
+ */
+public interface ScoreboardListener<K, T>
+{
+    /**
+     * Called when the scoreboard detects a mismatch.
+     *
+     * @param mismatch a description of the mismatch
+     */
+    void notifyMismatch(ScoreboardMismatch<K, T> mismatch);
+}
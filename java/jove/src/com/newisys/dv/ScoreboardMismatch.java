@@ -0,0 +1,188 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.dv;
+
+/**
+ * Describes a transaction that a Scoreboard could not match: an actual
+ * transaction that differs from the expected one, an actual transaction with
+ * no corresponding expected transaction, or an expected transaction that was
+ * never matched.
+ * 
+ * @author Trevor Robinson
+ * @param <K> the key type of the scoreboard
+ * @param <T> the transaction type of the scoreboard
+ */
+public final class ScoreboardMismatch<K, T>
+{
+    /**
+     * The kinds of scoreboard mismatches.
+     */
+    public enum Kind
+    {
+        /**
+         * An actual transaction was compared with an expected transaction
+         * and did not match.
+         */
+        MISMATCH,
+
+        /**
+         * An actual transaction had no candidate expected transaction.
+         */
+        UNEXPECTED,
+
+        /**
+         * An expected transaction was not matched within the expiry time.
+         */
+        EXPIRED,
+
+        /**
+         * An expected transaction was still outstanding when the scoreboard
+         * was finished.
+         */
+        MISSING
+    }
+
+    private final Scoreboard<K, T> scoreboard;
+    private final Kind kind;
+    private final K key;
+    private final T expected;
+    private final long expectedTime;
+    private final T actual;
+    private final long actualTime;
+
+    ScoreboardMismatch(
+        Scoreboard<K, T> scoreboard,
+        Kind kind,
+        K key,
+        T expected,
+        long expectedTime,
+        T actual,
+        long actualTime)
+    {
+        this.scoreboard = scoreboard;
+        this.kind = kind;
+        this.key = key;
+        this.expected = expected;
+        this.expectedTime = expectedTime;
+        this.actual = actual;
+        this.actualTime = actualTime;
+    }
+
+    /**
+     * Returns the scoreboard that reported this mismatch.
+     *
+     * @return the Scoreboard
+     */
+    public Scoreboard<K, T> getScoreboard()
+    {
+        return scoreboard;
+    }
+
+    /**
+     * Returns the kind of this mismatch.
+     *
+     * @return the mismatch kind
+     */
+    public Kind getKind()
+    {
+        return kind;
+    }
+
+    /**
+     * Returns the key of the transaction, or null if the scoreboard has no
+     * key function.
+     *
+     * @return the transaction key or null
+     */
+    public K getKey()
+    {
+        return key;
+    }
+
+    /**
+     * Returns the expected transaction, or null for UNEXPECTED mismatches.
+     *
+     * @return the expected transaction or null
+     */
+    public T getExpected()
+    {
+        return expected;
+    }
+
+    /**
+     * Returns the simulation time at which the expected transaction was
+     * added, or -1 for UNEXPECTED mismatches.
+     *
+     * @return the expected transaction time or -1
+     */
+    public long getExpectedTime()
+    {
+        return expectedTime;
+    }
+
+    /**
+     * Returns the actual transaction, or null for EXPIRED and MISSING
+     * mismatches.
+     *
+     * @return the actual transaction or null
+     */
+    public T getActual()
+    {
+        return actual;
+    }
+
+    /**
+     * Returns the simulation time at which the mismatch was detected.
+     *
+     * @return the mismatch time
+     */
+    public long getActualTime()
+    {
+        return actualTime;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuffer buf = new StringBuffer();
+        buf.append(actualTime);
+        buf.append(": ");
+        buf.append(scoreboard.getName());
+        buf.append(": ");
+        buf.append(kind);
+        if (key != null)
+        {
+            buf.append(" key=");
+            buf.append(key);
+        }
+        if (expected != null)
+        {
+            buf.append(" expected=");
+            buf.append(expected);
+            buf.append(" @");
+            buf.append(expectedTime);
+        }
+        if (actual != null)
+        {
+            buf.append(" actual=");
+            buf.append(actual);
+        }
+        return buf.toString();
+    }
+}
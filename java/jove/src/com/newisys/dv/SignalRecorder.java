@@ -0,0 +1,67 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.dv;
+
+/**
+ * Receives the values observed on input signals and driven onto output
+ * signals by a DVSimulation, in simulation time order. A recorder is used to
+ * capture a {@link ReplayLogWriter replay log} of a simulation run, or to
+ * check a replayed run against one.
+ * <p>
+ * All methods are called from the simulator thread.
+ * 
+ * @author Trevor Robinson
+ */
+public interface SignalRecorder
+{
+    /**
+     * Called when an input signal is first monitored, with its initial value,
+     * and whenever its value changes thereafter.
+     *
+     * @param name the name of the signal
+     * @param time the simulation time of the change
+     * @param value the new value of the signal (a Bit, BitVector, Integer, or
+     *            Long)
+     */
+    void inputChanged(String name, long time, Object value);
+
+    /**
+     * Called when an output signal is first prepared for driving.
+     *
+     * @param name the name of the signal
+     * @param width the width of the signal in bits
+     */
+    void outputDeclared(String name, int width);
+
+    /**
+     * Called whenever a scheduled drive of an output signal is executed, even
+     * if the drive does not change the value of the signal.
+     *
+     * @param name the name of the signal
+     * @param time the simulation time of the drive
+     * @param value the new value of the signal
+     */
+    void outputDriven(String name, long time, Object value);
+
+    /**
+     * Called when the simulation finishes. No further methods are called
+     * after this method.
+     */
+    void close();
+}
@@ -0,0 +1,300 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.dv;
+
+/**
+ * Circular buffer of (time, value) entries stored in parallel primitive time
+ * and value slot arrays. Entries are indexed logically from oldest (0) to
+ * newest (size - 1) and are expected to be added in non-decreasing time order,
+ * which allows lookup by time using binary search. Adding and removing entries
+ * does not allocate unless the buffer is explicitly grown.
+ *
+ * @author Trevor Robinson
+ */
+final class TimeValueRing
+{
+    private long[] times;
+    private Object[] values;
+    private int head;
+    private int size;
+
+    /**
+     * Constructs a new, empty ring with the given capacity.
+     *
+     * @param capacity the initial capacity, which must be greater than zero
+     */
+    public TimeValueRing(int capacity)
+    {
+        assert (capacity > 0);
+        times = new long[capacity];
+        values = new Object[capacity];
+    }
+
+    /**
+     * Returns the number of entries this ring can hold without growing.
+     *
+     * @return the capacity of this ring
+     */
+    public int capacity()
+    {
+        return times.length;
+    }
+
+    /**
+     * Returns the number of entries currently in this ring.
+     *
+     * @return the number of entries
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns whether this ring contains no entries.
+     *
+     * @return true if this ring is empty
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Returns whether the number of entries equals the capacity.
+     *
+     * @return true if this ring is full
+     */
+    public boolean isFull()
+    {
+        return size == times.length;
+    }
+
+    private int slot(int index)
+    {
+        assert (index >= 0 && index < size);
+        int i = head + index;
+        return i < times.length ? i : i - times.length;
+    }
+
+    /**
+     * Returns the time of the entry at the given logical index.
+     *
+     * @param index the logical index, where 0 is the oldest entry
+     * @return the time of the entry
+     */
+    public long getTime(int index)
+    {
+        return times[slot(index)];
+    }
+
+    /**
+     * Returns the value of the entry at the given logical index.
+     *
+     * @param index the logical index, where 0 is the oldest entry
+     * @return the value of the entry
+     */
+    public Object getValue(int index)
+    {
+        return values[slot(index)];
+    }
+
+    /**
+     * Replaces the value of the entry at the given logical index, leaving its
+     * time unchanged.
+     *
+     * @param index the logical index, where 0 is the oldest entry
+     * @param value the new value of the entry
+     */
+    public void setValue(int index, Object value)
+    {
+        values[slot(index)] = value;
+    }
+
+    /**
+     * Returns the time of the newest entry.
+     *
+     * @return the time of the newest entry
+     */
+    public long getLastTime()
+    {
+        return getTime(size - 1);
+    }
+
+    /**
+     * Returns the value of the newest entry.
+     *
+     * @return the value of the newest entry
+     */
+    public Object getLastValue()
+    {
+        return getValue(size - 1);
+    }
+
+    /**
+     * Replaces the value of the newest entry in place.
+     *
+     * @param value the new value of the newest entry
+     */
+    public void setLastValue(Object value)
+    {
+        setValue(size - 1, value);
+    }
+
+    /**
+     * Appends an entry as the newest entry, doubling the capacity of this ring
+     * if it is full.
+     *
+     * @param time the time of the entry, which must not be less than the time
+     *            of the current newest entry
+     * @param value the value of the entry
+     */
+    public void add(long time, Object value)
+    {
+        if (size == times.length)
+        {
+            setCapacity(times.length * 2);
+        }
+        append(time, value);
+    }
+
+    /**
+     * Appends an entry as the newest entry, discarding the oldest entry if this
+     * ring is full.
+     *
+     * @param time the time of the entry, which must not be less than the time
+     *            of the current newest entry
+     * @param value the value of the entry
+     */
+    public void push(long time, Object value)
+    {
+        if (size == times.length)
+        {
+            removeFirst();
+        }
+        append(time, value);
+    }
+
+    private void append(long time, Object value)
+    {
+        assert (size == 0 || time >= getLastTime());
+        int i = head + size;
+        if (i >= times.length) i -= times.length;
+        times[i] = time;
+        values[i] = value;
+        ++size;
+    }
+
+    /**
+     * Removes the oldest entry.
+     */
+    public void removeFirst()
+    {
+        assert (size > 0);
+        values[head] = null;
+        if (++head == times.length) head = 0;
+        --size;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear()
+    {
+        while (size > 0)
+        {
+            removeFirst();
+        }
+        head = 0;
+    }
+
+    /**
+     * Returns the logical index of the newest entry whose time is less than or
+     * equal to the given time.
+     *
+     * @param time the time to search for
+     * @return the logical index of the matching entry, or -1 if all entries
+     *         are later than the given time
+     */
+    public int floorIndex(long time)
+    {
+        int lo = 0;
+        int hi = size - 1;
+        while (lo <= hi)
+        {
+            final int mid = (lo + hi) >>> 1;
+            if (getTime(mid) <= time)
+            {
+                lo = mid + 1;
+            }
+            else
+            {
+                hi = mid - 1;
+            }
+        }
+        return hi;
+    }
+
+    /**
+     * Changes the capacity of this ring. If the new capacity is less than the
+     * current size, the oldest entries are discarded.
+     *
+     * @param newCapacity the new capacity, which must be greater than zero
+     */
+    public void setCapacity(int newCapacity)
+    {
+        assert (newCapacity > 0);
+        if (newCapacity != times.length)
+        {
+            final int newSize = Math.min(size, newCapacity);
+            final long[] newTimes = new long[newCapacity];
+            final Object[] newValues = new Object[newCapacity];
+            for (int i = 0, j = size - newSize; i < newSize; ++i, ++j)
+            {
+                final int s = slot(j);
+                newTimes[i] = times[s];
+                newValues[i] = values[s];
+            }
+            times = newTimes;
+            values = newValues;
+            head = 0;
+            size = newSize;
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        StringBuffer buf = new StringBuffer();
+        buf.append('[');
+        for (int i = 0; i < size; ++i)
+        {
+            if (i > 0) buf.append(", ");
+            buf.append(getValue(i));
+            buf.append(" @ ");
+            buf.append(getTime(i));
+        }
+        buf.append(']');
+        return buf.toString();
+    }
+}
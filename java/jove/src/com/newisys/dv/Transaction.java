@@ -0,0 +1,235 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.dv;
+
+import com.newisys.verilog.util.BitVector;
+
+/**
+ * A transaction that has begun on a TransactionStream but not yet ended.
+ * Attributes may be added until the transaction ends, at which point it is
+ * recorded.
+ * 
+ * @author Trevor Robinson
+ */
+public final class Transaction
+{
+    private final TransactionStream stream;
+    private final String name;
+    private final long startTime;
+    private boolean ended;
+
+    private int attrCount;
+    private String[] attrNames;
+    private int[] attrWidths;
+    private BitVector[] attrVectors;
+    private long[] attrLongs;
+
+    Transaction(TransactionStream stream, String name, long startTime)
+    {
+        this.stream = stream;
+        this.name = name;
+        this.startTime = startTime;
+    }
+
+    /**
+     * Returns the stream on which this transaction is recorded.
+     *
+     * @return the TransactionStream
+     */
+    public TransactionStream getStream()
+    {
+        return stream;
+    }
+
+    /**
+     * Returns the name of this transaction.
+     *
+     * @return the transaction name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the start time of this transaction.
+     *
+     * @return the start time
+     */
+    public long getStartTime()
+    {
+        return startTime;
+    }
+
+    /**
+     * Returns whether this transaction has ended.
+     *
+     * @return true if the transaction has ended
+     */
+    public boolean isEnded()
+    {
+        return ended;
+    }
+
+    /**
+     * Adds an attribute with the given BitVector value.
+     *
+     * @param attrName the attribute name
+     * @param value the attribute value
+     * @return this Transaction
+     * @throws IllegalStateException if the transaction has ended
+     */
+    public Transaction addAttribute(String attrName, BitVector value)
+    {
+        final int i = newAttribute(attrName, value.length());
+        attrVectors[i] = value;
+        return this;
+    }
+
+    /**
+     * Adds an attribute with the given integral value, which avoids creating
+     * a BitVector. Only the low-order <code>width</code> bits of the value
+     * are recorded.
+     *
+     * @param attrName the attribute name
+     * @param value the attribute value
+     * @param width the width of the attribute in bits, from 1 to 64
+     * @return this Transaction
+     * @throws IllegalArgumentException if <code>width</code> is not between 1
+     *             and 64
+     * @throws IllegalStateException if the transaction has ended
+     */
+    public Transaction addAttribute(String attrName, long value, int width)
+    {
+        if (width < 1 || width > 64)
+        {
+            throw new IllegalArgumentException("Invalid attribute width: "
+                + width);
+        }
+        final int i = newAttribute(attrName, width);
+        attrVectors[i] = null;
+        attrLongs[i] = width < 64 ? value & ((1L << width) - 1) : value;
+        return this;
+    }
+
+    /**
+     * Ends and records this transaction at the current simulation time.
+     *
+     * @throws IllegalStateException if the transaction has already ended
+     */
+    public void end()
+    {
+        end(stream.getSimTime());
+    }
+
+    /**
+     * Ends and records this transaction at the given simulation time.
+     *
+     * @param endTime the end time of the transaction
+     * @throws IllegalArgumentException if <code>endTime</code> is less than
+     *             the start time
+     * @throws IllegalStateException if the transaction has already ended
+     */
+    public void end(long endTime)
+    {
+        checkNotEnded();
+        stream.getRecorder().checkOpen();
+        stream.append(name, startTime, endTime, this);
+        ended = true;
+    }
+
+    private void checkNotEnded()
+    {
+        if (ended)
+        {
+            throw new IllegalStateException("Transaction " + name
+                + " has already ended");
+        }
+    }
+
+    private int newAttribute(String attrName, int width)
+    {
+        checkNotEnded();
+        if (attrNames == null)
+        {
+            attrNames = new String[4];
+            attrWidths = new int[4];
+            attrVectors = new BitVector[4];
+            attrLongs = new long[4];
+        }
+        else if (attrCount == attrNames.length)
+        {
+            final int newLength = attrCount * 2;
+            final String[] newNames = new String[newLength];
+            System.arraycopy(attrNames, 0, newNames, 0, attrCount);
+            attrNames = newNames;
+            final int[] newWidths = new int[newLength];
+            System.arraycopy(attrWidths, 0, newWidths, 0, attrCount);
+            attrWidths = newWidths;
+            final BitVector[] newVectors = new BitVector[newLength];
+            System.arraycopy(attrVectors, 0, newVectors, 0, attrCount);
+            attrVectors = newVectors;
+            final long[] newLongs = new long[newLength];
+            System.arraycopy(attrLongs, 0, newLongs, 0, attrCount);
+            attrLongs = newLongs;
+        }
+        final int i = attrCount++;
+        attrNames[i] = attrName;
+        attrWidths[i] = width;
+        return i;
+    }
+
+    int getAttributeCount()
+    {
+        return attrCount;
+    }
+
+    String getAttributeName(int i)
+    {
+        return attrNames[i];
+    }
+
+    int getAttributeWidth(int i)
+    {
+        return attrWidths[i];
+    }
+
+    BitVector getAttributeVector(int i)
+    {
+        return attrVectors[i];
+    }
+
+    long getAttributeLong(int i)
+    {
+        return attrLongs[i];
+    }
+
+    int getEncodedSize(int i)
+    {
+        final BitVector value = attrVectors[i];
+        return BitVector.getEncodedSize(attrWidths[i], value != null
+            && value.containsXZ());
+    }
+
+    @Override
+    public String toString()
+    {
+        return stream.getName() + ":" + name + "@" + startTime;
+    }
+}
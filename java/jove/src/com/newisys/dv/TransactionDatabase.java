@@ -0,0 +1,661 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.dv;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.newisys.verilog.util.BitVector;
+
+/**
+ * Reads a transaction database written by {@link TransactionRecorder}.
+ * Transactions are retrieved by time range using {@link #query}, which
+ * returns a Cursor over the transactions of a stream that overlap the range.
+ * <p>
+ * Only the database index is read when the database is opened. Queries use
+ * the per-segment time index to skip segments outside the requested range,
+ * and map only the segments and attribute heap regions they visit, so
+ * recordings much larger than memory can be queried.
+ * <p>
+ * The <code>main</code> method of this class prints the transactions in a
+ * range of simulation time.
+ * 
+ * @author Trevor Robinson
+ */
+public final class TransactionDatabase
+{
+    /**
+     * A stream of transactions in a transaction database.
+     */
+    public static final class Stream
+    {
+        private final String name;
+        private final long recordCount;
+        private final int segmentCount;
+        private final int[] segmentRecordCounts;
+        private final long[] segmentMinStarts;
+        private final long[] segmentMaxEnds;
+
+        // maximum end time of this and all preceding segments
+        private final long[] prefixMaxEnds;
+
+        // minimum start time of this and all following segments
+        private final long[] suffixMinStarts;
+
+        private final RandomAccessFile segmentFile;
+        private final RandomAccessFile heapFile;
+
+        Stream(
+            String name,
+            long recordCount,
+            int segmentCount,
+            DataInputStream in,
+            File segmentPath,
+            File heapPath)
+            throws IOException
+        {
+            this.name = name;
+            this.recordCount = recordCount;
+            this.segmentCount = segmentCount;
+            segmentRecordCounts = new int[segmentCount];
+            segmentMinStarts = new long[segmentCount];
+            segmentMaxEnds = new long[segmentCount];
+            prefixMaxEnds = new long[segmentCount];
+            suffixMinStarts = new long[segmentCount];
+            for (int i = 0; i < segmentCount; ++i)
+            {
+                segmentRecordCounts[i] = ReplayLogFormat.readVarInt(in);
+                segmentMinStarts[i] = in.readLong();
+                segmentMaxEnds[i] = in.readLong();
+                prefixMaxEnds[i] = i > 0 ? Math.max(prefixMaxEnds[i - 1],
+                    segmentMaxEnds[i]) : segmentMaxEnds[i];
+            }
+            for (int i = segmentCount - 1; i >= 0; --i)
+            {
+                suffixMinStarts[i] = i < segmentCount - 1 ? Math.min(
+                    suffixMinStarts[i + 1], segmentMinStarts[i])
+                    : segmentMinStarts[i];
+            }
+            segmentFile = new RandomAccessFile(segmentPath, "r");
+            heapFile = new RandomAccessFile(heapPath, "r");
+        }
+
+        /**
+         * Returns the name of this stream.
+         *
+         * @return the stream name
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * Returns the number of transactions in this stream.
+         *
+         * @return the transaction count
+         */
+        public long getRecordCount()
+        {
+            return recordCount;
+        }
+
+        /**
+         * Returns the earliest start time of any transaction in this stream.
+         *
+         * @return the earliest start time, or Long.MAX_VALUE if the stream is
+         *         empty
+         */
+        public long getMinStartTime()
+        {
+            return segmentCount > 0 ? suffixMinStarts[0] : Long.MAX_VALUE;
+        }
+
+        /**
+         * Returns the latest end time of any transaction in this stream.
+         *
+         * @return the latest end time, or Long.MIN_VALUE if the stream is
+         *         empty
+         */
+        public long getMaxEndTime()
+        {
+            return segmentCount > 0 ? prefixMaxEnds[segmentCount - 1]
+                : Long.MIN_VALUE;
+        }
+
+        /**
+         * Returns the index of the first segment that may contain a
+         * transaction ending at or after the given time.
+         */
+        int findFirstSegment(long startTime)
+        {
+            int lo = 0;
+            int hi = segmentCount;
+            while (lo < hi)
+            {
+                final int mid = (lo + hi) >>> 1;
+                if (prefixMaxEnds[mid] < startTime)
+                {
+                    lo = mid + 1;
+                }
+                else
+                {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        void close()
+            throws IOException
+        {
+            segmentFile.close();
+            heapFile.close();
+        }
+
+        @Override
+        public String toString()
+        {
+            return name;
+        }
+    }
+
+    /**
+     * Iterates over the transactions of a stream that overlap a range of
+     * simulation time, in the order in which they ended. A Cursor is
+     * positioned before the first transaction when created.
+     */
+    public final class Cursor
+    {
+        private final Stream stream;
+        private final long startTime;
+        private final long endTime;
+
+        private int segment;
+        private MappedByteBuffer segmentBuf;
+        private int segmentRecordCount;
+        private int record;
+
+        private long curStartTime;
+        private long curEndTime;
+        private int curNameID;
+        private long curAttrPos;
+
+        // attributes of the current transaction, decoded on demand
+        private boolean attrsDecoded;
+        private int attrCount;
+        private String[] attrNames = new String[0];
+        private BitVector[] attrValues = new BitVector[0];
+
+        Cursor(Stream stream, long startTime, long endTime)
+        {
+            this.stream = stream;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            segment = stream.findFirstSegment(startTime) - 1;
+        }
+
+        /**
+         * Advances to the next transaction in the time range.
+         *
+         * @return true if a transaction was found, false at the end of the
+         *         range
+         * @throws IOException if an I/O error occurs
+         */
+        public boolean next()
+            throws IOException
+        {
+            while (true)
+            {
+                if (record == segmentRecordCount)
+                {
+                    if (!nextSegment())
+                    {
+                        return false;
+                    }
+                }
+                final int i = record++;
+                final long s = segmentBuf
+                    .getLong(TransactionDbFormat.START_COLUMN + i * 8);
+                final long e = segmentBuf
+                    .getLong(TransactionDbFormat.END_COLUMN + i * 8);
+                if (s <= endTime && e >= startTime)
+                {
+                    curStartTime = s;
+                    curEndTime = e;
+                    curNameID = segmentBuf
+                        .getInt(TransactionDbFormat.NAME_COLUMN + i * 4);
+                    curAttrPos = segmentBuf
+                        .getLong(TransactionDbFormat.ATTR_COLUMN + i * 8);
+                    attrsDecoded = false;
+                    return true;
+                }
+            }
+        }
+
+        private boolean nextSegment()
+            throws IOException
+        {
+            segmentBuf = null;
+            while (++segment < stream.segmentCount)
+            {
+                // no later segment contains a transaction starting in range
+                if (stream.suffixMinStarts[segment] > endTime)
+                {
+                    break;
+                }
+                if (stream.segmentMinStarts[segment] <= endTime
+                    && stream.segmentMaxEnds[segment] >= startTime)
+                {
+                    segmentBuf = stream.segmentFile.getChannel().map(
+                        FileChannel.MapMode.READ_ONLY,
+                        (long) segment * TransactionDbFormat.SEGMENT_SIZE,
+                        TransactionDbFormat.SEGMENT_SIZE);
+                    segmentRecordCount = stream.segmentRecordCounts[segment];
+                    record = 0;
+                    return true;
+                }
+            }
+            segment = stream.segmentCount;
+            segmentRecordCount = 0;
+            record = 0;
+            return false;
+        }
+
+        /**
+         * Returns the stream of this cursor.
+         *
+         * @return the Stream
+         */
+        public Stream getStream()
+        {
+            return stream;
+        }
+
+        /**
+         * Returns the name of the current transaction.
+         *
+         * @return the transaction name
+         */
+        public String getName()
+        {
+            return strings[curNameID];
+        }
+
+        /**
+         * Returns the start time of the current transaction.
+         *
+         * @return the start time
+         */
+        public long getStartTime()
+        {
+            return curStartTime;
+        }
+
+        /**
+         * Returns the end time of the current transaction.
+         *
+         * @return the end time
+         */
+        public long getEndTime()
+        {
+            return curEndTime;
+        }
+
+        /**
+         * Returns the number of attributes of the current transaction.
+         *
+         * @return the attribute count
+         * @throws IOException if an I/O error occurs
+         */
+        public int getAttributeCount()
+            throws IOException
+        {
+            decodeAttributes();
+            return attrCount;
+        }
+
+        /**
+         * Returns the name of the given attribute of the current
+         * transaction.
+         *
+         * @param index the attribute index
+         * @return the attribute name
+         * @throws IOException if an I/O error occurs
+         */
+        public String getAttributeName(int index)
+            throws IOException
+        {
+            decodeAttributes();
+            checkAttributeIndex(index);
+            return attrNames[index];
+        }
+
+        /**
+         * Returns the value of the given attribute of the current
+         * transaction.
+         *
+         * @param index the attribute index
+         * @return the attribute value
+         * @throws IOException if an I/O error occurs
+         */
+        public BitVector getAttributeValue(int index)
+            throws IOException
+        {
+            decodeAttributes();
+            checkAttributeIndex(index);
+            return attrValues[index];
+        }
+
+        /**
+         * Returns the value of the attribute of the current transaction with
+         * the given name.
+         *
+         * @param name the attribute name
+         * @return the attribute value, or null if the transaction has no
+         *         attribute with the given name
+         * @throws IOException if an I/O error occurs
+         */
+        public BitVector getAttributeValue(String name)
+            throws IOException
+        {
+            decodeAttributes();
+            for (int i = 0; i < attrCount; ++i)
+            {
+                if (attrNames[i].equals(name))
+                {
+                    return attrValues[i];
+                }
+            }
+            return null;
+        }
+
+        private void checkAttributeIndex(int index)
+        {
+            if (index < 0 || index >= attrCount)
+            {
+                throw new IndexOutOfBoundsException("Invalid attribute index: "
+                    + index);
+            }
+        }
+
+        private void decodeAttributes()
+            throws IOException
+        {
+            if (segmentBuf == null && record == 0)
+            {
+                throw new IllegalStateException("No current transaction");
+            }
+            if (attrsDecoded) return;
+            attrsDecoded = true;
+            attrCount = 0;
+            if (curAttrPos < 0) return;
+
+            final ByteBuffer buf = mapHeap(stream, curAttrPos);
+            attrCount = buf.getInt();
+            if (attrNames.length < attrCount)
+            {
+                attrNames = new String[attrCount];
+                attrValues = new BitVector[attrCount];
+            }
+            for (int i = 0; i < attrCount; ++i)
+            {
+                attrNames[i] = strings[buf.getInt()];
+                final int width = buf.getInt();
+                attrValues[i] = BitVector.read(buf, width);
+            }
+        }
+    }
+
+    private final File dir;
+    private final String[] strings;
+    private final List<Stream> streams;
+    private final Map<String, Stream> streamMap = new HashMap<String, Stream>();
+
+    // most recently mapped attribute heap window
+    private Stream heapStream;
+    private MappedByteBuffer heapWindow;
+    private long heapWindowPos;
+
+    /**
+     * Opens the transaction database in the given directory.
+     *
+     * @param dir the database directory
+     * @throws IOException if the database cannot be read
+     */
+    public TransactionDatabase(File dir)
+        throws IOException
+    {
+        this.dir = dir;
+        final File indexFile = new File(dir, TransactionDbFormat.INDEX_FILE);
+        final DataInputStream in = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(indexFile)));
+        final List<Stream> streamList = new ArrayList<Stream>();
+        try
+        {
+            if (in.readInt() != TransactionDbFormat.MAGIC)
+            {
+                throw new IOException("Not a transaction database: " + dir);
+            }
+            int version = in.readUnsignedByte();
+            if (version != TransactionDbFormat.VERSION)
+            {
+                throw new IOException(
+                    "Unsupported transaction database version: " + version);
+            }
+            strings = new String[ReplayLogFormat.readVarInt(in)];
+            for (int i = 0; i < strings.length; ++i)
+            {
+                strings[i] = in.readUTF();
+            }
+            final int streamCount = ReplayLogFormat.readVarInt(in);
+            for (int i = 0; i < streamCount; ++i)
+            {
+                final String name = strings[ReplayLogFormat.readVarInt(in)];
+                final long recordCount = ReplayLogFormat.readVarLong(in);
+                final int segmentCount = ReplayLogFormat.readVarInt(in);
+                final Stream stream = new Stream(name, recordCount,
+                    segmentCount, in, TransactionDbFormat.getSegmentFile(dir,
+                        i), TransactionDbFormat.getHeapFile(dir, i));
+                streamList.add(stream);
+                streamMap.put(name, stream);
+            }
+        }
+        catch (IOException e)
+        {
+            for (final Stream stream : streamList)
+            {
+                stream.close();
+            }
+            throw e;
+        }
+        finally
+        {
+            in.close();
+        }
+        streams = Collections.unmodifiableList(streamList);
+    }
+
+    /**
+     * Returns the directory of this database.
+     *
+     * @return the database directory
+     */
+    public File getDirectory()
+    {
+        return dir;
+    }
+
+    /**
+     * Returns the streams in this database, in creation order.
+     *
+     * @return an unmodifiable list of Streams
+     */
+    public List<Stream> getStreams()
+    {
+        return streams;
+    }
+
+    /**
+     * Returns the stream with the given name.
+     *
+     * @param name the stream name
+     * @return the Stream with the given name, or null if none exists
+     */
+    public Stream getStream(String name)
+    {
+        return streamMap.get(name);
+    }
+
+    /**
+     * Returns a Cursor over the transactions of the given stream that overlap
+     * the given range of simulation time; that is, the transactions that
+     * start at or before <code>endTime</code> and end at or after
+     * <code>startTime</code>.
+     *
+     * @param stream the stream to query
+     * @param startTime the start of the time range
+     * @param endTime the end of the time range
+     * @return a Cursor positioned before the first matching transaction
+     */
+    public Cursor query(Stream stream, long startTime, long endTime)
+    {
+        return new Cursor(stream, startTime, endTime);
+    }
+
+    /**
+     * Closes the files of this database.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void close()
+        throws IOException
+    {
+        heapWindow = null;
+        heapStream = null;
+        for (final Stream stream : streams)
+        {
+            stream.close();
+        }
+    }
+
+    private ByteBuffer mapHeap(Stream stream, long pos)
+        throws IOException
+    {
+        // map a new window if the entry size or the entry itself is not in
+        // the current window
+        if (!isHeapMapped(stream, pos, 4)
+            || !isHeapMapped(stream, pos, heapWindow.getInt((int) (pos
+                - heapWindowPos))))
+        {
+            final FileChannel channel = stream.heapFile.getChannel();
+            final long size = Math.min(channel.size() - pos,
+                TransactionDbFormat.HEAP_WINDOW_SIZE);
+            heapWindow = channel.map(FileChannel.MapMode.READ_ONLY, pos, size);
+            heapWindowPos = pos;
+            heapStream = stream;
+            final int entrySize = heapWindow.getInt(0);
+            if (entrySize > size)
+            {
+                heapWindow = channel.map(FileChannel.MapMode.READ_ONLY, pos,
+                    entrySize);
+            }
+        }
+        final ByteBuffer buf = heapWindow.duplicate();
+        buf.position((int) (pos - heapWindowPos) + 4);
+        return buf;
+    }
+
+    private boolean isHeapMapped(Stream stream, long pos, int size)
+    {
+        return heapStream == stream && pos >= heapWindowPos
+            && pos + size <= heapWindowPos + heapWindow.capacity();
+    }
+
+    /**
+     * Prints the transactions recorded in a transaction database.
+     * <P>
+     * usage: TransactionDatabase &lt;database directory&gt; [&lt;start
+     * time&gt; [&lt;end time&gt;]]
+     *
+     * @param args the command line arguments
+     * @throws IOException if an I/O error occurs
+     */
+    public static void main(String[] args)
+        throws IOException
+    {
+        if (args.length < 1 || args.length > 3)
+        {
+            System.err.println("Syntax: TransactionDatabase <database dir> "
+                + "[<start time> [<end time>]]");
+            System.exit(1);
+        }
+        final long startTime = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        final long endTime = args.length > 2 ? Long.parseLong(args[2])
+            : Long.MAX_VALUE;
+
+        final TransactionDatabase db = new TransactionDatabase(new File(
+            args[0]));
+        try
+        {
+            final StringBuffer buf = new StringBuffer();
+            for (final Stream stream : db.getStreams())
+            {
+                System.out.println(stream.getName() + ": "
+                    + stream.getRecordCount() + " transactions");
+                final Cursor cursor = db.query(stream, startTime, endTime);
+                while (cursor.next())
+                {
+                    buf.setLength(0);
+                    buf.append("  ");
+                    buf.append(cursor.getStartTime());
+                    buf.append('-');
+                    buf.append(cursor.getEndTime());
+                    buf.append(' ');
+                    buf.append(cursor.getName());
+                    final int attrCount = cursor.getAttributeCount();
+                    for (int i = 0; i < attrCount; ++i)
+                    {
+                        buf.append(' ');
+                        buf.append(cursor.getAttributeName(i));
+                        buf.append('=');
+                        buf.append(cursor.getAttributeValue(i).toString(16));
+                    }
+                    System.out.println(buf);
+                }
+            }
+        }
+        finally
+        {
+            db.close();
+        }
+    }
+}
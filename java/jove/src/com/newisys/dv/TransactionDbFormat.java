@@ -0,0 +1,80 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.dv;
+
+import java.io.File;
+
+/**
+ * Constants shared by TransactionRecorder and TransactionDatabase.
+ * <p>
+ * A transaction database is a directory containing an index file and, for
+ * each stream, a segment file and an attribute heap file:
+ * <ul>
+ * <li>The segment file is a sequence of fixed-size segments, each holding
+ * {@link #SEGMENT_RECORDS} records in columnar form: the start times, the end
+ * times, the name string IDs, and the attribute heap offsets (or -1 if a
+ * record has no attributes) of all records in the segment, in that order.
+ * Times and offsets are 8 bytes; string IDs are 4 bytes.</li>
+ * <li>The attribute heap file contains, for each record with attributes, the
+ * total entry size in bytes, the attribute count, and for each attribute its
+ * name string ID, its width in bits, and its value as written by
+ * {@link com.newisys.verilog.util.BitVector#write(java.nio.ByteBuffer)}.</li>
+ * <li>The index file, written when the recorder is closed, begins with
+ * {@link #MAGIC} and a version byte, followed by the string dictionary (the
+ * string count and each string) and the stream table (the stream count and,
+ * for each stream, its name string ID, record count, segment count, and for
+ * each segment its record count, minimum start time, and maximum end
+ * time).</li>
+ * </ul>
+ * Counts and string IDs in the index file are written as unsigned
+ * variable-length integers. All fixed-size values use big-endian byte order.
+ * 
+ * @author Trevor Robinson
+ */
+final class TransactionDbFormat
+{
+    public static final int MAGIC = 0x4A545844; // JTXD
+    public static final int VERSION = 1;
+
+    public static final String INDEX_FILE = "index.dat";
+
+    public static final int SEGMENT_RECORDS = 4096;
+    public static final int START_COLUMN = 0;
+    public static final int END_COLUMN = START_COLUMN + SEGMENT_RECORDS * 8;
+    public static final int NAME_COLUMN = END_COLUMN + SEGMENT_RECORDS * 8;
+    public static final int ATTR_COLUMN = NAME_COLUMN + SEGMENT_RECORDS * 4;
+    public static final int SEGMENT_SIZE = ATTR_COLUMN + SEGMENT_RECORDS * 8;
+
+    // size of the attribute heap windows mapped at once
+    public static final int HEAP_WINDOW_SIZE = 16 * 1024 * 1024;
+
+    private TransactionDbFormat()
+    {
+    }
+
+    public static File getSegmentFile(File dir, int streamID)
+    {
+        return new File(dir, "stream" + streamID + ".seg");
+    }
+
+    public static File getHeapFile(File dir, int streamID)
+    {
+        return new File(dir, "stream" + streamID + ".heap");
+    }
+}
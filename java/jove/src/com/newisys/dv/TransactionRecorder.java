@@ -0,0 +1,228 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.dv;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records transactions into a transaction database for post-run analysis
+ * using {@link TransactionDatabase}.
+ * <p>
+ * Transactions are recorded on named streams (typically one per bus
+ * functional model or interface). Each transaction has a name, a start and
+ * end simulation time, and any number of named BitVector attributes. Records
+ * are appended to per-stream columnar segments in memory-mapped files, so
+ * recording a transaction involves no system calls or I/O on the simulation
+ * thread in the common case. Transaction and attribute names are stored once
+ * in a string dictionary, so they should be drawn from a small set of values;
+ * per-transaction data belongs in attribute values.
+ * <p>
+ * The string dictionary and the time index of each stream are written when
+ * the recorder is closed; a database whose recorder was not closed cannot be
+ * read. Like Mailboxes, recorders are intended to be called only from
+ * simulation threads.
+ * 
+ * @author Trevor Robinson
+ */
+public final class TransactionRecorder
+{
+    private final DVSimulation dvSim;
+    private final File dir;
+    private final Map<String, Integer> stringIDs = new HashMap<String, Integer>();
+    private final List<String> strings = new ArrayList<String>();
+    private final Map<String, TransactionStream> streamMap = new HashMap<String, TransactionStream>();
+    private final List<TransactionStream> streams = new ArrayList<TransactionStream>();
+    private boolean closed;
+
+    /**
+     * Creates a recorder that writes a new transaction database in the given
+     * directory. The directory is created if necessary; any database already
+     * in the directory is overwritten.
+     *
+     * @param dvSim the DVSimulation providing simulation time
+     * @param dir the database directory
+     * @throws IOException if the directory cannot be created
+     */
+    public TransactionRecorder(DVSimulation dvSim, File dir)
+        throws IOException
+    {
+        this.dvSim = dvSim;
+        this.dir = dir;
+        if (!dir.isDirectory() && !dir.mkdirs())
+        {
+            throw new IOException(
+                "Cannot create transaction database directory: " + dir);
+        }
+
+        // remove the index of any previous database, so that a partial
+        // recording is not read with a stale index
+        final File indexFile = new File(dir, TransactionDbFormat.INDEX_FILE);
+        if (indexFile.exists() && !indexFile.delete())
+        {
+            throw new IOException("Cannot delete transaction database index: "
+                + indexFile);
+        }
+    }
+
+    /**
+     * Returns the database directory of this recorder.
+     *
+     * @return the database directory
+     */
+    public File getDirectory()
+    {
+        return dir;
+    }
+
+    /**
+     * Returns the stream with the given name, creating it if necessary.
+     *
+     * @param name the stream name
+     * @return the TransactionStream with the given name
+     * @throws DVRuntimeException if the stream files cannot be created
+     */
+    public TransactionStream getStream(String name)
+    {
+        checkOpen();
+        TransactionStream stream = streamMap.get(name);
+        if (stream == null)
+        {
+            try
+            {
+                stream = new TransactionStream(this, name, streams.size());
+            }
+            catch (IOException e)
+            {
+                throw new DVRuntimeException(
+                    "Error creating transaction stream: " + name, e);
+            }
+            streamMap.put(name, stream);
+            streams.add(stream);
+        }
+        return stream;
+    }
+
+    /**
+     * Returns the streams created by this recorder, in creation order.
+     *
+     * @return an unmodifiable list of TransactionStreams
+     */
+    public List<TransactionStream> getStreams()
+    {
+        return Collections.unmodifiableList(streams);
+    }
+
+    /**
+     * Returns the total number of transactions recorded on all streams.
+     *
+     * @return the number of transactions recorded
+     */
+    public long getRecordCount()
+    {
+        long count = 0;
+        for (final TransactionStream stream : streams)
+        {
+            count += stream.getRecordCount();
+        }
+        return count;
+    }
+
+    /**
+     * Closes the stream files and writes the database index. Transactions
+     * that have begun but not ended are not recorded. Does nothing if the
+     * recorder is already closed.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void close()
+        throws IOException
+    {
+        if (closed) return;
+        closed = true;
+
+        for (final TransactionStream stream : streams)
+        {
+            stream.close();
+        }
+
+        final DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(new File(dir,
+                TransactionDbFormat.INDEX_FILE))));
+        try
+        {
+            out.writeInt(TransactionDbFormat.MAGIC);
+            out.writeByte(TransactionDbFormat.VERSION);
+            ReplayLogFormat.writeVarLong(out, strings.size());
+            for (final String s : strings)
+            {
+                out.writeUTF(s);
+            }
+            ReplayLogFormat.writeVarLong(out, streams.size());
+            for (final TransactionStream stream : streams)
+            {
+                stream.writeIndex(out);
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    boolean isClosed()
+    {
+        return closed;
+    }
+
+    void checkOpen()
+    {
+        if (closed)
+        {
+            throw new IllegalStateException(
+                "Transaction recorder has been closed");
+        }
+    }
+
+    long getSimTime()
+    {
+        return dvSim.getSimTime();
+    }
+
+    int getStringID(String s)
+    {
+        final Integer id = stringIDs.get(s);
+        if (id != null)
+        {
+            return id.intValue();
+        }
+        final int newID = strings.size();
+        strings.add(s);
+        stringIDs.put(s, newID);
+        return newID;
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.dv;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.newisys.verilog.util.BitVector;
+
+/**
+ * A named sequence of transactions recorded by a TransactionRecorder.
+ * Transactions with attributes are recorded using {@link #begin} and
+ * {@link Transaction#end}; transactions without attributes can be recorded
+ * directly using {@link #record}. Transactions are stored in the order in
+ * which they end, and need not end in the order they began.
+ * 
+ * @author Trevor Robinson
+ */
+public final class TransactionStream
+{
+    private final TransactionRecorder recorder;
+    private final String name;
+    private final int nameID;
+
+    private final RandomAccessFile segmentFile;
+    private final RandomAccessFile heapFile;
+
+    // segment currently being filled, and index of the next record in it
+    private MappedByteBuffer segment;
+    private int segmentRecord = TransactionDbFormat.SEGMENT_RECORDS;
+    private int segmentCount;
+    private long recordCount;
+
+    // time index: record count, minimum start time, and maximum end time of
+    // each segment
+    private int[] segmentRecordCounts = new int[16];
+    private long[] segmentMinStarts = new long[16];
+    private long[] segmentMaxEnds = new long[16];
+
+    // window of the attribute heap file currently being filled
+    private MappedByteBuffer heap;
+    private long heapWindowPos;
+    private long heapPos;
+
+    TransactionStream(TransactionRecorder recorder, String name, int id)
+        throws IOException
+    {
+        this.recorder = recorder;
+        this.name = name;
+        this.nameID = recorder.getStringID(name);
+        segmentFile = new RandomAccessFile(TransactionDbFormat.getSegmentFile(
+            recorder.getDirectory(), id), "rw");
+        segmentFile.setLength(0);
+        heapFile = new RandomAccessFile(TransactionDbFormat.getHeapFile(
+            recorder.getDirectory(), id), "rw");
+        heapFile.setLength(0);
+    }
+
+    /**
+     * Returns the name of this stream.
+     *
+     * @return the stream name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the recorder of this stream.
+     *
+     * @return the TransactionRecorder
+     */
+    public TransactionRecorder getRecorder()
+    {
+        return recorder;
+    }
+
+    /**
+     * Returns the number of transactions recorded on this stream.
+     *
+     * @return the number of transactions recorded
+     */
+    public long getRecordCount()
+    {
+        return recordCount;
+    }
+
+    /**
+     * Begins a transaction at the current simulation time.
+     *
+     * @param txName the transaction name
+     * @return a Transaction to which attributes can be added before it ends
+     */
+    public Transaction begin(String txName)
+    {
+        return begin(txName, recorder.getSimTime());
+    }
+
+    /**
+     * Begins a transaction at the given simulation time.
+     *
+     * @param txName the transaction name
+     * @param startTime the start time of the transaction
+     * @return a Transaction to which attributes can be added before it ends
+     */
+    public Transaction begin(String txName, long startTime)
+    {
+        recorder.checkOpen();
+        return new Transaction(this, txName, startTime);
+    }
+
+    /**
+     * Records a transaction without attributes.
+     *
+     * @param txName the transaction name
+     * @param startTime the start time of the transaction
+     * @param endTime the end time of the transaction
+     * @throws IllegalArgumentException if <code>endTime</code> is less than
+     *             <code>startTime</code>
+     */
+    public void record(String txName, long startTime, long endTime)
+    {
+        recorder.checkOpen();
+        append(txName, startTime, endTime, null);
+    }
+
+    long getSimTime()
+    {
+        return recorder.getSimTime();
+    }
+
+    void append(String txName, long startTime, long endTime, Transaction tx)
+    {
+        if (endTime < startTime)
+        {
+            throw new IllegalArgumentException("Transaction " + txName
+                + " ends (" + endTime + ") before it starts (" + startTime
+                + ")");
+        }
+
+        final long attrPos = tx != null && tx.getAttributeCount() > 0
+            ? appendAttributes(tx) : -1;
+
+        if (segmentRecord == TransactionDbFormat.SEGMENT_RECORDS)
+        {
+            startSegment();
+        }
+        final int i = segmentRecord++;
+        segment.putLong(TransactionDbFormat.START_COLUMN + i * 8, startTime);
+        segment.putLong(TransactionDbFormat.END_COLUMN + i * 8, endTime);
+        segment.putInt(TransactionDbFormat.NAME_COLUMN + i * 4, recorder
+            .getStringID(txName));
+        segment.putLong(TransactionDbFormat.ATTR_COLUMN + i * 8, attrPos);
+
+        final int s = segmentCount - 1;
+        ++segmentRecordCounts[s];
+        if (startTime < segmentMinStarts[s])
+        {
+            segmentMinStarts[s] = startTime;
+        }
+        if (endTime > segmentMaxEnds[s])
+        {
+            segmentMaxEnds[s] = endTime;
+        }
+        ++recordCount;
+    }
+
+    private void startSegment()
+    {
+        if (segmentCount == segmentRecordCounts.length)
+        {
+            final int newLength = segmentCount * 2;
+            segmentRecordCounts = copyOf(segmentRecordCounts, newLength);
+            segmentMinStarts = copyOf(segmentMinStarts, newLength);
+            segmentMaxEnds = copyOf(segmentMaxEnds, newLength);
+        }
+        try
+        {
+            segment = segmentFile.getChannel().map(
+                FileChannel.MapMode.READ_WRITE,
+                (long) segmentCount * TransactionDbFormat.SEGMENT_SIZE,
+                TransactionDbFormat.SEGMENT_SIZE);
+        }
+        catch (IOException e)
+        {
+            throw new DVRuntimeException("Error mapping transaction stream: "
+                + name, e);
+        }
+        segmentMinStarts[segmentCount] = Long.MAX_VALUE;
+        segmentMaxEnds[segmentCount] = Long.MIN_VALUE;
+        ++segmentCount;
+        segmentRecord = 0;
+    }
+
+    private long appendAttributes(Transaction tx)
+    {
+        final int count = tx.getAttributeCount();
+        int size = 8;
+        for (int i = 0; i < count; ++i)
+        {
+            size += 8 + tx.getEncodedSize(i);
+        }
+
+        if (heap == null || heapPos + size > heapWindowPos + heap.capacity())
+        {
+            try
+            {
+                heapWindowPos = heapPos;
+                heap = heapFile.getChannel().map(
+                    FileChannel.MapMode.READ_WRITE, heapPos,
+                    Math.max(TransactionDbFormat.HEAP_WINDOW_SIZE, size));
+            }
+            catch (IOException e)
+            {
+                throw new DVRuntimeException(
+                    "Error mapping transaction stream: " + name, e);
+            }
+        }
+
+        final long pos = heapPos;
+        final ByteBuffer buf = heap;
+        buf.position((int) (pos - heapWindowPos));
+        buf.putInt(size);
+        buf.putInt(count);
+        for (int i = 0; i < count; ++i)
+        {
+            buf.putInt(recorder.getStringID(tx.getAttributeName(i)));
+            buf.putInt(tx.getAttributeWidth(i));
+            final BitVector value = tx.getAttributeVector(i);
+            if (value != null)
+            {
+                value.write(buf);
+            }
+            else
+            {
+                // same encoding as BitVector.write for a value without X/Z
+                final long bits = tx.getAttributeLong(i);
+                buf.put((byte) 0);
+                buf.putInt((int) bits);
+                if (tx.getAttributeWidth(i) > 32)
+                {
+                    buf.putInt((int) (bits >>> 32));
+                }
+            }
+        }
+        heapPos += size;
+        return pos;
+    }
+
+    void close()
+        throws IOException
+    {
+        // release the mappings before truncating the files to their used size
+        segment = null;
+        heap = null;
+        segmentFile.setLength((long) segmentCount
+            * TransactionDbFormat.SEGMENT_SIZE);
+        segmentFile.close();
+        heapFile.setLength(heapPos);
+        heapFile.close();
+    }
+
+    void writeIndex(DataOutput out)
+        throws IOException
+    {
+        ReplayLogFormat.writeVarLong(out, nameID);
+        ReplayLogFormat.writeVarLong(out, recordCount);
+        ReplayLogFormat.writeVarLong(out, segmentCount);
+        for (int i = 0; i < segmentCount; ++i)
+        {
+            ReplayLogFormat.writeVarLong(out, segmentRecordCounts[i]);
+            out.writeLong(segmentMinStarts[i]);
+            out.writeLong(segmentMaxEnds[i]);
+        }
+    }
+
+    private static int[] copyOf(int[] a, int length)
+    {
+        final int[] b = new int[length];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+
+    private static long[] copyOf(long[] a, int length)
+    {
+        final long[] b = new long[length];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getName() + "{" + name + "}";
+    }
+}
@@ -19,28 +19,45 @@
 package com.newisys.dv;
 
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.ListIterator;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * Schedules and steps through events that occur at unique points in time.
+ * Events within a fixed window of the current time are kept in a circular
+ * array indexed directly by time, so scheduling and lookup of near-term events
+ * is constant time. Events beyond the window are kept in a sorted overflow map
+ * and migrate into the array as the current time advances. Events removed
+ * because their time has passed are returned to the factory.
  * 
  * @author Trevor Robinson
  */
 final class UniqueTimeEventScheduler<T extends EventRecord>
 {
-    private final EventRecordFactory< ? extends T> factory;
-    private final LinkedList<T> events;
+    // must be a power of 2
+    private static final int RING_SIZE = 64;
+    private static final int RING_MASK = RING_SIZE - 1;
+
+    private final EventRecordFactory<T> factory;
+    private final EventRecord[] ring;
+    private int ringCount;
+    private final SortedMap<Long, T> overflow;
     private long curTime;
 
-    public UniqueTimeEventScheduler(EventRecordFactory< ? extends T> factory)
+    public UniqueTimeEventScheduler(EventRecordFactory<T> factory)
     {
         this.factory = factory;
-        events = new LinkedList<T>();
+        ring = new EventRecord[RING_SIZE];
+        overflow = new TreeMap<Long, T>();
         curTime = 0;
     }
 
+    @SuppressWarnings("unchecked")
+    private T getRingEvent(long time)
+    {
+        return (T) ring[(int) time & RING_MASK];
+    }
+
     public T getEvent(long time, boolean createNew)
     {
         if (time < curTime)
@@ -48,42 +65,65 @@ final class UniqueTimeEventScheduler<T extends EventRecord>
             throw new IllegalArgumentException("Time is in the past");
         }
 
-        final ListIterator<T> iter = events.listIterator();
-        while (iter.hasNext())
+        if (time - curTime < RING_SIZE)
         {
-            final T cur = iter.next();
-            if (time < cur.time)
-            {
-                // event precedes current record
-                T e = null;
-                if (createNew)
-                {
-                    e = factory.newEvent(time);
-                    iter.previous();
-                    iter.add(e);
-                }
-                return e;
-            }
-            else if (time == cur.time)
+            T e = getRingEvent(time);
+            if (e == null && createNew)
             {
-                // found existing event record
-                return cur;
+                e = factory.newEvent(time);
+                ring[(int) time & RING_MASK] = e;
+                ++ringCount;
             }
+            return e;
         }
 
-        // event succeeds last record
-        T e = null;
-        if (createNew)
+        final Long key = time;
+        T e = overflow.get(key);
+        if (e == null && createNew)
         {
             e = factory.newEvent(time);
-            iter.add(e);
+            overflow.put(key, e);
         }
         return e;
     }
 
-    public List<T> getEventList()
+    /**
+     * Returns the earliest scheduled event at or after the given time.
+     *
+     * @param time the earliest time to consider
+     * @return the next event, or null if no events are scheduled at or after
+     *         the given time
+     */
+    public T getNextEvent(long time)
     {
-        return events;
+        if (time < curTime)
+        {
+            time = curTime;
+        }
+
+        final long ringEnd = curTime + RING_SIZE;
+        if (ringCount > 0)
+        {
+            for (long t = time; t < ringEnd; ++t)
+            {
+                final T e = getRingEvent(t);
+                if (e != null)
+                {
+                    return e;
+                }
+            }
+        }
+
+        if (!overflow.isEmpty())
+        {
+            final SortedMap<Long, T> tail = time > ringEnd ? overflow
+                .tailMap(time) : overflow;
+            if (!tail.isEmpty())
+            {
+                return tail.get(tail.firstKey());
+            }
+        }
+        return null;
     }
 
     public long getCurrentTime()
@@ -93,15 +133,7 @@ final class UniqueTimeEventScheduler<T extends EventRecord>
 
     public T getCurrentEvent()
     {
-        if (!events.isEmpty())
-        {
-            T e = events.getFirst();
-            if (e.time == curTime)
-            {
-                return e;
-            }
-        }
-        return null;
+        return ringCount > 0 ? getRingEvent(curTime) : null;
     }
 
     public void setCurrentTime(long time)
@@ -110,38 +142,98 @@ final class UniqueTimeEventScheduler<T extends EventRecord>
         {
             throw new IllegalArgumentException("Time is in the past");
         }
+
+        // release events in the ring that are now in the past
+        if (ringCount > 0)
+        {
+            final long end = Math.min(time, curTime + RING_SIZE);
+            for (long t = curTime; t < end && ringCount > 0; ++t)
+            {
+                final int slot = (int) t & RING_MASK;
+                final T e = getRingEvent(t);
+                if (e != null)
+                {
+                    ring[slot] = null;
+                    --ringCount;
+                    factory.releaseEvent(e);
+                }
+            }
+        }
         curTime = time;
 
-        Iterator<T> iter = events.iterator();
-        while (iter.hasNext())
+        // release past overflow events and move those now within the window
+        // into the ring
+        if (!overflow.isEmpty())
         {
-            EventRecord cur = iter.next();
-            if (cur.time < curTime)
+            final long ringEnd = curTime + RING_SIZE;
+            final Iterator<T> iter = overflow.values().iterator();
+            while (iter.hasNext())
             {
+                final T e = iter.next();
+                if (e.time >= ringEnd)
+                {
+                    break;
+                }
                 iter.remove();
+                if (e.time < curTime)
+                {
+                    factory.releaseEvent(e);
+                }
+                else
+                {
+                    ring[(int) e.time & RING_MASK] = e;
+                    ++ringCount;
+                }
             }
-            else
+        }
+    }
+
+    public EventRecord advanceTime()
+    {
+        final T e = getNextEvent(curTime + 1);
+        if (e != null)
+        {
+            setCurrentTime(e.time);
+        }
+        else
+        {
+            final T cur = getCurrentEvent();
+            if (cur != null)
             {
-                break;
+                ring[(int) curTime & RING_MASK] = null;
+                --ringCount;
+                factory.releaseEvent(cur);
             }
         }
+        return e;
     }
 
-    public EventRecord advanceTime()
+    /**
+     * Releases all scheduled events and resets the current time to zero.
+     */
+    public void reset()
     {
-        while (!events.isEmpty())
+        if (ringCount > 0)
         {
-            T e = events.getFirst();
-            if (e.time > curTime)
+            for (int i = 0; i < RING_SIZE; ++i)
             {
-                curTime = e.time;
-                return e;
+                final T e = getRingEvent(i);
+                if (e != null)
+                {
+                    ring[i] = null;
+                    factory.releaseEvent(e);
+                }
             }
-            else
+            ringCount = 0;
+        }
+        if (!overflow.isEmpty())
+        {
+            for (final T e : overflow.values())
             {
-                events.removeFirst();
+                factory.releaseEvent(e);
             }
+            overflow.clear();
         }
-        return null;
+        curTime = 0;
     }
 }
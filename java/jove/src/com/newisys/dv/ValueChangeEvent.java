@@ -23,7 +23,10 @@ import com.newisys.verilog.VerilogSimTime;
 import com.newisys.verilog.util.BitVector;
 
 /**
- * Event triggered when a single changes value.
+ * Event triggered when a single changes value. Value change events are
+ * canonical per monitor and mask (see {@link BaseMonitor#getChangeEvent}), so
+ * a single event may have many waiting threads; it listens to its monitor
+ * only while at least one thread is waiting.
  * 
  * @author Trevor Robinson
  */
@@ -31,15 +34,22 @@ abstract class ValueChangeEvent
     extends PulseEvent
     implements ValueChangeListener
 {
+    private final String baseName;
     protected final ValueChangeMonitor monitor;
     protected final BitVector mask;
 
+    // number of threads currently waiting on this event; guarded by this
+    private int waiterCount;
+
+    // descriptive name, built on first use
+    private String name;
+
     public ValueChangeEvent(
         String baseName,
         ValueChangeMonitor monitor,
         BitVector mask)
     {
-        super(getEventName(baseName, monitor, mask));
+        this.baseName = baseName;
         this.monitor = monitor;
         this.mask = mask;
     }
@@ -63,15 +73,22 @@ abstract class ValueChangeEvent
     }
 
     @Override
-    protected void preWait()
+    protected synchronized void preWait()
     {
-        monitor.addListener(this);
+        if (waiterCount++ == 0)
+        {
+            monitor.addListener(this);
+        }
     }
 
     @Override
-    protected void postWait()
+    protected synchronized void postWait()
     {
-        monitor.removeListener(this);
+        assert (waiterCount > 0);
+        if (--waiterCount == 0)
+        {
+            monitor.removeListener(this);
+        }
     }
 
     public BitVector getMask()
@@ -86,4 +103,14 @@ abstract class ValueChangeEvent
             Debug.out.println(this + ": " + value + " @ " + time);
         }
     }
+
+    @Override
+    public String toString()
+    {
+        if (name == null)
+        {
+            name = getEventName(baseName, monitor, mask);
+        }
+        return name;
+    }
 }
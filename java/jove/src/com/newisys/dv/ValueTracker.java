@@ -18,19 +18,21 @@
 
 package com.newisys.dv;
 
-import java.util.LinkedList;
-import java.util.ListIterator;
-
 /**
  * Maintains a sliding window of value change events for a fixed number of
  * discrete time ticks in the past. This class is used by InputMonitor to
- * provide input values at clock edges minus the input skew.
+ * provide input values at clock edges minus the input skew. Value changes are
+ * kept in a {@link TimeValueRing}, so tracking a change does not allocate once
+ * the ring has grown to the steady-state change rate of the signal, and aged
+ * lookups are a binary search by time.
  * 
  * @author Trevor Robinson
  */
 final class ValueTracker
 {
-    private final LinkedList<ValueChangeRecord> valueChanges;
+    private static final int INITIAL_CAPACITY = 4;
+
+    private final TimeValueRing valueChanges;
     private long maxAge;
     private long curTime;
 
@@ -44,8 +46,8 @@ final class ValueTracker
     {
         setMaxAge(maxAge);
         curTime = Long.MIN_VALUE;
-        valueChanges = new LinkedList<ValueChangeRecord>();
-        valueChanges.addLast(new ValueChangeRecord(curTime, null));
+        valueChanges = new TimeValueRing(INITIAL_CAPACITY);
+        valueChanges.add(curTime, null);
     }
 
     /**
@@ -97,7 +99,7 @@ final class ValueTracker
         if (simTime > curTime)
         {
             // time has advanced; add a new record and update the current time
-            valueChanges.addLast(new ValueChangeRecord(simTime, value));
+            valueChanges.add(simTime, value);
             updateCurTime(simTime);
         }
         else if (simTime == curTime)
@@ -105,15 +107,15 @@ final class ValueTracker
             // time has not advanced since the last call to trackChange() or
             // getValue(); if the last value change record is for this tick,
             // just update its value; otherwise, add a new record
-            ValueChangeRecord rec = valueChanges.getLast();
-            if (rec.simTime == simTime)
+            long lastTime = valueChanges.getLastTime();
+            if (lastTime == simTime)
             {
-                rec.value = value;
+                valueChanges.setLastValue(value);
             }
             else
             {
-                assert (simTime > rec.simTime);
-                valueChanges.addLast(new ValueChangeRecord(simTime, value));
+                assert (simTime > lastTime);
+                valueChanges.add(simTime, value);
             }
         }
         else
@@ -158,19 +160,12 @@ final class ValueTracker
                 "Value request time must be greater than or equal to current time");
         }
 
-        // scan for relevant value change record
-        long searchTime = simTime - age;
-        int recCount = valueChanges.size();
-        assert (recCount > 0);
-        ListIterator<ValueChangeRecord> iter = valueChanges
-            .listIterator(recCount);
-        while (iter.hasPrevious())
+        // search for relevant value change record
+        assert (!valueChanges.isEmpty());
+        int index = valueChanges.floorIndex(simTime - age);
+        if (index >= 0)
         {
-            ValueChangeRecord rec = iter.previous();
-            if (rec.simTime <= searchTime)
-            {
-                return rec.value;
-            }
+            return valueChanges.getValue(index);
         }
 
         // maximum tracking age must have been increased, but the corresponding
@@ -194,8 +189,7 @@ final class ValueTracker
         // for this tracker, remove the first record
         while (valueChanges.size() >= 2)
         {
-            ValueChangeRecord rec = valueChanges.get(1);
-            if (curTime - rec.simTime >= maxAge)
+            if (curTime - valueChanges.getTime(1) >= maxAge)
             {
                 valueChanges.removeFirst();
             }
@@ -216,22 +210,4 @@ final class ValueTracker
         return "curTime=" + curTime + "; maxAge=" + maxAge + "; valueChanges="
             + valueChanges;
     }
-
-    private static final class ValueChangeRecord
-    {
-        final long simTime;
-        Object value;
-
-        public ValueChangeRecord(long simTime, Object value)
-        {
-            this.simTime = simTime;
-            this.value = value;
-        }
-
-        @Override
-        public String toString()
-        {
-            return value + " @ " + simTime;
-        }
-    }
 }
@@ -25,6 +25,8 @@ import java.util.List;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
+import com.newisys.jfr.JfrSupport;
+
 /**
  * Implements the various event queues of a Verilog simulator.
  * 
@@ -55,6 +57,44 @@ public class EventScheduler
         return currentTime;
     }
 
+    /**
+     * Sets the current simulation time of an empty scheduler, such as one
+     * that is about to receive the state of another scheduler.
+     *
+     * @param time the new current time
+     * @throws IllegalStateException if any time step has been scheduled
+     */
+    public void setCurrentTime(long time)
+    {
+        if (currentTimeStep != null || !timeStepQueue.isEmpty())
+        {
+            throw new IllegalStateException(
+                "Cannot set time of non-empty event scheduler");
+        }
+        currentTime = time;
+    }
+
+    /**
+     * Returns the events scheduled for future time steps, keyed by absolute
+     * time. Within each time step, events are listed in queue order: active,
+     * inactive, nonblocking assign update, and monitor events. Events of a
+     * time step that has already been processed are not included.
+     *
+     * @return a new map of time to the list of events scheduled at that time
+     */
+    public SortedMap<Long, List<SimulationEvent>> getScheduledEvents()
+    {
+        final SortedMap<Long, List<SimulationEvent>> events = new TreeMap<Long, List<SimulationEvent>>();
+        synchronized (timeStepQueue)
+        {
+            for (final SimulationTimeStep step : timeStepQueue.values())
+            {
+                events.put(step.getTime(), step.getEvents());
+            }
+        }
+        return events;
+    }
+
     /**
      * Request that the EventScheduler leave its processing loop, even if there
      * are events left in the various queues. It will exit on its next iteration
@@ -247,9 +287,17 @@ public class EventScheduler
         // Process the events for this time step.
         if (timeStepQueue.size() != 0)
         {
+            final long prevTime = currentTime;
             currentTime = timeStepQueue.firstKey();
             currentTimeStep = timeStepQueue.remove(currentTime);
+            final Object jfrEvent = JfrSupport.ENABLED ? JfrSupport.RECORDER
+                .beginTimeStep() : null;
             currentTimeStep.processEvents();
+            if (jfrEvent != null)
+            {
+                JfrSupport.RECORDER.commitTimeStep(jfrEvent, currentTime,
+                    currentTime - prevTime);
+            }
         }
     }
 
@@ -125,6 +125,34 @@ public class SimulationTimeStep
         // do nothing
     }
 
+    /**
+     * Returns the events in this time step in queue order.
+     *
+     * @return a new list containing the active, inactive, nonblocking assign
+     *         update, and monitor events of this time step
+     */
+    public List<SimulationEvent> getEvents()
+    {
+        final List<SimulationEvent> events = new LinkedList<SimulationEvent>();
+        synchronized (activeEventQueue)
+        {
+            events.addAll(activeEventQueue);
+        }
+        synchronized (inactiveEventQueue)
+        {
+            events.addAll(inactiveEventQueue);
+        }
+        synchronized (nonblockingAssignUpdateQueue)
+        {
+            events.addAll(nonblockingAssignUpdateQueue);
+        }
+        synchronized (monitorEventQueue)
+        {
+            events.addAll(monitorEventQueue);
+        }
+        return events;
+    }
+
     /**
      * For testing purposes.
      *
@@ -0,0 +1,176 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.eventsim;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Execution statistics collected by a SimulationProfiler for a single
+ * simulation thread or for a group of threads sharing a name prefix.
+ * Instances returned by the profiler are snapshots and are not updated as
+ * the simulation continues.
+ * 
+ * @author Trevor Robinson
+ */
+public final class ProfileStats
+{
+    private final String name;
+    int threadCount;
+    long cpuTime;
+    long activationCount;
+    long simTimeIntervalSum;
+    long simTimeIntervalCount;
+    final Map<Class< ? extends Event>, Long> waitCounts = new HashMap<Class< ? extends Event>, Long>();
+
+    ProfileStats(String name)
+    {
+        this.name = name;
+    }
+
+    ProfileStats(String name, ProfileStats other)
+    {
+        this(name);
+        add(other);
+    }
+
+    /**
+     * Returns the name of the thread, or the name prefix of the thread group,
+     * described by these statistics.
+     *
+     * @return the thread name or name prefix
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the number of threads that contributed to these statistics.
+     *
+     * @return the thread count
+     */
+    public int getThreadCount()
+    {
+        return threadCount;
+    }
+
+    /**
+     * Returns the CPU time, in nanoseconds, consumed by the thread(s) while
+     * in the RUNNING state. If the JVM does not support measuring thread CPU
+     * time, this is elapsed wall-clock time instead.
+     *
+     * @return the CPU time in nanoseconds
+     */
+    public long getCpuTime()
+    {
+        return cpuTime;
+    }
+
+    /**
+     * Returns the number of times the thread(s) were scheduled to run.
+     *
+     * @return the activation count
+     */
+    public long getActivationCount()
+    {
+        return activationCount;
+    }
+
+    /**
+     * Returns the average simulation time between consecutive activations of
+     * a thread, or NaN if no thread was activated more than once.
+     * Simulation time is only available while the simulator interface
+     * reports it to the SimulationManager.
+     *
+     * @return the average simulation time between activations
+     */
+    public double getAverageSimTimeBetweenActivations()
+    {
+        return simTimeIntervalCount > 0 ? (double) simTimeIntervalSum
+            / simTimeIntervalCount : Double.NaN;
+    }
+
+    /**
+     * Returns the number of times the thread(s) blocked in waitFor(),
+     * indexed by the class of the event waited for.
+     *
+     * @return an unmodifiable Map of event class to wait count
+     */
+    public Map<Class< ? extends Event>, Long> getWaitCounts()
+    {
+        return Collections.unmodifiableMap(waitCounts);
+    }
+
+    /**
+     * Returns the total number of times the thread(s) blocked in waitFor().
+     *
+     * @return the total wait count
+     */
+    public long getTotalWaitCount()
+    {
+        long total = 0;
+        for (final Long count : waitCounts.values())
+        {
+            total += count;
+        }
+        return total;
+    }
+
+    void addWait(Class< ? extends Event> eventClass)
+    {
+        final Long count = waitCounts.get(eventClass);
+        waitCounts.put(eventClass, count != null ? count + 1 : 1L);
+    }
+
+    void add(ProfileStats other)
+    {
+        threadCount += other.threadCount;
+        cpuTime += other.cpuTime;
+        activationCount += other.activationCount;
+        simTimeIntervalSum += other.simTimeIntervalSum;
+        simTimeIntervalCount += other.simTimeIntervalCount;
+        for (final Map.Entry<Class< ? extends Event>, Long> entry : other.waitCounts
+            .entrySet())
+        {
+            final Class< ? extends Event> eventClass = entry.getKey();
+            final Long count = waitCounts.get(eventClass);
+            waitCounts.put(eventClass, count != null ? count
+                + entry.getValue() : entry.getValue());
+        }
+    }
+
+    void clear()
+    {
+        cpuTime = 0;
+        activationCount = 0;
+        simTimeIntervalSum = 0;
+        simTimeIntervalCount = 0;
+        waitCounts.clear();
+    }
+
+    @Override
+    public String toString()
+    {
+        return name + "[threads=" + threadCount + ", cpuTime=" + cpuTime
+            + ", activations=" + activationCount + ", waits="
+            + getTotalWaitCount() + "]";
+    }
+}
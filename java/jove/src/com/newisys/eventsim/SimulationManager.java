@@ -31,6 +31,7 @@ import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.newisys.jfr.JfrSupport;
 import com.newisys.random.PRNG;
 import com.newisys.random.PRNGFactory;
 import com.newisys.random.PRNGFactoryFactory;
@@ -216,6 +217,18 @@ public class SimulationManager
     // mapping of events to meta events waiting on them
     final MetaEventMap metaEventMap = new MetaEventMap();
 
+    // simulation time as last reported by the simulator interface; only
+    // maintained while isSimTimeTracked() returns true
+    private volatile long simTime;
+
+    // profiler observing thread activations, or null if profiling is
+    // disabled; read without locking on every thread switch
+    volatile SimulationProfiler profiler;
+
+    // enables profiling (with a report on termination) for all managers
+    private static final boolean PROFILE = Boolean.getBoolean(pkgName
+        + ".profile");
+
     /**
      * Constructs a new simulation manager with the default name, random
      * factory, and seed source.
@@ -267,6 +280,35 @@ public class SimulationManager
         this.managerThread = Thread.currentThread();
         this.threadMarshaller = new ThreadMarshaller(managerThread,
             new SimulationEventSynchronizer());
+        if (PROFILE)
+        {
+            setProfilingEnabled(true).setReportStream(System.err);
+        }
+    }
+
+    /**
+     * Returns a copy of the random number generator used to seed top-level
+     * thread random number generators, in its current state. Seeding a new
+     * simulation manager with the copy causes its top-level threads to receive
+     * the same random streams as subsequently forked top-level threads of this
+     * manager.
+     *
+     * @return a copy of the seed source of this simulation manager
+     */
+    public PRNG copySeedSource()
+    {
+        return seedSource.clone();
+    }
+
+    /**
+     * Returns the factory used to create random number generators for
+     * top-level threads.
+     *
+     * @return the default random factory of this simulation manager
+     */
+    public PRNGFactory getDefaultRandomFactory()
+    {
+        return defRandomFactory;
     }
 
     /**
@@ -292,6 +334,82 @@ public class SimulationManager
         return threadMarshaller;
     }
 
+    /**
+     * Returns whether the simulator interface should report the current
+     * simulation time using setSimTime(). Reporting is only needed while
+     * thread switches are being recorded or profiled, since the manager
+     * itself has no notion of time.
+     *
+     * @return true iff setSimTime() should be called as time advances
+     */
+    public boolean isSimTimeTracked()
+    {
+        return profiler != null
+            || (JfrSupport.ENABLED && JfrSupport.RECORDER
+                .isThreadSwitchEnabled());
+    }
+
+    /**
+     * Records the current simulation time, for use in instrumentation. This
+     * method is called by the simulator interface before executing threads
+     * for a new time.
+     *
+     * @param simTime the current simulation time
+     */
+    public void setSimTime(long simTime)
+    {
+        this.simTime = simTime;
+    }
+
+    /**
+     * Returns the simulation time last reported using setSimTime().
+     *
+     * @return the last reported simulation time
+     */
+    public long getSimTime()
+    {
+        return simTime;
+    }
+
+    /**
+     * Enables or disables profiling of the threads of this manager. Enabling
+     * profiling creates a new SimulationProfiler and registers it as an
+     * MBean; disabling it unregisters and discards the current profiler.
+     * Threads that are already running are profiled from their next
+     * activation. When profiling is disabled, thread switches incur no
+     * profiling overhead beyond a volatile read.
+     *
+     * @param enabled whether profiling should be enabled
+     * @return the current profiler, or null if profiling is disabled
+     */
+    public synchronized SimulationProfiler setProfilingEnabled(boolean enabled)
+    {
+        SimulationProfiler p = profiler;
+        if (enabled && p == null)
+        {
+            p = new SimulationProfiler(this);
+            p.registerMBean();
+            profiler = p;
+        }
+        else if (!enabled && p != null)
+        {
+            profiler = null;
+            p.unregisterMBean();
+            p = null;
+        }
+        return p;
+    }
+
+    /**
+     * Returns the profiler for the threads of this manager.
+     *
+     * @return the current profiler, or null if profiling is disabled
+     */
+    public SimulationProfiler getProfiler()
+    {
+        return profiler;
+    }
+
     // SimulationThread interface
 
     /**
@@ -469,6 +587,7 @@ public class SimulationManager
         if (terminateThreadsCalled)
         {
             waitForThreadsTerminated();
+            reportProfile();
         }
 
         logger.exiting(getClass().getName(), "executeThreads");
@@ -505,9 +624,22 @@ public class SimulationManager
         // cause an ThreadTerminatedException to be thrown)
         waitForThreadsTerminated();
 
+        // a simulation thread will not get here, so the report is printed
+        // by executeThreads() in that case
+        reportProfile();
+
         logger.exiting(getClass().getName(), "terminateThreads");
     }
 
+    private void reportProfile()
+    {
+        final SimulationProfiler p = profiler;
+        if (p != null)
+        {
+            p.threadsTerminated();
+        }
+    }
+
     private void waitForThreadsTerminated()
     {
         waitLabel: while (true)
@@ -655,6 +787,11 @@ public class SimulationManager
     {
         logger.entering(getClass().getName(), "notifyOf", e);
 
+        final Object jfrEvent = JfrSupport.ENABLED ? JfrSupport.RECORDER
+            .beginNotify() : null;
+        int threadsWoken = 0;
+        int metaEvents = 0;
+
         // mark the event as having occurred
         e.setOccurred(true);
 
@@ -669,6 +806,7 @@ public class SimulationManager
                 // remove the thread set from the event map;
                 // new waits will go into a new thread set
                 eventThreadsMap.removeThreads(e);
+                threadsWoken = threadSet.size();
 
                 // change all threads in set to PENDING
                 for (final SimulationThread t : threadSet)
@@ -689,6 +827,8 @@ public class SimulationManager
             final Set<MetaEvent> metaEventSet = metaEventMap.getMetaEvents(e);
             if (metaEventSet != null)
             {
+                metaEvents = metaEventSet.size();
+
                 // NOTE: meta events are notified in two phases, to handle
                 // the case where one meta event contains another meta event
                 // waiting for the same event
@@ -727,6 +867,12 @@ public class SimulationManager
             }
         }
 
+        if (jfrEvent != null)
+        {
+            JfrSupport.RECORDER.commitNotify(jfrEvent, e, threadsWoken,
+                metaEvents);
+        }
+
         logger.exiting(getClass().getName(), "notifyOf", e);
     }
 
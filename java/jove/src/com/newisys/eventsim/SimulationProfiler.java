@@ -0,0 +1,525 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.eventsim;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Collects per-thread execution statistics for the threads of a
+ * SimulationManager: CPU time while RUNNING, number of activations, number
+ * of waitFor() blocks by event class, and average simulation time between
+ * activations. Statistics are also aggregated by thread name prefix (see
+ * {@link #getNamePrefix(String)}), so that all instances of a transactor can
+ * be compared with each other.
+ * <p>
+ * A profiler is created using SimulationManager.setProfilingEnabled(). Setting
+ * the system property <code>com.newisys.eventsim.profile</code> to true
+ * enables profiling for every SimulationManager, with a report printed to
+ * System.err when its threads are terminated. While enabled, the
+ * profiler is registered as an MBean named
+ * <code>com.newisys.eventsim:type=SimulationProfiler,name=&lt;manager&gt;</code>.
+ * <p>
+ * Statistics for terminated threads are folded into their group totals. The
+ * individual statistics of only the most recently terminated threads are
+ * retained, up to a configurable limit.
+ * 
+ * @author Trevor Robinson
+ */
+public final class SimulationProfiler
+    implements SimulationProfilerMBean
+{
+    private static final ThreadMXBean threadBean = ManagementFactory
+        .getThreadMXBean();
+    private static final boolean cpuTimeSupported;
+    static
+    {
+        boolean supported = threadBean.isCurrentThreadCpuTimeSupported();
+        if (supported && !threadBean.isThreadCpuTimeEnabled())
+        {
+            try
+            {
+                threadBean.setThreadCpuTimeEnabled(true);
+            }
+            catch (UnsupportedOperationException e)
+            {
+                supported = false;
+            }
+        }
+        cpuTimeSupported = supported;
+    }
+
+    private static final Comparator<ProfileStats> cpuTimeComparator = new Comparator<ProfileStats>()
+    {
+        public int compare(ProfileStats o1, ProfileStats o2)
+        {
+            return o1.cpuTime < o2.cpuTime ? 1 : o1.cpuTime > o2.cpuTime ? -1
+                : o1.getName().compareTo(o2.getName());
+        }
+    };
+
+    private final SimulationManager manager;
+    private final Set<ThreadProfile> liveProfiles = new LinkedHashSet<ThreadProfile>();
+    private final LinkedList<ProfileStats> terminatedProfiles = new LinkedList<ProfileStats>();
+    private final Map<String, ProfileStats> terminatedGroups = new HashMap<String, ProfileStats>();
+    private int maxRetainedThreads = 1000;
+    private PrintStream reportStream;
+    private long reportedActivationCount = -1;
+    private ObjectName objectName;
+
+    SimulationProfiler(SimulationManager manager)
+    {
+        this.manager = manager;
+    }
+
+    /**
+     * Returns the SimulationManager whose threads this profiler observes.
+     *
+     * @return the SimulationManager for this profiler
+     */
+    public SimulationManager getManager()
+    {
+        return manager;
+    }
+
+    /**
+     * Returns whether CPU times reported by this profiler are thread CPU
+     * times. If false, they are elapsed wall-clock times.
+     *
+     * @return true iff thread CPU time measurement is supported
+     */
+    public static boolean isCpuTimeSupported()
+    {
+        return cpuTimeSupported;
+    }
+
+    /**
+     * Returns the maximum number of terminated threads whose individual
+     * statistics are retained.
+     *
+     * @return the maximum number of retained terminated threads
+     */
+    public synchronized int getMaxRetainedThreads()
+    {
+        return maxRetainedThreads;
+    }
+
+    /**
+     * Sets the maximum number of terminated threads whose individual
+     * statistics are retained. Terminated threads beyond this limit are still
+     * included in the group statistics.
+     *
+     * @param maxRetainedThreads the maximum number of retained threads
+     */
+    public synchronized void setMaxRetainedThreads(int maxRetainedThreads)
+    {
+        if (maxRetainedThreads < 0)
+        {
+            throw new IllegalArgumentException(
+                "Maximum retained threads must be non-negative");
+        }
+        this.maxRetainedThreads = maxRetainedThreads;
+        trimTerminatedProfiles();
+    }
+
+    /**
+     * Returns the stream to which a report is printed when the manager
+     * terminates all threads, or null if no report is printed.
+     *
+     * @return the report stream or null
+     */
+    public synchronized PrintStream getReportStream()
+    {
+        return reportStream;
+    }
+
+    /**
+     * Sets the stream to which a report is printed when the manager
+     * terminates all threads.
+     *
+     * @param reportStream the report stream, or null to print no report
+     */
+    public synchronized void setReportStream(PrintStream reportStream)
+    {
+        this.reportStream = reportStream;
+    }
+
+    /**
+     * Returns the prefix of the given thread name used to group threads.
+     * This is the name with any trailing digits and separator characters
+     * (<code>-_.#:[]() </code>) removed, so that threads named
+     * <code>ahbMaster[0]</code> and <code>ahbMaster[1]</code>, or
+     * <code>SimulationThread-1</code> and <code>SimulationThread-2</code>,
+     * share a group. A name consisting only of such characters is its own
+     * prefix.
+     *
+     * @param name a thread name
+     * @return the prefix of the name
+     */
+    public static String getNamePrefix(String name)
+    {
+        int end = name.length();
+        while (end > 0)
+        {
+            final char c = name.charAt(end - 1);
+            if (!Character.isDigit(c) && "-_.#:[]() ".indexOf(c) < 0) break;
+            --end;
+        }
+        return end > 0 ? name.substring(0, end) : name;
+    }
+
+    private static long currentTime()
+    {
+        return cpuTimeSupported ? threadBean.getCurrentThreadCpuTime()
+            : System.nanoTime();
+    }
+
+    /**
+     * Called by the given thread when it enters the RUNNING state.
+     *
+     * @param t the current simulation thread
+     */
+    void threadActivated(SimulationThread t)
+    {
+        ThreadProfile profile = t.profile;
+        if (profile == null || profile.profiler != this)
+        {
+            profile = new ThreadProfile(this, t.getName());
+            synchronized (this)
+            {
+                liveProfiles.add(profile);
+            }
+            t.profile = profile;
+        }
+        profile.activated(currentTime(), manager.getSimTime());
+    }
+
+    /**
+     * Called by the given thread when it leaves the RUNNING state.
+     *
+     * @param t the current simulation thread
+     * @param blockingEvent the event the thread is about to wait for, or null
+     *            if it is yielding
+     */
+    void threadDeactivated(SimulationThread t, Event blockingEvent)
+    {
+        final ThreadProfile profile = t.profile;
+        if (profile != null && profile.profiler == this)
+        {
+            profile.deactivated(currentTime(), blockingEvent);
+        }
+    }
+
+    /**
+     * Called by the given thread just before it enters the TERMINATED state.
+     *
+     * @param t the current simulation thread
+     */
+    void threadTerminated(SimulationThread t)
+    {
+        final ThreadProfile profile = t.profile;
+        if (profile != null && profile.profiler == this)
+        {
+            profile.terminated(currentTime());
+            synchronized (this)
+            {
+                if (liveProfiles.remove(profile))
+                {
+                    final ProfileStats stats = profile.getSnapshot();
+                    addToGroup(terminatedGroups, stats);
+                    terminatedProfiles.add(stats);
+                    trimTerminatedProfiles();
+                }
+            }
+        }
+    }
+
+    /**
+     * Called by the manager after all threads have been terminated. The
+     * report is not repeated if no thread has run since it was last printed.
+     */
+    void threadsTerminated()
+    {
+        final PrintStream out = getReportStream();
+        if (out != null)
+        {
+            final long activationCount = getTotalActivationCount();
+            synchronized (this)
+            {
+                if (activationCount == reportedActivationCount) return;
+                reportedActivationCount = activationCount;
+            }
+            printReport(out);
+        }
+    }
+
+    private void trimTerminatedProfiles()
+    {
+        while (terminatedProfiles.size() > maxRetainedThreads)
+        {
+            terminatedProfiles.removeFirst();
+        }
+    }
+
+    private static void addToGroup(
+        Map<String, ProfileStats> groups,
+        ProfileStats stats)
+    {
+        final String prefix = getNamePrefix(stats.getName());
+        final ProfileStats group = groups.get(prefix);
+        if (group == null)
+        {
+            groups.put(prefix, new ProfileStats(prefix, stats));
+        }
+        else
+        {
+            group.add(stats);
+        }
+    }
+
+    /**
+     * Returns statistics for each live thread and each retained terminated
+     * thread, ordered by decreasing CPU time.
+     *
+     * @return a List of ProfileStats snapshots
+     */
+    public List<ProfileStats> getThreadProfiles()
+    {
+        final List<ProfileStats> result;
+        synchronized (this)
+        {
+            result = new ArrayList<ProfileStats>(terminatedProfiles.size()
+                + liveProfiles.size());
+            result.addAll(terminatedProfiles);
+            for (final ThreadProfile profile : liveProfiles)
+            {
+                result.add(profile.getSnapshot());
+            }
+        }
+        Collections.sort(result, cpuTimeComparator);
+        return result;
+    }
+
+    /**
+     * Returns statistics aggregated by thread name prefix, over all threads
+     * profiled, ordered by decreasing CPU time.
+     *
+     * @return a List of ProfileStats snapshots
+     */
+    public List<ProfileStats> getGroupProfiles()
+    {
+        final Map<String, ProfileStats> groups = new HashMap<String, ProfileStats>();
+        synchronized (this)
+        {
+            for (final ProfileStats stats : terminatedGroups.values())
+            {
+                groups.put(stats.getName(), new ProfileStats(stats.getName(),
+                    stats));
+            }
+            for (final ThreadProfile profile : liveProfiles)
+            {
+                addToGroup(groups, profile.getSnapshot());
+            }
+        }
+        final List<ProfileStats> result = new ArrayList<ProfileStats>(groups
+            .values());
+        Collections.sort(result, cpuTimeComparator);
+        return result;
+    }
+
+    /**
+     * Returns statistics aggregated over all threads profiled.
+     *
+     * @return a ProfileStats snapshot
+     */
+    public ProfileStats getTotalProfile()
+    {
+        final ProfileStats total = new ProfileStats(manager.toString());
+        for (final ProfileStats group : getGroupProfiles())
+        {
+            total.add(group);
+        }
+        return total;
+    }
+
+    public int getThreadCount()
+    {
+        return getTotalProfile().getThreadCount();
+    }
+
+    public long getTotalCpuTime()
+    {
+        return getTotalProfile().getCpuTime();
+    }
+
+    public long getTotalActivationCount()
+    {
+        return getTotalProfile().getActivationCount();
+    }
+
+    public String[] getGroupSummaries()
+    {
+        final List<ProfileStats> groups = getGroupProfiles();
+        final String[] result = new String[groups.size()];
+        for (int i = 0; i < result.length; ++i)
+        {
+            result[i] = formatStats(groups.get(i));
+        }
+        return result;
+    }
+
+    public String getReport()
+    {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final PrintStream out = new PrintStream(bos);
+        printReport(out);
+        out.flush();
+        return bos.toString();
+    }
+
+    /**
+     * Prints a report of the group and per-thread statistics to the given
+     * stream.
+     *
+     * @param out the stream to print to
+     */
+    public void printReport(PrintStream out)
+    {
+        out.println("Simulation profile for " + manager + " ("
+            + (cpuTimeSupported ? "CPU" : "wall-clock") + " time):");
+        final String header = String.format("  %-32s %7s %12s %11s %12s  %s",
+            "Name", "Threads", "Time (ms)", "Activations", "Avg sim time",
+            "Waits");
+        out.println(header);
+        for (final ProfileStats stats : getGroupProfiles())
+        {
+            out.println("  " + formatStats(stats));
+        }
+        out.println("Threads:");
+        out.println(header);
+        for (final ProfileStats stats : getThreadProfiles())
+        {
+            out.println("  " + formatStats(stats));
+        }
+    }
+
+    private static String formatStats(ProfileStats stats)
+    {
+        final Map<String, Long> waits = new TreeMap<String, Long>();
+        for (final Map.Entry<Class< ? extends Event>, Long> entry : stats.waitCounts
+            .entrySet())
+        {
+            waits.put(entry.getKey().getSimpleName(), entry.getValue());
+        }
+        final StringBuffer buf = new StringBuffer();
+        for (final Map.Entry<String, Long> entry : waits.entrySet())
+        {
+            if (buf.length() > 0) buf.append(' ');
+            buf.append(entry.getKey());
+            buf.append('=');
+            buf.append(entry.getValue());
+        }
+        return String.format("%-32s %7d %12.3f %11d %12.1f  %s", stats
+            .getName(), stats.getThreadCount(), stats.getCpuTime() / 1e6,
+            stats.getActivationCount(), stats
+                .getAverageSimTimeBetweenActivations(), buf);
+    }
+
+    public void reset()
+    {
+        synchronized (this)
+        {
+            terminatedProfiles.clear();
+            terminatedGroups.clear();
+            reportedActivationCount = -1;
+            for (final ThreadProfile profile : liveProfiles)
+            {
+                profile.reset();
+            }
+        }
+    }
+
+    /**
+     * Registers this profiler with the platform MBean server. Failures are
+     * logged and otherwise ignored.
+     */
+    synchronized void registerMBean()
+    {
+        try
+        {
+            final MBeanServer server = ManagementFactory
+                .getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(
+                "com.newisys.eventsim:type=SimulationProfiler,name="
+                    + ObjectName.quote(manager.toString()));
+            server.registerMBean(this, name);
+            objectName = name;
+        }
+        catch (JMException e)
+        {
+            SimulationManager.logger.log(Level.WARNING,
+                "Unable to register simulation profiler MBean", e);
+        }
+    }
+
+    /**
+     * Unregisters this profiler from the platform MBean server, if it was
+     * registered.
+     */
+    synchronized void unregisterMBean()
+    {
+        if (objectName != null)
+        {
+            try
+            {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+                    objectName);
+            }
+            catch (JMException e)
+            {
+                SimulationManager.logger.log(Level.WARNING,
+                    "Unable to unregister simulation profiler MBean", e);
+            }
+            objectName = null;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SimulationProfiler[" + manager + "]";
+    }
+}
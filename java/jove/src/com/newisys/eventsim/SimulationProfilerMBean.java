@@ -0,0 +1,69 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.eventsim;
+
+/**
+ * JMX management interface for SimulationProfiler.
+ * 
+ * @author Trevor Robinson
+ */
+public interface SimulationProfilerMBean
+{
+    /**
+     * Returns the number of threads that have been profiled.
+     *
+     * @return the profiled thread count
+     */
+    int getThreadCount();
+
+    /**
+     * Returns the total CPU time, in nanoseconds, consumed by all profiled
+     * threads while running.
+     *
+     * @return the total CPU time in nanoseconds
+     */
+    long getTotalCpuTime();
+
+    /**
+     * Returns the total number of thread activations.
+     *
+     * @return the total activation count
+     */
+    long getTotalActivationCount();
+
+    /**
+     * Returns one summary line per thread name prefix, ordered by decreasing
+     * CPU time.
+     *
+     * @return an array of group summaries
+     */
+    String[] getGroupSummaries();
+
+    /**
+     * Returns the formatted profile report.
+     *
+     * @return the report text
+     */
+    String getReport();
+
+    /**
+     * Discards all statistics collected so far.
+     */
+    void reset();
+}
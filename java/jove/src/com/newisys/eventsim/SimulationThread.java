@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 
+import com.newisys.jfr.JfrSupport;
 import com.newisys.random.PRNG;
 import com.newisys.random.PRNGFactory;
 
@@ -151,6 +152,7 @@ public final class SimulationThread
     final Thread thread;
     Event blockingEvent;
     Throwable unhandledException;
+    ThreadProfile profile;
 
     /**
      * Constructs a new simulation thread.
@@ -240,6 +242,9 @@ public final class SimulationThread
         // notify joining threads
         manager.notifyOf(joinEvent);
 
+        final SimulationProfiler profiler = manager.profiler;
+        if (profiler != null) profiler.threadTerminated(this);
+
         // mark the thread as TERMINATED; at this point,
         // the next pending thread can begin to run
         setState(ThreadState.TERMINATED);
@@ -261,6 +266,8 @@ public final class SimulationThread
                 // wait for state to change to RUNNING
                 waitForState(ThreadState.RUNNING, false);
 
+                profileActivated();
+
                 // execute the user code
                 target.run();
             }
@@ -520,10 +527,20 @@ public final class SimulationThread
 
         assert (Thread.currentThread() == thread);
 
+        final Object jfrEvent = JfrSupport.ENABLED ? beginSwitchEvent()
+            : null;
+
+        final SimulationProfiler profiler = manager.profiler;
+        if (profiler != null) profiler.threadDeactivated(this, null);
+
         manager.pushPendingThread(this);
         setState(ThreadState.PENDING);
         waitForState(ThreadState.RUNNING, false);
 
+        if (jfrEvent != null) commitSwitchEvent(jfrEvent, null);
+
+        profileActivated();
+
         logger.exiting(getClass().getName(), "yield");
     }
 
@@ -542,6 +559,7 @@ public final class SimulationThread
         assert (Thread.currentThread() == thread);
 
         boolean blocked = false;
+        Object jfrEvent = null;
         synchronized (manager.eventThreadsMap)
         {
             if (!e.hasOccurred())
@@ -562,6 +580,13 @@ public final class SimulationThread
                 // notify event that we are about to wait on it
                 e.preWait();
 
+                // sample the simulation time before the scheduler can
+                // advance it
+                if (JfrSupport.ENABLED) jfrEvent = beginSwitchEvent();
+
+                final SimulationProfiler profiler = manager.profiler;
+                if (profiler != null) profiler.threadDeactivated(this, e);
+
                 // mark the thread as blocked
                 blocked = true;
                 blockingEvent = e;
@@ -576,6 +601,8 @@ public final class SimulationThread
             try
             {
                 waitForState(ThreadState.RUNNING, false);
+                if (jfrEvent != null) commitSwitchEvent(jfrEvent, e);
+                profileActivated();
             }
             catch (ThreadInterruptedException exception)
             {
@@ -584,6 +611,7 @@ public final class SimulationThread
 
                 // like it or not, we're running now
                 setState(ThreadState.RUNNING);
+                profileActivated();
 
                 throw exception;
             }
@@ -597,6 +625,39 @@ public final class SimulationThread
         logger.exiting(getClass().getName(), "waitFor", e);
     }
 
+    /**
+     * Notifies the profiler, if any, that this thread has resumed running.
+     */
+    private void profileActivated()
+    {
+        final SimulationProfiler profiler = manager.profiler;
+        if (profiler != null) profiler.threadActivated(this);
+    }
+
+    /**
+     * Begins a thread switch event at the current simulation time, or returns
+     * null if the event is not being recorded.
+     *
+     * @return an event to pass to commitSwitchEvent(), or null
+     */
+    private Object beginSwitchEvent()
+    {
+        return JfrSupport.RECORDER.beginThreadSwitch(manager.getSimTime());
+    }
+
+    /**
+     * Commits a thread switch event begun by beginSwitchEvent().
+     *
+     * @param event the event returned by beginSwitchEvent()
+     * @param blockingEvent the event this thread waited for, or null if it
+     *            yielded
+     */
+    private void commitSwitchEvent(Object event, Event blockingEvent)
+    {
+        JfrSupport.RECORDER.commitThreadSwitch(event, getName(),
+            blockingEvent, manager.getSimTime());
+    }
+
     /**
      * If this thread is waiting on an event, this method removes it from the
      * event mapping tables.
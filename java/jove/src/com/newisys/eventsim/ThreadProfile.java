@@ -0,0 +1,98 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.eventsim;
+
+/**
+ * Accumulates profiling statistics for a single simulation thread. The
+ * owning thread updates its profile as it enters and leaves the RUNNING
+ * state; the profiler may take snapshots concurrently from other threads.
+ * 
+ * @author Trevor Robinson
+ */
+final class ThreadProfile
+{
+    final SimulationProfiler profiler;
+    private final ProfileStats stats;
+    private boolean running;
+    private long runStartTime;
+    private boolean activated;
+    private long lastActivationSimTime;
+    private boolean terminated;
+
+    public ThreadProfile(SimulationProfiler profiler, String name)
+    {
+        this.profiler = profiler;
+        this.stats = new ProfileStats(name);
+        stats.threadCount = 1;
+    }
+
+    public String getName()
+    {
+        return stats.getName();
+    }
+
+    public synchronized void activated(long cpuTime, long simTime)
+    {
+        running = true;
+        runStartTime = cpuTime;
+        ++stats.activationCount;
+        if (activated)
+        {
+            stats.simTimeIntervalSum += simTime - lastActivationSimTime;
+            ++stats.simTimeIntervalCount;
+        }
+        activated = true;
+        lastActivationSimTime = simTime;
+    }
+
+    public synchronized void deactivated(long cpuTime, Event blockingEvent)
+    {
+        if (running)
+        {
+            stats.cpuTime += cpuTime - runStartTime;
+            running = false;
+        }
+        if (blockingEvent != null)
+        {
+            stats.addWait(blockingEvent.getClass());
+        }
+    }
+
+    public synchronized void terminated(long cpuTime)
+    {
+        deactivated(cpuTime, null);
+        terminated = true;
+    }
+
+    public synchronized boolean isTerminated()
+    {
+        return terminated;
+    }
+
+    public synchronized ProfileStats getSnapshot()
+    {
+        return new ProfileStats(stats.getName(), stats);
+    }
+
+    public synchronized void reset()
+    {
+        stats.clear();
+        activated = false;
+    }
+}
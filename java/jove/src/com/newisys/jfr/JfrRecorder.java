@@ -0,0 +1,78 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.newisys.jfr;
+
+import java.lang.reflect.Method;
+
+/**
+ * Receives the Java Flight Recorder events emitted by Jove. Each event is
+ * started by a begin method, which returns an opaque event object, or null if
+ * the event is not being recorded, and is finished by passing that object to
+ * the corresponding commit method. Arguments that are expensive to format are
+ * passed as objects and converted only if the event is committed.
+ * <P>
+ * The implementation, com.newisys.jfr.events.JfrEventRecorder, is built
+ * separately (see jove-jfr) so that this module does not depend on jdk.jfr.
+ *
+ * @author Trevor Robinson
+ */
+public interface JfrRecorder
+{
+    /**
+     * Returns whether simulation thread switch events are being recorded.
+     *
+     * @return true iff thread switch events are enabled
+     */
+    boolean isThreadSwitchEnabled();
+
+    Object beginThreadSwitch(long simTime);
+
+    void commitThreadSwitch(
+        Object event,
+        String thread,
+        Object blockingEvent,
+        long simTime);
+
+    Object beginNotify();
+
+    void commitNotify(
+        Object event,
+        Object notified,
+        int threadsWoken,
+        int metaEvents);
+
+    Object beginMarshalledCall();
+
+    void commitMarshalledCall(Object event, Method method);
+
+    Object beginPLICallback();
+
+    void commitPLICallback(Object event, Object reason, long simTime);
+
+    Object beginRandomize();
+
+    void commitRandomize(
+        Object event,
+        Class< ? > objectClass,
+        boolean cached,
+        boolean solved);
+
+    Object beginTimeStep();
+
+    void commitTimeStep(Object event, long simTime, long step);
+}
@@ -0,0 +1,73 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.jfr;
+
+/**
+ * Controls whether Jove emits Java Flight Recorder events. Recording is
+ * opt-in: {@link #RECORDER} is null, and instrumented code does nothing beyond
+ * testing {@link #ENABLED}, unless the system property
+ * <code>com.newisys.jfr</code> is set to true and the event classes built by
+ * jove-jfr are on the class path. The jdk.jfr module is therefore never
+ * needed to run Jove.
+ *
+ * @author Trevor Robinson
+ */
+public final class JfrSupport
+{
+    private static final String RECORDER_CLASS = "com.newisys.jfr.events.JfrEventRecorder";
+
+    /**
+     * The recorder to which events are reported, or null if recording is
+     * disabled.
+     */
+    public static final JfrRecorder RECORDER = loadRecorder();
+
+    /**
+     * Equivalent to <code>RECORDER != null</code>.
+     */
+    public static final boolean ENABLED = RECORDER != null;
+
+    private JfrSupport()
+    {
+    }
+
+    private static JfrRecorder loadRecorder()
+    {
+        if (!Boolean.getBoolean("com.newisys.jfr"))
+        {
+            return null;
+        }
+        try
+        {
+            return (JfrRecorder) Class.forName(RECORDER_CLASS).newInstance();
+        }
+        catch (Exception e)
+        {
+            System.err.println("Warning: Flight Recorder events disabled: "
+                + e);
+            return null;
+        }
+        catch (LinkageError e)
+        {
+            System.err.println("Warning: Flight Recorder events disabled: "
+                + e);
+            return null;
+        }
+    }
+}
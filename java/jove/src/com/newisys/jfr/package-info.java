@@ -0,0 +1,26 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+/**
+ * Provides the hooks through which Jove reports Java Flight Recorder events
+ * for simulation thread scheduling, simulator callbacks and constraint
+ * solving. The events themselves are in the optional jove-jfr module. See
+ * JfrSupport for how they are enabled, and jove-jfr/jove.jfc for a recording
+ * configuration.
+ */
+package com.newisys.jfr;
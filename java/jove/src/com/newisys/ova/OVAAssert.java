@@ -29,6 +29,10 @@ import java.util.Set;
 public final class OVAAssert
 {
     final long assertID;
+    // index of this assert in the order discovered by the engine
+    final int index;
+    // listeners indexed by OVAAssertEventType ordinal; managed by OVAEngine
+    final OVAAssertCallback[][] callbacks;
     private final OVAEngine engine;
 
     // This object is not available to the user code via a getter since the
@@ -44,12 +48,21 @@ public final class OVAAssert
      * @param assertID this assert's unique identifier
      * @param engine the OVAEngine with which this OVAAssert is associated
      * @param info the OVAAssertInfo for this assert
+     * @param index the index of this assert within the engine
+     * @param eventTypeCount the number of assert event types
      */
-    OVAAssert(long assertID, OVAEngine engine, OVAAssertInfo info)
+    OVAAssert(
+        long assertID,
+        OVAEngine engine,
+        OVAAssertInfo info,
+        int index,
+        int eventTypeCount)
     {
         this.assertID = assertID;
         this.engine = engine;
         this.info = info;
+        this.index = index;
+        this.callbacks = new OVAAssertCallback[eventTypeCount][];
 
     }
 
@@ -134,6 +134,8 @@ public enum OVAAssertEventType implements OVAEventType
         return value;
     }
 
+    private static final OVAAssertEventType[] VALUES = values();
+
     /**
      * Returns the OVAAssertEventType for the given integer value.
      *
@@ -144,10 +146,11 @@ public enum OVAAssertEventType implements OVAEventType
      */
     public static OVAAssertEventType forValue(int value)
     {
-        OVAAssertEventType[] enums = OVAAssertEventType.class
-            .getEnumConstants();
-        for (final OVAAssertEventType enumeration : enums)
+        // values are contiguous, starting with All
+        final int index = value - VALUES[0].value;
+        if (index >= 0 && index < VALUES.length)
         {
+            final OVAAssertEventType enumeration = VALUES[index];
             if (enumeration.value == value)
             {
                 return enumeration;
@@ -19,9 +19,7 @@
 package com.newisys.ova;
 
 import java.util.ArrayList;
-import java.util.EnumMap;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -33,6 +31,11 @@ import com.newisys.verilog.VerilogTime;
  * Class representing the underlying OVA engine. Contains methods for
  * configuring and acting on the OVA engine. Also contains methods for adding
  * callback listeners on OVA engine events.
+ * <P>
+ * Assert callbacks are kept in per-assert, per-event-type arrays, so
+ * dispatching an event only visits the listeners registered for that assert
+ * and event type. For coverage-style reporting, event counts can instead be
+ * aggregated without any per-event listener (see {@link #enableAggregation}).
  * 
  * @author Jon Nall
  */
@@ -42,20 +45,29 @@ public final class OVAEngine
     static final int OVA_CLIENTID_NULL = 0;
     static final int OVA_ASSERTID_NULL = 0;
 
+    private static final OVAAssertEventType[] ASSERT_EVENT_TYPES = OVAAssertEventType
+        .values();
+    private static final OVAEngineEventType[] ENGINE_EVENT_TYPES = OVAEngineEventType
+        .values();
+
     // Instance methods/members
-    private final Map<Long, OVAAssert> assertIdMap = new HashMap<Long, OVAAssert>();
+    private final AssertIdTable assertIdTable = new AssertIdTable();
     private final boolean ovaHasSyntaxInfo;
     private final long clientID;
     private final String versionString;
     private final OVAInterface ovaIntf;
 
-    // default access for efficient access by AssertListener
-    private final Map<OVAAssertEventType, List<OVAAssertCallback>> assertCallbackMap = new EnumMap<OVAAssertEventType, List<OVAAssertCallback>>(
-        OVAAssertEventType.class);
-    private final Map<OVAEngineEventType, List<OVAEngineCallback>> engineCallbackMap = new EnumMap<OVAEngineEventType, List<OVAEngineCallback>>(
-        OVAEngineEventType.class);
+    // engine callbacks indexed by event type ordinal; each array is replaced
+    // rather than modified when listeners are added or removed
+    private final OVAEngineCallback[][] engineCallbacks = new OVAEngineCallback[ENGINE_EVENT_TYPES.length][];
     private final Map<String, OVAAssert> assertNameMap = new HashMap<String, OVAAssert>();
-    private final List<OVAAssert> assertList = new LinkedList<OVAAssert>();
+    private final List<OVAAssert> assertList = new ArrayList<OVAAssert>();
+
+    // aggregation state indexed by event type ordinal; aggregate counts are
+    // indexed by assert index and kept after aggregation is disabled
+    private final boolean[] aggregating = new boolean[ASSERT_EVENT_TYPES.length];
+    private final boolean[] nativeAggregate = new boolean[ASSERT_EVENT_TYPES.length];
+    private final long[][] aggregateCounts = new long[ASSERT_EVENT_TYPES.length][];
 
     /**
      * Sole constructor. Creates an OVAEngine which is registered with the
@@ -82,13 +94,11 @@ public final class OVAEngine
         versionString = ovaIntf.getApiVersion();
         ovaHasSyntaxInfo = ovaIntf.hasAssertInfo(clientID);
 
-        // cache all asserts
+        // cache all asserts (findAssert adds them to the list and name map)
         // this makes the assumption that OVA asserts cannot be added at runtime
         OVAAssert curAssert = findAssert(ovaIntf.firstAssert(clientID));
         while (curAssert != null)
         {
-            assertList.add(curAssert);
-            assertNameMap.put(curAssert.getName(), curAssert);
             curAssert = findAssert(ovaIntf.nextAssert(clientID));
         }
 
@@ -176,7 +186,7 @@ public final class OVAEngine
         // each event type (except OVAAssertEventType.All)
         if (eventType == OVAAssertEventType.All)
         {
-            for (final OVAAssertEventType type : OVAAssertEventType.values())
+            for (final OVAAssertEventType type : ASSERT_EVENT_TYPES)
             {
                 if (type == OVAAssertEventType.All) continue;
 
@@ -185,25 +195,33 @@ public final class OVAEngine
             return;
         }
 
-        List<OVAAssertCallback> callbackList = assertCallbackMap.get(eventType);
+        final int typeIndex = eventType.ordinal();
+        final OVAAssertCallback[] callbacks = ovaAssert.callbacks[typeIndex];
 
-        if (callbackList != null)
+        if (callbacks != null)
         {
-            if (!callbackList.contains(handler))
+            // a given handler can only exist once for a given eventType
+            if (indexOf(callbacks, handler) < 0)
             {
-                // a given handler can only exist once for a given eventType
-                callbackList.add(handler);
+                final int count = callbacks.length;
+                final OVAAssertCallback[] newCallbacks = new OVAAssertCallback[count + 1];
+                System.arraycopy(callbacks, 0, newCallbacks, 0, count);
+                newCallbacks[count] = handler;
+                ovaAssert.callbacks[typeIndex] = newCallbacks;
             }
         }
         else
         {
-            callbackList = new LinkedList<OVAAssertCallback>();
-            callbackList.add(handler);
-            assertCallbackMap.put(eventType, callbackList);
+            final boolean registered = isAssertListenerRegistered(ovaAssert,
+                eventType);
+            ovaAssert.callbacks[typeIndex] = new OVAAssertCallback[] { handler };
 
             // and register with OVA
-            ovaIntf.addAssertListener(clientID, eventType.getValue(),
-                ovaAssert.assertID);
+            if (!registered)
+            {
+                ovaIntf.addAssertListener(clientID, eventType.getValue(),
+                    ovaAssert.assertID);
+            }
         }
     }
 
@@ -217,12 +235,12 @@ public final class OVAEngine
         // each event type (except OVAAssertEventType.All)
         if (eventType == OVAAssertEventType.All)
         {
-            for (final OVAAssertEventType type : OVAAssertEventType.values())
+            for (final OVAAssertEventType type : ASSERT_EVENT_TYPES)
             {
                 if (type == OVAAssertEventType.All) continue;
-                List<OVAAssertCallback> callbackList = assertCallbackMap
-                    .get(type);
-                if (callbackList != null && callbackList.contains(handler))
+                final OVAAssertCallback[] callbacks = ovaAssert.callbacks[type
+                    .ordinal()];
+                if (callbacks != null && indexOf(callbacks, handler) >= 0)
                 {
                     removeAssertListener(ovaAssert, type, handler);
                 }
@@ -230,20 +248,218 @@ public final class OVAEngine
             return;
         }
 
-        List<OVAAssertCallback> callbackList = assertCallbackMap.get(eventType);
-        assert (callbackList != null && callbackList.contains(handler));
+        final int typeIndex = eventType.ordinal();
+        final OVAAssertCallback[] callbacks = ovaAssert.callbacks[typeIndex];
+        final int index = callbacks != null ? indexOf(callbacks, handler) : -1;
+        assert (index >= 0);
+
+        if (callbacks.length > 1)
+        {
+            final OVAAssertCallback[] newCallbacks = new OVAAssertCallback[callbacks.length - 1];
+            System.arraycopy(callbacks, 0, newCallbacks, 0, index);
+            System.arraycopy(callbacks, index + 1, newCallbacks, index,
+                newCallbacks.length - index);
+            ovaAssert.callbacks[typeIndex] = newCallbacks;
+        }
+        else
+        {
+            // remove the callback entirely if the list is empty
+            ovaAssert.callbacks[typeIndex] = null;
+            if (!isAssertListenerRegistered(ovaAssert, eventType))
+            {
+                ovaIntf.removeAssertListener(eventType.getValue(),
+                    ovaAssert.assertID);
+            }
+        }
+    }
+
+    /**
+     * Returns whether an OVA callback is currently needed for the given assert
+     * and event type, either to run listeners or to aggregate counts in Java.
+     */
+    private boolean isAssertListenerRegistered(
+        OVAAssert ovaAssert,
+        OVAAssertEventType eventType)
+    {
+        final int typeIndex = eventType.ordinal();
+        return ovaAssert.callbacks[typeIndex] != null
+            || (aggregating[typeIndex] && !nativeAggregate[typeIndex]);
+    }
+
+    private static int indexOf(Object[] array, Object obj)
+    {
+        for (int i = 0; i < array.length; ++i)
+        {
+            if (array[i] == obj) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Enables aggregation of the specified event type across all asserts.
+     * While aggregation is enabled, the number of events of the given type is
+     * counted for each assert, and the counts can be read in bulk using
+     * {@link #getAggregateCounts}. Aggregation does not require any listeners
+     * to be registered. This method resets any previous counts for the event
+     * type to zero.
+     * <P>
+     * {@link OVAAssertEventType#AttemptSuccess} and
+     * {@link OVAAssertEventType#AttemptFailure} are counted by the underlying
+     * OVA implementation, so no per-event callback into Java occurs. Other
+     * event types are counted in Java as their callbacks are dispatched.
+     *
+     * @param eventType the event type to aggregate
+     * @throws IllegalArgumentException if <code>eventType</code> is
+     *      <code>OVAAssertEventType.All</code>
+     */
+    public void enableAggregation(OVAAssertEventType eventType)
+    {
+        if (eventType == OVAAssertEventType.All)
+        {
+            throw new IllegalArgumentException(
+                "Cannot aggregate OVAAssertEventType.All");
+        }
+
+        final int typeIndex = eventType.ordinal();
+        final boolean wasAggregating = aggregating[typeIndex];
+        final boolean useNative = eventType == OVAAssertEventType.AttemptSuccess
+            || eventType == OVAAssertEventType.AttemptFailure;
+
+        if (useNative)
+        {
+            // enabling a native count also resets it
+            for (final OVAAssert ovaAssert : assertList)
+            {
+                enableAssertCount(ovaAssert, eventType);
+            }
+        }
+        else if (!wasAggregating)
+        {
+            for (final OVAAssert ovaAssert : assertList)
+            {
+                if (!isAssertListenerRegistered(ovaAssert, eventType))
+                {
+                    ovaIntf.addAssertListener(clientID, eventType.getValue(),
+                        ovaAssert.assertID);
+                }
+            }
+        }
+
+        aggregating[typeIndex] = true;
+        nativeAggregate[typeIndex] = useNative;
+        aggregateCounts[typeIndex] = useNative ? null
+            : new long[assertList.size()];
+    }
 
-        callbackList.remove(handler);
+    /**
+     * Disables aggregation of the specified event type. The counts accumulated
+     * so far remain available from {@link #getAggregateCounts} until
+     * aggregation is enabled again.
+     *
+     * @param eventType the event type to stop aggregating
+     * @throws OVAException if aggregation is not enabled for
+     *      <code>eventType</code>
+     */
+    public void disableAggregation(OVAAssertEventType eventType)
+    {
+        final int typeIndex = eventType.ordinal();
+        if (!aggregating[typeIndex])
+        {
+            throw new OVAException("Aggregation is not enabled for "
+                + eventType);
+        }
 
-        // remove the callback entirely if the list is empty
-        if (callbackList.isEmpty())
+        aggregating[typeIndex] = false;
+        for (final OVAAssert ovaAssert : assertList)
         {
-            ovaIntf.removeAssertListener(eventType.getValue(),
-                ovaAssert.assertID);
-            assertCallbackMap.put(eventType, null);
+            if (nativeAggregate[typeIndex])
+            {
+                disableAssertCount(ovaAssert, eventType);
+            }
+            else if (!isAssertListenerRegistered(ovaAssert, eventType))
+            {
+                ovaIntf.removeAssertListener(eventType.getValue(),
+                    ovaAssert.assertID);
+            }
         }
     }
 
+    /**
+     * Returns whether aggregation is currently enabled for the specified event
+     * type.
+     *
+     * @param eventType the event type to check
+     * @return true if events of <code>eventType</code> are being aggregated
+     */
+    public boolean isAggregationEnabled(OVAAssertEventType eventType)
+    {
+        return aggregating[eventType.ordinal()];
+    }
+
+    /**
+     * Returns the aggregated counts for the specified event type. Element
+     * <i>i</i> of the returned array is the count for the assert at index
+     * <i>i</i> of the list returned by {@link #getAsserts}.
+     *
+     * @param eventType the aggregated event type
+     * @return a new array containing the count for each assert
+     * @throws OVAException if aggregation has never been enabled for
+     *      <code>eventType</code>
+     */
+    public long[] getAggregateCounts(OVAAssertEventType eventType)
+    {
+        final int typeIndex = eventType.ordinal();
+        final int assertCount = assertList.size();
+        final long[] result = new long[assertCount];
+        if (nativeAggregate[typeIndex])
+        {
+            for (int i = 0; i < assertCount; ++i)
+            {
+                result[i] = getAssertCount(assertList.get(i), eventType);
+            }
+        }
+        else
+        {
+            final long[] counts = aggregateCounts[typeIndex];
+            if (counts == null)
+            {
+                throw new OVAException("Aggregation has not been enabled for "
+                    + eventType);
+            }
+            System.arraycopy(counts, 0, result, 0, Math.min(counts.length,
+                assertCount));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the aggregated count for the specified assert and event type.
+     *
+     * @param ovaAssert the assert to return the count for
+     * @param eventType the aggregated event type
+     * @return the number of events of type <code>eventType</code> that have
+     *      occurred for <code>ovaAssert</code> while aggregation was enabled
+     * @throws OVAException if aggregation has never been enabled for
+     *      <code>eventType</code>
+     */
+    public long getAggregateCount(
+        OVAAssert ovaAssert,
+        OVAAssertEventType eventType)
+    {
+        final int typeIndex = eventType.ordinal();
+        if (nativeAggregate[typeIndex])
+        {
+            return getAssertCount(ovaAssert, eventType);
+        }
+        final long[] counts = aggregateCounts[typeIndex];
+        if (counts == null)
+        {
+            throw new OVAException("Aggregation has not been enabled for "
+                + eventType);
+        }
+        return ovaAssert.index < counts.length ? counts[ovaAssert.index] : 0;
+    }
+
     /**
      * Adds a callback handler for the specified event type. This callback will
      * be run whenever an event of the specified type occurs.
@@ -261,7 +477,7 @@ public final class OVAEngine
         // each event type (except OVAEngineEventType.All)
         if (eventType == OVAEngineEventType.All)
         {
-            for (final OVAEngineEventType type : OVAEngineEventType.values())
+            for (final OVAEngineEventType type : ENGINE_EVENT_TYPES)
             {
                 if (type == OVAEngineEventType.All) continue;
 
@@ -270,21 +486,24 @@ public final class OVAEngine
             return;
         }
 
-        List<OVAEngineCallback> callbackList = engineCallbackMap.get(eventType);
+        final int typeIndex = eventType.ordinal();
+        final OVAEngineCallback[] callbacks = engineCallbacks[typeIndex];
 
-        if (callbackList != null)
+        if (callbacks != null)
         {
             // a given handler can only exist once for a given eventType
-            if (!callbackList.contains(handler))
+            if (indexOf(callbacks, handler) < 0)
             {
-                callbackList.add(handler);
+                final int count = callbacks.length;
+                final OVAEngineCallback[] newCallbacks = new OVAEngineCallback[count + 1];
+                System.arraycopy(callbacks, 0, newCallbacks, 0, count);
+                newCallbacks[count] = handler;
+                engineCallbacks[typeIndex] = newCallbacks;
             }
         }
         else
         {
-            callbackList = new LinkedList<OVAEngineCallback>();
-            callbackList.add(handler);
-            engineCallbackMap.put(eventType, callbackList);
+            engineCallbacks[typeIndex] = new OVAEngineCallback[] { handler };
 
             // and register with OVA
             ovaIntf.addEngineListener(clientID, eventType.getValue());
@@ -330,12 +549,12 @@ public final class OVAEngine
         // each event type (except OVAEngineEventType.All)
         if (eventType == OVAEngineEventType.All)
         {
-            for (final OVAEngineEventType type : OVAEngineEventType.values())
+            for (final OVAEngineEventType type : ENGINE_EVENT_TYPES)
             {
                 if (type == OVAEngineEventType.All) continue;
-                List<OVAEngineCallback> callbackList = engineCallbackMap
-                    .get(type);
-                if (callbackList != null && callbackList.contains(handler))
+                final OVAEngineCallback[] callbacks = engineCallbacks[type
+                    .ordinal()];
+                if (callbacks != null && indexOf(callbacks, handler) >= 0)
                 {
                     removeListener(type, handler);
                 }
@@ -343,16 +562,24 @@ public final class OVAEngine
             return;
         }
 
-        List<OVAEngineCallback> callbackList = engineCallbackMap.get(eventType);
-        assert (callbackList != null && callbackList.contains(handler));
+        final int typeIndex = eventType.ordinal();
+        final OVAEngineCallback[] callbacks = engineCallbacks[typeIndex];
+        final int index = callbacks != null ? indexOf(callbacks, handler) : -1;
+        assert (index >= 0);
 
-        callbackList.remove(handler);
-
-        // remove the callback entirely if the list is empty
-        if (callbackList.isEmpty())
+        if (callbacks.length > 1)
+        {
+            final OVAEngineCallback[] newCallbacks = new OVAEngineCallback[callbacks.length - 1];
+            System.arraycopy(callbacks, 0, newCallbacks, 0, index);
+            System.arraycopy(callbacks, index + 1, newCallbacks, index,
+                newCallbacks.length - index);
+            engineCallbacks[typeIndex] = newCallbacks;
+        }
+        else
         {
+            // remove the callback entirely if the list is empty
             ovaIntf.removeEngineListener(eventType.getValue());
-            engineCallbackMap.put(eventType, null);
+            engineCallbacks[typeIndex] = null;
         }
     }
 
@@ -435,81 +662,103 @@ public final class OVAEngine
             oldInfo.category, oldInfo.scopeName, msg));
     }
 
-    // called from native code to dispatch engine callbacks
+    // called from native code to dispatch assert callbacks
     void dispatchAssertCallback(
         OVAAssertEventType eventType,
         long simTime,
         long assertID,
         long attemptID)
     {
-        // list of callbacks that should be run
-        List<OVAAssertCallback> callbackList = new LinkedList<OVAAssertCallback>();
+        final OVAAssert ovaAssert = findAssert(assertID);
+        assert (ovaAssert != null);
 
         // All listeners get notified on All events
         if (eventType == OVAAssertEventType.All)
         {
-            for (final OVAAssertEventType type : assertCallbackMap.keySet())
+            VerilogSimTime time = null;
+            for (final OVAAssertCallback[] callbacks : ovaAssert.callbacks)
             {
-                assert (type != OVAAssertEventType.All);
-                List<OVAAssertCallback> list = assertCallbackMap.get(type);
-                if (list != null)
+                if (callbacks != null)
                 {
-                    callbackList.addAll(list);
+                    if (time == null) time = new VerilogSimTime(simTime);
+                    runAssertCallbacks(callbacks, ovaAssert, eventType, time,
+                        attemptID);
                 }
             }
+            return;
         }
-        else
+
+        final int typeIndex = eventType.ordinal();
+
+        // update aggregate count
+        if (aggregating[typeIndex] && !nativeAggregate[typeIndex])
         {
-            List<OVAAssertCallback> list = assertCallbackMap.get(eventType);
-            // if callbackList is null, we shouldn't be receiving callbacks
-            assert (list != null);
-            callbackList.addAll(list);
+            long[] counts = aggregateCounts[typeIndex];
+            final int index = ovaAssert.index;
+            if (index >= counts.length)
+            {
+                // assert discovered after aggregation was enabled
+                final long[] newCounts = new long[assertList.size()];
+                System.arraycopy(counts, 0, newCounts, 0, counts.length);
+                aggregateCounts[typeIndex] = counts = newCounts;
+            }
+            ++counts[index];
         }
-        assert (!callbackList.isEmpty());
 
-        final OVAAssert ovaAssert = findAssert(assertID);
-        assert (ovaAssert != null);
+        // if callbacks is null, we are only aggregating this event type
+        final OVAAssertCallback[] callbacks = ovaAssert.callbacks[typeIndex];
+        if (callbacks != null)
+        {
+            runAssertCallbacks(callbacks, ovaAssert, eventType,
+                new VerilogSimTime(simTime), attemptID);
+        }
+    }
 
-        for (final OVAAssertCallback callback : callbackList)
+    private static void runAssertCallbacks(
+        OVAAssertCallback[] callbacks,
+        OVAAssert ovaAssert,
+        OVAAssertEventType eventType,
+        VerilogSimTime time,
+        long attemptID)
+    {
+        for (final OVAAssertCallback callback : callbacks)
         {
             if (callback.enabledForAssert(ovaAssert))
             {
-                callback.run(ovaAssert, eventType, new VerilogSimTime(simTime),
-                    attemptID);
+                callback.run(ovaAssert, eventType, time, attemptID);
             }
         }
     }
 
-    // called from native code to dispatch assert callbacks
+    // called from native code to dispatch engine callbacks
     void dispatchEngineCallback(OVAEngineEventType eventType, long simTime)
     {
-        List<OVAEngineCallback> callbackList = new LinkedList<OVAEngineCallback>();
+        final VerilogSimTime time = new VerilogSimTime(simTime);
 
         // All listeners get notified on All events
         if (eventType == OVAEngineEventType.All)
         {
-            for (final OVAEngineEventType type : engineCallbackMap.keySet())
+            for (final OVAEngineCallback[] callbacks : engineCallbacks)
             {
-                assert (type != OVAEngineEventType.All);
-                List<OVAEngineCallback> list = engineCallbackMap.get(type);
-                if (list != null)
+                if (callbacks != null)
                 {
-                    callbackList.addAll(list);
+                    for (final OVAEngineCallback callback : callbacks)
+                    {
+                        callback.run(eventType, time);
+                    }
                 }
             }
         }
         else
         {
-            List<OVAEngineCallback> list = engineCallbackMap.get(eventType);
-            // if callbackList is null, we shouldn't be receiving callbacks
-            assert (list != null);
-            callbackList.addAll(list);
-        }
-        assert (!callbackList.isEmpty());
-
-        for (final OVAEngineCallback callback : callbackList)
-        {
-            callback.run(eventType, new VerilogSimTime(simTime));
+            final OVAEngineCallback[] callbacks = engineCallbacks[eventType
+                .ordinal()];
+            // if callbacks is null, we shouldn't be receiving callbacks
+            assert (callbacks != null);
+            for (final OVAEngineCallback callback : callbacks)
+            {
+                callback.run(eventType, time);
+            }
         }
     }
 
@@ -521,19 +770,84 @@ public final class OVAEngine
         }
         else
         {
-            OVAAssert ovaAssert = null;
-            if (!assertIdMap.containsKey(assertID))
+            OVAAssert ovaAssert = assertIdTable.get(assertID);
+            if (ovaAssert == null)
             {
                 assert (ovaHasSyntaxInfo);
                 ovaAssert = new OVAAssert(assertID, this, ovaIntf
-                    .getAssertInfo(clientID, assertID));
-                assertIdMap.put(assertID, ovaAssert);
+                    .getAssertInfo(clientID, assertID), assertList.size(),
+                    ASSERT_EVENT_TYPES.length);
+                assertIdTable.put(assertID, ovaAssert);
+                assertList.add(ovaAssert);
+                assertNameMap.put(ovaAssert.getName(), ovaAssert);
+            }
+            return ovaAssert;
+        }
+    }
+
+    /**
+     * Open-addressed hash table mapping primitive assert identifiers to
+     * OVAAssert objects, avoiding boxing on each callback.
+     */
+    private static final class AssertIdTable
+    {
+        private long[] keys = new long[16];
+        private OVAAssert[] values = new OVAAssert[16];
+        private int size;
+
+        public int size()
+        {
+            return size;
+        }
+
+        private static int hash(long key)
+        {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        public OVAAssert get(long key)
+        {
+            final int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            OVAAssert value;
+            while ((value = values[i]) != null)
+            {
+                if (keys[i] == key) return value;
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        public void put(long key, OVAAssert value)
+        {
+            assert (value != null);
+            if ((size + 1) * 2 > keys.length)
+            {
+                final long[] oldKeys = keys;
+                final OVAAssert[] oldValues = values;
+                keys = new long[oldKeys.length * 2];
+                values = new OVAAssert[oldValues.length * 2];
+                size = 0;
+                for (int i = 0; i < oldKeys.length; ++i)
+                {
+                    if (oldValues[i] != null) put(oldKeys[i], oldValues[i]);
+                }
             }
-            else
+            final int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (values[i] != null)
             {
-                ovaAssert = assertIdMap.get(assertID);
+                if (keys[i] == key)
+                {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
             }
-            return ovaAssert;
+            keys[i] = key;
+            values[i] = value;
+            ++size;
         }
     }
 }
@@ -102,6 +102,8 @@ public enum OVAEngineEventType implements OVAEventType
         return value;
     }
 
+    private static final OVAEngineEventType[] VALUES = values();
+
     /**
      * Returns the OVAEngineEventType for the given integer value.
      *
@@ -112,10 +114,11 @@ public enum OVAEngineEventType implements OVAEventType
      */
     public static OVAEngineEventType forValue(int value)
     {
-        OVAEngineEventType[] enums = OVAEngineEventType.class
-            .getEnumConstants();
-        for (final OVAEngineEventType enumeration : enums)
+        // values are contiguous, starting with All
+        final int index = value - VALUES[0].value;
+        if (index >= 0 && index < VALUES.length)
         {
+            final OVAEngineEventType enumeration = VALUES[index];
             if (enumeration.value == value)
             {
                 return enumeration;
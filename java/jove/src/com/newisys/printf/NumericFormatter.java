@@ -477,7 +477,18 @@ final class NumericFormatter
         }
         else if (obj instanceof BitVector)
         {
-            valueString = bvFormatter.format((BitVector) obj, radix);
+            // BitVectors are formatted directly into the buffer, which avoids
+            // any intermediate strings for binary, octal, and hex conversions
+            final int valueStart = buf.length();
+            bvFormatter.format((BitVector) obj, radix, buf);
+            if (spec.flags.contains(PrintfFlag.UPPERCASE))
+            {
+                for (int i = valueStart; i < buf.length(); ++i)
+                {
+                    buf.setCharAt(i, Character.toUpperCase(buf.charAt(i)));
+                }
+            }
+            return;
         }
         else if (obj instanceof Number)
         {
@@ -56,7 +56,7 @@ public class Printf
         CharSequence fmt,
         Object... args)
     {
-        formatter.sprintf(fmt, args);
+        formatter.fprintf(stream, fmt, args);
     }
 
     /**
@@ -86,6 +86,18 @@ public class Printf
         return formatter.sprintf(fmt, args);
     }
 
+    /**
+     * Compiles the specified format string for repeated use. The returned
+     * PrintfFormat is immutable and may be shared among threads.
+     *
+     * @param fmt the format to compile, as described in {@link #sprintf}
+     * @return a PrintfFormat for <code>fmt</code>
+     */
+    public static PrintfFormat compile(CharSequence fmt)
+    {
+        return formatter.compile(fmt);
+    }
+
     private Printf()
     {
         // no one can instantiate a Printf
@@ -0,0 +1,262 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.printf;
+
+import java.io.IOException;
+
+/**
+ * A compiled printf format string. A PrintfFormat is created by
+ * {@link PrintfFormatter#compile} and holds the parsed conversion
+ * specifications of a format string, so that the string need not be parsed
+ * again each time it is used. PrintfFormat objects are immutable and may be
+ * shared among threads.
+ * 
+ * @author Jon Nall
+ */
+public final class PrintfFormat
+{
+    private final PrintfFormatter formatter;
+    private final String fmt;
+    private final PrintfSpec[] specs;
+    private final ConversionFormatter[] convFormatters;
+    private final int literalLength;
+
+    /**
+     * Constructs a PrintfFormat. Called only by PrintfFormatter.
+     *
+     * @param formatter the PrintfFormatter that compiled this format
+     * @param fmt the format string
+     * @param specs the template PrintfSpecs parsed from <code>fmt</code>, in
+     *      the order they appear
+     * @param convFormatters the ConversionFormatter for each PrintfSpec
+     * @param literalLength the number of characters in <code>fmt</code> that
+     *      are not part of a conversion specification
+     */
+    PrintfFormat(
+        PrintfFormatter formatter,
+        String fmt,
+        PrintfSpec[] specs,
+        ConversionFormatter[] convFormatters,
+        int literalLength)
+    {
+        assert (specs.length == convFormatters.length);
+        this.formatter = formatter;
+        this.fmt = fmt;
+        this.specs = specs;
+        this.convFormatters = convFormatters;
+        this.literalLength = literalLength;
+    }
+
+    /**
+     * Returns the format string from which this PrintfFormat was compiled.
+     *
+     * @return the format string
+     */
+    public String getFormatString()
+    {
+        return fmt;
+    }
+
+    /**
+     * Returns the PrintfFormatter that compiled this PrintfFormat.
+     *
+     * @return the PrintfFormatter used to format arguments
+     */
+    public PrintfFormatter getFormatter()
+    {
+        return formatter;
+    }
+
+    /**
+     * Formats <code>args</code> according to this format and returns the
+     * resulting string.
+     *
+     * @param args the arguments to be formatted
+     * @return the formatted string
+     * @see PrintfFormatter#sprintf
+     */
+    public String sprintf(Object... args)
+    {
+        if (specs.length == 0)
+        {
+            return formatter.postProcess(fmt).toString();
+        }
+
+        final PrintfFormatter.Scratch scratch = formatter.acquireScratch();
+        try
+        {
+            final StringBuilder buf = scratch.buf;
+            appendFormatted(buf, scratch, args);
+            return formatter.postProcess(buf).toString();
+        }
+        finally
+        {
+            formatter.releaseScratch(scratch);
+        }
+    }
+
+    /**
+     * Formats <code>args</code> according to this format and appends the
+     * result to the given StringBuilder. Apart from any growth of
+     * <code>buf</code>, this method allocates no memory for arguments that
+     * format without allocation (such as BitVectors printed with binary,
+     * octal, or hexadecimal conversions).
+     *
+     * @param buf the StringBuilder to append to
+     * @param args the arguments to be formatted
+     */
+    public void format(StringBuilder buf, Object... args)
+    {
+        final int start = buf.length();
+        if (specs.length == 0)
+        {
+            buf.append(fmt);
+        }
+        else
+        {
+            final PrintfFormatter.Scratch scratch = formatter
+                .acquireScratch();
+            try
+            {
+                appendFormatted(buf, scratch, args);
+            }
+            finally
+            {
+                formatter.releaseScratch(scratch);
+            }
+        }
+
+        if (formatter.hasPostProcess())
+        {
+            final CharSequence result = formatter.postProcess(buf.subSequence(
+                start, buf.length()));
+            buf.setLength(start);
+            buf.append(result);
+        }
+    }
+
+    /**
+     * Formats <code>args</code> according to this format and appends the
+     * result to the given Appendable.
+     *
+     * @param out the Appendable to append to
+     * @param args the arguments to be formatted
+     * @throws IOException if <code>out</code> throws an IOException
+     */
+    public void format(Appendable out, Object... args)
+        throws IOException
+    {
+        if (out instanceof StringBuilder)
+        {
+            format((StringBuilder) out, args);
+            return;
+        }
+
+        final PrintfFormatter.Scratch scratch = formatter.acquireScratch();
+        try
+        {
+            final StringBuilder buf = scratch.buf;
+            if (specs.length == 0)
+            {
+                buf.append(fmt);
+            }
+            else
+            {
+                appendFormatted(buf, scratch, args);
+            }
+            out.append(formatter.postProcess(buf));
+        }
+        finally
+        {
+            formatter.releaseScratch(scratch);
+        }
+    }
+
+    /**
+     * Formats <code>args</code> and appends the result to <code>buf</code>
+     * without post-processing.
+     *
+     * @param buf the StringBuilder to append to
+     * @param scratch the scratch state to use for PrintfSpecs
+     * @param args the arguments to be formatted
+     */
+    private void appendFormatted(
+        StringBuilder buf,
+        PrintfFormatter.Scratch scratch,
+        Object[] args)
+    {
+        final int specCount = specs.length;
+        final PrintfSpec[] curSpecs = scratch.getSpecs(specCount);
+
+        // pass 1: bind arguments and estimate the formatted length
+        int curArgIdx = 0;
+        int bufWidth = literalLength;
+        for (int i = 0; i < specCount; ++i)
+        {
+            final Object curArg = curArgIdx < args.length ? args[curArgIdx]
+                : null;
+            final PrintfSpec spec = curSpecs[i];
+            spec.reset(specs[i], curArg);
+
+            final ConversionFormatter convFormatter = convFormatters[i];
+            bufWidth += convFormatter.getMaximumLength(spec);
+            if (convFormatter.consumesArg(spec))
+            {
+                ++curArgIdx;
+            }
+        }
+
+        // check that all specs that consume an argument were given an argument
+        if (curArgIdx != args.length)
+        {
+            formatter.warnAboutMissingArgs(args.length, curArgIdx);
+        }
+
+        // pass 2: build the final string
+        final int start = buf.length();
+        buf.ensureCapacity(start + bufWidth);
+        int lastIdx = 0;
+        for (int i = 0; i < specCount; ++i)
+        {
+            final PrintfSpec spec = curSpecs[i];
+            buf.append(fmt, lastIdx, spec.startIdx);
+            convFormatters[i].format(spec, buf);
+            lastIdx = spec.endIdx + 1;
+
+            // do not keep arguments reachable from the scratch state
+            spec.obj = null;
+            spec.cachedString = null;
+        }
+        buf.append(fmt, lastIdx, fmt.length());
+
+        // assertion to check that we allocated properly. This is really just
+        // a performance check
+        assert (buf.length() - start <= bufWidth);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return fmt;
+    }
+}
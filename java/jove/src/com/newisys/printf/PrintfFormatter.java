@@ -20,7 +20,11 @@ package com.newisys.printf;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Base class for printf-like implementations. The class exposes methods that
@@ -140,6 +144,65 @@ public class PrintfFormatter
     // the conversion spec character.
     private ConversionFormatter[] formatters = new ConversionFormatter[128];
 
+    // shared LRU cache of compiled String formats
+    private static final int FORMAT_CACHE_SIZE = 256;
+    private final Map<String, PrintfFormat> formatCache = new LinkedHashMap<String, PrintfFormat>(
+        FORMAT_CACHE_SIZE, 0.75f, true)
+    {
+        private static final long serialVersionUID = 3762531017489286454L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PrintfFormat> eldest)
+        {
+            return size() > FORMAT_CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Per-thread state used while formatting: a pool of PrintfSpecs that are
+     * reset from the templates in a PrintfFormat, the buffer used to build
+     * strings, and a small direct-mapped cache of recently used formats.
+     */
+    static final class Scratch
+    {
+        private static final int RECENT_FORMATS = 16;
+
+        PrintfSpec[] specs = new PrintfSpec[0];
+        StringBuilder buf = new StringBuilder(INITIAL_BUFFER);
+        final PrintfFormat[] recentFormats = new PrintfFormat[RECENT_FORMATS];
+        boolean inUse;
+
+        PrintfSpec[] getSpecs(int count)
+        {
+            if (specs.length < count)
+            {
+                final PrintfSpec[] newSpecs = new PrintfSpec[Math.max(count,
+                    specs.length * 2)];
+                System.arraycopy(specs, 0, newSpecs, 0, specs.length);
+                for (int i = specs.length; i < newSpecs.length; ++i)
+                {
+                    newSpecs[i] = new PrintfSpec();
+                }
+                specs = newSpecs;
+            }
+            return specs;
+        }
+    }
+
+    private static final int INITIAL_BUFFER = 256;
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>()
+    {
+        @Override
+        protected Scratch initialValue()
+        {
+            return new Scratch();
+        }
+    };
+
+    private final boolean postProcessOverridden;
+
     /**
      * Sole constructor.
      */
@@ -150,6 +213,24 @@ public class PrintfFormatter
         {
             formatters[c] = getFormatterForSpec(c);
         }
+
+        // determine whether formatted output must be passed to postProcess
+        boolean overridden = false;
+        for (Class< ? > cls = getClass(); cls != PrintfFormatter.class; cls = cls
+            .getSuperclass())
+        {
+            try
+            {
+                cls.getDeclaredMethod("postProcess", CharSequence.class);
+                overridden = true;
+                break;
+            }
+            catch (NoSuchMethodException e)
+            {
+                // keep looking in the superclass
+            }
+        }
+        postProcessOverridden = overridden;
     }
 
     /**
@@ -190,15 +271,46 @@ public class PrintfFormatter
     /**
      * Formats <code>args</code> according the the specified format and returns
      * the resulting string.
+     * <P>
+     * Format strings are compiled on first use and cached, so repeated calls
+     * with the same format string do not parse it again. Callers formatting
+     * the same string many times may also use {@link #compile} directly.
      *
      * @param fmt the format string
      * @param args the arguments to be formatted
      * @return the formatted string
      */
-    public final synchronized String sprintf(CharSequence fmt, Object... args)
+    public final String sprintf(CharSequence fmt, Object... args)
+    {
+        return getFormat(fmt).sprintf(args);
+    }
+
+    /**
+     * Formats <code>args</code> according the the specified format and appends
+     * the result to the given StringBuilder.
+     *
+     * @param buf the StringBuilder to append to
+     * @param fmt the format string
+     * @param args the arguments to be formatted
+     * @see PrintfFormat#format(StringBuilder, Object[])
+     */
+    public final void format(StringBuilder buf, CharSequence fmt, Object... args)
+    {
+        getFormat(fmt).format(buf, args);
+    }
+
+    /**
+     * Parses the given format string into a PrintfFormat, which can be used
+     * repeatedly and by multiple threads to format arguments without parsing
+     * the format string again.
+     *
+     * @param fmt the format string
+     * @return a new PrintfFormat for <code>fmt</code>
+     * @throws InvalidFormatSpecException if <code>fmt</code> contains an
+     *      unsupported conversion specifier
+     */
+    public final PrintfFormat compile(CharSequence fmt)
     {
-        int curArgIdx = 0;
-        int curSpecIdx = 0;
         boolean processingPercent = false;
 
         EnumSet<PrintfFlag> flags = null;
@@ -213,40 +325,28 @@ public class PrintfFormatter
         boolean processingPrecision = false;
         boolean sawPrecisionDot = false;
 
-        PrintfSpec[] printSpecs = null;
+        List<PrintfSpec> printSpecs = new ArrayList<PrintfSpec>();
+        List<ConversionFormatter> convFormatters = new ArrayList<ConversionFormatter>();
 
         int startIdx = -1;
-        int bufWidth = 0;
+        int literalLength = 0;
 
-        final int length = fmt.length();
+        final String fmtString = fmt.toString();
+        final int length = fmtString.length();
         for (int i = 0; i < length; ++i)
         {
-            char c = fmt.charAt(i);
+            char c = fmtString.charAt(i);
             if (c == '%')
             {
                 if (!processingPercent)
                 {
-                    // lazy initialization/growing of printSpecs
-                    if (printSpecs == null)
-                    {
-                        // who really calls printf with > 10 args?
-                        printSpecs = new PrintfSpec[10];
-                    }
-                    else if (curArgIdx == printSpecs.length)
-                    {
-                        // if we run out of array entries, double it.
-                        PrintfSpec[] tmpSpecArr = new PrintfSpec[printSpecs.length * 2];
-                        System.arraycopy(printSpecs, 0, tmpSpecArr, 0,
-                            printSpecs.length);
-                        printSpecs = tmpSpecArr;
-                    }
-
                     startIdx = i;
                     processingPercent = true;
                     widthSpec = 0;
                     widthWasSpecified = false;
                     precisionSpec = 0;
                     precisionWasSpecified = false;
+                    sawPrecisionDot = false;
                     flags = EnumSet.noneOf(PrintfFlag.class);
                     processingFlags = true;
                     continue;
@@ -318,12 +418,6 @@ public class PrintfFormatter
 
                 assert (!processingFlags && !processingWidth && !processingPrecision);
 
-                final Object curArg = curArgIdx < args.length ? args[curArgIdx]
-                    : null;
-                final PrintfSpec spec = new PrintfSpec(startIdx, i, c, flags,
-                    widthSpec, widthWasSpecified, precisionSpec,
-                    precisionWasSpecified, curArg);
-
                 ConversionFormatter formatter = getFormatter(c);
                 if (formatter == null)
                 {
@@ -331,65 +425,112 @@ public class PrintfFormatter
                         "Unsupported conversion specifier: " + c);
                 }
 
-                bufWidth += formatter.getMaximumLength(spec);
-                if (formatter.consumesArg(spec))
-                {
-                    ++curArgIdx;
-                }
-                printSpecs[curSpecIdx++] = spec;
+                printSpecs.add(new PrintfSpec(startIdx, i, c, flags,
+                    widthSpec, widthWasSpecified, precisionSpec,
+                    precisionWasSpecified, null));
+                convFormatters.add(formatter);
 
-                // append to the buffer and mark ourselves as no longer
-                // processing a format specification
+                // mark ourselves as no longer processing a format
+                // specification
                 startIdx = -1;
                 processingPercent = false;
             }
             else
             {
-                ++bufWidth;
+                ++literalLength;
             }
         }
 
-        // we can return right now if there were no PrintfSpecs found
-        if (printSpecs == null)
+        final int specCount = printSpecs.size();
+        return new PrintfFormat(this, fmtString, printSpecs
+            .toArray(new PrintfSpec[specCount]), convFormatters
+            .toArray(new ConversionFormatter[specCount]), literalLength);
+    }
+
+    /**
+     * Returns the compiled PrintfFormat for the given format string, using
+     * a small per-thread cache of recently used String formats backed by a
+     * shared LRU cache. Formats that are not Strings are compiled each time,
+     * since they may be mutable.
+     *
+     * @param fmt the format string
+     * @return a PrintfFormat for <code>fmt</code>
+     */
+    private PrintfFormat getFormat(CharSequence fmt)
+    {
+        if (!(fmt instanceof String))
         {
-            return postProcess(fmt).toString();
+            return compile(fmt);
         }
 
-        // check that all specs that consume an argument were given an argument
-        if (curArgIdx != args.length)
+        // format strings are almost always literals, so check the per-thread
+        // cache by identity before taking the shared cache lock
+        final String key = (String) fmt;
+        final PrintfFormat[] recent = scratch.get().recentFormats;
+        final int slot = System.identityHashCode(key) & (recent.length - 1);
+        PrintfFormat format = recent[slot];
+        if (format == null || format.getFormatString() != key)
         {
-            warnAboutMissingArgs(args.length, curArgIdx);
+            synchronized (formatCache)
+            {
+                format = formatCache.get(key);
+            }
+            if (format == null)
+            {
+                format = compile(key);
+                synchronized (formatCache)
+                {
+                    formatCache.put(key, format);
+                }
+            }
+            recent[slot] = format;
         }
+        return format;
+    }
 
-        // pass 2
-        // iterate over the formatters to build the final string
-        StringBuilder fmtBuf = new StringBuilder(bufWidth);
-        int lastIdx = 0;
-        for (final PrintfSpec spec : printSpecs)
+    /**
+     * Returns the scratch state for the current thread, or new scratch state
+     * if the current thread's state is already in use by an enclosing format
+     * operation (for instance, if an argument's toString method itself calls
+     * sprintf).
+     *
+     * @return scratch state that must be passed to {@link #releaseScratch}
+     */
+    Scratch acquireScratch()
+    {
+        Scratch s = scratch.get();
+        if (s.inUse)
         {
-            if (spec == null) continue;
-
-            fmtBuf.append(fmt.subSequence(lastIdx, spec.startIdx));
-            ConversionFormatter formatter = getFormatter(spec.conversionSpec);
-            assert (formatter != null);
-            formatter.format(spec, fmtBuf);
-            lastIdx = spec.endIdx + 1;
+            s = new Scratch();
         }
-        fmtBuf.append(fmt.subSequence(lastIdx, fmt.length()));
-
-        //                System.out.println("fmt: " + fmt + ", obj: "
-        //                    + ((args.length > 0) ? args[0] : null) + ", type: "
-        //                    + ((args.length > 0 && args[0] != null) ?
-        //                        args[0].getClass() : null));
-        //                System.out.println("result[" + fmtBuf + "]");
-        //                System.out.println("estimated: " + bufWidth);
-        //                System.out.println("actual: " + fmtBuf.length());
+        s.inUse = true;
+        s.buf.setLength(0);
+        return s;
+    }
 
-        // assertion to check that we allocated properly. This is really just
-        // a performance check
-        assert (fmtBuf.length() <= bufWidth);
+    /**
+     * Releases scratch state obtained from {@link #acquireScratch}.
+     *
+     * @param s the scratch state to release
+     */
+    void releaseScratch(Scratch s)
+    {
+        s.inUse = false;
+        if (s.buf.capacity() > MAX_RETAINED_BUFFER)
+        {
+            s.buf = new StringBuilder(INITIAL_BUFFER);
+        }
+    }
 
-        return postProcess(fmtBuf).toString();
+    /**
+     * Returns whether this class or a derived class overrides
+     * {@link #postProcess}. If not, post-processing can be skipped entirely.
+     *
+     * @return <code>true</code> if postProcess is overridden
+     */
+    boolean hasPostProcess()
+    {
+        return postProcessOverridden;
     }
 
     /**
@@ -559,7 +700,7 @@ public class PrintfFormatter
      *      value is exactly the number of conversion specifiers in the format
      *      that consume an argument.
      */
-    private void warnAboutMissingArgs(int observedArgs, int expectedArgs)
+    void warnAboutMissingArgs(int observedArgs, int expectedArgs)
     {
         // Give the user a pointer so they can fix their code
         StackTraceElement[] stack = Thread.currentThread().getStackTrace();
@@ -22,6 +22,12 @@ import java.util.EnumSet;
 
 /**
  * Class representing a printf specification.
+ * <P>
+ * PrintfSpec objects parsed from a format string are kept as templates by
+ * {@link PrintfFormat}. Each formatting operation copies a template into a
+ * per-thread scratch PrintfSpec using {@link #reset}, so that
+ * {@link ConversionFormatter} objects may freely update the flags and cached
+ * fields of the spec they are given.
  * 
  * @author Jon Nall
  */
@@ -30,54 +36,54 @@ final class PrintfSpec
     /**
      * The conversion specifier for this specification.
      */
-    public final char conversionSpec;
+    public char conversionSpec;
 
     /**
      * The set of flags that have been set for this specification.
      */
-    public final EnumSet<PrintfFlag> flags;
+    public EnumSet<PrintfFlag> flags;
 
     /**
      * The width of this specification. This value is only valid if
      * <code>widthIsValid</code> is <code>true</code>.
      */
-    public final int width;
+    public int width;
 
     /**
      * Determines if <code>width</code> is valid.
      */
-    public final boolean widthIsValid;
+    public boolean widthIsValid;
 
     /**
      * The precision of this specification. This value is only valid if
      * <code>precisionIsValid</code> is <code>true</code>.
      */
-    public final int precision;
+    public int precision;
 
     /**
      * Determines if <code>precision</code> is valid.
      */
-    public final boolean precisionIsValid;
+    public boolean precisionIsValid;
 
     /**
      * The object to be formatted. This may be <code>null</code>, for example
      * in no-argument format specifications.
      */
-    public final Object obj;
+    public Object obj;
 
     /**
      * The starting index of this printf specification in the original format
      * string. For example, in "01%4s56", the startIdx would be 2 since index
      * 2 is where the printf specification "%4s" starts.
      */
-    public final int startIdx;
+    public int startIdx;
 
     /**
      * The ending index of this printf specification in the original format
      * string. For example, in "01%4s56", the startIdx would be 4 since index
      * 4 is where the printf specification "%4s" ends.
      */
-    public final int endIdx;
+    public int endIdx;
 
     /**
      * The cached string, which may be <code>null</code>. If not
@@ -107,7 +113,7 @@ final class PrintfSpec
     public int cachedLength = -1;
 
     /**
-     * Sole constructor.
+     * Constructs a PrintfSpec with the given parameters.
      *
      * @param startIdx the starting index of this specifier string in the
      *      original format string
@@ -144,4 +150,36 @@ final class PrintfSpec
         this.precisionIsValid = precisionIsValid;
         this.obj = obj;
     }
+
+    /**
+     * Constructs an empty PrintfSpec to be initialized using {@link #reset}.
+     */
+    PrintfSpec()
+    {
+        this.flags = EnumSet.noneOf(PrintfFlag.class);
+    }
+
+    /**
+     * Copies the format specification of the given template into this
+     * PrintfSpec, associates it with the given object, and clears any cached
+     * values.
+     *
+     * @param template the PrintfSpec to copy
+     * @param obj the object to format
+     */
+    void reset(PrintfSpec template, Object obj)
+    {
+        this.startIdx = template.startIdx;
+        this.endIdx = template.endIdx;
+        this.conversionSpec = template.conversionSpec;
+        this.flags.clear();
+        this.flags.addAll(template.flags);
+        this.width = template.width;
+        this.widthIsValid = template.widthIsValid;
+        this.precision = template.precision;
+        this.precisionIsValid = template.precisionIsValid;
+        this.obj = obj;
+        this.cachedString = null;
+        this.cachedLength = -1;
+    }
 }
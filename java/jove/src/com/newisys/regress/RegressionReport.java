@@ -0,0 +1,163 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.newisys.regress;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+import com.newisys.behsim.BehavioralLauncher;
+
+/**
+ * Writes regression results as a stream of JSON objects, one per line. Each
+ * result is flushed as soon as it is written, so that the report of a running
+ * regression can be followed and a partial report survives an aborted run.
+ * Each line has the following members:
+ * <ul>
+ * <li><code>test</code>: the application class name</li>
+ * <li><code>seed</code>: the seed of the run</li>
+ * <li><code>args</code>: an array of the plus arguments</li>
+ * <li><code>status</code>: PASS, FAIL, TIMEOUT, or CRASH</li>
+ * <li><code>simTime</code>: the final simulation time, or -1 if unknown</li>
+ * <li><code>wallMs</code>: the elapsed wall time in milliseconds</li>
+ * <li><code>cyclesPerSec</code>: default clock cycles simulated per second</li>
+ * <li><code>worker</code>: the index of the worker JVM</li>
+ * <li><code>message</code>: the failure description (omitted on PASS)</li>
+ * </ul>
+ * 
+ * @author Trevor Robinson
+ */
+public final class RegressionReport
+{
+    private final Writer out;
+
+    /**
+     * Constructs a new report that writes to the given writer.
+     *
+     * @param out the writer to which results are written
+     */
+    public RegressionReport(Writer out)
+    {
+        this.out = out;
+    }
+
+    /**
+     * Writes the given result to this report and flushes it.
+     *
+     * @param result the result to write
+     * @throws IOException if an I/O error occurs
+     */
+    public synchronized void write(RegressionResult result)
+        throws IOException
+    {
+        out.write(format(result));
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * Closes the underlying writer.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public synchronized void close()
+        throws IOException
+    {
+        out.close();
+    }
+
+    /**
+     * Formats the given result as a single-line JSON object.
+     *
+     * @param result the result to format
+     * @return the JSON representation of the result
+     */
+    public static String format(RegressionResult result)
+    {
+        final RegressionTest test = result.getTest();
+        final StringBuffer buf = new StringBuffer(128);
+        buf.append("{\"test\":");
+        appendString(buf, test.getClassName());
+        buf.append(",\"seed\":");
+        buf.append(test.getSeed());
+        buf.append(",\"args\":[");
+        boolean first = true;
+        for (final String arg : test.getArguments())
+        {
+            if (!first) buf.append(',');
+            appendString(buf, arg);
+            first = false;
+        }
+        buf.append("],\"status\":\"");
+        buf.append(result.getStatus());
+        buf.append("\",\"simTime\":");
+        buf.append(result.getSimTime());
+        buf.append(",\"wallMs\":");
+        buf.append(String.format(Locale.US, "%.3f",
+            result.getWallNanos() / 1e6));
+        buf.append(",\"cyclesPerSec\":");
+        buf.append(String.format(Locale.US, "%.1f", result
+            .getCyclesPerSecond(BehavioralLauncher.DEFAULT_CLOCK_PERIOD)));
+        buf.append(",\"worker\":");
+        buf.append(result.getWorker());
+        if (result.getMessage() != null)
+        {
+            buf.append(",\"message\":");
+            appendString(buf, result.getMessage());
+        }
+        buf.append('}');
+        return buf.toString();
+    }
+
+    private static void appendString(StringBuffer buf, String s)
+    {
+        buf.append('"');
+        for (int i = 0; i < s.length(); ++i)
+        {
+            final char c = s.charAt(i);
+            switch (c)
+            {
+            case '"':
+                buf.append("\\\"");
+                break;
+            case '\\':
+                buf.append("\\\\");
+                break;
+            case '\n':
+                buf.append("\\n");
+                break;
+            case '\r':
+                buf.append("\\r");
+                break;
+            case '\t':
+                buf.append("\\t");
+                break;
+            default:
+                if (c < 0x20)
+                {
+                    buf.append(String.format("\\u%04x", (int) c));
+                }
+                else
+                {
+                    buf.append(c);
+                }
+            }
+        }
+        buf.append('"');
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.newisys.regress;
+
+/**
+ * The outcome of a single regression test run.
+ * 
+ * @author Trevor Robinson
+ */
+public final class RegressionResult
+{
+    /**
+     * Enumeration of regression test outcomes.
+     */
+    public enum Status
+    {
+        /** The simulation completed without an unhandled exception. */
+        PASS,
+        /** The simulation terminated with an unhandled exception. */
+        FAIL,
+        /** The simulation did not complete within the per-test timeout. */
+        TIMEOUT,
+        /** The worker JVM running the simulation exited unexpectedly. */
+        CRASH
+    }
+
+    private final RegressionTest test;
+    private final Status status;
+    private final long simTime;
+    private final long wallNanos;
+    private final int worker;
+    private final String message;
+
+    /**
+     * Constructs a new regression result.
+     *
+     * @param test the test that was run
+     * @param status the outcome of the test
+     * @param simTime the simulation time at which the test ended, or -1 if
+     *            unknown
+     * @param wallNanos the elapsed wall-clock time of the test, in nanoseconds
+     * @param worker the index of the worker JVM that ran the test
+     * @param message a description of the failure, or null if the test passed
+     */
+    public RegressionResult(
+        RegressionTest test,
+        Status status,
+        long simTime,
+        long wallNanos,
+        int worker,
+        String message)
+    {
+        this.test = test;
+        this.status = status;
+        this.simTime = simTime;
+        this.wallNanos = wallNanos;
+        this.worker = worker;
+        this.message = message;
+    }
+
+    /**
+     * Returns the test that was run.
+     *
+     * @return the regression test
+     */
+    public RegressionTest getTest()
+    {
+        return test;
+    }
+
+    /**
+     * Returns the outcome of the test.
+     *
+     * @return the test status
+     */
+    public Status getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * Returns whether the test passed.
+     *
+     * @return true if the status is PASS
+     */
+    public boolean isPassed()
+    {
+        return status == Status.PASS;
+    }
+
+    /**
+     * Returns the simulation time at which the test ended.
+     *
+     * @return the final simulation time, or -1 if unknown
+     */
+    public long getSimTime()
+    {
+        return simTime;
+    }
+
+    /**
+     * Returns the elapsed wall-clock time of the test.
+     *
+     * @return the wall time in nanoseconds
+     */
+    public long getWallNanos()
+    {
+        return wallNanos;
+    }
+
+    /**
+     * Returns the number of default clock cycles simulated per second of wall
+     * time.
+     *
+     * @param clockPeriod the period of the default clock
+     * @return the simulation rate in cycles per second, or 0 if unknown
+     */
+    public double getCyclesPerSecond(int clockPeriod)
+    {
+        if (simTime <= 0 || wallNanos <= 0) return 0;
+        return (simTime / (double) clockPeriod) / (wallNanos / 1e9);
+    }
+
+    /**
+     * Returns the index of the worker JVM that ran the test.
+     *
+     * @return the worker index
+     */
+    public int getWorker()
+    {
+        return worker;
+    }
+
+    /**
+     * Returns a description of the failure.
+     *
+     * @return the failure message, or null if the test passed
+     */
+    public String getMessage()
+    {
+        return message;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return status + ": " + test
+            + (message != null ? " (" + message + ")" : "");
+    }
+}
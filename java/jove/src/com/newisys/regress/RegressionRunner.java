@@ -0,0 +1,393 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.newisys.regress;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Runs a regression, consisting of a list of tests expanded over a seed
+ * matrix, across a pool of long-lived {@link RegressionWorker} JVMs. Each
+ * worker runs one test at a time, so the number of workers determines the
+ * number of tests run in parallel. Running many tests in each worker avoids
+ * repeating JVM startup, class loading, constraint compilation, and JIT
+ * warm-up for every test.
+ * <P>
+ * Tests are isolated from each other as follows:
+ * <ul>
+ * <li>each test runs on a new simulation with a new simulation manager</li>
+ * <li>a worker is replaced after any test that does not pass, since the
+ * failed test may have left threads or static state behind</li>
+ * <li>a worker is killed and replaced when a test exceeds the timeout</li>
+ * <li>optionally, a worker is replaced after a fixed number of tests</li>
+ * </ul>
+ * Results are written to a {@link RegressionReport} as each test completes.
+ * 
+ * @author Trevor Robinson
+ */
+public final class RegressionRunner
+{
+    private final int workerCount;
+    private final long timeoutMillis;
+    private List<String> jvmArgs = Collections.emptyList();
+    private int testsPerWorker;
+    private File logDir;
+
+    /**
+     * Constructs a new regression runner.
+     *
+     * @param workerCount the number of worker JVMs, and therefore the maximum
+     *            number of tests run in parallel
+     * @param timeoutMillis the maximum wall time of each test in
+     *            milliseconds, or 0 for no limit
+     */
+    public RegressionRunner(int workerCount, long timeoutMillis)
+    {
+        if (workerCount < 1)
+        {
+            throw new IllegalArgumentException("Invalid worker count: "
+                + workerCount);
+        }
+        this.workerCount = workerCount;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Sets additional arguments passed to each worker JVM, such as heap size
+     * or system property settings.
+     *
+     * @param jvmArgs the JVM arguments
+     */
+    public void setJvmArgs(List<String> jvmArgs)
+    {
+        this.jvmArgs = new ArrayList<String>(jvmArgs);
+    }
+
+    /**
+     * Sets the number of tests run by a worker before it is replaced.
+     *
+     * @param testsPerWorker the number of tests per worker, or 0 for no limit
+     */
+    public void setTestsPerWorker(int testsPerWorker)
+    {
+        this.testsPerWorker = testsPerWorker;
+    }
+
+    /**
+     * Sets the directory to which the output of each worker is appended, in a
+     * file named <code>worker-&lt;n&gt;.log</code>.
+     *
+     * @param logDir the log directory, or null to send worker output to the
+     *            standard error of this JVM
+     */
+    public void setLogDirectory(File logDir)
+    {
+        this.logDir = logDir;
+    }
+
+    /**
+     * Runs the given tests and writes their results to the given report.
+     *
+     * @param tests the tests to run
+     * @param report the report to which results are written as they complete
+     * @return a list of the results in order of completion
+     * @throws IOException if a worker cannot be started or the report cannot
+     *             be written
+     * @throws InterruptedException if the current thread is interrupted
+     */
+    public List<RegressionResult> run(
+        List<RegressionTest> tests,
+        final RegressionReport report)
+        throws IOException, InterruptedException
+    {
+        final Queue<RegressionTest> pending = new ConcurrentLinkedQueue<RegressionTest>(
+            tests);
+        final List<RegressionResult> results = Collections
+            .synchronizedList(new ArrayList<RegressionResult>(tests.size()));
+        final IOException[] error = new IOException[1];
+
+        final int threadCount = Math.min(workerCount, tests.size());
+        final Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; ++i)
+        {
+            final int index = i;
+            threads[i] = new Thread("RegressionRunner-" + i)
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        runWorker(index, pending, results, report);
+                    }
+                    catch (IOException e)
+                    {
+                        synchronized (error)
+                        {
+                            if (error[0] == null) error[0] = e;
+                        }
+                        // stop other workers from starting new tests
+                        pending.clear();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (final Thread thread : threads)
+        {
+            thread.join();
+        }
+        if (error[0] != null)
+        {
+            throw error[0];
+        }
+        return new ArrayList<RegressionResult>(results);
+    }
+
+    private void runWorker(
+        int index,
+        Queue<RegressionTest> pending,
+        List<RegressionResult> results,
+        RegressionReport report)
+        throws IOException
+    {
+        WorkerProcess worker = null;
+        try
+        {
+            RegressionTest test;
+            while ((test = pending.poll()) != null)
+            {
+                if (worker == null)
+                {
+                    worker = new WorkerProcess(index, jvmArgs, logDir);
+                }
+
+                final RegressionResult result = worker.runTest(test,
+                    timeoutMillis);
+                results.add(result);
+                report.write(result);
+
+                final RegressionResult.Status status = result.getStatus();
+                if (status == RegressionResult.Status.TIMEOUT
+                    || status == RegressionResult.Status.CRASH)
+                {
+                    // already killed
+                    worker = null;
+                }
+                else if (status != RegressionResult.Status.PASS
+                    || (testsPerWorker > 0 && worker.getTestCount() >= testsPerWorker))
+                {
+                    worker.close();
+                    worker = null;
+                }
+            }
+        }
+        finally
+        {
+            if (worker != null)
+            {
+                worker.close();
+            }
+        }
+    }
+
+    /**
+     * Runs a regression.
+     * <P>
+     * usage: RegressionRunner [options] &lt;test list&gt;
+     * <P>
+     * Options:
+     * <ul>
+     * <li><code>-seeds &lt;spec&gt;</code>: default seeds, such as
+     * <code>1-10,42</code> (default 0)</li>
+     * <li><code>-jvms &lt;n&gt;</code>: number of worker JVMs (default number
+     * of available processors)</li>
+     * <li><code>-timeout &lt;seconds&gt;</code>: per-test timeout (default
+     * 3600, 0 for none)</li>
+     * <li><code>-report &lt;file&gt;</code>: JSON lines report file (default
+     * standard output)</li>
+     * <li><code>-logdir &lt;dir&gt;</code>: directory for worker logs (default
+     * standard error)</li>
+     * <li><code>-recycle &lt;n&gt;</code>: tests per worker JVM (default no
+     * limit)</li>
+     * <li><code>-J&lt;arg&gt;</code>: argument passed to worker JVMs</li>
+     * </ul>
+     * The format of the test list is described by
+     * {@link RegressionTest#parseTestList}. The exit status is 0 if all tests
+     * passed and 1 otherwise.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args)
+    {
+        String seedSpec = "0";
+        int jvms = Runtime.getRuntime().availableProcessors();
+        long timeoutSecs = 3600;
+        String reportFile = null;
+        String logDir = null;
+        int recycle = 0;
+        final List<String> jvmArgs = new ArrayList<String>();
+        String testList = null;
+
+        try
+        {
+            for (int i = 0; i < args.length; ++i)
+            {
+                final String arg = args[i];
+                if (arg.startsWith("-J") && arg.length() > 2)
+                {
+                    jvmArgs.add(arg.substring(2));
+                }
+                else if (arg.startsWith("-") && i + 1 < args.length)
+                {
+                    final String value = args[++i];
+                    if (arg.equals("-seeds"))
+                    {
+                        seedSpec = value;
+                    }
+                    else if (arg.equals("-jvms"))
+                    {
+                        jvms = Integer.parseInt(value);
+                    }
+                    else if (arg.equals("-timeout"))
+                    {
+                        timeoutSecs = Long.parseLong(value);
+                    }
+                    else if (arg.equals("-report"))
+                    {
+                        reportFile = value;
+                    }
+                    else if (arg.equals("-logdir"))
+                    {
+                        logDir = value;
+                    }
+                    else if (arg.equals("-recycle"))
+                    {
+                        recycle = Integer.parseInt(value);
+                    }
+                    else
+                    {
+                        throw new IllegalArgumentException("Unknown option: "
+                            + arg);
+                    }
+                }
+                else if (testList == null && !arg.startsWith("-"))
+                {
+                    testList = arg;
+                }
+                else
+                {
+                    throw new IllegalArgumentException("Invalid argument: "
+                        + arg);
+                }
+            }
+            if (testList == null)
+            {
+                throw new IllegalArgumentException("No test list given");
+            }
+        }
+        catch (IllegalArgumentException e)
+        {
+            System.err.println(e.getMessage());
+            System.err.println("Syntax: RegressionRunner [-seeds <spec>] "
+                + "[-jvms <n>] [-timeout <seconds>] [-report <file>] "
+                + "[-logdir <dir>] [-recycle <n>] [-J<jvmarg>]... "
+                + "<test list>");
+            System.exit(2);
+        }
+
+        int failures = 0;
+        try
+        {
+            final List<RegressionTest> tests;
+            final Reader in = new FileReader(testList);
+            try
+            {
+                tests = RegressionTest.parseTestList(in, RegressionTest
+                    .parseSeeds(seedSpec));
+            }
+            finally
+            {
+                in.close();
+            }
+
+            final RegressionRunner runner = new RegressionRunner(jvms,
+                timeoutSecs * 1000);
+            runner.setJvmArgs(jvmArgs);
+            runner.setTestsPerWorker(recycle);
+            if (logDir != null)
+            {
+                final File dir = new File(logDir);
+                dir.mkdirs();
+                runner.setLogDirectory(dir);
+            }
+
+            final RegressionReport report = new RegressionReport(
+                new BufferedWriter(reportFile != null ? new FileWriter(
+                    reportFile) : new OutputStreamWriter(System.out)));
+            final List<RegressionResult> results;
+            final long startTime = System.nanoTime();
+            try
+            {
+                results = runner.run(tests, report);
+            }
+            finally
+            {
+                report.close();
+            }
+            final long wallMillis = (System.nanoTime() - startTime) / 1000000;
+
+            final int[] counts = new int[RegressionResult.Status.values().length];
+            for (final RegressionResult result : results)
+            {
+                ++counts[result.getStatus().ordinal()];
+                if (!result.isPassed())
+                {
+                    ++failures;
+                    System.err.println(result);
+                }
+            }
+            final StringBuffer buf = new StringBuffer();
+            buf.append(results.size()).append(" tests in ").append(wallMillis)
+                .append(" ms:");
+            for (final RegressionResult.Status status : RegressionResult.Status
+                .values())
+            {
+                buf.append(' ').append(status).append('=').append(
+                    counts[status.ordinal()]);
+            }
+            System.err.println(buf);
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+            System.exit(2);
+        }
+        System.exit(failures > 0 ? 1 : 0);
+    }
+}
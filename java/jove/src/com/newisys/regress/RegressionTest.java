@@ -0,0 +1,227 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.newisys.regress;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes a single run of a regression: a DVApplication class, a seed, and
+ * the plus arguments passed to the simulation.
+ * 
+ * @author Trevor Robinson
+ */
+public final class RegressionTest
+{
+    private final String className;
+    private final long seed;
+    private final List<String> arguments;
+
+    /**
+     * Constructs a new regression test.
+     *
+     * @param className the fully qualified name of the DVApplication class
+     * @param seed the seed of the simulation manager seed source
+     * @param arguments the plus arguments of the simulation
+     */
+    public RegressionTest(String className, long seed, List<String> arguments)
+    {
+        this.className = className;
+        this.seed = seed;
+        this.arguments = Collections.unmodifiableList(new ArrayList<String>(
+            arguments));
+    }
+
+    /**
+     * Returns the name of the DVApplication class of this test.
+     *
+     * @return the application class name
+     */
+    public String getClassName()
+    {
+        return className;
+    }
+
+    /**
+     * Returns the seed of this test.
+     *
+     * @return the seed
+     */
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * Returns the plus arguments of this test, not including the seed
+     * argument.
+     *
+     * @return an unmodifiable list of arguments
+     */
+    public List<String> getArguments()
+    {
+        return arguments;
+    }
+
+    /**
+     * Returns the full argument list passed to the simulation: the class name,
+     * the plus arguments, and a <code>+seed=&lt;n&gt;</code> argument.
+     *
+     * @return a new array of simulation arguments
+     */
+    public String[] getSimulationArguments()
+    {
+        final String[] result = new String[arguments.size() + 2];
+        result[0] = className;
+        for (int i = 0; i < arguments.size(); ++i)
+        {
+            result[i + 1] = arguments.get(i);
+        }
+        result[result.length - 1] = "+seed=" + seed;
+        return result;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        final StringBuffer buf = new StringBuffer(className);
+        for (final String arg : arguments)
+        {
+            buf.append(' ');
+            buf.append(arg);
+        }
+        buf.append(" +seed=");
+        buf.append(seed);
+        return buf.toString();
+    }
+
+    /**
+     * Parses a seed specification, which is a comma-separated list of seeds
+     * and inclusive seed ranges, such as <code>1-10,42</code>.
+     *
+     * @param spec the seed specification
+     * @return an array of the specified seeds, in order of appearance
+     * @throws IllegalArgumentException if the specification is malformed
+     */
+    public static long[] parseSeeds(String spec)
+    {
+        final List<Long> seeds = new ArrayList<Long>();
+        for (String term : spec.split(","))
+        {
+            term = term.trim();
+            if (term.length() == 0) continue;
+
+            // allow negative seeds by looking for the range dash after the
+            // first character
+            final int dash = term.indexOf('-', 1);
+            try
+            {
+                if (dash > 0)
+                {
+                    final long first = Long.parseLong(term.substring(0, dash)
+                        .trim());
+                    final long last = Long.parseLong(term.substring(dash + 1)
+                        .trim());
+                    if (last < first)
+                    {
+                        throw new IllegalArgumentException(
+                            "Empty seed range: " + term);
+                    }
+                    for (long seed = first; seed <= last; ++seed)
+                    {
+                        seeds.add(seed);
+                    }
+                }
+                else
+                {
+                    seeds.add(Long.parseLong(term));
+                }
+            }
+            catch (NumberFormatException e)
+            {
+                throw new IllegalArgumentException("Invalid seed: " + term);
+            }
+        }
+        final long[] result = new long[seeds.size()];
+        for (int i = 0; i < result.length; ++i)
+        {
+            result[i] = seeds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Reads a test list and expands it over a seed matrix. Each non-empty line
+     * of the list that does not start with <code>#</code> names a
+     * DVApplication class followed by optional plus arguments, separated by
+     * whitespace. A line may include a <code>seeds=&lt;spec&gt;</code> term,
+     * which overrides the default seeds for that test. The result contains
+     * one test for each line and seed, ordered by line and then by seed.
+     *
+     * @param in the reader from which to read the test list
+     * @param defaultSeeds the seeds used for lines without a seeds term
+     * @return a new list of regression tests
+     * @throws IOException if an I/O error occurs while reading the list
+     * @throws IllegalArgumentException if a seeds term is malformed
+     */
+    public static List<RegressionTest> parseTestList(
+        Reader in,
+        long[] defaultSeeds)
+        throws IOException
+    {
+        final List<RegressionTest> tests = new ArrayList<RegressionTest>();
+        final BufferedReader reader = new BufferedReader(in);
+        String line;
+        while ((line = reader.readLine()) != null)
+        {
+            line = line.trim();
+            if (line.length() == 0 || line.startsWith("#")) continue;
+
+            final List<String> terms = new ArrayList<String>(Arrays
+                .asList(line.split("\\s+")));
+            final String className = terms.remove(0);
+            long[] seeds = defaultSeeds;
+            final List<String> args = new ArrayList<String>(terms.size());
+            for (final String term : terms)
+            {
+                if (term.startsWith("seeds="))
+                {
+                    seeds = parseSeeds(term.substring(6));
+                }
+                else
+                {
+                    args.add(term);
+                }
+            }
+            for (final long seed : seeds)
+            {
+                tests.add(new RegressionTest(className, seed, args));
+            }
+        }
+        return tests;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.newisys.regress;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import com.newisys.behsim.BehavioralLauncher;
+import com.newisys.behsim.BehavioralSimulation;
+import com.newisys.dv.DV;
+import com.newisys.dv.DVSimulation;
+
+/**
+ * Runs behavioral simulations on behalf of a {@link RegressionRunner}. A worker
+ * is a long-lived JVM that reads test requests from standard input, one per
+ * line, and runs them sequentially in the same JVM, so that loaded classes,
+ * JIT-compiled code, and static caches such as compiled constraints are reused
+ * across tests.
+ * <P>
+ * Standard output is reserved for the protocol with the runner; output written
+ * by tests to <code>System.out</code> is redirected to standard error. The
+ * protocol consists of the following lines, with fields separated by tabs:
+ * <ul>
+ * <li>worker to runner, once at startup: <code>READY</code></li>
+ * <li>runner to worker: <code>RUN id appclass [plus args]</code></li>
+ * <li>worker to runner: <code>RESULT id status simtime wallnanos
+ * [message]</code></li>
+ * <li>runner to worker: <code>EXIT</code></li>
+ * </ul>
+ * 
+ * @author Trevor Robinson
+ */
+public final class RegressionWorker
+{
+    static final String READY = "READY";
+    static final String RUN = "RUN";
+    static final String RESULT = "RESULT";
+    static final String EXIT = "EXIT";
+
+    private RegressionWorker()
+    {
+    }
+
+    /**
+     * Runs a regression worker until standard input is closed or an EXIT
+     * request is received.
+     *
+     * @param args ignored
+     */
+    public static void main(String[] args)
+    {
+        final PrintStream protocol = System.out;
+        System.setOut(System.err);
+
+        try
+        {
+            final BufferedReader in = new BufferedReader(new InputStreamReader(
+                System.in));
+            protocol.println(READY);
+            protocol.flush();
+
+            String line;
+            while ((line = in.readLine()) != null)
+            {
+                final String[] fields = line.split("\t");
+                if (fields[0].equals(EXIT))
+                {
+                    break;
+                }
+                else if (fields[0].equals(RUN) && fields.length >= 3)
+                {
+                    final String id = fields[1];
+                    final String[] simArgs = Arrays.copyOfRange(fields, 2,
+                        fields.length);
+                    protocol.println(runTest(id, simArgs));
+                    protocol.flush();
+                }
+                else
+                {
+                    System.err.println("Invalid regression request: " + line);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+        System.exit(0);
+    }
+
+    private static String runTest(String id, String[] simArgs)
+    {
+        // each test gets a new simulation; clear the global simulation
+        // reference left by the previous test so that it refers to this one
+        DV.simulation = null;
+
+        final BehavioralSimulation sim = new BehavioralSimulation(Arrays
+            .asList(simArgs));
+        RegressionResult.Status status = RegressionResult.Status.PASS;
+        String message = null;
+        final long startTime = System.nanoTime();
+        try
+        {
+            final Class< ? > appCls = Class.forName(simArgs[0]);
+            final DVSimulation dvSim = BehavioralLauncher.launch(sim, appCls,
+                BehavioralLauncher.getSeed(simArgs));
+            final Throwable t = dvSim.getUnhandledException();
+            if (t != null)
+            {
+                status = RegressionResult.Status.FAIL;
+                message = describe(t);
+            }
+        }
+        catch (Throwable t)
+        {
+            status = RegressionResult.Status.FAIL;
+            message = describe(t);
+            t.printStackTrace();
+        }
+        final long wallNanos = System.nanoTime() - startTime;
+        final long simTime = sim.getSimTime();
+        DV.simulation = null;
+
+        final StringBuffer buf = new StringBuffer();
+        buf.append(RESULT).append('\t').append(id);
+        buf.append('\t').append(status);
+        buf.append('\t').append(simTime);
+        buf.append('\t').append(wallNanos);
+        if (message != null)
+        {
+            buf.append('\t').append(message.replace('\t', ' ').replace('\n',
+                ' ').replace('\r', ' '));
+        }
+        return buf.toString();
+    }
+
+    // describes a failure by its root cause, which is the exception thrown by
+    // the test rather than a wrapper added by the simulation framework
+    private static String describe(Throwable t)
+    {
+        Throwable root = t;
+        while (root.getCause() != null && root.getCause() != root)
+        {
+            root = root.getCause();
+        }
+        return root.toString();
+    }
+}
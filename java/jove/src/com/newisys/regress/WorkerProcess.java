@@ -0,0 +1,271 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.newisys.regress;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manages a single {@link RegressionWorker} JVM on behalf of a
+ * {@link RegressionRunner}.
+ * 
+ * @author Trevor Robinson
+ */
+final class WorkerProcess
+{
+    // sentinel queued by the reader thread when the worker output ends
+    private static final String EOF = new String("EOF");
+
+    private static final long STARTUP_TIMEOUT = 60000;
+    private static final long EXIT_TIMEOUT = 5000;
+
+    private final int index;
+    private final Process process;
+    private final Writer requests;
+    private final BlockingQueue<String> responses = new LinkedBlockingQueue<String>();
+    private int nextId;
+    private int testCount;
+
+    /**
+     * Starts a new worker JVM using the class path of the current JVM.
+     *
+     * @param index the index of the worker, used in results and log names
+     * @param jvmArgs additional arguments for the worker JVM
+     * @param logDir the directory to which worker output is appended, or null
+     *            to inherit the standard error of the current JVM
+     * @throws IOException if the worker cannot be started or does not become
+     *             ready
+     */
+    public WorkerProcess(int index, List<String> jvmArgs, File logDir)
+        throws IOException
+    {
+        this.index = index;
+
+        final List<String> command = new ArrayList<String>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"),
+            "java").getPath());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.addAll(jvmArgs);
+        command.add(RegressionWorker.class.getName());
+
+        final ProcessBuilder pb = new ProcessBuilder(command);
+        if (logDir != null)
+        {
+            pb.redirectError(ProcessBuilder.Redirect.appendTo(new File(logDir,
+                "worker-" + index + ".log")));
+        }
+        else
+        {
+            pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        }
+        process = pb.start();
+        requests = new OutputStreamWriter(process.getOutputStream());
+
+        final BufferedReader in = new BufferedReader(new InputStreamReader(
+            process.getInputStream()));
+        final Thread reader = new Thread("RegressionWorker-" + index)
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    String line;
+                    while ((line = in.readLine()) != null)
+                    {
+                        responses.add(line);
+                    }
+                }
+                catch (IOException e)
+                {
+                    // treated as end of output
+                }
+                responses.add(EOF);
+            }
+        };
+        reader.setDaemon(true);
+        reader.start();
+
+        final String ready = poll(STARTUP_TIMEOUT);
+        if (!RegressionWorker.READY.equals(ready))
+        {
+            kill();
+            throw new IOException("Regression worker " + index
+                + " failed to start");
+        }
+    }
+
+    private String poll(long timeoutMillis)
+    {
+        try
+        {
+            return responses.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Returns the index of this worker.
+     *
+     * @return the worker index
+     */
+    public int getIndex()
+    {
+        return index;
+    }
+
+    /**
+     * Returns the number of tests run by this worker.
+     *
+     * @return the test count
+     */
+    public int getTestCount()
+    {
+        return testCount;
+    }
+
+    /**
+     * Runs the given test in this worker. If the test does not complete within
+     * the given timeout, or the worker exits, the worker is killed and must not
+     * be used again.
+     *
+     * @param test the test to run
+     * @param timeoutMillis the maximum wall time of the test in milliseconds,
+     *            or 0 for no limit
+     * @return the result of the test
+     */
+    public RegressionResult runTest(RegressionTest test, long timeoutMillis)
+    {
+        ++testCount;
+        final String id = Integer.toString(nextId++);
+        final long startTime = System.nanoTime();
+        try
+        {
+            final StringBuffer buf = new StringBuffer();
+            buf.append(RegressionWorker.RUN).append('\t').append(id);
+            for (final String arg : test.getSimulationArguments())
+            {
+                buf.append('\t').append(arg);
+            }
+            buf.append('\n');
+            requests.write(buf.toString());
+            requests.flush();
+        }
+        catch (IOException e)
+        {
+            kill();
+            return new RegressionResult(test, RegressionResult.Status.CRASH,
+                -1, System.nanoTime() - startTime, index,
+                "Error sending request: " + e);
+        }
+
+        final long deadline = timeoutMillis > 0 ? System.currentTimeMillis()
+            + timeoutMillis : Long.MAX_VALUE;
+        while (true)
+        {
+            final long remaining = deadline - System.currentTimeMillis();
+            final String line = remaining > 0 ? poll(remaining) : null;
+            if (line == null)
+            {
+                kill();
+                return new RegressionResult(test,
+                    RegressionResult.Status.TIMEOUT, -1, System.nanoTime()
+                        - startTime, index, "Timed out after "
+                        + timeoutMillis + " ms");
+            }
+            else if (line == EOF)
+            {
+                kill();
+                return new RegressionResult(test,
+                    RegressionResult.Status.CRASH, -1, System.nanoTime()
+                        - startTime, index, "Worker exited with status "
+                        + exitValue());
+            }
+
+            final String[] fields = line.split("\t", 6);
+            if (fields.length >= 5 && fields[0].equals(RegressionWorker.RESULT)
+                && fields[1].equals(id))
+            {
+                return new RegressionResult(test, RegressionResult.Status
+                    .valueOf(fields[2]), Long.parseLong(fields[3]), Long
+                    .parseLong(fields[4]), index, fields.length > 5
+                    ? fields[5] : null);
+            }
+        }
+    }
+
+    private int exitValue()
+    {
+        try
+        {
+            return process.waitFor();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    /**
+     * Asks the worker to exit, killing it if it does not exit promptly.
+     */
+    public void close()
+    {
+        try
+        {
+            requests.write(RegressionWorker.EXIT + "\n");
+            requests.flush();
+            if (process.waitFor(EXIT_TIMEOUT, TimeUnit.MILLISECONDS))
+            {
+                return;
+            }
+        }
+        catch (IOException e)
+        {
+            // fall through and kill the worker
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        kill();
+    }
+
+    /**
+     * Forcibly terminates the worker.
+     */
+    public void kill()
+    {
+        process.destroyForcibly();
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * Provides a regression runner that executes behavioral simulations for a
+ * list of tests and seeds in a pool of long-lived worker JVMs.
+ */
+package com.newisys.regress;
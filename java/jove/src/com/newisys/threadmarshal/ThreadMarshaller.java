@@ -24,6 +24,8 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.LinkedList;
 
+import com.newisys.jfr.JfrSupport;
+
 /**
  * Manages marshalling calls from multiple source threads to a given target
  * thread. The source threads make calls on a proxy object, obtained using
@@ -116,6 +118,9 @@ public final class ThreadMarshaller
             }
             else
             {
+                final Object jfrEvent = JfrSupport.ENABLED
+                    ? JfrSupport.RECORDER.beginMarshalledCall() : null;
+
                 // create a method call object and add it to the queue
                 MethodCallEvent event = new MethodCallEvent(thread,
                     targetThread, method, target, args);
@@ -127,6 +132,11 @@ public final class ThreadMarshaller
                 // wait for the target thread to execute the call
                 eventSync.waitFor(event);
 
+                if (jfrEvent != null)
+                {
+                    JfrSupport.RECORDER.commitMarshalledCall(jfrEvent, method);
+                }
+
                 // throw an exception if one occurred during the call
                 Throwable throwable = event.getThrowable();
                 if (throwable != null)
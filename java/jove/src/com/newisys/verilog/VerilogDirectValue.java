@@ -0,0 +1,51 @@
+/*
+ * PLI4J - A Java (TM) Interface to the Verilog PLI
+ * Copyright (C) 2003 Trevor A. Robinson
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Academic Free License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/afl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.verilog;
+
+import com.newisys.verilog.util.BitVectorView;
+
+/**
+ * Implemented by objects whose vector value can be transferred through a
+ * value slot in memory shared with the simulator, instead of as a BitVector
+ * object. Each object has at most one slot, which holds the last value read
+ * or written through it.
+ * 
+ * @author Trevor Robinson
+ */
+public interface VerilogDirectValue
+    extends VerilogWriteValue
+{
+    /**
+     * Returns the value slot of this object, allocating it if necessary.
+     *
+     * @return the value slot, or null if this object does not currently
+     *         support direct value transfer
+     */
+    BitVectorView getValueSlot();
+
+    /**
+     * Reads the current value of this object into its value slot.
+     */
+    void readValueSlot();
+
+    /**
+     * Writes the value in the value slot of this object to the simulator.
+     */
+    void writeValueSlot();
+}
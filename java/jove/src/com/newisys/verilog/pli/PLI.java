@@ -18,12 +18,22 @@
 
 package com.newisys.verilog.pli;
 
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.newisys.jfr.JfrSupport;
+import com.newisys.verilog.VerilogCallback;
+import com.newisys.verilog.VerilogCallbackData;
 import com.newisys.verilog.VerilogCallbackHandler;
 import com.newisys.verilog.VerilogObject;
 import com.newisys.verilog.VerilogRuntimeException;
 import com.newisys.verilog.VerilogScaledRealTime;
 import com.newisys.verilog.VerilogSimTime;
 import com.newisys.verilog.VerilogTime;
+import com.newisys.verilog.util.BitVectorView;
 
 /**
  * Implementation of the low-level PLI native interface.
@@ -39,6 +49,13 @@ public final class PLI
      */
     private PLIInterface pliProxy;
 
+    private static final String pkgName = PLI.class.getPackage().getName();
+    private static final int DEFAULT_LOG_BUFFER_SIZE = 64 * 1024;
+
+    // shared buffer for log output streams; null if buffering is disabled
+    private volatile PLILogBuffer logBuffer;
+    private FileChannel logChannel;
+
     long cachedSimTime = PLITime.INVALID_SIM_TIME;
     double cachedScaledRealTime = PLITime.INVALID_SCALED_REAL_TIME;
 
@@ -127,6 +144,9 @@ public final class PLI
     {
         callback.markOccurred();
 
+        final Object jfrEvent = JfrSupport.ENABLED ? JfrSupport.RECORDER
+            .beginPLICallback() : null;
+
         try
         {
             final VerilogTime time;
@@ -161,6 +181,17 @@ public final class PLI
             {
                 callback.release();
             }
+
+            // callback boundary: pass on any log output buffered while the
+            // handler ran
+            drainLog();
+
+            if (jfrEvent != null)
+            {
+                JfrSupport.RECORDER.commitPLICallback(jfrEvent, callback
+                    .getReason(), timeType == PLITimeTypeConstants.vpiSim
+                    ? longTime : -1);
+            }
         }
     }
 
@@ -287,6 +318,23 @@ public final class PLI
     private PLIVerilogObject createObject(long handle)
     {
         int type = getPropInt(PLIPropertyTypeConstants.vpiType, handle);
+        return createObject(pliProxy, type, handle);
+    }
+
+    /**
+     * Creates the wrapper object for a handle of the given VPI object type.
+     * Shared with alternate PLIInterface implementations.
+     *
+     * @param pliProxy the PLI interface to provide to the new object
+     * @param type the vpiType of the object
+     * @param handle the object handle
+     * @return a new PLIVerilogObject
+     */
+    static PLIVerilogObject createObject(
+        PLIInterface pliProxy,
+        int type,
+        long handle)
+    {
         switch (type)
         {
         case PLIObjectTypeConstants.vpiConstant:
@@ -364,6 +412,36 @@ public final class PLI
         }
     }
 
+    private native boolean getValueDirect0(
+        long handle,
+        ByteBuffer buffer,
+        int offset,
+        int wordCount);
+
+    public void getValueDirect(long handle, BitVectorView view)
+    {
+        if (!getValueDirect0(handle, view.getBuffer(), view.getOffset(), view
+            .getWordCount()))
+        {
+            throw getErrorRuntimeException();
+        }
+    }
+
+    private native boolean putValueDirect0(
+        long handle,
+        ByteBuffer buffer,
+        int offset,
+        int wordCount);
+
+    public void putValueDirect(long handle, BitVectorView view)
+    {
+        if (!putValueDirect0(handle, view.getBuffer(), view.getOffset(), view
+            .getWordCount()))
+        {
+            throw getErrorRuntimeException();
+        }
+    }
+
     private PLIVerilogSchedEvent putValueDelayInternal(
         long handle,
         Object value,
@@ -489,6 +567,9 @@ public final class PLI
 
     public void print(byte[] msg, int off, int len)
     {
+        // keep buffered output ahead of output printed directly
+        drainLogBuffer();
+
         if (!print0(msg, off, len))
         {
             throw getErrorRuntimeException();
@@ -499,10 +580,144 @@ public final class PLI
 
     public void flush()
     {
+        drainLogBuffer();
+
         // the return value of vpi_flush doesn't seem to be reliable
         flush0();
     }
 
+    /**
+     * Returns an OutputStream that writes to the simulator log. Unless the
+     * <code>logBufferSize</code> property is 0, all streams returned share a
+     * {@link PLILogBuffer} that is drained by {@link #drainLog}. If the
+     * <code>logFile</code> property is set, buffered output is written to
+     * that file rather than the simulator log, and the file is closed by
+     * {@link #closeLog} at the end of simulation.
+     *
+     * @return an OutputStream for log output
+     */
+    synchronized OutputStream getLogOutputStream()
+    {
+        final int bufferSize = Integer.getInteger(pkgName + ".logBufferSize",
+            DEFAULT_LOG_BUFFER_SIZE);
+        if (bufferSize <= 0)
+        {
+            return new PLILogOutputStream(pliProxy);
+        }
+
+        if (logBuffer == null)
+        {
+            final String logFile = System.getProperty(pkgName + ".logFile");
+            if (logFile != null)
+            {
+                try
+                {
+                    logChannel = new FileOutputStream(logFile).getChannel();
+                }
+                catch (IOException e)
+                {
+                    throw new VerilogRuntimeException(
+                        "Unable to open log file " + logFile, e);
+                }
+                pliProxy.registerCallback(PLICallbackReason.END_OF_SIMULATION,
+                    new VerilogCallbackHandler()
+                    {
+                        public void run(
+                            VerilogCallback cb,
+                            VerilogCallbackData data)
+                        {
+                            closeLog();
+                        }
+                    });
+            }
+            logBuffer = new PLILogBuffer(bufferSize);
+        }
+        return new PLILogOutputStream(pliProxy, logBuffer);
+    }
+
+    /**
+     * Writes any buffered log output to its destination and flushes the
+     * simulator log if anything was written. This method is called by the
+     * simulator thread at the end of each callback.
+     */
+    void drainLog()
+    {
+        if (drainLogBuffer() && logChannel == null)
+        {
+            flush0();
+        }
+    }
+
+    /**
+     * Drains any buffered log output and, if log output is being written to
+     * a file, forces it to disk and closes it. Output buffered afterward goes
+     * to the simulator log.
+     */
+    synchronized void closeLog()
+    {
+        drainLog();
+
+        final FileChannel channel = logChannel;
+        if (channel != null)
+        {
+            logChannel = null;
+            try
+            {
+                channel.force(false);
+                channel.close();
+            }
+            catch (IOException e)
+            {
+                throw new VerilogRuntimeException("Unable to close log file",
+                    e);
+            }
+        }
+    }
+
+    private boolean drainLogBuffer()
+    {
+        final PLILogBuffer buffer = logBuffer;
+        if (buffer == null || buffer.isEmpty())
+        {
+            return false;
+        }
+
+        try
+        {
+            return buffer.drainTo(logSink);
+        }
+        catch (IOException e)
+        {
+            throw new VerilogRuntimeException("Unable to write log output", e);
+        }
+    }
+
+    private final PLILogBuffer.Sink logSink = new PLILogBuffer.Sink()
+    {
+        private ByteBuffer channelBuffer;
+
+        public void write(byte[] buf, int off, int len)
+            throws IOException
+        {
+            if (logChannel != null)
+            {
+                if (channelBuffer == null || channelBuffer.array() != buf)
+                {
+                    channelBuffer = ByteBuffer.wrap(buf);
+                }
+                channelBuffer.limit(off + len).position(off);
+                while (channelBuffer.hasRemaining())
+                {
+                    logChannel.write(channelBuffer);
+                }
+            }
+            else
+            {
+                print0(buf, off, len);
+            }
+        }
+    };
+
     // simulation control
 
     public native void stop();
@@ -528,7 +743,7 @@ public final class PLI
     private final static String[] errorLevels = { "Notice", "Warning", "Error",
         "System", "Internal" };
 
-    private final static class ErrorInfo
+    final static class ErrorInfo
     {
         final int state;
         final int level;
@@ -559,7 +774,7 @@ public final class PLI
 
     private native ErrorInfo getError();
 
-    private String getExceptionMessage(ErrorInfo info)
+    static String getExceptionMessage(ErrorInfo info)
     {
         String msg;
         if (info != null)
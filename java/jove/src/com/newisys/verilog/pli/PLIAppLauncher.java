@@ -40,20 +40,59 @@ import com.newisys.verilog.VerilogSimulation;
  */
 final class PLIAppLauncher
 {
+    /**
+     * System property naming an alternate PLIInterface implementation to use
+     * in place of the JNI implementation. The class must have a public
+     * constructor taking the JNI {@link PLI} object, which remains
+     * responsible for launching the application and can be used for any
+     * functionality the alternate implementation does not provide.
+     */
+    static final String INTERFACE_PROPERTY = PLIAppLauncher.class
+        .getPackage().getName()
+        + ".interface";
+
+    private static PLIInterface createInterface(PLI pli)
+        throws Exception
+    {
+        final String className = System.getProperty(INTERFACE_PROPERTY);
+        if (className == null || className.length() == 0)
+        {
+            return pli;
+        }
+
+        Class< ? > intfClass = Class.forName(className);
+        if (!PLIInterface.class.isAssignableFrom(intfClass))
+        {
+            throw new IllegalArgumentException(className
+                + " does not implement " + PLIInterface.class.getName());
+        }
+        Constructor< ? > intfCtor = intfClass
+            .getConstructor(new Class[] { PLI.class });
+        return (PLIInterface) intfCtor.newInstance(new Object[] { pli });
+    }
+
     private static VerilogSimulation createVerilogSimulation(PLI pli)
+        throws Exception
     {
+        final PLIInterface pliIntf = createInterface(pli);
+        if (pliIntf != pli)
+        {
+            pli.setProxyInterface(pliIntf);
+        }
         PLIVerilogSimulation verilogSim = new PLIVerilogSimulation(pli);
         return verilogSim;
     }
 
     private static DVSimulation createDVSimulation(PLI pli)
+        throws Exception
     {
         final PRNGFactory rngFactory = PRNGFactoryFactory.getDefaultFactory();
         final SimulationManager simManager = new SimulationManager(
             "PLISimulation", rngFactory, rngFactory.newInstance(0));
 
         final ThreadMarshaller marshaller = simManager.getThreadMarshaller();
-        final PLIInterface pliProxy = (PLIInterface) marshaller.getProxy(pli);
+        final PLIInterface pliProxy = (PLIInterface) marshaller
+            .getProxy(createInterface(pli));
         pli.setProxyInterface(pliProxy);
         final PLIVerilogSimulation verilogSim = new PLIVerilogSimulation(pli);
 
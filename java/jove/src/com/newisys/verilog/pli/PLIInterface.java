@@ -21,6 +21,7 @@ package com.newisys.verilog.pli;
 import com.newisys.verilog.VerilogCallbackHandler;
 import com.newisys.verilog.VerilogObject;
 import com.newisys.verilog.VerilogTime;
+import com.newisys.verilog.util.BitVectorView;
 
 /**
  * Low-level interface to native PLI functionality. This interface is used to
@@ -81,6 +82,10 @@ public interface PLIInterface
 
     void putValue(long handle, Object value);
 
+    void getValueDirect(long handle, BitVectorView view);
+
+    void putValueDirect(long handle, BitVectorView view);
+
     void putValueDelay(
         long handle,
         Object value,
@@ -0,0 +1,193 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.verilog.pli;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free byte ring used to batch log output from simulation threads. Any
+ * number of threads may append concurrently; appended data becomes visible to
+ * the consumer in the order in which space was claimed, so writes are never
+ * reordered. A single consumer (the simulation manager thread) drains the
+ * ring to a Sink in large chunks.
+ * 
+ * @author Trevor Robinson
+ */
+final class PLILogBuffer
+{
+    /**
+     * Destination for data drained from a PLILogBuffer.
+     */
+    interface Sink
+    {
+        void write(byte[] buf, int off, int len)
+            throws IOException;
+    }
+
+    private final byte[] data;
+    private final int mask;
+
+    // total number of bytes claimed by producers
+    private final AtomicLong claimed = new AtomicLong();
+
+    // total number of bytes fully copied by producers; producers publish in
+    // claim order, so all bytes before this position are readable
+    private final AtomicLong published = new AtomicLong();
+
+    // total number of bytes drained by the consumer
+    private volatile long consumed;
+
+    /**
+     * Constructs a new log buffer.
+     *
+     * @param capacity the minimum capacity in bytes, which is rounded up to
+     *            a power of two
+     */
+    public PLILogBuffer(int capacity)
+    {
+        assert (capacity > 0);
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        data = new byte[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Returns the capacity of this buffer in bytes.
+     *
+     * @return the capacity
+     */
+    public int capacity()
+    {
+        return data.length;
+    }
+
+    /**
+     * Returns whether this buffer contains no published data.
+     *
+     * @return true if there is nothing to drain
+     */
+    public boolean isEmpty()
+    {
+        return published.get() == consumed;
+    }
+
+    private long claim(int len)
+    {
+        while (true)
+        {
+            final long start = claimed.get();
+            if (start + len - consumed > data.length)
+            {
+                return -1;
+            }
+            if (claimed.compareAndSet(start, start + len))
+            {
+                return start;
+            }
+        }
+    }
+
+    private void publish(long start, long end)
+    {
+        // wait for producers that claimed earlier space to finish copying;
+        // simulation threads run one at a time, so this rarely spins
+        while (published.get() != start)
+        {
+            Thread.yield();
+        }
+        published.set(end);
+    }
+
+    /**
+     * Appends a single byte if space is available.
+     *
+     * @param b the byte to append
+     * @return true if the byte was appended, false if the buffer is full
+     */
+    public boolean offer(int b)
+    {
+        final long start = claim(1);
+        if (start < 0) return false;
+        data[(int) start & mask] = (byte) b;
+        publish(start, start + 1);
+        return true;
+    }
+
+    /**
+     * Appends a range of bytes if space is available for all of them.
+     *
+     * @param b the array containing the bytes to append
+     * @param off the offset of the first byte in <code>b</code>
+     * @param len the number of bytes to append, which must not exceed the
+     *            capacity of this buffer
+     * @return true if the bytes were appended, false if the buffer does not
+     *         currently have space for them
+     */
+    public boolean offer(byte[] b, int off, int len)
+    {
+        assert (len <= data.length);
+        final long start = claim(len);
+        if (start < 0) return false;
+        final int pos = (int) start & mask;
+        final int first = Math.min(len, data.length - pos);
+        System.arraycopy(b, off, data, pos, first);
+        if (first < len)
+        {
+            System.arraycopy(b, off + first, data, 0, len - first);
+        }
+        publish(start, start + len);
+        return true;
+    }
+
+    /**
+     * Writes all published data to the given sink, in at most two chunks, and
+     * releases the space it occupied. The data is considered consumed even if
+     * the sink throws an exception.
+     *
+     * @param sink the destination of the data
+     * @return true if any data was drained
+     * @throws IOException if the sink throws an IOException
+     */
+    public synchronized boolean drainTo(Sink sink)
+        throws IOException
+    {
+        final long start = consumed;
+        final long end = published.get();
+        if (start == end) return false;
+
+        try
+        {
+            final int pos = (int) start & mask;
+            final int count = (int) (end - start);
+            final int first = Math.min(count, data.length - pos);
+            sink.write(data, pos, first);
+            if (first < count)
+            {
+                sink.write(data, 0, count - first);
+            }
+        }
+        finally
+        {
+            consumed = end;
+        }
+        return true;
+    }
+}
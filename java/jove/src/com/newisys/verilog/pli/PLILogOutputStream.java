@@ -25,6 +25,13 @@ import com.newisys.verilog.VerilogRuntimeException;
 
 /**
  * An OutputStream that writes to the Verilog simulator output stream.
+ * <P>
+ * If constructed with a {@link PLILogBuffer}, writes are appended to the
+ * buffer without crossing into the simulator, and the buffer is drained by
+ * the simulation manager thread at callback boundaries (see
+ * {@link PLI#drainLog}). Flushing such a stream does not call into the
+ * simulator; when the buffer fills, the writing thread asks the manager
+ * thread to drain it through the PLI proxy before continuing.
  * 
  * @author Trevor Robinson
  */
@@ -32,12 +39,19 @@ public class PLILogOutputStream
     extends OutputStream
 {
     private final PLIInterface pliIntf;
+    private final PLILogBuffer buffer;
 
     public PLILogOutputStream(PLIInterface pliIntf)
+    {
+        this(pliIntf, null);
+    }
+
+    PLILogOutputStream(PLIInterface pliIntf, PLILogBuffer buffer)
     {
         super();
 
         this.pliIntf = pliIntf;
+        this.buffer = buffer;
     }
 
     @Override
@@ -46,7 +60,17 @@ public class PLILogOutputStream
     {
         try
         {
-            pliIntf.print(new byte[] { (byte) b }, 0, 1);
+            if (buffer != null)
+            {
+                while (!buffer.offer(b))
+                {
+                    pliIntf.flush();
+                }
+            }
+            else
+            {
+                pliIntf.print(new byte[] { (byte) b }, 0, 1);
+            }
         }
         catch (VerilogRuntimeException e)
         {
@@ -60,7 +84,26 @@ public class PLILogOutputStream
     {
         try
         {
-            pliIntf.print(b, off, len);
+            if (buffer != null)
+            {
+                // writes larger than the buffer are split into buffer-sized
+                // chunks so that everything reaches the same destination
+                final int maxChunk = buffer.capacity();
+                while (len > 0)
+                {
+                    final int chunk = Math.min(len, maxChunk);
+                    while (!buffer.offer(b, off, chunk))
+                    {
+                        pliIntf.flush();
+                    }
+                    off += chunk;
+                    len -= chunk;
+                }
+            }
+            else
+            {
+                pliIntf.print(b, off, len);
+            }
         }
         catch (VerilogRuntimeException e)
         {
@@ -72,6 +115,12 @@ public class PLILogOutputStream
     public void flush()
         throws IOException
     {
+        if (buffer != null)
+        {
+            // buffered output is flushed at the next callback boundary
+            return;
+        }
+
         try
         {
             pliIntf.flush();
@@ -0,0 +1,139 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.verilog.pli;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.newisys.verilog.util.BitVectorView;
+
+/**
+ * A direct ByteBuffer divided into value slots that are shared with the
+ * native PLI library. Each slot holds one vector value in the layout of an
+ * <code>s_vpi_vecval</code> array, so {@link PLIInterface#getValueDirect}
+ * and {@link PLIInterface#putValueDirect} can transfer values between the
+ * simulator and Java without creating Java objects or copying through JNI
+ * arrays. Java code accesses a slot through the {@link BitVectorView}
+ * returned by {@link #allocate}.
+ * <P>
+ * Slots are allocated sequentially and are never freed; a buffer is intended
+ * to hold the values of a fixed set of monitored or driven signals.
+ * <P>
+ * Vector registers and nets allocate their slots (see
+ * {@link com.newisys.verilog.VerilogDirectValue}) from a shared pool of
+ * buffers if the <code>com.newisys.verilog.pli.directValues</code> system
+ * property is set to true; otherwise, they do not support direct value
+ * transfer.
+ * 
+ * @author Trevor Robinson
+ */
+public final class PLIValueBuffer
+{
+    /**
+     * System property that enables value slots for vector registers and nets.
+     */
+    static final String DIRECT_VALUES_PROPERTY = PLIValueBuffer.class
+        .getPackage().getName()
+        + ".directValues";
+
+    static final boolean DIRECT_VALUES = Boolean
+        .getBoolean(DIRECT_VALUES_PROPERTY);
+
+    private static final int POOL_CAPACITY = 64 * 1024;
+
+    private static PLIValueBuffer pool;
+
+    private final ByteBuffer buffer;
+    private int used;
+
+    /**
+     * Creates a value buffer with the given capacity.
+     *
+     * @param capacity the size of the buffer in bytes
+     */
+    public PLIValueBuffer(int capacity)
+    {
+        buffer = ByteBuffer.allocateDirect(capacity).order(
+            ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Returns the number of bytes available for new slots.
+     *
+     * @return the number of unallocated bytes
+     */
+    public synchronized int remaining()
+    {
+        return buffer.capacity() - used;
+    }
+
+    /**
+     * Allocates a slot for a value of the given length.
+     *
+     * @param length the length of the value in bits
+     * @return a view of the new slot, initialized to zero
+     * @throws IllegalStateException if the buffer does not have room for the
+     *             slot
+     */
+    public synchronized BitVectorView allocate(int length)
+    {
+        final int size = BitVectorView.getWordCount(length)
+            * BitVectorView.BYTES_PER_WORD;
+        if (size > buffer.capacity() - used)
+        {
+            throw new IllegalStateException("Value buffer is full");
+        }
+        final BitVectorView view = new BitVectorView(buffer, used, length);
+        used += size;
+        return view;
+    }
+
+    /**
+     * Allocates a slot for a value of the given length from the shared pool,
+     * adding a buffer to the pool if the current one is full.
+     *
+     * @param length the length of the value in bits
+     * @return a view of the new slot, initialized to zero
+     */
+    static synchronized BitVectorView allocateShared(int length)
+    {
+        final int size = BitVectorView.getWordCount(length)
+            * BitVectorView.BYTES_PER_WORD;
+        if (pool == null || pool.remaining() < size)
+        {
+            pool = new PLIValueBuffer(Math.max(POOL_CAPACITY, size));
+        }
+        return pool.allocate(length);
+    }
+
+    /**
+     * Allocates a slot for the value of the given object, using the size of
+     * the object as reported by the simulator.
+     *
+     * @param obj the object to allocate a slot for
+     * @return a view of the new slot
+     * @throws IllegalStateException if the buffer does not have room for the
+     *             slot
+     */
+    public BitVectorView allocate(PLIVerilogObject obj)
+    {
+        return allocate(obj.pliIntf.getPropInt(
+            PLIPropertyTypeConstants.vpiSize, obj.getHandle()));
+    }
+}
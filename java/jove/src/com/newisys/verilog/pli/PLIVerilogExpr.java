@@ -23,6 +23,7 @@ import com.newisys.verilog.ValueType;
 import com.newisys.verilog.VerilogCallback;
 import com.newisys.verilog.VerilogCallbackHandler;
 import com.newisys.verilog.VerilogExpr;
+import com.newisys.verilog.util.BitVectorView;
 
 /**
  * PLI implementation of VerilogExpr.
@@ -33,6 +34,9 @@ public abstract class PLIVerilogExpr
     extends PLIVerilogDeclObject
     implements VerilogExpr
 {
+    private BitVectorView valueSlot;
+    private boolean valueSlotChecked;
+
     public PLIVerilogExpr(PLIInterface pliIntf, PLIObjectType type, long handle)
     {
         super(pliIntf, type, handle);
@@ -67,4 +71,33 @@ public abstract class PLIVerilogExpr
     {
         return addValueChangeCallbackImpl(timeType, valueType, handler);
     }
+
+    protected final BitVectorView getValueSlotImpl()
+    {
+        if (!valueSlotChecked)
+        {
+            if (PLIValueBuffer.DIRECT_VALUES)
+            {
+                // objects of one bit have scalar values, which are not stored
+                // in value slots
+                final int size = getSize();
+                if (size > 1)
+                {
+                    valueSlot = PLIValueBuffer.allocateShared(size);
+                }
+            }
+            valueSlotChecked = true;
+        }
+        return valueSlot;
+    }
+
+    protected final void readValueSlotImpl()
+    {
+        pliIntf.getValueDirect(handle, getValueSlotImpl());
+    }
+
+    protected final void writeValueSlotImpl()
+    {
+        pliIntf.putValueDirect(handle, getValueSlotImpl());
+    }
 }
@@ -21,6 +21,7 @@ package com.newisys.verilog.pli;
 import java.util.Iterator;
 
 import com.newisys.verilog.*;
+import com.newisys.verilog.util.BitVectorView;
 
 /**
  * PLI implementation of VerilogNets.
@@ -29,7 +30,7 @@ import com.newisys.verilog.*;
  */
 public abstract class PLIVerilogNets
     extends PLIVerilogAbsVar
-    implements VerilogNets
+    implements VerilogNets, VerilogDirectValue
 {
     public PLIVerilogNets(PLIInterface pliIntf, PLIObjectType type, long handle)
     {
@@ -156,6 +157,21 @@ public abstract class PLIVerilogNets
         pliIntf.putValue(handle, value);
     }
 
+    public final BitVectorView getValueSlot()
+    {
+        return getValueSlotImpl();
+    }
+
+    public final void readValueSlot()
+    {
+        readValueSlotImpl();
+    }
+
+    public final void writeValueSlot()
+    {
+        writeValueSlotImpl();
+    }
+
     public final void putValueDelay(
         Object value,
         VerilogTime delay,
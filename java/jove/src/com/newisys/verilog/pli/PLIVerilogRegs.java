@@ -21,6 +21,7 @@ package com.newisys.verilog.pli;
 import java.util.Iterator;
 
 import com.newisys.verilog.*;
+import com.newisys.verilog.util.BitVectorView;
 
 /**
  * PLI implementation of VerilogRegs.
@@ -29,7 +30,7 @@ import com.newisys.verilog.*;
  */
 public abstract class PLIVerilogRegs
     extends PLIVerilogAbsVar
-    implements VerilogRegs
+    implements VerilogRegs, VerilogDirectValue
 {
     public PLIVerilogRegs(PLIInterface pliIntf, PLIObjectType type, long handle)
     {
@@ -96,6 +97,21 @@ public abstract class PLIVerilogRegs
         pliIntf.putValue(handle, value);
     }
 
+    public final BitVectorView getValueSlot()
+    {
+        return getValueSlotImpl();
+    }
+
+    public final void readValueSlot()
+    {
+        readValueSlotImpl();
+    }
+
+    public final void writeValueSlot()
+    {
+        writeValueSlotImpl();
+    }
+
     public final void putValueDelay(
         Object value,
         VerilogTime delay,
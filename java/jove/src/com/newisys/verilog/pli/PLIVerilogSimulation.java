@@ -231,16 +231,20 @@ public final class PLIVerilogSimulation
 
     public OutputStream getLogOutputStream()
     {
-        return new PLILogOutputStream(pliProxy);
+        return pliNonProxied.getLogOutputStream();
     }
 
     public void stop()
     {
+        // pass on any buffered log output before stopping
+        pliProxy.flush();
         pliProxy.stop();
     }
 
     public void finish()
     {
+        // pass on any buffered log output before finishing
+        pliProxy.flush();
         pliProxy.finish();
     }
 }
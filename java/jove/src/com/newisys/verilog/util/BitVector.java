@@ -18,7 +18,11 @@
 
 package com.newisys.verilog.util;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 
 /**
  * An immutable class that implements the functions of a BitVector including
@@ -34,6 +38,10 @@ public final class BitVector
 
     final BitVectorBuffer myBuffer;
 
+    // hash code computed on first use; BitVectors are immutable, so it is
+    // cached like String.hashCode()
+    private transient int myHash;
+
     // Constructors
     /**
      * Creates a BitVector with the specified size, with all bits set to
@@ -588,15 +596,23 @@ public final class BitVector
     }
 
     /**
-     * Return a HashCode for this BitVector.
+     * Return a HashCode for this BitVector. The hash code is computed once
+     * and cached, so that repeated lookups of BitVector keys in hash tables
+     * do not walk the bit buffer.
      * @return the hash code
      */
     @Override
     public int hashCode()
     {
-        // let BitVectorBuffer do the work, but try to
-        // be a little unique (uses an arbitrarily picked prime number)
-        return myBuffer.hashCode() ^ 0x77402731;
+        int h = myHash;
+        if (h == 0)
+        {
+            // let BitVectorBuffer do the work, but try to
+            // be a little unique (uses an arbitrarily picked prime number)
+            h = myBuffer.hashCode() ^ 0x77402731;
+            myHash = h;
+        }
+        return h;
     }
 
     /**
@@ -1354,4 +1370,138 @@ public final class BitVector
     {
         return myBuffer.getBytes();
     }
+
+    /**
+     * Writes the bits of this BitVector to the given output in a compact
+     * binary form: a flag indicating whether any X/Z bits are present, the
+     * 0/1 value words, and, only if the flag is set, the X/Z mask words. The
+     * length itself is not written and must be passed to
+     * {@link #read(DataInput, int)}.
+     *
+     * @param out the output to write to
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(DataOutput out)
+        throws IOException
+    {
+        final int words = (length() + 31) >>> 5;
+        final int[] values = values();
+        final int[] xzMask = xzMask();
+        final boolean xz = containsXZ();
+        out.writeBoolean(xz);
+        for (int i = 0; i < words; ++i)
+        {
+            out.writeInt(i < values.length ? values[i] : 0);
+        }
+        if (xz)
+        {
+            for (int i = 0; i < words; ++i)
+            {
+                out.writeInt(i < xzMask.length ? xzMask[i] : 0);
+            }
+        }
+    }
+
+    /**
+     * Reads a BitVector of the given length that was written by
+     * {@link #write(DataOutput)}.
+     *
+     * @param in the input to read from
+     * @param length the length of the BitVector in bits
+     * @return a new BitVector
+     * @throws IOException if an I/O error occurs
+     */
+    public static BitVector read(DataInput in, int length)
+        throws IOException
+    {
+        final int words = Math.max((length + 31) >>> 5, 1);
+        final int[] values = new int[words];
+        final int[] xzMask = new int[words];
+        final boolean xz = in.readBoolean();
+        for (int i = 0; i < words && i << 5 < length; ++i)
+        {
+            values[i] = in.readInt();
+        }
+        if (xz)
+        {
+            for (int i = 0; i < words && i << 5 < length; ++i)
+            {
+                xzMask[i] = in.readInt();
+            }
+        }
+        return new BitVector(values, xzMask, length);
+    }
+
+    /**
+     * Returns the number of bytes written by {@link #write(ByteBuffer)} for a
+     * BitVector of the given length.
+     *
+     * @param length the length of the BitVector in bits
+     * @param xz true if the BitVector contains X/Z bits
+     * @return the encoded size in bytes
+     */
+    public static int getEncodedSize(int length, boolean xz)
+    {
+        final int words = (length + 31) >>> 5;
+        return 1 + (xz ? words * 8 : words * 4);
+    }
+
+    /**
+     * Writes the bits of this BitVector to the given buffer in the same form
+     * as {@link #write(DataOutput)}. This method does not allocate, and is
+     * intended for writing to memory-mapped files.
+     *
+     * @param buf the buffer to write to
+     * @throws java.nio.BufferOverflowException if the buffer does not have
+     *             {@link #getEncodedSize} bytes remaining
+     */
+    public void write(ByteBuffer buf)
+    {
+        final int words = (length() + 31) >>> 5;
+        final int[] values = values();
+        final int[] xzMask = xzMask();
+        final boolean xz = containsXZ();
+        buf.put(xz ? (byte) 1 : (byte) 0);
+        for (int i = 0; i < words; ++i)
+        {
+            buf.putInt(i < values.length ? values[i] : 0);
+        }
+        if (xz)
+        {
+            for (int i = 0; i < words; ++i)
+            {
+                buf.putInt(i < xzMask.length ? xzMask[i] : 0);
+            }
+        }
+    }
+
+    /**
+     * Reads a BitVector of the given length that was written by
+     * {@link #write(ByteBuffer)} or {@link #write(DataOutput)}.
+     *
+     * @param buf the buffer to read from
+     * @param length the length of the BitVector in bits
+     * @return a new BitVector
+     * @throws java.nio.BufferUnderflowException if the buffer does not contain
+     *             a complete BitVector
+     */
+    public static BitVector read(ByteBuffer buf, int length)
+    {
+        final int words = Math.max((length + 31) >>> 5, 1);
+        final int[] values = new int[words];
+        final int[] xzMask = new int[words];
+        final boolean xz = buf.get() != 0;
+        for (int i = 0; i < words && i << 5 < length; ++i)
+        {
+            values[i] = buf.getInt();
+        }
+        if (xz)
+        {
+            for (int i = 0; i < words && i << 5 < length; ++i)
+            {
+                xzMask[i] = buf.getInt();
+            }
+        }
+        return new BitVector(values, xzMask, length);
+    }
 }
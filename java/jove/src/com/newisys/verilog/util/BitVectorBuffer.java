@@ -19,7 +19,6 @@
 package com.newisys.verilog.util;
 
 import java.io.Serializable;
-import java.math.BigInteger;
 
 /**
  * A mutable class that implements the functions of a BitVector including
@@ -1381,13 +1380,13 @@ public final class BitVectorBuffer
             return this;
         }
 
-        // If either operand is > 32 bits, we use BigInteger
-        BigInteger mult0 = new BigInteger(this.getBytes(false, true));
-        BigInteger mult1 = new BigInteger(buf.getBytes(false, true));
-        BigInteger result = mult0.multiply(mult1);
-        BitVectorBuffer q = new BitVectorBuffer(result.toByteArray());
-        q.setLengthHigh(this.length());
-        this.assign(q, false);
+        // If either operand is > 32 bits, multiply word arrays directly,
+        // keeping only the words that fit in the result
+        final int numWords = getLastEntry();
+        final int[] product = new int[numWords];
+        LimbArithmetic.multiply(this.myValues, numWords, buf.myValues, buf
+            .getLastEntry(), product, numWords);
+        System.arraycopy(product, 0, this.myValues, 0, numWords);
         maskExtraLength();
         return this;
     }
@@ -1421,6 +1420,78 @@ public final class BitVectorBuffer
         return divmod(vect.myBuffer, true);
     }
 
+    /**
+     * Performs an addition of this BitVectorBuffer and buf and places the
+     * result in this BitVectorBuffer. This is equivalent to
+     * {@link #add(BitVector) add(BitVector)}, but avoids converting a mutable
+     * operand to a BitVector. buf may be this BitVectorBuffer.
+     *
+     * @param buf the BitVectorBuffer with which to add.
+     * @return this + buf
+     */
+    public BitVectorBuffer addAssign(BitVectorBuffer buf)
+    {
+        return addsub(buf, true);
+    }
+
+    /**
+     * Performs a subtraction of buf from this BitVectorBuffer and places the
+     * result in this BitVectorBuffer. This is equivalent to
+     * {@link #subtract(BitVector) subtract(BitVector)}, but avoids converting
+     * a mutable operand to a BitVector. buf may be this BitVectorBuffer.
+     *
+     * @param buf the BitVectorBuffer to subtract.
+     * @return this - buf
+     */
+    public BitVectorBuffer subtractAssign(BitVectorBuffer buf)
+    {
+        return addsub(buf, false);
+    }
+
+    /**
+     * Performs a multiplication of this BitVectorBuffer with buf and places
+     * the result in this BitVectorBuffer. This is equivalent to
+     * {@link #multiply(BitVector) multiply(BitVector)}, but avoids converting
+     * a mutable operand to a BitVector. buf may be this BitVectorBuffer.
+     *
+     * @param buf the BitVectorBuffer with which to multiply.
+     * @return this * buf
+     */
+    public BitVectorBuffer multiplyAssign(BitVectorBuffer buf)
+    {
+        return multiply(buf);
+    }
+
+    /**
+     * Performs a division of buf into this BitVectorBuffer and places the
+     * result in this BitVectorBuffer. This is equivalent to
+     * {@link #divide(BitVector) divide(BitVector)}, but avoids converting a
+     * mutable operand to a BitVector. buf may be this BitVectorBuffer.
+     *
+     * @param buf the BitVectorBuffer by which to divide.
+     * @return this / buf
+     * @throws ArithmeticException if buf is zero
+     */
+    public BitVectorBuffer divideAssign(BitVectorBuffer buf)
+    {
+        return divmod(buf, true);
+    }
+
+    /**
+     * Calculates this BitVectorBuffer modulo buf and places the result in this
+     * BitVectorBuffer. This is equivalent to {@link #mod(BitVector)
+     * mod(BitVector)}, but avoids converting a mutable operand to a
+     * BitVector. buf may be this BitVectorBuffer.
+     *
+     * @param buf the BitVectorBuffer by which to divide.
+     * @return this % buf
+     * @throws ArithmeticException if buf is zero
+     */
+    public BitVectorBuffer modAssign(BitVectorBuffer buf)
+    {
+        return divmod(buf, false);
+    }
+
     /**
      * See {@link #divide(BitVector) divide(BitVector)}
      * {@link #mod(BitVector) modulo(BitVector)}
@@ -1481,16 +1552,12 @@ public final class BitVectorBuffer
             return this;
         }
 
-        // If either operand is > 32 bits, we use BigInteger
-        BigInteger dividend = new BigInteger(this.getBytes(false, true));
-        BigInteger divisor = new BigInteger(buf.getBytes(false, true));
-
-        BigInteger[] quotientAndRemainder = dividend
-            .divideAndRemainder(divisor);
-        BitVectorBuffer q = new BitVectorBuffer(quotientAndRemainder[doDiv ? 0
-            : 1].toByteArray());
-        q.setLengthHigh(this.length());
-        this.assign(q, false);
+        // If either operand is > 32 bits, divide word arrays directly
+        final int numWords = getLastEntry();
+        final int[] result = new int[numWords];
+        LimbArithmetic.divide(this.myValues, numWords, buf.myValues, buf
+            .getLastEntry(), doDiv ? result : null, doDiv ? null : result);
+        System.arraycopy(result, 0, this.myValues, 0, numWords);
         maskExtraLength();
         return this;
 
@@ -1849,51 +1916,15 @@ public final class BitVectorBuffer
      */
     public BitVectorBuffer shiftLeft(int numBits)
     {
-        int bitsLeft = numBits;
-        int firstIdx = getLastEntry() - 1;
-        int i, dest;
-        int carryBits, carryXZ;
-
-        if (bitsLeft == 0)
+        assert (numBits >= 0);
+        if (numBits == 0)
         {
             return this;
         }
 
-        int[] newInts = new int[getLastEntry()];
-        int[] newXz = new int[getLastEntry()];
-
-        // we'll effectively delete all array entries from 0 through
-        // (firstIdx - 1) if we're asked to shift > BITS_PER_UNIT bits
-        while (bitsLeft >= BITS_PER_UNIT)
-        {
-            firstIdx--;
-            bitsLeft -= BITS_PER_UNIT;
-        }
-
-        for (i = firstIdx, dest = (getLastEntry() - 1); i >= 0; i--, dest--)
-        {
-            // these casts/masking of carry(Bits|XZ) is because the java spec
-            // says that when right shifting an int value, only bits 4:0 of the
-            // rhs are used. when shifting a long, bits 5:0 are used. this
-            // affects
-            // us in the bitsLeft == 0 case.
-            carryBits = (int) ((long) myValues[i] >>> (BITS_PER_UNIT - bitsLeft));
-            carryXZ = (int) ((long) myXzMask[i] >>> (BITS_PER_UNIT - bitsLeft));
-
-            carryBits &= ((1L << bitsLeft) - 1);
-            carryXZ &= ((1L << bitsLeft) - 1);
-
-            newInts[dest] = myValues[i] << bitsLeft;
-            newXz[dest] = myXzMask[i] << bitsLeft;
-            if (dest != (getLastEntry() - 1))
-            {
-                newInts[dest + 1] |= carryBits;
-                newXz[dest + 1] |= carryXZ;
-            }
-        }
-
-        myValues = newInts;
-        myXzMask = newXz;
+        final int numWords = getLastEntry();
+        LimbArithmetic.shiftLeft(myValues, numWords, numBits);
+        LimbArithmetic.shiftLeft(myXzMask, numWords, numBits);
         maskExtraLength();
         return this;
     }
@@ -1909,43 +1940,15 @@ public final class BitVectorBuffer
      */
     public BitVectorBuffer shiftRight(int numBits)
     {
-        int bitsLeft = numBits;
-        int firstIdx = 0;
-        int i, dest;
-        int carryBits, carryXZ;
-
-        if (bitsLeft == 0)
+        assert (numBits >= 0);
+        if (numBits == 0)
         {
             return this;
         }
 
-        int[] newInts = new int[getLastEntry()];
-        int[] newXz = new int[getLastEntry()];
-
-        // we'll effectively delete all array entries from 0 through
-        // (firstIdx - 1) if we're asked to shift > BITS_PER_UNIT bits
-        while (bitsLeft >= BITS_PER_UNIT)
-        {
-            firstIdx++;
-            bitsLeft -= BITS_PER_UNIT;
-        }
-
-        for (i = firstIdx, dest = 0; i < getLastEntry(); i++, dest++)
-        {
-            carryBits = ((1 << bitsLeft) - 1) & myValues[i];
-            carryXZ = ((1 << bitsLeft) - 1) & myXzMask[i];
-            newInts[dest] = myValues[i] >>> bitsLeft;
-            newXz[dest] = myXzMask[i] >>> bitsLeft;
-            if (dest != 0)
-            {
-                assert (bitsLeft != 0 || (carryBits == 0 && carryXZ == 0));
-                newInts[dest - 1] |= (carryBits << (BITS_PER_UNIT - bitsLeft));
-                newXz[dest - 1] |= (carryXZ << (BITS_PER_UNIT - bitsLeft));
-            }
-        }
-
-        myValues = newInts;
-        myXzMask = newXz;
+        final int numWords = getLastEntry();
+        LimbArithmetic.shiftRight(myValues, numWords, numBits);
+        LimbArithmetic.shiftRight(myXzMask, numWords, numBits);
         return this;
     }
 
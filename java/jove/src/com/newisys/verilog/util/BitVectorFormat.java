@@ -18,6 +18,7 @@
 
 package com.newisys.verilog.util;
 
+import java.io.IOException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -66,199 +67,8 @@ public class BitVectorFormat
     private static Pattern hexPattern = Pattern.compile("[^0-9A-Fa-fXxZz]");
     private static Pattern numPattern = Pattern
         .compile("-?(?:([0-9]+)?'([bodh]))?([0-9A-Fa-fXxZz]+)");
-    private static Pattern leadingZeroPattern = Pattern
-        .compile("^0+([0-9A-fa-f]+)");
     private static Pattern xzPattern = Pattern.compile("[XxZz]");
 
-    private final static class DecimalHelper
-    {
-        private final static char[][] multTable = {
-            { '0', '2', '4', '6', '8', '0', '2', '4', '6', '8' },
-            { '1', '3', '5', '7', '9', '1', '3', '5', '7', '9' } };
-        private final static char[][] multCarryTable = {
-            { 0, 0, 0, 0, 0, 1, 1, 1, 1, 1 }, { 0, 0, 0, 0, 0, 1, 1, 1, 1, 1 } };
-
-        private final static char[][] addTable = {
-            { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9' },
-            { '1', '2', '3', '4', '5', '6', '7', '8', '9', '0' },
-            { '2', '3', '4', '5', '6', '7', '8', '9', '0', '1' },
-            { '3', '4', '5', '6', '7', '8', '9', '0', '1', '2' },
-            { '4', '5', '6', '7', '8', '9', '0', '1', '2', '3' },
-            { '5', '6', '7', '8', '9', '0', '1', '2', '3', '4' },
-            { '6', '7', '8', '9', '0', '1', '2', '3', '4', '5' },
-            { '7', '8', '9', '0', '1', '2', '3', '4', '5', '6' },
-            { '8', '9', '0', '1', '2', '3', '4', '5', '6', '7' },
-            { '9', '0', '1', '2', '3', '4', '5', '6', '7', '8' },
-            { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9' } };
-        private final static char[][] addCarryTable = {
-            { 0, 0, 0, 0, 0, 0, 0, 0, 0, 0 }, { 0, 0, 0, 0, 0, 0, 0, 0, 0, 1 },
-            { 0, 0, 0, 0, 0, 0, 0, 0, 1, 1 }, { 0, 0, 0, 0, 0, 0, 0, 1, 1, 1 },
-            { 0, 0, 0, 0, 0, 0, 1, 1, 1, 1 }, { 0, 0, 0, 0, 0, 1, 1, 1, 1, 1 },
-            { 0, 0, 0, 0, 1, 1, 1, 1, 1, 1 }, { 0, 0, 0, 1, 1, 1, 1, 1, 1, 1 },
-            { 0, 0, 1, 1, 1, 1, 1, 1, 1, 1 }, { 0, 1, 1, 1, 1, 1, 1, 1, 1, 1 },
-            { 1, 1, 1, 1, 1, 1, 1, 1, 1, 1 } };
-
-        private final static char[] dtocTable = { '0', '1', '2', '3', '4', '5',
-            '6', '7', '8', '9' };
-
-        private static StringBuffer sbMul2(StringBuffer m0)
-        {
-            final int length = m0.length();
-            final StringBuffer sbuf = new StringBuffer(length + 2);
-
-            int carry = 0;
-            for (int i = (length - 1); i >= 0; --i)
-            {
-                final int idx = Character.getNumericValue(m0.charAt(i));
-                assert (idx >= 0);
-
-                sbuf.append(multTable[carry][idx]);
-                carry = multCarryTable[carry][idx];
-            }
-
-            if (carry == 1)
-            {
-                sbuf.append("1");
-            }
-
-            return sbuf.reverse();
-        }
-
-        private static StringBuffer sbAdd(StringBuffer a0, StringBuffer a1)
-        {
-            final int a0length = a0.length();
-            final int a1length = a1.length();
-            final int maxLength = Math.max(a0length, a1length);
-            final StringBuffer sbuf = new StringBuffer(maxLength + 2);
-            final StringBuffer a0rev = new StringBuffer(a0).reverse();
-            final StringBuffer a1rev = new StringBuffer(a1).reverse();
-
-            char tmp0 = '0';
-            char tmp1 = '0';
-            int carry = 0;
-            for (int i = 0; i < maxLength; ++i)
-            {
-                tmp0 = (i >= a0length) ? '0' : a0rev.charAt(i);
-                tmp1 = (i >= a1length) ? '0' : a1rev.charAt(i);
-                final int idx0 = Character.getNumericValue(tmp0);
-                final int idx1 = Character.getNumericValue(tmp1);
-                assert (idx0 >= 0 && idx1 >= 0);
-
-                sbuf.append(addTable[idx0 + carry][idx1]);
-                carry = addCarryTable[idx0 + carry][idx1];
-                assert (carry == 0 || carry == 1);
-            }
-
-            if (carry == 1)
-            {
-                sbuf.append("1");
-            }
-
-            return sbuf.reverse();
-        }
-
-        private static StringBuffer sbDiv2(StringBuffer d0)
-        {
-            final int length = d0.length();
-            final StringBuffer sbuf = new StringBuffer(length + 1);
-            final char[] tmp = { '0', '0' };
-
-            boolean nonZeroValueSeen = false;
-            for (int i = 0; i < length; ++i)
-            {
-                tmp[1] = d0.charAt(i);
-                int idx = -1;
-
-                if (tmp[0] == '0')
-                {
-                    idx = Character.getNumericValue(tmp[1]);
-                }
-                else
-                {
-                    idx = (Character.getNumericValue(tmp[0]) * 10)
-                        + Character.getNumericValue(tmp[1]);
-                }
-                assert (idx >= 0);
-
-                nonZeroValueSeen |= dtocTable[idx >> 1] != '0';
-                if (nonZeroValueSeen)
-                {
-                    // don't append leading zeros
-                    sbuf.append(dtocTable[idx >> 1]);
-                }
-                tmp[0] = (idx % 2 == 0) ? '0' : '1';
-            }
-
-            return sbuf;
-        }
-
-        private static String sbMod2(StringBuffer m0)
-        {
-            final int value = Character.getNumericValue(m0
-                .charAt(m0.length() - 1));
-            return (value % 2 == 0) ? "0" : "1";
-        }
-
-        static String decToBinStr(String s)
-        {
-            final int length = s.length();
-            StringBuffer sbuf = new StringBuffer(length << 2);
-            StringBuffer num = new StringBuffer(s);
-
-            boolean done = false;
-            while (!done)
-            {
-                sbuf.append(sbMod2(num));
-                num = sbDiv2(num);
-                for (int i = 0; i <= num.length(); ++i)
-                {
-                    if (i == num.length())
-                    {
-                        done = true;
-                        break;
-                    }
-                    else if (num.charAt(i) != '0')
-                    {
-                        break;
-                    }
-                }
-            }
-
-            return sbuf.reverse().toString();
-        }
-
-        static String bitsToDecStr(BitVectorBuffer buffer)
-        {
-            final int length = buffer.length();
-            final int numWords = ((length / BitVectorBuffer.BITS_PER_UNIT) + ((length
-                % BitVectorBuffer.BITS_PER_UNIT == 0) ? 0 : 1));
-
-            StringBuffer sbuf = new StringBuffer(length / 3).append("0");
-            StringBuffer current = new StringBuffer(length / 3).append("1");
-
-            for (int i = 0; i < numWords; ++i)
-            {
-                final int curWord = buffer.myValues[i];
-                final int numBits = (i <= (numWords - 1))
-                    ? BitVectorBuffer.BITS_PER_UNIT
-                    : (length % BitVectorBuffer.BITS_PER_UNIT);
-
-                for (int bit = 0; bit < numBits; ++bit)
-                {
-                    final int curBit = (curWord >> bit) & 1;
-                    if (curBit == 1)
-                    {
-                        StringBuffer sbuf2 = sbAdd(sbuf, current);
-                        sbuf = sbuf2;
-                    }
-                    current = sbMul2(current);
-                }
-            }
-
-            return sbuf.toString();
-        }
-    }
-
     /**
      * Creates a BitVectorFormat with default values. The defaults are:
      * <table>
@@ -352,43 +162,120 @@ public class BitVectorFormat
             return "<initializing>";
         }
 
-        StringBuffer strBuf = new StringBuffer();
+        StringBuilder strBuf = new StringBuilder(buffer.length() + 8);
+        format(buffer, radix, strBuf);
+        return (strBuf.toString());
+    }
+
+    /**
+     * Appends the representation of a BitVector with the provided radix to the
+     * given StringBuilder. The appended characters are identical to those
+     * returned by {@link #format(BitVector, int)}, but no intermediate String
+     * is created.
+     *
+     * @param vector a BitVector to be formatted
+     * @param radix the radix to use in the representation
+     * @param buf the StringBuilder to append to
+     */
+    public void format(BitVector vector, int radix, StringBuilder buf)
+    {
+        format(vector.myBuffer, radix, buf);
+    }
+
+    /**
+     * Appends the representation of a BitVectorBuffer with the provided radix
+     * to the given StringBuilder.
+     *
+     * @param buffer a BitVectorBuffer to be formatted
+     * @param radix the radix to use in the representation
+     * @param buf the StringBuilder to append to
+     * @see #format(BitVector, int, StringBuilder)
+     */
+    public void format(BitVectorBuffer buffer, int radix, StringBuilder buf)
+    {
+        if (buffer.length() == 0)
+        {
+            buf.append("<initializing>");
+            return;
+        }
+
         if (printRadixEnabled)
         {
             if (printLengthEnabled)
             {
-                strBuf.append(String.valueOf(buffer.length()));
+                buf.append(buffer.length());
             }
-            strBuf.append("'" + getRadixString(radix));
+            buf.append('\'');
+            buf.append(getRadixString(radix));
         }
 
-        String valueStr = bitsToString(buffer, radix);
+        final int valueStart = buf.length();
+        appendBits(buffer, radix, buf);
 
         if (useCapitals)
         {
-            valueStr = valueStr.toUpperCase();
+            for (int i = valueStart; i < buf.length(); ++i)
+            {
+                buf.setCharAt(i, Character.toUpperCase(buf.charAt(i)));
+            }
         }
 
-        int naturalWidth = valueStr.length();
+        int naturalWidth = buf.length() - valueStart;
         if (formatWidth != null)
         {
-            Matcher m = leadingZeroPattern.matcher(valueStr);
-            if (m.matches())
-            {
-                valueStr = m.group(1);
-            }
+            stripLeadingZeros(buf, valueStart);
 
-            if (formatWidth > valueStr.length())
+            final int valueLength = buf.length() - valueStart;
+            if (formatWidth > valueLength)
             {
-                for (int i = 0; i < (formatWidth - valueStr.length()); ++i)
+                for (int i = formatWidth - valueLength - 1; i >= 0; --i)
                 {
-                    strBuf.append((i > naturalWidth) ? " " : "0");
+                    buf.insert(valueStart, (i > naturalWidth) ? ' ' : '0');
                 }
             }
         }
+    }
 
-        strBuf.append(valueStr);
-        return (strBuf.toString());
+    /**
+     * Appends the representation of a BitVector with the provided radix to the
+     * given Appendable, such as a Writer or PrintStream. The appended
+     * characters are identical to those returned by
+     * {@link #format(BitVector, int)}, but no intermediate String is created.
+     *
+     * @param vector a BitVector to be formatted
+     * @param radix the radix to use in the representation
+     * @param out the Appendable to append to
+     * @throws IOException if <code>out</code> throws an IOException
+     */
+    public void format(BitVector vector, int radix, Appendable out)
+        throws IOException
+    {
+        format(vector.myBuffer, radix, out);
+    }
+
+    /**
+     * Appends the representation of a BitVectorBuffer with the provided radix
+     * to the given Appendable.
+     *
+     * @param buffer a BitVectorBuffer to be formatted
+     * @param radix the radix to use in the representation
+     * @param out the Appendable to append to
+     * @throws IOException if <code>out</code> throws an IOException
+     * @see #format(BitVector, int, Appendable)
+     */
+    public void format(BitVectorBuffer buffer, int radix, Appendable out)
+        throws IOException
+    {
+        if (out instanceof StringBuilder)
+        {
+            format(buffer, radix, (StringBuilder) out);
+        }
+        else
+        {
+            final StringBuilder buf = new StringBuilder(buffer.length() + 8);
+            format(buffer, radix, buf);
+            out.append(buf);
+        }
     }
 
     /////////////////////////////////////////////
@@ -491,6 +378,7 @@ public class BitVectorFormat
         /////////////////////
         // value calculations
         boolean negative = value.startsWith("-");
+        BitVectorBuffer buf = new BitVectorBuffer(bvLength, 0);
         if (radix == 10)
         {
             if (xzPattern.matcher(numStr).find() == true)
@@ -498,19 +386,19 @@ public class BitVectorFormat
                 throw new NumberFormatException(
                     "X/Z Values are not allowed in decimal values");
             }
-
-            // stringToBitVectorBuffer works on radices which are a power
-            // of two. so if the radix we get is 10, convert it to something
-            // else (say, binary). do this conversion after validateRadix() since
-            // if that fails the user should get a meaningful Exception message.
-
-            // OK to use BigInteger since there are no X/Z values
-            numStr = DecimalHelper.decToBinStr(numStr);
-            radix = 2;
+            RadixConverter.parseDecimal(numStr, buf.myValues, bvLength);
         }
-
-        return (stringToBitVectorBuffer(negative, realLength, bvLength, radix,
-            numStr));
+        else
+        {
+            RadixConverter.parseDigits(numStr, Integer
+                .numberOfTrailingZeros(radix), buf.myValues, buf.myXzMask,
+                bvLength);
+        }
+        if (negative)
+        {
+            buf.negate();
+        }
+        return buf;
     }
 
     /**
@@ -569,46 +457,36 @@ public class BitVectorFormat
         switch (radix)
         {
         case 2:
-            return (new String("b"));
+            return "b";
         case 8:
-            return (new String("o"));
+            return "o";
         case 10:
-            return (new String("d"));
+            return "d";
         case 16:
-            return (new String("h"));
+            return "h";
         default:
             throw new NumberFormatException("Invalid radix: "
                 + String.valueOf(radix));
         }
     }
 
-    char[][] charTable = new char[][] {
-        // log2=0 (invalid)
-        {},
-        // log2=1 (binary)
-        { '0', '1' },
-        // log2=2 (invalid)
-        {},
-        // log2=3 (octal)
-        { '0', '1', '2', '3', '4', '5', '6', '7' },
-        // log2=4 (hexadecimal)
-        { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd',
-            'e', 'f' } };
-
     /**
-     * Returns the String representation for the specified BitVectorBuffer with
-     * the specified radix. If <code>buffer</code> includes an X or Z, that will
-     * be shown on a per-character basis, depending on the radix. For radices
-     * greater than 2, if any bit in a value is X or Z, the character will be
-     * filled by X, Z, or ?. If a combination of 0, 1, X, and Z are present in a
-     * character, a ? will be inserted.
+     * Appends the representation for the specified BitVectorBuffer with the
+     * specified radix to <code>buf</code>. If <code>buffer</code> includes an
+     * X or Z, that will be shown on a per-character basis, depending on the
+     * radix. For radices greater than 2, if any bit in a value is X or Z, the
+     * character will be filled by X, Z, or ?. If a combination of 0, 1, X, and
+     * Z are present in a character, a ? will be inserted.
+     * <P>
+     * The digits are generated a word at a time directly into
+     * <code>buf</code>, and for power-of-two radices are then compressed in
+     * place.
      *
-     * @param buffer the BitVectorBuffer to convert to a String
-     * @param radix the radix to use in the String representation
-     * @return a String representation of <code>buffer</code> with the
-     *      specified radix
+     * @param buffer the BitVectorBuffer to convert
+     * @param radix the radix to use in the representation
+     * @param buf the StringBuilder to append to
      */
-    private String bitsToString(BitVectorBuffer buffer, int radix)
+    private void appendBits(BitVectorBuffer buffer, int radix, StringBuilder buf)
     {
         final int length = buffer.length();
         final int log2 = Integer.numberOfTrailingZeros(radix);
@@ -618,95 +496,47 @@ public class BitVectorFormat
             .lowestOneBit(radix));
         assert (log2 != 32);
 
-        final StringBuffer sbuf = new StringBuffer(length / log2);
-        int count = 0;
-        int curWord = 0;
-        int curBit = 0;
-
         if (radix == 10)
         {
             // any X/Z value results in a "?" string
             if (buffer.containsXZ())
             {
-                return "?";
+                buf.append('?');
             }
             else if (length < 64)
             {
-                long longValue = buffer.longValue();
-                return Long.toString(longValue);
-            }
-            else
-            {
-                return DecimalHelper.bitsToDecStr(buffer);
-            }
-        }
-
-        do
-        {
-            // create a mask with a width of either log2(radix) or the number of
-            // bits left (in the case where the number of bits left < log2(radix))
-            final int mask = (count + log2 < length) ? (1 << log2) - 1
-                : (1 << (length - count)) - 1;
-            int idx = (buffer.myValues[curWord] >> curBit) & mask;
-            idx |= ((buffer.myXzMask[curWord] >> curBit) & mask) << log2;
-
-            if (underscoreFreq != 0 && count != 0
-                && (count % underscoreFreq) == 0)
-            {
-                sbuf.append("_");
-            }
-
-            if (idx == (mask << log2))
-            {
-                // 3'bz
-                sbuf.append((radix == 2) ? "z" : "Z");
-            }
-            else if (idx == ((mask << log2) | mask))
-            {
-                // 3'bx
-                sbuf.append((radix == 2) ? "x" : "X");
-            }
-            else if ((idx & (mask << log2)) != 0)
-            {
-                // mix of x/z/0/1 values
-                sbuf.append("?");
+                buf.append(buffer.longValue());
             }
             else
             {
-                // no xz value
-                sbuf.append(charTable[log2][idx]);
-            }
-            count += log2;
-            curBit += log2;
-            if (curBit >= BitVectorBuffer.BITS_PER_UNIT)
-            {
-                curBit = 0;
-                curWord++;
+                RadixConverter.appendDecimal(buffer.myValues, length, buf);
             }
+            return;
         }
-        while (count < length);
 
-        // we built up the string backwards (sbuf[0] is the LSB), so reverse it.
-        sbuf.reverse();
+        final int start = buf.length();
+        RadixConverter.appendDigits(buffer.myValues, buffer.myXzMask, length,
+            log2, underscoreFreq, buf);
 
         if (!useXzCompression)
         {
-            return sbuf.toString();
+            return;
         }
 
         // compress X/Z/0 values
-        char initialChar = sbuf.charAt(0);
+        char initialChar = buf.charAt(start);
         if (initialChar == 'x' || initialChar == 'X' || initialChar == 'z'
             || initialChar == 'Z' || initialChar == '0')
         {
             int lastZero = 0;
             int lastNonUnderScore = 0;
             int endOfDelete = 0;
-            final int sLength = sbuf.length();
+            final int sLength = buf.length() - start;
+            final boolean isZero = buffer.isZero();
 
             for (int i = 1; i < sLength; ++i)
             {
-                final char curChar = sbuf.charAt(i);
+                final char curChar = buf.charAt(start + i);
                 if (curChar == '_') continue;
 
                 if (curChar == '0')
@@ -717,7 +547,7 @@ public class BitVectorFormat
                 if (initialChar != curChar)
                 {
                     final boolean preserveZero = (initialChar == '0' && (radix == 8))
-                        || buffer.isZero();
+                        || isZero;
                     endOfDelete = (preserveZero) ? lastZero
                         : (initialChar == '0') ? i : lastNonUnderScore;
 
@@ -725,8 +555,8 @@ public class BitVectorFormat
                         && !preserveZero
                         && (curChar == 'x' || curChar == 'X' || curChar == 'z' || curChar == 'Z'))
                     {
-                        // sbuf could be of the form 000xx123, so we have to reduce
-                        // the xx
+                        // buf could be of the form 000xx123, so we have to
+                        // reduce the xx
                         initialChar = curChar;
                     }
                     else
@@ -744,117 +574,41 @@ public class BitVectorFormat
 
             if (endOfDelete != 0)
             {
-                sbuf.delete(0, endOfDelete);
+                buf.delete(start, start + endOfDelete);
             }
         }
-
-        return sbuf.toString();
     }
 
     /**
-     * Creates a new BitVectorBuffer object with the specified length and
-     * populates it with the data represented in <code>value</code>, which is in
-     * base <code>radix</code>.
+     * Removes leading zeros from the value beginning at <code>start</code> in
+     * <code>buf</code>, leaving at least one digit. This is equivalent to
+     * matching the value against <code>^0+([0-9A-fa-f]+)</code> and keeping
+     * group 1, so values containing lowercase X/Z, ? or _ are left intact.
      *
-     * @param negative true if this is a negative value, false if a positive value
-     * @param length the length of the value passed in
-     * @param finalLength the length of the BitVectorBuffer to be returned
-     * @param radix the base in which <code>value</code> is formatted
-     * @param value String to convert to a BitVectorBuffer
-     * @return a BitVectorBuffer based on <code>length</code>, <code>finalLength</code>,
-     *      <code>radix</code>, and <code>value</code>
-     * @throws IllegalArgumentException the length of the String is to small to
-     *             contain the value
+     * @param buf the StringBuilder containing the value
+     * @param start the index of the first character of the value
      */
-    private BitVectorBuffer stringToBitVectorBuffer(
-        boolean negative,
-        int length,
-        int finalLength,
-        int radix,
-        String value)
+    private static void stripLeadingZeros(StringBuilder buf, int start)
     {
-        int bitIdx = 0;
-        int charIdx;
-        int logRadix;
-        int msbValue = -1;
-        int msbMask = -1;
-        StringBuffer strBuf = new StringBuffer(value);
-        BitVectorBuffer buf = new BitVectorBuffer(finalLength, 0);
-        logRadix = Integer.numberOfTrailingZeros(radix);
-
-        // assert radix is a real power of 2 and is not zero
-        assert (radix == 10 || Integer.highestOneBit(radix) == Integer
-            .lowestOneBit(radix));
-        assert (logRadix != 32);
-
-        strBuf.reverse();
-
-        // iterate through _value, populating myValues
-        // appropriately, depending on radix
-        for (charIdx = 0; charIdx < strBuf.length(); charIdx++)
+        final int end = buf.length();
+        if (end - start < 2 || buf.charAt(start) != '0')
         {
-            char curChar = strBuf.charAt(charIdx);
-            int bitShiftVal = 0;
-            for (bitIdx = (charIdx * logRadix), bitShiftVal = 0; bitIdx < ((charIdx * logRadix) + logRadix); bitIdx++, bitShiftVal++)
-            {
-                int intIdx = bitIdx / BitVectorBuffer.BITS_PER_UNIT;
-                int intShiftVal = bitIdx % BitVectorBuffer.BITS_PER_UNIT;
-                boolean charIsX = Character.toLowerCase(curChar) == 'x';
-                boolean charIsZ = Character.toLowerCase(curChar) == 'z';
-                int curNum = 0;
-
-                if (bitIdx >= finalLength) break;
-
-                if (!(charIsX || charIsZ))
-                {
-                    curNum = Character.digit(curChar, radix);
-
-                    if (bitIdx >= length && (curNum & (1 << bitShiftVal)) != 0)
-                    {
-                        throw new IllegalArgumentException("Length ("
-                            + String.valueOf(length)
-                            + ") is too small for value (" + strBuf + ")");
-                    }
-                }
-                if (charIsX)
-                {
-                    msbValue = 1;
-                    msbMask = 1;
-                }
-                else if (charIsZ)
-                {
-                    msbValue = 0;
-                    msbMask = 1;
-                }
-                else
-                {
-                    // OK to use BigInteger as this isn't an X/Z value
-                    msbValue = (curNum >> bitShiftVal);
-                    msbMask = 0;
-                }
-
-                buf.myValues[intIdx] |= (msbValue << intShiftVal);
-                buf.myXzMask[intIdx] |= (msbMask << intShiftVal);
-            }
+            return;
         }
-
-        // Now check that length bits were actually specified.
-        // If not, perform the extension.
-        assert (msbValue != -1 && msbMask != -1);
-        if (msbMask == 0) msbValue = 0; // non-X/Z values are extended with 0's
-        while (bitIdx < finalLength)
+        for (int i = start; i < end; ++i)
         {
-            int intIdx = bitIdx / BitVectorBuffer.BITS_PER_UNIT;
-            int intShiftVal = bitIdx % BitVectorBuffer.BITS_PER_UNIT;
-            buf.myValues[intIdx] |= (msbValue << intShiftVal);
-            buf.myXzMask[intIdx] |= (msbMask << intShiftVal);
-            bitIdx++;
+            final char c = buf.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'A' && c <= 'f')))
+            {
+                return;
+            }
         }
-        if (negative)
+        int firstNonZero = start;
+        while (firstNonZero < end - 1 && buf.charAt(firstNonZero) == '0')
         {
-            buf.negate();
+            ++firstNonZero;
         }
-        return (buf);
+        buf.delete(start, firstNonZero);
     }
 
     /**
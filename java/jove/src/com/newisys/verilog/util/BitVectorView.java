@@ -0,0 +1,319 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.verilog.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A flyweight view of a bit vector value stored in a ByteBuffer, rather than
+ * in a BitVector. The value is laid out as an array of 32-bit word pairs in
+ * the native byte order, matching the PLI <code>s_vpi_vecval</code>
+ * structure: for each word, the first int holds the 0/1 values (aval) and the
+ * second holds the X/Z mask (bval). Bit <i>n</i> is stored in bit
+ * <i>n % 32</i> of word pair <i>n / 32</i>.
+ * <P>
+ * Because the storage may be shared with native code (for instance, in a
+ * direct ByteBuffer), the view reads the buffer on every access. Use
+ * {@link #toBitVector} to capture an immutable copy of the current value.
+ * 
+ * @author Jon Nall
+ */
+public final class BitVectorView
+{
+    /**
+     * The number of bytes used by each word pair.
+     */
+    public static final int BYTES_PER_WORD = 8;
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+    private final int wordCount;
+
+    /**
+     * Creates a view of the value at the given offset in a ByteBuffer.
+     *
+     * @param buffer the buffer containing the value, which must use the native
+     *            byte order
+     * @param offset the byte offset of the first word pair in
+     *            <code>buffer</code>
+     * @param length the length of the value in bits
+     * @throws IllegalArgumentException if the length is not positive or the
+     *             value does not fit in the buffer
+     */
+    public BitVectorView(ByteBuffer buffer, int offset, int length)
+    {
+        if (length <= 0)
+        {
+            throw new IllegalArgumentException("length (" + length
+                + ") is <= 0");
+        }
+        this.wordCount = getWordCount(length);
+        if (offset < 0
+            || offset + wordCount * BYTES_PER_WORD > buffer.capacity())
+        {
+            throw new IllegalArgumentException("Value at offset " + offset
+                + " does not fit in buffer");
+        }
+        assert (buffer.order() == ByteOrder.nativeOrder());
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Returns the number of word pairs needed to store a value of the given
+     * length.
+     *
+     * @param length the length of the value in bits
+     * @return the number of word pairs
+     */
+    public static int getWordCount(int length)
+    {
+        return (length + BitVectorBuffer.BITS_PER_UNIT - 1)
+            / BitVectorBuffer.BITS_PER_UNIT;
+    }
+
+    /**
+     * Returns the buffer containing the value.
+     *
+     * @return the underlying ByteBuffer
+     */
+    public ByteBuffer getBuffer()
+    {
+        return buffer;
+    }
+
+    /**
+     * Returns the byte offset of the value in the buffer.
+     *
+     * @return the byte offset
+     */
+    public int getOffset()
+    {
+        return offset;
+    }
+
+    /**
+     * Returns the number of bits in the value.
+     *
+     * @return the length of the value
+     */
+    public int length()
+    {
+        return length;
+    }
+
+    /**
+     * Returns the number of word pairs in the value.
+     *
+     * @return the number of word pairs
+     */
+    public int getWordCount()
+    {
+        return wordCount;
+    }
+
+    private int topMask(int word)
+    {
+        final int extra = length % BitVectorBuffer.BITS_PER_UNIT;
+        return (word == wordCount - 1 && extra != 0) ? (1 << extra) - 1 : -1;
+    }
+
+    /**
+     * Returns the 0/1 values of the given word, with bits beyond the length
+     * of the value cleared.
+     *
+     * @param word the index of the word
+     * @return the aval word
+     */
+    public int getValueWord(int word)
+    {
+        return buffer.getInt(offset + word * BYTES_PER_WORD) & topMask(word);
+    }
+
+    /**
+     * Returns the X/Z mask of the given word, with bits beyond the length of
+     * the value cleared.
+     *
+     * @param word the index of the word
+     * @return the bval word
+     */
+    public int getXzWord(int word)
+    {
+        return buffer.getInt(offset + word * BYTES_PER_WORD + 4)
+            & topMask(word);
+    }
+
+    /**
+     * Returns the bit at the given position.
+     *
+     * @param bitPos the bit position
+     * @return the value of the bit
+     * @throws IllegalArgumentException if <code>bitPos</code> is out of range
+     */
+    public Bit getBit(int bitPos)
+    {
+        if (bitPos < 0 || bitPos >= length)
+        {
+            throw new IllegalArgumentException("bitPos [" + bitPos
+                + "] is not in the range from 0:" + length);
+        }
+        final int word = bitPos / BitVectorBuffer.BITS_PER_UNIT;
+        final int shift = bitPos % BitVectorBuffer.BITS_PER_UNIT;
+        final int a = (getValueWord(word) >> shift) & 1;
+        final int b = (getXzWord(word) >> shift) & 1;
+        return Bit.getBitForID(a | (b << 1));
+    }
+
+    /**
+     * Returns whether any bit of the value is X or Z.
+     *
+     * @return true if the value contains X or Z bits
+     */
+    public boolean containsXZ()
+    {
+        for (int i = 0; i < wordCount; ++i)
+        {
+            if (getXzWord(i) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the low 64 bits of the value as a long, treating X/Z bits as
+     * their aval bits.
+     *
+     * @return the value as a long
+     */
+    public long longValue()
+    {
+        long value = getValueWord(0) & 0xFFFFFFFFL;
+        if (wordCount > 1)
+        {
+            value |= ((long) getValueWord(1)) << 32;
+        }
+        return value;
+    }
+
+    /**
+     * Returns whether this view holds the same value as the given BitVector,
+     * without allocating a BitVector for the view.
+     *
+     * @param vector the BitVector to compare to
+     * @return true if the lengths and all bits (including X/Z) are equal
+     */
+    public boolean contentEquals(BitVector vector)
+    {
+        if (vector.length() != length) return false;
+        final int[] values = vector.values();
+        final int[] xzMask = vector.xzMask();
+        for (int i = 0; i < wordCount; ++i)
+        {
+            final int mask = topMask(i);
+            if (getValueWord(i) != (values[i] & mask)
+                || getXzWord(i) != (xzMask[i] & mask))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a BitVector containing the current value of this view.
+     *
+     * @return a new BitVector
+     */
+    public BitVector toBitVector()
+    {
+        final int[] values = new int[wordCount];
+        final int[] xzMask = new int[wordCount];
+        for (int i = 0; i < wordCount; ++i)
+        {
+            values[i] = getValueWord(i);
+            xzMask[i] = getXzWord(i);
+        }
+        return new BitVector(values, xzMask, length);
+    }
+
+    /**
+     * Stores the given value into this view. The value is truncated or
+     * zero-extended to the length of the view.
+     *
+     * @param vector the value to store
+     */
+    public void set(BitVector vector)
+    {
+        final int[] values = vector.values();
+        final int[] xzMask = vector.xzMask();
+        final int srcWords = getWordCount(vector.length());
+        for (int i = 0; i < wordCount; ++i)
+        {
+            int a = 0, b = 0;
+            if (i < srcWords)
+            {
+                a = values[i];
+                b = xzMask[i];
+                if (i == srcWords - 1)
+                {
+                    final int extra = vector.length()
+                        % BitVectorBuffer.BITS_PER_UNIT;
+                    if (extra != 0)
+                    {
+                        a &= (1 << extra) - 1;
+                        b &= (1 << extra) - 1;
+                    }
+                }
+            }
+            final int mask = topMask(i);
+            final int pos = offset + i * BYTES_PER_WORD;
+            buffer.putInt(pos, a & mask);
+            buffer.putInt(pos + 4, b & mask);
+        }
+    }
+
+    /**
+     * Stores the given value, zero-extended or truncated to the length of
+     * this view.
+     *
+     * @param value the value to store
+     */
+    public void set(long value)
+    {
+        for (int i = 0; i < wordCount; ++i)
+        {
+            final int pos = offset + i * BYTES_PER_WORD;
+            final int a = i < 2 ? (int) (value >>> (i * 32)) : 0;
+            buffer.putInt(pos, a & topMask(i));
+            buffer.putInt(pos + 4, 0);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return toBitVector().toString();
+    }
+}
@@ -0,0 +1,540 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.newisys.verilog.util;
+
+/**
+ * Multi-word unsigned arithmetic on the 32-bit word arrays used by
+ * BitVectorBuffer. Values are stored least significant word first, and each
+ * operation is told how many words of each array are significant, so arrays
+ * may be longer than the values they hold. Multiplication uses the schoolbook
+ * method for small operands and Karatsuba multiplication once both operands
+ * reach {@link #KARATSUBA_THRESHOLD} words; division uses Knuth's Algorithm D
+ * (The Art of Computer Programming, Vol. 2, 4.3.1). None of these methods
+ * handle X/Z bits, which callers must check for beforehand.
+ *
+ * @author Jon Nall
+ */
+final class LimbArithmetic
+{
+    private static final long WORD_MASK = 0xFFFFFFFFL;
+    private static final int WORD_BITS = BitVectorBuffer.BITS_PER_UNIT;
+
+    /**
+     * The operand size in words at or above which Karatsuba multiplication is
+     * used instead of schoolbook multiplication.
+     */
+    static final int KARATSUBA_THRESHOLD = 40;
+
+    private LimbArithmetic()
+    {
+    }
+
+    /**
+     * Returns the number of significant words in the given value, ignoring
+     * leading zero words.
+     *
+     * @param x the value words
+     * @param len the number of words to consider
+     * @return the number of words up to and including the most significant
+     *         nonzero word, or 0 if the value is zero
+     */
+    private static int trim(int[] x, int len)
+    {
+        while (len > 0 && x[len - 1] == 0)
+        {
+            --len;
+        }
+        return len;
+    }
+
+    /**
+     * Computes the low <code>resultLen</code> words of <code>a * b</code>.
+     *
+     * @param a the first multiplicand
+     * @param aLen the number of words in <code>a</code>
+     * @param b the second multiplicand
+     * @param bLen the number of words in <code>b</code>
+     * @param result the array to receive the product, which must not be
+     *            <code>a</code> or <code>b</code>
+     * @param resultLen the number of product words to compute
+     */
+    static void multiply(
+        int[] a,
+        int aLen,
+        int[] b,
+        int bLen,
+        int[] result,
+        int resultLen)
+    {
+        aLen = Math.min(trim(a, aLen), resultLen);
+        bLen = Math.min(trim(b, bLen), resultLen);
+        if (aLen == 0 || bLen == 0)
+        {
+            fill(result, 0, resultLen);
+            return;
+        }
+
+        if (aLen >= KARATSUBA_THRESHOLD && bLen >= KARATSUBA_THRESHOLD)
+        {
+            // Karatsuba computes the full product; keep the low words
+            final int fullLen = aLen + bLen;
+            if (fullLen <= resultLen)
+            {
+                karatsuba(a, 0, aLen, b, 0, bLen, result, 0);
+                fill(result, fullLen, resultLen);
+            }
+            else
+            {
+                final int[] full = new int[fullLen];
+                karatsuba(a, 0, aLen, b, 0, bLen, full, 0);
+                System.arraycopy(full, 0, result, 0, resultLen);
+            }
+            return;
+        }
+
+        // schoolbook multiplication, skipping partial products that fall
+        // entirely above resultLen
+        fill(result, 0, resultLen);
+        for (int i = 0; i < aLen; ++i)
+        {
+            final long ai = a[i] & WORD_MASK;
+            if (ai == 0)
+            {
+                continue;
+            }
+            final int jEnd = Math.min(bLen, resultLen - i);
+            long carry = 0;
+            for (int j = 0; j < jEnd; ++j)
+            {
+                final long t = ai * (b[j] & WORD_MASK)
+                    + (result[i + j] & WORD_MASK) + carry;
+                result[i + j] = (int) t;
+                carry = t >>> WORD_BITS;
+            }
+            if (i + jEnd < resultLen)
+            {
+                result[i + jEnd] = (int) carry;
+            }
+        }
+    }
+
+    /**
+     * Stores the full product of the given operands in
+     * <code>r[rOff..rOff + aLen + bLen)</code>, which must not overlap either
+     * operand.
+     */
+    private static void schoolbook(
+        int[] a,
+        int aOff,
+        int aLen,
+        int[] b,
+        int bOff,
+        int bLen,
+        int[] r,
+        int rOff)
+    {
+        fill(r, rOff, rOff + aLen + bLen);
+        for (int i = 0; i < aLen; ++i)
+        {
+            final long ai = a[aOff + i] & WORD_MASK;
+            long carry = 0;
+            for (int j = 0; j < bLen; ++j)
+            {
+                final int k = rOff + i + j;
+                final long t = ai * (b[bOff + j] & WORD_MASK) + (r[k] & WORD_MASK)
+                    + carry;
+                r[k] = (int) t;
+                carry = t >>> WORD_BITS;
+            }
+            r[rOff + i + bLen] = (int) carry;
+        }
+    }
+
+    /**
+     * Stores the full product of the given operands in
+     * <code>r[rOff..rOff + aLen + bLen)</code>, which must not overlap either
+     * operand, using Karatsuba multiplication while both operands are at
+     * least {@link #KARATSUBA_THRESHOLD} words.
+     */
+    private static void karatsuba(
+        int[] a,
+        int aOff,
+        int aLen,
+        int[] b,
+        int bOff,
+        int bLen,
+        int[] r,
+        int rOff)
+    {
+        if (aLen < KARATSUBA_THRESHOLD || bLen < KARATSUBA_THRESHOLD)
+        {
+            schoolbook(a, aOff, aLen, b, bOff, bLen, r, rOff);
+            return;
+        }
+
+        final int half = (Math.max(aLen, bLen) + 1) / 2;
+        if (aLen <= half || bLen <= half)
+        {
+            // unbalanced operands: split only the longer one, giving
+            // a * b = (a1 * b << half) + a0 * b
+            if (aLen < bLen)
+            {
+                karatsuba(b, bOff, bLen, a, aOff, aLen, r, rOff);
+                return;
+            }
+            karatsuba(a, aOff, half, b, bOff, bLen, r, rOff);
+            fill(r, rOff + half + bLen, rOff + aLen + bLen);
+            final int hiLen = aLen - half + bLen;
+            final int[] hi = new int[hiLen];
+            karatsuba(a, aOff + half, aLen - half, b, bOff, bLen, hi, 0);
+            addTo(r, rOff + half, aLen + bLen - half, hi, hiLen);
+            return;
+        }
+
+        // a = a1 << half + a0, b = b1 << half + b0:
+        // a * b = z2 << (2 * half) + (z1 - z2 - z0) << half + z0
+        // where z0 = a0 * b0, z2 = a1 * b1, z1 = (a0 + a1) * (b0 + b1)
+        final int a1Len = aLen - half;
+        final int b1Len = bLen - half;
+        karatsuba(a, aOff, half, b, bOff, half, r, rOff);
+        karatsuba(a, aOff + half, a1Len, b, bOff + half, b1Len, r, rOff + 2
+            * half);
+
+        final int sumLen = half + 1;
+        final int[] sa = new int[sumLen];
+        final int[] sb = new int[sumLen];
+        System.arraycopy(a, aOff, sa, 0, half);
+        System.arraycopy(b, bOff, sb, 0, half);
+        addTo(sa, 0, sumLen, a, aOff + half, a1Len);
+        addTo(sb, 0, sumLen, b, bOff + half, b1Len);
+
+        final int midLen = 2 * sumLen;
+        final int[] mid = new int[midLen];
+        karatsuba(sa, 0, sumLen, sb, 0, sumLen, mid, 0);
+        subtractFrom(mid, 0, midLen, r, rOff, 2 * half);
+        subtractFrom(mid, 0, midLen, r, rOff + 2 * half, a1Len + b1Len);
+
+        // the middle term is less than the full product, so the words above
+        // what fits in the result are zero
+        final int rSpan = aLen + bLen - half;
+        addTo(r, rOff + half, rSpan, mid, trim(mid, midLen));
+    }
+
+    /**
+     * Adds <code>x[xOff..xOff + xLen)</code> into
+     * <code>r[rOff..rOff + rLen)</code>, propagating carries, and returns the
+     * carry out of the top word.
+     */
+    private static int addTo(
+        int[] r,
+        int rOff,
+        int rLen,
+        int[] x,
+        int xOff,
+        int xLen)
+    {
+        long carry = 0;
+        int i = 0;
+        for (; i < xLen; ++i)
+        {
+            final long t = (r[rOff + i] & WORD_MASK) + (x[xOff + i] & WORD_MASK)
+                + carry;
+            r[rOff + i] = (int) t;
+            carry = t >>> WORD_BITS;
+        }
+        for (; carry != 0 && i < rLen; ++i)
+        {
+            final long t = (r[rOff + i] & WORD_MASK) + carry;
+            r[rOff + i] = (int) t;
+            carry = t >>> WORD_BITS;
+        }
+        return (int) carry;
+    }
+
+    private static int addTo(int[] r, int rOff, int rLen, int[] x, int xLen)
+    {
+        return addTo(r, rOff, rLen, x, 0, xLen);
+    }
+
+    /**
+     * Subtracts <code>x[xOff..xOff + xLen)</code> from
+     * <code>r[rOff..rOff + rLen)</code>, propagating borrows, and returns the
+     * borrow out of the top word.
+     */
+    private static int subtractFrom(
+        int[] r,
+        int rOff,
+        int rLen,
+        int[] x,
+        int xOff,
+        int xLen)
+    {
+        long borrow = 0;
+        int i = 0;
+        for (; i < xLen; ++i)
+        {
+            final long t = (r[rOff + i] & WORD_MASK) - (x[xOff + i] & WORD_MASK)
+                - borrow;
+            r[rOff + i] = (int) t;
+            borrow = (t >>> WORD_BITS) & 1;
+        }
+        for (; borrow != 0 && i < rLen; ++i)
+        {
+            final long t = (r[rOff + i] & WORD_MASK) - borrow;
+            r[rOff + i] = (int) t;
+            borrow = (t >>> WORD_BITS) & 1;
+        }
+        return (int) borrow;
+    }
+
+    /**
+     * Divides <code>u</code> by <code>v</code>, storing the quotient and/or
+     * remainder. The quotient and remainder arrays must each be at least
+     * <code>uLen</code> words long; every word of them up to
+     * <code>uLen</code> is written.
+     *
+     * @param u the dividend
+     * @param uLen the number of words in <code>u</code>
+     * @param v the divisor, which must be nonzero
+     * @param vLen the number of words in <code>v</code>
+     * @param q the array to receive the quotient, or <code>null</code> if the
+     *            quotient is not needed
+     * @param r the array to receive the remainder, or <code>null</code> if the
+     *            remainder is not needed
+     * @throws ArithmeticException if <code>v</code> is zero
+     */
+    static void divide(int[] u, int uLen, int[] v, int vLen, int[] q, int[] r)
+    {
+        final int outLen = uLen;
+        uLen = trim(u, uLen);
+        vLen = trim(v, vLen);
+        if (vLen == 0)
+        {
+            throw new ArithmeticException("Divide by zero");
+        }
+
+        if (q != null)
+        {
+            fill(q, 0, outLen);
+        }
+        if (r != null)
+        {
+            fill(r, 0, outLen);
+        }
+
+        if (uLen < vLen)
+        {
+            if (r != null)
+            {
+                System.arraycopy(u, 0, r, 0, uLen);
+            }
+            return;
+        }
+
+        if (vLen == 1)
+        {
+            // single-word divisor: simple long division by words
+            final long divisor = v[0] & WORD_MASK;
+            long rem = 0;
+            for (int j = uLen - 1; j >= 0; --j)
+            {
+                final long num = (rem << WORD_BITS) | (u[j] & WORD_MASK);
+                final long qj = Long.divideUnsigned(num, divisor);
+                rem = num - qj * divisor;
+                if (q != null)
+                {
+                    q[j] = (int) qj;
+                }
+            }
+            if (r != null)
+            {
+                r[0] = (int) rem;
+            }
+            return;
+        }
+
+        // normalize so that the top divisor word has its high bit set
+        final int s = Integer.numberOfLeadingZeros(v[vLen - 1]);
+        final int[] vn = new int[vLen];
+        final int[] un = new int[uLen + 1];
+        shiftLeftInto(v, vLen, s, vn);
+        un[uLen] = shiftLeftInto(u, uLen, s, un);
+
+        final long vTop = vn[vLen - 1] & WORD_MASK;
+        final long vNext = vn[vLen - 2] & WORD_MASK;
+        for (int j = uLen - vLen; j >= 0; --j)
+        {
+            // estimate the quotient word from the top two dividend words,
+            // then correct it using the next divisor word
+            final long num = ((un[j + vLen] & WORD_MASK) << WORD_BITS)
+                | (un[j + vLen - 1] & WORD_MASK);
+            long qhat = Long.divideUnsigned(num, vTop);
+            long rhat = num - qhat * vTop;
+            while (qhat > WORD_MASK
+                || Long.compareUnsigned(qhat * vNext, (rhat << WORD_BITS)
+                    | (un[j + vLen - 2] & WORD_MASK)) > 0)
+            {
+                --qhat;
+                rhat += vTop;
+                if (rhat > WORD_MASK)
+                {
+                    break;
+                }
+            }
+
+            // multiply and subtract qhat * vn from the current window
+            long borrow = 0;
+            for (int i = 0; i < vLen; ++i)
+            {
+                final long p = qhat * (vn[i] & WORD_MASK);
+                final long t = (un[i + j] & WORD_MASK) - borrow - (p & WORD_MASK);
+                un[i + j] = (int) t;
+                borrow = (p >>> WORD_BITS) - (t >> WORD_BITS);
+            }
+            final long t = (un[j + vLen] & WORD_MASK) - borrow;
+            un[j + vLen] = (int) t;
+
+            if (t < 0)
+            {
+                // qhat was one too large; add the divisor back
+                --qhat;
+                long carry = 0;
+                for (int i = 0; i < vLen; ++i)
+                {
+                    final long sum = (un[i + j] & WORD_MASK)
+                        + (vn[i] & WORD_MASK) + carry;
+                    un[i + j] = (int) sum;
+                    carry = sum >>> WORD_BITS;
+                }
+                un[j + vLen] += (int) carry;
+            }
+            if (q != null)
+            {
+                q[j] = (int) qhat;
+            }
+        }
+
+        if (r != null)
+        {
+            // denormalize the remainder
+            for (int i = 0; i < vLen; ++i)
+            {
+                r[i] = s == 0 ? un[i] : (un[i] >>> s)
+                    | (un[i + 1] << (WORD_BITS - s));
+            }
+        }
+    }
+
+    /**
+     * Stores <code>x</code> shifted left by <code>s</code> bits (less than
+     * one word) in <code>dest</code>, returning the bits shifted out of the
+     * top word.
+     */
+    private static int shiftLeftInto(int[] x, int len, int s, int[] dest)
+    {
+        if (s == 0)
+        {
+            System.arraycopy(x, 0, dest, 0, len);
+            return 0;
+        }
+        int carry = 0;
+        for (int i = 0; i < len; ++i)
+        {
+            final int w = x[i];
+            dest[i] = (w << s) | carry;
+            carry = w >>> (WORD_BITS - s);
+        }
+        return carry;
+    }
+
+    /**
+     * Shifts the given words left in place by the given number of bits.
+     * Zeros are shifted into the low bits and bits shifted past the top word
+     * are discarded.
+     *
+     * @param x the value words
+     * @param len the number of words in <code>x</code>
+     * @param numBits the number of bits to shift, which must be non-negative
+     */
+    static void shiftLeft(int[] x, int len, int numBits)
+    {
+        final int wordShift = numBits / WORD_BITS;
+        final int bitShift = numBits % WORD_BITS;
+        if (wordShift >= len)
+        {
+            fill(x, 0, len);
+            return;
+        }
+        if (bitShift == 0)
+        {
+            System.arraycopy(x, 0, x, wordShift, len - wordShift);
+        }
+        else
+        {
+            for (int i = len - 1; i > wordShift; --i)
+            {
+                x[i] = (x[i - wordShift] << bitShift)
+                    | (x[i - wordShift - 1] >>> (WORD_BITS - bitShift));
+            }
+            x[wordShift] = x[0] << bitShift;
+        }
+        fill(x, 0, wordShift);
+    }
+
+    /**
+     * Shifts the given words right in place by the given number of bits.
+     * Zeros are shifted into the high bits of the top word.
+     *
+     * @param x the value words
+     * @param len the number of words in <code>x</code>
+     * @param numBits the number of bits to shift, which must be non-negative
+     */
+    static void shiftRight(int[] x, int len, int numBits)
+    {
+        final int wordShift = numBits / WORD_BITS;
+        final int bitShift = numBits % WORD_BITS;
+        if (wordShift >= len)
+        {
+            fill(x, 0, len);
+            return;
+        }
+        final int keep = len - wordShift;
+        if (bitShift == 0)
+        {
+            System.arraycopy(x, wordShift, x, 0, keep);
+        }
+        else
+        {
+            for (int i = 0; i < keep - 1; ++i)
+            {
+                x[i] = (x[i + wordShift] >>> bitShift)
+                    | (x[i + wordShift + 1] << (WORD_BITS - bitShift));
+            }
+            x[keep - 1] = x[len - 1] >>> bitShift;
+        }
+        fill(x, keep, len);
+    }
+
+    private static void fill(int[] x, int from, int to)
+    {
+        for (int i = from; i < to; ++i)
+        {
+            x[i] = 0;
+        }
+    }
+}
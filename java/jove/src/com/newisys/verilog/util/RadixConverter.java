@@ -0,0 +1,360 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.newisys.verilog.util;
+
+/**
+ * Converts between the word arrays of a BitVectorBuffer and digit strings.
+ * All conversions operate on whole 32-bit words rather than individual bits:
+ * decimal values are converted by repeated division or multiplication by
+ * 10<sup>9</sup> on the word array, and binary, octal, and hexadecimal digits
+ * are extracted or inserted a digit at a time with shifts and masks. Digits
+ * are generated directly into a character array that is appended to the
+ * destination in a single operation.
+ * 
+ * @author Jon Nall
+ */
+final class RadixConverter
+{
+    private static final long WORD_MASK = 0xFFFFFFFFL;
+    private static final int CHUNK_DIGITS = 9;
+    private static final long CHUNK_RADIX = 1000000000L;
+    private static final int[] POW10 = { 1, 10, 100, 1000, 10000, 100000,
+        1000000, 10000000, 100000000, 1000000000 };
+
+    private static final char[] DIGITS = { '0', '1', '2', '3', '4', '5', '6',
+        '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f' };
+
+    private RadixConverter()
+    {
+    }
+
+    /**
+     * Returns the number of words used to hold the given number of bits.
+     *
+     * @param length the number of bits
+     * @return the number of 32-bit words needed for <code>length</code> bits
+     */
+    private static int wordCount(int length)
+    {
+        return (length + BitVectorBuffer.BITS_PER_UNIT - 1)
+            / BitVectorBuffer.BITS_PER_UNIT;
+    }
+
+    /**
+     * Appends the unsigned decimal representation of the given value.
+     *
+     * @param values the value words, least significant first, which must not
+     *            contain X/Z bits
+     * @param length the number of valid bits in <code>values</code>
+     * @param buf the StringBuilder to append to
+     */
+    static void appendDecimal(int[] values, int length, StringBuilder buf)
+    {
+        // copy the value, masking off any bits above length
+        final int numWords = wordCount(length);
+        final int[] mag = new int[numWords];
+        System.arraycopy(values, 0, mag, 0, numWords);
+        final int extraBits = length % BitVectorBuffer.BITS_PER_UNIT;
+        if (extraBits != 0)
+        {
+            mag[numWords - 1] &= (1 << extraBits) - 1;
+        }
+        int used = numWords;
+        while (used > 0 && mag[used - 1] == 0)
+        {
+            --used;
+        }
+        if (used == 0)
+        {
+            buf.append('0');
+            return;
+        }
+
+        // divide by 10^9 until zero, collecting the remainders, which are the
+        // base 10^9 digits of the value from least to most significant; each
+        // word holds less than 9.64 decimal digits, or 1.071 chunks
+        final int[] chunks = new int[(int) ((long) used * 1071 / 1000) + 2];
+        int chunkCount = 0;
+        while (used > 0)
+        {
+            long rem = 0;
+            for (int i = used - 1; i >= 0; --i)
+            {
+                final long cur = (rem << 32) | (mag[i] & WORD_MASK);
+                mag[i] = (int) (cur / CHUNK_RADIX);
+                rem = cur % CHUNK_RADIX;
+            }
+            chunks[chunkCount++] = (int) rem;
+            while (used > 0 && mag[used - 1] == 0)
+            {
+                --used;
+            }
+        }
+
+        // the most significant chunk is not zero-padded; the others are
+        final int top = chunks[chunkCount - 1];
+        int topDigits = 1;
+        while (topDigits < CHUNK_DIGITS && top >= POW10[topDigits])
+        {
+            ++topDigits;
+        }
+        final char[] out = new char[topDigits + (chunkCount - 1) * CHUNK_DIGITS];
+        int pos = out.length;
+        for (int c = 0; c < chunkCount; ++c)
+        {
+            int chunk = chunks[c];
+            final int digits = (c == chunkCount - 1) ? topDigits : CHUNK_DIGITS;
+            for (int d = 0; d < digits; ++d)
+            {
+                out[--pos] = DIGITS[chunk % 10];
+                chunk /= 10;
+            }
+        }
+        buf.append(out);
+    }
+
+    /**
+     * Appends the digits of the given value in a power-of-two radix. Digits in
+     * which all bits are X or all bits are Z are shown as X or Z (lowercase
+     * for binary); digits containing a mix of X/Z and other bits are shown as
+     * ?. An underscore is inserted between digits whenever the number of bits
+     * to the right of the underscore is a multiple of
+     * <code>underscoreFreq</code>.
+     *
+     * @param values the value words, least significant first
+     * @param xzMask the X/Z mask words, least significant first
+     * @param length the number of valid bits
+     * @param log2 the log base 2 of the radix: 1, 3, or 4
+     * @param underscoreFreq the underscore frequency in bits, or 0 for none
+     * @param buf the StringBuilder to append to
+     */
+    static void appendDigits(
+        int[] values,
+        int[] xzMask,
+        int length,
+        int log2,
+        int underscoreFreq,
+        StringBuilder buf)
+    {
+        final int numDigits = (length + log2 - 1) / log2;
+        int numUnderscores = 0;
+        if (underscoreFreq != 0)
+        {
+            for (int d = 1; d < numDigits; ++d)
+            {
+                if ((d * log2) % underscoreFreq == 0) ++numUnderscores;
+            }
+        }
+
+        final char x = (log2 == 1) ? 'x' : 'X';
+        final char z = (log2 == 1) ? 'z' : 'Z';
+        final char[] out = new char[numDigits + numUnderscores];
+        int pos = out.length;
+        int bit = 0;
+        for (int d = 0; d < numDigits; ++d, bit += log2)
+        {
+            if (d != 0 && underscoreFreq != 0 && bit % underscoreFreq == 0)
+            {
+                out[--pos] = '_';
+            }
+
+            final int bits = Math.min(log2, length - bit);
+            final int mask = (1 << bits) - 1;
+            final int value = getBits(values, bit, bits);
+            final int xz = getBits(xzMask, bit, bits);
+            final char c;
+            if (xz == 0)
+            {
+                c = DIGITS[value];
+            }
+            else if (xz == mask)
+            {
+                c = (value == 0) ? z : (value == mask) ? x : '?';
+            }
+            else
+            {
+                c = '?';
+            }
+            out[--pos] = c;
+        }
+        buf.append(out);
+    }
+
+    /**
+     * Returns the given number of bits starting at the given bit index.
+     *
+     * @param words the words containing the bits
+     * @param bit the index of the first bit to return
+     * @param count the number of bits to return, from 1 to 31
+     * @return the requested bits, right-justified
+     */
+    private static int getBits(int[] words, int bit, int count)
+    {
+        final int index = bit / BitVectorBuffer.BITS_PER_UNIT;
+        final int shift = bit % BitVectorBuffer.BITS_PER_UNIT;
+        int result = words[index] >>> shift;
+        if (shift + count > BitVectorBuffer.BITS_PER_UNIT)
+        {
+            result |= words[index + 1] << (BitVectorBuffer.BITS_PER_UNIT - shift);
+        }
+        return result & ((1 << count) - 1);
+    }
+
+    /**
+     * ORs the given bits into the given words starting at the given bit index.
+     *
+     * @param words the words to update
+     * @param bit the index of the first bit to set
+     * @param count the number of bits to set, from 1 to 31
+     * @param value the bits to set, right-justified
+     */
+    private static void orBits(int[] words, int bit, int count, int value)
+    {
+        value &= (1 << count) - 1;
+        final int index = bit / BitVectorBuffer.BITS_PER_UNIT;
+        final int shift = bit % BitVectorBuffer.BITS_PER_UNIT;
+        words[index] |= value << shift;
+        if (shift + count > BitVectorBuffer.BITS_PER_UNIT)
+        {
+            words[index + 1] |= value >>> (BitVectorBuffer.BITS_PER_UNIT - shift);
+        }
+    }
+
+    /**
+     * Sets all bits in the range [from, to) of the given words.
+     *
+     * @param words the words to update
+     * @param from the index of the first bit to set
+     * @param to the index after the last bit to set
+     */
+    private static void fillBits(int[] words, int from, int to)
+    {
+        while (from < to)
+        {
+            final int count = Math.min(to - from, BitVectorBuffer.BITS_PER_UNIT
+                - from % BitVectorBuffer.BITS_PER_UNIT);
+            final int mask = (count == BitVectorBuffer.BITS_PER_UNIT) ? -1
+                : (1 << count) - 1;
+            words[from / BitVectorBuffer.BITS_PER_UNIT] |= mask << (from % BitVectorBuffer.BITS_PER_UNIT);
+            from += count;
+        }
+    }
+
+    /**
+     * Parses a string of decimal digits into the given zero-initialized value
+     * words. Values too large for <code>length</code> bits are truncated to
+     * their least significant <code>length</code> bits.
+     *
+     * @param digits the decimal digits, most significant first
+     * @param values the zero-initialized value words, least significant first
+     * @param length the number of valid bits in <code>values</code>
+     */
+    static void parseDecimal(CharSequence digits, int[] values, int length)
+    {
+        final int numWords = wordCount(length);
+        final int numDigits = digits.length();
+
+        // accumulate 9 digits at a time; carries out of the top word are
+        // discarded, which computes the value modulo 2^(32 * numWords)
+        int pos = 0;
+        int chunkDigits = numDigits % CHUNK_DIGITS;
+        if (chunkDigits == 0) chunkDigits = CHUNK_DIGITS;
+        while (pos < numDigits)
+        {
+            int chunk = 0;
+            for (int end = pos + chunkDigits; pos < end; ++pos)
+            {
+                chunk = chunk * 10 + (digits.charAt(pos) - '0');
+            }
+            final long multiplier = POW10[chunkDigits];
+            long carry = chunk;
+            for (int i = 0; i < numWords; ++i)
+            {
+                final long product = (values[i] & WORD_MASK) * multiplier
+                    + carry;
+                values[i] = (int) product;
+                carry = product >>> 32;
+            }
+            chunkDigits = CHUNK_DIGITS;
+        }
+
+        final int extraBits = length % BitVectorBuffer.BITS_PER_UNIT;
+        if (extraBits != 0)
+        {
+            values[numWords - 1] &= (1 << extraBits) - 1;
+        }
+    }
+
+    /**
+     * Parses a string of digits in a power-of-two radix into the given
+     * zero-initialized value and X/Z mask words. The digits may include X and
+     * Z, which set all bits of the digit to X or Z. Digits beyond
+     * <code>length</code> bits are ignored. If the digits specify fewer than
+     * <code>length</code> bits, the value is extended with X if the most
+     * significant digit is X, with Z if it is Z, and with zeros otherwise.
+     *
+     * @param digits the digits, most significant first
+     * @param log2 the log base 2 of the radix: 1, 3, or 4
+     * @param values the zero-initialized value words, least significant first
+     * @param xzMask the zero-initialized X/Z mask words
+     * @param length the number of valid bits
+     */
+    static void parseDigits(
+        CharSequence digits,
+        int log2,
+        int[] values,
+        int[] xzMask,
+        int length)
+    {
+        final int radix = 1 << log2;
+        final int allBits = radix - 1;
+        int bit = 0;
+        for (int i = digits.length() - 1; i >= 0 && bit < length; --i, bit += log2)
+        {
+            final char c = digits.charAt(i);
+            final int count = Math.min(log2, length - bit);
+            if (c == 'x' || c == 'X')
+            {
+                orBits(values, bit, count, allBits);
+                orBits(xzMask, bit, count, allBits);
+            }
+            else if (c == 'z' || c == 'Z')
+            {
+                orBits(xzMask, bit, count, allBits);
+            }
+            else
+            {
+                orBits(values, bit, count, Character.digit(c, radix));
+            }
+        }
+
+        if (bit < length)
+        {
+            final char msd = digits.charAt(0);
+            if (msd == 'x' || msd == 'X')
+            {
+                fillBits(values, bit, length);
+                fillBits(xzMask, bit, length);
+            }
+            else if (msd == 'z' || msd == 'Z')
+            {
+                fillBits(xzMask, bit, length);
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.newisys.behsim;
+
+import java.io.File;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import com.newisys.eventsim.SimulationManager;
+import com.newisys.random.PRNG;
+import com.newisys.random.PRNGFactory;
+import com.newisys.random.PRNGFactoryFactory;
+import com.newisys.verilog.*;
+import com.newisys.verilog.util.Bit;
+import com.newisys.verilog.util.BitVector;
+
+/**
+ * Tests capture and restore of BehavioralRegisterSnapshot.
+ */
+public class BehavioralRegisterSnapshotTest
+    extends TestCase
+{
+    private static final class ChangeRecorder
+        implements VerilogCallbackHandler
+    {
+        long time = -1;
+        Object value;
+
+        public void run(VerilogCallback cb, VerilogCallbackData data)
+        {
+            time = ((BehavioralReg) cb.getObject()).simulation.getSimTime();
+            value = data.getValue();
+        }
+    }
+
+    public static void main(String[] args)
+    {
+        junit.textui.TestRunner.run(BehavioralRegisterSnapshotTest.class);
+    }
+
+    public BehavioralRegisterSnapshotTest(String arg0)
+    {
+        super(arg0);
+    }
+
+    private BehavioralRegisterSnapshot createSnapshot(SimulationManager simManager)
+    {
+        final BehavioralSimulation sim = new BehavioralSimulation();
+        final VerilogReg a = sim.createRegister("a", 1);
+        final VerilogReg b = sim.createRegister("b", 8);
+        sim.createRegister("c", 4);
+        a.putValue(Bit.ONE);
+        b.putValueDelay(new BitVector(8, 0x12), new VerilogSimTime(10),
+            DriveDelayMode.PURE_TRANSPORT_DELAY);
+        b.putValueDelay(new BitVector(8, 0x34), new VerilogSimTime(150),
+            DriveDelayMode.PURE_TRANSPORT_DELAY);
+        sim.addDelayCallback(new VerilogSimTime(200),
+            new TestCallbackHandler());
+        sim.finishAt(100);
+        sim.run();
+        assertEquals(100, sim.getSimTime());
+        return BehavioralRegisterSnapshot.capture(sim, simManager);
+    }
+
+    final public void testCaptureAndRestore()
+    {
+        final BehavioralRegisterSnapshot snapshot = createSnapshot(null);
+        assertEquals(100, snapshot.getTime());
+        assertEquals(3, snapshot.getRegisterCount());
+        assertEquals(1, snapshot.getPendingWriteCount());
+        assertEquals(1, snapshot.getDiscardedEventCount());
+        assertNull(snapshot.getSeedSource());
+
+        final BehavioralSimulation sim = snapshot.restore();
+        assertEquals(100, sim.getSimTime());
+        final VerilogReg a = (VerilogReg) sim.getObjectByName("a");
+        final VerilogReg b = (VerilogReg) sim.getObjectByName("b");
+        final VerilogReg c = (VerilogReg) sim.getObjectByName("c");
+        assertEquals(Bit.ONE, a.getValue());
+        assertEquals(new BitVector(8, 0x12), b.getValue());
+        assertTrue(new BitVector("4'bxxxx").equalsExact((BitVector) c
+            .getValue()));
+
+        final ChangeRecorder recorder = new ChangeRecorder();
+        b.addValueChangeCallback(recorder);
+        sim.run();
+        assertEquals(150, recorder.time);
+        assertEquals(new BitVector(8, 0x34), recorder.value);
+        assertEquals(150, sim.getSimTime());
+    }
+
+    final public void testZeroDelayAfterRestore()
+    {
+        final BehavioralSimulation sim = createSnapshot(null).restore();
+        final ChangeRecorder recorder = new ChangeRecorder();
+        final VerilogReg c = (VerilogReg) sim.getObjectByName("c");
+        c.addValueChangeCallback(recorder);
+        c.putValueDelay(new BitVector(4, 5), VerilogSimTime.TIME0,
+            DriveDelayMode.PURE_TRANSPORT_DELAY);
+        sim.run();
+        assertEquals(100, recorder.time);
+    }
+
+    final public void testSeedSource()
+    {
+        final PRNGFactory rngFactory = PRNGFactoryFactory.getDefaultFactory();
+        final SimulationManager simManager = new SimulationManager("test",
+            rngFactory, rngFactory.newInstance(42));
+        final BehavioralRegisterSnapshot snapshot = createSnapshot(simManager);
+
+        final PRNG expected = simManager.copySeedSource();
+        final PRNG seedSource1 = snapshot.getSeedSource();
+        final PRNG seedSource2 = snapshot.getSeedSource();
+        for (int i = 0; i < 10; ++i)
+        {
+            final int value = expected.nextInt();
+            assertEquals(value, seedSource1.nextInt());
+            assertEquals(value, seedSource2.nextInt());
+        }
+    }
+
+    final public void testSaveAndLoad()
+        throws Exception
+    {
+        final PRNGFactory rngFactory = PRNGFactoryFactory.getDefaultFactory();
+        final SimulationManager simManager = new SimulationManager("test",
+            rngFactory, rngFactory.newInstance(7));
+        final BehavioralRegisterSnapshot snapshot = createSnapshot(simManager);
+
+        final File file = File.createTempFile("snapshot", ".ser");
+        try
+        {
+            snapshot.save(file);
+            final BehavioralRegisterSnapshot loaded = BehavioralRegisterSnapshot.load(file);
+            assertEquals(snapshot.getTime(), loaded.getTime());
+            assertEquals(snapshot.getPendingWriteCount(), loaded
+                .getPendingWriteCount());
+            assertEquals(snapshot.getSeedSource().nextLong(), loaded
+                .getSeedSource().nextLong());
+
+            final BehavioralSimulation sim = loaded.restore(Collections
+                .singletonList("+test"));
+            assertEquals(Bit.ONE, ((VerilogReg) sim.getObjectByName("a"))
+                .getValue());
+            sim.run();
+            assertEquals(new BitVector(8, 0x34), ((VerilogReg) sim
+                .getObjectByName("b")).getValue());
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+}
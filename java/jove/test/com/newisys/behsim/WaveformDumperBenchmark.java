@@ -0,0 +1,177 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.newisys.behsim;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.newisys.verilog.VerilogCallback;
+import com.newisys.verilog.VerilogCallbackData;
+import com.newisys.verilog.VerilogCallbackHandler;
+import com.newisys.verilog.VerilogReg;
+import com.newisys.verilog.VerilogSimTime;
+
+/**
+ * Measures the overhead of dumping waveforms from a behavioral simulation. A
+ * set of 32-bit registers, in scopes of 100, is written on every time step,
+ * and each register has a value change callback that reads its value, as a
+ * monitor would. The simulation is timed without dumping, dumping every
+ * register to a VCD file and to a compressed VCD file, and dumping a single
+ * scope. Runs of each configuration are interleaved, so that changes in
+ * machine load affect all of them alike, and the best and median times are
+ * reported along with the overhead of dumping relative to the simulation
+ * alone. Compression runs on the dumper's writer thread, so its cost depends
+ * on whether a spare processor is available.
+ */
+public final class WaveformDumperBenchmark
+{
+    private static final int REG_COUNT = 2000;
+    private static final int REG_WIDTH = 32;
+    private static final int SCOPE_SIZE = 100;
+    private static final int STEPS = 300;
+    private static final int WARMUP_RUNS = 5;
+    private static final int TIMED_RUNS = 21;
+
+    private static long sink;
+
+    private static long run(File file, boolean compressed, String include)
+        throws IOException
+    {
+        final BehavioralSimulation sim = new BehavioralSimulation();
+        final VerilogReg[] regs = new VerilogReg[REG_COUNT];
+        final VerilogCallbackHandler monitor = new VerilogCallbackHandler()
+        {
+            public void run(VerilogCallback cb, VerilogCallbackData data)
+            {
+                sink += data.getValue().hashCode();
+            }
+        };
+        for (int i = 0; i < REG_COUNT; ++i)
+        {
+            regs[i] = sim.createRegister("top.u" + (i / SCOPE_SIZE) + ".r"
+                + i, REG_WIDTH);
+            regs[i].addValueChangeCallback(monitor);
+        }
+        for (int t = 1; t <= STEPS; ++t)
+        {
+            final int step = t;
+            sim.addDelayCallback(new VerilogSimTime(t),
+                new VerilogCallbackHandler()
+                {
+                    public void run(VerilogCallback cb, VerilogCallbackData data)
+                    {
+                        for (int i = 0; i < REG_COUNT; ++i)
+                        {
+                            regs[i].putValue(Integer.valueOf(step * 31 + i));
+                        }
+                    }
+                });
+        }
+
+        if (file != null)
+        {
+            final WaveformDumper dumper = new WaveformDumper(sim, file);
+            dumper.setCompressed(compressed);
+            if (include != null)
+            {
+                dumper.addInclude(include);
+            }
+            dumper.start();
+        }
+        // start each run with an empty heap so that garbage from earlier runs
+        // is not collected during this one
+        System.gc();
+        final long start = System.nanoTime();
+        sim.run();
+        return System.nanoTime() - start;
+    }
+
+    public static void main(String[] args)
+        throws IOException
+    {
+        final String scope = "top.u0.*";
+        final String[] names = { "no dump", "vcd", "vcd.gz", scope + " vcd" };
+        final File[] files = { null, File.createTempFile("bench", ".vcd"),
+            File.createTempFile("bench", ".vcd.gz"),
+            File.createTempFile("bench", ".vcd") };
+        final long[][] times = new long[files.length][TIMED_RUNS];
+        try
+        {
+            for (int i = -WARMUP_RUNS; i < TIMED_RUNS; ++i)
+            {
+                final long[] t = { run(null, false, null),
+                    run(files[1], false, null), run(files[2], true, null),
+                    run(files[3], false, scope) };
+                if (i >= 0)
+                {
+                    for (int j = 0; j < files.length; ++j)
+                    {
+                        times[j][i] = t[j];
+                    }
+                }
+            }
+            for (final long[] t : times)
+            {
+                Arrays.sort(t);
+            }
+            System.out.println(REG_COUNT + " x " + REG_WIDTH + "-bit registers, "
+                + STEPS + " steps (best/median):");
+            for (int j = 0; j < files.length; ++j)
+            {
+                report(names[j], times[j], times[0], files[j]);
+            }
+        }
+        finally
+        {
+            for (final File file : files)
+            {
+                if (file != null)
+                {
+                    file.delete();
+                }
+            }
+        }
+        if (sink == 42) System.out.println();
+    }
+
+    private static void report(
+        String name,
+        long[] times,
+        long[] baseTimes,
+        File file)
+    {
+        final long best = times[0];
+        final long median = times[TIMED_RUNS / 2];
+        final StringBuffer buf = new StringBuffer();
+        buf.append("  " + name + ": " + (best / 1000000) + "/"
+            + (median / 1000000) + " ms");
+        if (file != null)
+        {
+            buf.append(", " + overhead(best, baseTimes[0]) + "/"
+                + overhead(median, baseTimes[TIMED_RUNS / 2])
+                + "% overhead, " + file.length() + " bytes");
+        }
+        System.out.println(buf);
+    }
+
+    private static long overhead(long time, long base)
+    {
+        return (time - base) * 100 / base;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.behsim;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import junit.framework.TestCase;
+
+import com.newisys.verilog.*;
+import com.newisys.verilog.util.Bit;
+import com.newisys.verilog.util.BitVector;
+
+/**
+ * Tests WaveformDumper VCD output, scope filtering, and compression.
+ */
+public class WaveformDumperTest
+    extends TestCase
+{
+    private BehavioralSimulation sim;
+    private File file;
+
+    public static void main(String[] args)
+    {
+        junit.textui.TestRunner.run(WaveformDumperTest.class);
+    }
+
+    public WaveformDumperTest(String arg0)
+    {
+        super(arg0);
+    }
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        sim = new BehavioralSimulation();
+        file = File.createTempFile("wave", ".vcd");
+    }
+
+    @Override
+    protected void tearDown()
+        throws Exception
+    {
+        file.delete();
+        super.tearDown();
+    }
+
+    private void putAt(long time, final VerilogReg reg, final Object value)
+    {
+        sim.addDelayCallback(new VerilogSimTime(time),
+            new VerilogCallbackHandler()
+            {
+                public void run(VerilogCallback cb, VerilogCallbackData data)
+                {
+                    reg.putValue(value);
+                }
+            });
+    }
+
+    private List<String> readLines(boolean compressed)
+        throws IOException
+    {
+        InputStream in = new FileInputStream(file);
+        if (compressed)
+        {
+            in = new GZIPInputStream(in);
+        }
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(
+            in, "US-ASCII"));
+        final List<String> lines = new ArrayList<String>();
+        try
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                lines.add(line);
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+        return lines;
+    }
+
+    private static List<String> after(List<String> lines, String marker)
+    {
+        return lines.subList(lines.indexOf(marker) + 1, lines.size());
+    }
+
+    final public void testDump()
+        throws IOException
+    {
+        final VerilogReg clk = sim.createRegister("top.clk", 1);
+        final VerilogReg data = sim.createRegister("top.dut.data", 4);
+        final VerilogReg flag = sim.createRegister("flag", 1);
+        clk.putValue(Bit.ZERO);
+        putAt(10, clk, Bit.ONE);
+        putAt(10, data, new BitVector("4'b01z1"));
+        putAt(10, data, new BitVector("4'b0101"));
+        putAt(20, clk, Bit.ZERO);
+        putAt(30, flag, Bit.ONE);
+
+        final WaveformDumper dumper = new WaveformDumper(sim, file);
+        dumper.setTimescale("1ns");
+        dumper.start();
+        assertEquals(3, dumper.getSignalCount());
+        sim.run();
+        assertEquals(4, dumper.getChangeCount());
+
+        final List<String> lines = readLines(false);
+        assertTrue(lines.contains("$timescale 1ns $end"));
+
+        // sorted by name, with identifiers assigned in that order
+        final int flagVar = lines.indexOf("$var reg 1 ! flag $end");
+        final int top = lines.indexOf("$scope module top $end");
+        final int clkVar = lines.indexOf("$var reg 1 \" clk $end");
+        final int dut = lines.indexOf("$scope module dut $end");
+        final int dataVar = lines.indexOf("$var reg 4 # data $end");
+        assertTrue(flagVar >= 0);
+        assertTrue(flagVar < top && top < clkVar && clkVar < dut
+            && dut < dataVar);
+        assertEquals("$upscope $end", lines.get(dataVar + 1));
+        assertEquals("$upscope $end", lines.get(dataVar + 2));
+        assertEquals("$enddefinitions $end", lines.get(dataVar + 3));
+
+        final List<String> body = after(lines, "$enddefinitions $end");
+        final String[] expected = { "#0", "$dumpvars", "x!", "0\"", "bxxxx #",
+            "$end", "#10", "1\"", "b101 #", "#20", "0\"", "#30", "1!" };
+        assertEquals(expected.length, body.size());
+        for (int i = 0; i < expected.length; ++i)
+        {
+            assertEquals(expected[i], body.get(i));
+        }
+    }
+
+    final public void testFilterAndCompress()
+        throws IOException
+    {
+        final List<VerilogReg> regs = new ArrayList<VerilogReg>();
+        for (int i = 0; i < 200; ++i)
+        {
+            regs.add(sim.createRegister("top.u" + i + ".q", 8));
+            sim.createRegister("top.u" + i + ".tmp", 8);
+        }
+        sim.createRegister("top.u0.tmp2", 8);
+        sim.createRegister("other", 8);
+        for (int t = 1; t <= 500; ++t)
+        {
+            for (int i = 0; i < regs.size(); i += 7)
+            {
+                putAt(t, regs.get(i), Integer.valueOf(t + i));
+            }
+        }
+
+        final WaveformDumper dumper = new WaveformDumper(sim, file);
+        dumper.setCompressed(true);
+        dumper.addInclude("top.*");
+        dumper.addExclude("*.tmp?");
+        dumper.addExclude("top.u1?.*");
+        dumper.start();
+        assertEquals(200 + 200 - 20, dumper.getSignalCount());
+        sim.run();
+
+        final List<String> lines = readLines(true);
+        for (final String line : lines)
+        {
+            assertFalse(line, line.endsWith(" other $end"));
+            assertFalse(line, line.endsWith(" tmp2 $end"));
+        }
+
+        // every 7th q register changes each step, except top.u14.q; the
+        // output spans several compressed blocks
+        assertTrue(file.length() > 0);
+        final List<String> body = after(lines, "#500");
+        assertEquals(28, body.size());
+        assertTrue(body.contains("b11110100 !"));
+    }
+}
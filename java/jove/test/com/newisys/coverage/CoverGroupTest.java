@@ -0,0 +1,331 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.coverage;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import junit.framework.TestCase;
+
+import com.newisys.verilog.util.BitVector;
+
+/**
+ * Tests CoverGroup sampling of cover point bins and crosses.
+ */
+public class CoverGroupTest
+    extends TestCase
+{
+    private enum Op
+    {
+        READ, WRITE, FLUSH
+    }
+
+    private static final class Packet
+    {
+        Op op;
+        int length;
+        BitVector addr;
+        boolean last;
+    }
+
+    public static void main(String[] args)
+    {
+        junit.textui.TestRunner.run(CoverGroupTest.class);
+    }
+
+    public CoverGroupTest(String arg0)
+    {
+        super(arg0);
+    }
+
+    final public void testRangeBins()
+    {
+        final CoverGroup cg = new CoverGroup("ranges");
+        final CoverPoint cp = cg.addCoverPoint("len", 8);
+        cp.addValueBin("zero", 0);
+        cp.addRangeBin("small", 1, 15);
+        cp.addRangeBin("odd", new long[][] { { 1, 1 }, { 3, 3 }, { 201, 201 } });
+        cp.addRangeBins("big", 16, 255, 3);
+        cp.addDefaultBin("other");
+        cg.compile();
+        assertEquals(6, cp.getBinCount());
+        assertEquals(7, cp.getTotalBinCount());
+        assertEquals("big[2]", cp.getBinName(5));
+
+        final long[] values = { 0, 1, 3, 15, 16, 95, 96, 175, 176, 255, 201,
+            -1 };
+        for (final long v : values)
+        {
+            cp.set(v);
+            cg.sample();
+        }
+        assertEquals(1, cp.getCount(cp.getBinIndex("zero")));
+        assertEquals(3, cp.getCount(cp.getBinIndex("small")));
+        assertEquals(3, cp.getCount(cp.getBinIndex("odd")));
+        // 240 values split into 80 each
+        assertEquals(2, cp.getCount(cp.getBinIndex("big[0]")));
+        assertEquals(2, cp.getCount(cp.getBinIndex("big[1]")));
+        // 255 and 201, plus -1 masked to 255
+        assertEquals(4, cp.getCount(cp.getBinIndex("big[2]")));
+        assertEquals(0, cp.getCount(cp.getBinIndex("other")));
+        assertEquals(100.0, cp.getCoverage(), 0.0);
+
+        // invalid values are not counted
+        cp.set(new BitVector("8'b1010xxxx"));
+        assertFalse(cp.isValid());
+        cg.sample();
+        assertEquals(13, cg.getSampleCount());
+        assertEquals(4, cp.getCount(cp.getBinIndex("big[2]")));
+    }
+
+    final public void testSparseRanges()
+    {
+        // spans too large for a direct table use binary search
+        final CoverGroup cg = new CoverGroup("sparse");
+        final CoverPoint cp = cg.addCoverPoint("addr", 64);
+        cp.addRangeBin("low", Long.MIN_VALUE, -1);
+        cp.addRangeBin("page0", 0, 0xfff);
+        cp.addValueBin("magic", 0x12345678L, 0x7fffffffffffffffL);
+        cp.addDefaultBin("other");
+        cg.compile();
+        final long[] values = { Long.MIN_VALUE, -5, 0, 0xfff, 0x1000,
+            0x12345678L, Long.MAX_VALUE };
+        for (final long v : values)
+        {
+            cp.set(v);
+            cg.sample();
+        }
+        assertEquals(2, cp.getCount(0));
+        assertEquals(2, cp.getCount(1));
+        assertEquals(2, cp.getCount(2));
+        assertEquals(1, cp.getCount(3));
+    }
+
+    final public void testAutoBins()
+    {
+        final CoverGroup cg = new CoverGroup("auto");
+        final CoverPoint small = cg.addCoverPoint("small", 2);
+        final CoverPoint wide = cg.addCoverPoint("wide", 16);
+        final CoverPoint full = cg.addCoverPoint("full", 64);
+        final CoverPoint op = cg.addCoverPoint("op", Op.class);
+        cg.compile();
+        assertEquals(4, small.getBinCount());
+        assertEquals(64, wide.getBinCount());
+        assertEquals("auto[0]", wide.getBinName(0));
+        assertEquals(64, full.getBinCount());
+        assertEquals(3, op.getBinCount());
+        assertEquals("FLUSH", op.getBinName(2));
+
+        wide.set(1023);
+        wide.set(1024);
+        full.set(Long.MIN_VALUE);
+        op.set(Op.WRITE);
+        cg.sample();
+        full.set(Long.MAX_VALUE);
+        cg.sample();
+        assertEquals(2, wide.getCount(1));
+        // 64-bit values are signed
+        assertEquals(1, full.getCount(0));
+        assertEquals(1, full.getCount(63));
+        assertEquals(2, op.getCount(1));
+    }
+
+    final public void testWildcardBins()
+    {
+        final CoverGroup cg = new CoverGroup("wildcard");
+        final CoverPoint cp = cg.addCoverPoint("v", 8);
+        cp.addWildcardBin("odd", "???????1");
+        cp.addWildcardBin("high", "1xxx_xxxx");
+        cp.addWildcardBin("low4", "1?0?");
+        cg.compile();
+        final long[] values = { 1, 2, 0x81, 0x80, 0x8, 0x9, 0xd, 0x98 };
+        for (final long v : values)
+        {
+            cp.set(v);
+            cg.sample();
+        }
+        assertEquals(4, cp.getCount(0));
+        assertEquals(3, cp.getCount(1));
+        // upper bits must be zero for shorter patterns
+        assertEquals(3, cp.getCount(2));
+
+        try
+        {
+            cg.addCoverPoint("late", 1);
+            fail("Expected IllegalStateException");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+    }
+
+    final public void testTransitionBins()
+    {
+        final CoverGroup cg = new CoverGroup("transitions");
+        final CoverPoint cp = cg.addCoverPoint("state", 4);
+        cp.addTransitionBin("idleToBusy", 0, 1);
+        cp.addTransitionBin("fullCycle", 0, 1, 2, 0);
+        cp.addTransitionBin("anyToError", new long[][] { { 0, 2 },
+            { 15, 15 } });
+        cg.compile();
+        final long[] values = { 0, 1, 2, 0, 1, 15, 0, 0, 1, 2, 0 };
+        for (final long v : values)
+        {
+            cp.set(v);
+            cg.sample();
+        }
+        assertEquals(3, cp.getCount(0));
+        assertEquals(2, cp.getCount(1));
+        assertEquals(1, cp.getCount(2));
+
+        // an invalid sample breaks a transition
+        cp.set(0);
+        cg.sample();
+        cp.setInvalid();
+        cg.sample();
+        cp.set(1);
+        cg.sample();
+        assertEquals(3, cp.getCount(0));
+    }
+
+    final public void testCross()
+    {
+        final CoverGroup cg = new CoverGroup("cross");
+        final CoverPoint op = cg.addCoverPoint("op", Op.class);
+        final CoverPoint len = cg.addCoverPoint("len", 8);
+        len.addRangeBin("short", 0, 7);
+        len.addRangeBin("long", 8, 255);
+        len.addRangeBin("any", 0, 255);
+        len.addDefaultBin("none");
+        final CoverCross cross = cg.addCross("opXlen", op, len);
+        cg.compile();
+        assertEquals(9, cross.getBinCount());
+        assertEquals("<WRITE,long>", cross.getBinName(cross.getBinIndex(1,
+            1)));
+
+        op.set(Op.READ);
+        len.set(3);
+        cg.sample();
+        op.set(Op.WRITE);
+        len.set(100);
+        cg.sample();
+        op.setInvalid();
+        cg.sample();
+        assertEquals(1, cross.getCount(cross.getBinIndex(0, 0)));
+        assertEquals(1, cross.getCount(cross.getBinIndex(0, 2)));
+        assertEquals(1, cross.getCount(cross.getBinIndex(1, 1)));
+        assertEquals(1, cross.getCount(cross.getBinIndex(1, 2)));
+        assertEquals(4, cross.getCoveredBinCount());
+        assertEquals(400.0 / 9, cross.getCoverage(), 1e-9);
+
+        cross.setAtLeast(2);
+        assertEquals(0, cross.getCoveredBinCount());
+        cg.reset();
+        assertEquals(0, cg.getSampleCount());
+        assertEquals(0, cross.getCount(0));
+    }
+
+    final public void testFieldSampling()
+    {
+        final CoverGroup cg = new CoverGroup("packet");
+        final CoverPoint op = cg.addCoverPoint("op", Op.class);
+        op.bindField(Packet.class, "op");
+        final CoverPoint length = cg.addCoverPoint("length", 4);
+        length.bindField(Packet.class, "length");
+        final CoverPoint addr = cg.addCoverPoint("addr", 8);
+        addr.addRangeBin("low", 0, 127);
+        addr.addRangeBin("high", 128, 255);
+        addr.bindField(Packet.class, "addr");
+        final CoverPoint last = cg.addCoverPoint("last", 1);
+        last.bindField(Packet.class, "last");
+
+        final Packet p = new Packet();
+        p.op = Op.FLUSH;
+        p.length = 20;
+        p.addr = new BitVector(8, 200);
+        p.last = true;
+        cg.sample(p);
+        assertEquals(1, op.getCount(2));
+        assertEquals(1, length.getCount(4));
+        assertEquals(1, addr.getCount(1));
+        assertEquals(1, last.getCount(1));
+
+        p.op = null;
+        p.addr = null;
+        cg.sample(p);
+        assertEquals(1, op.getCount(2));
+        assertEquals(1, addr.getCount(1));
+        assertEquals(2, length.getCount(4));
+
+        try
+        {
+            cg.addCoverPoint("bad", 8);
+            fail("Expected IllegalStateException");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+        try
+        {
+            new CoverGroup("bad").addCoverPoint("x", 8).bindField(
+                Packet.class, "missing");
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    final public void testSamplingDoesNotAllocate()
+    {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return;
+        final com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+        if (!sunBean.isThreadAllocatedMemorySupported()
+            || !sunBean.isThreadAllocatedMemoryEnabled()) return;
+
+        final CoverGroup cg = new CoverGroup("alloc");
+        final CoverPoint a = cg.addCoverPoint("a", 16);
+        a.addRangeBins("r", 0, 65535, 100);
+        a.addWildcardBin("even", "???????????????0");
+        a.addTransitionBin("t", 1, 2, 3);
+        final CoverPoint b = cg.addCoverPoint("b", 64);
+        cg.addCross("aXb", a, b);
+        cg.compile();
+
+        final long tid = Thread.currentThread().getId();
+        for (int pass = 0; pass < 2; ++pass)
+        {
+            final long before = sunBean.getThreadAllocatedBytes(tid);
+            for (int i = 0; i < 100000; ++i)
+            {
+                a.set(i * 7);
+                b.set(i * 0x9e3779b97f4a7c15L);
+                cg.sample();
+            }
+            final long allocated = sunBean.getThreadAllocatedBytes(tid)
+                - before;
+            // the first pass may include class loading and compilation
+            if (pass == 1) assertTrue("allocated " + allocated, allocated < 4096);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.coverage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests CoverageData capture, serialization, and merging.
+ */
+public class CoverageDataTest
+    extends TestCase
+{
+    public static void main(String[] args)
+    {
+        junit.textui.TestRunner.run(CoverageDataTest.class);
+    }
+
+    public CoverageDataTest(String arg0)
+    {
+        super(arg0);
+    }
+
+    private static CoverGroup createGroup()
+    {
+        final CoverGroup cg = new CoverGroup("bus");
+        final CoverPoint addr = cg.addCoverPoint("addr", 12);
+        addr.addRangeBins("page", 0, 4095, 16);
+        final CoverPoint kind = cg.addCoverPoint("kind", 2);
+        cg.addCross("addrXkind", addr, kind);
+        return cg;
+    }
+
+    private static void sampleRun(CoverGroup cg, int seed)
+    {
+        final CoverPoint addr = (CoverPoint) cg.getItem("addr");
+        final CoverPoint kind = (CoverPoint) cg.getItem("kind");
+        for (int i = 0; i < 10; ++i)
+        {
+            addr.set(seed * 256 + i);
+            kind.set(seed + i);
+            cg.sample();
+        }
+    }
+
+    private static byte[] toBytes(CoverageData data)
+        throws IOException
+    {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        data.write(bos);
+        return bos.toByteArray();
+    }
+
+    final public void testRoundTrip()
+        throws IOException
+    {
+        final CoverGroup cg = createGroup();
+        sampleRun(cg, 3);
+        final byte[] bytes = toBytes(CoverageData.capture(cg));
+        // sparse counts keep untouched cross bins small
+        assertTrue("size " + bytes.length, bytes.length < 200);
+
+        final CoverageData data = CoverageData.read(new ByteArrayInputStream(
+            bytes));
+        final CoverageData.GroupData group = data.getGroup("bus");
+        assertEquals(10, group.getSampleCount());
+        assertEquals(3, group.getItems().size());
+        final CoverageData.ItemData cross = group.getItem("addrXkind");
+        assertTrue(cross.isCross());
+        assertEquals(64, cross.getTotalBinCount());
+        assertEquals(cg.getCoverage(), group.getCoverage(), 1e-9);
+
+        // accumulate into a fresh instance of the group
+        final CoverGroup cg2 = createGroup();
+        assertTrue(data.mergeInto(cg2));
+        assertTrue(data.mergeInto(cg2));
+        assertEquals(20, cg2.getSampleCount());
+        final CoverItem addr = cg2.getItem("addr");
+        assertEquals(20, addr.getCount(3));
+        assertFalse(data.mergeInto(new CoverGroup("other")));
+    }
+
+    final public void testMerge()
+        throws IOException
+    {
+        final CoverageData total = new CoverageData();
+        for (int seed = 0; seed < 16; ++seed)
+        {
+            final CoverGroup cg = createGroup();
+            sampleRun(cg, seed);
+            total.merge(CoverageData.read(new ByteArrayInputStream(
+                toBytes(CoverageData.capture(cg)))));
+        }
+        final CoverageData.GroupData group = total.getGroup("bus");
+        assertEquals(160, group.getSampleCount());
+        assertEquals(100.0, group.getItem("addr").getCoverage(), 0.0);
+        assertEquals(100.0, group.getItem("kind").getCoverage(), 0.0);
+        // each page sees all four kinds over 10 samples
+        assertEquals(100.0, group.getItem("addrXkind").getCoverage(), 0.0);
+
+        // a different bin structure is rejected
+        final CoverGroup other = new CoverGroup("bus");
+        other.addCoverPoint("addr", 12).addRangeBins("page", 0, 4095, 8);
+        try
+        {
+            total.add(other);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+        try
+        {
+            total.mergeInto(other);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    final public void testMergeFiles()
+        throws IOException
+    {
+        final List<File> files = new ArrayList<File>();
+        try
+        {
+            for (int seed = 0; seed < 12; ++seed)
+            {
+                final CoverGroup cg = createGroup();
+                sampleRun(cg, seed);
+                final File file = File.createTempFile("cov", ".jcov");
+                files.add(file);
+                CoverageData.capture(cg).write(file);
+            }
+            final CoverageData serial = CoverageData.mergeFiles(files, 1);
+            final CoverageData parallel = CoverageData.mergeFiles(files, 5);
+            assertTrue(Arrays.equals(toBytes(serial),
+                toBytes(parallel)));
+            assertEquals(120, parallel.getGroup("bus").getSampleCount());
+
+            final File bad = File.createTempFile("cov", ".jcov");
+            files.add(bad);
+            try
+            {
+                CoverageData.mergeFiles(files, 3);
+                fail("Expected IOException");
+            }
+            catch (IOException e)
+            {
+                assertTrue(e.getMessage().indexOf(bad.toString()) >= 0);
+            }
+        }
+        finally
+        {
+            for (final File file : files)
+            {
+                file.delete();
+            }
+        }
+    }
+}
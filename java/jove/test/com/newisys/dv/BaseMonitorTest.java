@@ -0,0 +1,212 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.newisys.dv;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.newisys.behsim.BehavioralSimulation;
+import com.newisys.eventsim.Event;
+import com.newisys.eventsim.SimulationManager;
+import com.newisys.eventsim.SimulationThread;
+import com.newisys.verilog.EdgeSet;
+import com.newisys.verilog.VerilogSimTime;
+import com.newisys.verilog.util.BitVector;
+
+/**
+ * Tests BaseMonitor listener notification and the canonical edge and value
+ * change events shared by all threads waiting on a signal.
+ */
+public class BaseMonitorTest
+    extends TestCase
+{
+    private static final class TestMonitor
+        extends BaseMonitor
+    {
+        public TestMonitor(BehavioralSimulation sim)
+        {
+            super("sig", sim.createRegister("sig", 4));
+        }
+
+        public void change(long time, int oldValue, int newValue)
+        {
+            notifyListeners(new VerilogSimTime(time), new BitVector(4,
+                oldValue), new BitVector(4, newValue));
+        }
+    }
+
+    private static class CountingListener
+        implements EdgeListener
+    {
+        int count;
+
+        public EdgeSet getEdges()
+        {
+            return EdgeSet.POSEDGE;
+        }
+
+        public int getBit()
+        {
+            return 0;
+        }
+
+        public void notifyEdge(VerilogSimTime time, EdgeSet edge)
+        {
+            ++count;
+        }
+    }
+
+    private SimulationManager simManager;
+    private DVEventManager dvEventManager;
+    private TestMonitor monitor;
+
+    public static void main(String[] args)
+    {
+        junit.textui.TestRunner.run(BaseMonitorTest.class);
+    }
+
+    public BaseMonitorTest(String arg0)
+    {
+        super(arg0);
+    }
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        simManager = new SimulationManager();
+        dvEventManager = new DVEventManager(null, simManager);
+        monitor = new TestMonitor(new BehavioralSimulation());
+    }
+
+    final public void testListenerChangesDuringNotify()
+    {
+        final CountingListener added = new CountingListener();
+        final CountingListener removing = new CountingListener()
+        {
+            @Override
+            public void notifyEdge(VerilogSimTime time, EdgeSet edge)
+            {
+                super.notifyEdge(time, edge);
+                monitor.removeListener(this);
+                monitor.addListener(added);
+            }
+        };
+        final CountingListener other = new CountingListener();
+        monitor.addListener(removing);
+        monitor.addListener(other);
+
+        // changes made during notification take effect on the next change
+        monitor.change(10, 0, 1);
+        assertEquals(1, removing.count);
+        assertEquals(1, other.count);
+        assertEquals(0, added.count);
+
+        monitor.change(20, 1, 0);
+        monitor.change(30, 0, 1);
+        assertEquals(1, removing.count);
+        assertEquals(2, other.count);
+        assertEquals(1, added.count);
+    }
+
+    final public void testCanonicalEvents()
+    {
+        final Event e = monitor.getEdgeEvent(dvEventManager, EdgeSet.POSEDGE,
+            1, false);
+        assertSame(e, monitor.getEdgeEvent(dvEventManager, EdgeSet.POSEDGE, 1,
+            false));
+        assertNotSame(e, monitor.getEdgeEvent(dvEventManager,
+            EdgeSet.NEGEDGE, 1, false));
+        assertNotSame(e, monitor.getEdgeEvent(dvEventManager,
+            EdgeSet.POSEDGE, 0, false));
+        assertNotSame(e, monitor.getEdgeEvent(dvEventManager,
+            EdgeSet.POSEDGE, 1, true));
+        assertEquals("SyncEdgeEvent{" + EdgeSet.POSEDGE + " sig:1}", e
+            .toString());
+
+        final Event c = monitor.getChangeEvent(dvEventManager, new BitVector(
+            "4'b0011"), false, 0);
+        assertSame(c, monitor.getChangeEvent(dvEventManager, new BitVector(
+            "4'b0011"), false, 0));
+        assertNotSame(c, monitor.getChangeEvent(dvEventManager, null, false,
+            0));
+        assertNotSame(c, monitor.getChangeEvent(dvEventManager, new BitVector(
+            "4'b0011"), true, 1));
+        assertNotSame(monitor.getChangeEvent(dvEventManager, null, true, 1),
+            monitor.getChangeEvent(dvEventManager, null, true, 2));
+    }
+
+    final public void testSharedWaiters()
+    {
+        final int threadCount = 8;
+        final Event e = monitor.getEdgeEvent(dvEventManager, EdgeSet.POSEDGE,
+            0, false);
+        final List<String> woken = new ArrayList<String>();
+        for (int i = 0; i < threadCount; ++i)
+        {
+            final String name = "t" + i;
+            simManager.fork(name, new Runnable()
+            {
+                public void run()
+                {
+                    SimulationThread.currentThread().waitFor(e);
+                    woken.add(name);
+                }
+            });
+        }
+        simManager.executeThreads();
+        assertTrue(woken.isEmpty());
+
+        // a single shared event is registered while threads wait on it
+        final CountingListener probe = new CountingListener();
+        monitor.addListener(probe);
+        monitor.change(10, 0, 2);
+        simManager.executeThreads();
+        assertTrue(woken.isEmpty());
+        monitor.change(20, 2, 3);
+        simManager.executeThreads();
+        assertEquals(threadCount, woken.size());
+        for (int i = 0; i < threadCount; ++i)
+        {
+            assertEquals("t" + i, woken.get(i));
+        }
+        assertEquals(1, probe.count);
+
+        // the event listens again when a thread next waits on it
+        monitor.removeListener(probe);
+        simManager.fork(new Runnable()
+        {
+            public void run()
+            {
+                SimulationThread.currentThread().waitFor(e);
+                woken.add("again");
+            }
+        });
+        simManager.executeThreads();
+        monitor.change(30, 3, 2);
+        simManager.executeThreads();
+        assertEquals(threadCount, woken.size());
+        monitor.change(40, 2, 3);
+        simManager.executeThreads();
+        assertEquals(threadCount + 1, woken.size());
+        assertEquals(1, probe.count);
+    }
+}
@@ -0,0 +1,362 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.dv;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import com.newisys.behsim.ReplaySimulation;
+import com.newisys.verilog.ValueType;
+import com.newisys.verilog.VerilogCallback;
+import com.newisys.verilog.VerilogCallbackData;
+import com.newisys.verilog.VerilogCallbackHandler;
+import com.newisys.verilog.VerilogRuntimeException;
+import com.newisys.verilog.VerilogSimTime;
+import com.newisys.verilog.util.Bit;
+import com.newisys.verilog.util.BitVector;
+
+/**
+ * Tests ReplayLogWriter, ReplayLogReader, and replay of a log through
+ * ReplaySimulation.
+ */
+public class ReplayLogTest
+    extends TestCase
+{
+    private static final class DriveHandler
+        implements VerilogCallbackHandler
+    {
+        final ReplaySimulation sim;
+        final int value;
+
+        public DriveHandler(ReplaySimulation sim, int value)
+        {
+            this.sim = sim;
+            this.value = value;
+        }
+
+        public void run(VerilogCallback cb, VerilogCallbackData data)
+        {
+            sim.addReadOnlySynchCallback(new VerilogCallbackHandler()
+            {
+                public void run(VerilogCallback cb, VerilogCallbackData data)
+                {
+                    final long t = sim.getSimTime();
+                    assertEquals(Bit.ONE, sim.getInputRegister("clk")
+                        .getValue());
+                    assertEquals(new BitVector(8, (int) t / 50), sim
+                        .getInputRegister("data").getValue(ValueType.VECTOR));
+                    sim.outputDriven("req", t, new BitVector(4, value));
+                }
+            });
+        }
+    }
+
+    private File file;
+
+    public static void main(String[] args)
+    {
+        junit.textui.TestRunner.run(ReplayLogTest.class);
+    }
+
+    public ReplayLogTest(String arg0)
+    {
+        super(arg0);
+    }
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        file = File.createTempFile("replay", ".log");
+    }
+
+    @Override
+    protected void tearDown()
+        throws Exception
+    {
+        file.delete();
+        super.tearDown();
+    }
+
+    private ReplayLogWriter writeLog(boolean close)
+        throws IOException
+    {
+        return writeLog(close, 100);
+    }
+
+    private ReplayLogWriter writeLog(boolean close, long checkpointInterval)
+        throws IOException
+    {
+        ReplayLogWriter writer = new ReplayLogWriter(new FileOutputStream(
+            file), checkpointInterval);
+        writer.inputChanged("clk", 0, Bit.ZERO);
+        writer.inputChanged("data", 0, new BitVector("8'bxx01z010"));
+        writer.outputDeclared("req", 4);
+        for (int t = 50; t <= 1000; t += 50)
+        {
+            writer.inputChanged("clk", t, (t / 50) % 2 == 0 ? Bit.ZERO
+                : Bit.ONE);
+            if (t % 100 == 50)
+            {
+                writer.inputChanged("data", t, new BitVector(8, t / 50));
+                writer.outputDriven("req", t, new BitVector(4, t / 50));
+            }
+        }
+        writer.inputChanged("count", 1000, Integer.valueOf(-5));
+        if (close)
+        {
+            writer.close();
+        }
+        else
+        {
+            writer.flush();
+        }
+        return writer;
+    }
+
+    final public void testRoundTrip()
+        throws IOException
+    {
+        writeLog(true);
+        ReplayLogReader reader = new ReplayLogReader(file);
+        try
+        {
+            assertEquals(100, reader.getCheckpointInterval());
+            assertEquals(3, reader.getInputs().size());
+            assertEquals(1, reader.getOutputs().size());
+            ReplayLogReader.Signal data = reader.getInput("data");
+            assertEquals(8, data.getWidth());
+            assertTrue(new BitVector("8'bxx01z010").equalsExact(
+                (BitVector) data.getInitialValue()));
+            assertEquals(4, reader.getOutput("req").getWidth());
+
+            int inputs = 0;
+            int drives = 0;
+            long lastTime = 0;
+            while (reader.next())
+            {
+                assertTrue(reader.getTime() >= lastTime);
+                lastTime = reader.getTime();
+                if (reader.getRecordType() == ReplayLogReader.RecordType.DRIVE)
+                {
+                    assertEquals(new BitVector(4, (int) lastTime / 50), reader
+                        .getValue());
+                    ++drives;
+                }
+                else
+                {
+                    ++inputs;
+                }
+            }
+            assertEquals(30, inputs);
+            assertEquals(10, drives);
+            assertEquals(1000, lastTime);
+            assertEquals(Integer.valueOf(-5), reader.getCurrentValue(reader
+                .getInput("count")));
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    final public void testSeek()
+        throws IOException
+    {
+        writeLog(true);
+        ReplayLogReader reader = new ReplayLogReader(file);
+        try
+        {
+            assertTrue(reader.getCheckpointCount() >= 9);
+            ReplayLogReader.Signal data = reader.getInput("data");
+            ReplayLogReader.Signal clk = reader.getInput("clk");
+
+            // the values at a checkpoint time are those before its changes
+            reader.seek(700);
+            assertEquals(new BitVector(8, 13), reader.getCurrentValue(data));
+            assertEquals(Bit.ONE, reader.getCurrentValue(clk));
+            assertTrue(reader.next());
+            assertEquals(700, reader.getTime());
+            assertEquals(clk, reader.getSignal());
+            assertEquals(Bit.ZERO, reader.getValue());
+
+            // changes between the checkpoint and the target are applied
+            reader.seek(720);
+            assertEquals(new BitVector(8, 13), reader.getCurrentValue(data));
+            assertEquals(Bit.ZERO, reader.getCurrentValue(clk));
+            assertTrue(reader.next());
+            assertEquals(750, reader.getTime());
+
+            reader.seek(10);
+            assertEquals(Bit.ZERO, reader.getCurrentValue(clk));
+            assertTrue(reader.next());
+            assertEquals(50, reader.getTime());
+
+            reader.seek(2000);
+            assertEquals(Integer.valueOf(-5), reader.getCurrentValue(reader
+                .getInput("count")));
+            assertFalse(reader.next());
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    private static void assertSameValue(
+        String message,
+        Object expected,
+        Object actual)
+    {
+        if (expected instanceof BitVector && actual instanceof BitVector)
+        {
+            assertTrue(message, ((BitVector) expected)
+                .equalsExact((BitVector) actual));
+        }
+        else
+        {
+            assertEquals(message, expected, actual);
+        }
+    }
+
+    final public void testSeekMatchesSequentialRead()
+        throws IOException
+    {
+        // without checkpoints, every seek reads the log from the beginning
+        writeLog(true);
+        File plainFile = file;
+        file = File.createTempFile("replay", ".log");
+        ReplayLogReader reader = null;
+        ReplayLogReader sequential = null;
+        try
+        {
+            writeLog(true, 0);
+            reader = new ReplayLogReader(plainFile);
+            sequential = new ReplayLogReader(file);
+            assertEquals(0, sequential.getCheckpointCount());
+            for (long t = 0; t <= 1050; t += 25)
+            {
+                reader.seek(t);
+                sequential.seek(t);
+                assertEquals(sequential.getTime(), reader.getTime());
+                for (final ReplayLogReader.Signal s : reader.getInputs())
+                {
+                    assertSameValue("value of " + s.getName() + " @ " + t,
+                        sequential.getCurrentValue(sequential.getInput(s
+                            .getName())), reader.getCurrentValue(s));
+                }
+                final boolean more = sequential.next();
+                assertEquals(more, reader.next());
+                if (more)
+                {
+                    assertEquals(sequential.getTime(), reader.getTime());
+                    assertEquals(sequential.getSignal().getName(), reader
+                        .getSignal().getName());
+                    assertSameValue("record @ " + reader.getTime(),
+                        sequential.getValue(), reader.getValue());
+                }
+            }
+        }
+        finally
+        {
+            if (sequential != null) sequential.close();
+            if (reader != null) reader.close();
+            plainFile.delete();
+        }
+    }
+
+    final public void testUnclosedLog()
+        throws IOException
+    {
+        writeLog(false);
+
+        // truncate in the middle of the final record
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(raf.length() - 2);
+        raf.close();
+
+        ReplayLogReader reader = new ReplayLogReader(file);
+        try
+        {
+            assertEquals(2, reader.getInputs().size());
+            assertTrue(reader.getCheckpointCount() >= 9);
+            reader.seek(950);
+            int count = 0;
+            while (reader.next())
+            {
+                ++count;
+            }
+            assertEquals(4, count);
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    final public void testReplaySimulation()
+        throws IOException
+    {
+        writeLog(true);
+        ReplayLogReader reader = new ReplayLogReader(file);
+        try
+        {
+            ReplaySimulation sim = new ReplaySimulation(reader, Collections
+                .<String> emptyList());
+            assertSame(sim.getInputRegister("data"), sim
+                .getObjectByName("data_in"));
+            assertSame(sim.getOutputRegister("req"), sim
+                .getObjectByName("req_out"));
+            assertSame(sim.getOutputRegister("req"), sim
+                .getObjectByName("req"));
+            try
+            {
+                sim.getObjectByName("clk_out");
+                fail("Expected VerilogRuntimeException");
+            }
+            catch (VerilogRuntimeException e)
+            {
+                // expected
+            }
+
+            // drive the expected values, except for one wrong value, after
+            // the replayed inputs of each time step
+            for (int t = 50; t <= 1000; t += 100)
+            {
+                sim.addDelayCallback(new VerilogSimTime(t), new DriveHandler(
+                    sim, t == 450 ? 0 : t / 50));
+            }
+            sim.run();
+            sim.close();
+            assertEquals(1000, sim.getSimTime());
+            assertEquals(1, sim.getDivergenceCount());
+            assertEquals(450, sim.getFirstDivergenceTime());
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.dv;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.newisys.behsim.BehavioralSimulation;
+import com.newisys.eventsim.SimulationManager;
+import com.newisys.verilog.util.BitVector;
+
+/**
+ * Tests Scoreboard matching in each mode, expiry by simulation time, and
+ * Mailbox integration.
+ */
+public class ScoreboardTest
+    extends TestCase
+{
+    private static final class TestSimulation
+        extends BehavioralSimulation
+    {
+        long time;
+
+        @Override
+        public long getSimTime()
+        {
+            return time;
+        }
+    }
+
+    private static final class Txn
+    {
+        final BitVector tag;
+        final int data;
+
+        public Txn(int tag, int data)
+        {
+            this.tag = new BitVector(8, tag);
+            this.data = data;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Txn)) return false;
+            final Txn other = (Txn) obj;
+            return tag.equals(other.tag) && data == other.data;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return tag.hashCode() ^ data;
+        }
+
+        @Override
+        public String toString()
+        {
+            return tag + ":" + data;
+        }
+    }
+
+    private static final Scoreboard.KeyFunction<BitVector, Txn> TAG = new Scoreboard.KeyFunction<BitVector, Txn>()
+    {
+        public BitVector getKey(Txn txn)
+        {
+            return txn.tag;
+        }
+    };
+
+    private TestSimulation sim;
+    private SimulationManager simManager;
+    private DVSimulation dvSim;
+    private List<ScoreboardMismatch<BitVector, Txn>> mismatches;
+
+    public static void main(String[] args)
+    {
+        junit.textui.TestRunner.run(ScoreboardTest.class);
+    }
+
+    public ScoreboardTest(String arg0)
+    {
+        super(arg0);
+    }
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        sim = new TestSimulation();
+        simManager = new SimulationManager();
+        dvSim = new DVSimulation(sim, simManager, null);
+        mismatches = new ArrayList<ScoreboardMismatch<BitVector, Txn>>();
+    }
+
+    private Scoreboard<BitVector, Txn> create(
+        Scoreboard.Mode mode,
+        Scoreboard.KeyFunction<BitVector, Txn> keyFunction)
+    {
+        Scoreboard<BitVector, Txn> sb = new Scoreboard<BitVector, Txn>(dvSim,
+            "sb", mode, keyFunction);
+        sb.addListener(new ScoreboardListener<BitVector, Txn>()
+        {
+            public void notifyMismatch(
+                ScoreboardMismatch<BitVector, Txn> mismatch)
+            {
+                mismatches.add(mismatch);
+            }
+        });
+        return sb;
+    }
+
+    final public void testInOrder()
+    {
+        Scoreboard<BitVector, Txn> sb = create(Scoreboard.Mode.IN_ORDER, null);
+        sb.addExpected(new Txn(1, 10));
+        sb.addExpected(new Txn(2, 20));
+        assertTrue(sb.addActual(new Txn(1, 10)));
+        assertFalse(sb.addActual(new Txn(3, 30)));
+        assertFalse(sb.addActual(new Txn(4, 40)));
+        assertEquals(2, mismatches.size());
+        assertEquals(ScoreboardMismatch.Kind.MISMATCH, mismatches.get(0)
+            .getKind());
+        assertEquals(new Txn(2, 20), mismatches.get(0).getExpected());
+        assertEquals(ScoreboardMismatch.Kind.UNEXPECTED, mismatches.get(1)
+            .getKind());
+        assertNull(mismatches.get(1).getExpected());
+        assertEquals(1, sb.getMatchCount());
+        assertEquals(0, sb.getOutstandingCount());
+    }
+
+    final public void testOutOfOrder()
+    {
+        Scoreboard<BitVector, Txn> sb = create(Scoreboard.Mode.OUT_OF_ORDER,
+            TAG);
+        for (int i = 0; i < 1000; ++i)
+        {
+            sb.addExpected(new Txn(i & 0xff, i));
+        }
+        assertEquals(1000, sb.getMaxOutstandingCount());
+
+        // reverse order across tags, but in order within each tag
+        for (int tag = 255; tag >= 0; --tag)
+        {
+            for (int i = tag; i < 1000; i += 256)
+            {
+                assertTrue(sb.addActual(new Txn(tag, i)));
+            }
+        }
+        assertEquals(0, sb.getOutstandingCount());
+        assertTrue(mismatches.isEmpty());
+
+        sb.addExpected(new Txn(5, 1));
+        sb.addExpected(new Txn(5, 2));
+        assertFalse(sb.addActual(new Txn(5, 2)));
+        assertEquals(ScoreboardMismatch.Kind.MISMATCH, mismatches.get(0)
+            .getKind());
+        assertEquals(new BitVector(8, 5), mismatches.get(0).getKey());
+        assertFalse(sb.addActual(new Txn(6, 1)));
+        assertEquals(ScoreboardMismatch.Kind.UNEXPECTED, mismatches.get(1)
+            .getKind());
+        assertFalse(sb.finish());
+        assertEquals(ScoreboardMismatch.Kind.MISSING, mismatches.get(2)
+            .getKind());
+        assertEquals(new Txn(5, 2), mismatches.get(2).getExpected());
+        assertEquals(3, sb.getMismatchCount());
+    }
+
+    final public void testUnknownKey()
+    {
+        Scoreboard<BitVector, Txn> sb = create(Scoreboard.Mode.OUT_OF_ORDER,
+            new Scoreboard.KeyFunction<BitVector, Txn>()
+            {
+                public BitVector getKey(Txn txn)
+                {
+                    return txn.data < 0 ? new BitVector("8'bxxxx0000")
+                        : txn.tag;
+                }
+            });
+        try
+        {
+            sb.addExpected(new Txn(1, -1));
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+        sb.addExpected(new Txn(1, 1));
+        assertFalse(sb.addActual(new Txn(1, -1)));
+        assertEquals(ScoreboardMismatch.Kind.UNEXPECTED, mismatches.get(0)
+            .getKind());
+        assertEquals(1, sb.getOutstandingCount());
+    }
+
+    final public void testWindowed()
+    {
+        Scoreboard<BitVector, Txn> sb = create(Scoreboard.Mode.WINDOWED, null);
+        sb.setWindowSize(2);
+        sb.addExpected(new Txn(1, 1));
+        sb.addExpected(new Txn(2, 2));
+        sb.addExpected(new Txn(3, 3));
+        assertTrue(sb.addActual(new Txn(2, 2)));
+        assertTrue(sb.addActual(new Txn(3, 3)));
+        sb.addExpected(new Txn(4, 4));
+        sb.addExpected(new Txn(5, 5));
+        assertFalse(sb.addActual(new Txn(5, 5)));
+        assertEquals(ScoreboardMismatch.Kind.UNEXPECTED, mismatches.get(0)
+            .getKind());
+        assertTrue(sb.addActual(new Txn(1, 1)));
+        assertTrue(sb.addActual(new Txn(5, 5)));
+        assertEquals(1, sb.getOutstandingCount());
+    }
+
+    final public void testExpiry()
+    {
+        Scoreboard<BitVector, Txn> sb = create(Scoreboard.Mode.OUT_OF_ORDER,
+            TAG);
+        sb.setExpiryTime(100);
+        sim.time = 10;
+        sb.addExpected(new Txn(1, 1));
+        sim.time = 50;
+        sb.addExpected(new Txn(2, 2));
+        sim.time = 110;
+        sb.expire();
+        assertTrue(mismatches.isEmpty());
+        sim.time = 111;
+        assertTrue(sb.addActual(new Txn(2, 2)));
+        assertEquals(1, mismatches.size());
+        ScoreboardMismatch<BitVector, Txn> m = mismatches.get(0);
+        assertEquals(ScoreboardMismatch.Kind.EXPIRED, m.getKind());
+        assertEquals(10, m.getExpectedTime());
+        assertEquals(111, m.getActualTime());
+        assertEquals(0, sb.getOutstandingCount());
+        assertFalse(sb.addActual(new Txn(1, 1)));
+        assertEquals(1, sb.getMismatchCount(ScoreboardMismatch.Kind.EXPIRED));
+        assertEquals(1, sb
+            .getMismatchCount(ScoreboardMismatch.Kind.UNEXPECTED));
+    }
+
+    final public void testMatchFunction()
+    {
+        Scoreboard<BitVector, Txn> sb = create(Scoreboard.Mode.IN_ORDER, TAG);
+        sb.setMatchFunction(new Scoreboard.MatchFunction<Txn>()
+        {
+            public boolean matches(Txn expected, Txn actual)
+            {
+                return expected.tag.equals(actual.tag);
+            }
+        });
+        sb.addExpected(new Txn(1, 1));
+        assertTrue(sb.addActual(new Txn(1, 2)));
+    }
+
+    final public void testMailboxes()
+    {
+        final Scoreboard<BitVector, Txn> sb = create(
+            Scoreboard.Mode.OUT_OF_ORDER, TAG);
+        final Mailbox<Txn> expected = dvSim.createMailbox();
+        final Mailbox<Txn> actual = dvSim.createMailbox();
+        sb.connectExpected(expected);
+        sb.connectActual(actual);
+        dvSim.fork(new Runnable()
+        {
+            public void run()
+            {
+                expected.put(new Txn(1, 1));
+                expected.put(new Txn(2, 2));
+                actual.put(new Txn(2, 2));
+                actual.put(new Txn(1, 1));
+            }
+        });
+        simManager.executeThreads();
+        assertEquals(2, sb.getMatchCount());
+        assertEquals(0, sb.getOutstandingCount());
+        simManager.terminateThreads();
+    }
+}
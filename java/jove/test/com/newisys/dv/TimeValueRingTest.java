@@ -0,0 +1,149 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.dv;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests TimeValueRing and the ValueTracker and BackRefBuffer classes built on
+ * it.
+ */
+public class TimeValueRingTest
+    extends TestCase
+{
+    public static void main(String[] args)
+    {
+        junit.textui.TestRunner.run(TimeValueRingTest.class);
+    }
+
+    public TimeValueRingTest(String arg0)
+    {
+        super(arg0);
+    }
+
+    final public void testAddAndWrap()
+    {
+        TimeValueRing ring = new TimeValueRing(4);
+        for (int i = 0; i < 3; ++i)
+        {
+            ring.add(i * 10, "v" + i);
+        }
+        ring.removeFirst();
+        ring.removeFirst();
+        for (int i = 3; i < 6; ++i)
+        {
+            ring.add(i * 10, "v" + i);
+        }
+        assertEquals(4, ring.capacity());
+        assertEquals(4, ring.size());
+        assertTrue(ring.isFull());
+        for (int i = 0; i < 4; ++i)
+        {
+            assertEquals((i + 2) * 10, ring.getTime(i));
+            assertEquals("v" + (i + 2), ring.getValue(i));
+        }
+
+        // adding to a full ring grows it and preserves order
+        ring.add(60, "v6");
+        assertEquals(8, ring.capacity());
+        assertEquals(5, ring.size());
+        assertEquals(20, ring.getTime(0));
+        assertEquals("v6", ring.getLastValue());
+
+        ring.setLastValue("v6b");
+        assertEquals(60, ring.getLastTime());
+        assertEquals("v6b", ring.getLastValue());
+    }
+
+    final public void testPushDiscardsOldest()
+    {
+        TimeValueRing ring = new TimeValueRing(3);
+        for (int i = 0; i < 5; ++i)
+        {
+            ring.push(i, "v" + i);
+        }
+        assertEquals(3, ring.capacity());
+        assertEquals(3, ring.size());
+        assertEquals("v2", ring.getValue(0));
+        assertEquals("v4", ring.getValue(2));
+    }
+
+    final public void testFloorIndex()
+    {
+        TimeValueRing ring = new TimeValueRing(2);
+        assertEquals(-1, ring.floorIndex(0));
+        ring.add(Long.MIN_VALUE, "init");
+        ring.add(10, "a");
+        ring.add(20, "b");
+        ring.add(20, "c");
+        ring.add(35, "d");
+        assertEquals(0, ring.floorIndex(9));
+        assertEquals(1, ring.floorIndex(10));
+        assertEquals(1, ring.floorIndex(19));
+        assertEquals(3, ring.floorIndex(20));
+        assertEquals(4, ring.floorIndex(Long.MAX_VALUE));
+        ring.removeFirst();
+        assertEquals(-1, ring.floorIndex(9));
+    }
+
+    final public void testValueTracker()
+    {
+        ValueTracker tracker = new ValueTracker(5);
+        tracker.trackChange(Long.MIN_VALUE, "x");
+        tracker.trackChange(10, "a");
+        tracker.trackChange(10, "b");
+        tracker.trackChange(12, "c");
+        tracker.trackChange(20, "d");
+        assertEquals("c", tracker.getValue(20, 5));
+        assertEquals("d", tracker.getValue(20, 0));
+        assertEquals("d", tracker.getValue(30, 5));
+        try
+        {
+            tracker.getValue(30, 6);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    final public void testBackRefBuffer()
+    {
+        BackRefBuffer buffer = new BackRefBuffer(2, "x");
+        assertEquals("x", buffer.getValue(0));
+        assertEquals("x", buffer.getValue(1));
+        buffer.pushValue(1, "a");
+        buffer.pushValue(2, "b");
+        buffer.pushValue(3, "c");
+        assertEquals("c", buffer.getValue(0));
+        assertEquals("b", buffer.getValue(1));
+        assertEquals(3, buffer.getTime(0));
+
+        buffer.setDepth(4);
+        assertEquals(4, buffer.getDepth());
+        assertEquals("c", buffer.getValue(0));
+        assertEquals("b", buffer.getValue(1));
+        assertEquals("x", buffer.getValue(2));
+        assertEquals("x", buffer.getValue(3));
+
+        buffer.setDepth(1);
+        assertEquals("c", buffer.getValue(0));
+    }
+}
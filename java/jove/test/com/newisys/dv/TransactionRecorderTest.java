@@ -0,0 +1,280 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.dv;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.newisys.behsim.BehavioralSimulation;
+import com.newisys.eventsim.SimulationManager;
+import com.newisys.verilog.util.BitVector;
+
+/**
+ * Tests TransactionRecorder and TransactionDatabase, including queries
+ * spanning multiple segments and attribute encoding.
+ */
+public class TransactionRecorderTest
+    extends TestCase
+{
+    private static final class TestSimulation
+        extends BehavioralSimulation
+    {
+        long time;
+
+        @Override
+        public long getSimTime()
+        {
+            return time;
+        }
+    }
+
+    private TestSimulation sim;
+    private DVSimulation dvSim;
+    private File dir;
+
+    public static void main(String[] args)
+    {
+        junit.textui.TestRunner.run(TransactionRecorderTest.class);
+    }
+
+    public TransactionRecorderTest(String arg0)
+    {
+        super(arg0);
+    }
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        sim = new TestSimulation();
+        dvSim = new DVSimulation(sim, new SimulationManager(), null);
+        dir = File.createTempFile("txdb", "");
+        dir.delete();
+    }
+
+    @Override
+    protected void tearDown()
+        throws Exception
+    {
+        final File[] files = dir.listFiles();
+        if (files != null)
+        {
+            for (final File f : files)
+            {
+                f.delete();
+            }
+        }
+        dir.delete();
+        super.tearDown();
+    }
+
+    private static long getStart(int i)
+    {
+        return i * 10L;
+    }
+
+    private static long getEnd(int i)
+    {
+        // every 1000th transaction is long-running
+        return getStart(i) + (i % 1000 == 0 ? 20000 : (i % 7) * 5);
+    }
+
+    final public void testQuery()
+        throws IOException
+    {
+        final int count = 3 * TransactionDbFormat.SEGMENT_RECORDS + 100;
+        final TransactionRecorder rec = new TransactionRecorder(dvSim, dir);
+        final TransactionStream bus = rec.getStream("bus");
+        final TransactionStream other = rec.getStream("other");
+        assertSame(bus, rec.getStream("bus"));
+        long maxEnd = 0;
+        for (int i = 0; i < count; ++i)
+        {
+            maxEnd = Math.max(maxEnd, getEnd(i));
+            if (i % 3 == 0)
+            {
+                bus.begin("write", getStart(i)).addAttribute("id", i, 32).end(
+                    getEnd(i));
+            }
+            else
+            {
+                bus.record("read", getStart(i), getEnd(i));
+            }
+        }
+        other.record("idle", 0, 1);
+        assertEquals(count + 1, rec.getRecordCount());
+        rec.close();
+
+        final TransactionDatabase db = new TransactionDatabase(dir);
+        try
+        {
+            assertEquals(2, db.getStreams().size());
+            final TransactionDatabase.Stream s = db.getStream("bus");
+            assertEquals(count, s.getRecordCount());
+            assertEquals(0, s.getMinStartTime());
+            assertEquals(maxEnd, s.getMaxEndTime());
+
+            final long[][] ranges = { { 0, 0 }, { 15, 15 },
+                { 40000, 40100 }, { 100000, 150000 }, { 0, Long.MAX_VALUE },
+                { 200000, 300000 }, { 10, 9 } };
+            for (final long[] range : ranges)
+            {
+                final List<Integer> expected = new ArrayList<Integer>();
+                for (int i = 0; i < count; ++i)
+                {
+                    if (getStart(i) <= range[1] && getEnd(i) >= range[0])
+                    {
+                        expected.add(i);
+                    }
+                }
+                final List<Integer> actual = new ArrayList<Integer>();
+                final TransactionDatabase.Cursor c = db.query(s, range[0],
+                    range[1]);
+                while (c.next())
+                {
+                    final int i = (int) (c.getStartTime() / 10);
+                    assertEquals(getEnd(i), c.getEndTime());
+                    if (i % 3 == 0)
+                    {
+                        assertEquals("write", c.getName());
+                        assertEquals(1, c.getAttributeCount());
+                        assertEquals(i, c.getAttributeValue("id").intValue());
+                    }
+                    else
+                    {
+                        assertEquals("read", c.getName());
+                        assertEquals(0, c.getAttributeCount());
+                    }
+                    actual.add(i);
+                }
+                assertEquals(expected, actual);
+            }
+
+            final TransactionDatabase.Cursor c = db.query(db
+                .getStream("other"), 0, 0);
+            assertTrue(c.next());
+            assertEquals("idle", c.getName());
+            assertFalse(c.next());
+        }
+        finally
+        {
+            db.close();
+        }
+    }
+
+    final public void testAttributes()
+        throws IOException
+    {
+        final BitVector xz = new BitVector("8'b10xz01zx");
+        final BitVector wide = new BitVector(100, 0x123456789L).shiftLeft(60)
+            .or(new BitVector(100, 0xabcL));
+        final TransactionRecorder rec = new TransactionRecorder(dvSim, dir);
+        final TransactionStream stream = rec.getStream("s");
+        sim.time = 5;
+        final Transaction tx = stream.begin("tx");
+        sim.time = 8;
+        final Transaction tx2 = stream.begin("tx2");
+        tx.addAttribute("xz", xz);
+        tx.addAttribute("wide", wide);
+        tx.addAttribute("masked", 0xfff5, 12);
+        tx.addAttribute("neg", -2, 64);
+        tx.addAttribute("bit", 1, 1);
+        sim.time = 12;
+        tx2.end();
+        sim.time = 20;
+        tx.end();
+        assertTrue(tx.isEnded());
+        rec.close();
+
+        final TransactionDatabase db = new TransactionDatabase(dir);
+        try
+        {
+            final TransactionDatabase.Cursor c = db.query(db.getStream("s"),
+                0, 100);
+            assertTrue(c.next());
+            assertEquals("tx2", c.getName());
+            assertEquals(8, c.getStartTime());
+            assertEquals(12, c.getEndTime());
+            assertTrue(c.next());
+            assertEquals("tx", c.getName());
+            assertEquals(5, c.getStartTime());
+            assertEquals(20, c.getEndTime());
+            assertEquals(5, c.getAttributeCount());
+            assertEquals("xz", c.getAttributeName(0));
+            assertTrue(xz.equalsExact(c.getAttributeValue(0)));
+            assertEquals(wide, c.getAttributeValue("wide"));
+            assertEquals(new BitVector(12, 0xff5), c.getAttributeValue("masked"));
+            assertEquals(-2L, c.getAttributeValue("neg").longValue());
+            assertEquals(64, c.getAttributeValue("neg").length());
+            assertEquals(new BitVector(1, 1), c.getAttributeValue("bit"));
+            assertNull(c.getAttributeValue("missing"));
+            assertFalse(c.next());
+        }
+        finally
+        {
+            db.close();
+        }
+    }
+
+    final public void testErrors()
+        throws IOException
+    {
+        final TransactionRecorder rec = new TransactionRecorder(dvSim, dir);
+        final TransactionStream stream = rec.getStream("s");
+        try
+        {
+            stream.record("bad", 10, 5);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+        final Transaction tx = stream.begin("tx", 0);
+        tx.end(1);
+        try
+        {
+            tx.end(2);
+            fail("Expected IllegalStateException");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+        final Transaction open = stream.begin("open", 1);
+        rec.close();
+        try
+        {
+            open.end(2);
+            fail("Expected IllegalStateException");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+        final TransactionDatabase db = new TransactionDatabase(dir);
+        assertEquals(1, db.getStream("s").getRecordCount());
+        db.close();
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.dv;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests UniqueTimeEventScheduler, including events beyond the near-term ring
+ * window and recycling of released records.
+ */
+public class UniqueTimeEventSchedulerTest
+    extends TestCase
+{
+    private static final class TestRecord
+        extends EventRecord
+    {
+        boolean reset;
+
+        public TestRecord(long time)
+        {
+            super(time);
+        }
+    }
+
+    private static final class TestFactory
+        extends PooledEventRecordFactory<TestRecord>
+    {
+        int created;
+        int released;
+
+        public TestFactory()
+        {
+            super(4);
+        }
+
+        @Override
+        protected TestRecord createEvent(long time)
+        {
+            ++created;
+            return new TestRecord(time);
+        }
+
+        public void releaseEvent(TestRecord e)
+        {
+            ++released;
+            recycle(e);
+        }
+
+        @Override
+        protected void resetEvent(TestRecord e)
+        {
+            e.reset = true;
+        }
+    }
+
+    private TestFactory factory;
+    private UniqueTimeEventScheduler<TestRecord> sched;
+
+    public static void main(String[] args)
+    {
+        junit.textui.TestRunner.run(UniqueTimeEventSchedulerTest.class);
+    }
+
+    public UniqueTimeEventSchedulerTest(String arg0)
+    {
+        super(arg0);
+    }
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        factory = new TestFactory();
+        sched = new UniqueTimeEventScheduler<TestRecord>(factory);
+    }
+
+    final public void testGetEvent()
+    {
+        assertNull(sched.getEvent(5, false));
+        TestRecord e5 = sched.getEvent(5, true);
+        assertEquals(5, e5.time);
+        assertSame(e5, sched.getEvent(5, true));
+        TestRecord e1000 = sched.getEvent(1000, true);
+        assertSame(e1000, sched.getEvent(1000, false));
+        assertNull(sched.getCurrentEvent());
+        try
+        {
+            sched.setCurrentTime(1);
+            sched.getEvent(0, true);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    final public void testNextEventOrder()
+    {
+        long[] times = { 1000, 3, 63, 64, 200, 0 };
+        for (long t : times)
+        {
+            sched.getEvent(t, true);
+        }
+        long[] expected = { 0, 3, 63, 64, 200, 1000 };
+        int i = 0;
+        TestRecord e = sched.getNextEvent(0);
+        while (e != null)
+        {
+            assertEquals(expected[i++], e.time);
+            e = sched.getNextEvent(e.time + 1);
+        }
+        assertEquals(expected.length, i);
+        assertEquals(200, sched.getNextEvent(100).time);
+        assertEquals(1000, sched.getNextEvent(201).time);
+    }
+
+    final public void testAdvanceAndRecycle()
+    {
+        sched.getEvent(0, true);
+        sched.getEvent(2, true);
+        TestRecord far = sched.getEvent(100, true);
+
+        sched.setCurrentTime(2);
+        assertEquals(1, factory.released);
+        assertEquals(2, sched.getCurrentEvent().time);
+
+        // far event migrates into the ring window and stays reachable
+        sched.setCurrentTime(90);
+        assertEquals(2, factory.released);
+        assertSame(far, sched.getEvent(100, false));
+        assertSame(far, sched.getNextEvent(0));
+
+        sched.setCurrentTime(100);
+        assertSame(far, sched.getCurrentEvent());
+
+        // released records are reused
+        int created = factory.created;
+        TestRecord e = sched.getEvent(101, true);
+        assertEquals(created, factory.created);
+        assertTrue(e.reset);
+        assertEquals(101, e.time);
+
+        sched.reset();
+        assertEquals(0, sched.getCurrentTime());
+        assertNull(sched.getNextEvent(0));
+        assertEquals(4, factory.released);
+    }
+
+    final public void testLargeTimeJump()
+    {
+        sched.getEvent(10, true);
+        sched.getEvent(500, true);
+        sched.getEvent(5000, true);
+        sched.setCurrentTime(4990);
+        assertEquals(2, factory.released);
+        assertEquals(5000, sched.getNextEvent(0).time);
+        assertEquals(5000, sched.advanceTime().time);
+        assertNull(sched.advanceTime());
+        assertNull(sched.getNextEvent(0));
+    }
+}
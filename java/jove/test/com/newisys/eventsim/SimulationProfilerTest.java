@@ -0,0 +1,181 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.eventsim;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests SimulationProfiler statistics, grouping, reporting, and MBean
+ * registration.
+ */
+public class SimulationProfilerTest
+    extends TestCase
+{
+    public static void main(String[] args)
+    {
+        junit.textui.TestRunner.run(SimulationProfilerTest.class);
+    }
+
+    public SimulationProfilerTest(String arg0)
+    {
+        super(arg0);
+    }
+
+    final public void testNamePrefix()
+    {
+        assertEquals("SimulationThread", SimulationProfiler
+            .getNamePrefix("SimulationThread-12"));
+        assertEquals("ahbMaster", SimulationProfiler
+            .getNamePrefix("ahbMaster[3]"));
+        assertEquals("port0.driver", SimulationProfiler
+            .getNamePrefix("port0.driver"));
+        assertEquals("42", SimulationProfiler.getNamePrefix("42"));
+    }
+
+    final public void testProfile()
+    {
+        final SimulationManager sim = new SimulationManager();
+        assertNull(sim.getProfiler());
+        final SimulationProfiler profiler = sim.setProfilingEnabled(true);
+        assertSame(profiler, sim.getProfiler());
+        assertTrue(sim.isSimTimeTracked());
+
+        final PulseEvent tick = new PulseEvent("tick");
+        final StepEvent done = new StepEvent("done");
+        for (int i = 0; i < 2; ++i)
+        {
+            sim.fork("worker[" + i + "]", new Runnable()
+            {
+                public void run()
+                {
+                    final SimulationThread t = SimulationThread
+                        .currentThread();
+                    t.waitFor(tick);
+                    t.yield();
+                    t.waitFor(tick);
+                }
+            });
+        }
+        sim.fork("monitor", new Runnable()
+        {
+            public void run()
+            {
+                SimulationThread.currentThread().waitFor(done);
+            }
+        });
+
+        sim.setSimTime(0);
+        sim.executeThreads();
+        sim.setSimTime(10);
+        sim.notifyOf(tick);
+        sim.executeThreads();
+        sim.setSimTime(30);
+        sim.notifyOf(tick);
+        sim.executeThreads();
+
+        final List<ProfileStats> groups = profiler.getGroupProfiles();
+        assertEquals(2, groups.size());
+        ProfileStats workers = null;
+        for (final ProfileStats group : groups)
+        {
+            if (group.getName().equals("worker")) workers = group;
+        }
+        assertNotNull(workers);
+        assertEquals(2, workers.getThreadCount());
+        // start, after first tick, after yield, after second tick
+        assertEquals(8, workers.getActivationCount());
+        // intervals of 10, 0, and 20 for each thread
+        assertEquals(10.0, workers.getAverageSimTimeBetweenActivations(),
+            1e-9);
+        assertEquals(4, workers.getTotalWaitCount());
+        assertEquals(Long.valueOf(4), workers.getWaitCounts().get(
+            PulseEvent.class));
+        assertTrue(workers.getCpuTime() >= 0);
+
+        final List<ProfileStats> threads = profiler.getThreadProfiles();
+        assertEquals(3, threads.size());
+        assertEquals(3, profiler.getThreadCount());
+        assertEquals(9, profiler.getTotalActivationCount());
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        profiler.setReportStream(new PrintStream(bos));
+        sim.terminateThreads();
+        final String report = bos.toString();
+        assertTrue(report.indexOf("worker[1]") >= 0);
+        assertTrue(report.indexOf("StepEvent=1") >= 0);
+        assertTrue(report.indexOf("PulseEvent=4") >= 0);
+
+        // the monitor was terminated while blocked
+        assertEquals(3, profiler.getThreadProfiles().size());
+        assertEquals(2, profiler.getGroupSummaries().length);
+
+        // no new activity, so terminating again prints no report
+        bos.reset();
+        sim.terminateThreads();
+        assertEquals(0, bos.size());
+
+        profiler.reset();
+        assertEquals(0, profiler.getThreadCount());
+        sim.setProfilingEnabled(false);
+        assertNull(sim.getProfiler());
+    }
+
+    final public void testMBean()
+        throws Exception
+    {
+        final SimulationManager sim = new SimulationManager(
+            "ProfilerMBeanSimMgr", SimulationManagerTest.rngFactory);
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName(
+            "com.newisys.eventsim:type=SimulationProfiler,name=\""
+                + "ProfilerMBeanSimMgr\"");
+        assertFalse(server.isRegistered(name));
+        sim.setProfilingEnabled(true);
+        try
+        {
+            assertTrue(server.isRegistered(name));
+            sim.fork("t", new Runnable()
+            {
+                public void run()
+                {
+                    // do nothing
+                }
+            });
+            sim.executeThreads();
+            assertEquals(Long.valueOf(1), server.getAttribute(name,
+                "TotalActivationCount"));
+            final String report = (String) server.getAttribute(name,
+                "Report");
+            assertTrue(report.indexOf("ProfilerMBeanSimMgr") >= 0);
+        }
+        finally
+        {
+            sim.setProfilingEnabled(false);
+        }
+        assertFalse(server.isRegistered(name));
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.ova;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory OVAInterface implementation used to test OVAEngine without a
+ * simulator. Assert identifiers are 1 through the number of asserts, and
+ * listener registrations and native counts are recorded for inspection.
+ */
+class MockOVAInterface
+    implements OVAInterface
+{
+    private final int assertCount;
+    private long iterAssert;
+
+    // "eventID:assertID" strings for registered assert listeners
+    final Set<String> assertListeners = new HashSet<String>();
+    final Set<Integer> engineListeners = new HashSet<Integer>();
+    final Map<String, Long> nativeCounts = new HashMap<String, Long>();
+    int addAssertListenerCalls;
+
+    public MockOVAInterface(int assertCount)
+    {
+        this.assertCount = assertCount;
+    }
+
+    static String key(int eventID, long assertID)
+    {
+        return eventID + ":" + assertID;
+    }
+
+    /**
+     * Simulates the native counter update that occurs for an event when
+     * counting is enabled.
+     */
+    void countEvent(int eventID, long assertID)
+    {
+        final String key = key(eventID, assertID);
+        final Long count = nativeCounts.get(key);
+        if (count != null)
+        {
+            nativeCounts.put(key, count + 1);
+        }
+    }
+
+    public String getApiVersion()
+    {
+        return "mock";
+    }
+
+    public long registerClient()
+    {
+        return 1;
+    }
+
+    public boolean setConfigSwitch(long clientID, int confSwitch, boolean enable)
+    {
+        return true;
+    }
+
+    public boolean doAction(long clientID, int actionID, long userData)
+    {
+        return true;
+    }
+
+    public long firstAssert(long clientID)
+    {
+        iterAssert = 0;
+        return nextAssert(clientID);
+    }
+
+    public long nextAssert(long clientID)
+    {
+        return iterAssert < assertCount ? ++iterAssert
+            : OVAEngine.OVA_ASSERTID_NULL;
+    }
+
+    public boolean assertDoAction(
+        long clientID,
+        int actionID,
+        long assertID,
+        long attemptID,
+        long userData)
+    {
+        return true;
+    }
+
+    public boolean hasAssertInfo(long clientID)
+    {
+        return true;
+    }
+
+    public OVAAssertInfo getAssertInfo(long clientID, long assertID)
+    {
+        return new OVAAssertInfo("assert" + assertID + ".cb",
+            OVAExprType.Check, new OVASourceFileInfo("mock.ova", 0, 0, 0, 0),
+            0, 0, "top", "");
+    }
+
+    public boolean addEngineListener(long clientID, int eventID)
+    {
+        return engineListeners.add(eventID);
+    }
+
+    public boolean addAssertListener(long clientID, int eventID, long assertID)
+    {
+        ++addAssertListenerCalls;
+        return assertListeners.add(key(eventID, assertID));
+    }
+
+    public boolean removeAssertListener(int eventID, long assertID)
+    {
+        return assertListeners.remove(key(eventID, assertID));
+    }
+
+    public boolean removeEngineListener(int eventID)
+    {
+        return engineListeners.remove(eventID);
+    }
+
+    public boolean setAssertSeverity(long clientID, long assertID, int severity)
+    {
+        return true;
+    }
+
+    public int getAssertSeverity(long clientID, long assertID)
+    {
+        return 0;
+    }
+
+    public boolean setAssertCategory(long clientID, long assertID, int category)
+    {
+        return true;
+    }
+
+    public int getAssertCategory(long clientID, long assertID)
+    {
+        return 0;
+    }
+
+    public boolean setAssertUserMessage(long clientID, long assertID, String msg)
+    {
+        return true;
+    }
+
+    public String getAssertUserMessage(long clientID, long assertID)
+    {
+        return "";
+    }
+
+    public boolean enableAssertCount(long clientID, long assertID, int eventID)
+    {
+        nativeCounts.put(key(eventID, assertID), 0L);
+        return true;
+    }
+
+    public boolean disableAssertCount(long clientID, long assertID, int eventID)
+    {
+        return nativeCounts.containsKey(key(eventID, assertID));
+    }
+
+    public long getAssertCount(long clientID, long assertID, int eventID)
+    {
+        final Long count = nativeCounts.get(key(eventID, assertID));
+        if (count == null)
+        {
+            throw new OVAException("Counting not enabled");
+        }
+        return count;
+    }
+}
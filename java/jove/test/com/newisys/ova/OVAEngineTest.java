@@ -0,0 +1,249 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.ova;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.newisys.verilog.VerilogTime;
+
+/**
+ * Tests OVAEngine callback dispatch and aggregation against a mock
+ * OVAInterface.
+ */
+public class OVAEngineTest
+    extends TestCase
+{
+    private MockOVAInterface ova;
+    private OVAEngine engine;
+
+    public static void main(String[] args)
+    {
+        junit.textui.TestRunner.run(OVAEngineTest.class);
+    }
+
+    public OVAEngineTest(String arg0)
+    {
+        super(arg0);
+    }
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        ova = new MockOVAInterface(3);
+        engine = new OVAEngine(ova);
+    }
+
+    private static final class RecordingCallback
+        extends OVAAssertCallback
+    {
+        final List<String> events = new ArrayList<String>();
+
+        public RecordingCallback()
+        {
+            super();
+        }
+
+        public RecordingCallback(OVAAssert ovaAssert)
+        {
+            super(ovaAssert);
+        }
+
+        @Override
+        public void run(
+            OVAAssert ovaAssert,
+            OVAAssertEventType eventType,
+            VerilogTime simTime,
+            long attemptID)
+        {
+            events.add(ovaAssert.getName() + " " + eventType + " @ " + simTime
+                + " #" + attemptID);
+        }
+    }
+
+    final public void testAsserts()
+    {
+        List<OVAAssert> asserts = engine.getAsserts();
+        assertEquals(3, asserts.size());
+        assertSame(asserts.get(1), engine.getAssert("assert2"));
+        assertNull(engine.getAssert("assert4"));
+    }
+
+    final public void testPerAssertDispatch()
+    {
+        OVAAssert a1 = engine.getAssert("assert1");
+        OVAAssert a2 = engine.getAssert("assert2");
+        RecordingCallback cb1 = new RecordingCallback();
+        RecordingCallback cb2 = new RecordingCallback();
+        a1.addListener(OVAAssertEventType.AttemptFailure, cb1);
+        a2.addListener(OVAAssertEventType.AttemptFailure, cb2);
+        a2.addListener(OVAAssertEventType.AttemptFailure, cb2);
+
+        // each assert is registered with OVA separately
+        int failure = OVAAssertEventType.AttemptFailure.getValue();
+        assertTrue(ova.assertListeners.contains(MockOVAInterface.key(failure,
+            a1.assertID)));
+        assertTrue(ova.assertListeners.contains(MockOVAInterface.key(failure,
+            a2.assertID)));
+
+        engine.dispatchAssertCallback(OVAAssertEventType.AttemptFailure, 10,
+            a2.assertID, 7);
+        assertEquals(0, cb1.events.size());
+        assertEquals(1, cb2.events.size());
+        assertEquals("assert2.cb AttemptFailure @ 10 #7", cb2.events.get(0));
+
+        a2.removeListener(OVAAssertEventType.AttemptFailure, cb2);
+        assertFalse(ova.assertListeners.contains(MockOVAInterface.key(failure,
+            a2.assertID)));
+        assertTrue(ova.assertListeners.contains(MockOVAInterface.key(failure,
+            a1.assertID)));
+    }
+
+    final public void testCallbackForOtherAssertNotRun()
+    {
+        OVAAssert a1 = engine.getAssert("assert1");
+        OVAAssert a3 = engine.getAssert("assert3");
+        RecordingCallback cb = new RecordingCallback(a3);
+        a1.addListener(OVAAssertEventType.AttemptSuccess, cb);
+        engine.dispatchAssertCallback(OVAAssertEventType.AttemptSuccess, 1,
+            a1.assertID, 1);
+        assertEquals(0, cb.events.size());
+    }
+
+    final public void testAllEvents()
+    {
+        OVAAssert a1 = engine.getAssert("assert1");
+        RecordingCallback cb = new RecordingCallback();
+        a1.addListener(OVAAssertEventType.All, cb);
+        engine.dispatchAssertCallback(OVAAssertEventType.Reset, 5, a1.assertID,
+            0);
+        assertEquals(1, cb.events.size());
+
+        a1.removeListener(OVAAssertEventType.All, cb);
+        assertTrue(ova.assertListeners.isEmpty());
+    }
+
+    final public void testJavaAggregation()
+    {
+        OVAAssert a1 = engine.getAssert("assert1");
+        OVAAssert a3 = engine.getAssert("assert3");
+        RecordingCallback cb = new RecordingCallback();
+        a1.addListener(OVAAssertEventType.NewAttemptStarted, cb);
+        int registered = ova.addAssertListenerCalls;
+
+        engine.enableAggregation(OVAAssertEventType.NewAttemptStarted);
+        assertTrue(engine
+            .isAggregationEnabled(OVAAssertEventType.NewAttemptStarted));
+
+        // a1 was already registered for its listener
+        assertEquals(registered + 2, ova.addAssertListenerCalls);
+
+        for (int i = 0; i < 5; ++i)
+        {
+            engine.dispatchAssertCallback(
+                OVAAssertEventType.NewAttemptStarted, i, a3.assertID, i);
+        }
+        engine.dispatchAssertCallback(OVAAssertEventType.NewAttemptStarted, 9,
+            a1.assertID, 9);
+
+        long[] counts = engine
+            .getAggregateCounts(OVAAssertEventType.NewAttemptStarted);
+        assertEquals(3, counts.length);
+        assertEquals(1, counts[0]);
+        assertEquals(0, counts[1]);
+        assertEquals(5, counts[2]);
+        assertEquals(5, engine.getAggregateCount(a3,
+            OVAAssertEventType.NewAttemptStarted));
+        assertEquals(1, cb.events.size());
+
+        // disabling keeps counts and the listener registration for a1
+        engine.disableAggregation(OVAAssertEventType.NewAttemptStarted);
+        int started = OVAAssertEventType.NewAttemptStarted.getValue();
+        assertTrue(ova.assertListeners.contains(MockOVAInterface.key(started,
+            a1.assertID)));
+        assertFalse(ova.assertListeners.contains(MockOVAInterface.key(started,
+            a3.assertID)));
+        assertEquals(5, engine.getAggregateCount(a3,
+            OVAAssertEventType.NewAttemptStarted));
+    }
+
+    final public void testNativeAggregation()
+    {
+        OVAAssert a2 = engine.getAssert("assert2");
+        engine.enableAggregation(OVAAssertEventType.AttemptSuccess);
+
+        // no Java callbacks are needed for native counts
+        assertTrue(ova.assertListeners.isEmpty());
+
+        int success = OVAAssertEventType.AttemptSuccess.getValue();
+        ova.countEvent(success, a2.assertID);
+        ova.countEvent(success, a2.assertID);
+        long[] counts = engine
+            .getAggregateCounts(OVAAssertEventType.AttemptSuccess);
+        assertEquals(0, counts[0]);
+        assertEquals(2, counts[1]);
+    }
+
+    final public void testAggregationNotEnabled()
+    {
+        try
+        {
+            engine.getAggregateCounts(OVAAssertEventType.AttemptKilled);
+            fail("Expected OVAException");
+        }
+        catch (OVAException e)
+        {
+            // expected
+        }
+        try
+        {
+            engine.enableAggregation(OVAAssertEventType.All);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    final public void testForValue()
+    {
+        for (OVAAssertEventType type : OVAAssertEventType.values())
+        {
+            assertSame(type, OVAAssertEventType.forValue(type.getValue()));
+        }
+        for (OVAEngineEventType type : OVAEngineEventType.values())
+        {
+            assertSame(type, OVAEngineEventType.forValue(type.getValue()));
+        }
+        try
+        {
+            OVAAssertEventType.forValue(0);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+}
@@ -308,4 +308,72 @@ public class TestPrintf
         // check that a warning is printed if too many args are given
         Printf.sprintf("%d", 5, 4);
     }
+
+    public void testCompiledFormat()
+    {
+        PrintfFormat format = Printf.compile("a=%#x b=%5s%%");
+        assertEquals("a=0xff b=  foo%", format.sprintf(255, "foo"));
+        assertEquals("a=0x1 b=  bar%", format.sprintf(1, "bar"));
+
+        // formats append to an existing buffer
+        StringBuilder buf = new StringBuilder("> ");
+        format.format(buf, 16, "x");
+        assertEquals("> a=0x10 b=    x%", buf.toString());
+
+        // an argument whose toString calls sprintf does not disturb the
+        // enclosing format
+        Object nested = new Object()
+        {
+            @Override
+            public String toString()
+            {
+                return Printf.sprintf("<%d>", 7);
+            }
+        };
+        assertEquals("1 <7> 2", Printf.sprintf("%d %s %d", 1, nested, 2));
+    }
+
+    public void testConcurrentFormatting()
+        throws InterruptedException
+    {
+        final PrintfFormat format = Printf.compile("%08x:%b:%s");
+        final String[] failures = new String[4];
+        Thread[] threads = new Thread[failures.length];
+        for (int t = 0; t < threads.length; ++t)
+        {
+            final int id = t;
+            final String name = "t" + t;
+            threads[t] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    for (int i = 0; i < 2000; ++i)
+                    {
+                        final int value = id * 10000 + i;
+                        final String expected = String.format("%08x", value)
+                            + ":" + Integer.toBinaryString(i & 0xf) + ":" + name;
+                        final String actual = (i & 1) == 0 ? format.sprintf(
+                            value, new BitVector(4, i & 0xf), name) : Printf
+                            .sprintf("%08x:%b:%s", value, new BitVector(4,
+                                i & 0xf), name);
+                        if (!expected.equals(actual))
+                        {
+                            failures[id] = actual + " != " + expected;
+                            return;
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        for (String failure : failures)
+        {
+            assertNull(failure);
+        }
+    }
 }
@@ -0,0 +1,201 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.newisys.regress;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.newisys.dv.DVApplication;
+import com.newisys.dv.DVSimulation;
+
+/**
+ * Tests RegressionTest parsing, RegressionReport formatting, and running
+ * tests in RegressionWorker JVMs.
+ */
+public class RegressionRunnerTest
+    extends TestCase
+{
+    public static class PassApp
+        extends DVApplication
+    {
+        public PassApp(DVSimulation dvSim)
+        {
+            super(dvSim);
+        }
+
+        public void run()
+        {
+            dvSim.delay(1000);
+            verilogSim.finish();
+        }
+    }
+
+    public static class FailApp
+        extends DVApplication
+    {
+        public FailApp(DVSimulation dvSim)
+        {
+            super(dvSim);
+        }
+
+        public void run()
+        {
+            dvSim.delay(10);
+            throw new IllegalStateException("expected failure");
+        }
+    }
+
+    public static class HangApp
+        extends DVApplication
+    {
+        public HangApp(DVSimulation dvSim)
+        {
+            super(dvSim);
+        }
+
+        public void run()
+        {
+            while (true)
+            {
+                Thread.yield();
+            }
+        }
+    }
+
+    public static void main(String[] args)
+    {
+        junit.textui.TestRunner.run(RegressionRunnerTest.class);
+    }
+
+    public RegressionRunnerTest(String arg0)
+    {
+        super(arg0);
+    }
+
+    final public void testParseSeeds()
+    {
+        assertTrue(Arrays.equals(new long[] { 1, 2, 3, 7, -2 }, RegressionTest
+            .parseSeeds("1-3, 7,-2")));
+        assertEquals(0, RegressionTest.parseSeeds("").length);
+        try
+        {
+            RegressionTest.parseSeeds("5-4");
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+        try
+        {
+            RegressionTest.parseSeeds("x");
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    final public void testParseTestList()
+        throws Exception
+    {
+        final String list = "# comment\n" + "a.Test +foo=1\n" + "\n"
+            + "  b.Test seeds=9 +bar\n";
+        final List<RegressionTest> tests = RegressionTest.parseTestList(
+            new StringReader(list), new long[] { 1, 2 });
+        assertEquals(3, tests.size());
+        assertEquals("a.Test", tests.get(0).getClassName());
+        assertEquals(1, tests.get(0).getSeed());
+        assertEquals(2, tests.get(1).getSeed());
+        assertEquals(Collections.singletonList("+foo=1"), tests.get(1)
+            .getArguments());
+        assertEquals("b.Test", tests.get(2).getClassName());
+        assertEquals(9, tests.get(2).getSeed());
+        assertTrue(Arrays.equals(new String[] { "b.Test", "+bar", "+seed=9" },
+            tests.get(2).getSimulationArguments()));
+    }
+
+    final public void testReportFormat()
+        throws Exception
+    {
+        final RegressionTest test = new RegressionTest("a.Test", 3, Arrays
+            .asList("+x=\"q\""));
+        final StringWriter out = new StringWriter();
+        final RegressionReport report = new RegressionReport(out);
+        report.write(new RegressionResult(test,
+            RegressionResult.Status.PASS, 100000, 500000000L, 1, null));
+        report.write(new RegressionResult(test,
+            RegressionResult.Status.FAIL, -1, 0, 0, "bad\tthing\n"));
+        final String[] lines = out.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("{\"test\":\"a.Test\",\"seed\":3,\"args\":[\"+x=\\\"q\\\"\"],"
+            + "\"status\":\"PASS\",\"simTime\":100000,\"wallMs\":500.000,"
+            + "\"cyclesPerSec\":2000.0,\"worker\":1}", lines[0]);
+        assertTrue(lines[1].endsWith(",\"message\":\"bad\\tthing\\n\"}"));
+    }
+
+    final public void testRun()
+        throws Exception
+    {
+        final String prefix = RegressionRunnerTest.class.getName() + "$";
+        final List<RegressionTest> tests = Arrays.asList(new RegressionTest(
+            prefix + "PassApp", 1, Collections.<String> emptyList()),
+            new RegressionTest(prefix + "FailApp", 2, Collections
+                .<String> emptyList()), new RegressionTest(prefix + "HangApp",
+                3, Collections.<String> emptyList()), new RegressionTest(prefix
+                + "PassApp", 4, Collections.<String> emptyList()),
+            new RegressionTest(prefix + "PassApp", 5, Collections
+                .<String> emptyList()));
+        final RegressionRunner runner = new RegressionRunner(2, 5000);
+        runner.setJvmArgs(Collections.singletonList("-ea"));
+        final StringWriter out = new StringWriter();
+        final List<RegressionResult> results = runner.run(tests,
+            new RegressionReport(out));
+        assertEquals(5, results.size());
+        assertEquals(5, out.toString().split("\n").length);
+
+        int passed = 0;
+        for (final RegressionResult result : results)
+        {
+            final long seed = result.getTest().getSeed();
+            if (seed == 2)
+            {
+                assertEquals(RegressionResult.Status.FAIL, result.getStatus());
+                assertTrue(result.getMessage().indexOf("expected failure") >= 0);
+            }
+            else if (seed == 3)
+            {
+                assertEquals(RegressionResult.Status.TIMEOUT, result
+                    .getStatus());
+            }
+            else
+            {
+                assertEquals(RegressionResult.Status.PASS, result.getStatus());
+                assertEquals(1000, result.getSimTime());
+                ++passed;
+            }
+        }
+        assertEquals(3, passed);
+    }
+}
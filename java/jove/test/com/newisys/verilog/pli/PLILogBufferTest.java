@@ -0,0 +1,134 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.verilog.pli;
+
+import java.io.ByteArrayOutputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests PLILogBuffer wrapping, overflow, and ordering of concurrent writers.
+ */
+public class PLILogBufferTest
+    extends TestCase
+{
+    private static final class BufferSink
+        implements PLILogBuffer.Sink
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int writes;
+
+        public void write(byte[] buf, int off, int len)
+        {
+            ++writes;
+            out.write(buf, off, len);
+        }
+    }
+
+    public static void main(String[] args)
+    {
+        junit.textui.TestRunner.run(PLILogBufferTest.class);
+    }
+
+    public PLILogBufferTest(String arg0)
+    {
+        super(arg0);
+    }
+
+    final public void testWrapAndOverflow()
+        throws Exception
+    {
+        PLILogBuffer buffer = new PLILogBuffer(6);
+        assertEquals(8, buffer.capacity());
+        assertTrue(buffer.isEmpty());
+
+        BufferSink sink = new BufferSink();
+        assertFalse(buffer.drainTo(sink));
+
+        byte[] abc = "abcdef".getBytes();
+        assertTrue(buffer.offer(abc, 0, 6));
+        assertFalse(buffer.offer(abc, 0, 3));
+        assertTrue(buffer.offer('!'));
+        assertTrue(buffer.drainTo(sink));
+        assertEquals("abcdef!", sink.out.toString());
+
+        // this write wraps around the end of the ring
+        sink.out.reset();
+        sink.writes = 0;
+        assertTrue(buffer.offer(abc, 1, 5));
+        assertTrue(buffer.drainTo(sink));
+        assertEquals("bcdef", sink.out.toString());
+        assertEquals(2, sink.writes);
+        assertTrue(buffer.isEmpty());
+    }
+
+    final public void testConcurrentWritersPreserveOrder()
+        throws Exception
+    {
+        final PLILogBuffer buffer = new PLILogBuffer(64);
+        final BufferSink sink = new BufferSink();
+        final int threadCount = 4;
+        final int lineCount = 500;
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; ++t)
+        {
+            final int id = t;
+            threads[t] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    for (int i = 0; i < lineCount; ++i)
+                    {
+                        byte[] line = (id + ":" + i + "\n").getBytes();
+                        while (!buffer.offer(line, 0, line.length))
+                        {
+                            Thread.yield();
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+
+        // drain concurrently with the writers
+        boolean running = true;
+        while (running)
+        {
+            running = false;
+            for (Thread thread : threads)
+            {
+                running |= thread.isAlive();
+            }
+            buffer.drainTo(sink);
+        }
+        buffer.drainTo(sink);
+
+        // lines are intact and each writer's lines are in order
+        int[] next = new int[threadCount];
+        String[] lines = sink.out.toString().split("\n");
+        assertEquals(threadCount * lineCount, lines.length);
+        for (String line : lines)
+        {
+            int colon = line.indexOf(':');
+            int id = Integer.parseInt(line.substring(0, colon));
+            assertEquals(next[id]++, Integer.parseInt(line.substring(colon + 1)));
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.newisys.verilog.util;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * Times wide multiply, divide, modulo, and shift operations on
+ * BitVectorBuffers, as done by ALU reference models and CRC/ECC checkers.
+ * Each operation is timed through the in-place BitVectorBuffer methods, and
+ * the equivalent BigInteger operation is timed for comparison. Results are
+ * reported in nanoseconds per operation for each vector width.
+ */
+public final class BitVectorArithmeticBenchmark
+{
+    private static final int[] WIDTHS = { 64, 128, 256, 1024 };
+    private static final int VECTOR_COUNT = 64;
+    private static final int WARMUP_ITERS = 20000;
+    private static final int TIMED_ITERS = 50000;
+    private static final int TIMED_RUNS = 5;
+
+    private interface Op
+    {
+        void run(int i);
+    }
+
+    private static long sink;
+
+    private static void time(String name, Op op)
+    {
+        for (int i = 0; i < WARMUP_ITERS; ++i)
+        {
+            op.run(i % VECTOR_COUNT);
+        }
+        // report the best of several runs to filter out GC and JIT noise
+        long best = Long.MAX_VALUE;
+        for (int rep = 0; rep < TIMED_RUNS; ++rep)
+        {
+            final long start = System.nanoTime();
+            for (int i = 0; i < TIMED_ITERS; ++i)
+            {
+                op.run(i % VECTOR_COUNT);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.println("  " + name + ": " + (best / TIMED_ITERS) + " ns");
+    }
+
+    public static void main(String[] args)
+    {
+        final Random random = new Random(0);
+        for (final int width : WIDTHS)
+        {
+            System.out.println(width + " bits:");
+            final BitVector[] lhs = new BitVector[VECTOR_COUNT];
+            final BitVectorBuffer[] rhs = new BitVectorBuffer[VECTOR_COUNT];
+            final BigInteger[] bigLhs = new BigInteger[VECTOR_COUNT];
+            final BigInteger[] bigRhs = new BigInteger[VECTOR_COUNT];
+            final BigInteger mask = BigInteger.ONE.shiftLeft(width).subtract(
+                BigInteger.ONE);
+            for (int i = 0; i < VECTOR_COUNT; ++i)
+            {
+                bigLhs[i] = new BigInteger(width, random);
+                // divisors are about half as wide as dividends
+                bigRhs[i] = new BigInteger(width / 2, random).setBit(0);
+                lhs[i] = new BitVector(width + "'h"
+                    + bigLhs[i].toString(16));
+                rhs[i] = new BitVectorBuffer(width + "'h"
+                    + bigRhs[i].toString(16));
+            }
+            final BitVectorBuffer acc = new BitVectorBuffer(width);
+
+            time("multiplyAssign", new Op()
+            {
+                public void run(int i)
+                {
+                    acc.assign(lhs[i]);
+                    sink += acc.multiplyAssign(rhs[i]).intValue();
+                }
+            });
+            time("BigInteger multiply", new Op()
+            {
+                public void run(int i)
+                {
+                    sink += bigLhs[i].multiply(bigRhs[i]).and(mask).intValue();
+                }
+            });
+            time("divideAssign", new Op()
+            {
+                public void run(int i)
+                {
+                    acc.assign(lhs[i]);
+                    sink += acc.divideAssign(rhs[i]).intValue();
+                }
+            });
+            time("BigInteger divide", new Op()
+            {
+                public void run(int i)
+                {
+                    sink += bigLhs[i].divide(bigRhs[i]).intValue();
+                }
+            });
+            time("modAssign", new Op()
+            {
+                public void run(int i)
+                {
+                    acc.assign(lhs[i]);
+                    sink += acc.modAssign(rhs[i]).intValue();
+                }
+            });
+            time("shiftLeft", new Op()
+            {
+                public void run(int i)
+                {
+                    acc.assign(lhs[i]);
+                    sink += acc.shiftLeft(i * 7 % width).intValue();
+                }
+            });
+            time("shiftRight", new Op()
+            {
+                public void run(int i)
+                {
+                    acc.assign(lhs[i]);
+                    sink += acc.shiftRight(i * 7 % width).intValue();
+                }
+            });
+        }
+        if (sink == 42) System.out.println();
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.newisys.verilog.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * Times formatting and parsing of wide BitVectors in each radix, as done when
+ * dumping scoreboards and logging transactions with %d and %h. Results are
+ * reported in nanoseconds per operation for each vector width.
+ */
+public final class BitVectorFormatBenchmark
+{
+    private static final int[] WIDTHS = { 32, 128, 256, 512 };
+    private static final int[] RADICES = { 2, 8, 10, 16 };
+    private static final int VECTOR_COUNT = 64;
+    private static final int WARMUP_ITERS = 2000;
+    private static final int TIMED_ITERS = 10000;
+
+    // discards output while counting characters so that work is not elided
+    private static final class NullWriter
+        extends Writer
+    {
+        long count;
+
+        @Override
+        public void write(char[] cbuf, int off, int len)
+        {
+            count += len;
+        }
+
+        @Override
+        public Writer append(CharSequence csq)
+        {
+            count += csq.length();
+            return this;
+        }
+
+        @Override
+        public void flush()
+        {
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+
+    private static long sink;
+
+    private static BitVector[] createVectors(int width, Random random)
+    {
+        final BitVector[] vectors = new BitVector[VECTOR_COUNT];
+        for (int i = 0; i < VECTOR_COUNT; ++i)
+        {
+            vectors[i] = new BitVector(width + "'h"
+                + new BigInteger(width, random).toString(16));
+        }
+        return vectors;
+    }
+
+    private static void timeFormat(BitVector[] vectors, int radix)
+    {
+        final BitVectorFormat fmt = new BitVectorFormat();
+        for (int i = 0; i < WARMUP_ITERS; ++i)
+        {
+            sink += fmt.format(vectors[i % VECTOR_COUNT], radix).length();
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < TIMED_ITERS; ++i)
+        {
+            sink += fmt.format(vectors[i % VECTOR_COUNT], radix).length();
+        }
+        final long elapsed = System.nanoTime() - start;
+        System.out.println("  format radix " + radix + ": "
+            + (elapsed / TIMED_ITERS) + " ns");
+    }
+
+    private static void timeAppend(BitVector[] vectors, int radix)
+        throws IOException
+    {
+        final BitVectorFormat fmt = new BitVectorFormat();
+        final NullWriter out = new NullWriter();
+        for (int i = 0; i < WARMUP_ITERS; ++i)
+        {
+            fmt.format(vectors[i % VECTOR_COUNT], radix, out);
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < TIMED_ITERS; ++i)
+        {
+            fmt.format(vectors[i % VECTOR_COUNT], radix, out);
+        }
+        final long elapsed = System.nanoTime() - start;
+        sink += out.count;
+        System.out.println("  append radix " + radix + ": "
+            + (elapsed / TIMED_ITERS) + " ns");
+    }
+
+    private static void timeParse(BitVector[] vectors, int radix)
+    {
+        final BitVectorFormat fmt = new BitVectorFormat();
+        final String[] strs = new String[VECTOR_COUNT];
+        for (int i = 0; i < VECTOR_COUNT; ++i)
+        {
+            strs[i] = fmt.format(vectors[i], radix);
+        }
+        for (int i = 0; i < WARMUP_ITERS; ++i)
+        {
+            sink += fmt.parse(strs[i % VECTOR_COUNT]).length();
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < TIMED_ITERS; ++i)
+        {
+            sink += fmt.parse(strs[i % VECTOR_COUNT]).length();
+        }
+        final long elapsed = System.nanoTime() - start;
+        System.out.println("  parse radix " + radix + ": "
+            + (elapsed / TIMED_ITERS) + " ns");
+    }
+
+    public static void main(String[] args)
+        throws IOException
+    {
+        final Random random = new Random(0);
+        for (final int width : WIDTHS)
+        {
+            System.out.println(width + " bits:");
+            final BitVector[] vectors = createVectors(width, random);
+            for (final int radix : RADICES)
+            {
+                timeFormat(vectors, radix);
+                timeAppend(vectors, radix);
+                timeParse(vectors, radix);
+            }
+        }
+        if (sink == 42) System.out.println();
+    }
+}
@@ -208,6 +208,45 @@ public class BitVectorFormatTest
         assertEquals("1234", myFmt.format(bv));
     }
 
+    public void testWideValues()
+    {
+        // octal digits straddling word boundaries
+        BitVector vector = new BitVector("33'h100000000");
+        assertEquals("33'o40000000000", myFmt.format(vector, 8));
+        vector = new BitVector("66'h3_0000_0000_0000_0001");
+        assertEquals("66'o6000000000000000000001", myFmt.format(vector, 8));
+        vector = new BitVector("36'hx00000000");
+        assertEquals("36'oX?0000000000", myFmt.format(vector, 8));
+
+        // decimal values spanning several base 10^9 chunks
+        final String dec128 = "340282366920938463463374607431768211455";
+        vector = new BitVector("128'hffff_ffff_ffff_ffff_ffff_ffff_ffff_ffff");
+        assertEquals("128'd" + dec128, myFmt.format(vector, 10));
+        assertEquals(vector, myFmt.parse("128'd" + dec128));
+        vector = new BitVector("96'h1_0000_0000_0000_0000");
+        assertEquals("96'd18446744073709551616", myFmt.format(vector, 10));
+        vector = new BitVector("96'h3b9aca00_00000000");
+        assertEquals("96'd4294967296000000000", myFmt.format(vector, 10));
+        assertEquals(vector, myFmt.parse("96'd4294967296000000000"));
+        assertEquals("100'd0", myFmt.format(new BitVector(100, 0), 10));
+
+        // decimal values are truncated to the vector length
+        assertEquals(new BitVector("8'h01"), myFmt.parse("8'd257"));
+        assertEquals(new BitVector("70'h3f_ffff_ffff_ffff_ffff"), myFmt
+            .parse("-70'd1"));
+    }
+
+    public void testFormatAppendable()
+        throws Exception
+    {
+        final BitVector vector = new BitVector("16'b00001111xxxxzzzz");
+        final java.io.StringWriter writer = new java.io.StringWriter();
+        myFmt.format(vector, 8, writer);
+        writer.write(' ');
+        myFmt.format(new BitVector("72'hff_0000_0000_0000_0001"), 10, writer);
+        assertEquals("16'o07??Z 72'd4703919738795935662081", writer.toString());
+    }
+
     public void testCapitalization()
     {
         myFmt.setRadix(16);
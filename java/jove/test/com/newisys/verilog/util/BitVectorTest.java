@@ -18,6 +18,7 @@
 
 package com.newisys.verilog.util;
 
+import java.math.BigInteger;
 import java.util.Random;
 
 import junit.framework.TestCase;
@@ -1398,6 +1399,108 @@ public class BitVectorTest
         assertEquals("40'h30", result.toString());
     }
 
+    private static BitVector toBitVector(BigInteger value, int length)
+    {
+        return new BitVector(length + "'h" + value.toString(16));
+    }
+
+    private static BigInteger toBigInteger(BitVector vect)
+    {
+        final String str = vect.toString(16);
+        return new BigInteger(str.substring(str.indexOf('h') + 1), 16);
+    }
+
+    public void testWideArithmetic()
+    {
+        // operand widths straddle word boundaries and the Karatsuba threshold
+        final int[] widths = { 33, 64, 65, 128, 250, 1024, 1500, 2100, 4096 };
+        final Random random = new Random(42);
+        for (int i = 0; i < 400; ++i)
+        {
+            final int w1 = widths[random.nextInt(widths.length)];
+            final int w2 = widths[random.nextInt(widths.length)];
+            final int len = Math.max(w1, w2);
+            final BigInteger mask = BigInteger.ONE.shiftLeft(len).subtract(
+                BigInteger.ONE);
+            final BigInteger b1 = new BigInteger(1 + random.nextInt(w1), random);
+            final BigInteger b2 = new BigInteger(1 + random.nextInt(w2), random)
+                .add(BigInteger.ONE).and(
+                    BigInteger.ONE.shiftLeft(w2).subtract(BigInteger.ONE));
+            final BitVector v1 = toBitVector(b1, w1);
+            final BitVector v2 = toBitVector(b2, w2);
+
+            final BitVector product = v1.multiply(v2);
+            assertEquals(len, product.length());
+            assertEquals(b1.multiply(b2).and(mask), toBigInteger(product));
+            if (b2.signum() != 0)
+            {
+                assertEquals(b1.divide(b2), toBigInteger(v1.divide(v2)));
+                assertEquals(b1.mod(b2), toBigInteger(v1.mod(v2)));
+            }
+
+            final int shift = random.nextInt(w1 + 40);
+            assertEquals(b1.shiftLeft(shift).and(
+                BigInteger.ONE.shiftLeft(w1).subtract(BigInteger.ONE)),
+                toBigInteger(v1.shiftLeft(shift)));
+            assertEquals(b1.shiftRight(shift), toBigInteger(v1
+                .shiftRight(shift)));
+        }
+
+        // divisor with the top bit of a word set exercises the
+        // add-back step of long division
+        BitVector dividend = new BitVector(
+            "128'h7fffffff_80000000_00000000_00000000");
+        BitVector divisor = new BitVector("96'h80000000_00000000_00000001");
+        assertEquals("128'hfffffffe", dividend.divide(divisor).toString());
+        assertEquals("128'h7fffffffffffffff00000002", dividend.mod(divisor)
+            .toString());
+
+        // X and Z propagate as before for wide operands
+        BitVector wide = new BitVector(100, Bit.ONE);
+        assertEquals("100'hX", wide.multiply(new BitVector("4'b01xz"))
+            .toString());
+        assertEquals("100'hZ", wide.divide(new BitVector("4'b01zz"))
+            .toString());
+        assertEquals("100'h0", new BitVector(100, Bit.ZERO).mod(wide)
+            .toString());
+    }
+
+    public void testArithmeticAssign()
+    {
+        final BitVectorBuffer buf = new BitVectorBuffer(
+            "96'h1_00000000_00000003");
+        final BitVectorBuffer operand = new BitVectorBuffer(64, 3);
+        buf.multiplyAssign(operand);
+        assertEquals("96'h30000000000000009", buf.toString());
+        buf.divideAssign(operand);
+        assertEquals("96'h10000000000000003", buf.toString());
+        buf.addAssign(operand);
+        assertEquals("96'h10000000000000006", buf.toString());
+        buf.subtractAssign(new BitVectorBuffer(8, 7));
+        assertEquals("96'hffffffffffffffff", buf.toString());
+        buf.modAssign(new BitVectorBuffer(32, 0x10000));
+        assertEquals("96'hffff", buf.toString());
+
+        // the operand may alias the destination
+        buf.multiplyAssign(buf);
+        assertEquals("96'hfffe0001", buf.toString());
+        buf.divideAssign(buf);
+        assertEquals("96'h1", buf.toString());
+
+        // X/Z rules match the BitVector-based methods
+        buf.multiplyAssign(new BitVectorBuffer("4'b1z00"));
+        assertEquals("96'hZ", buf.toString());
+        try
+        {
+            buf.divideAssign(new BitVectorBuffer(32, 0));
+            fail("Expected ArithmeticException");
+        }
+        catch (ArithmeticException e)
+        {
+            // expected
+        }
+    }
+
     public void testZipUnzip()
     {
         /*
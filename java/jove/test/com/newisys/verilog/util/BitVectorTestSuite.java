@@ -30,6 +30,7 @@ public class BitVectorTestSuite
         //$JUnit-BEGIN$
         suite.addTestSuite(BitVectorFormatTest.class);
         suite.addTestSuite(BitVectorTest.class);
+        suite.addTestSuite(BitVectorViewTest.class);
         //$JUnit-END$
         return suite;
     }
@@ -0,0 +1,92 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.verilog.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import junit.framework.TestCase;
+
+/**
+ * BitVectorViewTest
+ */
+public class BitVectorViewTest
+    extends TestCase
+{
+    private ByteBuffer buf;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        buf = ByteBuffer.allocateDirect(64).order(ByteOrder.nativeOrder());
+    }
+
+    public void testVecvalLayout()
+    {
+        // write words the way the native library copies s_vpi_vecval
+        // structures: { aval, bval } pairs in native byte order
+        buf.putInt(8, 0xFFFFFF05); // aval word 0 (extra bits set)
+        buf.putInt(12, 0x00000006); // bval word 0
+        BitVectorView view = new BitVectorView(buf, 8, 4);
+        assertEquals(1, view.getWordCount());
+        assertEquals(Bit.ONE, view.getBit(0));
+        assertEquals(Bit.Z, view.getBit(1));
+        assertEquals(Bit.X, view.getBit(2));
+        assertEquals(Bit.ZERO, view.getBit(3));
+        assertTrue(view.containsXZ());
+        assertTrue(view.toBitVector().equalsExact(new BitVector("4'b0xz1")));
+        assertTrue(view.contentEquals(new BitVector("4'b0xz1")));
+        assertFalse(view.contentEquals(new BitVector("4'b0xx1")));
+    }
+
+    public void testSet()
+    {
+        BitVectorView view = new BitVectorView(buf, 16, 40);
+        assertEquals(2, view.getWordCount());
+
+        BitVector vector = new BitVector("40'hx0_1234_5678");
+        view.set(vector);
+        assertEquals(0x12345678, buf.getInt(16));
+        assertEquals(0, buf.getInt(20));
+        assertEquals(0xF0, buf.getInt(24));
+        assertEquals(0xF0, buf.getInt(28));
+        assertTrue(view.contentEquals(vector));
+        assertTrue(vector.equalsExact(view.toBitVector()));
+
+        // shorter values are zero-extended
+        view.set(new BitVector(8, 0xA5));
+        assertEquals(0xA5L, view.longValue());
+        assertFalse(view.containsXZ());
+
+        view.set(0x123456789AL);
+        assertEquals(0x123456789AL, view.longValue());
+
+        try
+        {
+            new BitVectorView(buf, 60, 33);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,462 @@
+/*
+ * LangSchema-Java - Programming Language Modeling Classes for Java (TM)
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.langschema.java;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal reader for the declaration-level contents of a Java class file:
+ * access flags, supertypes, generic signatures, member descriptors, thrown
+ * exceptions, nesting information, and runtime-visible annotations. Method
+ * bodies and all other attributes are skipped. Reading a class file does not
+ * load or initialize the class it describes.
+ * 
+ * @author Trevor Robinson
+ */
+final class ClassFile
+{
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_PROTECTED = 0x0004;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SYNCHRONIZED = 0x0020;
+    static final int ACC_VARARGS = 0x0080;
+    static final int ACC_NATIVE = 0x0100;
+    static final int ACC_INTERFACE = 0x0200;
+    static final int ACC_ABSTRACT = 0x0400;
+    static final int ACC_STRICT = 0x0800;
+    static final int ACC_SYNTHETIC = 0x1000;
+    static final int ACC_ANNOTATION = 0x2000;
+    static final int ACC_ENUM = 0x4000;
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int CONSTANT_Utf8 = 1;
+    private static final int CONSTANT_Integer = 3;
+    private static final int CONSTANT_Float = 4;
+    private static final int CONSTANT_Long = 5;
+    private static final int CONSTANT_Double = 6;
+    private static final int CONSTANT_Class = 7;
+    private static final int CONSTANT_String = 8;
+    private static final int CONSTANT_MethodHandle = 15;
+    private static final int CONSTANT_MethodType = 16;
+    private static final int CONSTANT_Module = 19;
+    private static final int CONSTANT_Package = 20;
+
+    /**
+     * A field or method declared by a class file.
+     */
+    static final class Member
+    {
+        int access;
+        String name;
+        String descriptor;
+        String signature;
+        String[] exceptions;
+        ElementValue defaultValue;
+
+        boolean isSynthetic()
+        {
+            return (access & ACC_SYNTHETIC) != 0;
+        }
+    }
+
+    /**
+     * A runtime-visible annotation. Only explicitly specified element values
+     * are present.
+     */
+    static final class AnnotationInfo
+    {
+        String typeDescriptor;
+        final Map<String, ElementValue> values = new LinkedHashMap<String, ElementValue>();
+    }
+
+    /**
+     * An annotation element value. The value is a boxed constant for
+     * primitive and string tags, a descriptor string for class literals, a
+     * two-element array of type descriptor and constant name for enum
+     * constants, an AnnotationInfo for nested annotations, or an array of
+     * ElementValue for arrays.
+     */
+    static final class ElementValue
+    {
+        final char tag;
+        final Object value;
+
+        ElementValue(char tag, Object value)
+        {
+            this.tag = tag;
+            this.value = value;
+        }
+    }
+
+    // binary names use '.' as the package separator (e.g. java.util.Map$Entry)
+    String name;
+    String superName;
+    String[] interfaceNames;
+    int access;
+    String signature;
+    String outerName;
+    final List<Member> fields = new LinkedList<Member>();
+    final List<Member> methods = new LinkedList<Member>();
+    final List<AnnotationInfo> annotations = new LinkedList<AnnotationInfo>();
+
+    private DataInputStream in;
+    private Object[] constants;
+    private int[] classIndexes;
+
+    private ClassFile()
+    {
+    }
+
+    /**
+     * Reads the class file for the given binary class name as a resource of
+     * the given class loader.
+     *
+     * @param qname the binary name of the class
+     * @param loader the class loader to read from, or null for the system
+     *            class loader
+     * @return the parsed class file
+     * @throws ClassNotFoundException if the class file cannot be found or read
+     */
+    static ClassFile read(String qname, ClassLoader loader)
+        throws ClassNotFoundException
+    {
+        final String path = qname.replace('.', '/') + ".class";
+        final InputStream is = loader != null ? loader
+            .getResourceAsStream(path) : ClassLoader
+            .getSystemResourceAsStream(path);
+        if (is == null)
+        {
+            throw new ClassNotFoundException(qname);
+        }
+        try
+        {
+            final ClassFile cf = new ClassFile();
+            cf.parse(readFully(is));
+            return cf;
+        }
+        catch (IOException e)
+        {
+            throw new ClassNotFoundException(qname, e);
+        }
+        finally
+        {
+            try
+            {
+                is.close();
+            }
+            catch (IOException e)
+            {
+                // ignored
+            }
+        }
+    }
+
+    private static byte[] readFully(InputStream is)
+        throws IOException
+    {
+        byte[] buf = new byte[Math.max(is.available(), 4096)];
+        int len = 0;
+        int count;
+        while ((count = is.read(buf, len, buf.length - len)) > 0)
+        {
+            len += count;
+            if (len == buf.length)
+            {
+                final byte[] newBuf = new byte[buf.length * 2];
+                System.arraycopy(buf, 0, newBuf, 0, len);
+                buf = newBuf;
+            }
+        }
+        final byte[] result = new byte[len];
+        System.arraycopy(buf, 0, result, 0, len);
+        return result;
+    }
+
+    private void parse(byte[] bytes)
+        throws IOException
+    {
+        in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readInt() != MAGIC)
+        {
+            throw new IOException("Invalid class file magic number");
+        }
+        in.readUnsignedShort(); // minor_version
+        in.readUnsignedShort(); // major_version
+        readConstantPool();
+
+        access = in.readUnsignedShort();
+        name = getClassName(in.readUnsignedShort());
+        superName = getClassName(in.readUnsignedShort());
+        final int intfCount = in.readUnsignedShort();
+        interfaceNames = new String[intfCount];
+        for (int i = 0; i < intfCount; ++i)
+        {
+            interfaceNames[i] = getClassName(in.readUnsignedShort());
+        }
+
+        readMembers(fields);
+        readMembers(methods);
+
+        final int attrCount = in.readUnsignedShort();
+        for (int i = 0; i < attrCount; ++i)
+        {
+            final String attrName = getUtf8(in.readUnsignedShort());
+            final int attrLen = in.readInt();
+            if (attrName.equals("Signature"))
+            {
+                signature = getUtf8(in.readUnsignedShort());
+            }
+            else if (attrName.equals("Synthetic"))
+            {
+                access |= ACC_SYNTHETIC;
+            }
+            else if (attrName.equals("InnerClasses"))
+            {
+                readInnerClasses();
+            }
+            else if (attrName.equals("RuntimeVisibleAnnotations"))
+            {
+                final int annCount = in.readUnsignedShort();
+                for (int j = 0; j < annCount; ++j)
+                {
+                    annotations.add(readAnnotation());
+                }
+            }
+            else
+            {
+                skip(attrLen);
+            }
+        }
+
+        // release parsing state; only the extracted declarations are retained
+        in = null;
+        constants = null;
+        classIndexes = null;
+    }
+
+    private void readConstantPool()
+        throws IOException
+    {
+        final int count = in.readUnsignedShort();
+        constants = new Object[count];
+        classIndexes = new int[count];
+        for (int i = 1; i < count; ++i)
+        {
+            final int tag = in.readUnsignedByte();
+            switch (tag)
+            {
+            case CONSTANT_Utf8:
+                constants[i] = in.readUTF();
+                break;
+            case CONSTANT_Integer:
+                constants[i] = Integer.valueOf(in.readInt());
+                break;
+            case CONSTANT_Float:
+                constants[i] = Float.valueOf(in.readFloat());
+                break;
+            case CONSTANT_Long:
+                constants[i++] = Long.valueOf(in.readLong());
+                break;
+            case CONSTANT_Double:
+                constants[i++] = Double.valueOf(in.readDouble());
+                break;
+            case CONSTANT_Class:
+                classIndexes[i] = in.readUnsignedShort();
+                break;
+            case CONSTANT_String:
+            case CONSTANT_MethodType:
+            case CONSTANT_Module:
+            case CONSTANT_Package:
+                in.readUnsignedShort();
+                break;
+            case CONSTANT_MethodHandle:
+                skip(3);
+                break;
+            default:
+                // field/method/interface method refs, name-and-type, and
+                // (invoke-)dynamic entries are all two u2 indexes
+                if (tag < 9 || tag > 18)
+                {
+                    throw new IOException("Invalid constant pool tag " + tag);
+                }
+                skip(4);
+            }
+        }
+    }
+
+    private void readMembers(List<Member> list)
+        throws IOException
+    {
+        final int count = in.readUnsignedShort();
+        for (int i = 0; i < count; ++i)
+        {
+            final Member member = new Member();
+            member.access = in.readUnsignedShort();
+            member.name = getUtf8(in.readUnsignedShort());
+            member.descriptor = getUtf8(in.readUnsignedShort());
+            final int attrCount = in.readUnsignedShort();
+            for (int j = 0; j < attrCount; ++j)
+            {
+                final String attrName = getUtf8(in.readUnsignedShort());
+                final int attrLen = in.readInt();
+                if (attrName.equals("Signature"))
+                {
+                    member.signature = getUtf8(in.readUnsignedShort());
+                }
+                else if (attrName.equals("Synthetic"))
+                {
+                    member.access |= ACC_SYNTHETIC;
+                }
+                else if (attrName.equals("Exceptions"))
+                {
+                    final int excCount = in.readUnsignedShort();
+                    member.exceptions = new String[excCount];
+                    for (int k = 0; k < excCount; ++k)
+                    {
+                        member.exceptions[k] = getClassName(in
+                            .readUnsignedShort());
+                    }
+                }
+                else if (attrName.equals("AnnotationDefault"))
+                {
+                    member.defaultValue = readElementValue();
+                }
+                else
+                {
+                    skip(attrLen);
+                }
+            }
+            list.add(member);
+        }
+    }
+
+    private void readInnerClasses()
+        throws IOException
+    {
+        final int count = in.readUnsignedShort();
+        for (int i = 0; i < count; ++i)
+        {
+            final int innerIndex = in.readUnsignedShort();
+            final int outerIndex = in.readUnsignedShort();
+            in.readUnsignedShort(); // inner_name_index
+            final int innerAccess = in.readUnsignedShort();
+            if (name.equals(getClassName(innerIndex)))
+            {
+                // like Class.getModifiers(), use the access flags from the
+                // source declaration, which include private/protected/static
+                access = innerAccess | (access & ACC_SYNTHETIC);
+                if (outerIndex != 0)
+                {
+                    outerName = getClassName(outerIndex);
+                }
+            }
+        }
+    }
+
+    private AnnotationInfo readAnnotation()
+        throws IOException
+    {
+        final AnnotationInfo ann = new AnnotationInfo();
+        ann.typeDescriptor = getUtf8(in.readUnsignedShort());
+        final int count = in.readUnsignedShort();
+        for (int i = 0; i < count; ++i)
+        {
+            final String elemName = getUtf8(in.readUnsignedShort());
+            ann.values.put(elemName, readElementValue());
+        }
+        return ann;
+    }
+
+    private ElementValue readElementValue()
+        throws IOException
+    {
+        final char tag = (char) in.readUnsignedByte();
+        final Object value;
+        switch (tag)
+        {
+        case 'B':
+        case 'C':
+        case 'D':
+        case 'F':
+        case 'I':
+        case 'J':
+        case 'S':
+        case 'Z':
+            value = constants[in.readUnsignedShort()];
+            break;
+        case 's':
+        case 'c':
+            value = getUtf8(in.readUnsignedShort());
+            break;
+        case 'e':
+            final String typeDesc = getUtf8(in.readUnsignedShort());
+            final String constName = getUtf8(in.readUnsignedShort());
+            value = new String[] { typeDesc, constName };
+            break;
+        case '@':
+            value = readAnnotation();
+            break;
+        case '[':
+            final int count = in.readUnsignedShort();
+            final ElementValue[] elems = new ElementValue[count];
+            for (int i = 0; i < count; ++i)
+            {
+                elems[i] = readElementValue();
+            }
+            value = elems;
+            break;
+        default:
+            throw new IOException("Invalid element value tag '" + tag + "'");
+        }
+        return new ElementValue(tag, value);
+    }
+
+    private String getUtf8(int index)
+    {
+        return (String) constants[index];
+    }
+
+    private String getClassName(int index)
+    {
+        return index != 0 ? getUtf8(classIndexes[index]).replace('/', '.')
+            : null;
+    }
+
+    private void skip(int count)
+        throws IOException
+    {
+        while (count > 0)
+        {
+            final int skipped = in.skipBytes(count);
+            if (skipped <= 0) throw new EOFException();
+            count -= skipped;
+        }
+    }
+}
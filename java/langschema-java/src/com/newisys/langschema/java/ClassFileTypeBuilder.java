@@ -0,0 +1,821 @@
+/*
+ * LangSchema-Java - Programming Language Modeling Classes for Java (TM)
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.langschema.java;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds JavaSchema types from class file bytes rather than reflection.
+ * Classes are never loaded or initialized, and only the declaration of a type
+ * (its modifiers, type variables, supertypes, and annotations) is converted
+ * when the type is first referenced. Fields, constructors, and methods are
+ * converted on first access to the members of the type, so that the many
+ * types reachable only through signatures cost no more than a class file
+ * header read.
+ * 
+ * @author Trevor Robinson
+ */
+final class ClassFileTypeBuilder
+{
+    private final JavaSchema schema;
+    private final ClassLoader loader;
+
+    public ClassFileTypeBuilder(JavaSchema schema, ClassLoader loader)
+    {
+        this.schema = schema;
+        this.loader = loader;
+    }
+
+    public JavaRawStructuredType buildType(String qname)
+        throws ClassNotFoundException
+    {
+        final ClassFile cf = ClassFile.read(qname, loader);
+
+        // get type of outer class, if any; building the outer type may build
+        // this type if the outer declaration refers to it
+        JavaRawStructuredType outerType = null;
+        if (cf.outerName != null)
+        {
+            outerType = schema.getTypeForClass(cf.outerName);
+            final JavaRawStructuredType type = schema.findTypeForClass(qname);
+            if (type != null) return type;
+        }
+
+        // get name of type
+        String typeID = qname;
+        int lastDot = typeID.lastIndexOf('.');
+        int lastDollar = typeID.lastIndexOf('$');
+        int lastDelim = Math.max(lastDot, lastDollar);
+        if (lastDelim >= 0) typeID = typeID.substring(lastDelim + 1);
+
+        // get JavaPackage object corresponding to package of class
+        final JavaPackage pkg = lastDot >= 0 ? schema.getPackage(qname
+            .substring(0, lastDot), true) : null;
+
+        // create type object
+        final int access = cf.access;
+        final JavaRawStructuredType type;
+        if ((access & ClassFile.ACC_ANNOTATION) != 0)
+        {
+            type = new JavaAnnotationType(schema, typeID, pkg);
+        }
+        else if ((access & ClassFile.ACC_INTERFACE) != 0)
+        {
+            type = new JavaRawInterface(schema, typeID, pkg);
+        }
+        else if ((access & ClassFile.ACC_ENUM) != 0
+            && "java.lang.Enum".equals(cf.superName))
+        {
+            // constant-specific class bodies also have ACC_ENUM set, but
+            // (like Class.isEnum()) only direct subclasses of Enum are enums
+            type = new JavaEnum(schema, typeID, pkg);
+        }
+        else
+        {
+            type = new JavaRawClass(schema, typeID, pkg);
+        }
+
+        // cache type by binary name before converting its declaration, which
+        // may refer to it; local classes are added to their package under
+        // names that findTypeForClass cannot resolve by scope
+        schema.cacheTypeForClass(qname, type);
+
+        if (outerType != null)
+        {
+            // add nested type to outer type
+            addNestedType(outerType, type);
+        }
+        else if (pkg != null)
+        {
+            // add top-level type to package
+            pkg.addMember(type);
+        }
+        else
+        {
+            // add top-level type in unnamed package to schema
+            schema.addMember(type);
+        }
+
+        // get type variables
+        final Map<String, JavaTypeVariable> typeVars = new LinkedHashMap<String, JavaTypeVariable>();
+        final SignatureReader sig = cf.signature != null ? new SignatureReader(
+            cf.signature, type, typeVars) : null;
+        if (sig != null)
+        {
+            sig.readTypeParameters((JavaGenericDeclaration) type);
+        }
+
+        // get modifiers
+        if ((access & ClassFile.ACC_PUBLIC) != 0)
+        {
+            type.setVisibility(JavaVisibility.PUBLIC);
+        }
+        else if ((access & ClassFile.ACC_PROTECTED) != 0)
+        {
+            type.setVisibility(JavaVisibility.PROTECTED);
+        }
+        else if ((access & ClassFile.ACC_PRIVATE) != 0)
+        {
+            type.setVisibility(JavaVisibility.PRIVATE);
+        }
+        if ((access & ClassFile.ACC_ABSTRACT) != 0)
+        {
+            type.addModifier(JavaTypeModifier.ABSTRACT);
+        }
+        if ((access & ClassFile.ACC_FINAL) != 0)
+        {
+            type.addModifier(JavaTypeModifier.FINAL);
+        }
+        if ((access & ClassFile.ACC_STATIC) != 0)
+        {
+            type.addModifier(JavaTypeModifier.STATIC);
+        }
+        if ((access & ClassFile.ACC_STRICT) != 0)
+        {
+            type.addModifier(JavaTypeModifier.STRICTFP);
+        }
+
+        // get base class, if any (the generic signature of an interface
+        // always names Object as its superclass, which is ignored)
+        final JavaType baseCls = sig != null ? sig.readType()
+            : cf.superName != null ? schema.getTypeForClass(cf.superName)
+                : null;
+        if (type instanceof JavaRawClass && baseCls != null)
+        {
+            // constant-specific class bodies have an enum base class
+            ((JavaRawClass) type).setBaseClass((JavaAbstractClass) baseCls);
+        }
+
+        // get base interfaces
+        if (!(type instanceof JavaAnnotationType))
+        {
+            for (int i = 0; i < cf.interfaceNames.length; ++i)
+            {
+                final JavaType intf = sig != null ? sig.readType() : schema
+                    .getTypeForClass(cf.interfaceNames[i]);
+                type.addBaseInterface((JavaInterface) intf);
+            }
+        }
+
+        // defer fields, constructors, and methods until first accessed
+        ((JavaStructuredTypeImpl) type).setMemberLoader(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    buildMembers(type, cf, typeVars);
+                }
+                catch (ClassNotFoundException e)
+                {
+                    // same error reflection reports for a missing member type
+                    final NoClassDefFoundError error = new NoClassDefFoundError(
+                        e.getMessage());
+                    error.initCause(e);
+                    throw error;
+                }
+            }
+        });
+
+        // add annotations (must be done after the member loader is installed
+        // for self-annotated annotations, such as Retention)
+        for (final ClassFile.AnnotationInfo ann : cf.annotations)
+        {
+            try
+            {
+                type.addAnnotation(buildAnnotation(ann));
+            }
+            catch (ClassNotFoundException e)
+            {
+                // like reflection, ignore annotations whose type is missing
+            }
+        }
+
+        return type;
+    }
+
+    // every kind of structured type accepts nested types as members, but the
+    // member type parameter of the raw outer type is not known here
+    @SuppressWarnings("unchecked")
+    private static void addNestedType(
+        JavaRawStructuredType outerType,
+        JavaRawStructuredType type)
+    {
+        outerType.addMember(type);
+    }
+
+    private void buildMembers(
+        JavaRawStructuredType type,
+        ClassFile cf,
+        Map<String, JavaTypeVariable> typeVars)
+        throws ClassNotFoundException
+    {
+        // get member fields
+        for (final ClassFile.Member field : cf.fields)
+        {
+            buildField(type, field, typeVars);
+        }
+
+        // get member constructors
+        for (final ClassFile.Member method : cf.methods)
+        {
+            if (method.name.equals("<init>"))
+            {
+                buildConstructor((JavaRawAbstractClass) type, method, typeVars);
+            }
+        }
+
+        // get member methods
+        for (final ClassFile.Member method : cf.methods)
+        {
+            if (!method.name.startsWith("<"))
+            {
+                buildMethod(type, method, typeVars);
+            }
+        }
+    }
+
+    private void buildField(
+        JavaRawStructuredType type,
+        ClassFile.Member field,
+        Map<String, JavaTypeVariable> typeVars)
+        throws ClassNotFoundException
+    {
+        // ignore synthetic and private fields
+        final int access = field.access;
+        if (field.isSynthetic() || (access & ClassFile.ACC_PRIVATE) != 0)
+        {
+            return;
+        }
+
+        // create schema field
+        final JavaMemberVariable var;
+        if ((access & ClassFile.ACC_ENUM) != 0 && type instanceof JavaEnum)
+        {
+            var = ((JavaEnum) type).newValue(field.name, false);
+        }
+        else
+        {
+            final String sig = field.signature != null ? field.signature
+                : field.descriptor;
+            var = type.newField(field.name, new SignatureReader(sig, type,
+                typeVars).readType());
+        }
+
+        // get modifiers
+        if ((access & ClassFile.ACC_PUBLIC) != 0)
+        {
+            var.setVisibility(JavaVisibility.PUBLIC);
+        }
+        else if ((access & ClassFile.ACC_PROTECTED) != 0)
+        {
+            var.setVisibility(JavaVisibility.PROTECTED);
+        }
+        if ((access & ClassFile.ACC_FINAL) != 0)
+        {
+            var.addModifier(JavaVariableModifier.FINAL);
+        }
+        if ((access & ClassFile.ACC_STATIC) != 0)
+        {
+            var.addModifier(JavaVariableModifier.STATIC);
+        }
+    }
+
+    private void buildConstructor(
+        JavaRawAbstractClass type,
+        ClassFile.Member ctor,
+        Map<String, JavaTypeVariable> typeVars)
+        throws ClassNotFoundException
+    {
+        // ignore synthetic and private constructors
+        final int access = ctor.access;
+        if (ctor.isSynthetic() || (access & ClassFile.ACC_PRIVATE) != 0)
+        {
+            return;
+        }
+
+        // create schema constructor
+        final JavaConstructor jctor = type.newConstructor();
+
+        // get modifiers
+        if ((access & ClassFile.ACC_PUBLIC) != 0)
+        {
+            jctor.setVisibility(JavaVisibility.PUBLIC);
+        }
+        else if ((access & ClassFile.ACC_PROTECTED) != 0)
+        {
+            jctor.setVisibility(JavaVisibility.PROTECTED);
+        }
+
+        // like reflection, use the generic signature if present (which omits
+        // synthetic outer instance and enum constructor arguments), and the
+        // erased descriptor otherwise
+        final String sigStr = ctor.signature != null ? ctor.signature
+            : ctor.descriptor;
+        final SignatureReader sig = new SignatureReader(sigStr, type, typeVars);
+        sig.readTypeParameters(null);
+        buildFunctionType(ctor, sig, jctor.getType());
+    }
+
+    private void buildMethod(
+        JavaRawStructuredType type,
+        ClassFile.Member method,
+        Map<String, JavaTypeVariable> typeVars)
+        throws ClassNotFoundException
+    {
+        // ignore synthetic (including bridge) and private methods
+        final int access = method.access;
+        if (method.isSynthetic() || (access & ClassFile.ACC_PRIVATE) != 0)
+        {
+            return;
+        }
+
+        // create schema method; method type variables are scoped to a copy
+        // of the class type variable map, and the return type is read before
+        // the arguments that precede it in the signature
+        final String sigStr = method.signature != null ? method.signature
+            : method.descriptor;
+        final SignatureReader sig = new SignatureReader(sigStr, type,
+            new LinkedHashMap<String, JavaTypeVariable>(typeVars));
+        sig.readTypeParameters(null);
+        final int argsPos = sig.getPosition();
+        sig.skipArguments();
+        final JavaFunction func = type.newMethod(method.name, sig.readType());
+        sig.setPosition(argsPos);
+
+        // get modifiers
+        if ((access & ClassFile.ACC_PUBLIC) != 0)
+        {
+            func.setVisibility(JavaVisibility.PUBLIC);
+        }
+        else if ((access & ClassFile.ACC_PROTECTED) != 0)
+        {
+            func.setVisibility(JavaVisibility.PROTECTED);
+        }
+        if ((access & ClassFile.ACC_ABSTRACT) != 0)
+        {
+            func.addModifier(JavaFunctionModifier.ABSTRACT);
+        }
+        if ((access & ClassFile.ACC_FINAL) != 0)
+        {
+            func.addModifier(JavaFunctionModifier.FINAL);
+        }
+        if ((access & ClassFile.ACC_NATIVE) != 0)
+        {
+            func.addModifier(JavaFunctionModifier.NATIVE);
+        }
+        if ((access & ClassFile.ACC_STATIC) != 0)
+        {
+            func.addModifier(JavaFunctionModifier.STATIC);
+        }
+        if ((access & ClassFile.ACC_STRICT) != 0)
+        {
+            func.addModifier(JavaFunctionModifier.STRICTFP);
+        }
+        if ((access & ClassFile.ACC_SYNCHRONIZED) != 0)
+        {
+            func.addModifier(JavaFunctionModifier.SYNCHRONIZED);
+        }
+
+        buildFunctionType(method, sig, func.getType());
+
+        // get default value (for annotation elements)
+        if (method.defaultValue != null)
+        {
+            func.setDefaultValue(getElementValue(method.defaultValue, func
+                .getType().getReturnType()));
+        }
+    }
+
+    private void buildFunctionType(
+        ClassFile.Member member,
+        SignatureReader sig,
+        JavaFunctionType funcType)
+        throws ClassNotFoundException
+    {
+        // get arguments
+        final List<JavaType> argTypes = sig.readArguments();
+        int argIndex = 0;
+        for (final JavaType argType : argTypes)
+        {
+            funcType.newArgument("arg" + argIndex++, argType);
+        }
+        if ((member.access & ClassFile.ACC_VARARGS) != 0)
+        {
+            funcType.setVarArgs(true);
+        }
+
+        // get exception types (from the signature only if it declares any)
+        sig.skipType();
+        final List<JavaType> excTypes = sig.readThrows();
+        if (excTypes.isEmpty() && member.exceptions != null)
+        {
+            for (final String excName : member.exceptions)
+            {
+                excTypes.add(schema.getTypeForClass(excName));
+            }
+        }
+        for (final JavaType excType : excTypes)
+        {
+            funcType.addExceptionType(getExceptionClass(excType));
+        }
+    }
+
+    private JavaClass getExceptionClass(JavaType type)
+    {
+        // a thrown type variable (e.g. <X extends Throwable> ... throws X) is
+        // represented by its erasure
+        while (type instanceof JavaTypeVariable)
+        {
+            final List<JavaTypeBound> bounds = ((JavaTypeVariable) type)
+                .getUpperBounds();
+            if (bounds.isEmpty())
+            {
+                return (JavaClass) schema
+                    .getTypeForSystemClass("java.lang.Throwable");
+            }
+            type = bounds.get(0);
+        }
+        return (JavaClass) type;
+    }
+
+    private JavaAnnotation buildAnnotation(ClassFile.AnnotationInfo ann)
+        throws ClassNotFoundException
+    {
+        final JavaAnnotationType jannType = (JavaAnnotationType) readDescriptor(ann.typeDescriptor);
+        final JavaAnnotation jann = new JavaAnnotation(jannType);
+        for (final Map.Entry<String, ClassFile.ElementValue> entry : ann.values
+            .entrySet())
+        {
+            final JavaFunction jmethod = jannType.getMethod(entry.getKey());
+            jann.setElementValue(jmethod, getElementValue(entry.getValue(),
+                jmethod.getType().getReturnType()));
+        }
+        return jann;
+    }
+
+    private JavaAnnotationElementValue getElementValue(
+        ClassFile.ElementValue value,
+        JavaType elemType)
+        throws ClassNotFoundException
+    {
+        final Object o = value.value;
+        switch (value.tag)
+        {
+        case 'B':
+            return schema.getExpressionForObject(Byte.valueOf(((Integer) o)
+                .byteValue()));
+        case 'C':
+            return schema.getExpressionForObject(Character
+                .valueOf((char) ((Integer) o).intValue()));
+        case 'S':
+            return schema.getExpressionForObject(Short.valueOf(((Integer) o)
+                .shortValue()));
+        case 'Z':
+            return schema.getExpressionForObject(Boolean
+                .valueOf(((Integer) o).intValue() != 0));
+        case 'c':
+            return new JavaTypeLiteral(readDescriptor((String) o));
+        case 'e':
+            final String[] enumRef = (String[]) o;
+            final JavaEnum je = (JavaEnum) readDescriptor(enumRef[0]);
+            return new JavaVariableReference(je.getField(enumRef[1]));
+        case '@':
+            return buildAnnotation((ClassFile.AnnotationInfo) o);
+        case '[':
+            final JavaArrayType arrayType = (JavaArrayType) elemType;
+            final JavaAnnotationArrayInitializer arrayInit = new JavaAnnotationArrayInitializer(
+                arrayType);
+            for (final ClassFile.ElementValue elem : (ClassFile.ElementValue[]) o)
+            {
+                arrayInit.addElement(getElementValue(elem, arrayType
+                    .getElementType()));
+            }
+            return arrayInit;
+        default:
+            // remaining tags are int, long, float, double, and string
+            // constants, which are stored in boxed form
+            return schema.getExpressionForObject(o);
+        }
+    }
+
+    private JavaType readDescriptor(String desc)
+        throws ClassNotFoundException
+    {
+        return new SignatureReader(desc, null, null).readType();
+    }
+
+    /**
+     * Converts generic signatures and (as a subset of the same grammar)
+     * descriptors into schema types. Type variable references are resolved
+     * against the given variable map and then the type variables of enclosing
+     * types.
+     */
+    private final class SignatureReader
+    {
+        private final String sig;
+        private final JavaRawStructuredType context;
+        private final Map<String, JavaTypeVariable> typeVars;
+        private int pos;
+
+        public SignatureReader(
+            String sig,
+            JavaRawStructuredType context,
+            Map<String, JavaTypeVariable> typeVars)
+        {
+            this.sig = sig;
+            this.context = context;
+            this.typeVars = typeVars;
+        }
+
+        public void readTypeParameters(JavaGenericDeclaration decl)
+            throws ClassNotFoundException
+        {
+            if (sig.charAt(pos) != '<') return;
+
+            // declare all variables before converting any bounds, since
+            // bounds may refer to the declaring type or to variables declared
+            // later in the list
+            final List<JavaTypeVariable> vars = new LinkedList<JavaTypeVariable>();
+            final int start = pos;
+            ++pos;
+            while (sig.charAt(pos) != '>')
+            {
+                final String name = readIdentifier();
+                final JavaTypeVariable var = new JavaTypeVariable(schema, name);
+                typeVars.put(name, var);
+                vars.add(var);
+                if (decl != null) decl.addTypeVariable(var);
+                while (sig.charAt(pos) == ':')
+                {
+                    ++pos;
+                    if (hasBound()) skipType();
+                }
+            }
+
+            pos = start + 1;
+            for (final JavaTypeVariable var : vars)
+            {
+                readIdentifier();
+                while (sig.charAt(pos) == ':')
+                {
+                    ++pos;
+                    // class bound is empty if only interface bounds are given
+                    if (hasBound())
+                    {
+                        var.addUpperBound((JavaTypeBound) readType());
+                    }
+                }
+            }
+            ++pos;
+        }
+
+        public int getPosition()
+        {
+            return pos;
+        }
+
+        public void setPosition(int pos)
+        {
+            this.pos = pos;
+        }
+
+        private boolean hasBound()
+        {
+            final char c = sig.charAt(pos);
+            return c == 'L' || c == 'T' || c == '[';
+        }
+
+        private String readIdentifier()
+        {
+            final int start = pos;
+            char c;
+            while ((c = sig.charAt(pos)) != ':' && c != ';' && c != '<'
+                && c != '.' && c != '/' && c != '>')
+            {
+                ++pos;
+            }
+            return sig.substring(start, pos);
+        }
+
+        public void skipType()
+        {
+            char c = sig.charAt(pos++);
+            while (c == '[')
+            {
+                c = sig.charAt(pos++);
+            }
+            if (c == 'L' || c == 'T')
+            {
+                int depth = 0;
+                while ((c = sig.charAt(pos++)) != ';' || depth > 0)
+                {
+                    if (c == '<') ++depth;
+                    else if (c == '>') --depth;
+                }
+            }
+        }
+
+        public List<JavaType> readArguments()
+            throws ClassNotFoundException
+        {
+            final List<JavaType> types = new LinkedList<JavaType>();
+            assert (sig.charAt(pos) == '(');
+            ++pos;
+            while (sig.charAt(pos) != ')')
+            {
+                types.add(readType());
+            }
+            ++pos;
+            return types;
+        }
+
+        public void skipArguments()
+        {
+            assert (sig.charAt(pos) == '(');
+            ++pos;
+            while (sig.charAt(pos) != ')')
+            {
+                skipType();
+            }
+            ++pos;
+        }
+
+        public List<JavaType> readThrows()
+            throws ClassNotFoundException
+        {
+            final List<JavaType> types = new LinkedList<JavaType>();
+            while (pos < sig.length() && sig.charAt(pos) == '^')
+            {
+                ++pos;
+                types.add(readType());
+            }
+            return types;
+        }
+
+        public JavaType readType()
+            throws ClassNotFoundException
+        {
+            final char c = sig.charAt(pos++);
+            switch (c)
+            {
+            case 'B':
+                return schema.byteType;
+            case 'C':
+                return schema.charType;
+            case 'D':
+                return schema.doubleType;
+            case 'F':
+                return schema.floatType;
+            case 'I':
+                return schema.intType;
+            case 'J':
+                return schema.longType;
+            case 'S':
+                return schema.shortType;
+            case 'Z':
+                return schema.booleanType;
+            case 'V':
+                return schema.voidType;
+            case '[':
+                return schema.getArrayType(readType(), 1);
+            case 'T':
+                final String name = readIdentifier();
+                ++pos;
+                return getTypeVariable(name);
+            case 'L':
+                return readClassType();
+            default:
+                throw new IllegalArgumentException("Invalid signature '" + sig
+                    + "' at offset " + (pos - 1));
+            }
+        }
+
+        private JavaType readClassType()
+            throws ClassNotFoundException
+        {
+            final StringBuffer qname = new StringBuffer();
+            List<JavaReferenceType> typeArgs = null;
+            while (true)
+            {
+                final char c = sig.charAt(pos);
+                if (c == '<')
+                {
+                    typeArgs = readTypeArguments();
+                }
+                else if (c == '.')
+                {
+                    // like reflection, only the arguments of the innermost
+                    // type are used
+                    ++pos;
+                    qname.append('$');
+                    typeArgs = null;
+                }
+                else if (c == ';')
+                {
+                    ++pos;
+                    break;
+                }
+                else
+                {
+                    final String id = readIdentifier();
+                    qname.append(id);
+                    if (sig.charAt(pos) == '/')
+                    {
+                        ++pos;
+                        qname.append('.');
+                    }
+                }
+            }
+
+            final JavaRawStructuredType< ? > rawType = schema
+                .getTypeForClass(qname.toString());
+            if (typeArgs == null || typeArgs.isEmpty()) return rawType;
+            return rawType.parameterize(typeArgs
+                .toArray(new JavaReferenceType[typeArgs.size()]));
+        }
+
+        private List<JavaReferenceType> readTypeArguments()
+            throws ClassNotFoundException
+        {
+            final List<JavaReferenceType> args = new LinkedList<JavaReferenceType>();
+            ++pos;
+            char c;
+            while ((c = sig.charAt(pos)) != '>')
+            {
+                if (c == '*' || c == '+' || c == '-')
+                {
+                    ++pos;
+                    // reflection reports an upper bound of Object for
+                    // unbounded and lower-bounded wildcards
+                    final JavaWildcardType wildcard = new JavaWildcardType(
+                        schema);
+                    if (c == '+')
+                    {
+                        wildcard.addUpperBound((JavaTypeBound) readType());
+                    }
+                    else
+                    {
+                        wildcard.addUpperBound(schema.getObjectType());
+                        if (c == '-')
+                        {
+                            wildcard.addLowerBound((JavaTypeBound) readType());
+                        }
+                    }
+                    args.add(wildcard);
+                }
+                else
+                {
+                    args.add((JavaReferenceType) readType());
+                }
+            }
+            ++pos;
+            return args;
+        }
+
+        private JavaTypeVariable getTypeVariable(String name)
+        {
+            JavaTypeVariable var = typeVars.get(name);
+            if (var != null) return var;
+
+            // look for a variable declared by an enclosing type
+            JavaStructuredType< ? > outer = context;
+            while (outer != null)
+            {
+                for (final JavaTypeVariable outerVar : outer.getRawType()
+                    .getTypeVariables())
+                {
+                    if (outerVar.getName().getIdentifier().equals(name))
+                    {
+                        return outerVar;
+                    }
+                }
+                outer = outer.getStructuredType();
+            }
+
+            // variable declared by an enclosing method of a local class
+            var = new JavaTypeVariable(schema, name);
+            typeVars.put(name, var);
+            return var;
+        }
+    }
+}
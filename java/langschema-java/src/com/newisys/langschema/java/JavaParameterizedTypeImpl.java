@@ -18,6 +18,7 @@
 
 package com.newisys.langschema.java;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -61,10 +62,28 @@ public abstract class JavaParameterizedTypeImpl<M extends JavaStructuredTypeMemb
     }
 
     protected void resolveMembers(
+        final Map<JavaTypeVariable, JavaReferenceType> memberTypeVarMap)
+    {
+        // defer resolving members until they are accessed; besides avoiding
+        // loading the members of the raw type, this breaks the otherwise
+        // unbounded recursion through members whose types parameterize each
+        // other (e.g. Enum<E> and Comparable<E>)
+        setMemberLoader(new Runnable()
+        {
+            public void run()
+            {
+                resolveMembersNow(memberTypeVarMap);
+            }
+        });
+    }
+
+    private void resolveMembersNow(
         Map<JavaTypeVariable, JavaReferenceType> memberTypeVarMap)
     {
-        // resolve type variables in members
-        for (final M member : rawType.getMembers())
+        // resolve type variables in members; iterate over a copy, since
+        // resolving a member may build a nested type of the raw type
+        final List<M> rawMembers = new ArrayList<M>(rawType.getMembers());
+        for (final M member : rawMembers)
         {
             M newMember = member;
             if (member instanceof JavaMemberVariable)
@@ -139,7 +139,7 @@ public class JavaRawClass
         return (JavaParameterizedClass) super.parameterize(typeVarMap);
     }
 
-    public void setBaseClass(JavaClass baseClass)
+    public void setBaseClass(JavaAbstractClass baseClass)
     {
         this.baseClass = baseClass;
     }
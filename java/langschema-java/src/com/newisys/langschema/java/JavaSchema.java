@@ -51,6 +51,11 @@ public class JavaSchema
     private boolean useSourceString = true;
     private JavaSchemaPrinter defaultPrinter;
 
+    // must be initialized before the wrapper class types below are built
+    private boolean useClassFiles = !"false".equalsIgnoreCase(System
+        .getProperty("com.newisys.langschema.java.useClassFiles"));
+    private transient ClassFileTypeBuilder classFileBuilder;
+
     // define schema-singleton primitive type objects
     public final JavaBooleanType booleanType = new JavaBooleanType(this);
     public final JavaByteType byteType = new JavaByteType(this);
@@ -184,6 +189,31 @@ public class JavaSchema
         this.useSourceString = useSourceString;
     }
 
+    /**
+     * Returns whether types for classes are built lazily from class files
+     * (the default) or eagerly using reflection. Class file mode never loads
+     * the classes involved and converts members only when they are accessed.
+     * The default can be changed using the system property
+     * <code>com.newisys.langschema.java.useClassFiles</code>.
+     *
+     * @return true if types are built from class files
+     */
+    public final boolean isUseClassFiles()
+    {
+        return useClassFiles;
+    }
+
+    /**
+     * Sets whether types for classes are subsequently built from class files
+     * or using reflection. Types built previously are unaffected.
+     *
+     * @param useClassFiles true to build types from class files
+     */
+    public final void setUseClassFiles(boolean useClassFiles)
+    {
+        this.useClassFiles = useClassFiles;
+    }
+
     protected JavaSchemaPrinter createDefaultPrinter()
     {
         return new JavaSchemaPrinter();
@@ -282,7 +312,7 @@ public class JavaSchema
         return type;
     }
 
-    private JavaRawStructuredType findTypeForClass(String qname)
+    JavaRawStructuredType findTypeForClass(String qname)
     {
         JavaRawStructuredType type = nameTypeCache.get(qname);
         if (type != null) return type;
@@ -318,9 +348,24 @@ public class JavaSchema
         return type;
     }
 
+    void cacheTypeForClass(String qname, JavaRawStructuredType type)
+    {
+        nameTypeCache.put(qname, type);
+    }
+
     private JavaRawStructuredType buildTypeForClass(String qname)
         throws ClassNotFoundException
     {
+        if (useClassFiles)
+        {
+            if (classFileBuilder == null)
+            {
+                classFileBuilder = new ClassFileTypeBuilder(this, getClass()
+                    .getClassLoader());
+            }
+            return classFileBuilder.buildType(qname);
+        }
+
         // get (uninitialized) Class object for given name
         ClassLoader loader = getClass().getClassLoader();
         Class cls = Class.forName(qname, false, loader);
@@ -567,10 +612,14 @@ public class JavaSchema
 
         // get exception types
         final Type[] exceptionTypes = ctor.getGenericExceptionTypes();
+        final Class[] excClasses = ctor.getExceptionTypes();
         for (int i = 0; i < exceptionTypes.length; ++i)
         {
-            funcType.addExceptionType((JavaClass) convertType(
-                exceptionTypes[i], typeVars));
+            // a thrown type variable is represented by its erasure
+            final Type excType = exceptionTypes[i] instanceof TypeVariable
+                ? excClasses[i] : exceptionTypes[i];
+            funcType.addExceptionType((JavaClass) convertType(excType,
+                typeVars));
         }
     }
 
@@ -639,10 +688,14 @@ public class JavaSchema
 
         // get exception types
         final Type[] exceptionTypes = method.getGenericExceptionTypes();
+        final Class[] excClasses = method.getExceptionTypes();
         for (int i = 0; i < exceptionTypes.length; ++i)
         {
-            funcType.addExceptionType((JavaClass) convertType(
-                exceptionTypes[i], typeVars));
+            // a thrown type variable is represented by its erasure
+            final Type excType = exceptionTypes[i] instanceof TypeVariable
+                ? excClasses[i] : exceptionTypes[i];
+            funcType.addExceptionType((JavaClass) convertType(excType,
+                typeVars));
         }
 
         // get default value (for annotation elements)
@@ -720,7 +773,7 @@ public class JavaSchema
         }
     }
 
-    private JavaExpression getExpressionForObject(Object o)
+    JavaExpression getExpressionForObject(Object o)
     {
         final JavaExpression expr;
         if (o instanceof Double)
@@ -43,6 +43,7 @@ public abstract class JavaStructuredTypeImpl<M extends JavaStructuredTypeMember>
     private final LinkedList<JavaAbstractInterface> baseInterfaces;
     private final LinkedList<M> members;
     private final NameTable nameTable;
+    private transient Runnable memberLoader;
 
     public JavaStructuredTypeImpl(
         JavaSchema schema,
@@ -57,6 +58,7 @@ public abstract class JavaStructuredTypeImpl<M extends JavaStructuredTypeMember>
 
     final void copyFrom(JavaStructuredTypeImpl<M> other)
     {
+        other.loadMembers();
         baseInterfaces.addAll(other.baseInterfaces);
         for (final M otherMember : other.members)
         {
@@ -152,8 +154,35 @@ public abstract class JavaStructuredTypeImpl<M extends JavaStructuredTypeMember>
         return false;
     }
 
+    /**
+     * Defers population of the members of this type until they are first
+     * accessed. Used by JavaSchema when building types from class files and
+     * for parameterized types, so that types referenced only by name or
+     * signature never have their members converted. Member types are not
+     * supplied by the loader and may still be added directly.
+     *
+     * @param memberLoader the action that adds the members of this type
+     */
+    final void setMemberLoader(Runnable memberLoader)
+    {
+        this.memberLoader = memberLoader;
+    }
+
+    private void loadMembers()
+    {
+        if (memberLoader != null)
+        {
+            // clear loader first so that recursive accesses see the members
+            // added so far instead of reentering it
+            final Runnable loader = memberLoader;
+            memberLoader = null;
+            loader.run();
+        }
+    }
+
     public final List<M> getMembers()
     {
+        loadMembers();
         return members;
     }
 
@@ -164,11 +193,13 @@ public abstract class JavaStructuredTypeImpl<M extends JavaStructuredTypeMember>
 
     protected void addMemberBefore(M member, JavaStructuredTypeMember other)
     {
+        loadMembers();
         addMemberAt(member, members.indexOf(other));
     }
 
     protected void addMemberAfter(M member, JavaStructuredTypeMember other)
     {
+        loadMembers();
         addMemberAt(member, members.indexOf(other) + 1);
     }
 
@@ -641,6 +672,12 @@ public abstract class JavaStructuredTypeImpl<M extends JavaStructuredTypeMember>
         String identifier,
         NameKind kind)
     {
+        // member types are never deferred, so type (and package) lookups
+        // need not load members
+        if (kind != JavaNameKind.TYPE && kind != JavaNameKind.PACKAGE)
+        {
+            loadMembers();
+        }
         return nameTable.lookupObjects(identifier, kind);
     }
 }
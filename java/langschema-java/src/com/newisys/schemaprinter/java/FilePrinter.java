@@ -21,6 +21,7 @@ package com.newisys.schemaprinter.java;
 import java.io.BufferedWriter;
 import java.io.CharArrayWriter;
 import java.io.File;
+import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 
@@ -42,7 +43,9 @@ import com.newisys.util.text.TokenFormatter;
  */
 public class FilePrinter
 {
-    private final BufferedWriter fileBufWriter;
+    private final File typeFile;
+    private final CharArrayWriter headerWriter;
+    private final BufferedWriter headerBufWriter;
     private final CharArrayWriter bufWriter;
     private final TokenFormatter fmt;
     private final ImportManager importMgr;
@@ -54,25 +57,22 @@ public class FilePrinter
         File pkgRoot)
     {
         // determine the file to write to
-        File typeFile = getTypeFile(type, pkgRoot);
-        System.out.println("Writing Java source: " + typeFile.getPath());
+        typeFile = getTypeFile(type, pkgRoot);
 
+        // the file is only written on close, and only if its contents change
+        headerWriter = new CharArrayWriter(256);
+        headerBufWriter = new BufferedWriter(headerWriter);
         try
         {
-            // create and open the file
-            typeFile.getParentFile().mkdirs();
-            FileWriter fileWriter = new FileWriter(typeFile);
-            fileBufWriter = new BufferedWriter(fileWriter);
-
             // print the package declaration, if any
             JavaPackage pkg = type.getPackage();
             if (pkg != null)
             {
-                fileBufWriter.write("package ");
-                fileBufWriter.write(pkg.getName().getCanonicalName());
-                fileBufWriter.write(";");
-                fileBufWriter.newLine();
-                fileBufWriter.newLine();
+                headerBufWriter.write("package ");
+                headerBufWriter.write(pkg.getName().getCanonicalName());
+                headerBufWriter.write(";");
+                headerBufWriter.newLine();
+                headerBufWriter.newLine();
             }
         }
         catch (IOException e)
@@ -125,20 +125,60 @@ public class FilePrinter
         {
             // flush the formatter and indent writer to the buffer
             fmt.flush();
+            fmt.close();
 
-            // print the import directives
-            importMgr.printImports(fileBufWriter);
+            // print the import directives after the package declaration
+            importMgr.printImports(headerBufWriter);
+            headerBufWriter.flush();
 
-            // write the contents of the buffer to the file
-            bufWriter.writeTo(fileBufWriter);
+            // compare the complete source text to the existing file, so that
+            // regenerating an unchanged type leaves its timestamp alone
+            final String text = headerWriter.toString() + bufWriter.toString();
+            if (text.equals(readExisting(typeFile)))
+            {
+                System.out.println("Java source unchanged: "
+                    + typeFile.getPath());
+                return;
+            }
 
-            // close the writers
-            fmt.close();
-            fileBufWriter.close();
+            System.out.println("Writing Java source: " + typeFile.getPath());
+            typeFile.getParentFile().mkdirs();
+            FileWriter fileWriter = new FileWriter(typeFile);
+            try
+            {
+                fileWriter.write(text);
+            }
+            finally
+            {
+                fileWriter.close();
+            }
         }
         catch (IOException e)
         {
             throw new WrappedIOException(e);
         }
     }
+
+    private static String readExisting(File file)
+        throws IOException
+    {
+        if (!file.isFile()) return null;
+
+        final StringBuilder buf = new StringBuilder((int) file.length());
+        final FileReader reader = new FileReader(file);
+        try
+        {
+            final char[] chars = new char[8192];
+            int count;
+            while ((count = reader.read(chars)) >= 0)
+            {
+                buf.append(chars, 0, count);
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+        return buf.toString();
+    }
 }
@@ -0,0 +1,107 @@
+/*
+ * Jove Constraint-based Random Solver
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.newisys.randsolver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sf.javabdd.BDD;
+import org.sf.javabdd.BDDBitVector;
+
+/**
+ * Owns temporary BDDs for the duration of a computation and frees them when
+ * the scope is freed, typically in a finally block. JavaFactory
+ * keeps a node alive as long as any BDD object referencing it has not been
+ * freed, so intermediate results that are simply dropped pin their nodes
+ * for the rest of the run.
+ * <P>
+ * Only BDDs that are not shared with anything outside the scope may be
+ * registered. In particular, bits obtained from {@link BDDBitVector#getBit}
+ * are owned by their vector and must not be added.
+ *
+ * @author Jon Nall
+ */
+final class BddScope
+{
+    private final List<BDD> mBdds = new ArrayList<BDD>();
+    private final List<BDDBitVector> mVectors = new ArrayList<BDDBitVector>();
+
+    /**
+     * Registers a BDD to be freed when this scope is freed.
+     *
+     * @param bdd the BDD to free
+     * @return <code>bdd</code>
+     */
+    BDD add(BDD bdd)
+    {
+        mBdds.add(bdd);
+        return bdd;
+    }
+
+    /**
+     * Registers a vector whose bits are all freed when this scope is freed.
+     * A vector may be registered only once.
+     *
+     * @param vector the vector to free
+     * @return <code>vector</code>
+     */
+    BDDBitVector add(BDDBitVector vector)
+    {
+        mVectors.add(vector);
+        return vector;
+    }
+
+    /**
+     * Removes a previously registered BDD from this scope, so that it
+     * survives as the result of the computation.
+     *
+     * @param bdd the BDD to keep
+     * @return <code>bdd</code>
+     */
+    BDD keep(BDD bdd)
+    {
+        for (int i = mBdds.size() - 1; i >= 0; --i)
+        {
+            if (mBdds.get(i) == bdd)
+            {
+                mBdds.remove(i);
+            }
+        }
+        return bdd;
+    }
+
+    /**
+     * Frees every BDD and vector registered with this scope. Registering the
+     * same BDD more than once is harmless.
+     */
+    void free()
+    {
+        for (final BDD bdd : mBdds)
+        {
+            bdd.free();
+        }
+        mBdds.clear();
+        for (final BDDBitVector vector : mVectors)
+        {
+            vector.free();
+        }
+        mVectors.clear();
+    }
+}
@@ -35,6 +35,24 @@ public final class BddUtils
     private static BDDFactory myBddFactory;
     private static BddUtils myself = null;
 
+    // live node count above which checkNodeLimit() aborts the current solve
+    private static int nodeLimit = Integer.MAX_VALUE;
+
+    /**
+     * Thrown by the BDD arithmetic functions when the node limit set by
+     * {@link BddUtils#setNodeLimit(int)} is exceeded.
+     */
+    static final class NodeLimitExceededException
+        extends RuntimeException
+    {
+        private static final long serialVersionUID = 3977582499431577139L;
+
+        NodeLimitExceededException(int nodeNum)
+        {
+            super("BDD node limit exceeded: " + nodeNum + " nodes");
+        }
+    }
+
     private BddUtils()
     {
         myBddFactory = JavaFactory.init(100000, 100000);
@@ -54,6 +72,37 @@ public final class BddUtils
         return BddUtils.myBddFactory;
     }
 
+    /**
+     * Limits the number of BDD nodes the arithmetic functions may create.
+     * Once more than <code>limit</code> nodes are in use, the next call to
+     * {@link #checkNodeLimit()} throws NodeLimitExceededException. The limit
+     * is an absolute node count, so callers typically pass the current value
+     * of {@link BDDFactory#getNodeNum()} plus an allowance.
+     *
+     * @param limit the maximum number of nodes, or
+     *      <code>Integer.MAX_VALUE</code> for no limit
+     */
+    static void setNodeLimit(int limit)
+    {
+        nodeLimit = limit;
+    }
+
+    /**
+     * Throws NodeLimitExceededException if the node limit has been exceeded.
+     * Called periodically by the functions whose node counts can explode.
+     */
+    static void checkNodeLimit()
+    {
+        if (nodeLimit != Integer.MAX_VALUE)
+        {
+            final int nodeNum = getFactory().getNodeNum();
+            if (nodeNum > nodeLimit)
+            {
+                throw new NodeLimitExceededException(nodeNum);
+            }
+        }
+    }
+
     /**
      * Returns either one() or zero() depending on the boolean parameter.
      *
@@ -92,7 +141,7 @@ public final class BddUtils
         {
             BDD b1 = v1.getBit(i);
             BDD b2 = v2.getBit(i);
-            tmp = tmp.and((b1.xor(b2)).not());
+            tmp.andWith(b1.biimp(b2));
         }
 
         return tmp;
@@ -101,7 +150,9 @@ public final class BddUtils
     public static BDD bddNeq(BDDBitVector v1, BDDBitVector v2)
     {
         BDD tmp = bddEq(v1, v2);
-        return tmp.not();
+        BDD result = tmp.not();
+        tmp.free();
+        return result;
     }
 
     public static BDD bddLeq(BDDBitVector v1, BDDBitVector v2)
@@ -135,14 +186,16 @@ public final class BddUtils
 
         int msb = size - 1;
 
+        // each step consumes the previous lEQ/gEQ, so only the final
+        // comparisons remain referenced
         BDD lEQ = myBddFactory.one();
         for (int i = 0; i <= msb; i++)
         {
             BDD b1 = v1.getBit(i);
             BDD b2 = v2.getBit(i);
-            BDD tmp1 = (lEQ.and((b1.xor(b2)).not())); // test for ==
-            BDD tmp2 = (b1.not()).and(b2); // test for <
-            lEQ = tmp1.or(tmp2);
+            BDD tmp1 = b1.biimp(b2).andWith(lEQ); // test for ==
+            BDD tmp2 = b1.not().andWith(b2.id()); // test for <
+            lEQ = tmp1.orWith(tmp2);
         }
 
         BDD gEQ = myBddFactory.one();
@@ -150,12 +203,35 @@ public final class BddUtils
         {
             BDD b1 = v1.getBit(i);
             BDD b2 = v2.getBit(i);
-            BDD tmp1 = (gEQ.and((b2.xor(b1)).not())); // test for ==
-            BDD tmp2 = b2.and(b1.not()); // test for <
-            gEQ = tmp1.or(tmp2);
+            BDD tmp1 = b2.biimp(b1).andWith(gEQ); // test for ==
+            BDD tmp2 = b1.not().andWith(b2.id()); // test for <
+            gEQ = tmp1.orWith(tmp2);
         }
 
-        BDD tmp = getFactory().zero();
+        final BddScope scope = new BddScope();
+        try
+        {
+            scope.add(lEQ);
+            scope.add(gEQ);
+            return bddLeqResult(v1, v2, msb, lEQ, gEQ, scope);
+        }
+        finally
+        {
+            scope.free();
+        }
+    }
+
+    // combines the magnitude comparisons of bddLeq according to the
+    // signedness of the operands; temporaries are added to scope
+    private static BDD bddLeqResult(
+        BDDBitVector v1,
+        BDDBitVector v2,
+        int msb,
+        BDD lEQ,
+        BDD gEQ,
+        BddScope scope)
+    {
+        BDD tmp;
         BDD v1msb = v1.getBit(msb);
         BDD v2msb = v2.getBit(msb);
         if (v1.isSigned() && v2.isSigned())
@@ -178,25 +254,28 @@ public final class BddUtils
             // v1[msb] == 1 => (gEQ || v2[msb] == 0)
             // !v1[msb] == 1 => (lEQ)
 
-            tmp = v1msb.imp(gEQ.or(v2msb.not()));
-            tmp = tmp.and((v1msb.not()).imp(lEQ.and(v2msb.not())));
+            BDD v2pos = scope.add(v2msb.not());
+            BDD whenV1Neg = scope.add(gEQ.or(v2pos));
+            BDD whenV1Pos = scope.add(lEQ.and(v2pos));
+            tmp = v1msb.imp(whenV1Neg);
+            tmp.andWith(scope.add(v1msb.not()).imp(whenV1Pos));
         }
         else if (v1.isSigned())
         {
             // for signed/unsigned, true if |a| <= |b| and a is not negative
             assert (!v2.isSigned());
-            tmp = lEQ.and(v1msb.not());
+            tmp = lEQ.and(scope.add(v1msb.not()));
         }
         else if (v2.isSigned())
         {
             // for unsigned/signed, true if |a| <= |b| and b is not negative
             assert (!v1.isSigned());
-            tmp = lEQ.and(v2msb.not());
+            tmp = lEQ.and(scope.add(v2msb.not()));
         }
         else
         {
             // for unsigned/unsigned, true if |a| <= |b|
-            tmp = lEQ;
+            tmp = scope.keep(lEQ);
         }
 
         return tmp;
@@ -206,8 +285,7 @@ public final class BddUtils
     {
         BDD tmpNeq = bddNeq(v1, v2);
         BDD tmpLeq = bddLeq(v1, v2);
-        BDD tmp = tmpNeq.and(tmpLeq);
-        return tmp;
+        return tmpNeq.andWith(tmpLeq);
     }
 
     public static BDD bddGthan(BDDBitVector v1, BDDBitVector v2)
@@ -221,8 +299,7 @@ public final class BddUtils
     {
         BDD tmpEq = bddEq(v1, v2);
         BDD tmpGt = bddGthan(v1, v2);
-        BDD tmp = tmpEq.or(tmpGt);
-        return tmp;
+        return tmpEq.orWith(tmpGt);
     }
 
     // Bitwise operators
@@ -264,7 +341,7 @@ public final class BddUtils
         BDD tmp = getFactory().one();
         for (int i = 0; i < v.size(); ++i)
         {
-            tmp = tmp.and(v.getBit(i));
+            tmp.andWith(v.getBit(i).id());
         }
         return tmp;
     }
@@ -274,7 +351,7 @@ public final class BddUtils
         BDD tmp = getFactory().zero();
         for (int i = 0; i < v.size(); ++i)
         {
-            tmp = tmp.or(v.getBit(i));
+            tmp.orWith(v.getBit(i).id());
         }
         return tmp;
     }
@@ -284,7 +361,7 @@ public final class BddUtils
         BDD tmp = getFactory().zero();
         for (int i = 0; i < v.size(); ++i)
         {
-            tmp = tmp.xor(v.getBit(i));
+            tmp.xorWith(v.getBit(i).id());
         }
         return tmp;
     }
@@ -589,22 +666,40 @@ public final class BddUtils
 
         for (int i = 0; i < size; ++i)
         {
-            // sum = product + tmp;
-            final BDDBitVector sum = bddPlus(product, tmp, productSize);
-            for (int j = 0; j < productSize; ++j)
+            checkNodeLimit();
+
+            // the partial sum, the previous partial product and the previous
+            // shifted multiplicand are all private to this iteration, so
+            // free them rather than leaving them to pin the node table
+            final BddScope scope = new BddScope();
+            try
             {
-                // if(v2[i] == 1)
-                //     product = product + tmp;
-                // else
-                //     product = product;
-                final BDD tmpres = v2.getBit(i).ite(sum.getBit(j),
-                    product.getBit(j));
-                product.setBit(j, tmpres);
-            }
+                // sum = product + tmp;
+                final BDDBitVector sum = scope.add(bddPlus(product, tmp,
+                    productSize));
+                for (int j = 0; j < productSize; ++j)
+                {
+                    // if(v2[i] == 1)
+                    //     product = product + tmp;
+                    // else
+                    //     product = product;
+                    final BDD tmpres = v2.getBit(i).ite(sum.getBit(j),
+                        product.getBit(j));
+                    scope.add(product.getBit(j));
+                    product.setBit(j, tmpres);
+                }
 
-            // tmp <<= 1;
-            tmp = bddShiftLeft(tmp, getFactory().constantVector(1, 1));
+                // tmp <<= 1;
+                scope.add(tmp);
+                tmp = bddShiftLeft(tmp, scope.add(getFactory().constantVector(
+                    1, 1)));
+            }
+            finally
+            {
+                scope.free();
+            }
         }
+        tmp.free();
 
         // product is set to the size of the maximum operand
         product.coerce(size);
@@ -726,6 +821,8 @@ public final class BddUtils
 
             for (int i = 0; i < size + 1; ++i)
             {
+                checkNodeLimit();
+
                 BDD divisorLessThanRemainder = bddLeq(tmp, remainder);
                 BDDBitVector difference = bddMinus(remainder, tmp, resultSize);
 
@@ -18,7 +18,6 @@
 
 package com.newisys.randsolver;
 
-import java.lang.reflect.Field;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -111,7 +110,7 @@ public class ComplexExprSolver
             BDD tmp = BddUtils.getFactory().zero();
             for (int i = 0; i < vect.size(); ++i)
             {
-                tmp = tmp.or(vect.getBit(i));
+                tmp.orWith(vect.getBit(i).id());
             }
             return tmp;
         }
@@ -274,13 +273,14 @@ public class ComplexExprSolver
 
                 BDDExpr cBDD = internalEval(cExpr);
                 assert (cBDD instanceof BDD);
-                orBDD = orBDD.or((BDD) cBDD);
+                orBDD.orWith((BDD) cBDD);
             }
 
             returnVal = orBDD;
             if (expr instanceof ConsNotInSet)
             {
-                returnVal = ((BDD) returnVal).not();
+                returnVal = orBDD.not();
+                orBDD.free();
             }
         }
 
@@ -309,7 +309,7 @@ public class ComplexExprSolver
             {
                 BDD rhs = toBDD(internalEval((ConsExpression) expr
                     .getOperands().get(i)));
-                tmp = tmp.and(lhs.imp(rhs));
+                tmp.andWith(lhs.imp(rhs));
             }
             returnVal = tmp;
         }
@@ -562,13 +562,16 @@ public class ComplexExprSolver
         }
     }
 
-    public final Map<RandomVariable, BitVector> unrandomizedVarMap = new HashMap<RandomVariable, BitVector>();
     private Map<RandomVariable, BDDBitVector> mDomainVarMap = new HashMap<RandomVariable, BDDBitVector>();
     private int[] mSolnOffsets = null; // determined in solve()
     private int[] mSolnLengths = null; // determined in solve()
     int mMaxConstraintBits = 0;
     BDD mSolution;
 
+    // approximate size of a JavaFactory node, including its table slot
+    private static final int BYTES_PER_NODE = 40;
+    private long mRetainedSize = -1;
+
     public ComplexExprSolver(String name)
     {
         super(name);
@@ -632,12 +635,23 @@ public class ComplexExprSolver
 
         // now evaluate the constraints
         Iterator cIter = schemaConstraint.getExprs().iterator();
-        while (cIter.hasNext())
+        try
         {
-            ConsExpression expr = (ConsExpression) cIter.next();
-            BDD soln = eval(expr);
-            //soln.printDot();
-            solution = solution.and(soln);
+            while (cIter.hasNext())
+            {
+                ConsExpression expr = (ConsExpression) cIter.next();
+                BDD soln = eval(expr);
+                //soln.printDot();
+                solution.andWith(soln);
+                BddUtils.checkNodeLimit();
+            }
+        }
+        catch (RuntimeException e)
+        {
+            // the partial solution is unreachable once the solve is abandoned
+            // (e.g. for NodeLimitExceededException), so release its nodes
+            solution.free();
+            throw e;
         }
 
         // Add cyclic constraints
@@ -647,18 +661,19 @@ public class ComplexExprSolver
             RandomVariable rv = (RandomVariable) vIter.next();
             if (rv.getMode() == RandVarMode.CYCLIC)
             {
-                BDD oldSolution = solution;
-                solution = solution.and(rv.getCyclicConstraint());
+                BDD newSolution = solution.and(rv.getCyclicConstraint());
 
                 // if adding this cyclic constraint causes the solution to
                 // become unsolvable, reset the period of this variable
-                if (solution.calcWeights() == 0.0)
+                if (newSolution.calcWeights() == 0.0)
                 {
-                    solution = oldSolution;
+                    newSolution.free();
                     rv.addCyclicConstraint(BddUtils.getFactory().zero());
-                    solution = solution.and(rv.getCyclicConstraint());
+                    newSolution = solution.and(rv.getCyclicConstraint());
                     cyclicList.add(rv);
                 }
+                solution.free();
+                solution = newSolution;
             }
         }
 
@@ -666,6 +681,7 @@ public class ComplexExprSolver
         mSolution = solution;
         if (mSolution.calcWeights() == 0.0)
         {
+            release();
             throw new UnsolvableConstraintException("No possible variable "
                 + "assignments can satisfy the constraints given");
         }
@@ -673,6 +689,30 @@ public class ComplexExprSolver
         return cyclicList;
     }
 
+    @Override
+    long estimateRetainedSize()
+    {
+        if (mRetainedSize < 0)
+        {
+            mRetainedSize = super.estimateRetainedSize();
+            if (mSolution != null)
+            {
+                mRetainedSize += (long) mSolution.nodeCount() * BYTES_PER_NODE;
+            }
+        }
+        return mRetainedSize;
+    }
+
+    @Override
+    void release()
+    {
+        if (mSolution != null)
+        {
+            mSolution.free();
+            mSolution = null;
+        }
+    }
+
     private BDD eval(ConsExpression _exprToEval)
     {
         ConstraintEvaluator evaluator = new ConstraintEvaluator();
@@ -794,77 +834,6 @@ public class ComplexExprSolver
 
     }
 
-    private BitVector literalToBitVector(ConsExpression literal)
-    {
-        if (literal instanceof ConsBooleanLiteral)
-        {
-            return new BitVector(1, ((ConsBooleanLiteral) literal).getValue()
-                ? 1 : 0);
-        }
-        else if (literal instanceof ConsCharLiteral)
-        {
-            return new BitVector(8, ((ConsCharLiteral) literal).getValue());
-        }
-        else if (literal instanceof ConsIntLiteral)
-        {
-            return new BitVector(32, ((ConsIntLiteral) literal).getValue());
-        }
-        else if (literal instanceof ConsLongLiteral)
-        {
-            return new BitVector(64, ((ConsLongLiteral) literal).getValue());
-        }
-        else if (literal instanceof ConsBitVectorLiteral)
-        {
-            return ((ConsBitVectorLiteral) literal).getValue();
-        }
-        else
-        {
-            throw new InvalidConstraintException(
-                "Expected integral literal type: "
-                    + literal.getClass().getName());
-        }
-    }
-
-    @Override
-    public boolean needsReevaluation(RandVarSet varsToCheck, Object obj)
-    {
-        boolean reeval = false;
-        Iterator iter = varsToCheck.iterator();
-        while (iter.hasNext())
-        {
-            RandomVariable rv = (RandomVariable) iter.next();
-            Field f = rv.getField();
-            BitVector literal = null;
-            try
-            {
-                literal = literalToBitVector(NameParser.getExpr(f.getName(), f
-                    .getDeclaringClass(), null, rv.getObjRef(obj)));
-            }
-            catch (NoSuchFieldException e)
-            {
-                throw new RuntimeException(e);
-            }
-            catch (IllegalAccessException e1)
-            {
-                throw new RuntimeException(e1);
-            }
-
-            if (unrandomizedVarMap.containsKey(rv))
-            {
-                BitVector literal2 = unrandomizedVarMap.get(rv);
-                //    System.out.println("l1: " + literal + ", l2: " + literal2);
-                reeval |= !literal2.equals(literal);
-            }
-            else
-            {
-                unrandomizedVarMap.put(rv, literal);
-                reeval |= true;
-            }
-        }
-        // check if any of the varsToCheck has changed since the last time
-        return reeval;
-    }
-
     BDDBitVector getBddBitVector(ConsVariableReference var)
     {
         BDDBitVector vect;
@@ -921,117 +890,7 @@ public class ComplexExprSolver
             //System.out.println("solutions[" + soln + "]: " + solutions[soln]);
         }
 
-        Field f = null;
-        try
-        {
-            for (int i = 0; i < solutions.length; i++)
-            {
-                RandomVariable rv = mVars.get(i);
-
-                // field has already been setAccessible().
-                f = rv.getField();
-                Class dataType = rv.getClassType();
-
-                Object commitObj = rv.getObjRef(obj);
-
-                if (dataType == boolean.class || dataType == Boolean.class)
-                {
-                    int value = solutions[i].intValue();
-                    assert (value == 0 || value == 1);
-                    boolean b = ((value == 1) ? true : false);
-
-                    if (dataType == boolean.class)
-                    {
-                        f.setBoolean(commitObj, b);
-                    }
-                    else
-                    {
-                        f.set(commitObj, new Boolean(b));
-                    }
-                }
-                else if (dataType == byte.class || dataType == Byte.class)
-                {
-                    int value = solutions[i].intValue();
-                    assert (value >= 0 && value < 0x100);
-                    byte b = (byte) value;
-
-                    if (dataType == byte.class)
-                    {
-                        f.setByte(commitObj, b);
-                    }
-                    else
-                    {
-                        f.set(commitObj, new Byte(b));
-                    }
-                }
-                else if (dataType == char.class)
-                {
-                    int value = solutions[i].intValue();
-                    assert (value >= 0 && value < 0x100);
-                    char c = (char) value;
-
-                    // There is no "Char" class
-                    f.setChar(commitObj, c);
-                }
-                else if (dataType == int.class || dataType == Integer.class)
-                {
-                    int value = solutions[i].intValue();
-                    if (dataType == int.class)
-                    {
-                        f.setInt(commitObj, value);
-                    }
-                    else
-                    {
-                        f.set(commitObj, new Integer(value));
-                    }
-                }
-                else if (dataType == long.class || dataType == Long.class)
-                {
-                    long value = solutions[i].longValue();
-
-                    if (dataType == long.class)
-                    {
-                        f.setLong(commitObj, value);
-                    }
-                    else
-                    {
-                        f.set(commitObj, new Long(value));
-                    }
-                }
-                else if (dataType == short.class || dataType == Short.class)
-                {
-                    int value = solutions[i].intValue();
-                    assert (value >= 0 && value <= 0x10000);
-                    short s = (short) value;
-
-                    if (dataType == short.class)
-                    {
-                        f.setShort(commitObj, s);
-                    }
-                    else
-                    {
-                        f.set(commitObj, new Short(s));
-                    }
-                }
-                else if (dataType == BitVector.class)
-                {
-                    f.set(commitObj, solutions[i]);
-                }
-                // NOTE: no special case for Enums. This is because they should
-                // have an entry in the RandomMapperRegistry.
-                else
-                {
-                    RandomMapper cp = RandomMapperRegistry.getMapper(dataType);
-                    assert (cp != null);
-                    int value = solutions[i].intValue();
-                    f.set(commitObj, cp.getObject(value));
-                }
-            }
-        }
-        catch (IllegalAccessException e)
-        {
-            throw new InvalidConstraintException(e.getMessage() + ": " + f);
-        }
+        commitSolutions(solutions, obj);
 
         return cyclicMap;
     }
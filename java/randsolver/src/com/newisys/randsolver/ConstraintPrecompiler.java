@@ -0,0 +1,240 @@
+/*
+ * Jove Constraint-based Random Solver
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.randsolver;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import com.newisys.randsolver.annotation.Randomizable;
+
+/**
+ * Build-time validator for {@link Randomizable} classes. The precompiler
+ * loads each compiled class in one or more class directories, parses and
+ * resolves every constraint expression exactly as the {@link Solver} would,
+ * and validates the random variable declarations and constraint names.
+ * Constraint errors are therefore reported when the testbench is built rather
+ * than the first time an object is randomized. Nothing is generated; the
+ * Solver still reads the annotations of each class when it is first
+ * randomized.
+ * <P>
+ * The precompiler runs after the testbench classes are compiled:
+ *
+ * <pre>
+ * &lt;java classname="com.newisys.randsolver.ConstraintPrecompiler"
+ *     fork="true" failonerror="true" classpathref="testbench.classpath"&gt;
+ *     &lt;arg line="${bin}" /&gt;
+ * &lt;/java&gt;
+ * </pre>
+ *
+ * @author Jon Nall
+ */
+public final class ConstraintPrecompiler
+{
+    private final List<String> errors = new LinkedList<String>();
+    private int classCount;
+
+    /**
+     * Returns the errors reported so far, one message per invalid constraint
+     * or random variable declaration.
+     *
+     * @return a list of error messages
+     */
+    public List<String> getErrors()
+    {
+        return errors;
+    }
+
+    /**
+     * Returns the number of randomizable classes checked so far.
+     *
+     * @return the number of randomizable classes checked
+     */
+    public int getClassCount()
+    {
+        return classCount;
+    }
+
+    /**
+     * Checks every randomizable class found in the given class directory.
+     *
+     * @param classDir the root of a compiled class hierarchy
+     * @param loader the class loader used to load the classes, which must be
+     *            able to resolve every class in <code>classDir</code>
+     */
+    public void precompileDirectory(File classDir, ClassLoader loader)
+    {
+        List<String> classNames = new LinkedList<String>();
+        findClasses(classDir, "", classNames);
+        for (String className : classNames)
+        {
+            Class< ? > klass;
+            try
+            {
+                klass = Class.forName(className, false, loader);
+            }
+            catch (ClassNotFoundException e)
+            {
+                errors.add(className + ": class not found");
+                continue;
+            }
+            catch (LinkageError e)
+            {
+                errors.add(className + ": " + e);
+                continue;
+            }
+            precompile(klass);
+        }
+    }
+
+    private static void findClasses(
+        File dir,
+        String pkgPrefix,
+        List<String> classNames)
+    {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        for (File file : files)
+        {
+            String name = file.getName();
+            if (file.isDirectory())
+            {
+                findClasses(file, pkgPrefix + name + ".", classNames);
+            }
+            else if (name.endsWith(".class"))
+            {
+                classNames.add(pkgPrefix
+                    + name.substring(0, name.length() - 6));
+            }
+        }
+    }
+
+    /**
+     * Checks a single class. Classes without a {@link Randomizable}
+     * annotation are ignored. If any constraint or random variable of the
+     * class is invalid, the errors are recorded.
+     *
+     * @param klass the class to check
+     * @return true if the class is randomizable and valid
+     */
+    public boolean precompile(Class< ? > klass)
+    {
+        Randomizable aRand = klass.getAnnotation(Randomizable.class);
+        if (aRand == null || klass.isInterface() || klass.isAnnotation())
+        {
+            return false;
+        }
+
+        ++classCount;
+        boolean valid = true;
+        Set<String> cNames = new HashSet<String>();
+        for (com.newisys.randsolver.annotation.Constraint c : aRand.value())
+        {
+            if (!cNames.add(c.name()))
+            {
+                errors.add(klass.getName() + ": duplicate constraint name '"
+                    + c.name() + "'");
+                valid = false;
+                continue;
+            }
+            try
+            {
+                ConstraintCompiler.compile(klass, c.expr());
+            }
+            catch (RuntimeException e)
+            {
+                errors.add(klass.getName() + ": constraint '" + c.name()
+                    + "': " + e.getMessage());
+                valid = false;
+            }
+        }
+
+        try
+        {
+            String spec = Solver.getRandVarSpec(klass);
+            if (spec.length() > 0)
+            {
+                new RandVarSet(klass, spec);
+            }
+        }
+        catch (RuntimeException e)
+        {
+            errors.add(klass.getName() + ": " + e.getMessage());
+            valid = false;
+        }
+        return valid;
+    }
+
+    /**
+     * Command line entry point. Usage:
+     * <pre>
+     * ConstraintPrecompiler &lt;class dir&gt;...
+     * </pre>
+     * The class directories must also be on the class path of the JVM. Exits
+     * with a non-zero status if any constraint is invalid.
+     *
+     * @param args the command line arguments
+     * @throws IOException if a class directory cannot be converted to a URL
+     */
+    public static void main(String[] args)
+        throws IOException
+    {
+        List<File> classDirs = new LinkedList<File>();
+        for (String arg : args)
+        {
+            classDirs.add(new File(arg));
+        }
+        if (classDirs.isEmpty())
+        {
+            System.err.println("Usage: ConstraintPrecompiler <class dir>...");
+            System.exit(2);
+        }
+
+        URL[] urls = new URL[classDirs.size()];
+        int i = 0;
+        for (File classDir : classDirs)
+        {
+            urls[i++] = classDir.toURI().toURL();
+        }
+        ClassLoader loader = new URLClassLoader(urls,
+            ConstraintPrecompiler.class.getClassLoader());
+
+        ConstraintPrecompiler precompiler = new ConstraintPrecompiler();
+        for (File classDir : classDirs)
+        {
+            precompiler.precompileDirectory(classDir, loader);
+        }
+
+        for (String error : precompiler.getErrors())
+        {
+            System.err.println(error);
+        }
+        System.out.println(precompiler.getClassCount()
+            + " randomizable class(es) checked");
+        if (!precompiler.getErrors().isEmpty())
+        {
+            System.exit(1);
+        }
+    }
+}
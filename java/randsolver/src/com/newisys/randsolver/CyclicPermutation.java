@@ -0,0 +1,133 @@
+/*
+ * Jove Constraint-based Random Solver
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.randsolver;
+
+import com.newisys.random.PRNG;
+
+/**
+ * Generates the values of a cyclic (randc) random variable whose domain is a
+ * single range of values. Each cycle visits every value in the range exactly
+ * once, in the order of a random permutation of the range. The permutation is
+ * computed on demand by a keyed Feistel network over the smallest even number
+ * of bits that covers the range, using cycle-walking to map the network's
+ * domain onto the range. Each value therefore takes constant time and the
+ * state is independent of the size of the range. A new key is drawn at the
+ * start of each cycle.
+ * <P>
+ * Values are handled as 64-bit two's complement bit patterns, so ranges of
+ * both signed and unsigned variables up to 64 bits wide are supported.
+ *
+ * @author Jon Nall
+ */
+final class CyclicPermutation
+{
+    private static final int ROUNDS = 4;
+
+    private final long[] mKeys = new long[ROUNDS];
+
+    // the range is [mLow, mLow + mMaxIndex], where mMaxIndex is unsigned
+    private boolean mHasRange;
+    private long mLow;
+    private long mMaxIndex;
+    private int mHalfBits;
+    private long mHalfMask;
+
+    // position within the current cycle
+    private long mIndex;
+
+    /**
+     * Sets the range of values produced by this permutation. If the range
+     * differs from the current range, a new cycle is started.
+     *
+     * @param low the lowest value in the range
+     * @param maxIndex the number of values in the range minus 1, as an
+     *            unsigned value
+     */
+    void setRange(long low, long maxIndex)
+    {
+        if (!mHasRange || low != mLow || maxIndex != mMaxIndex)
+        {
+            mHasRange = true;
+            mLow = low;
+            mMaxIndex = maxIndex;
+            int bits = 64 - Long.numberOfLeadingZeros(maxIndex);
+            mHalfBits = Math.max(1, (bits + 1) / 2);
+            mHalfMask = (1L << mHalfBits) - 1;
+            mIndex = 0;
+        }
+    }
+
+    /**
+     * Returns the next value in the current cycle, starting a new cycle if
+     * the current one is complete.
+     *
+     * @param rng the random number generator used to key each cycle
+     * @return the next value, as a bit pattern
+     */
+    long next(PRNG rng)
+    {
+        assert (mHasRange);
+        if (mIndex == 0)
+        {
+            for (int i = 0; i < ROUNDS; ++i)
+            {
+                mKeys[i] = rng.nextLong();
+            }
+        }
+
+        // cycle-walk until the permuted value falls within the range; since
+        // the network's domain is less than four times the size of the
+        // range, this takes fewer than four steps on average
+        long x = mIndex;
+        do
+        {
+            x = permute(x);
+        }
+        while (unsignedGreater(x, mMaxIndex));
+
+        mIndex = (mIndex == mMaxIndex) ? 0 : mIndex + 1;
+        return mLow + x;
+    }
+
+    private long permute(long x)
+    {
+        long left = (x >>> mHalfBits) & mHalfMask;
+        long right = x & mHalfMask;
+        for (int i = 0; i < ROUNDS; ++i)
+        {
+            long tmp = right;
+            right = left ^ (mix(right + mKeys[i]) & mHalfMask);
+            left = tmp;
+        }
+        return (left << mHalfBits) | right;
+    }
+
+    // 64-bit finalizer from MurmurHash3
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    private static boolean unsignedGreater(long a, long b)
+    {
+        return (a ^ Long.MIN_VALUE) > (b ^ Long.MIN_VALUE);
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * Jove Constraint-based Random Solver
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.randsolver;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import com.newisys.langschema.constraint.*;
+import com.newisys.langschema.java.JavaIntegralType;
+import com.newisys.verilog.util.BitVector;
+
+/**
+ * Determines whether a cyclic random variable is constrained only by bounds
+ * on its range, in which case its values can be generated by a
+ * {@link CyclicPermutation} rather than by the BDD solver. Constraints must
+ * have had any non-random variables replaced by constants. A variable
+ * qualifies if every constraint expression that references it is a
+ * comparison of the variable with a constant, an <code>in</code> set of
+ * constants forming a single range, or a conjunction of these.
+ *
+ * @author Jon Nall
+ */
+final class CyclicRangeFinder
+{
+    private final ConsVariableReference mVarRef;
+    private BigInteger mLow;
+    private BigInteger mHigh;
+
+    private CyclicRangeFinder(RandomVariable rv, int numBits, boolean signed)
+    {
+        mVarRef = rv.getVarRef();
+        if (signed)
+        {
+            mLow = BigInteger.ONE.shiftLeft(numBits - 1).negate();
+            mHigh = BigInteger.ONE.shiftLeft(numBits - 1).subtract(
+                BigInteger.ONE);
+        }
+        else
+        {
+            mLow = BigInteger.ZERO;
+            mHigh = BigInteger.ONE.shiftLeft(numBits).subtract(BigInteger.ONE);
+        }
+    }
+
+    /**
+     * Returns the range of values allowed for the given cyclic variable by the
+     * given constraint expressions, or null if the variable cannot be
+     * generated by a permutation. If a range is returned, the expressions that
+     * reference the variable are added to <code>rangeExprs</code>.
+     *
+     * @param rv the cyclic variable
+     * @param exprs the constraint expressions being solved
+     * @param rangeExprs the list to which the expressions constraining the
+     *            range of the variable are added
+     * @return a two-element array containing the lowest and highest allowed
+     *         values, or null
+     */
+    static BigInteger[] findRange(
+        RandomVariable rv,
+        List<ConsExpression> exprs,
+        List<ConsExpression> rangeExprs)
+    {
+        int numBits = rv.getNumBits();
+        if (rv.isRandomizableType() || numBits < 1 || numBits > 64
+            || RandomMapperRegistry.getMapper(rv.getClassType()) != null)
+        {
+            return null;
+        }
+        boolean signed = false;
+        if (rv.getVarRef().getResultType() instanceof JavaIntegralType)
+        {
+            signed = ((JavaIntegralType) rv.getVarRef().getResultType())
+                .isSigned();
+        }
+
+        CyclicRangeFinder finder = new CyclicRangeFinder(rv, numBits, signed);
+        List<ConsExpression> matched = new ArrayList<ConsExpression>();
+        for (final ConsExpression expr : exprs)
+        {
+            if (finder.references(expr))
+            {
+                if (!finder.restrict(expr))
+                {
+                    return null;
+                }
+                matched.add(expr);
+            }
+        }
+
+        // leave empty ranges to the BDD solver, which reports them
+        if (finder.mLow.compareTo(finder.mHigh) > 0)
+        {
+            return null;
+        }
+        rangeExprs.addAll(matched);
+        return new BigInteger[] { finder.mLow, finder.mHigh };
+    }
+
+    private boolean isVar(ConsExpression expr)
+    {
+        return expr instanceof ConsVariableReference
+            && ConsVariableReferenceComparator.INSTANCE.compare(mVarRef,
+                (ConsVariableReference) expr) == 0;
+    }
+
+    // conservatively returns true for expressions it does not understand
+    private boolean references(ConsExpression expr)
+    {
+        if (expr instanceof ConsVariableReference)
+        {
+            return isVar(expr);
+        }
+        else if (expr instanceof ConsOperation)
+        {
+            Iterator iter = ((ConsOperation) expr).getOperands().iterator();
+            while (iter.hasNext())
+            {
+                if (references((ConsExpression) iter.next())) return true;
+            }
+            return false;
+        }
+        else if (expr instanceof ConsSetOperation)
+        {
+            ConsSetOperation setOp = (ConsSetOperation) expr;
+            if (references(setOp.getExpr())) return true;
+            Iterator iter = setOp.getMembers().iterator();
+            while (iter.hasNext())
+            {
+                Object member = iter.next();
+                if (member instanceof ConsSetValue)
+                {
+                    if (references(((ConsSetValue) member).getValue()))
+                    {
+                        return true;
+                    }
+                }
+                else if (member instanceof ConsSetRange)
+                {
+                    ConsSetRange range = (ConsSetRange) member;
+                    if (references(range.getLow())
+                        || references(range.getHigh()))
+                    {
+                        return true;
+                    }
+                }
+                else
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return !(expr instanceof ConsBooleanLiteral
+            || expr instanceof ConsBitVectorLiteral
+            || expr instanceof ConsCharLiteral
+            || expr instanceof ConsIntLiteral || expr instanceof ConsLongLiteral);
+    }
+
+    // intersects the current range with the values for which expr is true;
+    // returns false if expr is not a range constraint
+    private boolean restrict(ConsExpression expr)
+    {
+        if (expr instanceof ConsConditionalAnd)
+        {
+            ConsOperation op = (ConsOperation) expr;
+            return restrict(op.getOperand(0)) && restrict(op.getOperand(1));
+        }
+        else if (expr instanceof ConsInSet && !(expr instanceof ConsNotInSet))
+        {
+            return restrictInSet((ConsInSet) expr);
+        }
+        else if (expr instanceof ConsEqual || expr instanceof ConsLess
+            || expr instanceof ConsLessOrEqual || expr instanceof ConsGreater
+            || expr instanceof ConsGreaterOrEqual)
+        {
+            ConsOperation op = (ConsOperation) expr;
+            ConsExpression lhs = op.getOperand(0);
+            ConsExpression rhs = op.getOperand(1);
+            boolean swapped = false;
+            if (!isVar(lhs))
+            {
+                ConsExpression tmp = lhs;
+                lhs = rhs;
+                rhs = tmp;
+                swapped = true;
+            }
+            BigInteger value = constant(rhs);
+            if (!isVar(lhs) || value == null)
+            {
+                return false;
+            }
+
+            // with the variable on the left: var < value, etc.
+            boolean less = (expr instanceof ConsLess
+                || expr instanceof ConsLessOrEqual) != swapped;
+            boolean strict = expr instanceof ConsLess
+                || expr instanceof ConsGreater;
+            if (expr instanceof ConsEqual)
+            {
+                intersect(value, value);
+            }
+            else if (less)
+            {
+                intersect(null, strict ? value.subtract(BigInteger.ONE)
+                    : value);
+            }
+            else
+            {
+                intersect(strict ? value.add(BigInteger.ONE) : value, null);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private boolean restrictInSet(ConsInSet expr)
+    {
+        if (!isVar(expr.getExpr()))
+        {
+            return false;
+        }
+
+        // the members must form a single range once merged
+        List<BigInteger[]> ranges = new ArrayList<BigInteger[]>();
+        Iterator iter = expr.getMembers().iterator();
+        while (iter.hasNext())
+        {
+            Object member = iter.next();
+            BigInteger low;
+            BigInteger high;
+            if (member instanceof ConsSetValue)
+            {
+                low = high = constant(((ConsSetValue) member).getValue());
+            }
+            else if (member instanceof ConsSetRange)
+            {
+                low = constant(((ConsSetRange) member).getLow());
+                high = constant(((ConsSetRange) member).getHigh());
+            }
+            else
+            {
+                return false;
+            }
+            if (low == null || high == null)
+            {
+                return false;
+            }
+            if (low.compareTo(high) <= 0)
+            {
+                ranges.add(new BigInteger[] { low, high });
+            }
+        }
+        if (ranges.isEmpty())
+        {
+            return false;
+        }
+
+        Collections.sort(ranges, new Comparator<BigInteger[]>()
+        {
+            public int compare(BigInteger[] a, BigInteger[] b)
+            {
+                return a[0].compareTo(b[0]);
+            }
+        });
+        BigInteger low = ranges.get(0)[0];
+        BigInteger high = ranges.get(0)[1];
+        for (int i = 1; i < ranges.size(); ++i)
+        {
+            BigInteger[] range = ranges.get(i);
+            if (range[0].compareTo(high.add(BigInteger.ONE)) > 0)
+            {
+                return false;
+            }
+            high = high.max(range[1]);
+        }
+        intersect(low, high);
+        return true;
+    }
+
+    private void intersect(BigInteger low, BigInteger high)
+    {
+        if (low != null) mLow = mLow.max(low);
+        if (high != null) mHigh = mHigh.min(high);
+    }
+
+    // returns the value of a constant expression, or null if expr is not
+    // constant
+    private static BigInteger constant(ConsExpression expr)
+    {
+        if (expr instanceof ConsIntLiteral)
+        {
+            return BigInteger.valueOf(((ConsIntLiteral) expr).getValue());
+        }
+        else if (expr instanceof ConsLongLiteral)
+        {
+            return BigInteger.valueOf(((ConsLongLiteral) expr).getValue());
+        }
+        else if (expr instanceof ConsCharLiteral)
+        {
+            return BigInteger.valueOf(((ConsCharLiteral) expr).getValue());
+        }
+        else if (expr instanceof ConsBitVectorLiteral)
+        {
+            BitVector value = ((ConsBitVectorLiteral) expr).getValue();
+            return value.containsXZ() ? null : new BigInteger(1, value
+                .getBytes());
+        }
+        else if (expr instanceof ConsUnaryMinus || expr instanceof ConsUnaryPlus)
+        {
+            BigInteger value = constant(((ConsOperation) expr).getOperand(0));
+            if (value == null || expr instanceof ConsUnaryPlus) return value;
+            return value.negate();
+        }
+        else if (expr instanceof ConsAdd || expr instanceof ConsSubtract
+            || expr instanceof ConsMultiply)
+        {
+            ConsOperation op = (ConsOperation) expr;
+            BigInteger lhs = constant(op.getOperand(0));
+            BigInteger rhs = constant(op.getOperand(1));
+            if (lhs == null || rhs == null) return null;
+            if (expr instanceof ConsAdd) return lhs.add(rhs);
+            if (expr instanceof ConsSubtract) return lhs.subtract(rhs);
+            return lhs.multiply(rhs);
+        }
+        return null;
+    }
+}
@@ -18,18 +18,22 @@
 
 package com.newisys.randsolver;
 
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import com.newisys.langschema.constraint.*;
 import com.newisys.random.PRNG;
+import com.newisys.verilog.util.BitVector;
 
 abstract class ExprSolver
 {
 
     String mName; // String representation
     protected RandVarSet mVars; // Set of variables this solver solves for
-
-    protected abstract boolean needsReevaluation(RandVarSet varSet, Object obj);
+    public final Map<RandomVariable, BitVector> unrandomizedVarMap = new HashMap<RandomVariable, BitVector>();
 
     // returns a list of RandomVariables which had their cyclic constraints
     // reset
@@ -50,6 +54,217 @@ abstract class ExprSolver
         mName = name;
     }
 
+    /**
+     * Returns an estimate of the number of bytes this solver keeps reachable
+     * once it has solved its constraints. Used to bound the solution cache.
+     *
+     * @return the estimated retained size in bytes
+     */
+    long estimateRetainedSize()
+    {
+        return 1024;
+    }
+
+    /**
+     * Releases any resources held by this solver that are not reclaimed by
+     * the garbage collector. Called when the solver is dropped from the
+     * solution cache; the solver must not be used afterward.
+     */
+    void release()
+    {
+        // nothing to release by default
+    }
+
+    private BitVector literalToBitVector(ConsExpression literal)
+    {
+        if (literal instanceof ConsBooleanLiteral)
+        {
+            return new BitVector(1, ((ConsBooleanLiteral) literal).getValue()
+                ? 1 : 0);
+        }
+        else if (literal instanceof ConsCharLiteral)
+        {
+            return new BitVector(8, ((ConsCharLiteral) literal).getValue());
+        }
+        else if (literal instanceof ConsIntLiteral)
+        {
+            return new BitVector(32, ((ConsIntLiteral) literal).getValue());
+        }
+        else if (literal instanceof ConsLongLiteral)
+        {
+            return new BitVector(64, ((ConsLongLiteral) literal).getValue());
+        }
+        else if (literal instanceof ConsBitVectorLiteral)
+        {
+            return ((ConsBitVectorLiteral) literal).getValue();
+        }
+        else
+        {
+            throw new InvalidConstraintException(
+                "Expected integral literal type: "
+                    + literal.getClass().getName());
+        }
+    }
+
+    public boolean needsReevaluation(RandVarSet varsToCheck, Object obj)
+    {
+        boolean reeval = false;
+        Iterator iter = varsToCheck.iterator();
+        while (iter.hasNext())
+        {
+            RandomVariable rv = (RandomVariable) iter.next();
+            Field f = rv.getField();
+            BitVector literal = null;
+            try
+            {
+                literal = literalToBitVector(NameParser.getExpr(f.getName(), f
+                    .getDeclaringClass(), null, rv.getObjRef(obj)));
+            }
+            catch (NoSuchFieldException e)
+            {
+                throw new RuntimeException(e);
+            }
+            catch (IllegalAccessException e1)
+            {
+                throw new RuntimeException(e1);
+            }
+
+            if (unrandomizedVarMap.containsKey(rv))
+            {
+                BitVector literal2 = unrandomizedVarMap.get(rv);
+                //    System.out.println("l1: " + literal + ", l2: " + literal2);
+                reeval |= !literal2.equals(literal);
+            }
+            else
+            {
+                unrandomizedVarMap.put(rv, literal);
+                reeval |= true;
+            }
+        }
+        // check if any of the varsToCheck has changed since the last time
+        return reeval;
+    }
+
+    // assigns solutions[i] to the field of the i'th variable in mVars.
+    protected final void commitSolutions(BitVector[] solutions, Object obj)
+    {
+        for (int i = 0; i < solutions.length; i++)
+        {
+            commitSolution(mVars.get(i), solutions[i], obj);
+        }
+    }
+
+    // assigns solution to the field of rv. throws InvalidConstraintException
+    // if an IllegalAccessException occurs while setting the field.
+    static void commitSolution(RandomVariable rv, BitVector solution, Object obj)
+    {
+        // field has already been setAccessible().
+        Field f = rv.getField();
+        try
+        {
+            Class dataType = rv.getClassType();
+
+            Object commitObj = rv.getObjRef(obj);
+
+            if (dataType == boolean.class || dataType == Boolean.class)
+            {
+                int value = solution.intValue();
+                assert (value == 0 || value == 1);
+                boolean b = ((value == 1) ? true : false);
+
+                if (dataType == boolean.class)
+                {
+                    f.setBoolean(commitObj, b);
+                }
+                else
+                {
+                    f.set(commitObj, new Boolean(b));
+                }
+            }
+            else if (dataType == byte.class || dataType == Byte.class)
+            {
+                int value = solution.intValue();
+                assert (value >= 0 && value < 0x100);
+                byte b = (byte) value;
+
+                if (dataType == byte.class)
+                {
+                    f.setByte(commitObj, b);
+                }
+                else
+                {
+                    f.set(commitObj, new Byte(b));
+                }
+            }
+            else if (dataType == char.class)
+            {
+                int value = solution.intValue();
+                assert (value >= 0 && value < 0x100);
+                char c = (char) value;
+
+                // There is no "Char" class
+                f.setChar(commitObj, c);
+            }
+            else if (dataType == int.class || dataType == Integer.class)
+            {
+                int value = solution.intValue();
+                if (dataType == int.class)
+                {
+                    f.setInt(commitObj, value);
+                }
+                else
+                {
+                    f.set(commitObj, new Integer(value));
+                }
+            }
+            else if (dataType == long.class || dataType == Long.class)
+            {
+                long value = solution.longValue();
+
+                if (dataType == long.class)
+                {
+                    f.setLong(commitObj, value);
+                }
+                else
+                {
+                    f.set(commitObj, new Long(value));
+                }
+            }
+            else if (dataType == short.class || dataType == Short.class)
+            {
+                int value = solution.intValue();
+                assert (value >= 0 && value <= 0x10000);
+                short s = (short) value;
+
+                if (dataType == short.class)
+                {
+                    f.setShort(commitObj, s);
+                }
+                else
+                {
+                    f.set(commitObj, new Short(s));
+                }
+            }
+            else if (dataType == BitVector.class)
+            {
+                f.set(commitObj, solution);
+            }
+            // NOTE: no special case for Enums. This is because they should
+            // have an entry in the RandomMapperRegistry.
+            else
+            {
+                RandomMapper cp = RandomMapperRegistry.getMapper(dataType);
+                assert (cp != null);
+                int value = solution.intValue();
+                f.set(commitObj, cp.getObject(value));
+            }
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new InvalidConstraintException(e.getMessage() + ": " + f);
+        }
+    }
+
     @Override
     public String toString()
     {
@@ -185,6 +185,20 @@ public final class RandVarSet
         return newSet;
     }
 
+    /**
+     * Removes rv from this RandVarSet.
+     *
+     * @param rv the RandomVariable to remove
+     */
+    void remove(RandomVariable rv)
+    {
+        if (mRandVars.remove(rv))
+        {
+            mRandVarToIdx.remove(rv);
+            resetIndices();
+        }
+    }
+
     RandomVariable getVarFromField(Field f)
     {
         Iterator iter = mRandVars.iterator();
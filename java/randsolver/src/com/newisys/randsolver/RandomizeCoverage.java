@@ -0,0 +1,130 @@
+/*
+ * Jove Constraint-based Random Solver
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.newisys.randsolver;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.newisys.coverage.CoverGroup;
+
+/**
+ * A {@link RandomizeListener} that samples cover groups with each randomized
+ * object of a given class. The cover points of each group are typically
+ * bound to fields of the class using
+ * {@link com.newisys.coverage.CoverPoint#bindField(Class, String)
+ * CoverPoint.bindField}. A group registered for a class is also sampled for
+ * objects of its subclasses.
+ * <p>
+ * Example:
+ * <pre>
+ * CoverGroup cg = new CoverGroup("packet");
+ * cg.addCoverPoint("kind", PacketKind.class).bindField(Packet.class, "kind");
+ * cg.addCoverPoint("length", 8).bindField(Packet.class, "length");
+ * RandomizeCoverage coverage = new RandomizeCoverage();
+ * coverage.add(Packet.class, cg);
+ * Solver.addRandomizeListener(coverage);
+ * </pre>
+ * 
+ * @author Jon Nall
+ */
+public final class RandomizeCoverage
+    implements RandomizeListener
+{
+    private static final CoverGroup[] NO_GROUPS = new CoverGroup[0];
+
+    // groups registered for each class, and the resolved groups (including
+    // those registered for superclasses) for each randomized class
+    private final Map<Class, CoverGroup[]> registered = new ConcurrentHashMap<Class, CoverGroup[]>();
+    private final Map<Class, CoverGroup[]> resolved = new ConcurrentHashMap<Class, CoverGroup[]>();
+
+    /**
+     * Registers a cover group to be sampled with each randomized instance of
+     * the given class.
+     *
+     * @param cls the class of randomized objects
+     * @param group the cover group to sample
+     */
+    public synchronized void add(Class< ? > cls, CoverGroup group)
+    {
+        final CoverGroup[] cur = registered.get(cls);
+        final CoverGroup[] groups;
+        if (cur == null)
+        {
+            groups = new CoverGroup[] { group };
+        }
+        else
+        {
+            groups = new CoverGroup[cur.length + 1];
+            System.arraycopy(cur, 0, groups, 0, cur.length);
+            groups[cur.length] = group;
+        }
+        registered.put(cls, groups);
+        resolved.clear();
+    }
+
+    /**
+     * Removes all cover groups registered for the given class.
+     *
+     * @param cls the class of randomized objects
+     */
+    public synchronized void remove(Class< ? > cls)
+    {
+        registered.remove(cls);
+        resolved.clear();
+    }
+
+    public void randomized(Object obj)
+    {
+        final Class< ? > cls = obj.getClass();
+        CoverGroup[] groups = resolved.get(cls);
+        if (groups == null)
+        {
+            groups = resolve(cls);
+        }
+        for (final CoverGroup group : groups)
+        {
+            group.sample(obj);
+        }
+    }
+
+    private synchronized CoverGroup[] resolve(Class< ? > cls)
+    {
+        int count = 0;
+        for (Class< ? > c = cls; c != null; c = c.getSuperclass())
+        {
+            final CoverGroup[] groups = registered.get(c);
+            if (groups != null) count += groups.length;
+        }
+        final CoverGroup[] result = count > 0 ? new CoverGroup[count]
+            : NO_GROUPS;
+        int n = 0;
+        for (Class< ? > c = cls; c != null; c = c.getSuperclass())
+        {
+            final CoverGroup[] groups = registered.get(c);
+            if (groups != null)
+            {
+                System.arraycopy(groups, 0, result, n, groups.length);
+                n += groups.length;
+            }
+        }
+        resolved.put(cls, result);
+        return result;
+    }
+}
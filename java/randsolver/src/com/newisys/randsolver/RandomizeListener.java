@@ -0,0 +1,39 @@
+/*
+ * Jove Constraint-based Random Solver
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.newisys.randsolver;
+
+/**
+ * An interface for objects notified after a
+ * {@link com.newisys.randsolver.annotation.Randomizable Randomizable} object
+ * is randomized by the {@link Solver}.
+ * 
+ * @author Jon Nall
+ * @see Solver#addRandomizeListener(RandomizeListener)
+ */
+public interface RandomizeListener
+{
+    /**
+     * Called after the given object has been randomized and its
+     * postRandomize() hooks have been called.
+     *
+     * @param obj the randomized object
+     */
+    void randomized(Object obj);
+}
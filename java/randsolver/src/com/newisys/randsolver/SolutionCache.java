@@ -0,0 +1,168 @@
+/*
+ * Jove Constraint-based Random Solver
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.newisys.randsolver;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches solved ExprSolvers by constraint set, evicting the least recently
+ * used solvers once their estimated retained size exceeds a memory budget.
+ * Evicted and replaced solvers are released, which frees their BDDs.
+ * <P>
+ * Like the rest of the solver, this class is not thread-safe.
+ *
+ * @param <K> the cache key type
+ * @author Jon Nall
+ */
+final class SolutionCache<K>
+{
+    private static final class Entry
+    {
+        final ExprSolver solver;
+        final long size;
+
+        Entry(ExprSolver solver, long size)
+        {
+            this.solver = solver;
+            this.size = size;
+        }
+    }
+
+    // access-ordered, so iteration starts at the least recently used entry
+    private final Map<K, Entry> mEntries = new LinkedHashMap<K, Entry>(16,
+        0.75f, true);
+    private final long mBudget;
+    private long mRetainedSize;
+
+    private long mHits;
+    private long mMisses;
+    private long mEvictions;
+
+    /**
+     * Creates a cache that retains at most approximately <code>budget</code>
+     * bytes of solvers. The most recently added solver is always retained,
+     * even if it alone exceeds the budget.
+     *
+     * @param budget the memory budget in bytes
+     */
+    SolutionCache(long budget)
+    {
+        mBudget = budget;
+    }
+
+    /**
+     * Returns the solver cached for the given key, or null if none is.
+     *
+     * @param key the key to look up
+     * @return the cached solver or null
+     */
+    ExprSolver get(K key)
+    {
+        final Entry entry = mEntries.get(key);
+        if (entry == null)
+        {
+            ++mMisses;
+            return null;
+        }
+        ++mHits;
+        return entry.solver;
+    }
+
+    /**
+     * Caches a solver for the given key. A different solver previously cached
+     * for the key is released.
+     *
+     * @param key the key to cache the solver for
+     * @param solver the solver to cache
+     */
+    void put(K key, ExprSolver solver)
+    {
+        final Entry old = mEntries.get(key);
+        if (old != null && old.solver == solver)
+        {
+            return;
+        }
+
+        final Entry entry = new Entry(solver, solver.estimateRetainedSize());
+        mEntries.put(key, entry);
+        mRetainedSize += entry.size;
+        if (old != null)
+        {
+            mRetainedSize -= old.size;
+            old.solver.release();
+        }
+
+        final Iterator<Entry> iter = mEntries.values().iterator();
+        while (mRetainedSize > mBudget && mEntries.size() > 1)
+        {
+            final Entry eldest = iter.next();
+            iter.remove();
+            mRetainedSize -= eldest.size;
+            eldest.solver.release();
+            ++mEvictions;
+        }
+    }
+
+    /**
+     * Releases and removes all cached solvers. The hit, miss and eviction
+     * counts are not reset.
+     */
+    void clear()
+    {
+        for (final Entry entry : mEntries.values())
+        {
+            entry.solver.release();
+        }
+        mEntries.clear();
+        mRetainedSize = 0;
+    }
+
+    int size()
+    {
+        return mEntries.size();
+    }
+
+    long getBudget()
+    {
+        return mBudget;
+    }
+
+    long getRetainedSize()
+    {
+        return mRetainedSize;
+    }
+
+    long getHits()
+    {
+        return mHits;
+    }
+
+    long getMisses()
+    {
+        return mMisses;
+    }
+
+    long getEvictions()
+    {
+        return mEvictions;
+    }
+}
@@ -21,10 +21,13 @@ package com.newisys.randsolver;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.sf.javabdd.BDD;
 
+import com.newisys.jfr.JfrSupport;
 import com.newisys.langschema.constraint.ConsExpression;
 import com.newisys.langschema.constraint.ConsSchema;
 import com.newisys.langschema.constraint.ConsVariableReference;
@@ -52,12 +55,60 @@ public class Solver
     // more RandomVariables and Constraints being added to these lists.
     private Constraint mConstraints;
     private RandVarSet mVars;
-    private static Map<ConstraintVarKey, ExprSolver> mSolutionCache = new HashMap<ConstraintVarKey, ExprSolver>();
+    // whether execute() found a cached solution, and whether it had to solve
+    // the constraints anyway; reported by RandomizeEvent
+    private boolean mCached;
+    private boolean mSolved;
+    private static SolutionCache<ConstraintVarKey> mSolutionCache;
     private static Map<Class, RandInfo> mClassToRandInfo = new WeakHashMap<Class, RandInfo>();
     private static Map<Object, RandInfo> mObjToRandInfo = new WeakIdentityMap<Object, RandInfo>();
+    // the permutations of the permuted cyclic variables of each object, by
+    // the object declaring the variable and the variable's field
+    private static Map<Object, Map<Field, CyclicPermutation>> mObjToPermutations = new WeakIdentityMap<Object, Map<Field, CyclicPermutation>>();
+
+    // constraint sets without cyclic variables whose BDDs grow beyond this
+    // many nodes are solved by WordExprSolver instead; 0 disables the fallback
+    private static final int BDD_NODE_THRESHOLD = Integer.getInteger(
+        "com.newisys.randsolver.bddNodeThreshold", 500000).intValue();
+    // cyclic variables that are unconstrained or only range constrained are
+    // generated by CyclicPermutation unless this property is set to false
+    private static final boolean USE_PERMUTATIONS = !"false"
+        .equalsIgnoreCase(System.getProperty("com.newisys.randsolver.usePermutations"));
+    // solved constraint sets are cached until the estimated size of their
+    // solvers (mostly BDD nodes) exceeds this many bytes
+    private static final long SOLUTION_CACHE_BUDGET = Long.getLong(
+        "com.newisys.randsolver.solutionCacheBudget", 64L << 20).longValue();
+    // if this property is set to true, SolverStatistics are printed to
+    // System.err when the VM exits
+    private static final boolean PRINT_STATISTICS = Boolean
+        .getBoolean("com.newisys.randsolver.printStatistics");
+
+    static
+    {
+        mSolutionCache = new SolutionCache<ConstraintVarKey>(
+            SOLUTION_CACHE_BUDGET);
+        if (PRINT_STATISTICS)
+        {
+            Runtime.getRuntime().addShutdownHook(new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    SolverStatistics.getCurrent().print(System.err);
+                }
+            });
+        }
+    }
 
     private static final boolean DEBUG_VARS = false;
 
+    private static final List<RandomizeListener> mRandomizeListeners = new CopyOnWriteArrayList<RandomizeListener>();
+
+    static SolutionCache<?> getSolutionCache()
+    {
+        return mSolutionCache;
+    }
+
     private class ConstraintVarKey
     {
         private Constraint c;
@@ -151,19 +202,8 @@ public class Solver
                     .value();
                 for (com.newisys.randsolver.annotation.Constraint c : aCons)
                 {
-                    String cName = c.name();
-                    if (cNames.contains(cName))
-                    {
-                        // if a derived class has a constraint with the same
-                        // name as one of its base class's constraints, the
-                        // derived class's constraint is used
-                        continue;
-                    }
-                    Constraint cons = ConstraintCompiler.compile(curClass, c
+                    addConstraint(randInfo, cNames, curClass, c.name(), c
                         .expr());
-                    cons.setName(cName);
-                    cNames.add(cName);
-                    randInfo.addConstraint(cons);
                 }
             }
             curClass = curClass.getSuperclass();
@@ -173,83 +213,117 @@ public class Solver
         curClass = klass;
         while (curClass != Object.class)
         {
-            Field[] fields = curClass.getDeclaredFields();
-            AccessibleObject.setAccessible(fields, true);
-            StringBuffer sBuf = new StringBuffer(128);
-            for (Field f : fields)
+            String spec = getRandVarSpec(curClass);
+            if (spec.length() > 0)
             {
-                boolean rand = f.isAnnotationPresent(Rand.class);
-                boolean randc = f.isAnnotationPresent(Randc.class);
-                Length length = f.getAnnotation(Length.class);
-                boolean randomizeField = (rand || randc);
+                randInfo.addRandVars(new RandVarSet(curClass, spec));
+            }
+            curClass = curClass.getSuperclass();
+        }
 
-                if (rand && randc)
-                {
-                    throw new InvalidRandomVarException(
-                        "It is invalid to specify both Rand and Randc on variable: "
-                            + f.getDeclaringClass().getCanonicalName() + "."
-                            + f.getName());
-                }
+        mClassToRandInfo.put(klass, randInfo);
+        assert (randInfo != null);
+        return randInfo;
+    }
 
-                if (randomizeField)
-                {
-                    // check that the field isn't final (unless it's
-                    // Randomizable, in which case final is OK)
-                    if (Modifier.isFinal(f.getModifiers()))
-                    {
-                        if (!f.getType()
-                            .isAnnotationPresent(Randomizable.class))
-                        {
-                            throw new InvalidRandomVarException(
-                                "Final fields cannot be randomized: "
-                                    + f.toGenericString());
-                        }
-                    }
+    private static void addConstraint(
+        RandInfo randInfo,
+        Set<String> cNames,
+        Class< ? > curClass,
+        String cName,
+        String expr)
+    {
+        if (cNames.contains(cName))
+        {
+            // if a derived class has a constraint with the same
+            // name as one of its base class's constraints, the
+            // derived class's constraint is used
+            return;
+        }
+        Constraint cons = ConstraintCompiler.compile(curClass, expr);
+        cons.setName(cName);
+        cNames.add(cName);
+        randInfo.addConstraint(cons);
+    }
+
+    /**
+     * Builds the random variable specification for the fields declared by the
+     * given class, validating their Rand, Randc, and Length annotations.
+     *
+     * @param curClass the class whose declared fields are examined
+     * @return a specification in the form accepted by {@link RandVarSet}, or
+     *         an empty string if the class declares no random variables
+     * @throws InvalidRandomVarException if a random variable is declared
+     *             incorrectly
+     */
+    static String getRandVarSpec(Class< ? > curClass)
+    {
+        Field[] fields = curClass.getDeclaredFields();
+        AccessibleObject.setAccessible(fields, true);
+        StringBuffer sBuf = new StringBuffer(128);
+        for (Field f : fields)
+        {
+            boolean rand = f.isAnnotationPresent(Rand.class);
+            boolean randc = f.isAnnotationPresent(Randc.class);
+            Length length = f.getAnnotation(Length.class);
+            boolean randomizeField = (rand || randc);
 
-                    // BitVectors being randomized must be annotated with
-                    // a > 0 @Length
-                    if (f.getType() == BitVector.class)
+            if (rand && randc)
+            {
+                throw new InvalidRandomVarException(
+                    "It is invalid to specify both Rand and Randc on variable: "
+                        + f.getDeclaringClass().getCanonicalName() + "."
+                        + f.getName());
+            }
+
+            if (randomizeField)
+            {
+                // check that the field isn't final (unless it's
+                // Randomizable, in which case final is OK)
+                if (Modifier.isFinal(f.getModifiers()))
+                {
+                    if (!f.getType().isAnnotationPresent(Randomizable.class))
                     {
-                        if (length == null)
-                        {
-                            throw new InvalidRandomVarException(
-                                "Required Length annotation missing on variable: "
-                                    + f.getDeclaringClass().getCanonicalName()
-                                    + "." + f.getName());
-                        }
-                        else if (length.value() <= 0)
-                        {
-                            throw new InvalidRandomVarException(
-                                "Invalid Length annotation (" + length.value()
-                                    + ") on variable:"
-                                    + f.getDeclaringClass().getCanonicalName()
-                                    + "." + f.getName()
-                                    + " (Length must be > 0)");
-                        }
+                        throw new InvalidRandomVarException(
+                            "Final fields cannot be randomized: "
+                                + f.toGenericString());
                     }
+                }
 
-                    if (randc)
+                // BitVectors being randomized must be annotated with
+                // a > 0 @Length
+                if (f.getType() == BitVector.class)
+                {
+                    if (length == null)
                     {
-                        sBuf.append("cyclic ");
+                        throw new InvalidRandomVarException(
+                            "Required Length annotation missing on variable: "
+                                + f.getDeclaringClass().getCanonicalName()
+                                + "." + f.getName());
                     }
-                    sBuf.append(f.getName());
-                    if (length != null)
+                    else if (length.value() <= 0)
                     {
-                        sBuf.append(":" + length.value());
+                        throw new InvalidRandomVarException(
+                            "Invalid Length annotation (" + length.value()
+                                + ") on variable:"
+                                + f.getDeclaringClass().getCanonicalName()
+                                + "." + f.getName() + " (Length must be > 0)");
                     }
-                    sBuf.append(";");
                 }
+
+                if (randc)
+                {
+                    sBuf.append("cyclic ");
+                }
+                sBuf.append(f.getName());
+                if (length != null)
+                {
+                    sBuf.append(":" + length.value());
+                }
+                sBuf.append(";");
             }
-            if (sBuf.length() > 0)
-            {
-                randInfo.addRandVars(new RandVarSet(curClass, sBuf.toString()));
-            }
-            curClass = curClass.getSuperclass();
         }
-
-        mClassToRandInfo.put(klass, randInfo);
-        assert (randInfo != null);
-        return randInfo;
+        return sBuf.toString();
     }
 
     /**
@@ -274,9 +348,50 @@ public class Solver
 
     public static void randomize(Object obj, PRNG randomStream)
     {
+        final Object jfrEvent = JfrSupport.ENABLED ? JfrSupport.RECORDER
+            .beginRandomize() : null;
+
         RandInfo rInfo = getRandInfoOrThrow(obj);
         Solver s = new Solver(rInfo);
         s.execute(obj, rInfo, randomStream);
+
+        if (!mRandomizeListeners.isEmpty())
+        {
+            for (RandomizeListener listener : mRandomizeListeners)
+            {
+                listener.randomized(obj);
+            }
+        }
+
+        if (jfrEvent != null)
+        {
+            JfrSupport.RECORDER.commitRandomize(jfrEvent, obj.getClass(),
+                s.mCached, s.mSolved);
+        }
+    }
+
+    /**
+     * Registers a listener to be notified after each object is randomized by
+     * {@link #randomize(Object, PRNG)}, after its postRandomize() hooks have
+     * been called.
+     *
+     * @param listener the listener to add
+     */
+    public static void addRandomizeListener(RandomizeListener listener)
+    {
+        mRandomizeListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener previously registered using
+     * {@link #addRandomizeListener(RandomizeListener)}.
+     *
+     * @param listener the listener to remove
+     * @return <code>true</code> if the listener was registered
+     */
+    public static boolean removeRandomizeListener(RandomizeListener listener)
+    {
+        return mRandomizeListeners.remove(listener);
     }
 
     public Solver(RandInfo randInfo)
@@ -662,6 +777,7 @@ public class Solver
             ConstraintVarKey key = new ConstraintVarKey(mConstraints, mVars);
             ExprSolver exprSolver = mSolutionCache.get(key);
             boolean cached = (exprSolver != null);
+            mCached = cached;
 
             // if unrandomized variables change, we have to re-evaluate the
             // constraint. we'd like to avoid doing that so check if they've really
@@ -671,6 +787,11 @@ public class Solver
 
             replaceVarsWithConstants(unrandomizedVars, obj);
 
+            // cyclic variables that are unconstrained or only range
+            // constrained are generated by permutations rather than solved,
+            // which also lets the remaining solution be cached
+            Map<RandomVariable, BigInteger[]> permutedVars = extractPermutedVars(unconstrainedVars);
+
             // replace any variables not being randomized with their current
             // values
             // removeNonRandVars(mConstraints.getConstraint(), _obj);
@@ -692,11 +813,46 @@ public class Solver
                 System.out.println("constraints: " + mConstraints);
             }
 
-            if (!cached || mVars.containsCyclic() || unrandomizedVarsChanged)
+            boolean needSolver = mVars.size() != 0
+                || !mConstraints.getSchemaConstraint().getExprs().isEmpty();
+            if (needSolver
+                && (!cached || mVars.containsCyclic() || unrandomizedVarsChanged))
             {
-                exprSolver = new ComplexExprSolver("FIXME (complex)");
-                List cyclicList = exprSolver.solve(mConstraints, mVars,
-                    unconstrainedVars);
+                mSolved = true;
+                List cyclicList;
+                if (BDD_NODE_THRESHOLD > 0
+                    && WordExprSolver.canSolve(mConstraints, mVars))
+                {
+                    // give up on the BDD solver if it needs too many nodes,
+                    // which happens with wide multiplies and divides
+                    ComplexExprSolver bddSolver = new ComplexExprSolver(
+                        "FIXME (complex)");
+                    BddUtils.setNodeLimit(BddUtils.getFactory().getNodeNum()
+                        + BDD_NODE_THRESHOLD);
+                    try
+                    {
+                        cyclicList = bddSolver.solve(mConstraints, mVars,
+                            unconstrainedVars);
+                        exprSolver = bddSolver;
+                    }
+                    catch (BddUtils.NodeLimitExceededException e)
+                    {
+                        exprSolver = new WordExprSolver("FIXME (word)",
+                            bddSolver.mMaxConstraintBits);
+                        cyclicList = exprSolver.solve(mConstraints, mVars,
+                            unconstrainedVars);
+                    }
+                    finally
+                    {
+                        BddUtils.setNodeLimit(Integer.MAX_VALUE);
+                    }
+                }
+                else
+                {
+                    exprSolver = new ComplexExprSolver("FIXME (complex)");
+                    cyclicList = exprSolver.solve(mConstraints, mVars,
+                        unconstrainedVars);
+                }
                 // reset cyclic constraints back into randomizable
                 Iterator rvIter = cyclicList.iterator();
                 while (rvIter.hasNext())
@@ -715,29 +871,49 @@ public class Solver
                     }
                 }
             }
-            Map cyclicMap = exprSolver.commit(obj, randomStream);
 
-            // store cyclic constraints back into randomizable
-            Iterator rvIter = cyclicMap.keySet().iterator();
-            while (rvIter.hasNext())
+            if (needSolver)
             {
-                RandomVariable rv = (RandomVariable) rvIter.next();
-                BDD bdd = (BDD) cyclicMap.get(rv);
-                RandVarSet rvSet = rInfo.getRandVars();
-                Iterator iter = rvSet.iterator();
-                while (iter.hasNext())
+                Map cyclicMap = exprSolver.commit(obj, randomStream);
+
+                // store cyclic constraints back into randomizable
+                Iterator rvIter = cyclicMap.keySet().iterator();
+                while (rvIter.hasNext())
                 {
-                    RandomVariable rvOrig = (RandomVariable) iter.next();
-                    if (rv.equals(rvOrig))
+                    RandomVariable rv = (RandomVariable) rvIter.next();
+                    BDD bdd = (BDD) cyclicMap.get(rv);
+                    RandVarSet rvSet = rInfo.getRandVars();
+                    Iterator iter = rvSet.iterator();
+                    while (iter.hasNext())
                     {
-                        rvOrig.addCyclicConstraint(bdd);
+                        RandomVariable rvOrig = (RandomVariable) iter.next();
+                        if (rv.equals(rvOrig))
+                        {
+                            rvOrig.addCyclicConstraint(bdd);
+                        }
                     }
                 }
+
+                // initialize the map in the exprsolver
+                exprSolver.needsReevaluation(unrandomizedVars, obj);
+                mSolutionCache.put(key, exprSolver);
             }
 
-            // initialize the map in the exprsolver
-            exprSolver.needsReevaluation(unrandomizedVars, obj);
-            mSolutionCache.put(key, exprSolver);
+            // permuted values are drawn last so that a failed solve does not
+            // advance their cycles
+            for (final Map.Entry<RandomVariable, BigInteger[]> entry : permutedVars
+                .entrySet())
+            {
+                RandomVariable rv = entry.getKey();
+                BigInteger[] range = entry.getValue();
+                CyclicPermutation permutation = getPermutation(rv
+                    .getObjRef(obj), rv.getField());
+                permutation.setRange(range[0].longValue(), range[1].subtract(
+                    range[0]).longValue());
+                long value = permutation.next(randomStream);
+                ExprSolver.commitSolution(rv, new BitVector(rv.getNumBits(),
+                    value), obj);
+            }
         }
 
         // look at all variables being randomized and call the preRandomize()
@@ -888,6 +1064,79 @@ public class Solver
         }
     }
 
+    /**
+     * Returns the permutation generating the values of the cyclic variable
+     * declared by field in obj, creating it if necessary. Each object has its
+     * own permutations, so randomizing one instance of a class does not
+     * advance the cycles of another.
+     * @param obj the object declaring the variable
+     * @param field the field of the variable
+     * @return the permutation of the variable
+     */
+    private static CyclicPermutation getPermutation(Object obj, Field field)
+    {
+        Map<Field, CyclicPermutation> permutations = mObjToPermutations
+            .get(obj);
+        if (permutations == null)
+        {
+            permutations = new HashMap<Field, CyclicPermutation>();
+            mObjToPermutations.put(obj, permutations);
+        }
+        CyclicPermutation permutation = permutations.get(field);
+        if (permutation == null)
+        {
+            permutation = new CyclicPermutation();
+            permutations.put(field, permutation);
+        }
+        return permutation;
+    }
+
+    /**
+     * Removes the cyclic variables in mVars whose values can be generated by a
+     * CyclicPermutation, along with the constraint expressions that bound
+     * their ranges.
+     * @param unconstrainedVars the variables in mVars not referenced by any
+     *            constraint, from which the removed variables are also removed
+     * @return a Map from each removed RandomVariable to its range, as an
+     *         array of its lowest and highest values
+     */
+    private Map<RandomVariable, BigInteger[]> extractPermutedVars(
+        RandVarSet unconstrainedVars)
+    {
+        Map<RandomVariable, BigInteger[]> permutedVars = new LinkedHashMap<RandomVariable, BigInteger[]>();
+        if (!USE_PERMUTATIONS || !mVars.containsCyclic())
+        {
+            return permutedVars;
+        }
+
+        List<ConsExpression> exprs = mConstraints.getSchemaConstraint()
+            .getExprs();
+        RandVarSet remainingVars = new RandVarSet();
+        remainingVars.addAll(mVars);
+        Iterator iter = mVars.iterator();
+        while (iter.hasNext())
+        {
+            RandomVariable rv = (RandomVariable) iter.next();
+            if (rv.getMode() != RandVarMode.CYCLIC) continue;
+
+            List<ConsExpression> rangeExprs = new LinkedList<ConsExpression>();
+            BigInteger[] range = CyclicRangeFinder.findRange(rv, exprs,
+                rangeExprs);
+            if (range != null)
+            {
+                exprs.removeAll(rangeExprs);
+                remainingVars.remove(rv);
+                unconstrainedVars.remove(rv);
+                permutedVars.put(rv, range);
+            }
+        }
+
+        // replace rather than modify mVars, since it may be referenced by a
+        // key in the solution cache
+        mVars = remainingVars;
+        return permutedVars;
+    }
+
     /**
      * Replaces each RandomVariable in set with its respective constant. This
      * method is used to make constants of all the variables in a Constraint
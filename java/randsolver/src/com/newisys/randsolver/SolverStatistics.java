@@ -0,0 +1,223 @@
+/*
+ * Jove Constraint-based Random Solver
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.newisys.randsolver;
+
+import java.io.PrintStream;
+
+import org.sf.javabdd.BDDFactory;
+
+/**
+ * A snapshot of the resource usage of the random solver: the BDD node table,
+ * its garbage collections and operator caches, and the cache of solved
+ * constraint sets. Counters accumulate from the start of the run.
+ * <P>
+ * Setting the system property
+ * <code>com.newisys.randsolver.printStatistics</code> to true prints the
+ * statistics to System.err when the VM exits. The BDD cache counters are
+ * only maintained if the system property
+ * <code>org.sf.javabdd.cacheStats</code> is set to true; otherwise they
+ * remain zero.
+ *
+ * @author Jon Nall
+ */
+public final class SolverStatistics
+{
+    private final int nodeNum;
+    private final int allocNum;
+    private final BDDFactory.GCStats gcStats;
+    private final BDDFactory.CacheStats cacheStats;
+    private final int solutionCacheSize;
+    private final long solutionCacheRetainedSize;
+    private final long solutionCacheBudget;
+    private final long solutionCacheHits;
+    private final long solutionCacheMisses;
+    private final long solutionCacheEvictions;
+
+    private SolverStatistics()
+    {
+        final BDDFactory factory = BddUtils.getFactory();
+        nodeNum = factory.getNodeNum();
+        allocNum = factory.getAllocNum();
+        gcStats = factory.getGCStats();
+        cacheStats = factory.getCacheStats();
+
+        final SolutionCache<?> cache = Solver.getSolutionCache();
+        solutionCacheSize = cache.size();
+        solutionCacheRetainedSize = cache.getRetainedSize();
+        solutionCacheBudget = cache.getBudget();
+        solutionCacheHits = cache.getHits();
+        solutionCacheMisses = cache.getMisses();
+        solutionCacheEvictions = cache.getEvictions();
+    }
+
+    /**
+     * Returns a snapshot of the current solver statistics.
+     *
+     * @return a new SolverStatistics
+     */
+    public static SolverStatistics getCurrent()
+    {
+        return new SolverStatistics();
+    }
+
+    /**
+     * Returns the number of BDD nodes in use, including dead nodes that have
+     * not yet been garbage collected.
+     */
+    public int getNodeNum()
+    {
+        return nodeNum;
+    }
+
+    /**
+     * Returns the size of the BDD node table.
+     */
+    public int getAllocNum()
+    {
+        return allocNum;
+    }
+
+    /**
+     * Returns the number of node table garbage collections.
+     */
+    public int getGCCount()
+    {
+        return gcStats.num;
+    }
+
+    /**
+     * Returns the total time spent in node table garbage collection, in
+     * milliseconds.
+     */
+    public long getGCTime()
+    {
+        return gcStats.sumtime;
+    }
+
+    /**
+     * Returns the hit rate of the BDD operator caches.
+     */
+    public double getOpCacheHitRate()
+    {
+        return cacheStats.getOpHitRate();
+    }
+
+    /**
+     * Returns the hit rate of the BDD unique node table.
+     */
+    public double getUniqueHitRate()
+    {
+        return cacheStats.getUniqueHitRate();
+    }
+
+    /**
+     * Returns the unique table and operator cache counters, which are zero
+     * unless <code>org.sf.javabdd.cacheStats</code> is set to true.
+     */
+    public BDDFactory.CacheStats getCacheStats()
+    {
+        return cacheStats;
+    }
+
+    /**
+     * Returns the number of solved constraint sets in the solution cache.
+     */
+    public int getSolutionCacheSize()
+    {
+        return solutionCacheSize;
+    }
+
+    /**
+     * Returns the estimated number of bytes retained by the solution cache.
+     */
+    public long getSolutionCacheRetainedSize()
+    {
+        return solutionCacheRetainedSize;
+    }
+
+    /**
+     * Returns the memory budget of the solution cache, in bytes.
+     */
+    public long getSolutionCacheBudget()
+    {
+        return solutionCacheBudget;
+    }
+
+    public long getSolutionCacheHits()
+    {
+        return solutionCacheHits;
+    }
+
+    public long getSolutionCacheMisses()
+    {
+        return solutionCacheMisses;
+    }
+
+    public long getSolutionCacheEvictions()
+    {
+        return solutionCacheEvictions;
+    }
+
+    /**
+     * Returns the hit rate of the solution cache.
+     */
+    public double getSolutionCacheHitRate()
+    {
+        final long total = solutionCacheHits + solutionCacheMisses;
+        return total > 0 ? (double) solutionCacheHits / total : 0.0;
+    }
+
+    /**
+     * Prints these statistics to the given stream, one per line.
+     *
+     * @param out the stream to print to
+     */
+    public void print(PrintStream out)
+    {
+        out.println("Randsolver statistics");
+        out.println("  BDD nodes:          " + nodeNum + " in use / "
+            + allocNum + " allocated");
+        out.println("  BDD GC:             " + gcStats.num + " collections, "
+            + gcStats.sumtime + " ms");
+        out.println("  BDD unique table:   " + percent(getUniqueHitRate())
+            + " hits (" + cacheStats.uniqueAccess + " accesses)");
+        out.println("  BDD operator cache: " + percent(getOpCacheHitRate()) + " hits ("
+            + (cacheStats.opHit + (long) cacheStats.opMiss) + " lookups)");
+        out.println("  Solution cache:     " + solutionCacheSize + " entries, "
+            + solutionCacheRetainedSize + " / " + solutionCacheBudget
+            + " bytes, " + percent(getSolutionCacheHitRate()) + " hits, "
+            + solutionCacheEvictions + " evictions");
+    }
+
+    private static String percent(double rate)
+    {
+        return ((int) Math.round(rate * 1000)) / 10.0 + "%";
+    }
+
+    @Override
+    public String toString()
+    {
+        return "nodes=" + nodeNum + "/" + allocNum + ", gc=" + gcStats.num
+            + "/" + gcStats.sumtime + "ms, opHitRate=" + getOpCacheHitRate()
+            + ", solutionCache=" + solutionCacheSize + " ("
+            + getSolutionCacheHitRate() + " hit rate, "
+            + solutionCacheEvictions + " evictions)";
+    }
+}
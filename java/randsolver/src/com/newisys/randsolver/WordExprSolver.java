@@ -0,0 +1,1998 @@
+/*
+ * Jove Constraint-based Random Solver
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.randsolver;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.newisys.langschema.constraint.*;
+import com.newisys.langschema.java.JavaIntegralType;
+import com.newisys.random.PRNG;
+import com.newisys.verilog.util.BitVector;
+
+/**
+ * Word-level constraint solver for constraint sets whose BDDs grow too large,
+ * which is typically the case for multiplication, division, and modulo of
+ * wide variables. Instead of bit-blasting, each random variable is given an
+ * interval domain derived from its width and signedness. Solving consists of
+ * interval propagation over the constraint expressions, followed by a
+ * randomized depth-first search that assigns one variable at a time,
+ * propagates the assignment, and backtracks on conflict. Every solution is
+ * checked by evaluating the constraints exactly before it is committed.
+ * <P>
+ * A variable that is a factor of a product constrained to equal a constant
+ * (<code>x * y == k</code>) is first assigned divisors of the constant, so
+ * that propagation derives the other factor by exact division. Random
+ * values tried afterward are adjusted so that the product equation remains
+ * solvable modulo 2<sup>width</sup>.
+ * <P>
+ * Expressions are evaluated as exact integers. The results of arithmetic,
+ * bitwise, and shift operators are wrapped to the constraint width, as they
+ * are by the BDD solver. Unlike the BDD solver, solutions are not drawn
+ * uniformly from the solution space, cyclic variables are not supported, and
+ * the search gives up after a fixed number of assignments, in which case an
+ * {@link UnsolvableConstraintException} is thrown even though a solution may
+ * exist.
+ *
+ * @author Jon Nall
+ */
+final class WordExprSolver
+    extends ExprSolver
+{
+    // maximum number of propagation passes over the constraints before
+    // propagation stops narrowing (stopping early is always sound)
+    private static final int MAX_PROPAGATION_PASSES = 32;
+
+    // domains of at most this many values are enumerated in random order
+    // instead of being sampled
+    private static final int ENUMERATION_LIMIT = 16;
+
+    // number of random values tried for a variable with a large domain before
+    // backtracking
+    private static final int SAMPLES_PER_VARIABLE = 8;
+
+    // total number of variable assignments allowed per commit
+    private static final int MAX_ASSIGNMENTS = 100000;
+
+    private static final BigInteger MAX_ENUMERATION = BigInteger
+        .valueOf(ENUMERATION_LIMIT);
+
+    // maximum number of divisors of a product constant tried as values of
+    // one of its factors
+    private static final int MAX_DIVISORS = 4096;
+
+    // primes below this bound are found by trial division; larger prime
+    // factors are found by Pollard's rho method
+    private static final int TRIAL_DIVISION_LIMIT = 1000;
+
+    // iterations of Pollard's rho method per attempt before a composite is
+    // treated as if it were prime
+    private static final int RHO_ITERATIONS = 1 << 18;
+
+    private static final BigInteger TWO = BigInteger.valueOf(2);
+
+    /**
+     * Thrown during propagation when some variable's domain becomes empty.
+     * Preallocated, since conflicts are routine during search.
+     */
+    private static final class Conflict
+        extends RuntimeException
+    {
+        private static final long serialVersionUID = 3258129154665117234L;
+
+        @Override
+        public Throwable fillInStackTrace()
+        {
+            return this;
+        }
+    }
+
+    private static final Conflict CONFLICT = new Conflict();
+
+    /**
+     * An equality between a product and a constant, <code>x * y == k</code>,
+     * in which x is a variable. Recorded so that the search can give x values
+     * from which y can be derived.
+     */
+    private static final class Product
+    {
+        final int var;
+        final Node other;
+        final BigInteger k;
+        final BigInteger modulus;
+        List<BigInteger> divisors; // positive divisors of k; computed lazily
+
+        Product(int var, Node other, BigInteger k, BigInteger modulus)
+        {
+            this.var = var;
+            this.other = other;
+            this.k = k;
+            this.modulus = modulus;
+        }
+    }
+
+    // node kinds
+    private static final int CONST = 0;
+    private static final int VAR = 1;
+    private static final int NEG = 2;
+    private static final int BITNOT = 3;
+    private static final int LNOT = 4;
+    private static final int ADD = 5;
+    private static final int SUB = 6;
+    private static final int MUL = 7;
+    private static final int DIV = 8;
+    private static final int MOD = 9;
+    private static final int AND = 10;
+    private static final int OR = 11;
+    private static final int XOR = 12;
+    private static final int SHL = 13;
+    private static final int SHR = 14;
+    private static final int USHR = 15;
+    private static final int EQ = 16;
+    private static final int NE = 17;
+    private static final int LT = 18;
+    private static final int LE = 19;
+    private static final int GT = 20;
+    private static final int GE = 21;
+    private static final int LAND = 22;
+    private static final int LOR = 23;
+    private static final int IMPL = 24;
+    private static final int INSET = 25;
+
+    /**
+     * A constraint expression compiled for word-level evaluation. Every node
+     * has an integral type described by a width and signedness; results are
+     * wrapped into the range of that type. For INSET nodes, args[0] is the
+     * tested expression and each following pair of args is the low and high
+     * bound of a member.
+     */
+    private static final class Node
+    {
+        final int kind;
+        final int width;
+        final boolean signed;
+        final BigInteger typeMin;
+        final BigInteger typeMax;
+        final Node[] args;
+        BigInteger value; // CONST
+        int var; // VAR
+        boolean negated; // INSET
+
+        Node(int kind, int width, boolean signed, Node... args)
+        {
+            this.kind = kind;
+            this.width = width;
+            this.signed = signed;
+            this.typeMin = signed ? BigInteger.ONE.shiftLeft(width - 1)
+                .negate() : BigInteger.ZERO;
+            this.typeMax = signed ? BigInteger.ONE.shiftLeft(width - 1)
+                .subtract(BigInteger.ONE) : BigInteger.ONE.shiftLeft(width)
+                .subtract(BigInteger.ONE);
+            this.args = args;
+        }
+
+        boolean isBoolean()
+        {
+            return kind >= EQ || kind == LNOT;
+        }
+
+        // wraps an exact result into the range of this node's type
+        BigInteger wrap(BigInteger v)
+        {
+            if (v.compareTo(typeMin) >= 0 && v.compareTo(typeMax) <= 0)
+            {
+                return v;
+            }
+            BigInteger m = v.mod(BigInteger.ONE.shiftLeft(width));
+            return (signed && m.compareTo(typeMax) > 0) ? m.subtract(BigInteger.ONE
+                .shiftLeft(width)) : m;
+        }
+
+        boolean fits(BigInteger lo, BigInteger hi)
+        {
+            return lo.compareTo(typeMin) >= 0 && hi.compareTo(typeMax) <= 0;
+        }
+    }
+
+    /**
+     * Translates constraint expressions into nodes. Throws
+     * InvalidConstraintException for expressions the word-level solver does
+     * not support.
+     */
+    private final class NodeBuilder
+        extends AbsConsVisitor
+    {
+        private Node result;
+
+        Node build(ConsExpression expr)
+        {
+            expr.accept(this);
+            if (result == null)
+            {
+                unsupported(expr);
+            }
+            return result;
+        }
+
+        private Node arg(ConsOperation op, int i)
+        {
+            return new NodeBuilder().build((ConsExpression) op.getOperands()
+                .get(i));
+        }
+
+        private Node constant(BigInteger value, int width, boolean signed)
+        {
+            Node n = new Node(CONST, width, signed);
+            n.value = n.wrap(value);
+            return n;
+        }
+
+        private Node arithmetic(int kind, ConsOperation op)
+        {
+            Node lhs = arg(op, 0);
+            Node rhs = arg(op, 1);
+            int width = Math.max(mMaxConstraintBits, Math.max(lhs.width,
+                rhs.width));
+            return new Node(kind, width, lhs.signed || rhs.signed, lhs, rhs);
+        }
+
+        private Node shift(int kind, ConsOperation op)
+        {
+            Node lhs = arg(op, 0);
+            Node rhs = arg(op, 1);
+            int width = (kind == SHL) ? Math.max(mMaxConstraintBits, lhs.width)
+                : lhs.width;
+            return new Node(kind, width, lhs.signed, lhs, rhs);
+        }
+
+        private Node bool(int kind, ConsOperation op)
+        {
+            int count = op.getOperands().size();
+            Node[] args = new Node[count];
+            for (int i = 0; i < count; ++i)
+            {
+                args[i] = arg(op, i);
+            }
+            return new Node(kind, 1, false, args);
+        }
+
+        private void unsupported(Object expr)
+        {
+            throw new InvalidConstraintException(
+                "Expression not supported by the word-level solver: " + expr);
+        }
+
+        @Override
+        public void visit(ConsVariableReference decl)
+        {
+            int idx = mVars.getIndex(decl);
+            RandomVariable rv = mVars.get(idx);
+            boolean signed = false;
+            if (rv.getVarRef().getResultType() instanceof JavaIntegralType)
+            {
+                signed = ((JavaIntegralType) rv.getVarRef().getResultType())
+                    .isSigned();
+            }
+            result = new Node(VAR, rv.getNumBits(), signed);
+            result.var = idx;
+        }
+
+        @Override
+        public void visit(ConsBooleanLiteral decl)
+        {
+            result = constant(decl.getValue() ? BigInteger.ONE
+                : BigInteger.ZERO, 1, false);
+        }
+
+        @Override
+        public void visit(ConsBitVectorLiteral decl)
+        {
+            BitVector value = decl.getValue();
+            result = constant(toBigInteger(value), value.length(), false);
+        }
+
+        @Override
+        public void visit(ConsCharLiteral decl)
+        {
+            result = constant(BigInteger.valueOf(decl.getValue()),
+                Solver.schema.charType.getWidth(), Solver.schema.charType
+                    .isSigned());
+        }
+
+        @Override
+        public void visit(ConsIntLiteral decl)
+        {
+            result = constant(BigInteger.valueOf(decl.getValue()),
+                Solver.schema.intType.getWidth(), Solver.schema.intType
+                    .isSigned());
+        }
+
+        @Override
+        public void visit(ConsLongLiteral decl)
+        {
+            result = constant(BigInteger.valueOf(decl.getValue()),
+                Solver.schema.longType.getWidth(), Solver.schema.longType
+                    .isSigned());
+        }
+
+        @Override
+        public void visit(ConsDoubleLiteral decl)
+        {
+            unsupported(decl);
+        }
+
+        @Override
+        public void visit(ConsFloatLiteral decl)
+        {
+            unsupported(decl);
+        }
+
+        @Override
+        public void visit(ConsInSet expr)
+        {
+            List<Node> args = new ArrayList<Node>();
+            args.add(new NodeBuilder().build(expr.getExpr()));
+            Iterator iter = expr.getMembers().iterator();
+            while (iter.hasNext())
+            {
+                ConsSetMember member = (ConsSetMember) iter.next();
+                if (member instanceof ConsSetValue)
+                {
+                    Node value = new NodeBuilder().build(((ConsSetValue) member)
+                        .getValue());
+                    args.add(value);
+                    args.add(value);
+                }
+                else if (member instanceof ConsSetRange)
+                {
+                    args.add(new NodeBuilder().build(((ConsSetRange) member)
+                        .getLow()));
+                    args.add(new NodeBuilder().build(((ConsSetRange) member)
+                        .getHigh()));
+                }
+                else
+                {
+                    unsupported(member);
+                }
+            }
+            result = new Node(INSET, 1, false, args.toArray(new Node[args
+                .size()]));
+            result.negated = (expr instanceof ConsNotInSet);
+        }
+
+        @Override
+        public void visit(ConsDistSet expr)
+        {
+            unsupported(expr);
+        }
+
+        @Override
+        public void visit(ConsConditional expr)
+        {
+            unsupported(expr);
+        }
+
+        @Override
+        public void visit(ConsImplication expr)
+        {
+            result = bool(IMPL, expr);
+        }
+
+        @Override
+        public void visit(ConsConditionalAnd expr)
+        {
+            result = bool(LAND, expr);
+        }
+
+        @Override
+        public void visit(ConsConditionalOr expr)
+        {
+            result = bool(LOR, expr);
+        }
+
+        @Override
+        public void visit(ConsLogicalNot expr)
+        {
+            result = bool(LNOT, expr);
+        }
+
+        @Override
+        public void visit(ConsAnd expr)
+        {
+            result = arithmetic(AND, expr);
+        }
+
+        @Override
+        public void visit(ConsOr expr)
+        {
+            result = arithmetic(OR, expr);
+        }
+
+        @Override
+        public void visit(ConsXor expr)
+        {
+            result = arithmetic(XOR, expr);
+        }
+
+        @Override
+        public void visit(ConsBitwiseNot expr)
+        {
+            Node operand = arg(expr, 0);
+            result = new Node(BITNOT, operand.width, operand.signed, operand);
+        }
+
+        @Override
+        public void visit(ConsLeftShift expr)
+        {
+            result = shift(SHL, expr);
+        }
+
+        @Override
+        public void visit(ConsSignedRightShift expr)
+        {
+            result = shift(SHR, expr);
+        }
+
+        @Override
+        public void visit(ConsUnsignedRightShift expr)
+        {
+            result = shift(USHR, expr);
+        }
+
+        @Override
+        public void visit(ConsEqual expr)
+        {
+            result = bool(EQ, expr);
+        }
+
+        @Override
+        public void visit(ConsNotEqual expr)
+        {
+            result = bool(NE, expr);
+        }
+
+        @Override
+        public void visit(ConsGreater expr)
+        {
+            result = bool(GT, expr);
+        }
+
+        @Override
+        public void visit(ConsGreaterOrEqual expr)
+        {
+            result = bool(GE, expr);
+        }
+
+        @Override
+        public void visit(ConsLess expr)
+        {
+            result = bool(LT, expr);
+        }
+
+        @Override
+        public void visit(ConsLessOrEqual expr)
+        {
+            result = bool(LE, expr);
+        }
+
+        @Override
+        public void visit(ConsAdd expr)
+        {
+            result = arithmetic(ADD, expr);
+        }
+
+        @Override
+        public void visit(ConsSubtract expr)
+        {
+            result = arithmetic(SUB, expr);
+        }
+
+        @Override
+        public void visit(ConsMultiply expr)
+        {
+            result = arithmetic(MUL, expr);
+        }
+
+        @Override
+        public void visit(ConsDivide expr)
+        {
+            result = arithmetic(DIV, expr);
+        }
+
+        @Override
+        public void visit(ConsModulo expr)
+        {
+            result = arithmetic(MOD, expr);
+        }
+
+        @Override
+        public void visit(ConsUnaryMinus expr)
+        {
+            Node operand = arg(expr, 0);
+            int width = Math.max(mMaxConstraintBits, operand.signed
+                ? operand.width : operand.width + 1);
+            result = new Node(NEG, width, true, operand);
+        }
+
+        @Override
+        public void visit(ConsUnaryPlus expr)
+        {
+            result = arg(expr, 0);
+        }
+    }
+
+    private final int mMaxConstraintBits;
+    private Node[] mConstraints;
+    private List<Product> mProducts;
+
+    // domains after the initial propagation; each commit searches from a copy
+    private BigInteger[] mInitLo;
+    private BigInteger[] mInitHi;
+
+    // working domains during propagation and search
+    private BigInteger[] mLo;
+    private BigInteger[] mHi;
+    private boolean mChanged;
+    private int mAssignments;
+
+    // when set, propagation narrows operands as if arithmetic never wraps
+    private boolean mAssumeNoWrap;
+
+    /**
+     * Creates a word-level solver.
+     *
+     * @param name a descriptive name for this solver
+     * @param maxConstraintBits the width to which arithmetic results are
+     *            wrapped, as computed by the BDD solver
+     */
+    WordExprSolver(String name, int maxConstraintBits)
+    {
+        super(name);
+        mMaxConstraintBits = Math.max(1, maxConstraintBits);
+    }
+
+    /**
+     * Returns whether the word-level solver supports every expression in the
+     * given constraint and the given variables.
+     *
+     * @param constraint the constraint to check
+     * @param vars the variables to be randomized
+     * @return true if this solver can be used for the constraint
+     */
+    static boolean canSolve(Constraint constraint, RandVarSet vars)
+    {
+        if (vars.containsCyclic()) return false;
+
+        // the default visitor walks every operand, so only the leaf and
+        // special forms need to be overridden
+        class SupportChecker
+            extends AbsConsVisitor
+        {
+            boolean supported = true;
+
+            @Override
+            public void visit(ConsArrayAccess obj)
+            {
+                supported = false;
+            }
+
+            @Override
+            public void visit(ConsBooleanLiteral obj)
+            {
+                // supported; overridden to avoid the default exception
+            }
+
+            @Override
+            public void visit(ConsConditional obj)
+            {
+                supported = false;
+            }
+
+            @Override
+            public void visit(ConsDistSet obj)
+            {
+                supported = false;
+            }
+
+            @Override
+            public void visit(ConsDoubleLiteral obj)
+            {
+                supported = false;
+            }
+
+            @Override
+            public void visit(ConsFloatLiteral obj)
+            {
+                supported = false;
+            }
+
+            @Override
+            public void visit(ConsLongLiteral obj)
+            {
+                // supported; overridden to avoid the default exception
+            }
+
+            @Override
+            public void visit(ConsMemberAccess obj)
+            {
+                supported = false;
+            }
+
+            @Override
+            public void visit(ConsNullLiteral obj)
+            {
+                supported = false;
+            }
+
+            @Override
+            public void visit(ConsStringLiteral obj)
+            {
+                supported = false;
+            }
+
+            @Override
+            public void visit(ConsSuperReference obj)
+            {
+                supported = false;
+            }
+
+            @Override
+            public void visit(ConsThisReference obj)
+            {
+                supported = false;
+            }
+
+            @Override
+            public void visit(ConsTypeLiteral obj)
+            {
+                supported = false;
+            }
+        }
+        SupportChecker checker = new SupportChecker();
+        constraint.getSchemaConstraint().accept(checker);
+        return checker.supported;
+    }
+
+    @Override
+    public boolean isComplex()
+    {
+        return true;
+    }
+
+    // the constraint passed here already contains the innate constraints of
+    // unconstrained variables (e.g. enum ranges), which the BDD solver adds
+    // before it starts evaluating expressions
+    @Override
+    protected List solve(
+        Constraint constraint,
+        RandVarSet allVars,
+        RandVarSet unconstrainedVars)
+    {
+        mVars = new RandVarSet();
+        mVars.addAll(allVars);
+        mVars.removeRandomizables();
+
+        List exprs = constraint.getSchemaConstraint().getExprs();
+        mConstraints = new Node[exprs.size()];
+        int i = 0;
+        for (Iterator iter = exprs.iterator(); iter.hasNext();)
+        {
+            mConstraints[i++] = new NodeBuilder().build((ConsExpression) iter
+                .next());
+        }
+        mProducts = new ArrayList<Product>();
+        for (Node c : mConstraints)
+        {
+            findProducts(c);
+        }
+
+        int numVars = mVars.size();
+        mLo = new BigInteger[numVars];
+        mHi = new BigInteger[numVars];
+        for (int v = 0; v < numVars; ++v)
+        {
+            RandomVariable rv = mVars.get(v);
+            Node n = new NodeBuilder().build(rv.getVarRef());
+            mLo[v] = n.typeMin;
+            mHi[v] = n.typeMax;
+        }
+
+        try
+        {
+            propagate();
+        }
+        catch (Conflict c)
+        {
+            throw new UnsolvableConstraintException("No possible variable "
+                + "assignments can satisfy the constraints given");
+        }
+        mInitLo = mLo.clone();
+        mInitHi = mHi.clone();
+
+        // the word-level solver never resets cyclic constraints
+        return new ArrayList<RandomVariable>(0);
+    }
+
+    @Override
+    protected Map commit(Object obj, PRNG rng)
+    {
+        // constraints are usually written with mathematical arithmetic in
+        // mind, so first look for a solution in which nothing overflows; this
+        // only guides the search, since every solution is checked exactly
+        boolean found = false;
+        for (int pass = 0; pass < 2 && !found; ++pass)
+        {
+            mLo = mInitLo.clone();
+            mHi = mInitHi.clone();
+            mAssignments = 0;
+            mAssumeNoWrap = (pass == 0);
+            found = search(rng);
+        }
+        mAssumeNoWrap = false;
+        if (!found)
+        {
+            throw new UnsolvableConstraintException("No possible variable "
+                + "assignments can satisfy the constraints given "
+                + "(word-level search gave up after " + mAssignments
+                + " assignments)");
+        }
+
+        BitVector[] solutions = new BitVector[mVars.size()];
+        for (int v = 0; v < solutions.length; ++v)
+        {
+            solutions[v] = toBitVector(mLo[v], mVars.get(v).getNumBits());
+        }
+        commitSolutions(solutions, obj);
+
+        // no cyclic constraints are produced
+        return new HashMap<RandomVariable, Object>();
+    }
+
+    ////////////////////////////////////////////
+    // search
+    ////////////////////////////////////////////
+
+    private boolean search(PRNG rng)
+    {
+        try
+        {
+            propagate();
+        }
+        catch (Conflict c)
+        {
+            return false;
+        }
+
+        // choose the unassigned variable with the smallest domain
+        int var = -1;
+        BigInteger bestSize = null;
+        for (int v = 0; v < mLo.length; ++v)
+        {
+            BigInteger size = mHi[v].subtract(mLo[v]);
+            if (size.signum() > 0
+                && (bestSize == null || size.compareTo(bestSize) < 0))
+            {
+                var = v;
+                bestSize = size;
+            }
+        }
+        if (var < 0)
+        {
+            return checkSolution();
+        }
+
+        BigInteger[] savedLo = mLo.clone();
+        BigInteger[] savedHi = mHi.clone();
+        BigInteger lo = mLo[var];
+        BigInteger size = bestSize.add(BigInteger.ONE);
+        if (size.compareTo(MAX_ENUMERATION) <= 0)
+        {
+            // try every value, in random order
+            int count = size.intValue();
+            int[] order = new int[count];
+            for (int i = 0; i < count; ++i)
+            {
+                order[i] = i;
+            }
+            for (int i = count - 1; i > 0; --i)
+            {
+                int j = rng.nextInt(i + 1);
+                int tmp = order[i];
+                order[i] = order[j];
+                order[j] = tmp;
+            }
+            for (int i = 0; i < count; ++i)
+            {
+                if (tryValue(rng, var, lo.add(BigInteger.valueOf(order[i]))))
+                {
+                    return true;
+                }
+                restore(savedLo, savedHi);
+            }
+        }
+        else
+        {
+            // a factor of a product equality is first given the divisors of
+            // the product, from which the other factor follows exactly
+            List<BigInteger> divisors = getDivisorValues(var);
+            for (int i = divisors.size() - 1; i >= 0; --i)
+            {
+                int j = rng.nextInt(i + 1);
+                BigInteger value = divisors.get(j);
+                divisors.set(j, divisors.get(i));
+                if (tryValue(rng, var, value))
+                {
+                    return true;
+                }
+                restore(savedLo, savedHi);
+            }
+
+            for (int i = 0; i < SAMPLES_PER_VARIABLE; ++i)
+            {
+                BigInteger value = adjustFactor(var, lo.add(randomBelow(size,
+                    rng)));
+                if (tryValue(rng, var, value))
+                {
+                    return true;
+                }
+                restore(savedLo, savedHi);
+            }
+        }
+        return false;
+    }
+
+    // records the product equalities among the conjuncts of n
+    private void findProducts(Node n)
+    {
+        if (n.kind == LAND)
+        {
+            findProducts(n.args[0]);
+            findProducts(n.args[1]);
+        }
+        else if (n.kind == EQ)
+        {
+            for (int side = 0; side < 2; ++side)
+            {
+                Node mul = n.args[side];
+                Node k = n.args[1 - side];
+                if (mul.kind == MUL && k.kind == CONST)
+                {
+                    for (int f = 0; f < 2; ++f)
+                    {
+                        if (mul.args[f].kind == VAR)
+                        {
+                            mProducts.add(new Product(mul.args[f].var,
+                                mul.args[1 - f], k.value, modulus(mul)));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // returns whether p constrains var and its other factor is unassigned
+    private boolean isOpenFactor(Product p, int var)
+    {
+        return p.var == var && p.k.signum() != 0 && !isPoint(range(p.other));
+    }
+
+    // returns the divisors (of either sign) of the constants of the product
+    // equalities of which var is a factor, limited to the domain of var
+    private List<BigInteger> getDivisorValues(int var)
+    {
+        Set<BigInteger> values = new HashSet<BigInteger>();
+        for (Product p : mProducts)
+        {
+            if (!isOpenFactor(p, var)) continue;
+            if (p.divisors == null)
+            {
+                p.divisors = divisors(p.k.abs());
+            }
+            for (BigInteger d : p.divisors)
+            {
+                if (d.compareTo(mLo[var]) >= 0 && d.compareTo(mHi[var]) <= 0)
+                {
+                    values.add(d);
+                }
+                BigInteger nd = d.negate();
+                if (nd.compareTo(mLo[var]) >= 0 && nd.compareTo(mHi[var]) <= 0)
+                {
+                    values.add(nd);
+                }
+            }
+        }
+        return new ArrayList<BigInteger>(values);
+    }
+
+    // x * y == k has a solution for y modulo 2^w only if x has no more
+    // factors of two than k; adjusts a randomly chosen factor accordingly
+    private BigInteger adjustFactor(int var, BigInteger value)
+    {
+        for (Product p : mProducts)
+        {
+            if (!isOpenFactor(p, var)) continue;
+            BigInteger k = p.k.mod(p.modulus);
+            if (k.signum() == 0) continue;
+            int twos = k.getLowestSetBit();
+            if (value.signum() == 0 || value.getLowestSetBit() > twos)
+            {
+                BigInteger adjusted = value.setBit(twos);
+                if (adjusted.compareTo(mHi[var]) <= 0)
+                {
+                    value = adjusted;
+                }
+            }
+        }
+        return value;
+    }
+
+    // returns the positive divisors of n > 0, or at most MAX_DIVISORS of
+    // them; the divisors of any composite factor that could not be split
+    // are missing
+    private static List<BigInteger> divisors(BigInteger n)
+    {
+        List<BigInteger> factors = new ArrayList<BigInteger>();
+        factor(n, factors);
+        Collections.sort(factors);
+
+        List<BigInteger> result = new ArrayList<BigInteger>();
+        result.add(BigInteger.ONE);
+        int i = 0;
+        while (i < factors.size())
+        {
+            BigInteger prime = factors.get(i);
+            int count = 0;
+            while (i < factors.size() && factors.get(i).equals(prime))
+            {
+                ++count;
+                ++i;
+            }
+            int size = result.size();
+            for (int j = 0; j < size && result.size() < MAX_DIVISORS; ++j)
+            {
+                BigInteger d = result.get(j);
+                for (int e = 0; e < count && result.size() < MAX_DIVISORS; ++e)
+                {
+                    d = d.multiply(prime);
+                    result.add(d);
+                }
+            }
+        }
+        return result;
+    }
+
+    // appends the prime factors of n > 0 to factors, with multiplicity
+    private static void factor(BigInteger n, List<BigInteger> factors)
+    {
+        for (int p = 2; p < TRIAL_DIVISION_LIMIT; ++p)
+        {
+            BigInteger bp = BigInteger.valueOf(p);
+            if (bp.multiply(bp).compareTo(n) > 0) break;
+            while (n.mod(bp).signum() == 0)
+            {
+                factors.add(bp);
+                n = n.divide(bp);
+            }
+        }
+        factorLarge(n, factors);
+    }
+
+    // appends the prime factors of n, which has no factors below
+    // TRIAL_DIVISION_LIMIT, to factors
+    private static void factorLarge(BigInteger n, List<BigInteger> factors)
+    {
+        if (n.compareTo(BigInteger.ONE) <= 0) return;
+        if (n.isProbablePrime(32))
+        {
+            factors.add(n);
+            return;
+        }
+        BigInteger d = null;
+        for (int c = 1; c <= 4 && d == null; ++c)
+        {
+            d = rho(n, BigInteger.valueOf(c));
+        }
+        if (d == null)
+        {
+            // treat the unsplit composite as prime
+            factors.add(n);
+            return;
+        }
+        factorLarge(d, factors);
+        factorLarge(n.divide(d), factors);
+    }
+
+    // finds a nontrivial factor of the composite n using Pollard's rho method
+    // with f(x) = x^2 + c, or returns null
+    private static BigInteger rho(BigInteger n, BigInteger c)
+    {
+        BigInteger x = TWO;
+        BigInteger y = TWO;
+        for (int i = 0; i < RHO_ITERATIONS; ++i)
+        {
+            x = x.multiply(x).add(c).mod(n);
+            y = y.multiply(y).add(c).mod(n);
+            y = y.multiply(y).add(c).mod(n);
+            BigInteger d = x.subtract(y).abs().gcd(n);
+            if (d.equals(n)) return null;
+            if (!d.equals(BigInteger.ONE)) return d;
+        }
+        return null;
+    }
+
+    private boolean tryValue(PRNG rng, int var, BigInteger value)
+    {
+        if (++mAssignments > MAX_ASSIGNMENTS)
+        {
+            return false;
+        }
+        mLo[var] = value;
+        mHi[var] = value;
+        return search(rng);
+    }
+
+    private void restore(BigInteger[] savedLo, BigInteger[] savedHi)
+    {
+        System.arraycopy(savedLo, 0, mLo, 0, mLo.length);
+        System.arraycopy(savedHi, 0, mHi, 0, mHi.length);
+    }
+
+    private boolean checkSolution()
+    {
+        for (Node c : mConstraints)
+        {
+            BigInteger v = eval(c);
+            if (v == null || v.signum() == 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // returns a uniformly distributed value in [0, n)
+    private static BigInteger randomBelow(BigInteger n, PRNG rng)
+    {
+        int bits = n.subtract(BigInteger.ONE).bitLength();
+        int numBytes = (bits + 7) / 8;
+        byte[] bytes = new byte[numBytes + 1];
+        BigInteger r;
+        do
+        {
+            for (int i = 1; i <= numBytes; ++i)
+            {
+                bytes[i] = (byte) rng.nextBits(8);
+            }
+            int excess = numBytes * 8 - bits;
+            bytes[1] &= (byte) (0xFF >>> excess);
+            r = new BigInteger(bytes);
+        }
+        while (r.compareTo(n) >= 0);
+        return r;
+    }
+
+    ////////////////////////////////////////////
+    // exact evaluation
+    ////////////////////////////////////////////
+
+    // evaluates n using the lower bound of each variable's domain; returns
+    // null if the result is undefined (e.g. division by zero)
+    private BigInteger eval(Node n)
+    {
+        switch (n.kind)
+        {
+        case CONST:
+            return n.value;
+        case VAR:
+            return mLo[n.var];
+        case LAND:
+        {
+            BigInteger a = eval(n.args[0]);
+            if (a == null || a.signum() == 0) return a;
+            return truthValue(eval(n.args[1]));
+        }
+        case LOR:
+        {
+            BigInteger a = eval(n.args[0]);
+            if (a != null && a.signum() != 0) return BigInteger.ONE;
+            return truthValue(eval(n.args[1]));
+        }
+        case IMPL:
+        {
+            BigInteger a = eval(n.args[0]);
+            if (a == null) return null;
+            if (a.signum() == 0) return BigInteger.ONE;
+            for (int i = 1; i < n.args.length; ++i)
+            {
+                BigInteger b = eval(n.args[i]);
+                if (b == null || b.signum() == 0) return b;
+            }
+            return BigInteger.ONE;
+        }
+        case INSET:
+        {
+            BigInteger a = eval(n.args[0]);
+            if (a == null) return null;
+            boolean found = false;
+            for (int i = 1; i < n.args.length && !found; i += 2)
+            {
+                BigInteger lo = eval(n.args[i]);
+                BigInteger hi = eval(n.args[i + 1]);
+                if (lo == null || hi == null) return null;
+                found = a.compareTo(lo) >= 0 && a.compareTo(hi) <= 0;
+            }
+            return truthValue(found != n.negated);
+        }
+        }
+
+        BigInteger a = eval(n.args[0]);
+        if (a == null) return null;
+        switch (n.kind)
+        {
+        case NEG:
+            return n.wrap(a.negate());
+        case BITNOT:
+            return n.wrap(a.not());
+        case LNOT:
+            return truthValue(a.signum() == 0);
+        }
+
+        BigInteger b = eval(n.args[1]);
+        if (b == null) return null;
+        return apply(n, a, b);
+    }
+
+    // applies a binary operator to exact operand values
+    private static BigInteger apply(Node n, BigInteger a, BigInteger b)
+    {
+        switch (n.kind)
+        {
+        case ADD:
+            return n.wrap(a.add(b));
+        case SUB:
+            return n.wrap(a.subtract(b));
+        case MUL:
+            return n.wrap(a.multiply(b));
+        case DIV:
+            return b.signum() == 0 ? null : n.wrap(a.divide(b));
+        case MOD:
+            return b.signum() == 0 ? null : n.wrap(a.remainder(b));
+        case AND:
+            return n.wrap(a.and(b));
+        case OR:
+            return n.wrap(a.or(b));
+        case XOR:
+            return n.wrap(a.xor(b));
+        case SHL:
+            if (b.signum() < 0) return null;
+            return n.wrap(a.shiftLeft(shiftCount(b, n.width)));
+        case SHR:
+            if (b.signum() < 0) return null;
+            return n.wrap(a.shiftRight(shiftCount(b, n.width)));
+        case USHR:
+            if (b.signum() < 0) return null;
+            return n.wrap(a.mod(BigInteger.ONE.shiftLeft(n.width)).shiftRight(
+                shiftCount(b, n.width)));
+        case EQ:
+            return truthValue(a.compareTo(b) == 0);
+        case NE:
+            return truthValue(a.compareTo(b) != 0);
+        case LT:
+            return truthValue(a.compareTo(b) < 0);
+        case LE:
+            return truthValue(a.compareTo(b) <= 0);
+        case GT:
+            return truthValue(a.compareTo(b) > 0);
+        case GE:
+            return truthValue(a.compareTo(b) >= 0);
+        default:
+            throw new IllegalStateException("Unexpected node kind: " + n.kind);
+        }
+    }
+
+    private static int shiftCount(BigInteger b, int width)
+    {
+        // shifting by more than the width gives the same result as shifting
+        // by width + 1
+        return b.compareTo(BigInteger.valueOf(width + 1)) > 0 ? width + 1 : b
+            .intValue();
+    }
+
+    private static BigInteger truthValue(BigInteger v)
+    {
+        if (v == null) return null;
+        return truthValue(v.signum() != 0);
+    }
+
+    private static BigInteger truthValue(boolean b)
+    {
+        return b ? BigInteger.ONE : BigInteger.ZERO;
+    }
+
+    ////////////////////////////////////////////
+    // interval evaluation
+    ////////////////////////////////////////////
+
+    // computes bounds on the value of n given the current domains; returns
+    // a two-element array {lo, hi}, or throws CONFLICT if n has no value
+    private BigInteger[] range(Node n)
+    {
+        switch (n.kind)
+        {
+        case CONST:
+            return new BigInteger[] { n.value, n.value };
+        case VAR:
+            return new BigInteger[] { mLo[n.var], mHi[n.var] };
+        }
+
+        if (n.isBoolean())
+        {
+            int t = truth(n);
+            return new BigInteger[] { truthValue(t == 1),
+                truthValue(t != 0) };
+        }
+
+        BigInteger[] a = range(n.args[0]);
+        if (n.args.length == 1)
+        {
+            if (isPoint(a))
+            {
+                BigInteger v = (n.kind == NEG) ? a[0].negate() : a[0].not();
+                return point(n.wrap(v));
+            }
+            if (n.kind == NEG)
+            {
+                return bounded(n, a[1].negate(), a[0].negate());
+            }
+            return full(n);
+        }
+
+        BigInteger[] b = range(n.args[1]);
+        if (isPoint(a) && isPoint(b))
+        {
+            BigInteger v = apply(n, a[0], b[0]);
+            if (v == null) throw CONFLICT;
+            return point(v);
+        }
+
+        switch (n.kind)
+        {
+        case ADD:
+            return bounded(n, a[0].add(b[0]), a[1].add(b[1]));
+        case SUB:
+            return bounded(n, a[0].subtract(b[1]), a[1].subtract(b[0]));
+        case MUL:
+            return corners(n, a, b);
+        case DIV:
+        {
+            // split the divisor into its negative and positive parts, since
+            // the quotient is monotonic over each of them
+            BigInteger lo = null;
+            BigInteger hi = null;
+            if (b[0].signum() < 0)
+            {
+                BigInteger[] q = divCorners(a, b[0], b[1].min(BigInteger
+                    .valueOf(-1)));
+                lo = q[0];
+                hi = q[1];
+            }
+            if (b[1].signum() > 0)
+            {
+                BigInteger[] q = divCorners(a, b[0].max(BigInteger.ONE), b[1]);
+                lo = (lo == null) ? q[0] : lo.min(q[0]);
+                hi = (hi == null) ? q[1] : hi.max(q[1]);
+            }
+            if (lo == null) throw CONFLICT;
+            return bounded(n, lo, hi);
+        }
+        case MOD:
+        {
+            BigInteger m = b[0].abs().max(b[1].abs()).subtract(BigInteger.ONE);
+            if (m.signum() < 0) throw CONFLICT;
+            BigInteger lo = a[0].signum() >= 0 ? BigInteger.ZERO : a[0].max(m
+                .negate());
+            BigInteger hi = a[1].signum() <= 0 ? BigInteger.ZERO : a[1].min(m);
+            return bounded(n, lo, hi);
+        }
+        case AND:
+            if (a[0].signum() >= 0 && b[0].signum() >= 0)
+            {
+                return bounded(n, BigInteger.ZERO, a[1].min(b[1]));
+            }
+            return full(n);
+        case SHL:
+            if (isPoint(b) && b[0].signum() >= 0)
+            {
+                int count = shiftCount(b[0], n.width);
+                return bounded(n, a[0].shiftLeft(count), a[1].shiftLeft(count));
+            }
+            return full(n);
+        case SHR:
+            if (isPoint(b) && b[0].signum() >= 0)
+            {
+                int count = shiftCount(b[0], n.width);
+                return bounded(n, a[0].shiftRight(count), a[1]
+                    .shiftRight(count));
+            }
+            return full(n);
+        case USHR:
+            if (isPoint(b) && b[0].signum() >= 0 && a[0].signum() >= 0)
+            {
+                int count = shiftCount(b[0], n.width);
+                return bounded(n, a[0].shiftRight(count), a[1]
+                    .shiftRight(count));
+            }
+            return full(n);
+        default:
+            return full(n);
+        }
+    }
+
+    private static boolean isPoint(BigInteger[] r)
+    {
+        return r[0].equals(r[1]);
+    }
+
+    private static BigInteger[] point(BigInteger v)
+    {
+        return new BigInteger[] { v, v };
+    }
+
+    private static BigInteger[] full(Node n)
+    {
+        return new BigInteger[] { n.typeMin, n.typeMax };
+    }
+
+    // returns [lo, hi] if it fits in the type of n, or the full range of the
+    // type if the result may have wrapped
+    private static BigInteger[] bounded(Node n, BigInteger lo, BigInteger hi)
+    {
+        return n.fits(lo, hi) ? new BigInteger[] { lo, hi } : full(n);
+    }
+
+    private static BigInteger[] corners(Node n, BigInteger[] a, BigInteger[] b)
+    {
+        BigInteger[] p = product(a, b);
+        return bounded(n, p[0], p[1]);
+    }
+
+    // returns the exact bounds of the product of two intervals
+    private static BigInteger[] product(BigInteger[] a, BigInteger[] b)
+    {
+        BigInteger c0 = a[0].multiply(b[0]);
+        BigInteger c1 = a[0].multiply(b[1]);
+        BigInteger c2 = a[1].multiply(b[0]);
+        BigInteger c3 = a[1].multiply(b[1]);
+        return new BigInteger[] { c0.min(c1).min(c2.min(c3)),
+            c0.max(c1).max(c2.max(c3)) };
+    }
+
+    // bounds a / [lo, hi] where the divisor interval does not contain zero
+    private static BigInteger[] divCorners(
+        BigInteger[] a,
+        BigInteger lo,
+        BigInteger hi)
+    {
+        BigInteger c0 = a[0].divide(lo);
+        BigInteger c1 = a[0].divide(hi);
+        BigInteger c2 = a[1].divide(lo);
+        BigInteger c3 = a[1].divide(hi);
+        return new BigInteger[] { c0.min(c1).min(c2.min(c3)),
+            c0.max(c1).max(c2.max(c3)) };
+    }
+
+    // returns 1 if n is certainly true (non-zero), 0 if it is certainly
+    // false, or -1 if it is unknown
+    private int truth(Node n)
+    {
+        switch (n.kind)
+        {
+        case LNOT:
+        {
+            int t = truth(n.args[0]);
+            return t < 0 ? t : 1 - t;
+        }
+        case LAND:
+        {
+            int a = truth(n.args[0]);
+            if (a == 0) return 0;
+            int b = truth(n.args[1]);
+            if (b == 0) return 0;
+            return (a == 1 && b == 1) ? 1 : -1;
+        }
+        case LOR:
+        {
+            int a = truth(n.args[0]);
+            if (a == 1) return 1;
+            int b = truth(n.args[1]);
+            if (b == 1) return 1;
+            return (a == 0 && b == 0) ? 0 : -1;
+        }
+        case IMPL:
+        {
+            int a = truth(n.args[0]);
+            if (a == 0) return 1;
+            boolean allTrue = true;
+            for (int i = 1; i < n.args.length; ++i)
+            {
+                int b = truth(n.args[i]);
+                if (b == 0) return (a == 1) ? 0 : -1;
+                allTrue &= (b == 1);
+            }
+            return allTrue ? 1 : -1;
+        }
+        case INSET:
+        {
+            BigInteger[] a = range(n.args[0]);
+            boolean inside = false;
+            boolean overlaps = false;
+            for (int i = 1; i < n.args.length; i += 2)
+            {
+                BigInteger[] lo = range(n.args[i]);
+                BigInteger[] hi = range(n.args[i + 1]);
+                if (a[0].compareTo(lo[1]) >= 0 && a[1].compareTo(hi[0]) <= 0)
+                {
+                    inside = true;
+                }
+                if (a[1].compareTo(lo[0]) >= 0 && a[0].compareTo(hi[1]) <= 0)
+                {
+                    overlaps = true;
+                }
+            }
+            int t = inside ? 1 : overlaps ? -1 : 0;
+            return (t < 0 || !n.negated) ? t : 1 - t;
+        }
+        case EQ:
+        case NE:
+        case LT:
+        case LE:
+        case GT:
+        case GE:
+        {
+            BigInteger[] a = range(n.args[0]);
+            BigInteger[] b = range(n.args[1]);
+            int t = compare(n.kind, a, b);
+            return t;
+        }
+        default:
+        {
+            BigInteger[] r = range(n);
+            if (r[0].signum() > 0 || r[1].signum() < 0) return 1;
+            return isPoint(r) ? 0 : -1;
+        }
+        }
+    }
+
+    private static int compare(int kind, BigInteger[] a, BigInteger[] b)
+    {
+        switch (kind)
+        {
+        case EQ:
+            if (isPoint(a) && isPoint(b)) return a[0].equals(b[0]) ? 1 : 0;
+            return (a[1].compareTo(b[0]) < 0 || b[1].compareTo(a[0]) < 0) ? 0
+                : -1;
+        case NE:
+        {
+            int t = compare(EQ, a, b);
+            return t < 0 ? t : 1 - t;
+        }
+        case LT:
+            if (a[1].compareTo(b[0]) < 0) return 1;
+            return a[0].compareTo(b[1]) >= 0 ? 0 : -1;
+        case LE:
+            if (a[1].compareTo(b[0]) <= 0) return 1;
+            return a[0].compareTo(b[1]) > 0 ? 0 : -1;
+        case GT:
+            return compare(LT, b, a);
+        case GE:
+            return compare(LE, b, a);
+        default:
+            throw new IllegalStateException("Unexpected node kind: " + kind);
+        }
+    }
+
+    ////////////////////////////////////////////
+    // propagation
+    ////////////////////////////////////////////
+
+    private void propagate()
+    {
+        int passes = 0;
+        do
+        {
+            mChanged = false;
+            for (Node c : mConstraints)
+            {
+                require(c, true);
+            }
+        }
+        while (mChanged && ++passes < MAX_PROPAGATION_PASSES);
+    }
+
+    // narrows the domains so that n evaluates to the given truth value
+    private void require(Node n, boolean value)
+    {
+        switch (n.kind)
+        {
+        case LNOT:
+            require(n.args[0], !value);
+            return;
+        case LAND:
+            if (value)
+            {
+                require(n.args[0], true);
+                require(n.args[1], true);
+            }
+            else if (truth(n.args[0]) == 1)
+            {
+                require(n.args[1], false);
+            }
+            else if (truth(n.args[1]) == 1)
+            {
+                require(n.args[0], false);
+            }
+            break;
+        case LOR:
+            if (!value)
+            {
+                require(n.args[0], false);
+                require(n.args[1], false);
+            }
+            else if (truth(n.args[0]) == 0)
+            {
+                require(n.args[1], true);
+            }
+            else if (truth(n.args[1]) == 0)
+            {
+                require(n.args[0], true);
+            }
+            break;
+        case IMPL:
+            if (value)
+            {
+                if (truth(n.args[0]) == 1)
+                {
+                    for (int i = 1; i < n.args.length; ++i)
+                    {
+                        require(n.args[i], true);
+                    }
+                }
+                else
+                {
+                    for (int i = 1; i < n.args.length; ++i)
+                    {
+                        if (truth(n.args[i]) == 0)
+                        {
+                            require(n.args[0], false);
+                            break;
+                        }
+                    }
+                }
+            }
+            else
+            {
+                require(n.args[0], true);
+                if (n.args.length == 2)
+                {
+                    require(n.args[1], false);
+                }
+            }
+            break;
+        case INSET:
+            if (value != n.negated)
+            {
+                requireInSet(n);
+            }
+            break;
+        case EQ:
+        case NE:
+            if (value == (n.kind == EQ))
+            {
+                BigInteger[] b = range(n.args[1]);
+                restrict(n.args[0], b[0], b[1]);
+                BigInteger[] a = range(n.args[0]);
+                restrict(n.args[1], a[0], a[1]);
+            }
+            else
+            {
+                exclude(n.args[0], range(n.args[1]));
+                exclude(n.args[1], range(n.args[0]));
+            }
+            break;
+        case LT:
+        case LE:
+        case GT:
+        case GE:
+        {
+            // normalize to lhs < rhs or lhs <= rhs
+            Node lhs = n.args[0];
+            Node rhs = n.args[1];
+            boolean strict = (n.kind == LT || n.kind == GT);
+            if (n.kind == GT || n.kind == GE)
+            {
+                lhs = n.args[1];
+                rhs = n.args[0];
+            }
+            if (!value)
+            {
+                // !(l < r) is r <= l; !(l <= r) is r < l
+                Node tmp = lhs;
+                lhs = rhs;
+                rhs = tmp;
+                strict = !strict;
+            }
+            BigInteger gap = strict ? BigInteger.ONE : BigInteger.ZERO;
+            BigInteger[] r = range(rhs);
+            restrict(lhs, lhs.typeMin.min(r[1]), r[1].subtract(gap));
+            BigInteger[] l = range(lhs);
+            restrict(rhs, l[0].add(gap), rhs.typeMax.max(l[0]));
+            break;
+        }
+        default:
+            if (value)
+            {
+                exclude(n, point(BigInteger.ZERO));
+            }
+            else
+            {
+                restrict(n, BigInteger.ZERO, BigInteger.ZERO);
+            }
+            break;
+        }
+
+        int t = truth(n);
+        if (t >= 0 && (t == 1) != value)
+        {
+            throw CONFLICT;
+        }
+    }
+
+    private void requireInSet(Node n)
+    {
+        BigInteger[] a = range(n.args[0]);
+        BigInteger lo = null;
+        BigInteger hi = null;
+        for (int i = 1; i < n.args.length; i += 2)
+        {
+            BigInteger mlo = range(n.args[i])[0];
+            BigInteger mhi = range(n.args[i + 1])[1];
+            if (a[1].compareTo(mlo) >= 0 && a[0].compareTo(mhi) <= 0)
+            {
+                lo = (lo == null) ? mlo : lo.min(mlo);
+                hi = (hi == null) ? mhi : hi.max(mhi);
+            }
+        }
+        if (lo == null) throw CONFLICT;
+        restrict(n.args[0], lo, hi);
+    }
+
+    // narrows the domains so that n does not evaluate to the value of the
+    // given range, if that range is a single value
+    private void exclude(Node n, BigInteger[] r)
+    {
+        if (!isPoint(r)) return;
+        BigInteger v = r[0];
+        if (n.kind == VAR)
+        {
+            int var = n.var;
+            if (mLo[var].equals(v))
+            {
+                setDomain(var, v.add(BigInteger.ONE), mHi[var]);
+            }
+            else if (mHi[var].equals(v))
+            {
+                setDomain(var, mLo[var], v.subtract(BigInteger.ONE));
+            }
+        }
+        else
+        {
+            BigInteger[] nr = range(n);
+            if (isPoint(nr) && nr[0].equals(v)) throw CONFLICT;
+        }
+    }
+
+    private void setDomain(int var, BigInteger lo, BigInteger hi)
+    {
+        if (lo.compareTo(hi) > 0) throw CONFLICT;
+        if (!lo.equals(mLo[var]) || !hi.equals(mHi[var]))
+        {
+            mLo[var] = lo;
+            mHi[var] = hi;
+            mChanged = true;
+        }
+    }
+
+    // narrows the domains so that the value of n lies within [lo, hi]
+    private void restrict(Node n, BigInteger lo, BigInteger hi)
+    {
+        lo = lo.max(n.typeMin);
+        hi = hi.min(n.typeMax);
+        if (lo.compareTo(hi) > 0) throw CONFLICT;
+
+        if (n.kind == VAR)
+        {
+            setDomain(n.var, lo.max(mLo[n.var]), hi.min(mHi[n.var]));
+            return;
+        }
+        if (n.isBoolean())
+        {
+            if (lo.signum() > 0)
+            {
+                require(n, true);
+            }
+            else if (hi.signum() == 0)
+            {
+                require(n, false);
+            }
+            return;
+        }
+
+        BigInteger[] r = range(n);
+        if (r[1].compareTo(lo) < 0 || r[0].compareTo(hi) > 0) throw CONFLICT;
+        if (r[0].compareTo(lo) >= 0 && r[1].compareTo(hi) <= 0) return;
+
+        switch (n.kind)
+        {
+        case NEG:
+            if (!isFull(n, r))
+            {
+                restrict(n.args[0], hi.negate(), lo.negate());
+            }
+            break;
+        case ADD:
+        case SUB:
+            restrictAddSub(n, lo, hi);
+            break;
+        case MUL:
+            restrictMul(n, lo, hi);
+            break;
+        case DIV:
+            restrictDiv(n, lo, hi);
+            break;
+        default:
+            break;
+        }
+    }
+
+    private static boolean isFull(Node n, BigInteger[] r)
+    {
+        return r[0].equals(n.typeMin) && r[1].equals(n.typeMax);
+    }
+
+    private static BigInteger modulus(Node n)
+    {
+        return BigInteger.ONE.shiftLeft(n.width);
+    }
+
+    private void restrictAddSub(Node n, BigInteger lo, BigInteger hi)
+    {
+        Node x = n.args[0];
+        Node y = n.args[1];
+        BigInteger[] a = range(x);
+        BigInteger[] b = range(y);
+        boolean add = (n.kind == ADD);
+        BigInteger exactLo = add ? a[0].add(b[0]) : a[0].subtract(b[1]);
+        BigInteger exactHi = add ? a[1].add(b[1]) : a[1].subtract(b[0]);
+        if (mAssumeNoWrap || n.fits(exactLo, exactHi))
+        {
+            // no wrapping: x + y in [lo, hi], or x - y in [lo, hi]
+            if (add)
+            {
+                restrict(x, lo.subtract(b[1]), hi.subtract(b[0]));
+                a = range(x);
+                restrict(y, lo.subtract(a[1]), hi.subtract(a[0]));
+            }
+            else
+            {
+                restrict(x, lo.add(b[0]), hi.add(b[1]));
+                a = range(x);
+                restrict(y, a[0].subtract(hi), a[1].subtract(lo));
+            }
+        }
+        else if (lo.equals(hi))
+        {
+            // wrapping: solve x + y == k or x - y == k modulo 2^width
+            BigInteger m = modulus(n);
+            if (isPoint(b))
+            {
+                restrictCongruent(x, add ? lo.subtract(b[0]) : lo.add(b[0]), m);
+            }
+            else if (isPoint(a))
+            {
+                restrictCongruent(y, add ? lo.subtract(a[0]) : a[0]
+                    .subtract(lo), m);
+            }
+        }
+    }
+
+    private void restrictMul(Node n, BigInteger lo, BigInteger hi)
+    {
+        Node x = n.args[0];
+        Node y = n.args[1];
+        BigInteger[] a = range(x);
+        BigInteger[] b = range(y);
+        BigInteger[] exact = product(a, b);
+        if (mAssumeNoWrap || n.fits(exact[0], exact[1]))
+        {
+            if (isPoint(b))
+            {
+                restrictQuotient(x, lo, hi, b[0]);
+            }
+            else if (isPoint(a))
+            {
+                restrictQuotient(y, lo, hi, a[0]);
+            }
+            else if (lo.signum() > 0 || hi.signum() < 0)
+            {
+                // neither factor may be zero, so neither may exceed the
+                // magnitude of the product
+                BigInteger max = lo.abs().max(hi.abs());
+                restrict(x, max.negate(), max);
+                exclude(x, point(BigInteger.ZERO));
+                restrict(y, max.negate(), max);
+                exclude(y, point(BigInteger.ZERO));
+            }
+        }
+        else if (lo.equals(hi))
+        {
+            // wrapping: solve x * c == k modulo 2^width
+            if (isPoint(b))
+            {
+                restrictProduct(x, b[0], lo, modulus(n));
+            }
+            else if (isPoint(a))
+            {
+                restrictProduct(y, a[0], lo, modulus(n));
+            }
+        }
+    }
+
+    // restricts x so that x * c lies within [lo, hi], with no wrapping
+    private void restrictQuotient(Node x, BigInteger lo, BigInteger hi, BigInteger c)
+    {
+        if (c.signum() == 0)
+        {
+            if (lo.signum() > 0 || hi.signum() < 0) throw CONFLICT;
+            return;
+        }
+        if (c.signum() < 0)
+        {
+            BigInteger tmp = lo.negate();
+            lo = hi.negate();
+            hi = tmp;
+            c = c.negate();
+        }
+        restrict(x, ceilDiv(lo, c), floorDiv(hi, c));
+    }
+
+    // restricts x so that x * c == k modulo m, where m is a power of two
+    private void restrictProduct(Node x, BigInteger c, BigInteger k, BigInteger m)
+    {
+        c = c.mod(m);
+        k = k.mod(m);
+        BigInteger g = c.gcd(m);
+        if (g.signum() == 0 || c.signum() == 0)
+        {
+            if (k.signum() != 0) throw CONFLICT;
+            return;
+        }
+        if (k.mod(g).signum() != 0) throw CONFLICT;
+        BigInteger reduced = m.divide(g);
+        if (reduced.equals(BigInteger.ONE)) return;
+        BigInteger inverse = c.divide(g).modInverse(reduced);
+        restrictCongruent(x, k.divide(g).multiply(inverse), reduced);
+    }
+
+    // narrows the bounds of x to values congruent to r modulo m
+    private void restrictCongruent(Node x, BigInteger r, BigInteger m)
+    {
+        if (x.kind != VAR) return;
+        int var = x.var;
+        BigInteger lo = mLo[var];
+        BigInteger hi = mHi[var];
+        BigInteger newLo = lo.add(r.subtract(lo).mod(m));
+        BigInteger newHi = hi.subtract(hi.subtract(r).mod(m));
+        setDomain(var, newLo, newHi);
+    }
+
+    private void restrictDiv(Node n, BigInteger lo, BigInteger hi)
+    {
+        Node x = n.args[0];
+        Node y = n.args[1];
+        BigInteger[] a = range(x);
+        BigInteger[] b = range(y);
+        exclude(y, point(BigInteger.ZERO));
+        if (isPoint(b) && b[0].signum() != 0)
+        {
+            // x / d in [lo, hi] with truncation toward zero
+            BigInteger d = b[0];
+            if (d.signum() < 0)
+            {
+                BigInteger tmp = lo.negate();
+                lo = hi.negate();
+                hi = tmp;
+                d = d.negate();
+            }
+            BigInteger dm1 = d.subtract(BigInteger.ONE);
+            BigInteger xlo = lo.multiply(d);
+            if (lo.signum() <= 0) xlo = xlo.subtract(dm1);
+            BigInteger xhi = hi.multiply(d);
+            if (hi.signum() >= 0) xhi = xhi.add(dm1);
+            restrict(x, xlo, xhi);
+        }
+        else if (isPoint(a) && a[0].signum() != 0
+            && (lo.signum() > 0 || hi.signum() < 0))
+        {
+            // L / y in [lo, hi] where the quotient has a fixed sign; bound
+            // the magnitude of y and give it the implied sign
+            BigInteger mag = a[0].abs();
+            BigInteger qlo = lo.signum() > 0 ? lo : hi.negate();
+            BigInteger qhi = lo.signum() > 0 ? hi : lo.negate();
+            BigInteger ylo = mag.divide(qhi.add(BigInteger.ONE)).add(
+                BigInteger.ONE);
+            BigInteger yhi = mag.divide(qlo);
+            boolean positive = (a[0].signum() > 0) == (lo.signum() > 0);
+            if (positive)
+            {
+                restrict(y, ylo, yhi);
+            }
+            else
+            {
+                restrict(y, yhi.negate(), ylo.negate());
+            }
+        }
+    }
+
+    private static BigInteger floorDiv(BigInteger a, BigInteger b)
+    {
+        BigInteger[] qr = a.divideAndRemainder(b);
+        if (qr[1].signum() != 0 && (qr[1].signum() != b.signum()))
+        {
+            return qr[0].subtract(BigInteger.ONE);
+        }
+        return qr[0];
+    }
+
+    private static BigInteger ceilDiv(BigInteger a, BigInteger b)
+    {
+        return floorDiv(a.negate(), b).negate();
+    }
+
+    ////////////////////////////////////////////
+    // conversion
+    ////////////////////////////////////////////
+
+    private static BigInteger toBigInteger(BitVector bv)
+    {
+        return new BigInteger(1, bv.getBytes());
+    }
+
+    private static BitVector toBitVector(BigInteger value, int length)
+    {
+        BigInteger unsigned = value.mod(BigInteger.ONE.shiftLeft(length));
+        return new BitVector(unsigned.toByteArray()).setLength(length);
+    }
+}
@@ -185,12 +185,16 @@ public abstract class BDDBitVector
         {
             if (i < bitvec.length)
             {
-                newBitVec[i] = bitvec[i].id();
-                lastBit = bitvec[i].id();
+                // the existing bits move to the new array, rather than being
+                // copied and leaked
+                newBitVec[i] = bitvec[i];
+                lastBit = bitvec[i];
             }
             else if (isSigned)
             {
-                newBitVec[i] = lastBit;
+                // each extension bit is a separate reference, so that the
+                // vector can be freed bit by bit
+                newBitVec[i] = lastBit.id();
             }
             else
             {
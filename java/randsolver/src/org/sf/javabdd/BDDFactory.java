@@ -605,7 +605,74 @@ public abstract class BDDFactory
      */
     public abstract void printStat();
 
-    // TODO: bdd_cachestats, bdd_stats
+    /**
+     * Statistics about the unique node table and operator caches. The
+     * counters accumulate from the time the factory is initialized.
+     */
+    public static class CacheStats
+    {
+        public int uniqueAccess;
+        public int uniqueChain;
+        public int uniqueHit;
+        public int uniqueMiss;
+        public int opHit;
+        public int opMiss;
+        public int swapCount;
+
+        /**
+         * Returns the fraction of unique table lookups that found an existing
+         * node, or 0 if there were none.
+         */
+        public double getUniqueHitRate()
+        {
+            final long total = (long) uniqueHit + uniqueMiss;
+            return total > 0 ? (double) uniqueHit / total : 0.0;
+        }
+
+        /**
+         * Returns the fraction of operator cache lookups that hit, or 0 if
+         * there were none.
+         */
+        public double getOpHitRate()
+        {
+            final long total = (long) opHit + opMiss;
+            return total > 0 ? (double) opHit / total : 0.0;
+        }
+
+        public String toString()
+        {
+            return "unique " + uniqueHit + "/" + (uniqueHit + uniqueMiss)
+                + " hits, op " + opHit + "/" + (opHit + opMiss) + " hits";
+        }
+    }
+
+    /**
+     * Statistics about garbage collections of the node table.
+     */
+    public static class GCStats
+    {
+        public int nodes;
+        public int freenodes;
+        public int num;
+        public long sumtime;
+
+        public String toString()
+        {
+            return num + " collections, " + sumtime + " ms total, " + nodes
+                + " nodes / " + freenodes + " free";
+        }
+    }
+
+    /**
+     * Returns a snapshot of the cache statistics. Compare to bdd_cachestats.
+     */
+    public abstract CacheStats getCacheStats();
+
+    /**
+     * Returns a snapshot of the garbage collection statistics. Compare to
+     * bdd_stats.
+     */
+    public abstract GCStats getGCStats();
 
     /**
      * Compare to bdd_newpair.
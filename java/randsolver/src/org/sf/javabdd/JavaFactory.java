@@ -547,6 +547,9 @@ public class JavaFactory
          */
         public void free()
         {
+            // freeing twice is harmless, which lets scoped owners release
+            // everything they registered without tracking prior frees
+            if (_index == INVALID_BDD) return;
             bdd_delref(_index);
             _index = INVALID_BDD;
         }
@@ -3032,7 +3035,11 @@ public class JavaFactory
         bdd_unmark_upto(node.high, level);
     }
 
-    static final boolean CACHESTATS = false;
+    // unique table and operator cache counters (see getCacheStats()) are
+    // updated on every cache access, so they are only kept if this property
+    // is set to true
+    static final boolean CACHESTATS = Boolean
+        .getBoolean("org.sf.javabdd.cacheStats");
 
     int bdd_makenode(int level, int low, int high)
     {
@@ -5884,6 +5891,38 @@ public class JavaFactory
         bdd_fprintstat(System.out);
     }
 
+    /*
+     * (non-Javadoc)
+     * @see org.sf.javabdd.BDDFactory#getCacheStats()
+     */
+    public CacheStats getCacheStats()
+    {
+        bddCacheStat s = bddcachestats;
+        CacheStats stats = new CacheStats();
+        stats.uniqueAccess = s.uniqueAccess;
+        stats.uniqueChain = s.uniqueChain;
+        stats.uniqueHit = s.uniqueHit;
+        stats.uniqueMiss = s.uniqueMiss;
+        stats.opHit = s.opHit;
+        stats.opMiss = s.opMiss;
+        stats.swapCount = s.swapCount;
+        return stats;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.sf.javabdd.BDDFactory#getGCStats()
+     */
+    public GCStats getGCStats()
+    {
+        GCStats stats = new GCStats();
+        stats.nodes = bddnodesize;
+        stats.freenodes = bddfreenum;
+        stats.num = gbcollectnum;
+        stats.sumtime = gbcclock;
+        return stats;
+    }
+
     /*
      * (non-Javadoc)
      * @see org.sf.javabdd.BDDFactory#makePair()
@@ -6406,8 +6445,8 @@ public class JavaFactory
         out.println("Operator Miss:  " + s.opMiss);
         out
             .println("=> Hit rate =   "
-                + ((s.opHit + s.opMiss > 0) ? (s.opHit) / (s.opHit + s.opMiss)
-                    : 0));
+                + ((s.opHit + s.opMiss > 0) ? (s.opHit)
+                    / ((float) s.opHit + s.opMiss) : 0));
         out.println("Swap count =    " + s.swapCount);
     }
 
@@ -31,6 +31,8 @@ public class RandSolverTestSuite
         //$JUnit-BEGIN$
         suite.addTestSuite(TestAnnotation.class);
         suite.addTestSuite(TestCyclic.class);
+        suite.addTestSuite(TestCyclicPermutation.class);
+        suite.addTestSuite(TestConstraintPrecompiler.class);
         suite.addTestSuite(TestExpressions.class);
         suite.addTestSuite(TestEnumeration.class);
         suite.addTestSuite(TestEnumerationMapper.class);
@@ -38,6 +40,8 @@ public class RandSolverTestSuite
         suite.addTestSuite(TestMisc.class);
         suite.addTestSuite(TestPairwise.class);
         suite.addTestSuite(TestPrePost.class);
+        suite.addTestSuite(TestRandomizeCoverage.class);
+        suite.addTestSuite(TestSolutionCache.class);
         suite.addTestSuite(TestSubobject.class);
         suite.addTestSuite(TestMapperFactory.class);
         suite.addTest(OperatorTestSuite.suite());
@@ -0,0 +1,89 @@
+/*
+ * Jove Constraint-based Random Solver
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.newisys.randsolver;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import com.newisys.langschema.constraint.ConsSchema;
+import com.newisys.langschema.java.JavaRawAbstractClass;
+import com.newisys.langschema.java.JavaRawStructuredType;
+
+/**
+ * Times the schema startup work done before constraints can be compiled:
+ * constructing the constraint schema and resolving the types and fields of a
+ * set of randomizable classes, each time in a fresh schema. Run once with the
+ * default settings and once with
+ * -Dcom.newisys.langschema.java.useClassFiles=false to compare lazy class
+ * file loading against eager reflection.
+ */
+public final class SchemaLoadBenchmark
+{
+    private static final Class[] CLASSES = { CyclicTestClass.class,
+        CyclicRangeClass.class, EnumTestClass.class, Solver.class,
+        java.util.HashMap.class, java.util.concurrent.ConcurrentHashMap.class,
+        java.lang.Thread.class };
+
+    private static final int WARMUP_ITERS = 3;
+    private static final int TIMED_ITERS = 20;
+
+    private static void load()
+        throws ClassNotFoundException
+    {
+        final ConsSchema schema = new ConsSchema();
+        for (final Class cls : CLASSES)
+        {
+            final JavaRawStructuredType type = schema.getTypeForClass(cls
+                .getName());
+
+            // the constraint compiler looks up the fields named by
+            // constraints; private fields are not modeled by the schema
+            if (type instanceof JavaRawAbstractClass)
+            {
+                final JavaRawAbstractClass absCls = (JavaRawAbstractClass) type;
+                for (final Field field : cls.getDeclaredFields())
+                {
+                    if (!field.isSynthetic()
+                        && !Modifier.isPrivate(field.getModifiers()))
+                    {
+                        absCls.getField(field.getName(), absCls);
+                    }
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args)
+        throws ClassNotFoundException
+    {
+        final boolean classFiles = !"false".equalsIgnoreCase(System
+            .getProperty("com.newisys.langschema.java.useClassFiles"));
+        for (int i = 0; i < WARMUP_ITERS; ++i)
+        {
+            load();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < TIMED_ITERS; ++i)
+        {
+            load();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println((classFiles ? "class files" : "reflection") + ": "
+            + (elapsed / TIMED_ITERS / 1000) + " us/schema");
+    }
+}
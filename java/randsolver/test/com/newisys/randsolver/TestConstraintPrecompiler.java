@@ -0,0 +1,116 @@
+/*
+ * Jove Constraint-based Random Solver
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.randsolver;
+
+import junit.framework.TestCase;
+
+import com.newisys.randsolver.annotation.Constraint;
+import com.newisys.randsolver.annotation.Rand;
+import com.newisys.randsolver.annotation.Randc;
+import com.newisys.randsolver.annotation.Randomizable;
+
+public class TestConstraintPrecompiler
+    extends TestCase
+{
+    private ConstraintPrecompiler precompiler;
+
+    @Randomizable( { @Constraint(name = "c1", expr = "x < 4;"),
+        @Constraint(name = "c2", expr = "y != 2;") })
+    static class Valid
+    {
+        @Rand
+        int x;
+        @Randc
+        byte y;
+        String s;
+    }
+
+    @Randomizable( { @Constraint(name = "c1", expr = "x < 4;"),
+        @Constraint(name = "c1", expr = "x > 4;") })
+    static class Duplicate
+    {
+        @Rand
+        int x;
+    }
+
+    @Randomizable( { @Constraint(name = "c1", expr = "x < 4;"),
+        @Constraint(name = "c2", expr = "z > 0;") })
+    static class Unresolved
+    {
+        @Rand
+        int x;
+    }
+
+    @Randomizable
+    static class BadRandVar
+    {
+        @Rand
+        @Randc
+        int x;
+    }
+
+    static class NotRandomizable
+    {
+        @Rand
+        @Randc
+        int x;
+    }
+
+    protected void setUp()
+    {
+        precompiler = new ConstraintPrecompiler();
+    }
+
+    public void testValid()
+    {
+        assertTrue(precompiler.precompile(Valid.class));
+        assertEquals(0, precompiler.getErrors().size());
+        assertEquals(1, precompiler.getClassCount());
+    }
+
+    public void testNotRandomizable()
+    {
+        assertFalse(precompiler.precompile(NotRandomizable.class));
+        assertEquals(0, precompiler.getErrors().size());
+        assertEquals(0, precompiler.getClassCount());
+    }
+
+    public void testDuplicateConstraintName()
+    {
+        assertFalse(precompiler.precompile(Duplicate.class));
+        assertEquals(1, precompiler.getErrors().size());
+        assertTrue(precompiler.getErrors().get(0).indexOf(
+            "duplicate constraint name 'c1'") >= 0);
+    }
+
+    public void testUnresolvedConstraint()
+    {
+        assertFalse(precompiler.precompile(Unresolved.class));
+        assertEquals(1, precompiler.getErrors().size());
+        assertTrue(precompiler.getErrors().get(0).indexOf("constraint 'c2'")
+            >= 0);
+    }
+
+    public void testBadRandVar()
+    {
+        assertFalse(precompiler.precompile(BadRandVar.class));
+        assertEquals(1, precompiler.getErrors().size());
+        assertEquals(1, precompiler.getClassCount());
+    }
+}
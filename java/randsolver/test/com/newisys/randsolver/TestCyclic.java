@@ -55,6 +55,17 @@ class CyclicTestClass
     }
 }
 
+@Randomizable( { @Constraint(name = "c1", expr = "val >= -3 && val < 4;") })
+class CyclicRangeClass
+{
+    @Randc
+    byte val;
+
+    @Randc
+    @Length(3)
+    BitVector unconstrained = new BitVector(3);
+}
+
 public class TestCyclic
     extends TestCase
 {
@@ -104,4 +115,52 @@ public class TestCyclic
             assertEquals(2, value + value2);
         }
     }
+
+    public void testRangeAndUnconstrained()
+    {
+        CyclicRangeClass testObj = new CyclicRangeClass();
+        PRNG prng = PRNGFactoryFactory.getDefaultFactory().newInstance();
+
+        for (int cycle = 0; cycle < 5; ++cycle)
+        {
+            // val cycles through 7 values and unconstrained through 8
+            int valMask = 0;
+            int unconstrainedMask = 0;
+            for (int i = 0; i < 56; ++i)
+            {
+                Solver.randomize(testObj, prng);
+                int value = testObj.val;
+                assertTrue(value >= -3 && value < 4);
+                assertEquals(0, valMask & (1 << (value + 3)));
+                valMask |= (1 << (value + 3));
+                if (valMask == 0x7f) valMask = 0;
+
+                int value2 = testObj.unconstrained.intValue();
+                assertEquals(0, unconstrainedMask & (1 << value2));
+                unconstrainedMask |= (1 << value2);
+                if (unconstrainedMask == 0xff) unconstrainedMask = 0;
+            }
+        }
+    }
+
+    public void testTwoInstances()
+    {
+        CyclicRangeClass[] testObjs = { new CyclicRangeClass(),
+            new CyclicRangeClass() };
+        PRNG prng = PRNGFactoryFactory.getDefaultFactory().newInstance();
+
+        // each instance cycles through its own values even when the two are
+        // randomized alternately
+        int[] valMasks = new int[2];
+        for (int i = 0; i < 70; ++i)
+        {
+            int j = i % 2;
+            Solver.randomize(testObjs[j], prng);
+            int value = testObjs[j].val;
+            assertTrue(value >= -3 && value < 4);
+            assertEquals(0, valMasks[j] & (1 << (value + 3)));
+            valMasks[j] |= (1 << (value + 3));
+            if (valMasks[j] == 0x7f) valMasks[j] = 0;
+        }
+    }
 }
@@ -0,0 +1,122 @@
+/*
+ * Jove Constraint-based Random Solver
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.randsolver;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import com.newisys.random.PRNG;
+import com.newisys.random.PRNGFactoryFactory;
+
+public class TestCyclicPermutation
+    extends TestCase
+{
+    private PRNG prng;
+
+    @Override
+    public void setUp()
+    {
+        prng = PRNGFactoryFactory.getDefaultFactory().newInstance(0);
+    }
+
+    private void checkCycles(long low, int count)
+    {
+        CyclicPermutation perm = new CyclicPermutation();
+        perm.setRange(low, count - 1);
+        for (int cycle = 0; cycle < 3; ++cycle)
+        {
+            Set<Long> seen = new HashSet<Long>();
+            for (int i = 0; i < count; ++i)
+            {
+                long value = perm.next(prng);
+                assertTrue(value >= low && value < low + count);
+                assertTrue(seen.add(value));
+            }
+        }
+    }
+
+    public void testCycles()
+    {
+        checkCycles(0, 1);
+        checkCycles(0, 2);
+        checkCycles(0, 3);
+        checkCycles(-5, 11);
+        checkCycles(0, 256);
+        checkCycles(1000, 1000);
+    }
+
+    public void testCyclesDiffer()
+    {
+        CyclicPermutation perm = new CyclicPermutation();
+        perm.setRange(0, 999);
+        long[] first = new long[1000];
+        for (int i = 0; i < first.length; ++i)
+        {
+            first[i] = perm.next(prng);
+        }
+        boolean differs = false;
+        for (int i = 0; i < first.length; ++i)
+        {
+            differs |= (perm.next(prng) != first[i]);
+        }
+        assertTrue(differs);
+    }
+
+    public void testSetRange()
+    {
+        CyclicPermutation perm = new CyclicPermutation();
+        perm.setRange(0, 9);
+        Set<Long> seen = new HashSet<Long>();
+        for (int i = 0; i < 5; ++i)
+        {
+            seen.add(perm.next(prng));
+        }
+
+        // setting the same range continues the cycle
+        perm.setRange(0, 9);
+        for (int i = 0; i < 5; ++i)
+        {
+            assertTrue(seen.add(perm.next(prng)));
+        }
+
+        // a new range starts a new cycle
+        perm.setRange(20, 4);
+        seen.clear();
+        for (int i = 0; i < 5; ++i)
+        {
+            long value = perm.next(prng);
+            assertTrue(value >= 20 && value <= 24);
+            assertTrue(seen.add(value));
+        }
+    }
+
+    public void testFullWidth()
+    {
+        // the full 64-bit range: values are distinct bit patterns
+        CyclicPermutation perm = new CyclicPermutation();
+        perm.setRange(Long.MIN_VALUE, -1L);
+        Set<Long> seen = new HashSet<Long>();
+        for (int i = 0; i < 10000; ++i)
+        {
+            assertTrue(seen.add(perm.next(prng)));
+        }
+    }
+}
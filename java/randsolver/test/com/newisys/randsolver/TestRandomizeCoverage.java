@@ -0,0 +1,102 @@
+/*
+ * Jove Constraint-based Random Solver
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.newisys.randsolver;
+
+import junit.framework.TestCase;
+
+import com.newisys.coverage.CoverGroup;
+import com.newisys.coverage.CoverPoint;
+import com.newisys.random.PRNG;
+import com.newisys.random.PRNGFactoryFactory;
+import com.newisys.randsolver.annotation.Rand;
+import com.newisys.randsolver.annotation.Randomizable;
+import com.newisys.verilog.util.BitVector;
+import com.newisys.verilog.util.Length;
+
+enum CoverageTestKind
+{
+    READ, WRITE, FLUSH
+}
+
+@Randomizable
+class CoverageTestClass
+{
+    @Rand
+    CoverageTestKind kind;
+
+    @Rand
+    @Length(3)
+    BitVector size = new BitVector(3);
+}
+
+@Randomizable
+class CoverageTestSubclass
+    extends CoverageTestClass
+{
+}
+
+public class TestRandomizeCoverage
+    extends TestCase
+{
+    public void testRandomizeCoverage()
+    {
+        final CoverGroup cg = new CoverGroup("randomized");
+        final CoverPoint kind = cg.addCoverPoint("kind",
+            CoverageTestKind.class);
+        kind.bindField(CoverageTestClass.class, "kind");
+        final CoverPoint size = cg.addCoverPoint("size", 3);
+        size.bindField(CoverageTestClass.class, "size");
+        cg.addCross("kindXsize", kind, size);
+
+        final RandomizeCoverage coverage = new RandomizeCoverage();
+        coverage.add(CoverageTestClass.class, cg);
+        Solver.addRandomizeListener(coverage);
+        try
+        {
+            final PRNG prng = PRNGFactoryFactory.getDefaultFactory()
+                .newInstance(1);
+            final CoverageTestClass obj = new CoverageTestClass();
+            final CoverageTestSubclass subObj = new CoverageTestSubclass();
+            for (int i = 0; i < 500; ++i)
+            {
+                Solver.randomize(i % 2 == 0 ? obj : subObj, prng);
+            }
+        }
+        finally
+        {
+            assertTrue(Solver.removeRandomizeListener(coverage));
+        }
+
+        assertEquals(500, cg.getSampleCount());
+        assertEquals(100.0, kind.getCoverage(), 0.0);
+        assertEquals(100.0, size.getCoverage(), 0.0);
+        long total = 0;
+        for (int i = 0; i < kind.getTotalBinCount(); ++i)
+        {
+            total += kind.getCount(i);
+        }
+        assertEquals(500, total);
+
+        // listener is no longer invoked once removed
+        Solver.randomize(new CoverageTestClass(), PRNGFactoryFactory
+            .getDefaultFactory().newInstance(2));
+        assertEquals(500, cg.getSampleCount());
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Jove Constraint-based Random Solver
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.newisys.randsolver;
+
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.sf.javabdd.BDD;
+import org.sf.javabdd.BDDFactory;
+
+import com.newisys.random.PRNG;
+
+public class TestSolutionCache
+    extends TestCase
+{
+    private static final class SizedSolver
+        extends ExprSolver
+    {
+        private final long size;
+        boolean released;
+
+        SizedSolver(long size)
+        {
+            super("sized");
+            this.size = size;
+        }
+
+        @Override
+        protected List solve(
+            Constraint constraint,
+            RandVarSet constrainedVars,
+            RandVarSet unconstrainedVars)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected Map commit(Object obj, PRNG rng)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isComplex()
+        {
+            return false;
+        }
+
+        @Override
+        long estimateRetainedSize()
+        {
+            return size;
+        }
+
+        @Override
+        void release()
+        {
+            assertFalse(released);
+            released = true;
+        }
+    }
+
+    public void testLeastRecentlyUsedEviction()
+    {
+        SolutionCache<String> cache = new SolutionCache<String>(100);
+        SizedSolver a = new SizedSolver(40);
+        SizedSolver b = new SizedSolver(40);
+        SizedSolver c = new SizedSolver(40);
+        cache.put("a", a);
+        cache.put("b", b);
+        assertSame(a, cache.get("a"));
+        cache.put("c", c);
+
+        // b was least recently used
+        assertTrue(b.released);
+        assertNull(cache.get("b"));
+        assertSame(a, cache.get("a"));
+        assertSame(c, cache.get("c"));
+        assertEquals(80, cache.getRetainedSize());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    public void testReplaceAndOversize()
+    {
+        SolutionCache<String> cache = new SolutionCache<String>(100);
+        SizedSolver a = new SizedSolver(40);
+        cache.put("a", a);
+        cache.put("a", a);
+        assertFalse(a.released);
+
+        SizedSolver a2 = new SizedSolver(50);
+        cache.put("a", a2);
+        assertTrue(a.released);
+        assertEquals(50, cache.getRetainedSize());
+
+        // a solver larger than the budget is still cached on its own
+        SizedSolver big = new SizedSolver(500);
+        cache.put("big", big);
+        assertTrue(a2.released);
+        assertFalse(big.released);
+        assertEquals(1, cache.size());
+
+        cache.clear();
+        assertTrue(big.released);
+        assertEquals(0, cache.getRetainedSize());
+    }
+
+    public void testStatistics()
+    {
+        BDDFactory factory = BddUtils.getFactory();
+        factory.setVarNum(Math.max(factory.varNum(), 2));
+        BDD x = factory.ithVar(0);
+        BDD y = factory.ithVar(1);
+        BDD xy = x.and(y);
+        SolverStatistics stats = SolverStatistics.getCurrent();
+        assertTrue(stats.getNodeNum() > 0);
+        assertTrue(stats.getAllocNum() >= stats.getNodeNum());
+        if (Boolean.getBoolean("org.sf.javabdd.cacheStats"))
+        {
+            assertTrue(stats.getCacheStats().opMiss > 0);
+        }
+        else
+        {
+            assertEquals(0, stats.getCacheStats().opMiss);
+        }
+        xy.free();
+        xy.free();
+        x.free();
+        y.free();
+    }
+}
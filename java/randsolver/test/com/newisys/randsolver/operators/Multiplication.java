@@ -378,4 +378,25 @@ public class Multiplication
             }
         }
     }
+
+    public void testWideRandProduct()
+    {
+        @Randomizable( { @Constraint(name = "c1", expr = "mLong1 * mLong2 == 1000036000099L; mLong1 > 1; mLong2 > 1;") })
+        class Dut
+        {
+            @Rand
+            long mLong1;
+
+            @Rand
+            long mLong2;
+        }
+
+        final Dut dut = new Dut();
+        for (int i = 0; i < RANDOM_ITERS; ++i)
+        {
+            Solver.randomize(dut, prng);
+            assertTrue(dut.mLong1 > 1 && dut.mLong2 > 1);
+            assertTrue(dut.mLong1 * dut.mLong2 == 1000036000099L);
+        }
+    }
 }
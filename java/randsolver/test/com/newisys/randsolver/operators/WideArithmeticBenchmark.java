@@ -0,0 +1,148 @@
+/*
+ * Jove Constraint-based Random Solver
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.newisys.randsolver.operators;
+
+import com.newisys.random.PRNG;
+import com.newisys.random.PRNGFactoryFactory;
+import com.newisys.randsolver.Solver;
+import com.newisys.randsolver.annotation.Constraint;
+import com.newisys.randsolver.annotation.Rand;
+import com.newisys.randsolver.annotation.Randomizable;
+import com.newisys.verilog.util.BitVector;
+import com.newisys.verilog.util.Length;
+
+/**
+ * Times randomization of constraints on products and quotients of wide
+ * variables, which are expensive to represent as BDDs. Run once with the
+ * default settings and once with
+ * -Dcom.newisys.randsolver.bddNodeThreshold=0 to compare the word-level
+ * fallback against the pure BDD solver.
+ */
+public final class WideArithmeticBenchmark
+{
+    @Randomizable( { @Constraint(name = "c1", expr = "mK == mA * mB; mA > 1; mB > 1;") })
+    static final class IntProduct
+    {
+        @Rand
+        int mA;
+
+        @Rand
+        int mB;
+
+        int mK = 1000003 * 2111;
+    }
+
+    @Randomizable( { @Constraint(name = "c1", expr = "mK == mA * mB; mA > 1; mB > 1;") })
+    static final class LongProduct
+    {
+        @Rand
+        long mA;
+
+        @Rand
+        long mB;
+
+        long mK = 1000036000099L;
+    }
+
+    @Randomizable( { @Constraint(name = "c1", expr = "mK == mA / mB;") })
+    static final class IntQuotient
+    {
+        @Rand
+        int mA;
+
+        @Rand
+        int mB;
+
+        int mK = 100;
+    }
+
+    @Randomizable( { @Constraint(name = "c1", expr = "mK == mA / mB;") })
+    static final class LongQuotient
+    {
+        @Rand
+        long mA;
+
+        @Rand
+        long mB;
+
+        long mK = 100;
+    }
+
+    @Randomizable( { @Constraint(name = "c1", expr = "mAddr * mStride + mBase < mLimit;") })
+    static final class Address32
+    {
+        @Rand
+        @Length(32)
+        BitVector mAddr;
+
+        @Rand
+        @Length(32)
+        BitVector mBase;
+
+        BitVector mStride = new BitVector(32, 64);
+
+        BitVector mLimit = new BitVector(32, 0x100000);
+    }
+
+    @Randomizable( { @Constraint(name = "c1", expr = "mAddr * mStride + mBase < mLimit;") })
+    static final class Address64
+    {
+        @Rand
+        @Length(64)
+        BitVector mAddr;
+
+        @Rand
+        @Length(64)
+        BitVector mBase;
+
+        BitVector mStride = new BitVector(64, 64);
+
+        BitVector mLimit = new BitVector(64, 0x100000);
+    }
+
+    private static final int WARMUP_ITERS = 10;
+    private static final int TIMED_ITERS = 100;
+
+    private static void time(String name, Object obj, PRNG prng)
+    {
+        for (int i = 0; i < WARMUP_ITERS; ++i)
+        {
+            Solver.randomize(obj, prng);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < TIMED_ITERS; ++i)
+        {
+            Solver.randomize(obj, prng);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println(name + ": " + (elapsed / TIMED_ITERS / 1000)
+            + " us/randomize");
+    }
+
+    public static void main(String[] args)
+    {
+        PRNG prng = PRNGFactoryFactory.getDefaultFactory().newInstance(0);
+        time("int a*b", new IntProduct(), prng);
+        time("long a*b", new LongProduct(), prng);
+        time("int a/b", new IntQuotient(), prng);
+        time("long a/b", new LongQuotient(), prng);
+        time("32-bit addr*stride+base", new Address32(), prng);
+        time("64-bit addr*stride+base", new Address64(), prng);
+    }
+}
@@ -23,6 +23,8 @@
 #include <string>
 #include <list>
 
+#include <string.h>
+
 #ifdef __CYGWIN__
     // include the __int64 def needed by jni.h
     #include <w32api/basetyps.h>
@@ -20,6 +20,7 @@
 
 #ifndef _WIN32
 #include <dlfcn.h>
+#include <unistd.h>
 #else
 #include <windows.h>
 #endif
@@ -294,6 +295,22 @@ std::string JVM::getDefaultJVMPath()
         throw JException("JAVA_HOME not found in environment");
     }
 
+    const char *jvmtype = getenv("JVMTYPE");
+
+#if !defined(_WIN32) && !defined(_DARWIN)
+    // JDK 9 and later have no jre directory or architecture subdirectory,
+    // and ship only the server VM
+    {
+        std::string path(javahome);
+        path += "/lib/";
+        path += (jvmtype != NULL) ? jvmtype : "server";
+        path += "/libjvm.so";
+        if (access(path.c_str(), F_OK) == 0) {
+            return path;
+        }
+    }
+#endif
+
 #ifndef _WIN32
     #ifndef _DARWIN
         const char *hosttype = getenv("HOSTTYPE");
@@ -303,7 +320,6 @@ std::string JVM::getDefaultJVMPath()
     #endif
 #endif
 
-    const char *jvmtype = getenv("JVMTYPE");
     if (jvmtype == NULL) {
         jvmtype = "client";
     }
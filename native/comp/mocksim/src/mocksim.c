@@ -0,0 +1,184 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+/** \file
+ * Mock simulator used to benchmark the PLI backends. It builds a design of
+ * N input and N output registers in the mock VPI library, loads pli4j as a
+ * simulator would, and then drives a new random value onto every input
+ * register at each time step. The Java application is expected to copy each
+ * input register to the corresponding output register from its value change
+ * callback; this is checked at the end of every step. The time taken by the
+ * measured steps (after a warm-up period) is reported, so the JNI and
+ * java.lang.foreign backends can be compared by running the same
+ * application with and without the com.newisys.verilog.pli.interface
+ * property.
+ *
+ * With +mock_clock=1, the design also has a 1-bit register top.clk. Each step
+ * then assigns the inputs while the clock is low, raises the clock 5 ticks
+ * later, and ends 1 tick after that, so an application using clocked Jove
+ * signals can sample the inputs at the rising edge and drive the outputs
+ * with an output skew of 1.
+ *
+ * Options (passed as simulator plusargs):
+ *   +mock_regs=N    number of input/output register pairs (default 256)
+ *   +mock_width=W   register width in bits (default 32)
+ *   +mock_steps=S   number of measured time steps (default 10000)
+ *   +mock_warmup=S  number of unmeasured warm-up steps (default 2000)
+ *   +mock_clock=C   if non-zero, clock the design as described above
+ *
+ * \author Trevor Robinson
+ */
+
+// external component headers
+#include "mockvpi.h"
+
+// system headers
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <time.h>
+
+// pli4j entrypoint normally passed to the simulator via +loadvpi
+extern void pli4j_register_vpi_tasks(void);
+
+static int getIntArg(int argc, char **argv, const char *name, int def)
+{
+    size_t len = strlen(name);
+    int i;
+    for (i = 1; i < argc; ++i) {
+        if (strncmp(argv[i], name, len) == 0) {
+            return atoi(argv[i] + len);
+        }
+    }
+    return def;
+}
+
+static double now(void)
+{
+    struct timespec ts;
+    clock_gettime(CLOCK_MONOTONIC, &ts);
+    return ts.tv_sec + ts.tv_nsec * 1e-9;
+}
+
+int main(int argc, char **argv)
+{
+    int regs = getIntArg(argc, argv, "+mock_regs=", 256);
+    int width = getIntArg(argc, argv, "+mock_width=", 32);
+    int steps = getIntArg(argc, argv, "+mock_steps=", 10000);
+    int warmup = getIntArg(argc, argv, "+mock_warmup=", 2000);
+    int clocked = getIntArg(argc, argv, "+mock_clock=", 0);
+    int words = (width - 1) / 32 + 1;
+    vpiHandle top, clk = NULL, *in, *out;
+    s_vpi_vecval *vec, clkVec;
+    unsigned int seed = 1;
+    long mismatches = 0;
+    double start = 0, elapsed;
+    int step, i, j;
+
+    mockvpi_set_args(argc, argv);
+
+    // build the design
+    top = mockvpi_add_module("top");
+    if (clocked) {
+        clk = mockvpi_add_reg(top, "clk", 1);
+    }
+    in = (vpiHandle*) malloc(sizeof(vpiHandle) * regs);
+    out = (vpiHandle*) malloc(sizeof(vpiHandle) * regs);
+    for (i = 0; i < regs; ++i) {
+        char name[32];
+        sprintf(name, "in%d", i);
+        in[i] = mockvpi_add_reg(top, name, width);
+        sprintf(name, "out%d", i);
+        out[i] = mockvpi_add_reg(top, name, width);
+    }
+    vec = (s_vpi_vecval*) calloc(words, sizeof(s_vpi_vecval));
+
+    // load pli4j and start the Java application, as done by
+    // "initial begin $pli4j_init; $pli4j_start; end"
+    pli4j_register_vpi_tasks();
+    if (!mockvpi_call_systf("$pli4j_init") ||
+        !mockvpi_call_systf("$pli4j_start")) {
+        fprintf(stderr, "mocksim: pli4j tasks not registered\n");
+        return 1;
+    }
+    mockvpi_start();
+
+    for (step = 0; step < warmup + steps; ++step) {
+        if (step == warmup) {
+            start = now();
+        }
+
+        mockvpi_advance((mockvpi_time) (step + 1) * 10);
+        for (i = 0; i < regs; ++i) {
+            for (j = 0; j < words; ++j) {
+                seed = seed * 1103515245 + 12345;
+                vec[j].aval = (PLI_INT32) seed;
+                vec[j].bval = 0;
+            }
+            mockvpi_assign(in[i], vec);
+        }
+        if (clocked) {
+            clkVec.aval = 0;
+            clkVec.bval = 0;
+            mockvpi_assign(clk, &clkVec);
+            mockvpi_end_step();
+
+            mockvpi_advance((mockvpi_time) (step + 1) * 10 + 5);
+            clkVec.aval = 1;
+            mockvpi_assign(clk, &clkVec);
+            mockvpi_end_step();
+
+            mockvpi_advance((mockvpi_time) (step + 1) * 10 + 6);
+        }
+        mockvpi_end_step();
+
+        // check that the application copied every input to its output
+        for (i = 0; i < regs; ++i) {
+            s_vpi_value inValue, outValue;
+            inValue.format = vpiBinStrVal;
+            vpi_get_value(in[i], &inValue);
+            {
+                char *inStr = strdup(inValue.value.str);
+                outValue.format = vpiBinStrVal;
+                vpi_get_value(out[i], &outValue);
+                if (strcmp(inStr, outValue.value.str) != 0) {
+                    ++mismatches;
+                }
+                free(inStr);
+            }
+        }
+
+        if (mockvpi_finish_requested()) {
+            break;
+        }
+    }
+    elapsed = now() - start;
+
+    printf("mocksim: %d x %d-bit registers, %d steps in %.3f s: "
+        "%.2f us/step, %.1f ns/register; %ld mismatches\n",
+        regs, width, steps, elapsed, elapsed * 1e6 / steps,
+        elapsed * 1e9 / ((double) steps * regs), mismatches);
+    fflush(stdout);
+
+    mockvpi_end();
+
+    free(vec);
+    free(in);
+    free(out);
+    return mismatches != 0;
+}
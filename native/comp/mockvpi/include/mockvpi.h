@@ -0,0 +1,79 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+/** \file
+ * Driver interface to the mock VPI library. The mock implements enough of
+ * the IEEE 1364 VPI routines to host pli4j or a java.lang.foreign PLI backend
+ * against a flat design of registers, and is driven by a test program
+ * through the functions declared here rather than by Verilog code.
+ *
+ * \author Trevor Robinson
+ */
+
+#ifndef mockvpi_h_included
+#define mockvpi_h_included
+
+#include "vpi_user.h"
+
+#ifdef __cplusplus
+extern "C" {
+#endif
+
+/* 64-bit simulation time */
+typedef unsigned long long mockvpi_time;
+
+/* sets the command line returned by vpi_get_vlog_info */
+void mockvpi_set_args(int argc, char **argv);
+
+/* adds a top-level module */
+vpiHandle mockvpi_add_module(const char *name);
+
+/* adds a register of the given size (in bits) to a module; its initial
+   value is all X */
+vpiHandle mockvpi_add_reg(vpiHandle module, const char *name, int size);
+
+/* assigns a register value from the simulator side and performs value
+   change callbacks if the value changed */
+void mockvpi_assign(vpiHandle reg, const s_vpi_vecval *value);
+
+/* calls a system task registered with vpi_register_systf, as if it were
+   invoked from Verilog code; returns 0 if no such task is registered */
+int mockvpi_call_systf(const char *name);
+
+/* performs start of simulation callbacks */
+void mockvpi_start(void);
+
+/* advances to the given simulation time, performing next simulation time
+   and start of simulation time callbacks */
+void mockvpi_advance(mockvpi_time time);
+
+/* performs read-write synch callbacks until none remain, then read-only
+   synch callbacks */
+void mockvpi_end_step(void);
+
+/* performs end of simulation callbacks */
+void mockvpi_end(void);
+
+/* returns non-zero if vpi_control(vpiFinish) has been called */
+int mockvpi_finish_requested(void);
+
+#ifdef __cplusplus
+} /* extern "C" */
+#endif
+
+#endif /* mockvpi_h_included */
@@ -0,0 +1,1006 @@
+/*
+ * Jove - The Open Verification Environment for the Java (TM) Platform
+ * Copyright (C) 2005 Newisys, Inc. or its licensors, as applicable.
+ * Java is a registered trademark of Sun Microsystems, Inc. in the U.S. or
+ * other countries.
+ *
+ * Licensed under the Open Software License version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You should
+ * have received a copy of the License along with this software; if not, you
+ * may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/osl-2.0.php
+ *
+ * This software is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+/** \file
+ * Mock implementation of the VPI routines used by pli4j and the
+ * java.lang.foreign PLI backend. The design is a flat list of modules
+ * containing registers; register values are stored as s_vpi_vecval arrays.
+ * Only the callback reasons, value formats and delay modes used by Jove are
+ * supported; anything else is reported through vpi_chk_error.
+ *
+ * \author Trevor Robinson
+ */
+
+// module header
+#include "mockvpi.h"
+
+// external component headers
+#include "veriuser.h"
+#include "acc_user.h"
+
+// system headers
+#include <stdarg.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+
+#define MOCK_PRODUCT "Mock VPI"
+#define MOCK_VERSION "1.0"
+
+typedef struct mock_handle
+{
+    PLI_INT32 type;
+} mock_handle;
+
+typedef struct mock_cb mock_cb;
+
+typedef struct mock_obj
+{
+    mock_handle h;                  /* vpiModule or vpiReg */
+    char *name;
+    char *fullname;
+    PLI_INT32 size;
+    struct mock_obj *parent;
+    struct mock_obj *next;          /* next object in the design */
+    s_vpi_vecval *vec;              /* register value */
+    int forced;
+    mock_cb *vc_cbs;                /* value change callbacks */
+} mock_obj;
+
+struct mock_cb
+{
+    mock_handle h;                  /* vpiCallback */
+    s_cb_data data;
+    s_vpi_time time;
+    s_vpi_value value;
+    mockvpi_time due;                 /* for cbAfterDelay/cbAtStartOfSimTime */
+    int removed;                    /* removed or fired (one-shot) */
+    int freed;                      /* handle released by the application */
+    mock_cb *next;
+};
+
+typedef struct mock_event
+{
+    mock_handle h;                  /* vpiSchedEvent */
+    mock_obj *obj;
+    s_vpi_vecval *vec;
+    mockvpi_time due;
+    int cancelled;
+    int freed;
+    struct mock_event *next;
+} mock_event;
+
+typedef struct mock_iter
+{
+    mock_handle h;                  /* vpiIterator */
+    mock_obj **items;
+    int count;
+    int pos;
+} mock_iter;
+
+typedef struct mock_systf
+{
+    mock_handle h;                  /* vpiUserSystf */
+    s_vpi_systf_data data;
+    struct mock_systf *next;
+} mock_systf;
+
+// private data
+static int vlog_argc = 0;
+static char **vlog_argv = NULL;
+
+static mock_obj *design_head = NULL;
+static mock_obj *design_tail = NULL;
+
+static mock_cb *rw_cbs = NULL;
+static mock_cb *ro_cbs = NULL;
+static mock_cb *next_time_cbs = NULL;
+static mock_cb *timed_cbs = NULL;
+static mock_cb *start_cbs = NULL;
+static mock_cb *end_cbs = NULL;
+static mock_cb *retired_cbs = NULL;
+
+static mock_event *events = NULL;
+static mock_systf *systfs = NULL;
+
+static mockvpi_time sim_time = 0;
+static int finish_requested = 0;
+static int firing_depth = 0;
+
+static int has_error = 0;
+static s_vpi_error_info last_error;
+static char error_message[256];
+
+static s_vpi_vecval *get_value_vec = NULL;
+static int get_value_words = 0;
+static char *get_value_str = NULL;
+static int get_value_str_len = 0;
+
+#define WORDS(size) (((size) - 1) / 32 + 1)
+
+static void clear_error(void)
+{
+    has_error = 0;
+}
+
+static void set_error(const char *fmt, ...)
+{
+    va_list ap;
+    va_start(ap, fmt);
+    vsnprintf(error_message, sizeof(error_message), fmt, ap);
+    va_end(ap);
+
+    has_error = 1;
+    last_error.state = vpiRun;
+    last_error.level = vpiError;
+    last_error.message = error_message;
+    last_error.product = (PLI_BYTE8*) MOCK_PRODUCT;
+    last_error.code = (PLI_BYTE8*) "MOCK";
+    last_error.file = NULL;
+    last_error.line = 0;
+}
+
+static mock_obj *as_obj(vpiHandle handle)
+{
+    mock_handle *h = (mock_handle*) handle;
+    if (h != NULL && (h->type == vpiModule || h->type == vpiReg)) {
+        return (mock_obj*) h;
+    }
+    return NULL;
+}
+
+static mock_obj *as_reg(vpiHandle handle)
+{
+    mock_handle *h = (mock_handle*) handle;
+    if (h != NULL && h->type == vpiReg) {
+        return (mock_obj*) h;
+    }
+    return NULL;
+}
+
+static char *copy_string(const char *s)
+{
+    char *result = (char*) malloc(strlen(s) + 1);
+    strcpy(result, s);
+    return result;
+}
+
+static void mask_vec(s_vpi_vecval *vec, int size)
+{
+    int bits = size % 32;
+    if (bits != 0) {
+        PLI_INT32 mask = (PLI_INT32) ((1U << bits) - 1);
+        vec[WORDS(size) - 1].aval &= mask;
+        vec[WORDS(size) - 1].bval &= mask;
+    }
+}
+
+/********************* value conversion *********************/
+
+static s_vpi_vecval *get_vec_buffer(int words)
+{
+    if (words > get_value_words) {
+        free(get_value_vec);
+        get_value_vec = (s_vpi_vecval*) malloc(sizeof(s_vpi_vecval) * words);
+        get_value_words = words;
+    }
+    return get_value_vec;
+}
+
+static char *get_str_buffer(int len)
+{
+    if (len + 1 > get_value_str_len) {
+        free(get_value_str);
+        get_value_str = (char*) malloc(len + 1);
+        get_value_str_len = len + 1;
+    }
+    return get_value_str;
+}
+
+static PLI_INT32 get_bit(const s_vpi_vecval *vec, int i)
+{
+    PLI_INT32 a = (vec[i / 32].aval >> (i % 32)) & 1;
+    PLI_INT32 b = (vec[i / 32].bval >> (i % 32)) & 1;
+    return b ? (a ? vpiX : vpiZ) : (a ? vpi1 : vpi0);
+}
+
+// stores a register value in the requested format; returns 0 on error
+static int format_value(mock_obj *reg, p_vpi_value value_p)
+{
+    int words = WORDS(reg->size);
+    switch (value_p->format) {
+        case vpiObjTypeVal:
+            value_p->format = reg->size == 1 ? vpiScalarVal : vpiVectorVal;
+            return format_value(reg, value_p);
+        case vpiVectorVal:
+        {
+            s_vpi_vecval *vec = get_vec_buffer(words);
+            memcpy(vec, reg->vec, sizeof(s_vpi_vecval) * words);
+            value_p->value.vector = vec;
+            return 1;
+        }
+        case vpiScalarVal:
+            value_p->value.scalar = get_bit(reg->vec, 0);
+            return 1;
+        case vpiIntVal:
+            value_p->value.integer = reg->vec[0].bval != 0 ? 0
+                : reg->vec[0].aval;
+            return 1;
+        case vpiBinStrVal:
+        {
+            static const char digits[] = "01zx";
+            char *str = get_str_buffer(reg->size);
+            int i;
+            for (i = 0; i < reg->size; ++i) {
+                str[reg->size - 1 - i] = digits[get_bit(reg->vec, i)];
+            }
+            str[reg->size] = 0;
+            value_p->value.str = str;
+            return 1;
+        }
+        case vpiSuppressVal:
+            return 1;
+        default:
+            set_error("value format %d is not supported", value_p->format);
+            return 0;
+    }
+}
+
+// parses a value in any supported format into a new vecval array; returns
+// NULL on error
+static s_vpi_vecval *parse_value(mock_obj *reg, p_vpi_value value_p)
+{
+    int words = WORDS(reg->size);
+    s_vpi_vecval *vec = (s_vpi_vecval*) calloc(words, sizeof(s_vpi_vecval));
+    switch (value_p->format) {
+        case vpiVectorVal:
+            memcpy(vec, value_p->value.vector, sizeof(s_vpi_vecval) * words);
+            break;
+        case vpiScalarVal:
+            switch (value_p->value.scalar) {
+                case vpi0: break;
+                case vpi1: vec[0].aval = 1; break;
+                case vpiZ: vec[0].bval = 1; break;
+                default: vec[0].aval = 1; vec[0].bval = 1; break;
+            }
+            break;
+        case vpiIntVal:
+            vec[0].aval = value_p->value.integer;
+            break;
+        case vpiBinStrVal:
+        {
+            const char *str = value_p->value.str;
+            int len = (int) strlen(str);
+            int i;
+            for (i = 0; i < len && i < reg->size; ++i) {
+                char c = str[len - 1 - i];
+                PLI_INT32 bit = 1 << (i % 32);
+                if (c == '1' || c == 'x' || c == 'X') {
+                    vec[i / 32].aval |= bit;
+                }
+                if (c == 'z' || c == 'Z' || c == 'x' || c == 'X') {
+                    vec[i / 32].bval |= bit;
+                }
+            }
+            break;
+        }
+        default:
+            set_error("value format %d is not supported", value_p->format);
+            free(vec);
+            return NULL;
+    }
+    mask_vec(vec, reg->size);
+    return vec;
+}
+
+/********************* callbacks *********************/
+
+static void fire(mock_cb *cb, mock_obj *obj)
+{
+    s_cb_data data = cb->data;
+    s_vpi_time time;
+    s_vpi_value value;
+
+    data.obj = (vpiHandle) obj;
+    data.time = NULL;
+    data.value = NULL;
+    if (cb->time.type == vpiSimTime || cb->time.type == vpiScaledRealTime) {
+        time.type = cb->time.type;
+        vpi_get_time(NULL, &time);
+        data.time = &time;
+    }
+    if (obj != NULL && cb->value.format != vpiSuppressVal) {
+        value.format = cb->value.format;
+        if (format_value(obj, &value)) {
+            data.value = &value;
+        }
+    }
+
+    ++firing_depth;
+    cb->data.cb_rtn(&data);
+    --firing_depth;
+}
+
+static void retire(mock_cb *cb)
+{
+    cb->removed = 1;
+    cb->next = retired_cbs;
+    retired_cbs = cb;
+}
+
+static void purge_retired(void)
+{
+    mock_cb **link = &retired_cbs;
+    while (*link != NULL) {
+        mock_cb *cb = *link;
+        if (cb->freed) {
+            *link = cb->next;
+            free(cb);
+        } else {
+            link = &cb->next;
+        }
+    }
+}
+
+// fires and retires every callback in a one-shot list
+static void fire_list(mock_cb **list)
+{
+    mock_cb *cb = *list;
+    *list = NULL;
+    while (cb != NULL) {
+        mock_cb *next = cb->next;
+        int removed = cb->removed;
+        retire(cb);
+        if (!removed) {
+            fire(cb, NULL);
+        }
+        cb = next;
+    }
+}
+
+static void fire_value_change(mock_obj *reg)
+{
+    mock_cb **link = &reg->vc_cbs;
+    while (*link != NULL) {
+        mock_cb *cb = *link;
+        if (cb->removed) {
+            if (firing_depth == 0) {
+                *link = cb->next;
+                retire(cb);
+                continue;
+            }
+        } else {
+            fire(cb, reg);
+        }
+        link = &cb->next;
+    }
+}
+
+static void assign(mock_obj *reg, const s_vpi_vecval *vec)
+{
+    int words = WORDS(reg->size);
+    if (memcmp(reg->vec, vec, sizeof(s_vpi_vecval) * words) != 0) {
+        memcpy(reg->vec, vec, sizeof(s_vpi_vecval) * words);
+        fire_value_change(reg);
+    }
+}
+
+/********************* driver interface *********************/
+
+void mockvpi_set_args(int argc, char **argv)
+{
+    vlog_argc = argc;
+    vlog_argv = argv;
+}
+
+static mock_obj *add_object(PLI_INT32 type, mock_obj *parent,
+    const char *name, int size)
+{
+    mock_obj *obj = (mock_obj*) calloc(1, sizeof(mock_obj));
+    obj->h.type = type;
+    obj->name = copy_string(name);
+    if (parent != NULL) {
+        obj->fullname = (char*) malloc(strlen(parent->fullname) +
+            strlen(name) + 2);
+        sprintf(obj->fullname, "%s.%s", parent->fullname, name);
+    } else {
+        obj->fullname = copy_string(name);
+    }
+    obj->size = size;
+    obj->parent = parent;
+
+    if (design_tail != NULL) {
+        design_tail->next = obj;
+    } else {
+        design_head = obj;
+    }
+    design_tail = obj;
+    return obj;
+}
+
+vpiHandle mockvpi_add_module(const char *name)
+{
+    return (vpiHandle) add_object(vpiModule, NULL, name, 0);
+}
+
+vpiHandle mockvpi_add_reg(vpiHandle module, const char *name, int size)
+{
+    mock_obj *reg = add_object(vpiReg, as_obj(module), name, size);
+    int words = WORDS(size);
+    int i;
+    reg->vec = (s_vpi_vecval*) malloc(sizeof(s_vpi_vecval) * words);
+    for (i = 0; i < words; ++i) {
+        reg->vec[i].aval = -1;
+        reg->vec[i].bval = -1;
+    }
+    mask_vec(reg->vec, size);
+    return (vpiHandle) reg;
+}
+
+void mockvpi_assign(vpiHandle handle, const s_vpi_vecval *value)
+{
+    mock_obj *reg = as_reg(handle);
+    if (reg != NULL && !reg->forced) {
+        s_vpi_vecval *vec = (s_vpi_vecval*) malloc(sizeof(s_vpi_vecval) *
+            WORDS(reg->size));
+        memcpy(vec, value, sizeof(s_vpi_vecval) * WORDS(reg->size));
+        mask_vec(vec, reg->size);
+        assign(reg, vec);
+        free(vec);
+    }
+}
+
+int mockvpi_call_systf(const char *name)
+{
+    mock_systf *tf;
+    for (tf = systfs; tf != NULL; tf = tf->next) {
+        if (strcmp(tf->data.tfname, name) == 0) {
+            if (tf->data.calltf != NULL) {
+                tf->data.calltf(tf->data.user_data);
+            }
+            return 1;
+        }
+    }
+    return 0;
+}
+
+void mockvpi_start(void)
+{
+    fire_list(&start_cbs);
+}
+
+void mockvpi_advance(mockvpi_time time)
+{
+    mock_event **elink = &events;
+    mock_cb **clink = &timed_cbs;
+
+    fire_list(&next_time_cbs);
+
+    sim_time = time;
+
+    // fire timed callbacks that are due
+    while (*clink != NULL) {
+        mock_cb *cb = *clink;
+        if (cb->removed || cb->due <= time) {
+            *clink = cb->next;
+            if (!cb->removed) {
+                retire(cb);
+                fire(cb, NULL);
+            } else {
+                retire(cb);
+            }
+        } else {
+            clink = &cb->next;
+        }
+    }
+
+    // apply scheduled assignments that are due
+    while (*elink != NULL) {
+        mock_event *ev = *elink;
+        if (ev->cancelled || ev->due <= time) {
+            *elink = ev->next;
+            if (!ev->cancelled && !ev->obj->forced) {
+                assign(ev->obj, ev->vec);
+            }
+            free(ev->vec);
+            ev->vec = NULL;
+            ev->cancelled = 1;
+            if (ev->freed) {
+                free(ev);
+            }
+        } else {
+            elink = &ev->next;
+        }
+    }
+}
+
+void mockvpi_end_step(void)
+{
+    while (rw_cbs != NULL) {
+        fire_list(&rw_cbs);
+    }
+    fire_list(&ro_cbs);
+    purge_retired();
+}
+
+void mockvpi_end(void)
+{
+    fire_list(&end_cbs);
+    purge_retired();
+}
+
+int mockvpi_finish_requested(void)
+{
+    return finish_requested;
+}
+
+/********************* VPI routines *********************/
+
+vpiHandle vpi_register_cb(p_cb_data cb_data_p)
+{
+    mock_cb *cb;
+    mock_cb **list;
+
+    clear_error();
+
+    switch (cb_data_p->reason) {
+        case cbValueChange:
+        {
+            mock_obj *reg = as_reg(cb_data_p->obj);
+            if (reg == NULL) {
+                set_error("value change callbacks require a reg");
+                return NULL;
+            }
+            list = &reg->vc_cbs;
+            break;
+        }
+        case cbReadWriteSynch: list = &rw_cbs; break;
+        case cbReadOnlySynch: list = &ro_cbs; break;
+        case cbNextSimTime: list = &next_time_cbs; break;
+        case cbAfterDelay:
+        case cbAtStartOfSimTime: list = &timed_cbs; break;
+        case cbStartOfSimulation: list = &start_cbs; break;
+        case cbEndOfSimulation: list = &end_cbs; break;
+        default:
+            set_error("callback reason %d is not supported",
+                cb_data_p->reason);
+            return NULL;
+    }
+
+    cb = (mock_cb*) calloc(1, sizeof(mock_cb));
+    cb->h.type = vpiCallback;
+    cb->data = *cb_data_p;
+    cb->time.type = vpiSuppressTime;
+    if (cb_data_p->time != NULL) {
+        cb->time = *cb_data_p->time;
+    }
+    cb->value.format = vpiSuppressVal;
+    if (cb_data_p->value != NULL) {
+        cb->value.format = cb_data_p->value->format;
+    }
+    if (cb_data_p->reason == cbAfterDelay ||
+        cb_data_p->reason == cbAtStartOfSimTime) {
+        mockvpi_time t = cb_data_p->time != NULL ?
+            ((mockvpi_time) cb_data_p->time->high << 32) |
+            cb_data_p->time->low : 0;
+        cb->due = cb_data_p->reason == cbAfterDelay ? sim_time + t : t;
+    }
+
+    // keep registration order
+    while (*list != NULL) {
+        list = &(*list)->next;
+    }
+    *list = cb;
+    return (vpiHandle) cb;
+}
+
+PLI_INT32 vpi_remove_cb(vpiHandle cb_obj)
+{
+    mock_cb *cb = (mock_cb*) cb_obj;
+    clear_error();
+    if (cb == NULL || cb->h.type != vpiCallback || cb->removed) {
+        set_error("invalid callback handle");
+        return 0;
+    }
+    // the callback is unlinked and freed lazily, since it may be removed
+    // while its list is being traversed
+    cb->removed = 1;
+    cb->freed = 1;
+    return 1;
+}
+
+vpiHandle vpi_register_systf(p_vpi_systf_data systf_data_p)
+{
+    mock_systf *tf = (mock_systf*) calloc(1, sizeof(mock_systf));
+    clear_error();
+    tf->h.type = vpiUserSystf;
+    tf->data = *systf_data_p;
+    tf->next = systfs;
+    systfs = tf;
+    return (vpiHandle) tf;
+}
+
+vpiHandle vpi_handle_by_name(PLI_BYTE8 *name, vpiHandle scope)
+{
+    mock_obj *parent = as_obj(scope);
+    mock_obj *obj;
+
+    clear_error();
+    for (obj = design_head; obj != NULL; obj = obj->next) {
+        if (parent != NULL) {
+            if (obj->parent == parent && strcmp(obj->name, name) == 0) {
+                return (vpiHandle) obj;
+            }
+        } else if (strcmp(obj->fullname, name) == 0) {
+            return (vpiHandle) obj;
+        }
+    }
+    return NULL;
+}
+
+vpiHandle vpi_handle_by_index(vpiHandle object, PLI_INT32 indx)
+{
+    clear_error();
+    set_error("vpi_handle_by_index is not supported");
+    return NULL;
+}
+
+vpiHandle vpi_handle_by_multi_index(vpiHandle obj, PLI_INT32 num_index,
+    PLI_INT32 *index_array)
+{
+    clear_error();
+    set_error("vpi_handle_by_multi_index is not supported");
+    return NULL;
+}
+
+vpiHandle vpi_handle(PLI_INT32 type, vpiHandle refHandle)
+{
+    mock_obj *obj = as_obj(refHandle);
+    clear_error();
+    if ((type == vpiModule || type == vpiScope) && obj != NULL) {
+        return (vpiHandle) obj->parent;
+    }
+    set_error("vpi_handle(%d) is not supported", type);
+    return NULL;
+}
+
+vpiHandle vpi_handle_multi(PLI_INT32 type, vpiHandle refHandle1,
+    vpiHandle refHandle2, ...)
+{
+    clear_error();
+    set_error("vpi_handle_multi is not supported");
+    return NULL;
+}
+
+vpiHandle vpi_iterate(PLI_INT32 type, vpiHandle refHandle)
+{
+    mock_obj *parent = as_obj(refHandle);
+    mock_iter *iter;
+    mock_obj *obj;
+    int count = 0;
+
+    clear_error();
+    for (obj = design_head; obj != NULL; obj = obj->next) {
+        if (obj->h.type == type && obj->parent == parent) {
+            ++count;
+        }
+    }
+    if (count == 0) {
+        return NULL;
+    }
+
+    iter = (mock_iter*) calloc(1, sizeof(mock_iter));
+    iter->h.type = vpiIterator;
+    iter->items = (mock_obj**) malloc(sizeof(mock_obj*) * count);
+    for (obj = design_head; obj != NULL; obj = obj->next) {
+        if (obj->h.type == type && obj->parent == parent) {
+            iter->items[iter->count++] = obj;
+        }
+    }
+    return (vpiHandle) iter;
+}
+
+vpiHandle vpi_scan(vpiHandle iterator)
+{
+    mock_iter *iter = (mock_iter*) iterator;
+    clear_error();
+    if (iter == NULL || iter->h.type != vpiIterator) {
+        set_error("invalid iterator handle");
+        return NULL;
+    }
+    if (iter->pos < iter->count) {
+        return (vpiHandle) iter->items[iter->pos++];
+    }
+    // iterators are freed automatically when exhausted
+    free(iter->items);
+    free(iter);
+    return NULL;
+}
+
+PLI_INT32 vpi_get(PLI_INT32 property, vpiHandle object)
+{
+    mock_handle *h = (mock_handle*) object;
+    mock_obj *obj = as_obj(object);
+
+    clear_error();
+    if (h == NULL) {
+        set_error("vpi_get(%d) requires an object", property);
+        return vpiUndefined;
+    }
+    switch (property) {
+        case vpiType:
+            return h->type;
+        case vpiSize:
+            if (obj != NULL && obj->h.type == vpiReg) {
+                return obj->size;
+            }
+            break;
+        case vpiScalar:
+            if (obj != NULL && obj->h.type == vpiReg) {
+                return obj->size == 1;
+            }
+            break;
+        case vpiVector:
+            if (obj != NULL && obj->h.type == vpiReg) {
+                return obj->size > 1;
+            }
+            break;
+        case vpiTopModule:
+            if (obj != NULL && obj->h.type == vpiModule) {
+                return obj->parent == NULL;
+            }
+            break;
+    }
+    set_error("property %d is not supported for object type %d", property,
+        h->type);
+    return vpiUndefined;
+}
+
+PLI_BYTE8 *vpi_get_str(PLI_INT32 property, vpiHandle object)
+{
+    mock_obj *obj = as_obj(object);
+
+    clear_error();
+    if (obj != NULL) {
+        switch (property) {
+            case vpiName: return obj->name;
+            case vpiFullName: return obj->fullname;
+        }
+    }
+    set_error("string property %d is not supported", property);
+    return NULL;
+}
+
+void vpi_get_value(vpiHandle expr, p_vpi_value value_p)
+{
+    mock_obj *reg = as_reg(expr);
+
+    clear_error();
+    if (reg == NULL) {
+        set_error("vpi_get_value requires a reg");
+        return;
+    }
+    format_value(reg, value_p);
+}
+
+vpiHandle vpi_put_value(vpiHandle object, p_vpi_value value_p,
+    p_vpi_time time_p, PLI_INT32 flags)
+{
+    mock_handle *h = (mock_handle*) object;
+    mock_obj *reg = as_reg(object);
+    PLI_INT32 mode = flags & ~vpiReturnEvent;
+    s_vpi_vecval *vec;
+    mockvpi_time delay = 0;
+
+    clear_error();
+
+    if (mode == vpiCancelEvent) {
+        mock_event *ev = (mock_event*) object;
+        if (h == NULL || h->type != vpiSchedEvent) {
+            set_error("vpiCancelEvent requires a scheduled event");
+            return NULL;
+        }
+        ev->cancelled = 1;
+        return NULL;
+    }
+
+    if (reg == NULL) {
+        set_error("vpi_put_value requires a reg");
+        return NULL;
+    }
+
+    if (mode == vpiReleaseFlag) {
+        reg->forced = 0;
+        format_value(reg, value_p);
+        return NULL;
+    }
+
+    vec = parse_value(reg, value_p);
+    if (vec == NULL) {
+        return NULL;
+    }
+
+    if (mode == vpiForceFlag) {
+        reg->forced = 0;
+        assign(reg, vec);
+        reg->forced = 1;
+        free(vec);
+        return NULL;
+    }
+
+    if (mode != vpiNoDelay && time_p != NULL) {
+        if (time_p->type == vpiScaledRealTime) {
+            delay = (mockvpi_time) time_p->real;
+        } else {
+            delay = ((mockvpi_time) time_p->high << 32) | time_p->low;
+        }
+    }
+
+    if (delay == 0) {
+        if (!reg->forced) {
+            assign(reg, vec);
+        }
+        free(vec);
+        return NULL;
+    } else {
+        mock_event *ev = (mock_event*) calloc(1, sizeof(mock_event));
+        mock_event **link = &events;
+        ev->h.type = vpiSchedEvent;
+        ev->obj = reg;
+        ev->vec = vec;
+        ev->due = sim_time + delay;
+        // events that are not returned are owned by the simulator
+        ev->freed = (flags & vpiReturnEvent) == 0;
+        while (*link != NULL) {
+            link = &(*link)->next;
+        }
+        *link = ev;
+        return (flags & vpiReturnEvent) != 0 ? (vpiHandle) ev : NULL;
+    }
+}
+
+void vpi_get_time(vpiHandle object, p_vpi_time time_p)
+{
+    clear_error();
+    switch (time_p->type) {
+        case vpiSimTime:
+            time_p->high = (PLI_UINT32) (sim_time >> 32);
+            time_p->low = (PLI_UINT32) sim_time;
+            break;
+        case vpiScaledRealTime:
+            time_p->real = (double) sim_time;
+            break;
+        default:
+            set_error("time type %d is not supported", time_p->type);
+            break;
+    }
+}
+
+PLI_INT32 vpi_printf(PLI_BYTE8 *format, ...)
+{
+    va_list ap;
+    PLI_INT32 result;
+    clear_error();
+    va_start(ap, format);
+    result = vprintf(format, ap);
+    va_end(ap);
+    return result;
+}
+
+PLI_INT32 vpi_flush(void)
+{
+    clear_error();
+    return fflush(stdout);
+}
+
+PLI_INT32 vpi_compare_objects(vpiHandle object1, vpiHandle object2)
+{
+    clear_error();
+    return object1 == object2;
+}
+
+PLI_INT32 vpi_chk_error(p_vpi_error_info error_info_p)
+{
+    if (!has_error) {
+        return 0;
+    }
+    if (error_info_p != NULL) {
+        *error_info_p = last_error;
+    }
+    return last_error.level;
+}
+
+PLI_INT32 vpi_free_object(vpiHandle object)
+{
+    mock_handle *h = (mock_handle*) object;
+
+    clear_error();
+    if (h == NULL) {
+        set_error("vpi_free_object requires an object");
+        return 0;
+    }
+    switch (h->type) {
+        case vpiCallback:
+        {
+            // released callbacks are freed once they are no longer listed
+            mock_cb *cb = (mock_cb*) h;
+            cb->freed = 1;
+            break;
+        }
+        case vpiSchedEvent:
+        {
+            mock_event *ev = (mock_event*) h;
+            if (ev->vec == NULL) {
+                free(ev);
+            } else {
+                ev->freed = 1;
+            }
+            break;
+        }
+        case vpiIterator:
+        {
+            mock_iter *iter = (mock_iter*) h;
+            free(iter->items);
+            free(iter);
+            break;
+        }
+    }
+    return 1;
+}
+
+PLI_INT32 vpi_get_vlog_info(p_vpi_vlog_info vlog_info_p)
+{
+    clear_error();
+    vlog_info_p->argc = vlog_argc;
+    vlog_info_p->argv = vlog_argv;
+    vlog_info_p->product = (PLI_BYTE8*) MOCK_PRODUCT;
+    vlog_info_p->version = (PLI_BYTE8*) MOCK_VERSION;
+    return 1;
+}
+
+PLI_INT32 vpi_control(PLI_INT32 operation, ...)
+{
+    clear_error();
+    switch (operation) {
+        case vpiStop:
+            printf("%s: $stop at time %llu\n", MOCK_PRODUCT,
+                (unsigned long long) sim_time);
+            return 1;
+        case vpiFinish:
+            finish_requested = 1;
+            return 1;
+    }
+    set_error("vpi_control(%d) is not supported", operation);
+    return 0;
+}
+
+/********************* TF and ACC routines used by pli4j *********************/
+
+int tf_error(char *fmt, ...)
+{
+    va_list ap;
+    va_start(ap, fmt);
+    vfprintf(stderr, fmt, ap);
+    va_end(ap);
+    return 0;
+}
+
+char *acc_product_version(void)
+{
+    return (char*) MOCK_PRODUCT " " MOCK_VERSION;
+}
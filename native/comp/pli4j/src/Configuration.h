@@ -29,7 +29,11 @@
 //#define JVM_DEBUG
 //#define OVA_DEBUG
 
-#define SIMULATOR_VCS
+// SIMULATOR_MOCK is defined when building against the mock VPI library
+// used by the jove-ffm benchmark
+#ifndef SIMULATOR_MOCK
+    #define SIMULATOR_VCS
+#endif
 
 #ifdef SIMULATOR_VCS
     #define NO_VPI_CONTROL
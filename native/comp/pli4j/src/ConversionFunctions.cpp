@@ -116,6 +116,10 @@ jobject getJavaValue(const jnicpp::JEnv& env, vpiHandle obj, const s_vpi_value&
 
             return pjoc->BitVector_ctor.create(JArguments() << aval << bval << size);
         }
+        case vpiSuppressVal:
+        {
+            return NULL;
+        }
         case vpiStrengthVal:
             // TODO
         case vpiTimeVal:
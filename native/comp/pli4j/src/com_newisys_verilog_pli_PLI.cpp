@@ -651,6 +651,109 @@ JNIEXPORT jlong JNICALL Java_com_newisys_verilog_pli_PLI_putValue0
     return returnVal;
 }
 
+// returns the s_vpi_vecval array stored at the given offset in a direct
+// ByteBuffer, after checking that it holds exactly the number of words needed
+// for the value of the given object and lies within the buffer; otherwise,
+// sets the synthetic error and returns NULL
+static p_vpi_vecval getValueSlot(JNIEnv *penv, vpiHandle handle,
+    jobject buffer, jint offset, jint wordCount)
+{
+    char* base = static_cast<char*>(penv->GetDirectBufferAddress(buffer));
+    if (base == NULL) {
+        synthError = true;
+        synthMessage = "Value buffer is not a direct buffer";
+        return NULL;
+    }
+
+    jlong capacity = penv->GetDirectBufferCapacity(buffer);
+    jlong slotSize = static_cast<jlong>(wordCount) * sizeof(s_vpi_vecval);
+    if (offset < 0 || wordCount <= 0 || offset + slotSize > capacity) {
+        synthError = true;
+        std::ostringstream msg;
+        msg << "Value slot (offset " << offset << ", " << wordCount
+            << " words) does not fit in buffer of " << capacity << " bytes";
+        synthMessage = msg.str();
+        return NULL;
+    }
+
+    PLI_INT32 size = vpi_get(vpiSize, handle);
+    if (size <= 0 || (size - 1) / 32 + 1 != wordCount) {
+        synthError = true;
+        std::ostringstream msg;
+        msg << "Value slot of " << wordCount
+            << " words does not match object size " << size;
+        synthMessage = msg.str();
+        return NULL;
+    }
+
+    return reinterpret_cast<p_vpi_vecval>(base + offset);
+}
+
+/*
+ * Class:     com_newisys_verilog_pli_PLI
+ * Method:    getValueDirect0
+ * Signature: (JLjava/nio/ByteBuffer;II)Z
+ */
+JNIEXPORT jboolean JNICALL Java_com_newisys_verilog_pli_PLI_getValueDirect0
+  (JNIEnv *penv, jobject ths, jlong lhandle, jobject buffer, jint offset,
+  jint wordCount)
+{
+    // clear synthetic error flag
+    synthError = false;
+
+    vpiHandle handle = reinterpret_cast<vpiHandle>(lhandle);
+    p_vpi_vecval slot = getValueSlot(penv, handle, buffer, offset, wordCount);
+    if (slot == NULL) {
+        return JNI_FALSE;
+    }
+
+    s_vpi_value value;
+    value.format = vpiVectorVal;
+    value.value.vector = NULL;
+#ifdef PLI_DEBUG
+    cout << "vpi_get_value(direct): handle=" << handle << ", offset=" << offset << endl;
+#endif
+    vpi_get_value(handle, &value);
+    if (vpi_chk_error(NULL)) {
+        return JNI_FALSE;
+    }
+
+    // copy the simulator's vecval array straight into the shared slot; no
+    // Java objects are created
+    memcpy(slot, value.value.vector, wordCount * sizeof(s_vpi_vecval));
+    return JNI_TRUE;
+}
+
+/*
+ * Class:     com_newisys_verilog_pli_PLI
+ * Method:    putValueDirect0
+ * Signature: (JLjava/nio/ByteBuffer;II)Z
+ */
+JNIEXPORT jboolean JNICALL Java_com_newisys_verilog_pli_PLI_putValueDirect0
+  (JNIEnv *penv, jobject ths, jlong lhandle, jobject buffer, jint offset,
+  jint wordCount)
+{
+    // clear synthetic error flag
+    synthError = false;
+
+    vpiHandle handle = reinterpret_cast<vpiHandle>(lhandle);
+    p_vpi_vecval slot = getValueSlot(penv, handle, buffer, offset, wordCount);
+    if (slot == NULL) {
+        return JNI_FALSE;
+    }
+
+    // the slot already has the s_vpi_vecval layout, so the simulator reads
+    // the value in place
+    s_vpi_value value;
+    value.format = vpiVectorVal;
+    value.value.vector = slot;
+#ifdef PLI_DEBUG
+    cout << "vpi_put_value(direct): handle=" << handle << ", offset=" << offset << endl;
+#endif
+    vpi_put_value(handle, &value, NULL, vpiNoDelay);
+    return vpi_chk_error(NULL) ? JNI_FALSE : JNI_TRUE;
+}
+
 /*
  * Class:     com_newisys_verilog_pli_PLI
  * Method:    releaseForce0
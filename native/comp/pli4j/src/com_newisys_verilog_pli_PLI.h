@@ -144,6 +144,22 @@ JNIEXPORT jobject JNICALL Java_com_newisys_verilog_pli_PLI_getValue0
 JNIEXPORT jlong JNICALL Java_com_newisys_verilog_pli_PLI_putValue0
   (JNIEnv *, jobject, jlong, jobject, jint, jlong, jdouble, jint);
 
+/*
+ * Class:     com_newisys_verilog_pli_PLI
+ * Method:    getValueDirect0
+ * Signature: (JLjava/nio/ByteBuffer;II)Z
+ */
+JNIEXPORT jboolean JNICALL Java_com_newisys_verilog_pli_PLI_getValueDirect0
+  (JNIEnv *, jobject, jlong, jobject, jint, jint);
+
+/*
+ * Class:     com_newisys_verilog_pli_PLI
+ * Method:    putValueDirect0
+ * Signature: (JLjava/nio/ByteBuffer;II)Z
+ */
+JNIEXPORT jboolean JNICALL Java_com_newisys_verilog_pli_PLI_putValueDirect0
+  (JNIEnv *, jobject, jlong, jobject, jint, jint);
+
 /*
  * Class:     com_newisys_verilog_pli_PLI
  * Method:    releaseForce0
@@ -53,6 +53,7 @@
 
 #include <assert.h>
 #include <signal.h>
+#include <string.h>
 
 // using declarations
 using namespace jnicpp;
@@ -225,6 +226,12 @@ static void checkInit()
         pjoc->PLI_class.registerNativeMethod("putValue0",
             "(JLjava/lang/Object;IJDI)J",
             (void*)Java_com_newisys_verilog_pli_PLI_putValue0);
+        pjoc->PLI_class.registerNativeMethod("getValueDirect0",
+            "(JLjava/nio/ByteBuffer;II)Z",
+            (void*)Java_com_newisys_verilog_pli_PLI_getValueDirect0);
+        pjoc->PLI_class.registerNativeMethod("putValueDirect0",
+            "(JLjava/nio/ByteBuffer;II)Z",
+            (void*)Java_com_newisys_verilog_pli_PLI_putValueDirect0);
         pjoc->PLI_class.registerNativeMethod("releaseForce0",
             "(J)Ljava/lang/Object;",
             (void*)Java_com_newisys_verilog_pli_PLI_releaseForce0);
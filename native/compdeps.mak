@@ -1,5 +1,6 @@
 jvmlibpaths jvmtest : jvminvoke
 pli4j : jnicpp vpicpp
+mocksim : mockvpi pli4j
 hellojava : pli4j jvmlibpaths
 
 # include any site-specific compdeps if they exist